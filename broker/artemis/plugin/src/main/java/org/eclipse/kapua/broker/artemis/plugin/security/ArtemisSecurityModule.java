@@ -20,6 +20,7 @@ import javax.jms.JMSException;
 
 import org.eclipse.kapua.KapuaErrorCodes;
 import org.eclipse.kapua.KapuaRuntimeException;
+import org.eclipse.kapua.broker.artemis.plugin.security.context.AclTemplateRegistry;
 import org.eclipse.kapua.broker.artemis.plugin.security.context.SecurityContext;
 import org.eclipse.kapua.broker.artemis.plugin.security.metric.LoginMetric;
 import org.eclipse.kapua.broker.artemis.plugin.security.setting.BrokerSetting;
@@ -66,6 +67,10 @@ public class ArtemisSecurityModule extends AbstractKapuaModule {
                         brokerSettings.getInt(BrokerSettingKey.CACHE_SESSION_CONTEXT_SIZE),
                         brokerSettings.getInt(BrokerSettingKey.CACHE_SESSION_CONTEXT_TTL),
                         null),
+                new AclTemplateRegistry(loginMetric,
+                        brokerSettings.getInt(BrokerSettingKey.CACHE_ACL_TEMPLATE_SIZE, 10000),
+                        brokerSettings.getInt(BrokerSettingKey.CACHE_ACL_TEMPLATE_MATCH_SIZE, 10000)),
+                brokerSettings.getInt(BrokerSettingKey.CACHE_ACL_DECISION_SIZE, 64),
                 metricsSecurityPlugin,
                 runWithLock
         );
@@ -80,11 +85,12 @@ public class ArtemisSecurityModule extends AbstractKapuaModule {
             KapuaMessageListener messageListener,
             @Named("clusterName") String clusterName,
             @Named("brokerHost") String brokerHost,
-            SystemSetting systemSetting) {
-        return new ServiceClientMessagingImpl(messageListener, buildClient(systemSetting, clusterName, brokerHost, messageListener));
+            SystemSetting systemSetting,
+            BrokerSetting brokerSetting) {
+        return new ServiceClientMessagingImpl(messageListener, buildClient(systemSetting, brokerSetting, clusterName, brokerHost, messageListener));
     }
 
-    public Client buildClient(SystemSetting systemSetting, String clusterName, String brokerHost, KapuaMessageListener messageListener) {
+    public Client buildClient(SystemSetting systemSetting, BrokerSetting brokerSetting, String clusterName, String brokerHost, KapuaMessageListener messageListener) {
         //TODO change configuration (use service event broker for now)
         String clientId = "svc-ath-" + UUID.randomUUID().toString();
         String host = systemSetting.getString(SystemSettingKey.SERVICE_BUS_HOST, "events-broker");
@@ -93,7 +99,8 @@ public class ArtemisSecurityModule extends AbstractKapuaModule {
         String password = systemSetting.getString(SystemSettingKey.SERVICE_BUS_PASSWORD, "password");
         try {
             return new Client(username, password, host, port, clientId,
-                    REQUEST_QUEUE, String.format(RESPONSE_QUEUE_PATTERN, clusterName, brokerHost), messageListener);
+                    REQUEST_QUEUE, String.format(RESPONSE_QUEUE_PATTERN, clusterName, brokerHost), messageListener,
+                    brokerSetting.getInt(BrokerSettingKey.AUTH_SERVICE_CLIENT_PRODUCER_POOL_SIZE, 8));
         } catch (JMSException e) {
             throw new KapuaRuntimeException(KapuaErrorCodes.INTERNAL_ERROR, e, (Object[]) null);
         }
@@ -26,8 +26,6 @@ import javax.inject.Singleton;
 @Singleton
 public class MetricsSecurityPlugin {
 
-    private static final String ACL = "acl";
-    private static final String SESSION_CONTEXT = "session_context";
     private static final String SESSION_CONTEXT_BY_CLIENT = "session_context_by_client";
     private static final String ACTIVE_CONNECTION = "active_connection";
     private static final String TOTAL_MESSAGE = "total_message";
@@ -46,11 +44,20 @@ public class MetricsSecurityPlugin {
         this.metricModuleName = metricModuleName;
     }
 
-    public void init(ActiveMQServer server, Gauge<Integer> mapSize, Gauge<Integer> mapByClientSize, Gauge<Integer> aclSize, Gauge<Integer> activeConnection) throws KapuaException {
-        metricsService.registerGauge(mapSize, metricModuleName, LoginMetric.COMPONENT_LOGIN, SESSION_CONTEXT);
-        metricsService.registerGauge(mapByClientSize, metricModuleName, LoginMetric.COMPONENT_LOGIN, SESSION_CONTEXT_BY_CLIENT);
-        metricsService.registerGauge(aclSize, metricModuleName, LoginMetric.COMPONENT_LOGIN, ACL);
+    /**
+     * Registers the broker gauges.
+     * <p>
+     * Each active connection holds both its session context and its acl, so a single gauge counts the connections, the session contexts and the acls.
+     *
+     * @param server           The {@link ActiveMQServer}.
+     * @param activeConnection The {@link Gauge} of the active connections.
+     * @param mapByClientSize  The {@link Gauge} of the session contexts by full client id.
+     * @throws KapuaException If a gauge cannot be registered.
+     * @since 2.1.0
+     */
+    public void init(ActiveMQServer server, Gauge<Integer> activeConnection, Gauge<Integer> mapByClientSize) throws KapuaException {
         metricsService.registerGauge(activeConnection, metricModuleName, LoginMetric.COMPONENT_LOGIN, ACTIVE_CONNECTION);
+        metricsService.registerGauge(mapByClientSize, metricModuleName, LoginMetric.COMPONENT_LOGIN, SESSION_CONTEXT_BY_CLIENT);
 
         metricsService.registerGauge(() -> server.getTotalMessageCount(), metricModuleName, LoginMetric.COMPONENT_LOGIN, TOTAL_MESSAGE, MetricsLabel.SIZE);
         metricsService.registerGauge(() -> server.getTotalMessagesAcknowledged(), metricModuleName, LoginMetric.COMPONENT_LOGIN, TOTAL_MESSAGE_ACKNOWLEDGED, MetricsLabel.SIZE);
@@ -23,11 +23,13 @@ import org.apache.activemq.artemis.core.security.CheckType;
 import org.apache.activemq.artemis.core.security.Role;
 import org.apache.activemq.artemis.spi.core.protocol.RemotingConnection;
 import org.apache.activemq.artemis.spi.core.security.ActiveMQSecurityManager5;
+import org.eclipse.kapua.KapuaRuntimeException;
 import org.eclipse.kapua.broker.artemis.plugin.security.metric.LoginMetric;
 import org.eclipse.kapua.broker.artemis.plugin.security.metric.PublishMetric;
 import org.eclipse.kapua.broker.artemis.plugin.security.metric.SubscribeMetric;
 import org.eclipse.kapua.broker.artemis.plugin.security.setting.BrokerSetting;
 import org.eclipse.kapua.broker.artemis.plugin.security.setting.BrokerSettingKey;
+import org.eclipse.kapua.client.security.AuthErrorCodes;
 import org.eclipse.kapua.client.security.ServiceClient.EntityType;
 import org.eclipse.kapua.client.security.ServiceClient.SecurityAction;
 import org.eclipse.kapua.client.security.bean.AuthRequest;
@@ -210,6 +212,9 @@ public class SecurityPlugin implements ActiveMQSecurityManager5 {
         } catch (Exception e) {
             loginMetric.getExternalConnector().getFailure().inc();
             logger.error("Authenticate external: error: {}", e.getMessage());
+            if (isServiceOverloaded(e)) {
+                throw (KapuaRuntimeException) e;
+            }
             return null;
         } finally {
             timeTotal.stop();
@@ -310,6 +315,10 @@ public class SecurityPlugin implements ActiveMQSecurityManager5 {
                 //TODO check if it's still valid with Artemis
                 // activeMQ-MQ will map SecurityException into a CONNECTION_REFUSED_NOT_AUTHORIZED message (see javadoc on top of this method)
                 throw new SecurityException("User not authorized! Credentials provided are either locked, disabled or expired");
+            } else if (AuthErrorCodes.SERVICE_OVERLOADED.name().equals(errorCode)) {
+                logger.warn("Login of user {} rejected by the overloaded Authentication Service, the client should retry later", authResponse.getUsername());
+                // not a security failure: Artemis drops the connection without refusing it as not authorized, so the client retries as for a server unavailable
+                throw new KapuaRuntimeException(AuthErrorCodes.SERVICE_OVERLOADED);
             } else {
                 //KapuaAuthenticationErrorCodes.AUTHENTICATION_ERROR - ILLEGAL_ACCESS etc
                 //TODO throw other exception?
@@ -318,6 +327,10 @@ public class SecurityPlugin implements ActiveMQSecurityManager5 {
         }
     }
 
+    private boolean isServiceOverloaded(Exception e) {
+        return e instanceof KapuaRuntimeException && AuthErrorCodes.SERVICE_OVERLOADED.equals(((KapuaRuntimeException) e).getCode());
+    }
+
     private Certificate[] getPeerCertificates(RemotingConnection remotingConnection) {
         NettyServerConnection nettyServerConnection = ((NettyServerConnection) remotingConnection.getTransportConnection());
         try {
@@ -20,6 +20,7 @@ import org.eclipse.kapua.client.security.ServiceClient;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.IOException;
 
 public class ServerContext {
 
@@ -53,6 +54,11 @@ public class ServerContext {
 
     public void shutdown(ActiveMQServer server) throws KapuaException {
         securityContext.shutdown(server);
+        try {
+            authServiceClient.close();
+        } catch (IOException e) {
+            throw KapuaException.internalError(e, "Cannot close the authentication service client");
+        }
     }
 
     public ActiveMQServer getServer() {
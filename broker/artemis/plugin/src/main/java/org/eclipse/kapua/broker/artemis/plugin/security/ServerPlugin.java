@@ -12,7 +12,6 @@
  *******************************************************************************/
 package org.eclipse.kapua.broker.artemis.plugin.security;
 
-import java.util.Base64;
 import java.util.Map;
 
 import org.apache.activemq.artemis.api.core.ActiveMQException;
@@ -26,7 +25,6 @@ import org.apache.activemq.artemis.core.server.plugin.ActiveMQServerPlugin;
 import org.apache.activemq.artemis.core.transaction.Transaction;
 import org.apache.activemq.artemis.spi.core.protocol.RemotingConnection;
 import org.apache.activemq.artemis.utils.critical.CriticalComponent;
-import org.apache.commons.lang3.SerializationUtils;
 import org.eclipse.kapua.broker.artemis.plugin.security.connector.AcceptorHandler;
 import org.eclipse.kapua.broker.artemis.plugin.security.event.BrokerEvent;
 import org.eclipse.kapua.broker.artemis.plugin.security.event.BrokerEvent.EventType;
@@ -44,6 +42,7 @@ import org.eclipse.kapua.client.security.context.SessionContext;
 import org.eclipse.kapua.client.security.context.Utils;
 import org.eclipse.kapua.commons.core.ServiceModuleBundle;
 import org.eclipse.kapua.commons.metric.CommonsMetric;
+import org.eclipse.kapua.commons.security.KapuaSessionCodec;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
 import org.eclipse.kapua.commons.util.KapuaDateUtils;
@@ -101,6 +100,11 @@ public class ServerPlugin implements ActiveMQServerPlugin {
      */
     private int publishInfoMessageSizeLimit;
 
+    /**
+     * encode the session headers with the legacy (Java serialization) encoding, for consumers not yet upgraded
+     */
+    private boolean sessionHeaderLegacyEncoding;
+
     private final LoginMetric loginMetric;
     private final PublishMetric publishMetric;
     private final SubscribeMetric subscribeMetric;
@@ -122,6 +126,7 @@ public class ServerPlugin implements ActiveMQServerPlugin {
         this.brokerSetting = kapuaLocator.getComponent(BrokerSetting.class);
         this.pluginUtility = kapuaLocator.getComponent(PluginUtility.class);
         this.publishInfoMessageSizeLimit = brokerSetting.getInt(BrokerSettingKey.PUBLISHED_MESSAGE_SIZE_LOG_THRESHOLD, DEFAULT_PUBLISHED_MESSAGE_SIZE_LOG_THRESHOLD);
+        this.sessionHeaderLegacyEncoding = brokerSetting.getBoolean(BrokerSettingKey.SESSION_HEADER_LEGACY_ENCODING, false);
         serverContext = kapuaLocator.getComponent(ServerContext.class);
         deviceConnectionEventListenerService = kapuaLocator.getComponent(DeviceConnectionEventListenerService.class);
         brokerEventHandler = new BrokerEventHandler(kapuaLocator.getComponent(CommonsMetric.class));
@@ -229,7 +234,9 @@ public class ServerPlugin implements ActiveMQServerPlugin {
             logger.debug("Publishing message on address {} from clientId: {} - clientIp: {}", address, sessionContext.getClientId(), sessionContext.getClientIp());
             message.putStringProperty(MessageConstants.HEADER_KAPUA_CLIENT_ID, sessionContext.getClientId());
             message.putStringProperty(MessageConstants.HEADER_KAPUA_CONNECTOR_NAME, sessionContext.getConnectorName());
-            message.putStringProperty(MessageConstants.HEADER_KAPUA_SESSION, Base64.getEncoder().encodeToString(SerializationUtils.serialize(sessionContext.getKapuaSession())));
+            message.putStringProperty(MessageConstants.HEADER_KAPUA_SESSION, sessionHeaderLegacyEncoding ?
+                    KapuaSessionCodec.encodeLegacy(sessionContext.getKapuaSession()) :
+                    KapuaSessionCodec.encodeSession(sessionContext.getKapuaSession()));
             message.putLongProperty(MessageConstants.HEADER_KAPUA_RECEIVED_TIMESTAMP, KapuaDateUtils.getKapuaSysDate().getEpochSecond());
             message.putStringProperty(MessageConstants.HEADER_KAPUA_MESSAGE_TYPE, getMessgeType(address));
             message.putStringProperty(MessageConstants.HEADER_KAPUA_ACCOUNT_NAME, sessionContext.getAccountName());
@@ -240,7 +247,9 @@ public class ServerPlugin implements ActiveMQServerPlugin {
                     sessionContext.setMissing(true);
                 }
                 // FIX #164
-                message.putStringProperty(MessageConstants.HEADER_KAPUA_CONNECTION_ID, Base64.getEncoder().encodeToString(SerializationUtils.serialize(sessionContext.getKapuaConnectionId())));
+                message.putStringProperty(MessageConstants.HEADER_KAPUA_CONNECTION_ID, sessionHeaderLegacyEncoding ?
+                        KapuaSessionCodec.encodeLegacy(sessionContext.getKapuaConnectionId()) :
+                        KapuaSessionCodec.encodeId(sessionContext.getKapuaConnectionId()));
                 message.putBooleanProperty(MessageConstants.HEADER_KAPUA_BROKER_CONTEXT, false);
                 if (publishInfoMessageSizeLimit < messageSize) {
                     logger.info("Published message size over threshold. size: {} - destination: {} - account id: {} - username: {} - clientId: {}",
@@ -409,7 +418,13 @@ public class ServerPlugin implements ActiveMQServerPlugin {
                         updateError(authRequest, exception);
                     }
                     serverContext.getSecurityContext().updateStealingLinkAndIllegalState(authRequest, connectionId, sessionContextByClient != null ? sessionContextByClient.getConnectionId() : null);
-                    serverContext.getAuthServiceClient().brokerDisconnect(authRequest);
+                    //the response is not needed, so don't hold the Artemis thread waiting for it
+                    serverContext.getAuthServiceClient().brokerDisconnectAsync(authRequest).whenComplete((authResponse, error) -> {
+                        if (error != null) {
+                            loginMetric.getCleanupGenericFailure().inc();
+                            logger.error("Cleanup connection data error: {}", error.getMessage());
+                        }
+                    });
                 }
             } else {
                 logger.warn("Cannot find any session context for connection id: {}", connectionId);
@@ -12,118 +12,208 @@
  *******************************************************************************/
 package org.eclipse.kapua.broker.artemis.plugin.security.context;
 
-import org.apache.activemq.artemis.core.config.WildcardConfiguration;
-import org.apache.activemq.artemis.core.settings.HierarchicalRepository;
-import org.apache.activemq.artemis.core.settings.impl.HierarchicalObjectRepository;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.broker.artemis.plugin.security.metric.LoginMetric;
 import org.eclipse.kapua.client.security.bean.AuthAcl;
-import org.eclipse.kapua.client.security.bean.AuthAcl.Action;
 import org.eclipse.kapua.service.authentication.KapuaPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 
+/**
+ * Acl of a connection.
+ * <p>
+ * The compiled acl matches are held by an {@link AclTemplate} shared with all the connections with structurally identical acls,
+ * while the connection only keeps its principal and client id: the addresses are bound to the client id before being matched.
+ * <p>
+ * Since a connection keeps using the same few addresses, the decisions are cached by address (see {@link #isAllowed(Access, KapuaPrincipal, String, UnaryOperator)}).
+ * The cache lives as long as the {@link Acl}, which is replaced when the acls of the connection are refreshed.
+ */
 public class Acl {
 
     private final Logger logger = LoggerFactory.getLogger(Acl.class);
 
-    private static final char SINGLE_WORD = '+';
-    private static final char ANY_WORDS = '#';
-    private static final char SEPARATOR = '/';
-
-    private final LoginMetric loginMetric;
-    private final WildcardConfiguration wildcardConfiguration;
-    private final HierarchicalRepository<KapuaPrincipal> read;
-    private final HierarchicalRepository<KapuaPrincipal> write;
-    private final HierarchicalRepository<KapuaPrincipal> admin;
-
-    public Acl(LoginMetric loginMetric, KapuaPrincipal principal, List<AuthAcl> authAcls) throws KapuaIllegalArgumentException {
-        this.loginMetric = loginMetric;
-        wildcardConfiguration = new WildcardConfiguration();
-        wildcardConfiguration.setSingleWord(SINGLE_WORD);
-        wildcardConfiguration.setAnyWords(ANY_WORDS);
-        wildcardConfiguration.setDelimiter(SEPARATOR);
+    private final KapuaPrincipal principal;
+    private final String clientId;
+    private final AclTemplate template;
+    private final int maxCachedDecisions;
+    private final Map<String, Boolean> readDecisions = new ConcurrentHashMap<>(4);
+    private final Map<String, Boolean> writeDecisions = new ConcurrentHashMap<>(4);
+    private final Map<String, Boolean> adminDecisions = new ConcurrentHashMap<>(4);
+
+    /**
+     * Kind of access to an address.
+     *
+     * @since 2.1.0
+     */
+    public enum Access {
+        READ,
+        WRITE,
+        ADMIN
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param loginMetric         The {@link LoginMetric}.
+     * @param aclTemplateRegistry The {@link AclTemplateRegistry} providing the shared {@link AclTemplate}.
+     * @param principal           The {@link KapuaPrincipal} of the connection.
+     * @param authAcls            The acls of the connection.
+     * @param maxCachedDecisions  The maximum number of cached decisions for each {@link Access} (0 to disable the cache).
+     * @throws KapuaIllegalArgumentException if the principal is {@code null}.
+     * @since 2.1.0
+     */
+    public Acl(LoginMetric loginMetric, AclTemplateRegistry aclTemplateRegistry, KapuaPrincipal principal, List<AuthAcl> authAcls, int maxCachedDecisions) throws KapuaIllegalArgumentException {
         if (principal == null) {
             throw new KapuaIllegalArgumentException("principal", null);
         }
-        read = new HierarchicalObjectRepository<>(wildcardConfiguration);
-        read.setDefault(null);
-        write = new HierarchicalObjectRepository<>(wildcardConfiguration);
-        write.setDefault(null);
-        admin = new HierarchicalObjectRepository<>(wildcardConfiguration);
-        admin.setDefault(null);
+        this.principal = principal;
+        this.maxCachedDecisions = maxCachedDecisions;
+        clientId = isBindable(principal.getClientId()) ? principal.getClientId() : null;
+        template = aclTemplateRegistry.getTemplate(authAcls, principal.getClientId());
         StringBuilder aclLog = new StringBuilder();
         if (authAcls != null) {
-            authAcls.forEach((authAcl) -> {
-                try {
-                    add(principal, authAcl.getMatch(), authAcl.getAction());
+            authAcls.forEach((authAcl) ->
                     aclLog.append("\n\t").append(authAcl.getMatch()).append(" - ").append(authAcl.getAction()).append(" - ").
-                            append(principal.getName()).append("/").append(principal.getAccountId().toStringId()).append("/").append(principal.getClientId());
-                } catch (Exception e) {
-                    loginMetric.getAclCreationFailure().inc();
-                    //no security issue since in case of error no acl is added
-                    logger.error("Error adding acl {}", authAcl, e);
-                }
-            });
+                            append(principal.getName()).append("/").append(principal.getAccountId().toStringId()).append("/").append(principal.getClientId()));
         }
         logger.info("Acl: {}", aclLog);
     }
 
-    private void add(KapuaPrincipal principal, String match, Action action) throws KapuaIllegalArgumentException {
-        if (action == null) {
-            throw new KapuaIllegalArgumentException("action", null);
-        }
-        if (principal == null) {
-            throw new KapuaIllegalArgumentException("principal", null);
+    public boolean canRead(KapuaPrincipal principal, String address) {
+        return !containsAnyWordWildcardBeforeLastPosition(address) && isBound(principal, address) && template.matchesRead(bind(address));
+    }
+
+    public boolean canWrite(KapuaPrincipal principal, String address) {
+        return !containsWildcards(address) && isBound(principal, address) && template.matchesWrite(bind(address));
+    }
+
+    public boolean canManage(KapuaPrincipal principal, String address) {
+        return !containsAnyWordWildcardBeforeLastPosition(address) && isBound(principal, address) && template.matchesAdmin(bind(address));
+    }
+
+    /**
+     * Checks the access to the given address, as received by the broker.
+     * <p>
+     * The decision is cached by the received address, so the normalization and the matching are done only once per address.
+     *
+     * @param access     The {@link Access} to check.
+     * @param principal  The {@link KapuaPrincipal} of the connection.
+     * @param address    The address, as received by the broker.
+     * @param normalizer Normalizes the received address before the matching.
+     * @return {@code true} if the access is allowed, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    public boolean isAllowed(Access access, KapuaPrincipal principal, String address, UnaryOperator<String> normalizer) {
+        if (!this.principal.equals(principal)) {
+            return false;
         }
-        if (match == null || match.trim().length() <= 0) {
-            throw new KapuaIllegalArgumentException("match", match);
+        Map<String, Boolean> decisions = getDecisions(access);
+        Boolean allowed = decisions.get(address);
+        if (allowed == null) {
+            allowed = check(access, principal, normalizer.apply(address));
+            if (maxCachedDecisions > 0) {
+                if (decisions.size() >= maxCachedDecisions) {
+                    decisions.clear();
+                }
+                decisions.put(address, allowed);
+            }
         }
-        switch (action) {
-            case all:
-                read.addMatch(match, principal);
-                write.addMatch(match, principal);
-                admin.addMatch(match, principal);
-                break;
-            case read:
-                read.addMatch(match, principal);
-                break;
-            case write:
-                write.addMatch(match, principal);
-                break;
-            case admin:
-                admin.addMatch(match, principal);
-                break;
-            case readAdmin:
-                read.addMatch(match, principal);
-                admin.addMatch(match, principal);
-                break;
-            case writeAdmin:
-                write.addMatch(match, principal);
-                admin.addMatch(match, principal);
-                break;
+        return allowed;
+    }
+
+    private boolean check(Access access, KapuaPrincipal principal, String address) {
+        switch (access) {
+            case READ:
+                return canRead(principal, address);
+            case WRITE:
+                return canWrite(principal, address);
+            default:
+                return canManage(principal, address);
         }
     }
 
-    public boolean canRead(KapuaPrincipal principal, String address) {
-        return !containsAnyWordWildcardBeforeLastPosition(address) && principal.equals(read.getMatch(address));
+    private Map<String, Boolean> getDecisions(Access access) {
+        switch (access) {
+            case READ:
+                return readDecisions;
+            case WRITE:
+                return writeDecisions;
+            default:
+                return adminDecisions;
+        }
     }
 
-    public boolean canWrite(KapuaPrincipal principal, String address) {
-        return !containsWildcards(address) && principal.equals(write.getMatch(address));
+    private boolean isBound(KapuaPrincipal principal, String address) {
+        // the placeholder must not be forged by the client
+        return this.principal.equals(principal) && address.indexOf(AclTemplate.CLIENT_ID_PLACEHOLDER.charAt(0)) < 0;
     }
 
-    public boolean canManage(KapuaPrincipal principal, String address) {
-        return !containsAnyWordWildcardBeforeLastPosition(address) && principal.equals(admin.getMatch(address));
+    private String bind(String address) {
+        if (clientId == null || !address.contains(clientId)) {
+            return address;
+        }
+        return replaceWord(address, clientId, AclTemplate.CLIENT_ID_PLACEHOLDER);
     }
 
     private boolean containsAnyWordWildcardBeforeLastPosition(String address) {
-        return address.indexOf(ANY_WORDS) < address.length() - 1 && address.indexOf(ANY_WORDS) > -1;
+        return address.indexOf(AclTemplate.ANY_WORDS) < address.length() - 1 && address.indexOf(AclTemplate.ANY_WORDS) > -1;
     }
 
-    private boolean containsWildcards(String address) {
-        return address.indexOf(ANY_WORDS) > -1 || address.indexOf(SINGLE_WORD) > -1;
+    static boolean containsWildcards(String address) {
+        return address.indexOf(AclTemplate.ANY_WORDS) > -1 || address.indexOf(AclTemplate.SINGLE_WORD) > -1;
+    }
+
+    /**
+     * Checks whether the acls can be parametrized on the given client id, and so shared with the other connections.
+     * <p>
+     * The client id must be bindable (see {@link #isBindable(String)}) and must not contain wildcards,
+     * which could not be told apart from the wildcards of the other words of the matches.
+     */
+    static boolean isTemplatable(String clientId) {
+        return isBindable(clientId) && !containsWildcards(clientId);
+    }
+
+    /**
+     * Checks whether the given client id can be replaced by the {@link AclTemplate#CLIENT_ID_PLACEHOLDER} in the addresses of the connection.
+     * <p>
+     * A client id which is empty or contains separators cannot be told apart from the other words of the addresses,
+     * and a client id containing the {@link AclTemplate#CLIENT_ID_PLACEHOLDER} characters could be confused with the placeholder.
+     * A client id made of a wildcard only is not bound either, since the broker reads that word of the addresses as a wildcard.
+     */
+    static boolean isBindable(String clientId) {
+        return clientId != null && !clientId.isEmpty() &&
+                clientId.indexOf(AclTemplate.SEPARATOR) < 0 &&
+                clientId.indexOf(AclTemplate.CLIENT_ID_PLACEHOLDER.charAt(0)) < 0 &&
+                !clientId.equals(String.valueOf(AclTemplate.SINGLE_WORD)) &&
+                !clientId.equals(String.valueOf(AclTemplate.ANY_WORDS));
+    }
+
+    /**
+     * Replaces the words of the given address (or match) equal to the given word.
+     */
+    static String replaceWord(String address, String word, String replacement) {
+        StringBuilder bound = new StringBuilder(address.length() + replacement.length());
+        int start = 0;
+        while (start <= address.length()) {
+            int end = address.indexOf(AclTemplate.SEPARATOR, start);
+            if (end < 0) {
+                end = address.length();
+            }
+            if (start > 0) {
+                bound.append(AclTemplate.SEPARATOR);
+            }
+            if (end - start == word.length() && address.startsWith(word, start)) {
+                bound.append(replacement);
+            } else {
+                bound.append(address, start, end);
+            }
+            start = end + 1;
+        }
+        return bound.toString();
     }
 }
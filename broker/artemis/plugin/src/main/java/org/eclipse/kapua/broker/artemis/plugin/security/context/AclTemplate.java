@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.artemis.plugin.security.context;
+
+import org.apache.activemq.artemis.core.config.WildcardConfiguration;
+import org.apache.activemq.artemis.core.settings.HierarchicalRepository;
+import org.apache.activemq.artemis.core.settings.impl.HierarchicalObjectRepository;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.client.security.bean.AuthAcl.Action;
+
+/**
+ * Compiled acl shared by all the connections with structurally identical acls (i.e. the devices of the same account with the same permissions).
+ * <p>
+ * The client id of the connection is replaced in the acl matches by the {@link #CLIENT_ID_PLACEHOLDER} word,
+ * so the addresses are checked after replacing the client id of the connection with the same placeholder (see {@link Acl}).
+ *
+ * @since 2.1.0
+ */
+public class AclTemplate {
+
+    /**
+     * Word replacing the client id in the acl matches.
+     * <p>
+     * It contains a control character which is not expected in the addresses: addresses containing it are always denied.
+     *
+     * @since 2.1.0
+     */
+    public static final String CLIENT_ID_PLACEHOLDER = "\u0001clientId\u0001";
+
+    static final char SINGLE_WORD = '+';
+    static final char ANY_WORDS = '#';
+    static final char SEPARATOR = '/';
+
+    private final HierarchicalRepository<Boolean> read;
+    private final HierarchicalRepository<Boolean> write;
+    private final HierarchicalRepository<Boolean> admin;
+    private final int maxCachedMatches;
+
+    /**
+     * Constructor.
+     *
+     * @param maxCachedMatches The maximum number of address matches cached by each repository.
+     * @since 2.1.0
+     */
+    AclTemplate(int maxCachedMatches) {
+        this.maxCachedMatches = maxCachedMatches;
+        WildcardConfiguration wildcardConfiguration = new WildcardConfiguration();
+        wildcardConfiguration.setSingleWord(SINGLE_WORD);
+        wildcardConfiguration.setAnyWords(ANY_WORDS);
+        wildcardConfiguration.setDelimiter(SEPARATOR);
+        read = new HierarchicalObjectRepository<>(wildcardConfiguration);
+        read.setDefault(null);
+        write = new HierarchicalObjectRepository<>(wildcardConfiguration);
+        write.setDefault(null);
+        admin = new HierarchicalObjectRepository<>(wildcardConfiguration);
+        admin.setDefault(null);
+    }
+
+    void add(String match, Action action) throws KapuaIllegalArgumentException {
+        if (action == null) {
+            throw new KapuaIllegalArgumentException("action", null);
+        }
+        if (match == null || match.trim().length() <= 0) {
+            throw new KapuaIllegalArgumentException("match", match);
+        }
+        switch (action) {
+            case all:
+                read.addMatch(match, Boolean.TRUE);
+                write.addMatch(match, Boolean.TRUE);
+                admin.addMatch(match, Boolean.TRUE);
+                break;
+            case read:
+                read.addMatch(match, Boolean.TRUE);
+                break;
+            case write:
+                write.addMatch(match, Boolean.TRUE);
+                break;
+            case admin:
+                admin.addMatch(match, Boolean.TRUE);
+                break;
+            case readAdmin:
+                read.addMatch(match, Boolean.TRUE);
+                admin.addMatch(match, Boolean.TRUE);
+                break;
+            case writeAdmin:
+                write.addMatch(match, Boolean.TRUE);
+                admin.addMatch(match, Boolean.TRUE);
+                break;
+        }
+    }
+
+    boolean matchesRead(String boundAddress) {
+        return matches(read, boundAddress);
+    }
+
+    boolean matchesWrite(String boundAddress) {
+        return matches(write, boundAddress);
+    }
+
+    boolean matchesAdmin(String boundAddress) {
+        return matches(admin, boundAddress);
+    }
+
+    private boolean matches(HierarchicalRepository<Boolean> repository, String boundAddress) {
+        // The repository caches the matched addresses, and being shared it lives longer than a connection
+        if (repository.getCacheSize() > maxCachedMatches) {
+            repository.clearCache();
+        }
+        return repository.getMatch(boundAddress) != null;
+    }
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.artemis.plugin.security.context;
+
+import org.eclipse.kapua.broker.artemis.plugin.security.metric.LoginMetric;
+import org.eclipse.kapua.client.security.bean.AuthAcl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the {@link AclTemplate}s, so that connections with structurally identical acls share the same {@link AclTemplate}.
+ * <p>
+ * The acls received from the authentication service are already resolved for the account and the client id of the connection:
+ * the client id is replaced by the {@link AclTemplate#CLIENT_ID_PLACEHOLDER} and the resulting acls are the key of the {@link AclTemplate}.
+ * Since the account name stays in the acls, each {@link AclTemplate} is specific to an account and to a set of permissions.
+ * <p>
+ * The key encodes the length of each match, so that no client id (which is part of the matches when they cannot be parametrized on it)
+ * can make its acls collide with the ones of another connection.
+ * Matches received with the {@link AclTemplate#CLIENT_ID_PLACEHOLDER} characters are not added, since they could be bound to any client id.
+ * <p>
+ * When the acls contain a client id which cannot be parametrized (see {@link Acl#isTemplatable(String)}) the {@link AclTemplate} is built
+ * for the connection only and it is not shared. Its matches keep the client id, but the client id words are still replaced by the
+ * {@link AclTemplate#CLIENT_ID_PLACEHOLDER}, so that the wildcards of the client id do not match the addresses of the other clients.
+ *
+ * @since 2.1.0
+ */
+public class AclTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AclTemplateRegistry.class);
+
+    private final Map<String, AclTemplate> templates = new ConcurrentHashMap<>();
+    private final LoginMetric loginMetric;
+    private final int maxSize;
+    private final int maxCachedMatches;
+
+    /**
+     * Constructor.
+     *
+     * @param loginMetric      The {@link LoginMetric}.
+     * @param maxSize          The maximum number of {@link AclTemplate}s.
+     * @param maxCachedMatches The maximum number of address matches cached by each {@link AclTemplate}.
+     * @since 2.1.0
+     */
+    public AclTemplateRegistry(LoginMetric loginMetric, int maxSize, int maxCachedMatches) {
+        this.loginMetric = loginMetric;
+        this.maxSize = maxSize;
+        this.maxCachedMatches = maxCachedMatches;
+    }
+
+    /**
+     * Gets the shared {@link AclTemplate} of the given acls.
+     *
+     * @param authAcls The acls of the connection.
+     * @param clientId The client id of the connection.
+     * @return The shared {@link AclTemplate}.
+     * @since 2.1.0
+     */
+    public AclTemplate getTemplate(List<AuthAcl> authAcls, String clientId) {
+        if (!Acl.isTemplatable(clientId) && containsClientId(authAcls, clientId)) {
+            final String[] connectionMatches = new String[authAcls.size()];
+            for (int i = 0; i < connectionMatches.length; i++) {
+                connectionMatches[i] = toConnectionMatch(authAcls.get(i).getMatch(), clientId);
+            }
+            return buildTemplate(authAcls, connectionMatches);
+        }
+
+        final String[] templateMatches = new String[authAcls != null ? authAcls.size() : 0];
+        final StringBuilder key = new StringBuilder();
+        for (int i = 0; i < templateMatches.length; i++) {
+            AuthAcl authAcl = authAcls.get(i);
+            templateMatches[i] = toTemplateMatch(authAcl.getMatch(), clientId);
+            key.append(authAcl.getAction()).append(' ');
+            if (templateMatches[i] != null) {
+                key.append(templateMatches[i].length()).append(':').append(templateMatches[i]);
+            } else {
+                key.append('-');
+            }
+            key.append('\n');
+        }
+
+        AclTemplate template = templates.get(key.toString());
+        if (template != null) {
+            return template;
+        }
+        if (templates.size() >= maxSize) {
+            // Connections keep a reference to their template, so it's safe to drop them
+            templates.clear();
+        }
+        return templates.computeIfAbsent(key.toString(), k -> buildTemplate(authAcls, templateMatches));
+    }
+
+    /**
+     * Gets the number of {@link AclTemplate}s.
+     *
+     * @return The number of {@link AclTemplate}s.
+     * @since 2.1.0
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    private AclTemplate buildTemplate(List<AuthAcl> authAcls, String[] templateMatches) {
+        AclTemplate template = new AclTemplate(maxCachedMatches);
+        for (int i = 0; i < templateMatches.length; i++) {
+            try {
+                template.add(templateMatches[i], authAcls.get(i).getAction());
+            } catch (Exception e) {
+                loginMetric.getAclCreationFailure().inc();
+                //no security issue since in case of error no acl is added
+                logger.error("Error adding acl {}", authAcls.get(i), e);
+            }
+        }
+        return template;
+    }
+
+    private static boolean containsClientId(List<AuthAcl> authAcls, String clientId) {
+        if (authAcls == null || clientId == null || clientId.isEmpty()) {
+            return false;
+        }
+        for (AuthAcl authAcl : authAcls) {
+            if (authAcl.getMatch() != null && authAcl.getMatch().contains(clientId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the match of the shared {@link AclTemplate}, or {@code null} if the match must not be added to the {@link AclTemplate}.
+     */
+    private static String toTemplateMatch(String match, String clientId) {
+        if (match == null || match.indexOf(AclTemplate.CLIENT_ID_PLACEHOLDER.charAt(0)) >= 0) {
+            return null;
+        }
+        if (clientId == null || clientId.isEmpty() || !match.contains(clientId)) {
+            return match;
+        }
+        return Acl.replaceWord(match, clientId, AclTemplate.CLIENT_ID_PLACEHOLDER);
+    }
+
+    /**
+     * Gets the match of the {@link AclTemplate} of a single connection, or {@code null} if the match must not be added to the {@link AclTemplate}.
+     */
+    private static String toConnectionMatch(String match, String clientId) {
+        if (match == null || match.indexOf(AclTemplate.CLIENT_ID_PLACEHOLDER.charAt(0)) >= 0) {
+            return null;
+        }
+        if (!match.contains(clientId)) {
+            return match;
+        }
+        if (clientId.indexOf(AclTemplate.SEPARATOR) >= 0) {
+            // The client id spans more words and cannot be replaced: it is kept as it is, unless its wildcards would match other addresses
+            return Acl.containsWildcards(clientId) ? null : match;
+        }
+        // The wildcards of the client id are not wildcards of the match
+        return Acl.replaceWord(match, clientId, AclTemplate.CLIENT_ID_PLACEHOLDER);
+    }
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.artemis.plugin.security.context;
+
+import org.eclipse.kapua.client.security.context.SessionContext;
+import org.eclipse.kapua.client.security.context.Utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Registry of the active connections of the broker, indexed by connection id and by full client id.
+ * <p>
+ * Each connection is a single {@link Entry} holding both its {@link SessionContext} and its {@link Acl}, so they are registered and removed together.
+ * The by connection id and by full client id indexes are updated together under a lock striped by full client id,
+ * so that connections of different clients never contend, while a stealing link connection and the disconnection of the stolen one are serialized.
+ * <p>
+ * Lookups don't lock.
+ *
+ * @since 2.1.0
+ */
+public class ConnectionRegistry {
+
+    private static final int LOCKS_SIZE = 128;
+
+    private final Map<String, Entry> entriesByConnectionId = new ConcurrentHashMap<>();
+    private final Map<String, SessionContext> sessionContextsByClientId = new ConcurrentHashMap<>();
+    private final Lock[] clientLocks;
+
+    public ConnectionRegistry() {
+        clientLocks = new Lock[LOCKS_SIZE];
+        for (int i = 0; i < LOCKS_SIZE; i++) {
+            clientLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Registers the connection of the given {@link SessionContext}.
+     * <p>
+     * The connection becomes the current one of its full client id, replacing the stolen connection (if any).
+     *
+     * @param sessionContext The {@link SessionContext} of the connection.
+     * @param acl            The {@link Acl} of the connection.
+     * @since 2.1.0
+     */
+    public void register(SessionContext sessionContext, Acl acl) {
+        final String fullClientId = Utils.getFullClientId(sessionContext);
+        final Lock lock = getClientLock(fullClientId);
+        lock.lock();
+        try {
+            entriesByConnectionId.put(sessionContext.getConnectionId(), new Entry(sessionContext, acl));
+            sessionContextsByClientId.put(fullClientId, sessionContext);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unregisters the connection with the given connection id.
+     * <p>
+     * The connection is removed from the full client id index only if it is still the current one of its full client id
+     * (i.e. it has not been replaced by a stealing link connection).
+     *
+     * @param connectionId The connection id.
+     * @param fullClientId The full client id of the connection.
+     * @param onRemoved    Called with the removed {@link Entry}, if any, while the client lock is held.
+     * @return The {@link SessionContext} which was current for the full client id: the removed one if no stealing link happened,
+     * the stealing one otherwise, or {@code null} if none.
+     * @since 2.1.0
+     */
+    public SessionContext unregister(String connectionId, String fullClientId, Consumer<Entry> onRemoved) {
+        final Lock lock = getClientLock(fullClientId);
+        lock.lock();
+        try {
+            Entry entry = entriesByConnectionId.remove(connectionId);
+            if (entry != null) {
+                onRemoved.accept(entry);
+            }
+            SessionContext current = sessionContextsByClientId.get(fullClientId);
+            if (current != null && connectionId.equals(current.getConnectionId())) {
+                sessionContextsByClientId.remove(fullClientId);
+            }
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Entry get(String connectionId) {
+        return entriesByConnectionId.get(connectionId);
+    }
+
+    public SessionContext getByClientId(String fullClientId) {
+        return sessionContextsByClientId.get(fullClientId);
+    }
+
+    /**
+     * Gets the sizes of the indexes, without locking nor copying them.
+     *
+     * @return The {@link Snapshot} of the sizes.
+     * @since 2.1.0
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(entriesByConnectionId.size(), sessionContextsByClientId.size());
+    }
+
+    public int getConnectionCount() {
+        return entriesByConnectionId.size();
+    }
+
+    public int getClientCount() {
+        return sessionContextsByClientId.size();
+    }
+
+    public void forEachConnection(BiConsumer<String, Entry> consumer) {
+        entriesByConnectionId.forEach(consumer);
+    }
+
+    public void forEachClient(BiConsumer<String, SessionContext> consumer) {
+        sessionContextsByClientId.forEach(consumer);
+    }
+
+    private Lock getClientLock(String fullClientId) {
+        return clientLocks[Math.abs(fullClientId.hashCode() % LOCKS_SIZE)];
+    }
+
+    /**
+     * A registered connection.
+     *
+     * @since 2.1.0
+     */
+    public static class Entry {
+
+        private final SessionContext sessionContext;
+        private final Acl acl;
+
+        private Entry(SessionContext sessionContext, Acl acl) {
+            this.sessionContext = sessionContext;
+            this.acl = acl;
+        }
+
+        public SessionContext getSessionContext() {
+            return sessionContext;
+        }
+
+        public Acl getAcl() {
+            return acl;
+        }
+    }
+
+    /**
+     * Sizes of the {@link ConnectionRegistry} indexes.
+     *
+     * @since 2.1.0
+     */
+    public static class Snapshot {
+
+        private final int connectionCount;
+        private final int clientCount;
+
+        private Snapshot(int connectionCount, int clientCount) {
+            this.connectionCount = connectionCount;
+            this.clientCount = clientCount;
+        }
+
+        public int getConnectionCount() {
+            return connectionCount;
+        }
+
+        public int getClientCount() {
+            return clientCount;
+        }
+    }
+}
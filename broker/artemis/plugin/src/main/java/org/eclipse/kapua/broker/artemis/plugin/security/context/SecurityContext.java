@@ -34,11 +34,8 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.security.auth.Subject;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -63,21 +60,17 @@ public final class SecurityContext {
     //reserved String used as separator by Artemis on NOT_DURABLE_QUEUES (and DURABLE also?)
     private static final String DOUBLE_COLON = "::";
 
-    //concurrency shouldn't be an issue since this set will contain the list of active connections
-    private final Set<String> activeConnections = new HashSet<>();
     private final LocalCache<String, ConnectionToken> connectionTokenCache;
     private final LocalCache<String, SessionContext> sessionContextCache;
     private final LocalCache<String, Acl> aclCache;
+    private final AclTemplateRegistry aclTemplateRegistry;
+    private final int maxCachedAclDecisions;
     private final MetricsSecurityPlugin metricsSecurityPlugin;
     private final RunWithLock runWithLock;
 
     //use string as key since some method returns DefaultChannelId as connection id, some other a string
     //the string returned by some method as connection id is the asShortText of DefaultChannelId
-    private final Map<String, SessionContext> sessionContextMapByClient;
-
-    //by connection id context
-    private final Map<String, SessionContext> sessionContextMap;
-    private final Map<String, Acl> aclMap;
+    private final ConnectionRegistry connectionRegistry;
 
     private final boolean printData;
     private ExecutorWrapper executorWrapper;
@@ -88,6 +81,8 @@ public final class SecurityContext {
                            LocalCache<String, ConnectionToken> connectionTokenCache,
                            LocalCache<String, SessionContext> sessionContextCache,
                            LocalCache<String, Acl> aclCache,
+                           AclTemplateRegistry aclTemplateRegistry,
+                           int maxCachedAclDecisions,
                            MetricsSecurityPlugin metricsSecurityPlugin,
                            RunWithLock runWithLock) {
         this.loginMetric = loginMetric;
@@ -95,11 +90,11 @@ public final class SecurityContext {
         this.connectionTokenCache = connectionTokenCache;
         this.sessionContextCache = sessionContextCache;
         this.aclCache = aclCache;
+        this.aclTemplateRegistry = aclTemplateRegistry;
+        this.maxCachedAclDecisions = maxCachedAclDecisions;
         this.metricsSecurityPlugin = metricsSecurityPlugin;
         this.runWithLock = runWithLock;
-        this.sessionContextMapByClient = new ConcurrentHashMap<>();
-        this.sessionContextMap = new ConcurrentHashMap<>();
-        this.aclMap = new ConcurrentHashMap<>();
+        this.connectionRegistry = new ConnectionRegistry();
     }
 
     public void init(ActiveMQServer server) {
@@ -113,10 +108,8 @@ public final class SecurityContext {
         }
         try {
             metricsSecurityPlugin.init(server,
-                    () -> sessionContextMap.size(),
-                    () -> sessionContextMapByClient.size(),
-                    () -> aclMap.size(),
-                    () -> activeConnections.size());
+                    () -> connectionRegistry.getConnectionCount(),
+                    () -> connectionRegistry.getClientCount());
         } catch (KapuaException e) {
             //do nothing
             //in this case one or more metrics are not registered but it's not a blocking issue
@@ -136,12 +129,8 @@ public final class SecurityContext {
         return runWithLock.run(connectionId, () -> {
             if (updateConnectionTokenOnConnection(connectionId) == null) {
                 logger.info("Setting session context for connection id: {}", connectionId);
-                activeConnections.add(connectionId);
-                //fill by connection id context
-                sessionContextMap.put(connectionId, sessionContext);
-                aclMap.put(connectionId, new Acl(loginMetric, sessionContext.getPrincipal(), authAcls));
-                //fill by full client id context
-                sessionContextMapByClient.put(Utils.getFullClientId(sessionContext), sessionContext);
+                //fill by connection id and by full client id context
+                connectionRegistry.register(sessionContext, new Acl(loginMetric, aclTemplateRegistry, sessionContext.getPrincipal(), authAcls, maxCachedAclDecisions));
                 return true;
             } else {
                 return false;
@@ -179,27 +168,18 @@ public final class SecurityContext {
         return runWithLock.run(connectionId, () -> {
             logger.info("Cleaning session context for connection id: {}", connectionId);
             //cleaning context and filling cache
-            SessionContext sessionContextOld = sessionContextMap.remove(connectionId);
-            if (sessionContextOld != null) {
-                sessionContextCache.put(connectionId, sessionContextOld);
-            }
-            Acl aclOld = aclMap.remove(connectionId);
-            if (aclOld != null) {
-                aclCache.put(connectionId, aclOld);
-            }
-            activeConnections.remove(connectionId);
-
-            String fullClientId = Utils.getFullClientId(sessionContext);
-            SessionContext currentSessionContext = sessionContextMapByClient.get(fullClientId);
             //if no stealing link remove the context by client id
+            String fullClientId = Utils.getFullClientId(sessionContext);
+            SessionContext currentSessionContext = connectionRegistry.unregister(connectionId, fullClientId, entryOld -> {
+                sessionContextCache.put(connectionId, entryOld.getSessionContext());
+                aclCache.put(connectionId, entryOld.getAcl());
+            });
             //on a stealing link currentSessionContext could be null if the disconnect of the latest connected client happens before the others
             if (currentSessionContext == null) {
                 logger.warn("Cannot find session context by full client id: {}", fullClientId);
                 loginMetric.getSessionContextByClientIdFailure().inc();
             } else {
                 if (connectionId.equals(currentSessionContext.getConnectionId())) {
-                    //redundant assignment
-                    currentSessionContext = sessionContextMapByClient.remove(fullClientId);
                     logger.info("Disconnect: NO stealing - remove session context by clientId: {} - connection id: {}", currentSessionContext.getClientId(), currentSessionContext.getConnectionId());
                 } else {
                     logger.info("Disconnect: stealing - leave session context by clientId: {} - connection id: {}", currentSessionContext.getClientId(), currentSessionContext.getConnectionId());
@@ -210,11 +190,11 @@ public final class SecurityContext {
     }
 
     public SessionContext getSessionContextByClientId(String fullClientId) {
-        return sessionContextMapByClient.get(fullClientId);
+        return connectionRegistry.getByClientId(fullClientId);
     }
 
     public SessionContext getSessionContextWithCacheFallback(String connectionId) {
-        SessionContext sessionContext = sessionContextMap.get(connectionId);
+        SessionContext sessionContext = getSessionContext(connectionId);
         if (sessionContext == null) {
             sessionContext = sessionContextCache.get(connectionId);
         }
@@ -222,25 +202,26 @@ public final class SecurityContext {
     }
 
     public SessionContext getSessionContext(String connectionId) {
-        return sessionContextMap.get(connectionId);
+        ConnectionRegistry.Entry entry = connectionRegistry.get(connectionId);
+        return entry != null ? entry.getSessionContext() : null;
     }
 
     public boolean checkPublisherAllowed(SessionContext sessionContext, String address) {
         Acl acl = getAcl(sessionContext.getConnectionId());
-        return acl != null && acl.canWrite(sessionContext.getPrincipal(), cleanSubscriptionPrefix(address));
+        return acl != null && acl.isAllowed(Acl.Access.WRITE, sessionContext.getPrincipal(), address, SecurityContext::cleanSubscriptionPrefix);
     }
 
     public boolean checkConsumerAllowed(SessionContext sessionContext, String address) {
         Acl acl = getAcl(sessionContext.getConnectionId());
-        return acl != null && acl.canRead(sessionContext.getPrincipal(), cleanSubscriptionPrefix(address));
+        return acl != null && acl.isAllowed(Acl.Access.READ, sessionContext.getPrincipal(), address, SecurityContext::cleanSubscriptionPrefix);
     }
 
     public boolean checkAdminAllowed(SessionContext sessionContext, String address) {
         Acl acl = getAcl(sessionContext.getConnectionId());
-        return acl != null && acl.canManage(sessionContext.getPrincipal(), cleanSubscriptionPrefix(address));
+        return acl != null && acl.isAllowed(Acl.Access.ADMIN, sessionContext.getPrincipal(), address, SecurityContext::cleanSubscriptionPrefix);
     }
 
-    private String cleanSubscriptionPrefix(String address) {
+    private static String cleanSubscriptionPrefix(String address) {
         int doubleColonPos = address.indexOf(DOUBLE_COLON);
         if (doubleColonPos > -1) {
             return address.substring(doubleColonPos + 1 + address.substring(doubleColonPos).indexOf('.'));
@@ -250,7 +231,8 @@ public final class SecurityContext {
     }
 
     private Acl getAcl(String connectionId) {
-        Acl acl = aclMap.get(connectionId);
+        ConnectionRegistry.Entry entry = connectionRegistry.get(connectionId);
+        Acl acl = entry != null ? entry.getAcl() : null;
         if (acl == null) {
             //try from cache
             acl = aclCache.get(connectionId);
@@ -324,10 +306,10 @@ public final class SecurityContext {
         builder.append("## Session count: ").append(server.getSessions().size()).
                 append(" - Connection count: ").append(server.getConnectionCount()).
                 append(" - Broker connections: ").append(server.getBrokerConnections().size()).append("\n");
-        builder.append("## session context: ").append(sessionContextMap.size()).append("\n");
-        builder.append("## session context by client: ").append(sessionContextMapByClient.size()).append("\n");
-        builder.append("## acl: ").append(aclMap.size()).append("\n");
-        builder.append("## connection: ").append(activeConnections.size()).append("\n");
+        ConnectionRegistry.Snapshot snapshot = connectionRegistry.snapshot();
+        // Each connection holds both its session context and its acl
+        builder.append("## connection (session context and acl): ").append(snapshot.getConnectionCount()).append("\n");
+        builder.append("## session context by client: ").append(snapshot.getClientCount()).append("\n");
     }
 
     private void appendSessionInfoReport(StringBuilder builder, ActiveMQServer server) {
@@ -347,11 +329,11 @@ public final class SecurityContext {
     private void appendDetailedServerContextReport(StringBuilder builder, String caller, String connectionId) {
         builder.append("## Security context: (caller: ").append(caller).append(" - connectionId: ").append(connectionId).append(")\n");
         builder.append("## connection info by client id\n");
-        sessionContextMapByClient.forEach((key, sessionContext) -> builder.append("##\tclientId: ").append(key).append(" - ip: ").append(sessionContext.getClientIp()).append(" - conId: ").append(sessionContext.getConnectionId()).append("\tinternal: ").append(sessionContext.isInternal()).append("\n"));
+        connectionRegistry.forEachClient((key, sessionContext) -> builder.append("##\tclientId: ").append(key).append(" - ip: ").append(sessionContext.getClientIp()).append(" - conId: ").append(sessionContext.getConnectionId()).append("\tinternal: ").append(sessionContext.isInternal()).append("\n"));
         builder.append("## connection info by connection id\n");
-        sessionContextMap.forEach((key, sessionContext) -> builder.append("##\tconId: ").append(key).append(" - clientId: ").append(sessionContext.getClientId()).append(" - ip: ").append(sessionContext.getClientIp()).append("\tinternal: ").append(sessionContext.isInternal()).append("\n"));
+        connectionRegistry.forEachConnection((key, entry) -> builder.append("##\tconId: ").append(key).append(" - clientId: ").append(entry.getSessionContext().getClientId()).append(" - ip: ").append(entry.getSessionContext().getClientIp()).append("\tinternal: ").append(entry.getSessionContext().isInternal()).append("\n"));
         builder.append("## acl by connection id\n");
-        aclMap.forEach((key, acl) -> builder.append("##\tconnId: ").append(key).append("\n"));
+        connectionRegistry.forEachConnection((key, entry) -> builder.append("##\tconnId: ").append(key).append("\n"));
     }
 
 }
@@ -54,6 +54,11 @@ public enum BrokerSettingKey implements SettingKey {
      * Publish message info if the message size is over the specified threshold
      */
     PUBLISHED_MESSAGE_SIZE_LOG_THRESHOLD("broker.security.published.message_size.log_threshold"),
+    /**
+     * Encode the Kapua session and connection id message headers with the legacy (Java serialization) encoding.
+     * To be enabled while upgrading from a version whose consumers don't support the compact encoding
+     */
+    SESSION_HEADER_LEGACY_ENCODING("broker.session_header.legacy_encoding"),
     /**
      * Connection token cache size
      */
@@ -77,7 +82,23 @@ public enum BrokerSettingKey implements SettingKey {
     /**
      * Scope id cache ttl (in seconds)
      */
-    CACHE_SCOPE_ID_TTL("broker.cache.scope_id.ttl");
+    CACHE_SCOPE_ID_TTL("broker.cache.scope_id.ttl"),
+    /**
+     * Maximum number of shared acl templates
+     */
+    CACHE_ACL_TEMPLATE_SIZE("broker.cache.acl_template.size"),
+    /**
+     * Maximum number of address matches cached by each shared acl template
+     */
+    CACHE_ACL_TEMPLATE_MATCH_SIZE("broker.cache.acl_template.match_size"),
+    /**
+     * Maximum number of authorization decisions cached by each connection, for each kind of access (0 to disable the cache)
+     */
+    CACHE_ACL_DECISION_SIZE("broker.cache.acl_decision.size"),
+    /**
+     * Number of sessions and producers used to send the requests to the authentication service concurrently
+     */
+    AUTH_SERVICE_CLIENT_PRODUCER_POOL_SIZE("broker.auth_service_client.producer_pool_size");
 
     private String key;
 
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.artemis.plugin.security.context;
+
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.kapua.broker.artemis.plugin.security.metric.LoginMetric;
+import org.eclipse.kapua.client.security.bean.AuthAcl;
+import org.eclipse.kapua.client.security.bean.AuthAcl.Action;
+import org.eclipse.kapua.commons.metric.MetricsServiceImpl;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@Category(JUnitTests.class)
+public class AclTemplateRegistryTest {
+
+    private static final String PLACEHOLDER = AclTemplate.CLIENT_ID_PLACEHOLDER;
+
+    private LoginMetric loginMetric;
+    private AclTemplateRegistry aclTemplateRegistry;
+
+    @Before
+    public void setUp() {
+        loginMetric = new LoginMetric(new MetricsServiceImpl(new MetricRegistry()), "test");
+        aclTemplateRegistry = new AclTemplateRegistry(loginMetric, 2, 100);
+    }
+
+    @Test
+    public void structurallyIdenticalAclsShareTemplate() {
+        AclTemplate dev1 = aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("acct/dev1/#", Action.all)), "dev1");
+        AclTemplate dev2 = aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("acct/dev2/#", Action.all)), "dev2");
+        AclTemplate readOnly = aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("acct/dev3/#", Action.read)), "dev3");
+
+        Assert.assertSame(dev1, dev2);
+        Assert.assertNotSame(dev1, readOnly);
+        Assert.assertTrue(dev1.matchesWrite("acct/" + PLACEHOLDER + "/data"));
+        Assert.assertFalse(dev1.matchesWrite("acct/dev1/data"));
+        Assert.assertFalse(readOnly.matchesWrite("acct/" + PLACEHOLDER + "/data"));
+    }
+
+    @Test
+    public void clientIdCannotForgeTheAclsOfAnotherConnection() {
+        // The acls of an administrator
+        AclTemplate admin = aclTemplateRegistry.getTemplate(Arrays.asList(new AuthAcl("acct/a", Action.all), new AuthAcl("#", Action.all)), "admin");
+        Assert.assertTrue(admin.matchesWrite("other/data"));
+
+        // A single match which, joined with a new line, would read as the acls of the administrator
+        String forgedClientId = "a\nall #";
+        AclTemplate forged = aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("acct/" + forgedClientId, Action.all)), null);
+
+        Assert.assertNotSame(admin, forged);
+        Assert.assertFalse(forged.matchesWrite("other/data"));
+    }
+
+    @Test
+    public void matchesWithPlaceholderAreNotAdded() {
+        long failures = loginMetric.getAclCreationFailure().getCount();
+
+        AclTemplate template = aclTemplateRegistry.getTemplate(Arrays.asList(new AuthAcl("acct/" + PLACEHOLDER + "/#", Action.all), new AuthAcl("acct/shared/#", Action.read)), "dev1");
+
+        Assert.assertFalse(template.matchesWrite("acct/" + PLACEHOLDER + "/data"));
+        Assert.assertTrue(template.matchesRead("acct/shared/data"));
+        Assert.assertEquals(failures + 1, loginMetric.getAclCreationFailure().getCount());
+    }
+
+    @Test
+    public void matchesWithWildcardClientIdAreKeptInATemplateNotShared() {
+        for (String clientId : Arrays.asList("+", "dev+1", "dev#1")) {
+            AclTemplate template = aclTemplateRegistry.getTemplate(Arrays.asList(new AuthAcl("acct/" + clientId + "/#", Action.all), new AuthAcl("acct/shared/#", Action.read)), clientId);
+
+            Assert.assertNotSame(clientId, template, aclTemplateRegistry.getTemplate(Arrays.asList(new AuthAcl("acct/" + clientId + "/#", Action.all), new AuthAcl("acct/shared/#", Action.read)), clientId));
+            Assert.assertEquals(clientId, 0, aclTemplateRegistry.size());
+            // The client id is kept, but its wildcards do not match the addresses of the other clients
+            Assert.assertTrue(clientId, template.matchesWrite("acct/" + PLACEHOLDER + "/data"));
+            Assert.assertFalse(clientId, template.matchesWrite("acct/dev1/data"));
+            Assert.assertFalse(clientId, template.matchesWrite("acct/devX1/data"));
+            Assert.assertTrue(clientId, template.matchesRead("acct/shared/data"));
+        }
+    }
+
+    @Test
+    public void matchesWithMultiWordClientIdAreKeptInATemplateNotShared() {
+        AclTemplate template = aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("acct/dev/1/#", Action.all)), "dev/1");
+
+        Assert.assertEquals(0, aclTemplateRegistry.size());
+        Assert.assertTrue(template.matchesWrite("acct/dev/1/data"));
+        Assert.assertFalse(template.matchesWrite("acct/dev/2/data"));
+
+        // Unless the client id has wildcards too
+        template = aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("acct/dev/+/#", Action.all)), "dev/+");
+        Assert.assertFalse(template.matchesWrite("acct/dev/2/data"));
+    }
+
+    @Test
+    public void registryIsBounded() {
+        AclTemplate first = aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("a/#", Action.all)), null);
+        aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("b/#", Action.all)), null);
+        aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("c/#", Action.all)), null);
+
+        Assert.assertTrue(aclTemplateRegistry.size() <= 2);
+        // Dropped templates are still used by their connections, and rebuilt for the new ones
+        Assert.assertTrue(first.matchesWrite("a/data"));
+        Assert.assertNotSame(first, aclTemplateRegistry.getTemplate(Collections.singletonList(new AuthAcl("a/#", Action.all)), null));
+    }
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.artemis.plugin.security.context;
+
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.kapua.broker.artemis.plugin.security.RunWithLock;
+import org.eclipse.kapua.broker.artemis.plugin.security.metric.LoginMetric;
+import org.eclipse.kapua.client.security.bean.AuthAcl;
+import org.eclipse.kapua.client.security.bean.AuthAcl.Action;
+import org.eclipse.kapua.client.security.bean.ConnectionInfo;
+import org.eclipse.kapua.client.security.bean.KapuaPrincipalImpl;
+import org.eclipse.kapua.client.security.context.SessionContext;
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.commons.metric.MetricsServiceImpl;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.authentication.KapuaPrincipal;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+@Category(JUnitTests.class)
+public class AclTest {
+
+    private LoginMetric loginMetric;
+    private AclTemplateRegistry aclTemplateRegistry;
+
+    @Before
+    public void setUp() {
+        loginMetric = new LoginMetric(new MetricsServiceImpl(new MetricRegistry()), "test");
+        aclTemplateRegistry = new AclTemplateRegistry(loginMetric, 100, 100);
+    }
+
+    @Test
+    public void replaceWord() {
+        String placeholder = AclTemplate.CLIENT_ID_PLACEHOLDER;
+
+        Assert.assertEquals("acct/" + placeholder + "/#", Acl.replaceWord("acct/dev/#", "dev", placeholder));
+        Assert.assertEquals(placeholder + "/a/" + placeholder, Acl.replaceWord("dev/a/dev", "dev", placeholder));
+        Assert.assertEquals(placeholder, Acl.replaceWord("dev", "dev", placeholder));
+        // Only whole words are replaced
+        Assert.assertEquals("acct/device/dev1/xdev", Acl.replaceWord("acct/device/dev1/xdev", "dev", placeholder));
+        // Empty words are kept
+        Assert.assertEquals("/acct//" + placeholder + "/", Acl.replaceWord("/acct//dev/", "dev", placeholder));
+    }
+
+    @Test
+    public void isBindable() {
+        Assert.assertTrue(Acl.isBindable("dev-1"));
+        Assert.assertTrue(Acl.isBindable("dev+1"));
+        Assert.assertTrue(Acl.isBindable("dev#"));
+        Assert.assertFalse(Acl.isBindable(null));
+        Assert.assertFalse(Acl.isBindable(""));
+        Assert.assertFalse(Acl.isBindable("dev/1"));
+        Assert.assertFalse(Acl.isBindable("+"));
+        Assert.assertFalse(Acl.isBindable("#"));
+        Assert.assertFalse(Acl.isBindable(AclTemplate.CLIENT_ID_PLACEHOLDER));
+    }
+
+    @Test
+    public void isTemplatable() {
+        Assert.assertTrue(Acl.isTemplatable("dev-1"));
+        Assert.assertTrue(Acl.isTemplatable("dev 1"));
+        Assert.assertFalse(Acl.isTemplatable(null));
+        Assert.assertFalse(Acl.isTemplatable(""));
+        Assert.assertFalse(Acl.isTemplatable("dev/1"));
+        Assert.assertFalse(Acl.isTemplatable("+"));
+        Assert.assertFalse(Acl.isTemplatable("dev#"));
+        Assert.assertFalse(Acl.isTemplatable("dev\u0001"));
+        Assert.assertFalse(Acl.isTemplatable(AclTemplate.CLIENT_ID_PLACEHOLDER));
+    }
+
+    @Test
+    public void templatedAclIsBoundToTheClientId() throws Exception {
+        KapuaPrincipal dev1 = principal("dev1");
+        KapuaPrincipal dev2 = principal("dev2");
+        Acl acl1 = new Acl(loginMetric, aclTemplateRegistry, dev1, deviceAcls("dev1"), 10);
+        Acl acl2 = new Acl(loginMetric, aclTemplateRegistry, dev2, deviceAcls("dev2"), 10);
+
+        Assert.assertEquals(1, aclTemplateRegistry.size());
+        Assert.assertTrue(acl1.canWrite(dev1, "acct/dev1/data"));
+        Assert.assertTrue(acl2.canWrite(dev2, "acct/dev2/data"));
+        Assert.assertFalse(acl1.canWrite(dev1, "acct/dev2/data"));
+        Assert.assertFalse(acl2.canWrite(dev2, "acct/dev1/data"));
+        Assert.assertTrue(acl1.canRead(dev1, "acct/dev1/#"));
+        Assert.assertFalse(acl1.canRead(dev1, "acct/+/#"));
+        // Only the principal of the connection is allowed
+        Assert.assertFalse(acl1.canWrite(dev2, "acct/dev1/data"));
+    }
+
+    @Test
+    public void wildcardClientIdDoesNotWidenAcl() throws Exception {
+        for (String clientId : Arrays.asList("+", "#")) {
+            KapuaPrincipal wildcard = principal(clientId);
+            // The acls as resolved by the authentication service for the client id
+            Acl acl = new Acl(loginMetric, aclTemplateRegistry, wildcard, deviceAcls(clientId), 10);
+
+            Assert.assertFalse(clientId, acl.canWrite(wildcard, "acct/dev1/data"));
+            Assert.assertFalse(clientId, acl.canRead(wildcard, "acct/dev1/data"));
+            Assert.assertFalse(clientId, acl.canRead(wildcard, "acct/dev1/#"));
+            Assert.assertTrue(clientId, acl.canRead(wildcard, "acct/shared/data"));
+        }
+    }
+
+    @Test
+    public void clientIdWithWildcardsKeepsItsAcls() throws Exception {
+        KapuaPrincipal wildcard = principal("dev+1");
+        Acl acl = new Acl(loginMetric, aclTemplateRegistry, wildcard, deviceAcls("dev+1"), 10);
+
+        Assert.assertEquals(0, aclTemplateRegistry.size());
+        Assert.assertTrue(acl.canRead(wildcard, "acct/dev+1/data"));
+        Assert.assertTrue(acl.canRead(wildcard, "acct/shared/data"));
+        // The wildcard of the client id does not widen the acls
+        Assert.assertFalse(acl.canRead(wildcard, "acct/devX1/data"));
+        Assert.assertFalse(acl.canRead(wildcard, "acct/+/data"));
+        // Addresses with wildcards are never written
+        Assert.assertFalse(acl.canWrite(wildcard, "acct/dev+1/data"));
+    }
+
+    @Test
+    public void placeholderClientIdDoesNotWidenAcl() throws Exception {
+        KapuaPrincipal dev1 = principal("dev1");
+        new Acl(loginMetric, aclTemplateRegistry, dev1, deviceAcls("dev1"), 10);
+
+        // A client id equal to the placeholder would otherwise get the template of dev1 and write to any bound address
+        KapuaPrincipal forged = principal(AclTemplate.CLIENT_ID_PLACEHOLDER);
+        Acl acl = new Acl(loginMetric, aclTemplateRegistry, forged, deviceAcls(AclTemplate.CLIENT_ID_PLACEHOLDER), 10);
+
+        Assert.assertFalse(acl.canWrite(forged, "acct/dev1/data"));
+        Assert.assertFalse(acl.canWrite(forged, "acct/" + AclTemplate.CLIENT_ID_PLACEHOLDER + "/data"));
+        Assert.assertTrue(acl.canRead(forged, "acct/shared/data"));
+    }
+
+    @Test
+    public void cachedDecisionIsTheUncachedDecision() throws Exception {
+        KapuaPrincipal dev1 = principal("dev1");
+        List<String> addresses = Arrays.asList(
+                "acct/dev1/data", "acct/dev2/data", "acct/dev1/#", "acct/+/#", "acct/shared/data", "acct/shared/other",
+                "sub::queue.acct/dev1/data", "sub::queue.acct/dev2/data");
+        AtomicInteger uncachedNormalized = new AtomicInteger();
+        AtomicInteger cachedNormalized = new AtomicInteger();
+        Acl uncached = new Acl(loginMetric, aclTemplateRegistry, dev1, deviceAcls("dev1"), 0);
+        // Smaller than the addresses, so the decisions are also evicted
+        Acl cached = new Acl(loginMetric, aclTemplateRegistry, dev1, deviceAcls("dev1"), 3);
+
+        for (int i = 0; i < 2; i++) {
+            for (Acl.Access access : Acl.Access.values()) {
+                for (String address : addresses) {
+                    boolean expected = uncached.isAllowed(access, dev1, address, normalizer(uncachedNormalized));
+                    Assert.assertEquals(access + " " + address, expected, cached.isAllowed(access, dev1, address, normalizer(cachedNormalized)));
+                    // Answered by the cache
+                    Assert.assertEquals(access + " " + address, expected, cached.isAllowed(access, dev1, address, normalizer(cachedNormalized)));
+                }
+            }
+        }
+        Assert.assertEquals(2 * Acl.Access.values().length * addresses.size(), uncachedNormalized.get());
+        Assert.assertEquals(uncachedNormalized.get(), cachedNormalized.get());
+        Assert.assertTrue(cached.isAllowed(Acl.Access.WRITE, dev1, "sub::queue.acct/dev1/data", normalizer(cachedNormalized)));
+        Assert.assertFalse(cached.isAllowed(Acl.Access.WRITE, dev1, "sub::queue.acct/dev2/data", normalizer(cachedNormalized)));
+
+        // The cached decisions are not given to another principal
+        Assert.assertTrue(cached.isAllowed(Acl.Access.WRITE, dev1, "acct/dev1/data", normalizer(cachedNormalized)));
+        Assert.assertFalse(cached.isAllowed(Acl.Access.WRITE, principal("dev2"), "acct/dev1/data", normalizer(cachedNormalized)));
+    }
+
+    @Test
+    public void cachedDecisionsAreDroppedOnAclRefresh() throws Exception {
+        SecurityContext securityContext = new SecurityContext(loginMetric, false,
+                new LocalCache<>(10, null), new LocalCache<>(10, null), new LocalCache<>(10, null),
+                aclTemplateRegistry, 10, null, new RunWithLock());
+        KapuaPrincipal dev1 = principal("dev1");
+        SessionContext sessionContext = new SessionContext(dev1, "account", new ConnectionInfo("connection-1", "dev1", "127.0.0.1", "mqtt", "tcp", "false", null), "broker", "localhost", false, false);
+
+        Assert.assertTrue(securityContext.setSessionContext(sessionContext, deviceAcls("dev1")));
+        Assert.assertTrue(securityContext.checkPublisherAllowed(sessionContext, "acct/dev1/data"));
+        Assert.assertTrue(securityContext.checkConsumerAllowed(sessionContext, "acct/shared/data"));
+
+        // The acls of the connection are refreshed with narrower ones
+        securityContext.updateConnectionTokenOnDisconnection("connection-1");
+        Assert.assertTrue(securityContext.setSessionContext(sessionContext, Collections.singletonList(new AuthAcl("acct/dev1/#", Action.read))));
+
+        Assert.assertFalse(securityContext.checkPublisherAllowed(sessionContext, "acct/dev1/data"));
+        Assert.assertFalse(securityContext.checkConsumerAllowed(sessionContext, "acct/shared/data"));
+        Assert.assertTrue(securityContext.checkConsumerAllowed(sessionContext, "acct/dev1/data"));
+    }
+
+    private UnaryOperator<String> normalizer(AtomicInteger normalized) {
+        // as the subscription prefix cleanup of the security context
+        return address -> {
+            normalized.incrementAndGet();
+            int doubleColonPos = address.indexOf("::");
+            return doubleColonPos > -1 ? address.substring(address.indexOf('.', doubleColonPos) + 1) : address;
+        };
+    }
+
+    private KapuaPrincipal principal(String clientId) {
+        return new KapuaPrincipalImpl(KapuaId.ONE, "user", clientId);
+    }
+
+    private List<AuthAcl> deviceAcls(String clientId) {
+        return Arrays.asList(
+                new AuthAcl("acct/" + clientId + "/#", Action.all),
+                new AuthAcl("acct/shared/data", Action.read));
+    }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.broker.artemis.plugin.security.context;
+
+import org.eclipse.kapua.client.security.bean.ConnectionInfo;
+import org.eclipse.kapua.client.security.bean.KapuaPrincipalImpl;
+import org.eclipse.kapua.client.security.context.SessionContext;
+import org.eclipse.kapua.client.security.context.Utils;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Category(JUnitTests.class)
+public class ConnectionRegistryTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 500;
+
+    private ConnectionRegistry connectionRegistry;
+
+    @Before
+    public void setUp() {
+        connectionRegistry = new ConnectionRegistry();
+    }
+
+    @Test
+    public void stealingLinkKeepsTheStealingConnection() {
+        SessionContext stolen = sessionContext("connection-1", "dev1");
+        SessionContext stealing = sessionContext("connection-2", "dev1");
+        AtomicInteger removed = new AtomicInteger();
+
+        connectionRegistry.register(stolen, null);
+        connectionRegistry.register(stealing, null);
+
+        // The disconnection of the stolen connection does not remove the stealing one
+        Assert.assertSame(stealing, connectionRegistry.unregister("connection-1", fullClientId("dev1"), entry -> removed.incrementAndGet()));
+        Assert.assertEquals(1, removed.get());
+        Assert.assertNull(connectionRegistry.get("connection-1"));
+        Assert.assertSame(stealing, connectionRegistry.get("connection-2").getSessionContext());
+        Assert.assertSame(stealing, connectionRegistry.getByClientId(fullClientId("dev1")));
+
+        Assert.assertSame(stealing, connectionRegistry.unregister("connection-2", fullClientId("dev1"), entry -> removed.incrementAndGet()));
+        Assert.assertEquals(2, removed.get());
+        Assert.assertNull(connectionRegistry.getByClientId(fullClientId("dev1")));
+        Assert.assertEquals(0, connectionRegistry.getConnectionCount());
+        Assert.assertEquals(0, connectionRegistry.getClientCount());
+    }
+
+    @Test
+    public void concurrentRegisterAndUnregisterOfDifferentClients() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                String clientId = "dev-" + thread + "-" + (i % 10);
+                // A stealing link connection replaces the previous connection of the client, which then disconnects
+                SessionContext stolen = sessionContext("connection-" + thread + "-" + i + "-1", clientId);
+                SessionContext stealing = sessionContext("connection-" + thread + "-" + i + "-2", clientId);
+                connectionRegistry.register(stolen, null);
+                connectionRegistry.register(stealing, null);
+                connectionRegistry.unregister(stolen.getConnectionId(), fullClientId(clientId), entry -> { });
+                Assert.assertSame(stealing, connectionRegistry.getByClientId(fullClientId(clientId)));
+                if (i < ITERATIONS - 10) {
+                    connectionRegistry.unregister(stealing.getConnectionId(), fullClientId(clientId), entry -> { });
+                }
+            }
+        });
+
+        // The last connection of each client is still registered
+        Assert.assertEquals(THREADS * 10, connectionRegistry.getConnectionCount());
+        Assert.assertEquals(THREADS * 10, connectionRegistry.getClientCount());
+        connectionRegistry.forEachClient((fullClientId, sessionContext) ->
+                Assert.assertSame(sessionContext, connectionRegistry.get(sessionContext.getConnectionId()).getSessionContext()));
+    }
+
+    @Test
+    public void concurrentRegisterAndUnregisterOfTheSameClient() throws Exception {
+        AtomicInteger removed = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                SessionContext sessionContext = sessionContext("connection-" + thread + "-" + i, "dev1");
+                connectionRegistry.register(sessionContext, null);
+                connectionRegistry.unregister(sessionContext.getConnectionId(), fullClientId("dev1"), entry -> removed.incrementAndGet());
+            }
+        });
+
+        // Whatever the interleaving, the last disconnection removes the client
+        Assert.assertEquals(THREADS * ITERATIONS, removed.get());
+        Assert.assertEquals(0, connectionRegistry.getConnectionCount());
+        Assert.assertNull(connectionRegistry.getByClientId(fullClientId("dev1")));
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int threadIndex = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(threadIndex);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SessionContext sessionContext(String connectionId, String clientId) {
+        return new SessionContext(new KapuaPrincipalImpl(KapuaId.ONE, "user", clientId), "account",
+                new ConnectionInfo(connectionId, clientId, "127.0.0.1", "mqtt", "tcp", "false", null), "broker", "localhost", false, false);
+    }
+
+    private String fullClientId(String clientId) {
+        return Utils.getFullClientId(KapuaId.ONE, clientId);
+    }
+
+    private interface ThreadTask {
+
+        void run(int thread) throws Exception;
+    }
+}
@@ -29,6 +29,11 @@ public enum AuthErrorCodes implements KapuaErrorCode {
     /**
      * An unexpected device status was detected
      */
-    UNEXPECTED_STATUS
+    UNEXPECTED_STATUS,
+
+    /**
+     * The authentication service is overloaded and the login was not attempted: the client can retry later
+     */
+    SERVICE_OVERLOADED
 
 }
@@ -98,10 +98,8 @@ public class KapuaMessageListener extends ClientMessageListener implements Close
             logger.error("Cannot find request container for requestId {}", response.getRequestId());
             metrics.getLoginCallbackTimeout().inc();
         } else {
-            synchronized (responseContainer) {
-                responseContainer.setResponse(response);
-                responseContainer.notify();
-            }
+            //completes the response future, so the requester is notified
+            responseContainer.setResponse(response);
         }
     }
 
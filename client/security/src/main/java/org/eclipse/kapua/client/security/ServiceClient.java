@@ -12,6 +12,9 @@
  *******************************************************************************/
 package org.eclipse.kapua.client.security;
 
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
 import javax.jms.JMSException;
 
 import org.eclipse.kapua.client.security.bean.EntityRequest;
@@ -23,9 +26,11 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 /**
  * Security service
+ * <p>
+ * Once closed, the pending requests fail and no more requests can be sent.
  *
  */
-public interface ServiceClient {
+public interface ServiceClient extends Closeable {
 
     public enum SecurityAction {
         brokerConnect,
@@ -73,4 +78,34 @@ public interface ServiceClient {
      */
     public EntityResponse getEntity(EntityRequest entityRequest) throws JMSException, InterruptedException, JsonProcessingException;
 
+    /**
+     * Broker connect logic, without waiting for the response.
+     * <p>
+     * The returned future completes exceptionally with a {@link java.util.concurrent.TimeoutException} if no response is received in time.
+     * @param authRequest
+     * @return
+     * @since 2.1.0
+     */
+    public CompletableFuture<AuthResponse> brokerConnectAsync(AuthRequest authRequest);
+
+    /**
+     * Broker disconnect logic, without waiting for the response.
+     * <p>
+     * The returned future completes exceptionally with a {@link java.util.concurrent.TimeoutException} if no response is received in time.
+     * @param authRequest
+     * @return
+     * @since 2.1.0
+     */
+    public CompletableFuture<AuthResponse> brokerDisconnectAsync(AuthRequest authRequest);
+
+    /**
+     * Return the entity id and scope id giving the entity name, without waiting for the response.
+     * <p>
+     * The returned future completes exceptionally with a {@link java.util.concurrent.TimeoutException} if no response is received in time.
+     * @param entityRequest
+     * @return
+     * @since 2.1.0
+     */
+    public CompletableFuture<EntityResponse> getEntityAsync(EntityRequest entityRequest);
+
 }
@@ -12,6 +12,18 @@
  *******************************************************************************/
 package org.eclipse.kapua.client.security;
 
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import javax.jms.JMSException;
 
 import org.eclipse.kapua.client.security.amqpclient.Client;
@@ -20,6 +32,7 @@ import org.eclipse.kapua.client.security.bean.AuthResponse;
 import org.eclipse.kapua.client.security.bean.EntityRequest;
 import org.eclipse.kapua.client.security.bean.EntityResponse;
 import org.eclipse.kapua.client.security.bean.Request;
+import org.eclipse.kapua.client.security.bean.Response;
 import org.eclipse.kapua.client.security.bean.ResponseContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +41,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 /**
  * Security service. Implementation through AMQP messaging layer.
+ * <p>
+ * Requests are correlated to their responses by request id, so any number of requests can be pending at the same time.
+ * The blocking methods just wait for the response of the asynchronous ones.
  */
 public class ServiceClientMessagingImpl implements ServiceClient {
 
@@ -37,55 +53,130 @@ public class ServiceClientMessagingImpl implements ServiceClient {
     private final KapuaMessageListener messageListener;
 
     private Client client;
+    private final long timeout;
+    private final ScheduledExecutorService timeoutExecutor;
+    private final Set<CompletableFuture<?>> pendingResponses = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
 
     public ServiceClientMessagingImpl(KapuaMessageListener messageListener, Client client) {
+        this(messageListener, client, TIMEOUT);
+    }
+
+    ServiceClientMessagingImpl(KapuaMessageListener messageListener, Client client, long timeout) {
         this.messageListener = messageListener;
         this.client = client;
+        this.timeout = timeout;
+        this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ServiceClientTimeout");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
     public AuthResponse brokerConnect(AuthRequest authRequest)
             throws InterruptedException, JMSException, JsonProcessingException {//TODO review exception when Kapua code will be linked (throw KapuaException)
-        String requestId = MessageHelper.getNewRequestId();
-        authRequest.setRequestId(requestId);
-        authRequest.setAction(SecurityAction.brokerConnect.name());
-        ResponseContainer<AuthResponse> responseContainer = ResponseContainer.createAnRegisterNewMessageContainer(messageListener, authRequest);
-        logRequest(authRequest);
-        client.sendMessage(MessageHelper.getBrokerConnectMessage(client.createTextMessage(), authRequest));
-        synchronized (responseContainer) {
-            responseContainer.wait(TIMEOUT);
-        }
-        messageListener.removeCallback(requestId);
-        return responseContainer.getResponse();
+        return waitForResponse(brokerConnectAsync(authRequest));
     }
 
     @Override
     public AuthResponse brokerDisconnect(AuthRequest authRequest) throws JMSException, InterruptedException, JsonProcessingException {
-        String requestId = MessageHelper.getNewRequestId();
-        authRequest.setRequestId(requestId);
+        return waitForResponse(brokerDisconnectAsync(authRequest));
+    }
+
+    @Override
+    public EntityResponse getEntity(EntityRequest entityRequest) throws JMSException, InterruptedException, JsonProcessingException {
+        return waitForResponse(getEntityAsync(entityRequest));
+    }
+
+    @Override
+    public CompletableFuture<AuthResponse> brokerConnectAsync(AuthRequest authRequest) {
+        authRequest.setRequestId(MessageHelper.getNewRequestId());
+        authRequest.setAction(SecurityAction.brokerConnect.name());
+        return sendRequest(authRequest, message -> MessageHelper.getBrokerConnectMessage(message, authRequest));
+    }
+
+    @Override
+    public CompletableFuture<AuthResponse> brokerDisconnectAsync(AuthRequest authRequest) {
+        authRequest.setRequestId(MessageHelper.getNewRequestId());
         authRequest.setAction(SecurityAction.brokerDisconnect.name());
-        ResponseContainer<AuthResponse> responseContainer = ResponseContainer.createAnRegisterNewMessageContainer(messageListener, authRequest);
-        logRequest(authRequest);
-        client.sendMessage(MessageHelper.getBrokerDisconnectMessage(client.createTextMessage(), authRequest));
-        synchronized (responseContainer) {
-            responseContainer.wait(TIMEOUT);
+        return sendRequest(authRequest, message -> MessageHelper.getBrokerDisconnectMessage(message, authRequest));
+    }
+
+    @Override
+    public CompletableFuture<EntityResponse> getEntityAsync(EntityRequest entityRequest) {
+        entityRequest.setRequestId(MessageHelper.getNewRequestId());
+        return sendRequest(entityRequest, message -> MessageHelper.getEntityMessage(message, entityRequest));
+    }
+
+    private <R extends Response> CompletableFuture<R> sendRequest(Request request, Client.MessageBuilder messageBuilder) {
+        String requestId = request.getRequestId();
+        ResponseContainer<R> responseContainer = ResponseContainer.createAnRegisterNewMessageContainer(messageListener, request);
+        CompletableFuture<R> responseFuture = responseContainer.getFuture();
+        pendingResponses.add(responseFuture);
+        CompletableFuture<R> completedFuture = responseFuture.whenComplete((response, error) -> {
+            pendingResponses.remove(responseFuture);
+            messageListener.removeCallback(requestId);
+        });
+        if (closed) {
+            responseFuture.completeExceptionally(new JMSException("Service client closed"));
+            return completedFuture;
         }
-        messageListener.removeCallback(requestId);
-        return responseContainer.getResponse();
+        logRequest(request);
+        try {
+            client.sendMessage(messageBuilder);
+        } catch (JMSException | JsonProcessingException e) {
+            responseFuture.completeExceptionally(e);
+            return completedFuture;
+        }
+        try {
+            ScheduledFuture<?> timeoutFuture = timeoutExecutor.schedule(
+                    () -> responseFuture.completeExceptionally(new TimeoutException("No response received for request id: " + requestId)),
+                    timeout, TimeUnit.MILLISECONDS);
+            responseFuture.whenComplete((response, error) -> timeoutFuture.cancel(false));
+        } catch (RejectedExecutionException e) {
+            //closed while sending
+            responseFuture.completeExceptionally(new JMSException("Service client closed"));
+        }
+        return completedFuture;
     }
 
+    private <R extends Response> R waitForResponse(CompletableFuture<R> responseFuture) throws InterruptedException, JMSException, JsonProcessingException {
+        try {
+            return responseFuture.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                //as before, no response means a null response
+                return null;
+            } else if (cause instanceof JMSException) {
+                throw (JMSException) cause;
+            } else if (cause instanceof JsonProcessingException) {
+                throw (JsonProcessingException) cause;
+            }
+            JMSException jmsException = new JMSException(cause.getMessage());
+            jmsException.initCause(cause);
+            throw jmsException;
+        }
+    }
+
+    /**
+     * Stops the timeouts and the {@link Client}, failing the pending requests.
+     *
+     * @since 2.1.0
+     */
     @Override
-    public EntityResponse getEntity(EntityRequest entityRequest) throws JMSException, InterruptedException, JsonProcessingException {
-        String requestId = MessageHelper.getNewRequestId();
-        entityRequest.setRequestId(requestId);
-        ResponseContainer<EntityResponse> responseContainer = ResponseContainer.createAnRegisterNewMessageContainer(messageListener, entityRequest);
-        logRequest(entityRequest);
-        client.sendMessage(MessageHelper.getEntityMessage(client.createTextMessage(), entityRequest));
-        synchronized (responseContainer) {
-            responseContainer.wait(TIMEOUT);
+    public void close() throws IOException {
+        closed = true;
+        timeoutExecutor.shutdownNow();
+        for (CompletableFuture<?> pendingResponse : pendingResponses) {
+            pendingResponse.completeExceptionally(new JMSException("Service client closed"));
+        }
+        try {
+            client.stop();
+        } catch (JMSException e) {
+            throw new IOException(e);
         }
-        messageListener.removeCallback(requestId);
-        return responseContainer.getResponse();
     }
 
     private void logRequest(Request request) {
@@ -21,19 +21,28 @@ import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.jms.TextMessage;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.qpid.jms.JmsConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 /**
  * Helper class to handle request/reply through AMQP messaging layer
- *
+ * <p>
+ * The replies are received by a single session, while the requests are sent through a pool of sessions and producers,
+ * since a JMS session cannot be used by more threads at the same time.
  */
 public class Client {
 
     private static Logger logger = LoggerFactory.getLogger(Client.class);
 
     private static final long WAIT_BETWEEN_RECONNECTION_ATTEMPT = 2000;
+    private static final long WAIT_FOR_PRODUCER = 5000;
 
     private ConnectionFactory connectionFactory;//is this reference needed?
     private Connection connection;//keep to implement cleanup (and object lifecycle)
@@ -43,6 +52,9 @@ public class Client {
     private String clientId;
     private String requestAddress;
     private String replyAddress;
+    private final int producerPoolSize;
+    private final BlockingQueue<PooledProducer> producerPool;
+    private volatile int connectionGeneration;
     private ClientMessageListener clientMessageListener;
     private ExceptionListener exceptionListener;
 
@@ -51,11 +63,29 @@ public class Client {
 
     public Client(String username, String password, String host, int port, String clientId,
             String requestAddress, String replyAddress, ClientMessageListener clientMessageListener) throws JMSException {
+        this(username, password, host, port, clientId, requestAddress, replyAddress, clientMessageListener, 1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param producerPoolSize The number of sessions and producers used to send the requests concurrently.
+     * @since 2.1.0
+     */
+    public Client(String username, String password, String host, int port, String clientId,
+            String requestAddress, String replyAddress, ClientMessageListener clientMessageListener, int producerPoolSize) throws JMSException {
+        this(new JmsConnectionFactory(username, password, "amqp://" + host + ":" + port), clientId, requestAddress, replyAddress, clientMessageListener, producerPoolSize);
+    }
+
+    Client(ConnectionFactory connectionFactory, String clientId,
+            String requestAddress, String replyAddress, ClientMessageListener clientMessageListener, int producerPoolSize) {
+        this.producerPoolSize = Math.max(producerPoolSize, 1);
+        this.producerPool = new LinkedBlockingQueue<>();
         this.clientId = clientId;
         this.requestAddress = requestAddress;
         this.replyAddress = replyAddress;
         this.clientMessageListener = clientMessageListener;
-        connectionFactory = new JmsConnectionFactory(username, password, "amqp://" + host + ":" + port);
+        this.connectionFactory = connectionFactory;
         exceptionListener = new ExceptionListener() {
 
             @Override
@@ -73,6 +103,39 @@ public class Client {
         message.acknowledge();
     }
 
+    /**
+     * Builds and sends a message through one of the pooled sessions and producers.
+     * <p>
+     * The caller waits only if all the pooled producers are busy.
+     *
+     * @param messageBuilder The {@link MessageBuilder} filling the message created by the pooled session.
+     * @throws JMSException if no pooled producer becomes available or the message cannot be sent.
+     * @throws JsonProcessingException if the message body cannot be built.
+     * @since 2.1.0
+     */
+    public void sendMessage(MessageBuilder messageBuilder) throws JMSException, JsonProcessingException {
+        PooledProducer pooledProducer;
+        try {
+            pooledProducer = producerPool.poll(WAIT_FOR_PRODUCER, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while waiting for a producer");
+        }
+        if (pooledProducer == null) {
+            throw new JMSException("No producer available to send the request");
+        }
+        try {
+            TextMessage message = messageBuilder.build(pooledProducer.session.createTextMessage());
+            pooledProducer.producer.send(message);
+            message.acknowledge();
+        } finally {
+            //producers of a previous connection are dropped
+            if (pooledProducer.generation == connectionGeneration) {
+                producerPool.offer(pooledProducer);
+            }
+        }
+    }
+
     public TextMessage createTextMessage() throws JMSException {
         return session.createTextMessage();
     }
@@ -84,6 +147,7 @@ public class Client {
 
     private void disconnect() throws JMSException {
         connectionStatus = false;
+        producerPool.clear();
         if (connection != null) {
             connection.close();
         }
@@ -107,6 +171,11 @@ public class Client {
                 consumer.setMessageListener(clientMessageListener);
                 producer = session.createProducer(session.createQueue(requestAddress));
                 clientMessageListener.init(session, producer);
+                int generation = ++connectionGeneration;
+                for (int i = 0; i < producerPoolSize; i++) {
+                    Session pooledSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                    producerPool.offer(new PooledProducer(pooledSession, pooledSession.createProducer(pooledSession.createQueue(requestAddress)), generation));
+                }
                 connectionStatus = true;
                 logger.info("Service client {} - restarting attempt... {} DONE (Connection restored)", this, connectAttempt);
             } catch (JMSException e) {
@@ -127,6 +196,30 @@ public class Client {
         }
     }
 
+    /**
+     * Fills the message to be sent through a pooled session.
+     *
+     * @since 2.1.0
+     */
+    @FunctionalInterface
+    public interface MessageBuilder {
+
+        TextMessage build(TextMessage message) throws JMSException, JsonProcessingException;
+    }
+
+    private static class PooledProducer {
+
+        private final Session session;
+        private final MessageProducer producer;
+        private final int generation;
+
+        private PooledProducer(Session session, MessageProducer producer, int generation) {
+            this.session = session;
+            this.producer = producer;
+            this.generation = generation;
+        }
+    }
+
     private void waitBeforeRetry() {
         try {
             Thread.sleep(WAIT_BETWEEN_RECONNECTION_ATTEMPT);
@@ -14,10 +14,13 @@ package org.eclipse.kapua.client.security.bean;
 
 import org.eclipse.kapua.client.security.KapuaMessageListener;
 
+import java.util.concurrent.CompletableFuture;
+
 public class ResponseContainer<O extends Response> {
 
     private String requestId;
-    private O response;
+    private volatile O response;
+    private final CompletableFuture<O> future = new CompletableFuture<>();
 
     public ResponseContainer(String requestId) {
         this.requestId = requestId;
@@ -29,6 +32,17 @@ public class ResponseContainer<O extends Response> {
 
     public void setResponse(O response) {
         this.response = response;
+        future.complete(response);
+    }
+
+    /**
+     * Gets the {@link CompletableFuture} completed once the response is set.
+     *
+     * @return The {@link CompletableFuture} of the response.
+     * @since 2.1.0
+     */
+    public CompletableFuture<O> getFuture() {
+        return future;
     }
 
     public String getRequestId() {
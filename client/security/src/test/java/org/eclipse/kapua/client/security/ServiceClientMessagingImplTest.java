@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.client.security;
+
+import com.codahale.metrics.Counter;
+import org.apache.qpid.jms.message.JmsTextMessage;
+import org.apache.qpid.jms.message.facade.JmsTextMessageFacade;
+import org.eclipse.kapua.client.security.amqpclient.Client;
+import org.eclipse.kapua.client.security.bean.EntityRequest;
+import org.eclipse.kapua.client.security.bean.EntityResponse;
+import org.eclipse.kapua.client.security.bean.MessageConstants;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import javax.jms.JMSException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Category(JUnitTests.class)
+public class ServiceClientMessagingImplTest {
+
+    private Counter callbackTimeout;
+    private KapuaMessageListener messageListener;
+    private Client client;
+    private ServiceClientMessagingImpl serviceClient;
+
+    @Before
+    public void setUp() {
+        callbackTimeout = new Counter();
+        MetricsClientSecurity metricsClientSecurity = Mockito.mock(MetricsClientSecurity.class);
+        Mockito.when(metricsClientSecurity.getLoginCallbackError()).thenReturn(new Counter());
+        Mockito.when(metricsClientSecurity.getLoginCallbackTimeout()).thenReturn(callbackTimeout);
+        messageListener = new KapuaMessageListener(metricsClientSecurity);
+        client = Mockito.mock(Client.class);
+        serviceClient = new ServiceClientMessagingImpl(messageListener, client, 100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        serviceClient.close();
+        messageListener.close();
+    }
+
+    @Test
+    public void responseReceivedBeforeWaiting() throws Exception {
+        EntityRequest entityRequest = entityRequest();
+        Mockito.doAnswer(invocation -> {
+            // The response is received while the request is still being sent
+            messageListener.onMessage(responseMessage(entityRequest.getRequestId()));
+            return null;
+        }).when(client).sendMessage(Matchers.any(Client.MessageBuilder.class));
+
+        EntityResponse entityResponse = serviceClient.getEntity(entityRequest);
+
+        Assert.assertNotNull(entityResponse);
+        Assert.assertEquals(entityRequest.getRequestId(), entityResponse.getRequestId());
+        Assert.assertEquals("account", entityResponse.getName());
+        Assert.assertEquals(0, callbackTimeout.getCount());
+    }
+
+    @Test
+    public void timeoutReturnsNullResponse() throws Exception {
+        EntityRequest entityRequest = entityRequest();
+
+        Assert.assertNull(serviceClient.getEntity(entityRequest));
+
+        // The callback is removed, so a late response is not correlated
+        messageListener.onMessage(responseMessage(entityRequest.getRequestId()));
+        Assert.assertEquals(1, callbackTimeout.getCount());
+    }
+
+    @Test
+    public void failedSendRemovesCallback() throws Exception {
+        EntityRequest entityRequest = entityRequest();
+        Mockito.doThrow(new JMSException("Send failed")).when(client).sendMessage(Matchers.any(Client.MessageBuilder.class));
+
+        try {
+            serviceClient.getEntity(entityRequest);
+            Assert.fail("The send failure should be thrown");
+        } catch (JMSException e) {
+            Assert.assertEquals("Send failed", e.getMessage());
+        }
+
+        messageListener.onMessage(responseMessage(entityRequest.getRequestId()));
+        Assert.assertEquals(1, callbackTimeout.getCount());
+    }
+
+    @Test
+    public void closeFailsPendingRequests() throws Exception {
+        ServiceClientMessagingImpl longTimeoutClient = new ServiceClientMessagingImpl(messageListener, client, TimeUnit.MINUTES.toMillis(1));
+        EntityRequest entityRequest = entityRequest();
+        CompletableFuture<EntityResponse> pendingResponse = longTimeoutClient.getEntityAsync(entityRequest);
+
+        longTimeoutClient.close();
+
+        try {
+            pendingResponse.get(10, TimeUnit.SECONDS);
+            Assert.fail("The pending request should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof JMSException);
+        }
+        Mockito.verify(client).stop();
+
+        // No more requests are sent once closed
+        try {
+            longTimeoutClient.getEntity(entityRequest());
+            Assert.fail("The request should fail");
+        } catch (JMSException e) {
+            // Expected
+        }
+        Mockito.verify(client, Mockito.times(1)).sendMessage(Matchers.any(Client.MessageBuilder.class));
+
+        messageListener.onMessage(responseMessage(entityRequest.getRequestId()));
+        Assert.assertEquals(1, callbackTimeout.getCount());
+    }
+
+    private EntityRequest entityRequest() {
+        return new EntityRequest("cluster", "requester", ServiceClient.SecurityAction.getEntity.name(), ServiceClient.EntityType.account.name(), "account");
+    }
+
+    private JmsTextMessage responseMessage(String requestId) throws JMSException {
+        JmsTextMessageFacade messageFacade = Mockito.mock(JmsTextMessageFacade.class);
+        Mockito.when(messageFacade.getProperty(MessageConstants.HEADER_ACTION)).thenReturn(ServiceClient.SecurityAction.getEntity.name());
+        Mockito.when(messageFacade.propertyExists(MessageConstants.HEADER_ACTION)).thenReturn(true);
+        Mockito.when(messageFacade.hasBody()).thenReturn(true);
+        Mockito.when(messageFacade.getText()).thenReturn("{\"requestId\":\"" + requestId + "\",\"name\":\"account\"}");
+        return new JmsTextMessage(messageFacade);
+    }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.client.security.amqpclient;
+
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.List;
+
+@Category(JUnitTests.class)
+public class ClientTest {
+
+    private final List<MessageProducer> firstConnectionProducers = new ArrayList<>();
+    private final List<MessageProducer> secondConnectionProducers = new ArrayList<>();
+
+    private Connection firstConnection;
+    private Connection secondConnection;
+    private ConnectionFactory connectionFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        firstConnection = connection(firstConnectionProducers);
+        secondConnection = connection(secondConnectionProducers);
+        connectionFactory = Mockito.mock(ConnectionFactory.class);
+        Mockito.when(connectionFactory.createConnection()).thenReturn(firstConnection, secondConnection);
+    }
+
+    @Test
+    public void producerPoolIsRebuiltOnReconnect() throws Exception {
+        Client client = new Client(connectionFactory, "client", "request", "reply", Mockito.mock(ClientMessageListener.class), 2);
+        client.sendMessage(message -> message);
+        Assert.assertEquals(1, sends(firstConnectionProducers));
+
+        exceptionListener(firstConnection).onException(new JMSException("Connection lost"));
+        Mockito.verify(firstConnection).close();
+
+        for (int i = 0; i < 4; i++) {
+            client.sendMessage(message -> message);
+        }
+        Assert.assertEquals(1, sends(firstConnectionProducers));
+        Assert.assertEquals(4, sends(secondConnectionProducers));
+    }
+
+    @Test
+    public void producerOfPreviousConnectionIsDropped() throws Exception {
+        Client client = new Client(connectionFactory, "client", "request", "reply", Mockito.mock(ClientMessageListener.class), 1);
+        ExceptionListener exceptionListener = exceptionListener(firstConnection);
+
+        // The connection is lost while a pooled producer is in use
+        client.sendMessage(message -> {
+            exceptionListener.onException(new JMSException("Connection lost"));
+            return message;
+        });
+        Assert.assertEquals(1, sends(firstConnectionProducers));
+
+        client.sendMessage(message -> message);
+        client.sendMessage(message -> message);
+        Assert.assertEquals(1, sends(firstConnectionProducers));
+        Assert.assertEquals(2, sends(secondConnectionProducers));
+    }
+
+    private ExceptionListener exceptionListener(Connection connection) throws JMSException {
+        ArgumentCaptor<ExceptionListener> exceptionListener = ArgumentCaptor.forClass(ExceptionListener.class);
+        Mockito.verify(connection).setExceptionListener(exceptionListener.capture());
+        return exceptionListener.getValue();
+    }
+
+    private int sends(List<MessageProducer> producers) {
+        int sends = 0;
+        for (MessageProducer producer : producers) {
+            sends += Mockito.mockingDetails(producer).getInvocations().stream().filter(invocation -> invocation.getMethod().getName().equals("send")).count();
+        }
+        return sends;
+    }
+
+    private Connection connection(List<MessageProducer> producers) throws JMSException {
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.getClientID()).thenReturn("client");
+        Mockito.when(connection.createSession(Matchers.anyBoolean(), Matchers.anyInt())).thenAnswer(invocation -> session(producers));
+        return connection;
+    }
+
+    private Session session(List<MessageProducer> producers) throws JMSException {
+        Session session = Mockito.mock(Session.class);
+        Mockito.when(session.createQueue(Matchers.anyString())).thenReturn(Mockito.mock(Queue.class));
+        Mockito.when(session.createConsumer(Matchers.any(Destination.class))).thenReturn(Mockito.mock(MessageConsumer.class));
+        Mockito.when(session.createProducer(Matchers.any(Destination.class))).thenAnswer(invocation -> {
+            MessageProducer producer = Mockito.mock(MessageProducer.class);
+            producers.add(producer);
+            return producer;
+        });
+        Mockito.when(session.createTextMessage()).thenAnswer(invocation -> Mockito.mock(TextMessage.class));
+        return session;
+    }
+}
@@ -28,6 +28,8 @@ import javax.persistence.OptimisticLockException;
 import javax.persistence.PessimisticLockException;
 import javax.persistence.RollbackException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -35,6 +37,7 @@ public class JpaTxContext implements JpaAwareTxContext, TxContext {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     public final EntityManagerFactory entityManagerFactory;
     Optional<EntityManager> entityManager = Optional.empty();
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
 
     public JpaTxContext(EntityManagerFactory entityManagerFactory) {
         this.entityManagerFactory = entityManagerFactory;
@@ -56,10 +59,26 @@ public class JpaTxContext implements JpaAwareTxContext, TxContext {
     @Override
     public void commit() {
         entityManager.ifPresent(e -> e.getTransaction().commit());
+        final List<Runnable> actions = new ArrayList<>(afterCommitActions);
+        afterCommitActions.clear();
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                //the transaction is committed anyway
+                logger.error("Error running the after commit action: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void afterCommit(Runnable action) {
+        afterCommitActions.add(action);
     }
 
     @Override
     public void rollback() {
+        afterCommitActions.clear();
         entityManager.ifPresent(entityManager -> {
             final EntityTransaction tx = entityManager.getTransaction();
             if (tx.isActive()) {
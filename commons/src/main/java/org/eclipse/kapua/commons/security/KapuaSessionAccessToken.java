@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.security;
+
+import org.eclipse.kapua.commons.model.AbstractKapuaUpdatableEntity;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authentication.token.AccessToken;
+
+import java.util.Date;
+
+/**
+ * {@link AccessToken} of a {@link KapuaSession} decoded by the {@link KapuaSessionCodec}.
+ * <p>
+ * It carries only the fields encoded by the {@link KapuaSessionCodec}: the id, scope, user, token id and expiration of the {@link AccessToken}.
+ *
+ * @since 2.1.0
+ */
+class KapuaSessionAccessToken extends AbstractKapuaUpdatableEntity implements AccessToken {
+
+    private static final long serialVersionUID = 5193716342017566311L;
+
+    private String tokenId;
+    private KapuaId userId;
+    private Date expiresOn;
+    private String refreshToken;
+    private Date refreshExpiresOn;
+    private Date invalidatedOn;
+    private String trustKey;
+    private String tokenIdentifier;
+
+    /**
+     * Constructor.
+     *
+     * @param id        The {@link AccessToken} id.
+     * @param scopeId   The {@link AccessToken} scope id.
+     * @param userId    The {@link AccessToken} user id.
+     * @param tokenId   The {@link AccessToken#getTokenId()}.
+     * @param expiresOn The {@link AccessToken#getExpiresOn()}.
+     * @since 2.1.0
+     */
+    KapuaSessionAccessToken(KapuaId id, KapuaId scopeId, KapuaId userId, String tokenId, Date expiresOn) {
+        super();
+        setId(id);
+        setScopeId(scopeId);
+        this.userId = userId;
+        this.tokenId = tokenId;
+        this.expiresOn = expiresOn;
+    }
+
+    @Override
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    @Override
+    public void setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    @Override
+    public KapuaId getUserId() {
+        return userId;
+    }
+
+    @Override
+    public void setUserId(KapuaId userId) {
+        this.userId = userId;
+    }
+
+    @Override
+    public Date getExpiresOn() {
+        return expiresOn;
+    }
+
+    @Override
+    public void setExpiresOn(Date expiresOn) {
+        this.expiresOn = expiresOn;
+    }
+
+    @Override
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    @Override
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    @Override
+    public Date getRefreshExpiresOn() {
+        return refreshExpiresOn;
+    }
+
+    @Override
+    public void setRefreshExpiresOn(Date refreshExpiresOn) {
+        this.refreshExpiresOn = refreshExpiresOn;
+    }
+
+    @Override
+    public Date getInvalidatedOn() {
+        return invalidatedOn;
+    }
+
+    @Override
+    public void setInvalidatedOn(Date invalidatedOn) {
+        this.invalidatedOn = invalidatedOn;
+    }
+
+    @Override
+    public String getTrustKey() {
+        return trustKey;
+    }
+
+    @Override
+    public void setTrustKey(String trustKey) {
+        this.trustKey = trustKey;
+    }
+
+    @Override
+    public String getTokenIdentifier() {
+        return tokenIdentifier;
+    }
+
+    @Override
+    public void setTokenIdentifier(String tokenIdentifier) {
+        this.tokenIdentifier = tokenIdentifier;
+    }
+}
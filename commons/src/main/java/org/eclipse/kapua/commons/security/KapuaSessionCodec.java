@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.security;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.id.KapuaIdImpl;
+import org.eclipse.kapua.service.authentication.token.AccessToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Codec of the {@link KapuaSession} and {@link KapuaId} message headers exchanged between the broker and the consumers.
+ * <p>
+ * Values are encoded as compact strings prefixed by the codec version, with the {@link KapuaId}s in their {@link KapuaId#toCompactId()} form:
+ * <ul>
+ * <li>{@code 1|<flags>|<scopeId>|<userId>} for a {@link KapuaSession} without tokens</li>
+ * <li>{@code 2|<flags>|<scopeId>|<userId>|<accessTokenId>|<tokenId>|<expiresOn>|<openIDidToken>} for a {@link KapuaSession} carrying an {@link AccessToken} or an OpenID token,
+ * the {@link AccessToken} being of the same scope and user of the {@link KapuaSession} and the tokens being Base64 encoded</li>
+ * </ul>
+ * The legacy encoding (Base64 of the Java serialized object) is decoded only when {@link SystemSettingKey#SESSION_HEADER_LEGACY_DECODING} is enabled,
+ * which is needed only while brokers of a previous version are running. The deserialization of a legacy value accepts only the {@link KapuaSession} and {@link KapuaId} classes.
+ *
+ * @since 2.1.0
+ */
+public class KapuaSessionCodec {
+
+    /**
+     * Version of the compact encoding of the {@link KapuaSession}s without tokens and of the {@link KapuaId}s.
+     *
+     * @since 2.1.0
+     */
+    public static final char VERSION_1 = '1';
+
+    /**
+     * Version of the compact encoding of the {@link KapuaSession}s carrying an {@link AccessToken} or an OpenID token.
+     *
+     * @since 2.1.0
+     */
+    public static final char VERSION_2 = '2';
+
+    private static final char SEPARATOR = '|';
+    private static final String SEPARATOR_REGEX = "\\|";
+
+    private static final int FLAG_TRUSTED_MODE = 1;
+    private static final int FLAG_USER_INITIATED_LOGOUT = 1 << 1;
+
+    private static final boolean LEGACY_DECODING = SystemSetting.getInstance().getBoolean(SystemSettingKey.SESSION_HEADER_LEGACY_DECODING, false);
+
+    private static final Set<String> LEGACY_CLASSES = new HashSet<>(Arrays.asList(
+            KapuaSession.class.getName(),
+            KapuaEid.class.getName(),
+            KapuaIdImpl.class.getName(),
+            BigInteger.class.getName(),
+            Number.class.getName()));
+    private static final long LEGACY_MAX_DEPTH = 5;
+    private static final long LEGACY_MAX_REFERENCES = 100;
+
+    private KapuaSessionCodec() {
+    }
+
+    /**
+     * Encodes the {@link KapuaSession}.
+     *
+     * @param kapuaSession The {@link KapuaSession} to encode.
+     * @return The encoded {@link KapuaSession}.
+     * @since 2.1.0
+     */
+    public static String encodeSession(KapuaSession kapuaSession) {
+        int flags = 0;
+        if (kapuaSession.isTrustedMode()) {
+            flags |= FLAG_TRUSTED_MODE;
+        }
+        if (kapuaSession.isUserInitiatedLogout()) {
+            flags |= FLAG_USER_INITIATED_LOGOUT;
+        }
+
+        AccessToken accessToken = kapuaSession.getAccessToken();
+        if (accessToken == null && kapuaSession.getOpenIDidToken() == null) {
+            return new StringBuilder(48)
+                    .append(VERSION_1).append(SEPARATOR)
+                    .append(flags).append(SEPARATOR)
+                    .append(toCompactId(kapuaSession.getScopeId())).append(SEPARATOR)
+                    .append(toCompactId(kapuaSession.getUserId()))
+                    .toString();
+        }
+
+        return new StringBuilder(1024)
+                .append(VERSION_2).append(SEPARATOR)
+                .append(flags).append(SEPARATOR)
+                .append(toCompactId(kapuaSession.getScopeId())).append(SEPARATOR)
+                .append(toCompactId(kapuaSession.getUserId())).append(SEPARATOR)
+                .append(accessToken != null ? toCompactId(accessToken.getId()) : "").append(SEPARATOR)
+                .append(accessToken != null ? encodeString(accessToken.getTokenId()) : "").append(SEPARATOR)
+                .append(accessToken != null && accessToken.getExpiresOn() != null ? String.valueOf(accessToken.getExpiresOn().getTime()) : "").append(SEPARATOR)
+                .append(encodeString(kapuaSession.getOpenIDidToken()))
+                .toString();
+    }
+
+    /**
+     * Decodes a {@link KapuaSession} encoded by {@link #encodeSession(KapuaSession)} or, if enabled, with the legacy encoding.
+     *
+     * @param encodedSession The encoded {@link KapuaSession}.
+     * @return The decoded {@link KapuaSession}.
+     * @throws IllegalArgumentException if the value cannot be decoded.
+     * @since 2.1.0
+     */
+    public static KapuaSession decodeSession(String encodedSession) {
+        return decodeSession(encodedSession, LEGACY_DECODING);
+    }
+
+    static KapuaSession decodeSession(String encodedSession, boolean legacyDecoding) {
+        if (!isCompact(encodedSession)) {
+            return decodeLegacy(encodedSession, KapuaSession.class, legacyDecoding);
+        }
+
+        String[] tokens = encodedSession.split(SEPARATOR_REGEX, -1);
+        boolean withTokens = encodedSession.charAt(0) == VERSION_2;
+        if (tokens.length != (withTokens ? 8 : 4)) {
+            throw new IllegalArgumentException("Invalid encoded Kapua session");
+        }
+        try {
+            int flags = Integer.parseInt(tokens[1]);
+            KapuaId scopeId = fromCompactId(tokens[2]);
+            KapuaId userId = fromCompactId(tokens[3]);
+
+            KapuaSession kapuaSession;
+            if (withTokens) {
+                AccessToken accessToken = tokens[4].isEmpty() ? null :
+                        new KapuaSessionAccessToken(fromCompactId(tokens[4]), scopeId, userId, decodeString(tokens[5]), tokens[6].isEmpty() ? null : new Date(Long.parseLong(tokens[6])));
+                kapuaSession = new KapuaSession(accessToken, scopeId, userId, decodeString(tokens[7]));
+            } else {
+                kapuaSession = new KapuaSession(null, scopeId, userId);
+            }
+            kapuaSession.setTrustedMode((flags & FLAG_TRUSTED_MODE) != 0);
+            kapuaSession.setUserInitiatedLogout((flags & FLAG_USER_INITIATED_LOGOUT) != 0);
+            return kapuaSession;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid encoded Kapua session", e);
+        }
+    }
+
+    /**
+     * Encodes the {@link KapuaId}.
+     *
+     * @param kapuaId The {@link KapuaId} to encode.
+     * @return The encoded {@link KapuaId}.
+     * @since 2.1.0
+     */
+    public static String encodeId(KapuaId kapuaId) {
+        return VERSION_1 + String.valueOf(SEPARATOR) + toCompactId(kapuaId);
+    }
+
+    /**
+     * Decodes a {@link KapuaId} encoded by {@link #encodeId(KapuaId)} or, if enabled, with the legacy encoding.
+     *
+     * @param encodedId The encoded {@link KapuaId}.
+     * @return The decoded {@link KapuaId}.
+     * @throws IllegalArgumentException if the value cannot be decoded.
+     * @since 2.1.0
+     */
+    public static KapuaId decodeId(String encodedId) {
+        return decodeId(encodedId, LEGACY_DECODING);
+    }
+
+    static KapuaId decodeId(String encodedId, boolean legacyDecoding) {
+        if (!isCompact(encodedId) || encodedId.charAt(0) != VERSION_1) {
+            return decodeLegacy(encodedId, KapuaId.class, legacyDecoding);
+        }
+        return fromCompactId(encodedId.substring(2));
+    }
+
+    /**
+     * Encodes the {@link KapuaSession} with the legacy encoding, to be used while consumers of a previous version are still running.
+     *
+     * @param kapuaSession The {@link KapuaSession} to encode.
+     * @return The encoded {@link KapuaSession}.
+     * @since 2.1.0
+     */
+    public static String encodeLegacy(KapuaSession kapuaSession) {
+        return Base64.getEncoder().encodeToString(SerializationUtils.serialize(kapuaSession));
+    }
+
+    /**
+     * Encodes the {@link KapuaId} with the legacy encoding, to be used while consumers of a previous version are still running.
+     *
+     * @param kapuaId The {@link KapuaId} to encode.
+     * @return The encoded {@link KapuaId}.
+     * @since 2.1.0
+     */
+    public static String encodeLegacy(KapuaId kapuaId) {
+        return Base64.getEncoder().encodeToString(SerializationUtils.serialize(kapuaId));
+    }
+
+    private static boolean isCompact(String encoded) {
+        if (encoded == null) {
+            throw new IllegalArgumentException("Encoded value cannot be null");
+        }
+        // The '|' is not part of the Base64 alphabet, so a legacy value can never match
+        return encoded.length() > 1 && (encoded.charAt(0) == VERSION_1 || encoded.charAt(0) == VERSION_2) && encoded.charAt(1) == SEPARATOR;
+    }
+
+    private static <T> T decodeLegacy(String encoded, Class<T> type, boolean legacyDecoding) {
+        if (!legacyDecoding) {
+            throw new IllegalArgumentException("Invalid encoded value (the legacy encoding is not enabled)");
+        }
+
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(encoded)))) {
+            objectInputStream.setObjectInputFilter(KapuaSessionCodec::checkLegacyClass);
+            return type.cast(objectInputStream.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid legacy encoded value", e);
+        }
+    }
+
+    /**
+     * {@link ObjectInputFilter} of the legacy values: only the {@link KapuaSession} and {@link KapuaId} classes are accepted.
+     */
+    private static ObjectInputFilter.Status checkLegacyClass(ObjectInputFilter.FilterInfo filterInfo) {
+        if (filterInfo.depth() > LEGACY_MAX_DEPTH || filterInfo.references() > LEGACY_MAX_REFERENCES) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+
+        Class<?> serialClass = filterInfo.serialClass();
+        if (serialClass == null) {
+            return ObjectInputFilter.Status.UNDECIDED;
+        }
+        while (serialClass.isArray()) {
+            serialClass = serialClass.getComponentType();
+        }
+        return serialClass.isPrimitive() || LEGACY_CLASSES.contains(serialClass.getName()) ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    }
+
+    private static String toCompactId(KapuaId kapuaId) {
+        return kapuaId != null ? kapuaId.toCompactId() : "";
+    }
+
+    private static KapuaId fromCompactId(String compactId) {
+        return compactId.isEmpty() ? null : KapuaEid.parseCompactId(compactId);
+    }
+
+    private static String encodeString(String value) {
+        return value != null ? Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8)) : "";
+    }
+
+    private static String decodeString(String encoded) {
+        return encoded.isEmpty() ? null : new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+    }
+}
@@ -343,7 +343,11 @@ public enum SystemSettingKey implements SettingKey {
     /**
      * Provide the JCache Expiry Policy. Allowed values: MODIFIED, TOUCHED
      */
-    JCACHE_EXPIRY_POLICY("commons.cache.config.expiryPolicy");
+    JCACHE_EXPIRY_POLICY("commons.cache.config.expiryPolicy"),
+    /**
+     * Decode the Kapua session and connection id message headers with the legacy (Java serialization) encoding, to be enabled only while brokers of a previous version are running
+     */
+    SESSION_HEADER_LEGACY_DECODING("commons.session_header.legacy_decoding");
 
     private String key;
 
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *      Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.security;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.InvalidClassException;
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+
+@Category(JUnitTests.class)
+public class KapuaSessionCodecTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(42));
+    private static final KapuaId USER_ID = new KapuaEid(BigInteger.valueOf(4242));
+
+    @Test
+    public void compactSessionRoundTrip() {
+        KapuaSession kapuaSession = new KapuaSession(null, SCOPE_ID, USER_ID);
+        kapuaSession.setTrustedMode(true);
+
+        String encoded = KapuaSessionCodec.encodeSession(kapuaSession);
+        Assert.assertEquals('1', encoded.charAt(0));
+
+        KapuaSession decoded = KapuaSessionCodec.decodeSession(encoded);
+        Assert.assertEquals(SCOPE_ID, decoded.getScopeId());
+        Assert.assertEquals(USER_ID, decoded.getUserId());
+        Assert.assertTrue(decoded.isTrustedMode());
+        Assert.assertFalse(decoded.isUserInitiatedLogout());
+    }
+
+    @Test
+    public void compactSessionWithoutIds() {
+        KapuaSession decoded = KapuaSessionCodec.decodeSession(KapuaSessionCodec.encodeSession(new KapuaSession()));
+        Assert.assertNull(decoded.getScopeId());
+        Assert.assertNull(decoded.getUserId());
+        Assert.assertFalse(decoded.isTrustedMode());
+    }
+
+    @Test
+    public void legacySessionIsDecoded() {
+        KapuaSession kapuaSession = new KapuaSession(null, SCOPE_ID, USER_ID);
+        kapuaSession.setTrustedMode(true);
+
+        KapuaSession decoded = KapuaSessionCodec.decodeSession(KapuaSessionCodec.encodeLegacy(kapuaSession), true);
+        Assert.assertEquals(SCOPE_ID, decoded.getScopeId());
+        Assert.assertEquals(USER_ID, decoded.getUserId());
+        Assert.assertTrue(decoded.isTrustedMode());
+    }
+
+    @Test
+    public void idRoundTrip() {
+        Assert.assertEquals(SCOPE_ID, KapuaSessionCodec.decodeId(KapuaSessionCodec.encodeId(SCOPE_ID)));
+        Assert.assertEquals(SCOPE_ID, KapuaSessionCodec.decodeId(KapuaSessionCodec.encodeLegacy(SCOPE_ID), true));
+    }
+
+    @Test
+    public void tokenSessionRoundTrip() {
+        Date expiresOn = new Date(1_700_000_000_000L);
+        KapuaSession kapuaSession = new KapuaSession(new KapuaSessionAccessToken(new KapuaEid(BigInteger.TEN), SCOPE_ID, USER_ID, "header.payload|signature", expiresOn), SCOPE_ID, USER_ID, "open-id-token");
+        kapuaSession.setUserInitiatedLogout(true);
+
+        String encoded = KapuaSessionCodec.encodeSession(kapuaSession);
+        Assert.assertEquals('2', encoded.charAt(0));
+
+        KapuaSession decoded = KapuaSessionCodec.decodeSession(encoded);
+        Assert.assertEquals(SCOPE_ID, decoded.getScopeId());
+        Assert.assertEquals(USER_ID, decoded.getUserId());
+        Assert.assertEquals("open-id-token", decoded.getOpenIDidToken());
+        Assert.assertTrue(decoded.isUserInitiatedLogout());
+        Assert.assertFalse(decoded.isTrustedMode());
+        Assert.assertEquals(new KapuaEid(BigInteger.TEN), decoded.getAccessToken().getId());
+        Assert.assertEquals(SCOPE_ID, decoded.getAccessToken().getScopeId());
+        Assert.assertEquals(USER_ID, decoded.getAccessToken().getUserId());
+        Assert.assertEquals("header.payload|signature", decoded.getAccessToken().getTokenId());
+        Assert.assertEquals(expiresOn, decoded.getAccessToken().getExpiresOn());
+    }
+
+    @Test
+    public void openIdTokenOnlySessionRoundTrip() {
+        KapuaSession decoded = KapuaSessionCodec.decodeSession(KapuaSessionCodec.encodeSession(new KapuaSession(null, SCOPE_ID, USER_ID, "open-id-token")));
+        Assert.assertNull(decoded.getAccessToken());
+        Assert.assertEquals("open-id-token", decoded.getOpenIDidToken());
+        Assert.assertEquals(USER_ID, decoded.getUserId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void legacySessionIsRejectedWhenLegacyDecodingIsDisabled() {
+        KapuaSessionCodec.decodeSession(KapuaSessionCodec.encodeLegacy(new KapuaSession(null, SCOPE_ID, USER_ID)), false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void legacyIdIsRejectedWhenLegacyDecodingIsDisabled() {
+        KapuaSessionCodec.decodeId(KapuaSessionCodec.encodeLegacy(SCOPE_ID), false);
+    }
+
+    @Test
+    public void legacyValueOfOtherClassesIsRejected() {
+        HashMap<String, String> notASession = new HashMap<>();
+        notASession.put("key", "value");
+        String encoded = Base64.getEncoder().encodeToString(SerializationUtils.serialize(notASession));
+
+        try {
+            KapuaSessionCodec.decodeSession(encoded, true);
+            Assert.fail("A serialized " + HashMap.class.getName() + " must not be deserialized");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getCause() instanceof InvalidClassException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidValueIsRejected() {
+        KapuaSessionCodec.decodeSession("not a session");
+    }
+}
@@ -21,6 +21,7 @@ import org.eclipse.kapua.commons.liquibase.DatabaseCheckUpdate;
 import org.eclipse.kapua.commons.util.xml.JAXBContextProvider;
 import org.eclipse.kapua.commons.util.xml.JAXBContextProviderImpl;
 import org.eclipse.kapua.commons.util.xml.XmlRootAnnotatedJaxbClassesScanner;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySetting;
 import org.eclipse.kapua.locator.LocatorConfig;
 
 import com.google.inject.Provides;
@@ -32,6 +33,7 @@ public class AppModule extends AbstractKapuaModule {
     protected void configureModule() {
         bind(DatabaseCheckUpdate.class).in(Singleton.class);
         bind(MetricsTelemetry.class).in(Singleton.class);
+        bind(TelemetrySetting.class).in(Singleton.class);
         // Switching manually-configured JAXBContextProvider to autodiscovery one below
         // bind(JAXBContextProvider.class).to(TelemetryJAXBContextProvider.class).in(Singleton.class);
         bind(JAXBContextProvider.class).to(JAXBContextProviderImpl.class).in(Singleton.class);
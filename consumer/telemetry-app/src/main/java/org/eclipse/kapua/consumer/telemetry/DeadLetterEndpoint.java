@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.service.camel.listener.error.DeadLetter;
+import org.eclipse.kapua.service.camel.listener.error.DeadLetterFilter;
+import org.eclipse.kapua.service.camel.listener.error.DeadLetterReplayer;
+import org.eclipse.kapua.service.camel.listener.error.DeadLetterReplayer.ReplayStatus;
+import org.eclipse.kapua.service.camel.listener.error.DeadLetterStore;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management endpoint to list and replay the messages of the {@link DeadLetterStore}.
+ * <p>
+ * {@code GET /deadletters} lists the stored messages, {@code POST /deadletters} submits their replay through the telemetry pipeline.
+ * Both accept the {@code scopeId}, {@code clientId}, {@code channel} (prefix), {@code errorClass}, {@code from} and {@code to} (epoch milliseconds) filters
+ * and a {@code limit}; the replay also accepts a {@code rate} in messages per second.
+ * <p>
+ * The replay runs in the background: the {@code POST} is answered with {@code 202} and the {@link ReplayStatus},
+ * which can be polled at {@code GET /deadletters/replays/{replayId}} (the {@code Location} of the response).
+ * <p>
+ * The endpoint is disabled by default. Each request must carry the configured access token in the {@code Authorization} header
+ * ({@code Authorization: Bearer <token>}), otherwise it is rejected with {@code 401}; with no access token configured all requests are rejected.
+ * The token is not accepted as a request parameter, so that it does not end in the access logs.
+ *
+ * @since 2.1.0
+ */
+@RestControllerEndpoint(id = "deadletters")
+public class DeadLetterEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final double DEFAULT_RATE = 50;
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final DeadLetterStore deadLetterStore;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final byte[] accessToken;
+
+    public DeadLetterEndpoint(DeadLetterStore deadLetterStore, DeadLetterReplayer deadLetterReplayer, String accessToken) {
+        this.deadLetterStore = deadLetterStore;
+        this.deadLetterReplayer = deadLetterReplayer;
+        this.accessToken = accessToken != null ? accessToken.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> deadLetters(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                                 @RequestParam(name = "scopeId", required = false) String scopeId,
+                                                                 @RequestParam(name = "clientId", required = false) String clientId,
+                                                                 @RequestParam(name = "channel", required = false) String channel,
+                                                                 @RequestParam(name = "errorClass", required = false) String errorClass,
+                                                                 @RequestParam(name = "from", required = false) Long from,
+                                                                 @RequestParam(name = "to", required = false) Long to,
+                                                                 @RequestParam(name = "includeReplayed", required = false) Boolean includeReplayed,
+                                                                 @RequestParam(name = "limit", required = false) Integer limit) {
+        if (!isAuthorized(authorization)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        DeadLetterFilter filter = toFilter(scopeId, clientId, channel, errorClass, from, to).setIncludeReplayed(Boolean.TRUE.equals(includeReplayed));
+        List<Map<String, Object>> deadLetters = new ArrayList<>();
+        for (DeadLetter deadLetter : deadLetterStore.find(filter, limit != null ? limit : DEFAULT_LIMIT)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", deadLetter.getId());
+            entry.put("storedOn", deadLetter.getStoredOn());
+            entry.put("scopeId", deadLetter.getScopeId() != null ? deadLetter.getScopeId().toCompactId() : null);
+            entry.put("clientId", deadLetter.getClientId());
+            entry.put("channel", deadLetter.getChannel());
+            entry.put("errorClass", deadLetter.getErrorClass());
+            entry.put("replayed", deadLetter.isReplayed());
+            deadLetters.add(entry);
+        }
+        return ResponseEntity.ok(deadLetters);
+    }
+
+    @PostMapping
+    public ResponseEntity<ReplayStatus> replay(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                               @RequestParam(name = "scopeId", required = false) String scopeId,
+                                               @RequestParam(name = "clientId", required = false) String clientId,
+                                               @RequestParam(name = "channel", required = false) String channel,
+                                               @RequestParam(name = "errorClass", required = false) String errorClass,
+                                               @RequestParam(name = "from", required = false) Long from,
+                                               @RequestParam(name = "to", required = false) Long to,
+                                               @RequestParam(name = "limit", required = false) Integer limit,
+                                               @RequestParam(name = "rate", required = false) Double rate) {
+        if (!isAuthorized(authorization)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ReplayStatus replayStatus = deadLetterReplayer.submit(toFilter(scopeId, clientId, channel, errorClass, from, to),
+                limit != null ? limit : DEFAULT_LIMIT,
+                rate != null ? rate : DEFAULT_RATE);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/replays/{replayId}").buildAndExpand(replayStatus.getId()).toUri())
+                .body(replayStatus);
+    }
+
+    @GetMapping("/replays/{replayId}")
+    public ResponseEntity<ReplayStatus> replayStatus(@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                     @PathVariable("replayId") String replayId) {
+        if (!isAuthorized(authorization)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ReplayStatus replayStatus = deadLetterReplayer.getReplayStatus(replayId);
+        return replayStatus != null ? ResponseEntity.ok(replayStatus) : ResponseEntity.notFound().build();
+    }
+
+    private boolean isAuthorized(String authorization) {
+        if (accessToken.length == 0 || authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return false;
+        }
+        // Constant time comparison, not to leak the token through the response time
+        return MessageDigest.isEqual(accessToken, authorization.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DeadLetterFilter toFilter(String scopeId, String clientId, String channel, String errorClass, Long from, Long to) {
+        return new DeadLetterFilter()
+                .setScopeId(scopeId != null ? toKapuaId(scopeId) : null)
+                .setClientId(clientId)
+                .setChannelPrefix(channel)
+                .setErrorClass(errorClass)
+                .setStoredFrom(from != null ? new Date(from) : null)
+                .setStoredTo(to != null ? new Date(to) : null);
+    }
+
+    private KapuaEid toKapuaId(String scopeId) {
+        // Accept both the compact and the numeric representation of the id
+        try {
+            return KapuaEid.parseCompactId(scopeId);
+        } catch (IllegalArgumentException e) {
+            return new KapuaEid(new BigInteger(scopeId));
+        }
+    }
+}
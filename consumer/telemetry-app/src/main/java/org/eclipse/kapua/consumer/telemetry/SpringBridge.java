@@ -13,6 +13,7 @@
 package org.eclipse.kapua.consumer.telemetry;
 
 import org.eclipse.kapua.commons.liquibase.DatabaseCheckUpdate;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySetting;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.camel.application.MetricsCamel;
 import org.eclipse.kapua.service.client.protocol.ProtocolDescriptorProvider;
@@ -39,6 +40,11 @@ public class SpringBridge {
         return KapuaLocator.getInstance().getComponent(MetricsTelemetry.class);
     }
 
+    @Bean
+    TelemetrySetting telemetrySetting() {
+        return KapuaLocator.getInstance().getComponent(TelemetrySetting.class);
+    }
+
     @Bean
     MetricsDatastore metricsDatastore() {
         return KapuaLocator.getInstance().getComponent(MetricsDatastore.class);
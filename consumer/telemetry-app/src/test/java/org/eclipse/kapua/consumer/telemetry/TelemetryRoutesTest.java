@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.DeadLetterChannelBuilder;
+import org.apache.camel.component.stub.StubComponent;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.model.ModelCamelContext;
+import org.apache.camel.model.RoutesDefinition;
+import org.apache.camel.xml.jaxb.JaxbHelper;
+import org.eclipse.kapua.consumer.telemetry.scheduler.ScopeThrottledException;
+import org.eclipse.kapua.consumer.telemetry.scheduler.ScopeThrottledRetry;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.camel.message.JmsMessageAcknowledger;
+import org.eclipse.kapua.service.client.message.MessageConstants;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Category(JUnitTests.class)
+public class TelemetryRoutesTest {
+
+    private static final String THROTTLED_SCOPE = "throttled";
+    private static final String OTHER_SCOPE = "other";
+    private static final int MAX_RETRIES = 3;
+
+    private CamelContext camelContext;
+
+    @After
+    public void tearDown() throws Exception {
+        if (camelContext != null) {
+            camelContext.stop();
+        }
+    }
+
+    @Test
+    public void throttledScopeDoesNotBlockOtherScopes() throws Exception {
+        assertThrottledScopeDoesNotBlockOtherScopes("camel/camel.xml");
+    }
+
+    @Test
+    public void throttledScopeDoesNotBlockOtherScopesInBatchMode() throws Exception {
+        assertThrottledScopeDoesNotBlockOtherScopes("camel/camel-batch.xml");
+    }
+
+    private void assertThrottledScopeDoesNotBlockOtherScopes(String routes) throws Exception {
+        // More throttled messages than consumer threads of the telemetry route, sent before the message of the other scope
+        int throttledMessages = 10;
+        FakeDataStorageMessageProcessor storage = new FakeDataStorageMessageProcessor(1);
+        FakeErrorMessageListener deadLetters = new FakeErrorMessageListener(throttledMessages);
+        startRoutes(routes, storage, deadLetters);
+
+        ProducerTemplate producer = camelContext.createProducerTemplate();
+        for (int i = 0; i < throttledMessages; i++) {
+            producer.sendBodyAndHeader(camelContext.getRoute("telemetryRoute").getEndpoint(), THROTTLED_SCOPE + "-" + i, "scope", THROTTLED_SCOPE);
+        }
+        producer.sendBodyAndHeader(camelContext.getRoute("telemetryRoute").getEndpoint(), OTHER_SCOPE + "-0", "scope", OTHER_SCOPE);
+
+        Assert.assertTrue("The message of the other scope waits for the throttled scope", storage.stored.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(OTHER_SCOPE + "-0", storage.storedMessages.get(0));
+
+        // Throttled messages go through the retry queue and, once retried too many times, end in the dead letter queue
+        Assert.assertTrue(deadLetters.received.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(throttledMessages, deadLetters.messages.size());
+        for (Exchange deadLetter : deadLetters.messages) {
+            Assert.assertTrue(deadLetter.getIn().getBody(String.class).startsWith(THROTTLED_SCOPE));
+            Assert.assertEquals(Integer.valueOf(MAX_RETRIES), deadLetter.getIn().getHeader(MessageConstants.HEADER_KAPUA_THROTTLED_COUNT, Integer.class));
+            Assert.assertEquals(ScopeThrottledException.class.getName(), deadLetter.getIn().getHeader(MessageConstants.HEADER_KAPUA_PROCESSING_ERROR_CLASS));
+        }
+        Assert.assertEquals(1, storage.storedMessages.size());
+    }
+
+    private void startRoutes(String routes, FakeDataStorageMessageProcessor storage, FakeErrorMessageListener deadLetters) throws Exception {
+        camelContext = new DefaultCamelContext();
+        // The broker endpoints are replaced by in memory queues
+        camelContext.addComponent("amqp", new StubComponent());
+
+        DeadLetterChannelBuilder messageErrorHandler = new DeadLetterChannelBuilder("amqp:queue:$SYS/MSG/dlq/default");
+        messageErrorHandler.useOriginalMessage();
+        messageErrorHandler.onPrepareFailure(new FailureHeaders());
+        camelContext.getRegistry().bind("messageErrorHandler", messageErrorHandler);
+        camelContext.getRegistry().bind("kapuaCamelFilter", new FakeKapuaCamelFilter());
+        camelContext.getRegistry().bind("kapuaDataConverter", new FakeKapuaDataConverter());
+        camelContext.getRegistry().bind("jmsMessageAcknowledger", new JmsMessageAcknowledger());
+        camelContext.getRegistry().bind("dataStorageMessageProcessor", storage);
+        camelContext.getRegistry().bind("scopeThrottledRetry", new ScopeThrottledRetry(MAX_RETRIES));
+        camelContext.getRegistry().bind("failureProcessor", new FailureHeaders());
+        camelContext.getRegistry().bind("errorMessageListener", deadLetters);
+
+        try (InputStream routesStream = getClass().getClassLoader().getResourceAsStream(routes)) {
+            RoutesDefinition routesDefinition = JaxbHelper.loadRoutesDefinition(camelContext, routesStream);
+            camelContext.adapt(ModelCamelContext.class).addRouteDefinitions(routesDefinition.getRoutes());
+        }
+        camelContext.start();
+    }
+
+    /**
+     * Stores the messages, but the ones of the throttled scope which are always throttled.
+     */
+    public static class FakeDataStorageMessageProcessor {
+
+        private final List<String> storedMessages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch stored;
+
+        public FakeDataStorageMessageProcessor(int expected) {
+            stored = new CountDownLatch(expected);
+        }
+
+        public void processMessage(Exchange exchange) throws ScopeThrottledException {
+            if (THROTTLED_SCOPE.equals(exchange.getIn().getHeader("scope"))) {
+                throw new ScopeThrottledException(KapuaId.ONE, "rate limit exceeded");
+            }
+            storedMessages.add(exchange.getIn().getBody(String.class));
+            stored.countDown();
+        }
+
+        public void processMessageBatched(Exchange exchange) throws ScopeThrottledException {
+            processMessage(exchange);
+        }
+
+        public void awaitMessageBatched(Exchange exchange) {
+        }
+    }
+
+    public static class FakeErrorMessageListener {
+
+        private final List<Exchange> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch received;
+
+        public FakeErrorMessageListener(int expected) {
+            received = new CountDownLatch(expected);
+        }
+
+        public void processMessage(Exchange exchange) {
+            messages.add(exchange);
+            received.countDown();
+        }
+    }
+
+    public static class FakeKapuaCamelFilter {
+
+        public void bindSession(Exchange exchange) {
+        }
+
+        public void unbindSession(Exchange exchange) {
+        }
+    }
+
+    public static class FakeKapuaDataConverter {
+
+        public void convertToData(Exchange exchange) {
+        }
+    }
+
+    /**
+     * Keeps track of the error as the FailureProcessor does.
+     */
+    public static class FailureHeaders implements Processor {
+
+        @Override
+        public void process(Exchange exchange) {
+            Exception exception = exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Exception.class);
+            if (exception != null) {
+                exchange.getIn().setHeader(MessageConstants.HEADER_KAPUA_PROCESSING_ERROR_CLASS, exception.getClass().getName());
+            }
+        }
+    }
+}
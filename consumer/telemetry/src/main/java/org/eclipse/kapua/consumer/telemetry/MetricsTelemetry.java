@@ -15,25 +15,93 @@ package org.eclipse.kapua.consumer.telemetry;
 import com.codahale.metrics.Counter;
 import org.eclipse.kapua.commons.metric.MetricsLabel;
 import org.eclipse.kapua.commons.metric.MetricsService;
+import org.eclipse.kapua.model.id.KapuaId;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 public class MetricsTelemetry {
 
     public static final String CONSUMER_TELEMETRY = "consumer_telemetry";
     private static final String CONVERTER = "converter";
+    private static final String SPOOL = "spool";
+    private static final String SCHEDULER = "scheduler";
+    private static final String THROTTLED = "throttled";
+    private static final String DELAYED = "delayed";
+
+    private final MetricsService metricsService;
 
     private Counter converterDataMessage;
+    private Counter spoolAppended;
+    private Counter spoolDrained;
+    private Counter spoolRetried;
+    private Counter spoolDropped;
+    private Counter spoolFull;
+    private Counter schedulerQueued;
+    private Counter schedulerDelayed;
+    private Counter schedulerThrottled;
+    private final Map<KapuaId, Counter> schedulerScopeDelayed = new ConcurrentHashMap<>();
+    private final Map<KapuaId, Counter> schedulerScopeThrottled = new ConcurrentHashMap<>();
 
     @Inject
     public MetricsTelemetry(MetricsService metricsService) {
+        this.metricsService = metricsService;
         converterDataMessage = metricsService.getCounter(CONSUMER_TELEMETRY, CONVERTER, MetricsLabel.MESSAGE_DATA);
+        spoolAppended = metricsService.getCounter(CONSUMER_TELEMETRY, SPOOL, "appended");
+        spoolDrained = metricsService.getCounter(CONSUMER_TELEMETRY, SPOOL, "drained");
+        spoolRetried = metricsService.getCounter(CONSUMER_TELEMETRY, SPOOL, "retried");
+        spoolDropped = metricsService.getCounter(CONSUMER_TELEMETRY, SPOOL, "dropped");
+        spoolFull = metricsService.getCounter(CONSUMER_TELEMETRY, SPOOL, "full");
+        schedulerQueued = metricsService.getCounter(CONSUMER_TELEMETRY, SCHEDULER, "queued");
+        schedulerDelayed = metricsService.getCounter(CONSUMER_TELEMETRY, SCHEDULER, DELAYED);
+        schedulerThrottled = metricsService.getCounter(CONSUMER_TELEMETRY, SCHEDULER, THROTTLED);
     }
 
     public Counter getConverterDataMessage() {
         return converterDataMessage;
     }
 
-}
\ No newline at end of file
+    public Counter getSpoolAppended() {
+        return spoolAppended;
+    }
+
+    public Counter getSpoolDrained() {
+        return spoolDrained;
+    }
+
+    public Counter getSpoolRetried() {
+        return spoolRetried;
+    }
+
+    public Counter getSpoolDropped() {
+        return spoolDropped;
+    }
+
+    public Counter getSpoolFull() {
+        return spoolFull;
+    }
+
+    public Counter getSchedulerQueued() {
+        return schedulerQueued;
+    }
+
+    public Counter getSchedulerDelayed() {
+        return schedulerDelayed;
+    }
+
+    public Counter getSchedulerThrottled() {
+        return schedulerThrottled;
+    }
+
+    public Counter getSchedulerDelayed(KapuaId scopeId) {
+        return schedulerScopeDelayed.computeIfAbsent(scopeId, id -> metricsService.getCounter(CONSUMER_TELEMETRY, SCHEDULER, DELAYED, id.toCompactId()));
+    }
+
+    public Counter getSchedulerThrottled(KapuaId scopeId) {
+        return schedulerScopeThrottled.computeIfAbsent(scopeId, id -> metricsService.getCounter(CONSUMER_TELEMETRY, SCHEDULER, THROTTLED, id.toCompactId()));
+    }
+
+}
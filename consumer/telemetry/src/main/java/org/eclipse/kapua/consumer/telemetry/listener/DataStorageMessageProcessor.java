@@ -13,13 +13,23 @@
  *******************************************************************************/
 package org.eclipse.kapua.consumer.telemetry.listener;
 
+import org.apache.camel.Exchange;
 import org.apache.camel.spi.UriEndpoint;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.consumer.telemetry.MetricsTelemetry;
+import org.eclipse.kapua.consumer.telemetry.scheduler.ScopeFairScheduler;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySetting;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySettingKey;
+import org.eclipse.kapua.consumer.telemetry.spool.SpooledMessageCodec;
+import org.eclipse.kapua.consumer.telemetry.spool.TelemetrySpool;
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.message.KapuaMessageFactory;
 import org.eclipse.kapua.message.device.data.KapuaDataMessage;
+import org.eclipse.kapua.message.device.data.KapuaDataMessageFactory;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.camel.message.CamelKapuaMessage;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.internal.ConfigurationProvider;
 import org.eclipse.kapua.service.datastore.internal.MetricsDatastore;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreCommunicationException;
 import org.eclipse.kapua.service.device.management.asset.store.DeviceAssetStoreService;
@@ -27,6 +37,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Data storage message listener
@@ -38,23 +51,125 @@ public class DataStorageMessageProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(DataStorageMessageProcessor.class);
 
+    private static final String PROPERTY_STORE_FUTURE = "KAPUA_STORE_FUTURE";
+
     private final MessageStoreService messageStoreService = KapuaLocator.getInstance().getService(MessageStoreService.class);
 
     private final DeviceAssetStoreService deviceAssetStoreService = KapuaLocator.getInstance().getService(DeviceAssetStoreService.class);
 
     private MetricsDatastore metrics;
 
+    private final TelemetrySpool telemetrySpool;
+
+    private final ScopeFairScheduler scopeFairScheduler;
+
     @Inject
-    public DataStorageMessageProcessor(MetricsDatastore metricsDatastore) {
+    public DataStorageMessageProcessor(MetricsDatastore metricsDatastore, MetricsTelemetry metricsTelemetry, TelemetrySetting telemetrySetting) {
         metrics = metricsDatastore;
+        telemetrySpool = telemetrySetting.getBoolean(TelemetrySettingKey.SPOOL_ENABLED, false) ?
+                new TelemetrySpool(telemetrySetting, metricsTelemetry,
+                        new SpooledMessageCodec(KapuaLocator.getInstance().getFactory(KapuaDataMessageFactory.class), KapuaLocator.getInstance().getFactory(KapuaMessageFactory.class)),
+                        this::storeSpooledMessage) :
+                null;
+        scopeFairScheduler = telemetrySetting.getBoolean(TelemetrySettingKey.SCHEDULER_ENABLED, false) ?
+                new ScopeFairScheduler(telemetrySetting, metricsTelemetry, KapuaLocator.getInstance().getComponent(ConfigurationProvider.class)) :
+                null;
+    }
+
+    /**
+     * Starts draining the {@link TelemetrySpool}, if enabled.
+     *
+     * @throws IOException if the {@link TelemetrySpool} cannot be opened.
+     * @since 2.1.0
+     */
+    public void start() throws IOException {
+        if (telemetrySpool != null) {
+            telemetrySpool.start();
+        }
+    }
+
+    /**
+     * Stops draining the {@link TelemetrySpool}, if enabled.
+     *
+     * @since 2.1.0
+     */
+    public void stop() {
+        if (telemetrySpool != null) {
+            telemetrySpool.stop();
+        }
     }
 
     /**
      * Process a data message.
+     * <p>
+     * If the {@link ScopeFairScheduler} is enabled the message waits for the turn of its scope.
+     * If the {@link TelemetrySpool} is enabled the message is spooled and stored asynchronously.
      *
      * @throws KapuaException
      */
     public void processMessage(CamelKapuaMessage<?> message) throws KapuaException {
+        ScopeFairScheduler.Permit permit = scopeFairScheduler != null ? scopeFairScheduler.acquire(message.getMessage().getScopeId()) : null;
+        try {
+            if (telemetrySpool != null) {
+                telemetrySpool.offer(message);
+            } else {
+                storeMessage(message);
+            }
+        } finally {
+            if (permit != null) {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * Process a data message storing it together with the other data messages of the same scope through the datastore bulk requests.
+     * <p>
+     * The message is only enqueued: the outcome of the store is returned by {@link #awaitMessageBatched(Exchange)},
+     * so the Kapua session can be unbound before waiting for the batch to be stored.
+     * If the {@link ScopeFairScheduler} is enabled the message waits for the turn of its scope, which is held until the message is handed to the bulk writer.
+     * If the {@link TelemetrySpool} is enabled the message is spooled and stored asynchronously.
+     *
+     * @param message  The data message.
+     * @param exchange The {@link Exchange} of the data message.
+     * @throws KapuaException
+     * @since 2.1.0
+     */
+    public void processMessageBatched(CamelKapuaMessage<?> message, Exchange exchange) throws KapuaException {
+        if (telemetrySpool != null) {
+            processMessage(message);
+            return;
+        }
+
+        ScopeFairScheduler.Permit permit = scopeFairScheduler != null ? scopeFairScheduler.acquire(message.getMessage().getScopeId()) : null;
+        CompletableFuture<?> storeFuture;
+        try {
+            LOG.debug("Received data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
+            storeFuture = messageStoreService.storeBatched(message.getMessage(), message.getDatastoreId());
+        } finally {
+            // The bulk writer bounds its own pending messages: holding the turn until the batch is stored would admit one message per batch
+            if (permit != null) {
+                permit.release();
+            }
+        }
+        exchange.setProperty(PROPERTY_STORE_FUTURE, storeFuture);
+
+        storeAssetValues(message);
+    }
+
+    /**
+     * Waits for the data message enqueued by {@link #processMessageBatched(CamelKapuaMessage, Exchange)} to be stored.
+     *
+     * @param exchange The {@link Exchange} of the data message.
+     * @return The {@link CompletableFuture} completed once the data message has been stored.
+     * @since 2.1.0
+     */
+    public CompletableFuture<?> awaitMessageBatched(Exchange exchange) {
+        CompletableFuture<?> storeFuture = exchange.getProperty(PROPERTY_STORE_FUTURE, CompletableFuture.class);
+        return storeFuture != null ? storeFuture : CompletableFuture.completedFuture(null);
+    }
+
+    private void storeMessage(CamelKapuaMessage<?> message) throws KapuaException {
         // data messages
         LOG.debug("Received data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
         try {
@@ -64,6 +179,21 @@ public class DataStorageMessageProcessor {
             throw e;
         }
 
+        storeAssetValues(message);
+    }
+
+    private CompletableFuture<?> storeSpooledMessage(CamelKapuaMessage<?> message) throws KapuaException {
+        LOG.debug("Draining spooled data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
+        if (message.getDatastoreId() == null) {
+            message.setDatastoreId(UUID.randomUUID().toString());
+        }
+        CompletableFuture<?> storeFuture = messageStoreService.storeBatched(message.getMessage(), message.getDatastoreId());
+
+        storeAssetValues(message);
+        return storeFuture;
+    }
+
+    private void storeAssetValues(CamelKapuaMessage<?> message) throws KapuaException {
         // Update asset values in AssetStoreService
         if (message.getMessage().getChannel().toString().startsWith("W1/A1")) {
             KapuaId scopeId = message.getMessage().getScopeId();
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.scheduler;
+
+import org.eclipse.kapua.KapuaErrorCodes;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.consumer.telemetry.MetricsTelemetry;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySetting;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySettingKey;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.ConfigurationProvider;
+import org.eclipse.kapua.service.datastore.internal.mediator.ConfigurationException;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageStoreConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control of the data messages to be stored, shared fairly across the scopes.
+ * <p>
+ * At most {@link TelemetrySettingKey#SCHEDULER_CONCURRENCY} data messages are stored at the same time.
+ * When more are waiting, they are admitted in weighted fair queueing order: each scope gets a share of the storage capacity
+ * proportional to its {@link MessageStoreConfiguration#getFairShareWeight()}, whatever the arrival order of the messages.
+ * Each scope is also rate limited by a token bucket of {@link MessageStoreConfiguration#getRateLimit()} messages per second.
+ * <p>
+ * Since the waiting messages hold a consumer thread, at most {@link TelemetrySettingKey#SCHEDULER_MAX_QUEUED_PER_SCOPE} messages of the same scope
+ * can wait and no message waits more than {@link TelemetrySettingKey#SCHEDULER_MAX_WAIT}: further messages are rejected,
+ * so that a single scope cannot take all the consumer threads.
+ * Rejected messages fail with a {@link ScopeThrottledException}, which the telemetry routes send to a delayed retry queue instead of the dead letter queue.
+ * Only the messages of a scope with a {@link MessageStoreConfiguration#DISABLED} rate limit are rejected as errors, since they would never be admitted.
+ *
+ * @since 2.1.0
+ */
+public class ScopeFairScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScopeFairScheduler.class);
+
+    private final ConfigurationProvider configurationProvider;
+    private final MetricsTelemetry metrics;
+    private final int concurrency;
+    private final int maxQueuedPerScope;
+    private final long maxWaitNanos;
+    private final double burstSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // All the following fields are guarded by the lock
+    private final Map<KapuaId, ScopeState> scopes = new HashMap<>();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private int running;
+    private double virtualTime;
+    private long sequence;
+
+    /**
+     * Constructor.
+     *
+     * @param telemetrySetting      The {@link TelemetrySetting}.
+     * @param metrics               The {@link MetricsTelemetry}.
+     * @param configurationProvider The {@link ConfigurationProvider} of the scope rate limits and weights.
+     * @since 2.1.0
+     */
+    public ScopeFairScheduler(TelemetrySetting telemetrySetting, MetricsTelemetry metrics, ConfigurationProvider configurationProvider) {
+        this(metrics,
+                configurationProvider,
+                telemetrySetting.getInt(TelemetrySettingKey.SCHEDULER_CONCURRENCY, 3),
+                telemetrySetting.getInt(TelemetrySettingKey.SCHEDULER_MAX_QUEUED_PER_SCOPE, 4),
+                telemetrySetting.getLong(TelemetrySettingKey.SCHEDULER_MAX_WAIT, 5000L),
+                telemetrySetting.getDouble(TelemetrySettingKey.SCHEDULER_BURST_SECONDS, 2d));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param metrics               The {@link MetricsTelemetry}.
+     * @param configurationProvider The {@link ConfigurationProvider} of the scope rate limits and weights.
+     * @param concurrency           The maximum number of data messages being stored at the same time.
+     * @param maxQueuedPerScope     The maximum number of data messages of the same scope waiting for their turn.
+     * @param maxWaitMillis         The maximum time (in milliseconds) a data message waits for its turn.
+     * @param burstSeconds          The seconds of rate limit a scope can accumulate to absorb bursts.
+     * @since 2.1.0
+     */
+    public ScopeFairScheduler(MetricsTelemetry metrics, ConfigurationProvider configurationProvider, int concurrency, int maxQueuedPerScope, long maxWaitMillis, double burstSeconds) {
+        this.configurationProvider = configurationProvider;
+        this.metrics = metrics;
+        this.concurrency = Math.max(concurrency, 1);
+        this.maxQueuedPerScope = Math.max(maxQueuedPerScope, 1);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.burstSeconds = Math.max(burstSeconds, 0d);
+    }
+
+    /**
+     * Waits for the turn of a data message of the given scope to be stored.
+     * <p>
+     * The returned {@link Permit} must be released once the data message has been stored (or has failed),
+     * or once it has been handed to the datastore bulk writer.
+     *
+     * @param scopeId The scope {@link KapuaId} of the data message.
+     * @return The {@link Permit} to store the data message.
+     * @throws ScopeThrottledException if the data message cannot be admitted now, because of the scope rate limit or of the scope share being exhausted.
+     * @throws KapuaException          if the data message is rejected, because the scope rate limit is {@link MessageStoreConfiguration#DISABLED}.
+     * @since 2.1.0
+     */
+    public Permit acquire(KapuaId scopeId) throws KapuaException {
+        final long deadline = System.nanoTime() + maxWaitNanos;
+        final MessageStoreConfiguration configuration = getConfiguration(scopeId);
+
+        final ScopeState scope;
+        final long tokenWaitNanos;
+        lock.lock();
+        try {
+            scope = scopes.computeIfAbsent(scopeId, ScopeState::new);
+            scope.configure(configuration);
+            if (scope.waiting >= maxQueuedPerScope) {
+                throw throttled(scope, "too many messages waiting");
+            }
+            if (scope.rateLimit == MessageStoreConfiguration.DISABLED) {
+                throw new KapuaException(KapuaErrorCodes.SERVICE_DISABLED, String.format("storage of the messages of scope %s", scopeId));
+            }
+            tokenWaitNanos = scope.reserveToken(System.nanoTime(), maxWaitNanos);
+            if (tokenWaitNanos < 0) {
+                throw throttled(scope, String.format("rate limit of %s messages/s exceeded", scope.rateLimit));
+            }
+            scope.waiting++;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            if (tokenWaitNanos > 0) {
+                metrics.getSchedulerDelayed().inc();
+                metrics.getSchedulerDelayed(scopeId).inc();
+                TimeUnit.NANOSECONDS.sleep(tokenWaitNanos);
+            }
+            return awaitTurn(scope, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KapuaException.internalError(e, "Interrupted while waiting to store the message");
+        } finally {
+            lock.lock();
+            try {
+                scope.waiting--;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Permit awaitTurn(ScopeState scope, long deadline) throws KapuaException, InterruptedException {
+        lock.lock();
+        try {
+            if (running < concurrency && waiters.isEmpty()) {
+                running++;
+                return new Permit();
+            }
+
+            // Weighted fair queueing: the message is tagged with the virtual time at which it would finish if the scope had its share only
+            double startTag = Math.max(virtualTime, scope.lastFinishTag);
+            scope.lastFinishTag = startTag + 1d / scope.weight;
+            Waiter waiter = new Waiter(startTag, scope.lastFinishTag, sequence++, lock.newCondition());
+            waiters.add(waiter);
+            metrics.getSchedulerQueued().inc();
+
+            try {
+                while (!waiter.granted) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        waiters.remove(waiter);
+                        throw throttled(scope, "storage share exhausted");
+                    }
+                    waiter.condition.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // The turn was already given: pass it to the next one
+                    releaseLocked();
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw e;
+            }
+            return new Permit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked() {
+        running--;
+        Waiter next = waiters.poll();
+        if (next != null) {
+            virtualTime = next.startTag;
+            running++;
+            next.granted = true;
+            next.condition.signal();
+        }
+    }
+
+    private ScopeThrottledException throttled(ScopeState scope, String reason) {
+        metrics.getSchedulerThrottled().inc();
+        metrics.getSchedulerThrottled(scope.scopeId).inc();
+        return new ScopeThrottledException(scope.scopeId, reason);
+    }
+
+    private MessageStoreConfiguration getConfiguration(KapuaId scopeId) {
+        try {
+            return configurationProvider.getConfiguration(scopeId);
+        } catch (ConfigurationException e) {
+            LOG.debug("Cannot get the configuration of scope {}, scheduling without limits: {}", scopeId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The turn to store a data message, given by {@link #acquire(KapuaId)}.
+     *
+     * @since 2.1.0
+     */
+    public class Permit {
+
+        private boolean released;
+
+        private Permit() {
+        }
+
+        /**
+         * Releases the turn, giving it to the next waiting data message.
+         * <p>
+         * Releasing an already released {@link Permit} has no effect.
+         *
+         * @since 2.1.0
+         */
+        public void release() {
+            lock.lock();
+            try {
+                if (!released) {
+                    released = true;
+                    releaseLocked();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The scheduling state of a scope.
+     *
+     * @since 2.1.0
+     */
+    private class ScopeState {
+
+        private final KapuaId scopeId;
+        private int rateLimit = MessageStoreConfiguration.UNLIMITED;
+        private int weight = 1;
+        private double tokens;
+        private long refilledOn = System.nanoTime();
+        private double lastFinishTag;
+        private int waiting;
+
+        private ScopeState(KapuaId scopeId) {
+            this.scopeId = scopeId;
+        }
+
+        private void configure(MessageStoreConfiguration configuration) {
+            int newRateLimit = configuration != null ? configuration.getRateLimit() : MessageStoreConfiguration.UNLIMITED;
+            weight = configuration != null ? configuration.getFairShareWeight() : 1;
+            if (newRateLimit != rateLimit) {
+                rateLimit = newRateLimit;
+                tokens = getCapacity();
+                refilledOn = System.nanoTime();
+            }
+        }
+
+        /**
+         * Takes a token from the bucket, going into debt if the bucket is empty.
+         *
+         * @return The nanoseconds to wait for the token to be available, or -1 if the token would not be available within the given time.
+         */
+        private long reserveToken(long now, long maxWaitNanos) {
+            if (rateLimit == MessageStoreConfiguration.UNLIMITED) {
+                return 0;
+            }
+
+            double tokensPerNano = rateLimit / 1e9d;
+            tokens = Math.min(getCapacity(), tokens + (now - refilledOn) * tokensPerNano);
+            refilledOn = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+
+            long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            tokens--;
+            return waitNanos;
+        }
+
+        private double getCapacity() {
+            return Math.max(rateLimit * burstSeconds, 1d);
+        }
+    }
+
+    /**
+     * A data message waiting for its turn.
+     *
+     * @since 2.1.0
+     */
+    private static class Waiter implements Comparable<Waiter> {
+
+        private final double startTag;
+        private final double finishTag;
+        private final long sequence;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(double startTag, double finishTag, long sequence, Condition condition) {
+            this.startTag = startTag;
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int compare = Double.compare(finishTag, other.finishTag);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.scheduler;
+
+import org.eclipse.kapua.KapuaErrorCodes;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.id.KapuaId;
+
+/**
+ * {@link KapuaException} thrown by the {@link ScopeFairScheduler} when a data message cannot be admitted now.
+ * <p>
+ * It is not an error of the data message: the telemetry routes send it to a delayed retry queue (see {@link ScopeThrottledRetry}) instead of sending it to the dead letter queue.
+ *
+ * @since 2.1.0
+ */
+public class ScopeThrottledException extends KapuaException {
+
+    private static final long serialVersionUID = -6517425330474712962L;
+
+    private final KapuaId scopeId;
+
+    /**
+     * Constructor.
+     *
+     * @param scopeId The scope {@link KapuaId} of the throttled data message.
+     * @param reason  The reason why the data message has been throttled.
+     * @since 2.1.0
+     */
+    public ScopeThrottledException(KapuaId scopeId, String reason) {
+        super(KapuaErrorCodes.INTERNAL_ERROR, String.format("Message of scope %s throttled: %s", scopeId, reason));
+        this.scopeId = scopeId;
+    }
+
+    /**
+     * Gets the scope {@link KapuaId} of the throttled data message.
+     *
+     * @return The scope {@link KapuaId} of the throttled data message.
+     * @since 2.1.0
+     */
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+}
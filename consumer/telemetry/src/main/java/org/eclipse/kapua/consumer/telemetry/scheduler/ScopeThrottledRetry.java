@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.scheduler;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySetting;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySettingKey;
+import org.eclipse.kapua.service.client.message.MessageConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the retries of the data messages throttled by the {@link ScopeFairScheduler}.
+ * <p>
+ * The telemetry routes do not redeliver a throttled data message in the consumer thread, since it would keep the thread
+ * (shared with the other scopes) busy while waiting: the message is sent to a retry queue with a delivery delay set on the broker,
+ * and the consumer thread goes on with the next message.
+ * The retries are counted in the {@link MessageConstants#HEADER_KAPUA_THROTTLED_COUNT} header of the message,
+ * and after {@link TelemetrySettingKey#SCHEDULER_THROTTLED_MAX_RETRIES} retries the message is sent to the dead letter queue.
+ *
+ * @since 2.1.0
+ */
+public class ScopeThrottledRetry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScopeThrottledRetry.class);
+
+    private final int maxRetries;
+
+    /**
+     * Constructor.
+     *
+     * @param telemetrySetting The {@link TelemetrySetting}.
+     * @since 2.1.0
+     */
+    public ScopeThrottledRetry(TelemetrySetting telemetrySetting) {
+        this(telemetrySetting.getInt(TelemetrySettingKey.SCHEDULER_THROTTLED_MAX_RETRIES, 20));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxRetries The maximum number of retries of a throttled data message.
+     * @since 2.1.0
+     */
+    public ScopeThrottledRetry(int maxRetries) {
+        this.maxRetries = Math.max(maxRetries, 0);
+    }
+
+    /**
+     * Counts a retry of the throttled data message of the given {@link Exchange}.
+     *
+     * @param exchange The {@link Exchange} of the throttled data message.
+     * @return {@code true} if the data message is to be sent to the retry queue, {@code false} if it has been retried too many times.
+     * @since 2.1.0
+     */
+    public boolean retry(Exchange exchange) {
+        Message message = exchange.getIn();
+        int retries = message.getHeader(MessageConstants.HEADER_KAPUA_THROTTLED_COUNT, 0, Integer.class);
+        if (retries >= maxRetries) {
+            LOG.warn("Message {} throttled {} times, sending it to the dead letter queue", exchange.getExchangeId(), retries);
+            return false;
+        }
+        message.setHeader(MessageConstants.HEADER_KAPUA_THROTTLED_COUNT, retries + 1);
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.setting;
+
+import org.eclipse.kapua.commons.setting.AbstractKapuaSetting;
+
+/**
+ * Telemetry consumer setting implementation.<br> This class handles settings for the {@link TelemetrySettingKey}.
+ *
+ * @since 2.1.0
+ */
+public final class TelemetrySetting extends AbstractKapuaSetting<TelemetrySettingKey> {
+
+    private static final String CONFIG_RESOURCE_NAME = "kapua-consumer-telemetry-setting.properties";
+
+    public TelemetrySetting() {
+        super(CONFIG_RESOURCE_NAME);
+    }
+}
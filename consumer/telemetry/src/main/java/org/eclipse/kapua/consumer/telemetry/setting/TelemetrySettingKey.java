@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.setting;
+
+import org.eclipse.kapua.commons.setting.SettingKey;
+
+/**
+ * Telemetry consumer settings
+ *
+ * @since 2.1.0
+ */
+public enum TelemetrySettingKey implements SettingKey {
+    /**
+     * Whether the data messages are spooled to the local disk before being stored to the datastore
+     */
+    SPOOL_ENABLED("telemetry.spool.enabled"),
+    /**
+     * The directory of the spool segments
+     */
+    SPOOL_DIRECTORY("telemetry.spool.directory"),
+    /**
+     * The size in bytes after which a spool segment is rolled over
+     */
+    SPOOL_SEGMENT_SIZE("telemetry.spool.segment_size"),
+    /**
+     * The maximum size in bytes of the messages spooled and not yet stored
+     */
+    SPOOL_MAX_SIZE("telemetry.spool.max_size"),
+    /**
+     * The maximum time in milliseconds a message waits for space in a full spool before failing
+     */
+    SPOOL_APPEND_TIMEOUT("telemetry.spool.append_timeout"),
+    /**
+     * Whether each spooled message is forced to the storage device before being acknowledged
+     */
+    SPOOL_SYNC("telemetry.spool.sync"),
+    /**
+     * The minimum interval in milliseconds between two writes of the spool checkpoint
+     */
+    SPOOL_CHECKPOINT_INTERVAL("telemetry.spool.checkpoint_interval"),
+    /**
+     * The initial delay in milliseconds before retrying to store a spooled message when the datastore is unavailable
+     */
+    SPOOL_RETRY_DELAY_MIN("telemetry.spool.retry_delay_min"),
+    /**
+     * The maximum delay in milliseconds before retrying to store a spooled message when the datastore is unavailable
+     */
+    SPOOL_RETRY_DELAY_MAX("telemetry.spool.retry_delay_max"),
+    /**
+     * The maximum number of spooled messages stored together before committing them
+     */
+    SPOOL_DRAIN_BATCH_SIZE("telemetry.spool.drain_batch_size"),
+    /**
+     * Whether the data messages are scheduled fairly across the scopes and rate limited per scope before being stored
+     */
+    SCHEDULER_ENABLED("telemetry.scheduler.enabled"),
+    /**
+     * The maximum number of data messages being stored at the same time
+     */
+    SCHEDULER_CONCURRENCY("telemetry.scheduler.concurrency"),
+    /**
+     * The maximum number of data messages of the same scope waiting to be stored, further messages of the scope are rejected
+     */
+    SCHEDULER_MAX_QUEUED_PER_SCOPE("telemetry.scheduler.max_queued_per_scope"),
+    /**
+     * The maximum time in milliseconds a data message waits to be stored before being rejected
+     */
+    SCHEDULER_MAX_WAIT("telemetry.scheduler.max_wait"),
+    /**
+     * The number of seconds of the scope rate limit which can be consumed in a burst
+     */
+    SCHEDULER_BURST_SECONDS("telemetry.scheduler.burst_seconds"),
+    /**
+     * The maximum number of times a throttled data message is sent back to the retry queue before being sent to the dead letter queue
+     */
+    SCHEDULER_THROTTLED_MAX_RETRIES("telemetry.scheduler.throttled_max_retries");
+
+    private String key;
+
+    private TelemetrySettingKey(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+}
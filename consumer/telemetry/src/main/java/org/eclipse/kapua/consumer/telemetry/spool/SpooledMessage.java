@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.spool;
+
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.service.camel.message.CamelKapuaMessage;
+
+/**
+ * A {@link CamelKapuaMessage} stored in the {@link TelemetrySpool} together with the {@link KapuaSession} it has been received with.
+ * <p>
+ * It is stored in the format of the {@link SpooledMessageCodec}.
+ *
+ * @since 2.1.0
+ */
+public class SpooledMessage {
+
+    private final KapuaSession session;
+    private final CamelKapuaMessage<?> message;
+
+    public SpooledMessage(KapuaSession session, CamelKapuaMessage<?> message) {
+        this.session = session;
+        this.message = message;
+    }
+
+    public KapuaSession getSession() {
+        return session;
+    }
+
+    public CamelKapuaMessage<?> getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.spool;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.commons.security.KapuaSessionCodec;
+import org.eclipse.kapua.message.KapuaMessageFactory;
+import org.eclipse.kapua.message.KapuaPosition;
+import org.eclipse.kapua.message.device.data.KapuaDataChannel;
+import org.eclipse.kapua.message.device.data.KapuaDataMessage;
+import org.eclipse.kapua.message.device.data.KapuaDataMessageFactory;
+import org.eclipse.kapua.message.device.data.KapuaDataPayload;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.camel.message.CamelKapuaMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary format of the {@link SpooledMessage}s stored in the {@link TelemetrySpool}.
+ * <p>
+ * The format is versioned and lists each field explicitly, so that the records left in the spool by a previous run can still be read
+ * after an upgrade, without depending on the Java serialization of the message classes.
+ * Only {@link KapuaDataMessage}s can be encoded.
+ *
+ * @since 2.1.0
+ */
+public class SpooledMessageCodec {
+
+    private static final byte VERSION_1 = 1;
+
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_STRING = 6;
+    private static final byte TYPE_BINARY = 7;
+    private static final byte TYPE_DATE = 8;
+
+    private final KapuaDataMessageFactory kapuaDataMessageFactory;
+    private final KapuaMessageFactory kapuaMessageFactory;
+
+    public SpooledMessageCodec(KapuaDataMessageFactory kapuaDataMessageFactory, KapuaMessageFactory kapuaMessageFactory) {
+        this.kapuaDataMessageFactory = kapuaDataMessageFactory;
+        this.kapuaMessageFactory = kapuaMessageFactory;
+    }
+
+    /**
+     * Encodes the {@link SpooledMessage}.
+     *
+     * @param spooledMessage The {@link SpooledMessage} to encode.
+     * @return The encoded {@link SpooledMessage}.
+     * @throws IllegalArgumentException if the message is not a {@link KapuaDataMessage} or has a metric of an unsupported type.
+     * @since 2.1.0
+     */
+    public byte[] encode(SpooledMessage spooledMessage) {
+        if (!(spooledMessage.getMessage().getMessage() instanceof KapuaDataMessage)) {
+            throw new IllegalArgumentException("Only data messages can be spooled: " + spooledMessage.getMessage().getMessage().getClass().getName());
+        }
+        CamelKapuaMessage<?> camelKapuaMessage = spooledMessage.getMessage();
+        KapuaDataMessage message = (KapuaDataMessage) camelKapuaMessage.getMessage();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION_1);
+            writeString(out, spooledMessage.getSession() != null ? KapuaSessionCodec.encodeSession(spooledMessage.getSession()) : null);
+            writeString(out, camelKapuaMessage.getDatastoreId());
+            writeId(out, camelKapuaMessage.getConnectionId());
+
+            out.writeBoolean(message.getId() != null);
+            if (message.getId() != null) {
+                out.writeLong(message.getId().getMostSignificantBits());
+                out.writeLong(message.getId().getLeastSignificantBits());
+            }
+            writeId(out, message.getScopeId());
+            writeId(out, message.getDeviceId());
+            writeString(out, message.getClientId());
+            writeDate(out, message.getReceivedOn());
+            writeDate(out, message.getSentOn());
+            writeDate(out, message.getCapturedOn());
+            writePosition(out, message.getPosition());
+
+            List<String> semanticParts = message.getChannel() != null ? message.getChannel().getSemanticParts() : null;
+            out.writeInt(semanticParts != null ? semanticParts.size() : -1);
+            if (semanticParts != null) {
+                for (String semanticPart : semanticParts) {
+                    writeString(out, semanticPart);
+                }
+            }
+
+            KapuaDataPayload payload = message.getPayload();
+            out.writeBoolean(payload != null);
+            if (payload != null) {
+                Map<String, Object> metrics = payload.getMetrics();
+                out.writeInt(metrics != null ? metrics.size() : 0);
+                if (metrics != null) {
+                    for (Map.Entry<String, Object> metric : metrics.entrySet()) {
+                        writeString(out, metric.getKey());
+                        writeMetric(out, metric.getKey(), metric.getValue());
+                    }
+                }
+                writeBytes(out, payload.getBody());
+            }
+        } catch (IOException e) {
+            // Not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a {@link SpooledMessage} encoded by {@link #encode(SpooledMessage)}.
+     *
+     * @param record The encoded {@link SpooledMessage}.
+     * @return The decoded {@link SpooledMessage}.
+     * @throws IOException if the record is truncated or is not a supported format.
+     * @since 2.1.0
+     */
+    public SpooledMessage decode(byte[] record) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte version = in.readByte();
+            if (version != VERSION_1) {
+                throw new IOException("Unsupported spooled message version: " + version);
+            }
+            String encodedSession = readString(in);
+            KapuaSession session = encodedSession != null ? KapuaSessionCodec.decodeSession(encodedSession) : null;
+            String datastoreId = readString(in);
+            KapuaId connectionId = readId(in);
+
+            KapuaDataMessage message = kapuaDataMessageFactory.newKapuaDataMessage();
+            if (in.readBoolean()) {
+                message.setId(new UUID(in.readLong(), in.readLong()));
+            }
+            message.setScopeId(readId(in));
+            message.setDeviceId(readId(in));
+            message.setClientId(readString(in));
+            message.setReceivedOn(readDate(in));
+            message.setSentOn(readDate(in));
+            message.setCapturedOn(readDate(in));
+            message.setPosition(readPosition(in));
+
+            int semanticPartsCount = in.readInt();
+            if (semanticPartsCount >= 0) {
+                List<String> semanticParts = new ArrayList<>(semanticPartsCount);
+                for (int i = 0; i < semanticPartsCount; i++) {
+                    semanticParts.add(readString(in));
+                }
+                KapuaDataChannel channel = kapuaDataMessageFactory.newKapuaDataChannel();
+                channel.setSemanticParts(semanticParts);
+                message.setChannel(channel);
+            }
+
+            if (in.readBoolean()) {
+                KapuaDataPayload payload = kapuaDataMessageFactory.newKapuaDataPayload();
+                int metricsCount = in.readInt();
+                Map<String, Object> metrics = new HashMap<>();
+                for (int i = 0; i < metricsCount; i++) {
+                    String name = readString(in);
+                    metrics.put(name, readMetric(in));
+                }
+                payload.setMetrics(metrics);
+                payload.setBody(readBytes(in));
+                message.setPayload(payload);
+            }
+
+            CamelKapuaMessage<KapuaDataMessage> camelKapuaMessage = new CamelKapuaMessage<>(message, connectionId, null);
+            camelKapuaMessage.setDatastoreId(datastoreId);
+            return new SpooledMessage(session, camelKapuaMessage);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid spooled message", e);
+        }
+    }
+
+    private void writePosition(DataOutputStream out, KapuaPosition position) throws IOException {
+        out.writeBoolean(position != null);
+        if (position != null) {
+            writeDouble(out, position.getLongitude());
+            writeDouble(out, position.getLatitude());
+            writeDouble(out, position.getAltitude());
+            writeDouble(out, position.getPrecision());
+            writeDouble(out, position.getHeading());
+            writeDouble(out, position.getSpeed());
+            writeDate(out, position.getTimestamp());
+            writeInteger(out, position.getSatellites());
+            writeInteger(out, position.getStatus());
+        }
+    }
+
+    private KapuaPosition readPosition(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        KapuaPosition position = kapuaMessageFactory.newPosition();
+        position.setLongitude(readDouble(in));
+        position.setLatitude(readDouble(in));
+        position.setAltitude(readDouble(in));
+        position.setPrecision(readDouble(in));
+        position.setHeading(readDouble(in));
+        position.setSpeed(readDouble(in));
+        position.setTimestamp(readDate(in));
+        position.setSatellites(readInteger(in));
+        position.setStatus(readInteger(in));
+        return position;
+    }
+
+    private void writeMetric(DataOutputStream out, String name, Object value) throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof byte[]) {
+            out.writeByte(TYPE_BINARY);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Date) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported type of metric %s: %s", name, value != null ? value.getClass().getName() : null));
+        }
+    }
+
+    private Object readMetric(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_BINARY:
+                return readBytes(in);
+            case TYPE_DATE:
+                return new Date(in.readLong());
+            default:
+                throw new IOException("Unsupported metric type: " + type);
+        }
+    }
+
+    private void writeId(DataOutputStream out, KapuaId id) throws IOException {
+        writeBytes(out, id != null ? id.getId().toByteArray() : null);
+    }
+
+    private KapuaId readId(DataInputStream in) throws IOException {
+        byte[] id = readBytes(in);
+        return id != null ? new KapuaEid(new BigInteger(id)) : null;
+    }
+
+    private void writeDate(DataOutputStream out, Date date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.getTime());
+        }
+    }
+
+    private Date readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    private void writeDouble(DataOutputStream out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private Double readDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    private void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        byte[] value = readBytes(in);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value != null ? value.length : -1);
+        if (value != null) {
+            out.write(value);
+        }
+    }
+
+    private byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new IOException("Truncated spooled message");
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+}
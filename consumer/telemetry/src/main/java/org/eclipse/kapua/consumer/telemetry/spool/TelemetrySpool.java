@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.spool;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.consumer.telemetry.MetricsTelemetry;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySetting;
+import org.eclipse.kapua.consumer.telemetry.setting.TelemetrySettingKey;
+import org.eclipse.kapua.service.camel.message.CamelKapuaMessage;
+import org.eclipse.kapua.service.camel.spool.SegmentSpool;
+import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreCommunicationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local store and forward spool of the data messages.
+ * <p>
+ * Messages are appended to a {@link SegmentSpool} on the local disk (in the format of the {@link SpooledMessageCodec}) and acknowledged to the broker
+ * as soon as they are written (and synced, if {@link TelemetrySettingKey#SPOOL_SYNC} is enabled), then a single drainer thread hands them in order,
+ * up to {@link TelemetrySettingKey#SPOOL_DRAIN_BATCH_SIZE} at a time, to the {@link SpooledMessageHandler}, which stores them through the datastore bulk requests.
+ * A batch is committed once all its messages are stored.
+ * While the datastore is unavailable the drainer retries the failed messages with an exponential backoff, so the messages keep accumulating on disk
+ * instead of in the broker; once the spool is full, {@link #offer(CamelKapuaMessage)} blocks up to {@link TelemetrySettingKey#SPOOL_APPEND_TIMEOUT}
+ * and then fails, pushing the backpressure back to the broker.
+ * <p>
+ * The spooled messages not yet stored are replayed in order after a restart.
+ * Since messages carry their datastore id, a message stored again after a crash overwrites the previous copy.
+ *
+ * @since 2.1.0
+ */
+public class TelemetrySpool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TelemetrySpool.class);
+
+    private static final long POLL_TIMEOUT = 1000L;
+
+    private final SegmentSpool segmentSpool;
+    private final SpooledMessageCodec spooledMessageCodec;
+    private final SpooledMessageHandler spooledMessageHandler;
+    private final MetricsTelemetry metrics;
+    private final long appendTimeout;
+    private final int drainBatchSize;
+    private final long retryDelayMin;
+    private final long retryDelayMax;
+
+    private Thread drainer;
+    private volatile boolean running;
+
+    public TelemetrySpool(TelemetrySetting telemetrySetting, MetricsTelemetry metricsTelemetry, SpooledMessageCodec spooledMessageCodec, SpooledMessageHandler spooledMessageHandler) {
+        this.segmentSpool = new SegmentSpool(
+                Paths.get(telemetrySetting.getString(TelemetrySettingKey.SPOOL_DIRECTORY, "spool/telemetry")),
+                telemetrySetting.getLong(TelemetrySettingKey.SPOOL_SEGMENT_SIZE, 67108864L),
+                telemetrySetting.getLong(TelemetrySettingKey.SPOOL_MAX_SIZE, 1073741824L),
+                telemetrySetting.getBoolean(TelemetrySettingKey.SPOOL_SYNC, true),
+                telemetrySetting.getLong(TelemetrySettingKey.SPOOL_CHECKPOINT_INTERVAL, 1000L));
+        this.spooledMessageCodec = spooledMessageCodec;
+        this.spooledMessageHandler = spooledMessageHandler;
+        this.metrics = metricsTelemetry;
+        this.appendTimeout = telemetrySetting.getLong(TelemetrySettingKey.SPOOL_APPEND_TIMEOUT, 30000L);
+        this.drainBatchSize = Math.max(telemetrySetting.getInt(TelemetrySettingKey.SPOOL_DRAIN_BATCH_SIZE, 500), 1);
+        this.retryDelayMin = telemetrySetting.getLong(TelemetrySettingKey.SPOOL_RETRY_DELAY_MIN, 500L);
+        this.retryDelayMax = telemetrySetting.getLong(TelemetrySettingKey.SPOOL_RETRY_DELAY_MAX, 30000L);
+    }
+
+    /**
+     * Opens the spool and starts draining it, beginning with the messages left by the previous run.
+     *
+     * @throws IOException if the spool cannot be opened.
+     * @since 2.1.0
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        segmentSpool.open();
+        running = true;
+        drainer = new Thread(this::drain, "telemetry-spool-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Stops draining and closes the spool. The messages not yet stored are kept for the next run.
+     *
+     * @since 2.1.0
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drainer.interrupt();
+        try {
+            drainer.join(POLL_TIMEOUT * 5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segmentSpool.close();
+        } catch (IOException e) {
+            LOG.warn("Error while closing the telemetry spool", e);
+        }
+    }
+
+    /**
+     * Appends a message to the spool, bound to the current {@link org.eclipse.kapua.commons.security.KapuaSession}.
+     *
+     * @param message The {@link CamelKapuaMessage} to store.
+     * @throws KapuaException if the message cannot be spooled, or the spool is still full after {@link TelemetrySettingKey#SPOOL_APPEND_TIMEOUT} or cannot be written.
+     * @since 2.1.0
+     */
+    public void offer(CamelKapuaMessage<?> message) throws KapuaException {
+        final byte[] record;
+        try {
+            record = spooledMessageCodec.encode(new SpooledMessage(KapuaSecurityUtils.getSession(), message));
+        } catch (IllegalArgumentException e) {
+            throw KapuaException.internalError(e, "Cannot spool the message");
+        }
+        try {
+            if (!segmentSpool.append(record, appendTimeout, TimeUnit.MILLISECONDS)) {
+                metrics.getSpoolFull().inc();
+                throw KapuaException.internalError(String.format("Telemetry spool full: %s bytes pending", segmentSpool.getPendingSize()));
+            }
+            metrics.getSpoolAppended().inc();
+        } catch (IOException e) {
+            throw KapuaException.internalError(e, "Cannot write to the telemetry spool");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KapuaException.internalError(e, "Interrupted while writing to the telemetry spool");
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                List<SegmentSpool.Entry> entries = new ArrayList<>();
+                SegmentSpool.Entry entry = segmentSpool.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                while (entry != null) {
+                    entries.add(entry);
+                    entry = entries.size() < drainBatchSize ? segmentSpool.poll(0, TimeUnit.MILLISECONDS) : null;
+                }
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                storeWithRetry(entries);
+                segmentSpool.commit(entries.get(entries.size() - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (running) {
+                    LOG.error("Error while draining the telemetry spool", e);
+                    sleepQuietly(retryDelayMax);
+                }
+            }
+        }
+    }
+
+    private void storeWithRetry(List<SegmentSpool.Entry> entries) throws InterruptedException {
+        List<SpooledMessage> spooledMessages = new ArrayList<>(entries.size());
+        for (SegmentSpool.Entry entry : entries) {
+            try {
+                spooledMessages.add(spooledMessageCodec.decode(entry.getPayload()));
+            } catch (IOException e) {
+                metrics.getSpoolDropped().inc();
+                LOG.error("Dropping unreadable spooled message", e);
+            }
+        }
+
+        long retryDelay = retryDelayMin;
+        while (running) {
+            spooledMessages = store(spooledMessages);
+            if (spooledMessages.isEmpty()) {
+                return;
+            }
+            // The datastore is unavailable: retry the failed messages (they overwrite any copy already stored)
+            metrics.getSpoolRetried().inc(spooledMessages.size());
+            LOG.warn("Datastore unavailable, retrying {} spooled messages in {} ms", spooledMessages.size(), retryDelay);
+            Thread.sleep(retryDelay);
+            retryDelay = Math.min(retryDelay * 2, retryDelayMax);
+        }
+        // Stopped while retrying: the messages are left in the spool for the next run
+        throw new InterruptedException();
+    }
+
+    /**
+     * Hands the messages to the {@link SpooledMessageHandler} and waits for them to be stored.
+     *
+     * @param spooledMessages The {@link SpooledMessage}s to store.
+     * @return The {@link SpooledMessage}s not stored because the datastore is unavailable.
+     */
+    private List<SpooledMessage> store(List<SpooledMessage> spooledMessages) throws InterruptedException {
+        List<CompletableFuture<?>> storeFutures = new ArrayList<>(spooledMessages.size());
+        for (SpooledMessage spooledMessage : spooledMessages) {
+            KapuaSecurityUtils.setSession(spooledMessage.getSession());
+            try {
+                storeFutures.add(spooledMessageHandler.handle(spooledMessage.getMessage()));
+            } catch (Exception e) {
+                CompletableFuture<?> failedFuture = new CompletableFuture<>();
+                failedFuture.completeExceptionally(e);
+                storeFutures.add(failedFuture);
+            } finally {
+                KapuaSecurityUtils.clearSession();
+            }
+        }
+
+        List<SpooledMessage> toRetry = new ArrayList<>();
+        for (int i = 0; i < spooledMessages.size(); i++) {
+            SpooledMessage spooledMessage = spooledMessages.get(i);
+            try {
+                storeFutures.get(i).get();
+                metrics.getSpoolDrained().inc();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+                if (cause instanceof DatastoreCommunicationException) {
+                    toRetry.add(spooledMessage);
+                } else {
+                    metrics.getSpoolDropped().inc();
+                    LOG.error("Dropping spooled message of client {} on channel {}",
+                            spooledMessage.getMessage().getMessage().getClientId(),
+                            spooledMessage.getMessage().getMessage().getChannel(), cause);
+                }
+            }
+        }
+        return toRetry;
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stores a message drained from the {@link TelemetrySpool}.
+     *
+     * @since 2.1.0
+     */
+    @FunctionalInterface
+    public interface SpooledMessageHandler {
+
+        /**
+         * Starts storing a message drained from the {@link TelemetrySpool}.
+         *
+         * @param message The {@link CamelKapuaMessage} to store.
+         * @return The {@link CompletableFuture} completed once the message has been stored.
+         * @throws KapuaException if the message cannot be stored.
+         * @since 2.1.0
+         */
+        CompletableFuture<?> handle(CamelKapuaMessage<?> message) throws KapuaException;
+    }
+}
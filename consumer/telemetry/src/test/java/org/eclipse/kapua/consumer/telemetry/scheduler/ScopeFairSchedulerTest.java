@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.consumer.telemetry.scheduler;
+
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.metric.MetricsServiceImpl;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.consumer.telemetry.MetricsTelemetry;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.datastore.internal.ConfigurationProvider;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageStoreConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+@Category(JUnitTests.class)
+public class ScopeFairSchedulerTest {
+
+    private static final KapuaId SCOPE_A = new KapuaEid(BigInteger.valueOf(10));
+    private static final KapuaId SCOPE_B = new KapuaEid(BigInteger.valueOf(11));
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private MetricsTelemetry metrics;
+    private ConfigurationProvider configurationProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new MetricsTelemetry(new MetricsServiceImpl(new MetricRegistry()));
+        configurationProvider = Mockito.mock(ConfigurationProvider.class);
+        Mockito.when(configurationProvider.getConfiguration(Matchers.any(KapuaId.class))).thenReturn(configuration(MessageStoreConfiguration.UNLIMITED, 1));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    @Test
+    public void admitsUpToConcurrency() throws Exception {
+        ScopeFairScheduler scheduler = new ScopeFairScheduler(metrics, configurationProvider, 2, 10, 10000, 2);
+        ScopeFairScheduler.Permit first = scheduler.acquire(SCOPE_A);
+        scheduler.acquire(SCOPE_B);
+
+        List<String> granted = new CopyOnWriteArrayList<>();
+        Thread waiting = acquireInThread(scheduler, SCOPE_A, "waiting", granted);
+        awaitQueued(1);
+        Assert.assertTrue(granted.isEmpty());
+
+        first.release();
+        // Releasing twice does not give away a further turn
+        first.release();
+        waiting.join(TimeUnit.SECONDS.toMillis(10));
+
+        Assert.assertEquals(Arrays.asList("waiting"), granted);
+    }
+
+    @Test
+    public void admitsInWeightedFairOrder() throws Exception {
+        Mockito.when(configurationProvider.getConfiguration(SCOPE_B)).thenReturn(configuration(MessageStoreConfiguration.UNLIMITED, 3));
+        ScopeFairScheduler scheduler = new ScopeFairScheduler(metrics, configurationProvider, 1, 10, 10000, 2);
+        ScopeFairScheduler.Permit running = scheduler.acquire(SCOPE_A);
+
+        List<String> granted = new CopyOnWriteArrayList<>();
+        int queued = 0;
+        for (String name : Arrays.asList("A1", "A2", "B1", "B2", "B3")) {
+            acquireInThread(scheduler, name.startsWith("A") ? SCOPE_A : SCOPE_B, name, granted);
+            awaitQueued(++queued);
+        }
+
+        running.release();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        // Scope B has three times the share of scope A, although its messages arrived later
+        Assert.assertEquals(Arrays.asList("B1", "B2", "A1", "B3", "A2"), granted);
+    }
+
+    @Test
+    public void tooManyWaitingIsThrottled() throws Exception {
+        ScopeFairScheduler scheduler = new ScopeFairScheduler(metrics, configurationProvider, 1, 1, 10000, 2);
+        ScopeFairScheduler.Permit running = scheduler.acquire(SCOPE_A);
+        List<String> granted = new CopyOnWriteArrayList<>();
+        acquireInThread(scheduler, SCOPE_A, "A1", granted);
+        awaitQueued(1);
+
+        try {
+            scheduler.acquire(SCOPE_A);
+            Assert.fail("The message should be throttled");
+        } catch (ScopeThrottledException e) {
+            Assert.assertEquals(SCOPE_A, e.getScopeId());
+        }
+        Assert.assertEquals(1, metrics.getSchedulerThrottled().getCount());
+        Assert.assertEquals(1, metrics.getSchedulerThrottled(SCOPE_A).getCount());
+
+        // Other scopes can still wait for their turn
+        acquireInThread(scheduler, SCOPE_B, "B1", granted);
+        awaitQueued(2);
+        running.release();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        Assert.assertEquals(Arrays.asList("A1", "B1"), granted);
+    }
+
+    @Test
+    public void waitingTooLongIsThrottled() throws Exception {
+        ScopeFairScheduler scheduler = new ScopeFairScheduler(metrics, configurationProvider, 1, 10, 50, 2);
+        scheduler.acquire(SCOPE_A);
+
+        try {
+            scheduler.acquire(SCOPE_B);
+            Assert.fail("The message should be throttled");
+        } catch (ScopeThrottledException e) {
+            Assert.assertEquals(SCOPE_B, e.getScopeId());
+        }
+    }
+
+    @Test
+    public void rateLimitDelaysAndThrottles() throws Exception {
+        Mockito.when(configurationProvider.getConfiguration(SCOPE_A)).thenReturn(configuration(20, 1));
+        ScopeFairScheduler scheduler = new ScopeFairScheduler(metrics, configurationProvider, 10, 10, 60, 0);
+
+        scheduler.acquire(SCOPE_A).release();
+        Assert.assertEquals(0, metrics.getSchedulerDelayed().getCount());
+
+        // 20 messages/s: the next token is available in 50 ms
+        long start = System.nanoTime();
+        scheduler.acquire(SCOPE_A).release();
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        Assert.assertEquals(1, metrics.getSchedulerDelayed(SCOPE_A).getCount());
+
+        // 1 message/s: the next token would take longer than the maximum wait
+        Mockito.when(configurationProvider.getConfiguration(SCOPE_B)).thenReturn(configuration(1, 1));
+        scheduler.acquire(SCOPE_B).release();
+        try {
+            scheduler.acquire(SCOPE_B);
+            Assert.fail("The message should be throttled");
+        } catch (ScopeThrottledException e) {
+            Assert.assertEquals(SCOPE_B, e.getScopeId());
+        }
+    }
+
+    @Test
+    public void disabledRateLimitIsNotThrottled() throws Exception {
+        Mockito.when(configurationProvider.getConfiguration(SCOPE_A)).thenReturn(configuration(MessageStoreConfiguration.DISABLED, 1));
+        ScopeFairScheduler scheduler = new ScopeFairScheduler(metrics, configurationProvider, 1, 10, 10000, 2);
+
+        try {
+            scheduler.acquire(SCOPE_A);
+            Assert.fail("The message should be rejected");
+        } catch (ScopeThrottledException e) {
+            Assert.fail("The message should not be throttled, since it would never be admitted");
+        } catch (KapuaException e) {
+            // Expected
+        }
+        Assert.assertEquals(0, metrics.getSchedulerThrottled().getCount());
+
+        // The rejected message does not hold a turn
+        scheduler.acquire(SCOPE_B);
+    }
+
+    private Thread acquireInThread(ScopeFairScheduler scheduler, KapuaId scopeId, String name, List<String> granted) {
+        Thread thread = new Thread(() -> {
+            try {
+                ScopeFairScheduler.Permit permit = scheduler.acquire(scopeId);
+                granted.add(name);
+                permit.release();
+            } catch (KapuaException e) {
+                granted.add(name + " rejected");
+            }
+        });
+        threads.add(thread);
+        thread.start();
+        return thread;
+    }
+
+    private void awaitQueued(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (metrics.getSchedulerQueued().getCount() < count) {
+            Assert.assertTrue("Message not queued in time", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private MessageStoreConfiguration configuration(int rateLimit, int fairShareWeight) {
+        MessageStoreConfiguration configuration = new MessageStoreConfiguration(new HashMap<>());
+        configuration.setRateLimit(rateLimit);
+        configuration.setFairShareWeight(fairShareWeight);
+        return configuration;
+    }
+}
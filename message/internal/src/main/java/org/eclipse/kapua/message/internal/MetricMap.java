@@ -0,0 +1,457 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.message.internal;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact {@link Map} of the metrics of a {@link org.eclipse.kapua.message.Payload}.
+ * <p>
+ * Numeric and boolean values are kept in primitive form and boxed only when read through the {@link Map} interface (and then cached),
+ * while metric names are interned so that the same name is shared by all the messages.
+ * Metrics can also be read by position, with their primitive type, through {@link #getName(int)}, {@link #getType(int)} and the typed getters.
+ * <p>
+ * Insertion order is preserved and {@code null} values are not allowed.
+ * This class is not thread-safe.
+ *
+ * @since 2.1.0
+ */
+public class MetricMap extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 4529237011946052873L;
+
+    public static final byte TYPE_DOUBLE = 0;
+    public static final byte TYPE_FLOAT = 1;
+    public static final byte TYPE_LONG = 2;
+    public static final byte TYPE_INTEGER = 3;
+    public static final byte TYPE_BOOLEAN = 4;
+    public static final byte TYPE_OBJECT = 5;
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int INDEX_THRESHOLD = 16;
+    private static final int INTERNED_NAMES_MAX = 100000;
+
+    private static final Map<String, String> INTERNED_NAMES = new ConcurrentHashMap<>();
+
+    private String[] names;
+    private byte[] types;
+    private long[] values;
+    private Object[] objects;
+    private int size;
+
+    // Lazily created when the number of metrics makes the linear lookup too expensive
+    private Map<String, Integer> index;
+
+    private transient EntrySet entrySet;
+
+    /**
+     * Constructor.
+     *
+     * @since 2.1.0
+     */
+    public MetricMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param initialCapacity The initial number of metrics.
+     * @since 2.1.0
+     */
+    public MetricMap(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        names = new String[capacity];
+        types = new byte[capacity];
+        values = new long[capacity];
+        objects = new Object[capacity];
+    }
+
+    /**
+     * Returns the shared instance of the given metric name.
+     *
+     * @param name The metric name.
+     * @return The shared instance of the metric name.
+     * @since 2.1.0
+     */
+    public static String internName(String name) {
+        String interned = INTERNED_NAMES.get(name);
+        if (interned != null) {
+            return interned;
+        }
+        if (INTERNED_NAMES.size() >= INTERNED_NAMES_MAX) {
+            return name;
+        }
+        interned = INTERNED_NAMES.putIfAbsent(name, name);
+        return interned != null ? interned : name;
+    }
+
+    public void putDouble(String name, double value) {
+        set(name, TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    public void putFloat(String name, float value) {
+        set(name, TYPE_FLOAT, Float.floatToRawIntBits(value), null);
+    }
+
+    public void putLong(String name, long value) {
+        set(name, TYPE_LONG, value, null);
+    }
+
+    public void putInt(String name, int value) {
+        set(name, TYPE_INTEGER, value, null);
+    }
+
+    public void putBoolean(String name, boolean value) {
+        set(name, TYPE_BOOLEAN, value ? 1 : 0, null);
+    }
+
+    /**
+     * Gets the name of the metric at the given position.
+     *
+     * @param i The position of the metric.
+     * @return The name of the metric.
+     * @since 2.1.0
+     */
+    public String getName(int i) {
+        checkIndex(i);
+        return names[i];
+    }
+
+    /**
+     * Gets the type of the metric at the given position.
+     *
+     * @param i The position of the metric.
+     * @return One of the {@code TYPE_*} constants.
+     * @since 2.1.0
+     */
+    public byte getType(int i) {
+        checkIndex(i);
+        return types[i];
+    }
+
+    /**
+     * Gets the {@link Class} of the value of the metric at the given position, without boxing it.
+     *
+     * @param i The position of the metric.
+     * @return The {@link Class} of the value.
+     * @since 2.1.0
+     */
+    public Class<?> getValueClass(int i) {
+        switch (getType(i)) {
+            case TYPE_DOUBLE:
+                return Double.class;
+            case TYPE_FLOAT:
+                return Float.class;
+            case TYPE_LONG:
+                return Long.class;
+            case TYPE_INTEGER:
+                return Integer.class;
+            case TYPE_BOOLEAN:
+                return Boolean.class;
+            default:
+                return objects[i].getClass();
+        }
+    }
+
+    public double getDouble(int i) {
+        switch (getType(i)) {
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(values[i]);
+            case TYPE_FLOAT:
+                return Float.intBitsToFloat((int) values[i]);
+            case TYPE_LONG:
+            case TYPE_INTEGER:
+                return values[i];
+            default:
+                throw new IllegalStateException(String.format("Metric %s is not numeric", names[i]));
+        }
+    }
+
+    public long getLong(int i) {
+        switch (getType(i)) {
+            case TYPE_LONG:
+            case TYPE_INTEGER:
+            case TYPE_BOOLEAN:
+                return values[i];
+            case TYPE_DOUBLE:
+            case TYPE_FLOAT:
+                return (long) getDouble(i);
+            default:
+                throw new IllegalStateException(String.format("Metric %s is not numeric", names[i]));
+        }
+    }
+
+    public boolean getBoolean(int i) {
+        if (getType(i) != TYPE_BOOLEAN) {
+            throw new IllegalStateException(String.format("Metric %s is not boolean", names[i]));
+        }
+        return values[i] != 0;
+    }
+
+    /**
+     * Gets the value of the metric at the given position, boxing it if primitive.
+     *
+     * @param i The position of the metric.
+     * @return The value of the metric.
+     * @since 2.1.0
+     */
+    public Object getValue(int i) {
+        checkIndex(i);
+        Object value = objects[i];
+        if (value == null) {
+            switch (types[i]) {
+                case TYPE_DOUBLE:
+                    value = Double.longBitsToDouble(values[i]);
+                    break;
+                case TYPE_FLOAT:
+                    value = Float.intBitsToFloat((int) values[i]);
+                    break;
+                case TYPE_LONG:
+                    value = values[i];
+                    break;
+                case TYPE_INTEGER:
+                    value = (int) values[i];
+                    break;
+                default:
+                    value = values[i] != 0;
+                    break;
+            }
+            objects[i] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? getValue(i) : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Metric name and value must not be null");
+        }
+
+        int i = indexOf(key);
+        Object previous = i >= 0 ? getValue(i) : null;
+        if (value instanceof Double) {
+            putDouble(key, (Double) value);
+        } else if (value instanceof Float) {
+            putFloat(key, (Float) value);
+        } else if (value instanceof Long) {
+            putLong(key, (Long) value);
+        } else if (value instanceof Integer) {
+            putInt(key, (Integer) value);
+        } else if (value instanceof Boolean) {
+            putBoolean(key, (Boolean) value);
+        } else {
+            set(key, TYPE_OBJECT, 0, value);
+            return previous;
+        }
+        // Keep the boxed value already available
+        objects[indexOf(key)] = value;
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        Object previous = getValue(i);
+        removeAt(i);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+        index = null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private void set(String name, byte type, long value, Object object) {
+        int i = indexOf(name);
+        if (i < 0) {
+            ensureCapacity(size + 1);
+            i = size++;
+            names[i] = internName(name);
+            if (index != null) {
+                index.put(names[i], i);
+            } else if (size > INDEX_THRESHOLD) {
+                buildIndex();
+            }
+        }
+        types[i] = type;
+        values[i] = value;
+        objects[i] = object;
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (index != null) {
+            Integer i = index.get(key);
+            return i != null ? i : -1;
+        }
+        for (int i = 0; i < size; i++) {
+            // Interned names are most likely the same instance
+            if (names[i] == key || names[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int i) {
+        int moved = size - i - 1;
+        if (moved > 0) {
+            System.arraycopy(names, i + 1, names, i, moved);
+            System.arraycopy(types, i + 1, types, i, moved);
+            System.arraycopy(values, i + 1, values, i, moved);
+            System.arraycopy(objects, i + 1, objects, i, moved);
+        }
+        size--;
+        names[size] = null;
+        objects[size] = null;
+        if (index != null) {
+            buildIndex();
+        }
+    }
+
+    private void buildIndex() {
+        index = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            index.put(names[i], i);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > names.length) {
+            int newCapacity = Math.max(capacity, names.length * 2);
+            names = Arrays.copyOf(names, newCapacity);
+            types = Arrays.copyOf(types, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            objects = Arrays.copyOf(objects, newCapacity);
+        }
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Metric index: " + i + ", size: " + size);
+        }
+    }
+
+    /**
+     * {@link Set} view of the metrics.
+     *
+     * @since 2.1.0
+     */
+    private class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new Iterator<Entry<String, Object>>() {
+
+                private int next;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next++;
+                    return new MetricEntry(names[last], getValue(last));
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            MetricMap.this.clear();
+        }
+    }
+
+    /**
+     * {@link Entry} of the metrics, writing through to the {@link MetricMap}.
+     *
+     * @since 2.1.0
+     */
+    private class MetricEntry extends SimpleEntry<String, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private MetricEntry(String name, Object value) {
+            super(name, value);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -24,7 +24,8 @@ import org.junit.runners.Suite;
         KapuaMessageTest.class,
         MessageExceptionTest.class,
         KapuaPositionTest.class,
-        KapuaPayloadTest.class
+        KapuaPayloadTest.class,
+        MetricMapTest.class
 })
 @Category(JUnitTests.class)
 public class BasicMessageTestSuite {
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.message.internal;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+@Category(JUnitTests.class)
+public class MetricMapTest {
+
+    @Test
+    public void typedValuesAreBoxedWithTheirType() {
+        MetricMap metricMap = new MetricMap();
+        metricMap.putDouble("double", 1.5);
+        metricMap.putFloat("float", 2.5f);
+        metricMap.putLong("long", 3L);
+        metricMap.putInt("int", 4);
+        metricMap.putBoolean("bool", true);
+        metricMap.put("string", "value");
+
+        Assert.assertEquals(6, metricMap.size());
+        Assert.assertEquals(1.5, metricMap.get("double"));
+        Assert.assertEquals(2.5f, metricMap.get("float"));
+        Assert.assertEquals(3L, metricMap.get("long"));
+        Assert.assertEquals(4, metricMap.get("int"));
+        Assert.assertEquals(true, metricMap.get("bool"));
+        Assert.assertEquals("value", metricMap.get("string"));
+
+        Assert.assertEquals(Integer.class, metricMap.getValueClass(3));
+        Assert.assertEquals(String.class, metricMap.getValueClass(5));
+        Assert.assertSame(metricMap.get("double"), metricMap.get("double"));
+    }
+
+    @Test
+    public void behavesLikeAHashMap() {
+        Map<String, Object> expected = new HashMap<>();
+        MetricMap metricMap = new MetricMap(1);
+        for (int i = 0; i < 40; i++) {
+            expected.put("metric" + i, i);
+            metricMap.putInt("metric" + i, i);
+        }
+        metricMap.putLong("metric7", 77L);
+        expected.put("metric7", 77L);
+        metricMap.remove("metric3");
+        expected.remove("metric3");
+
+        Assert.assertEquals(expected, metricMap);
+        Assert.assertEquals(expected.hashCode(), metricMap.hashCode());
+        Assert.assertTrue(metricMap.containsKey("metric39"));
+        Assert.assertFalse(metricMap.containsKey("metric3"));
+    }
+
+    @Test
+    public void entriesWriteThrough() {
+        MetricMap metricMap = new MetricMap();
+        metricMap.putInt("first", 1);
+        metricMap.putInt("second", 2);
+
+        Iterator<Map.Entry<String, Object>> entries = metricMap.entrySet().iterator();
+        entries.next().setValue("one");
+        entries.next();
+        entries.remove();
+
+        Assert.assertEquals(1, metricMap.size());
+        Assert.assertEquals("one", metricMap.get("first"));
+    }
+
+    @Test
+    public void serializationRoundTrip() {
+        MetricMap metricMap = new MetricMap();
+        metricMap.putDouble("double", 1.5);
+        metricMap.put("bytes", new byte[]{1, 2});
+
+        MetricMap deserialized = SerializationUtils.clone(metricMap);
+        Assert.assertEquals(1.5, deserialized.get("double"));
+        Assert.assertArrayEquals(new byte[]{1, 2}, (byte[]) deserialized.get("bytes"));
+    }
+}
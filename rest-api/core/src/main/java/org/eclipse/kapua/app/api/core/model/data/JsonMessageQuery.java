@@ -18,6 +18,7 @@ import org.eclipse.kapua.model.id.KapuaIdAdapter;
 import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
 import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
+import org.eclipse.kapua.service.storable.model.query.StorablePagingStyle;
 import org.eclipse.kapua.service.storable.model.query.XmlAdaptedSortField;
 import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicate;
 
@@ -49,6 +50,8 @@ public class JsonMessageQuery {
     private List<XmlAdaptedSortField> sortFields;
     private StorableFetchStyle fetchStyle;
     private List<String> fetchAttributes;
+    private StorablePagingStyle pagingStyle;
+    private String cursor;
 
     /**
      * Default constructor
@@ -61,6 +64,7 @@ public class JsonMessageQuery {
         fetchStyle = StorableFetchStyle.SOURCE_FULL;
         fetchAttributes = new ArrayList<>();
         askTotalCount = false;
+        pagingStyle = StorablePagingStyle.OFFSET;
     }
 
     /**
@@ -121,6 +125,24 @@ public class JsonMessageQuery {
         this.askTotalCount = askTotalCount;
     }
 
+    @XmlElement(name = "pagingStyle")
+    public StorablePagingStyle getPagingStyle() {
+        return pagingStyle;
+    }
+
+    public void setPagingStyle(StorablePagingStyle pagingStyle) {
+        this.pagingStyle = pagingStyle;
+    }
+
+    @XmlElement(name = "cursor")
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
     @XmlTransient
     public StorableFetchStyle getFetchStyle() {
         return this.fetchStyle;
@@ -31,12 +31,14 @@ import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
 import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.datastore.model.query.predicate.DatastorePredicateFactory;
 import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
 import org.eclipse.kapua.service.storable.model.query.SortDirection;
 import org.eclipse.kapua.service.storable.model.query.SortField;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
+import org.eclipse.kapua.service.storable.model.query.StorablePagingStyle;
 import org.eclipse.kapua.service.storable.model.query.predicate.AndPredicate;
 import org.eclipse.kapua.service.storable.model.query.predicate.RangePredicate;
 import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicate;
@@ -78,6 +80,8 @@ public class DataMessages extends AbstractKapuaResource {
      * @param endDateParam   The end date to filter the results. Must come after startDate parameter
      * @param offset         The result set offset.
      * @param limit          The result set limit.
+     * @param pagingStyle    The {@link StorablePagingStyle} of the result set. With cursor paging the offset is ignored.
+     * @param cursor         The {@link MessageListResult#getNextKey()} of the previous page, to fetch the next page with cursor paging.
      * @return The {@link MessageListResult} of all the datastoreMessages associated to the current selected scope.
      * @throws KapuaException Whenever something bad happens. See specific {@link KapuaService} exceptions.
      * @since 1.0.0
@@ -96,10 +100,14 @@ public class DataMessages extends AbstractKapuaResource {
                                                                    @QueryParam("metricMax") String metricMaxValue,
                                                                    @QueryParam("sortDir") @DefaultValue("DESC") SortDirection sortDir,
                                                                    @QueryParam("offset") @DefaultValue("0") int offset,
-                                                                   @QueryParam("limit") @DefaultValue("50") int limit)
+                                                                   @QueryParam("limit") @DefaultValue("50") int limit,
+                                                                   @QueryParam("pagingStyle") @DefaultValue("OFFSET") StorablePagingStyle pagingStyle,
+                                                                   @QueryParam("cursor") String cursor)
             throws KapuaException {
         MetricType<V> internalMetricType = new MetricType<>(metricType);
         MessageQuery query = parametersToQuery(datastorePredicateFactory, messageStoreFactory, scopeId, clientId, channel, strictChannel, startDateParam, endDateParam, metricName, internalMetricType, metricMinValue, metricMaxValue, sortDir, offset, limit);
+        query.setPagingStyle(pagingStyle);
+        query.setCursor(cursor);
 
         return query(scopeId, query);
     }
@@ -168,6 +176,41 @@ public class DataMessages extends AbstractKapuaResource {
         return new CountResult(messageStoreService.count(query));
     }
 
+    /**
+     * Aggregates a metric of the {@link DatastoreMessage}s in the scope over a date histogram.
+     *
+     * @param scopeId        The {@link ScopeId} in which to search results.
+     * @param clientId       The client id to filter results.
+     * @param channel        The channel id to filter results. It allows '#' wildcard in last channel level.
+     * @param strictChannel  Restrict the search only to this channel ignoring its children. Only meaningful if channel is set.
+     * @param startDateParam The start date to filter the results. Must come before endDate parameter. Required.
+     * @param endDateParam   The end date to filter the results. Must come after startDate parameter
+     * @param metricName     The name of the metric to aggregate.
+     * @param metricType     The type of the metric to aggregate. Only numeric types are allowed.
+     * @param interval       The fixed interval of the histogram buckets (i.e. {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}).
+     * @return The {@link MetricHistogram} of the given metric.
+     * @throws KapuaException Whenever something bad happens. See specific {@link KapuaService} exceptions.
+     * @since 2.1.0
+     */
+    @GET
+    @Path("_histogram")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public <V extends Comparable<V>> MetricHistogram histogram(@PathParam("scopeId") ScopeId scopeId,
+                                                               @QueryParam("clientId") String clientId,
+                                                               @QueryParam("channel") String channel,
+                                                               @QueryParam("strictChannel") boolean strictChannel,
+                                                               @QueryParam("startDate") DateParam startDateParam,
+                                                               @QueryParam("endDate") DateParam endDateParam,
+                                                               @QueryParam("metricName") String metricName,
+                                                               @QueryParam("metricType") String metricType,
+                                                               @QueryParam("interval") @DefaultValue("1h") String interval)
+            throws KapuaException {
+        MetricType<V> internalMetricType = new MetricType<>(metricType);
+        MessageQuery query = parametersToQuery(datastorePredicateFactory, messageStoreFactory, scopeId, clientId, channel, strictChannel, startDateParam, endDateParam, metricName, internalMetricType, null, null, SortDirection.ASC, 0, 0);
+
+        return messageStoreService.histogram(query, metricName, internalMetricType.getType(), interval);
+    }
+
     /**
      * Returns the DatastoreMessage specified by the "datastoreMessageId" path parameter.
      *
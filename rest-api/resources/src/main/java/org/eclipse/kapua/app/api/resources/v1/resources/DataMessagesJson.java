@@ -37,6 +37,7 @@ import org.eclipse.kapua.service.datastore.model.query.predicate.DatastorePredic
 import org.eclipse.kapua.service.storable.model.query.SortDirection;
 import org.eclipse.kapua.service.storable.model.query.SortField;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
+import org.eclipse.kapua.service.storable.model.query.StorablePagingStyle;
 import org.eclipse.kapua.service.storable.model.query.XmlAdaptedSortField;
 
 import javax.inject.Inject;
@@ -79,6 +80,8 @@ public class DataMessagesJson extends AbstractKapuaResource implements JsonSeria
      * @param endDateParam   The end date to filter the results. Must come after startDate parameter
      * @param offset         The result set offset.
      * @param limit          The result set limit.
+     * @param pagingStyle    The {@link StorablePagingStyle} of the result set. With cursor paging the offset is ignored.
+     * @param cursor         The {@link MessageListResult#getNextKey()} of the previous page, to fetch the next page with cursor paging.
      * @return The {@link MessageListResult} of all the datastoreMessages associated to the current selected scope.
      * @throws KapuaException Whenever something bad happens. See specific {@link KapuaService} exceptions.
      * @since 1.0.0
@@ -98,10 +101,14 @@ public class DataMessagesJson extends AbstractKapuaResource implements JsonSeria
                                                                            @QueryParam("metricMax") String metricMaxValue,
                                                                            @QueryParam("sortDir") @DefaultValue("DESC") SortDirection sortDir,
                                                                            @QueryParam("offset") @DefaultValue("0") int offset,
-                                                                           @QueryParam("limit") @DefaultValue("50") int limit)
+                                                                           @QueryParam("limit") @DefaultValue("50") int limit,
+                                                                           @QueryParam("pagingStyle") @DefaultValue("OFFSET") StorablePagingStyle pagingStyle,
+                                                                           @QueryParam("cursor") String cursor)
             throws KapuaException {
         MetricType<V> internalMetricType = new MetricType<>(metricType);
         MessageQuery query = DataMessages.parametersToQuery(datastorePredicateFactory, messageStoreFactory, scopeId, clientId, channel, strictChannel, startDateParam, endDateParam, metricName, internalMetricType , metricMinValue, metricMaxValue, sortDir, offset, limit);
+        query.setPagingStyle(pagingStyle);
+        query.setCursor(cursor);
         query.setScopeId(scopeId);
         final MessageListResult result = messageStoreService.query(query);
 
@@ -111,6 +118,7 @@ public class DataMessagesJson extends AbstractKapuaResource implements JsonSeria
         jsonResult.addItems(jsonDatastoreMessages);
         jsonResult.setTotalCount(result.getTotalCount());
         jsonResult.setLimitExceeded(result.isLimitExceeded());
+        jsonResult.setNextKey(result.getNextKey());
         return jsonResult;
     }
 
@@ -189,6 +197,7 @@ public class DataMessagesJson extends AbstractKapuaResource implements JsonSeria
         jsonResult.addItems(jsonDatastoreMessages);
         jsonResult.setLimitExceeded(result.isLimitExceeded());
         jsonResult.setTotalCount(result.getTotalCount());
+        jsonResult.setNextKey(result.getNextKey());
         return jsonResult;
     }
 
@@ -220,6 +229,8 @@ public class DataMessagesJson extends AbstractKapuaResource implements JsonSeria
         messageQuery.setFetchStyle(query.getFetchStyle());
         messageQuery.setLimit(query.getLimit());
         messageQuery.setOffset(query.getOffset());
+        messageQuery.setPagingStyle(query.getPagingStyle());
+        messageQuery.setCursor(query.getCursor());
         messageQuery.setPredicate(query.getPredicate());
 
         List<SortField> sortFields = new ArrayList<>();
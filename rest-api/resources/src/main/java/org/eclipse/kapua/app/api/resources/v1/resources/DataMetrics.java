@@ -15,18 +15,25 @@ package org.eclipse.kapua.app.api.resources.v1.resources;
 import com.google.common.base.Strings;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.app.api.core.model.CountResult;
+import org.eclipse.kapua.app.api.core.model.DateParam;
+import org.eclipse.kapua.app.api.core.model.MetricType;
 import org.eclipse.kapua.app.api.core.model.ScopeId;
 import org.eclipse.kapua.app.api.core.model.StorableEntityId;
 import org.eclipse.kapua.app.api.core.resources.AbstractKapuaResource;
+import org.eclipse.kapua.service.datastore.MessageStoreFactory;
+import org.eclipse.kapua.service.datastore.MessageStoreService;
 import org.eclipse.kapua.service.datastore.MetricInfoFactory;
 import org.eclipse.kapua.service.datastore.MetricInfoRegistryService;
 import org.eclipse.kapua.service.datastore.internal.mediator.MetricInfoField;
 import org.eclipse.kapua.service.datastore.internal.model.query.predicate.ChannelMatchPredicateImpl;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.predicate.ChannelMatchPredicate;
 import org.eclipse.kapua.service.datastore.model.query.predicate.DatastorePredicateFactory;
+import org.eclipse.kapua.service.storable.model.query.SortDirection;
 import org.eclipse.kapua.service.storable.model.query.predicate.AndPredicate;
 import org.eclipse.kapua.service.storable.model.query.predicate.TermPredicate;
 
@@ -50,6 +57,10 @@ public class DataMetrics extends AbstractKapuaResource {
     public MetricInfoFactory metricInfoFactory;
     @Inject
     public DatastorePredicateFactory datastorePredicateFactory;
+    @Inject
+    public MessageStoreService messageStoreService;
+    @Inject
+    public MessageStoreFactory messageStoreFactory;
 
     /**
      * Gets the {@link MetricInfo} list in the scope.
@@ -136,6 +147,38 @@ public class DataMetrics extends AbstractKapuaResource {
         return new CountResult(metricInfoRegistryService.count(query));
     }
 
+    /**
+     * Aggregates the stored values of a metric over a date histogram.
+     *
+     * @param scopeId        The {@link ScopeId} in which to search results.
+     * @param clientId       The client id to filter results.
+     * @param channel        The channel id to filter results. It allows '#' wildcard in last channel level
+     * @param name           The metric name to aggregate.
+     * @param type           The metric type to aggregate. Only numeric types are allowed.
+     * @param startDateParam The start date to filter the results. Must come before endDate parameter. Required.
+     * @param endDateParam   The end date to filter the results. Must come after startDate parameter
+     * @param interval       The fixed interval of the histogram buckets (i.e. {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}).
+     * @return The {@link MetricHistogram} of the given metric.
+     * @since 2.1.0
+     */
+    @GET
+    @Path("_histogram")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    public <V extends Comparable<V>> MetricHistogram histogram(@PathParam("scopeId") ScopeId scopeId,
+                                                               @QueryParam("clientId") String clientId,
+                                                               @QueryParam("channel") String channel,
+                                                               @QueryParam("name") String name,
+                                                               @QueryParam("type") String type,
+                                                               @QueryParam("startDate") DateParam startDateParam,
+                                                               @QueryParam("endDate") DateParam endDateParam,
+                                                               @QueryParam("interval") @DefaultValue("1h") String interval)
+            throws KapuaException {
+        MetricType<V> metricType = new MetricType<>(type);
+        MessageQuery query = DataMessages.parametersToQuery(datastorePredicateFactory, messageStoreFactory, scopeId, clientId, channel, false, startDateParam, endDateParam, name, metricType, null, null, SortDirection.ASC, 0, 0);
+
+        return messageStoreService.histogram(query, name, metricType.getType(), interval);
+    }
+
     /**
      * Returns the MetricInfo specified by the "metricInfoId" path parameter.
      *
@@ -156,6 +156,8 @@ import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
+import org.eclipse.kapua.service.datastore.model.MetricHistogramBucket;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.ChannelInfoQuery;
 import org.eclipse.kapua.service.datastore.model.query.ClientInfoQuery;
@@ -429,6 +431,8 @@ public class RestApiJAXBContextProvider implements JAXBContextProvider {
                     // Data Metric Info
                     MetricInfo.class,
                     MetricInfoListResult.class,
+                    MetricHistogram.class,
+                    MetricHistogramBucket.class,
                     MetricInfoQuery.class,
                     MetricInfoXmlRegistry.class,
 
@@ -30,6 +30,17 @@ public interface TxContext extends Closeable {
      */
     void rollback();
 
+    /**
+     * Registers an action to run once the current transaction is committed, and to drop if it is rolled back.
+     * <p>
+     * By default the action is run immediately, for the implementations without a transaction to wait for.
+     *
+     * @param action The action to run after the commit.
+     */
+    default void afterCommit(Runnable action) {
+        action.run();
+    }
+
     /**
      * Convert exceptions happening within the transaction in a more generic form
      */
@@ -13,6 +13,8 @@
 package org.eclipse.kapua.service.authentication;
 
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
@@ -42,6 +44,8 @@ import org.eclipse.kapua.service.account.AccountService;
 import org.eclipse.kapua.service.authentication.authentication.Authenticator;
 import org.eclipse.kapua.service.authentication.exception.KapuaAuthenticationErrorCodes;
 import org.eclipse.kapua.service.authentication.exception.KapuaAuthenticationException;
+import org.eclipse.kapua.service.authentication.setting.ServiceAuthenticationSetting;
+import org.eclipse.kapua.service.authentication.setting.ServiceAuthenticationSettingKey;
 import org.eclipse.kapua.service.authentication.token.AccessToken;
 import org.eclipse.kapua.service.device.authentication.api.DeviceConnectionCredentialAdapter;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
@@ -59,6 +63,7 @@ public class AuthenticationServiceBackEndCall {
     protected static Logger logger = LoggerFactory.getLogger(AuthenticationServiceBackEndCall.class);
 
     private AuthMetric authenticationMetric;
+    private MetricsAuthentication metricsAuthentication;
 
     @Inject
     private Authenticator authenticator;
@@ -71,6 +76,10 @@ public class AuthenticationServiceBackEndCall {
     private KapuaIdFactory kapuaIdFactory;
     private UserService userService;
 
+    //admission control: bounds the logins processed at the same time, so a reconnection storm is shed instead of piling up
+    private final Semaphore loginPermits;
+    private final long loginMaxWait;
+
     @Inject
     private Map<String, DeviceConnectionCredentialAdapter> deviceConnectionAuthHandlers;
 
@@ -83,9 +92,40 @@ public class AuthenticationServiceBackEndCall {
         kapuaIdFactory = locator.getFactory(KapuaIdFactory.class);
         userService = locator.getService(UserService.class);
         authenticationMetric = locator.getComponent(AuthMetric.class);
+        metricsAuthentication = locator.getComponent(MetricsAuthentication.class);
+        ServiceAuthenticationSetting serviceAuthenticationSetting = locator.getComponent(ServiceAuthenticationSetting.class);
+        loginPermits = new Semaphore(Math.max(serviceAuthenticationSetting.getInt(ServiceAuthenticationSettingKey.SERVICE_AUTHENTICATION_ADMISSION_MAX_CONCURRENT_LOGINS, 4), 1), true);
+        loginMaxWait = serviceAuthenticationSetting.getLong(ServiceAuthenticationSettingKey.SERVICE_AUTHENTICATION_ADMISSION_MAX_WAIT, 2000L);
     }
 
     public AuthResponse brokerConnect(AuthRequest authRequest) {
+        if (!loginPermits.tryAcquire()) {
+            metricsAuthentication.getLoginDelayed().inc();
+            try {
+                if (!loginPermits.tryAcquire(loginMaxWait, TimeUnit.MILLISECONDS)) {
+                    return buildLoginResponseOverloaded(authRequest);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return buildLoginResponseOverloaded(authRequest);
+            }
+        }
+        try {
+            return doBrokerConnect(authRequest);
+        } finally {
+            loginPermits.release();
+        }
+    }
+
+    private AuthResponse buildLoginResponseOverloaded(AuthRequest authRequest) {
+        metricsAuthentication.getLoginRejected().inc();
+        logger.warn("Login for clientId {} - user: {} rejected: too many logins in progress", authRequest.getClientId(), authRequest.getUsername());
+        AuthResponse authResponse = buildAuthResponse(authRequest, ResultCode.notAuthorized);
+        authResponse.setErrorCode(AuthErrorCodes.SERVICE_OVERLOADED.name());
+        return authResponse;
+    }
+
+    private AuthResponse doBrokerConnect(AuthRequest authRequest) {
         try {
             logger.info("Login for clientId {} - user: {} - password: {} - client certificates: {}", authRequest.getClientId(), authRequest.getUsername(), Strings.isNullOrEmpty(authRequest.getPassword()) ? "no" : "yes", authRequest.getCertificates() != null ? "yes" : "no");
             ThreadContext.unbindSubject();
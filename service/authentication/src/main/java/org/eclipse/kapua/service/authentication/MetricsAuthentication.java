@@ -33,6 +33,8 @@ public class MetricsAuthentication {
     private Counter logoutRequest;
     private Counter getAccount;
     private Counter getAccountRequest;
+    private Counter loginDelayed;
+    private Counter loginRejected;
 
     public static final String CONVERTER = "converter";
     private Counter converter;
@@ -49,6 +51,8 @@ public class MetricsAuthentication {
         logoutRequest = metricsService.getCounter(SERVICE_AUTHENTICATION, LOGOUT, REQUEST);
         getAccount = metricsService.getCounter(SERVICE_AUTHENTICATION, GET_ACCOUNT, MetricsLabel.SUCCESS);
         getAccountRequest = metricsService.getCounter(SERVICE_AUTHENTICATION, GET_ACCOUNT, REQUEST);
+        loginDelayed = metricsService.getCounter(SERVICE_AUTHENTICATION, LOGIN, "delayed");
+        loginRejected = metricsService.getCounter(SERVICE_AUTHENTICATION, LOGIN, "overloaded");
     }
 
     public Counter getConverter() {
@@ -83,4 +87,12 @@ public class MetricsAuthentication {
         return getAccountRequest;
     }
 
+    public Counter getLoginDelayed() {
+        return loginDelayed;
+    }
+
+    public Counter getLoginRejected() {
+        return loginRejected;
+    }
+
 }
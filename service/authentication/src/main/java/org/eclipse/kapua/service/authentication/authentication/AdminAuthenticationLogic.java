@@ -18,7 +18,6 @@ import org.eclipse.kapua.client.security.bean.AuthAcl;
 import org.eclipse.kapua.client.security.bean.AuthContext;
 import org.eclipse.kapua.client.security.metric.AuthMetric;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
-import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
@@ -44,16 +43,17 @@ public class AdminAuthenticationLogic extends AuthenticationLogic {
             AuthorizationService authorizationService,
             DeviceConnectionFactory deviceConnectionFactory,
             PermissionFactory permissionFactory,
-            DeviceConnectionService deviceConnectionService) {
-        super(aclCreator, authenticationMetric, deviceConnectionOptionFactory, deviceConnectionOptionService, authorizationService, deviceConnectionFactory, permissionFactory, deviceConnectionService);
+            DeviceConnectionService deviceConnectionService,
+            DeviceConnectionWriteBehind deviceConnectionWriteBehind) {
+        super(aclCreator, authenticationMetric, deviceConnectionOptionFactory, deviceConnectionOptionService, authorizationService, deviceConnectionFactory, permissionFactory, deviceConnectionService,
+                deviceConnectionWriteBehind);
     }
 
     @Override
     public List<AuthAcl> connect(AuthContext authContext) throws KapuaException {
         Context timeAdminTotal = authenticationMetric.getExtConnectorTime().getAdminAddConnection().time();
         authContext.setAdmin(true);
-        DeviceConnection deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(
-                KapuaEid.parseCompactId(authContext.getScopeId()), authContext.getClientId()));
+        DeviceConnection deviceConnection = deviceConnectionWriteBehind.findByClientId(KapuaEid.parseCompactId(authContext.getScopeId()), authContext.getClientId());
         deviceConnection = deviceConnection != null ? updateDeviceConnection(authContext, deviceConnection) : createDeviceConnection(authContext);
         if (deviceConnection != null && deviceConnection.getId() != null) {
             authContext.setKapuaConnectionId(deviceConnection.getId());
@@ -20,7 +20,6 @@ import org.eclipse.kapua.client.security.bean.AuthAcl.Action;
 import org.eclipse.kapua.client.security.bean.AuthContext;
 import org.eclipse.kapua.client.security.metric.AuthMetric;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
-import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
@@ -30,9 +29,7 @@ import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCrea
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionFactory;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
 import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
-import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionAttributes;
 import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionFactory;
-import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionQuery;
 import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +59,7 @@ public abstract class AuthenticationLogic {
     protected final DeviceConnectionFactory deviceConnectionFactory;
     protected final PermissionFactory permissionFactory;
     protected final DeviceConnectionService deviceConnectionService;
+    protected final DeviceConnectionWriteBehind deviceConnectionWriteBehind;
 
     private static final String USER_NOT_AUTHORIZED = "User not authorized!";
 
@@ -73,7 +71,8 @@ public abstract class AuthenticationLogic {
             AuthorizationService authorizationService,
             DeviceConnectionFactory deviceConnectionFactory,
             PermissionFactory permissionFactory,
-            DeviceConnectionService deviceConnectionService) {
+            DeviceConnectionService deviceConnectionService,
+            DeviceConnectionWriteBehind deviceConnectionWriteBehind) {
         this.aclCreator = aclCreator;
         this.authenticationMetric = authenticationMetric;
         this.deviceConnectionOptionFactory = deviceConnectionOptionFactory;
@@ -82,6 +81,7 @@ public abstract class AuthenticationLogic {
         this.deviceConnectionFactory = deviceConnectionFactory;
         this.permissionFactory = permissionFactory;
         this.deviceConnectionService = deviceConnectionService;
+        this.deviceConnectionWriteBehind = deviceConnectionWriteBehind;
     }
 
     /**
@@ -224,12 +224,8 @@ public abstract class AuthenticationLogic {
      */
     protected void checkConnectionCountByReservedUserId(KapuaId scopeId, KapuaId userId, long count) throws KapuaException {
         // check that no devices have this user as strict user
-        DeviceConnectionOptionQuery query = deviceConnectionOptionFactory.newQuery(scopeId);
-        query.setPredicate(query.attributePredicate(DeviceConnectionOptionAttributes.RESERVED_USER_ID, userId));
-        query.setLimit(1);
-
-        Long connectionCountByReservedUserId = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionOptionService.count(query));
-        if (connectionCountByReservedUserId != null && connectionCountByReservedUserId > count) {
+        long connectionCountByReservedUserId = deviceConnectionWriteBehind.countByReservedUserId(scopeId, userId);
+        if (connectionCountByReservedUserId > count) {
             throw new SecurityException(USER_NOT_AUTHORIZED + " DeviceConnection cannot use this user because its reserved for another DeviceConnection");
             // TODO manage the error message. is it better to throw a more specific exception or keep it obfuscated for security reason?
         }
@@ -279,7 +275,7 @@ public abstract class AuthenticationLogic {
         deviceConnectionCreator.setAllowUserChange(false);
         deviceConnectionCreator.setAuthenticationType(authContext.getAuthenticationType());
         deviceConnectionCreator.setLastAuthenticationType(authContext.getAuthenticationType());
-        return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.create(deviceConnectionCreator));
+        return deviceConnectionWriteBehind.create(deviceConnectionCreator);
     }
 
     /**
@@ -304,13 +300,12 @@ public abstract class AuthenticationLogic {
         // if (DeviceStatus.DISABLED.equals(device.getStatus())) {
         // throw new KapuaIllegalAccessException("clientId - This client ID is disabled and cannot connect");
         // }
-        return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(deviceConnection));
+        return deviceConnectionWriteBehind.update(deviceConnection);
     }
 
     protected DeviceConnection getDeviceConnection(AuthContext authContext) {
         try {
-            return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(
-                    KapuaEid.parseCompactId(authContext.getScopeId()), authContext.getClientId()));
+            return deviceConnectionWriteBehind.findByClientId(KapuaEid.parseCompactId(authContext.getScopeId()), authContext.getClientId());
         } catch (Exception e) {
             throw new ShiroException("Error while looking for device connection on updating the device status!", e);
         }
@@ -0,0 +1,489 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.authentication;
+
+import com.google.common.base.Strings;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaOptimisticLockingException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authentication.setting.ServiceAuthenticationSetting;
+import org.eclipse.kapua.service.authentication.setting.ServiceAuthenticationSettingKey;
+import org.eclipse.kapua.service.camel.spool.SegmentSpool;
+import org.eclipse.kapua.service.device.registry.ConnectionUserCouplingMode;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionCreator;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
+import org.eclipse.kapua.service.device.registry.connection.internal.DeviceConnectionImpl;
+import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionAttributes;
+import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionFactory;
+import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionQuery;
+import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind bookkeeping of the {@link DeviceConnection}s changed by the connect and disconnect logic.
+ * <p>
+ * The updates of the {@link DeviceConnection}s are kept in memory and persisted every {@link ServiceAuthenticationSettingKey#SERVICE_AUTHENTICATION_DEVICE_CONNECTION_WRITE_BEHIND_WINDOW}:
+ * the transitions of the same client id within the window are coalesced into a single update, and the connect and disconnect logic of this node
+ * reads the pending {@link DeviceConnection} instead of the persisted one.
+ * The pending {@link DeviceConnection}s are private copies, and are dropped only once persisted.
+ * The creation of a {@link DeviceConnection} is still synchronous, since its id is returned to the broker.
+ * <p>
+ * Each update records when the connect or disconnect logic changed the {@link DeviceConnection} in its {@link #STATUS_CHANGED_ON_PROPERTY} entity property.
+ * If the persisted {@link DeviceConnection} has been changed meanwhile by another writer (e.g. the write-behind of another node), the pending changes are applied to it
+ * only if they have been made after the persisted ones: the time of the changes is compared, not the time they have been persisted.
+ * <p>
+ * Each pending update is also written to a journal in {@link ServiceAuthenticationSettingKey#SERVICE_AUTHENTICATION_DEVICE_CONNECTION_JOURNAL_DIRECTORY},
+ * acknowledged once persisted, so that the updates not yet persisted by a crashed node are applied when it restarts.
+ *
+ * @since 2.1.0
+ */
+public class DeviceConnectionWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceConnectionWriteBehind.class);
+
+    /**
+     * The {@link DeviceConnection#getEntityProperties()} property with the time (in milliseconds) of the change of the {@link DeviceConnection}.
+     */
+    static final String STATUS_CHANGED_ON_PROPERTY = "statusChangedOn";
+
+    private static final long JOURNAL_SEGMENT_SIZE = 4194304L;
+    private static final int JOURNAL_RECORD_VERSION = 1;
+
+    private final DeviceConnectionService deviceConnectionService;
+    private final DeviceConnectionOptionFactory deviceConnectionOptionFactory;
+    private final DeviceConnectionOptionService deviceConnectionOptionService;
+    private final long window;
+
+    private final Map<String, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>();
+    private final SegmentSpool journal;
+    private ScheduledExecutorService flushExecutor;
+
+    // Guarded by this
+    private SegmentSpool.Entry uncommittedJournalEntry;
+
+    public DeviceConnectionWriteBehind(
+            DeviceConnectionService deviceConnectionService,
+            DeviceConnectionOptionFactory deviceConnectionOptionFactory,
+            DeviceConnectionOptionService deviceConnectionOptionService,
+            ServiceAuthenticationSetting serviceAuthenticationSetting) {
+        this(deviceConnectionService,
+                deviceConnectionOptionFactory,
+                deviceConnectionOptionService,
+                serviceAuthenticationSetting.getLong(ServiceAuthenticationSettingKey.SERVICE_AUTHENTICATION_DEVICE_CONNECTION_WRITE_BEHIND_WINDOW, 1000L),
+                serviceAuthenticationSetting.getString(ServiceAuthenticationSettingKey.SERVICE_AUTHENTICATION_DEVICE_CONNECTION_JOURNAL_DIRECTORY, "journal/device-connection"),
+                serviceAuthenticationSetting.getBoolean(ServiceAuthenticationSettingKey.SERVICE_AUTHENTICATION_DEVICE_CONNECTION_JOURNAL_SYNC, true),
+                serviceAuthenticationSetting.getLong(ServiceAuthenticationSettingKey.SERVICE_AUTHENTICATION_DEVICE_CONNECTION_JOURNAL_MAX_SIZE, 67108864L));
+    }
+
+    DeviceConnectionWriteBehind(
+            DeviceConnectionService deviceConnectionService,
+            DeviceConnectionOptionFactory deviceConnectionOptionFactory,
+            DeviceConnectionOptionService deviceConnectionOptionService,
+            long window,
+            String journalDirectory,
+            boolean journalSync,
+            long journalMaxSize) {
+        this.deviceConnectionService = deviceConnectionService;
+        this.deviceConnectionOptionFactory = deviceConnectionOptionFactory;
+        this.deviceConnectionOptionService = deviceConnectionOptionService;
+        this.window = window;
+        Path journalPath = Strings.isNullOrEmpty(journalDirectory) ? null : Paths.get(journalDirectory);
+        this.journal = journalPath != null ? new SegmentSpool(journalPath, JOURNAL_SEGMENT_SIZE, journalMaxSize, journalSync, 0) : null;
+    }
+
+    public void start() throws IOException {
+        if (journal != null) {
+            //the pending updates of the previous run, persisted by the first flush
+            journal.open();
+            pollJournal();
+            logger.info("Device connection journal: {} updates to apply", pendingUpdates.size());
+            flush();
+        }
+        if (window > 0) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "DeviceConnectionWriteBehind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushExecutor.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+        } else {
+            logger.info("Device connection write-behind disabled: device connections are updated synchronously");
+        }
+    }
+
+    public void stop() throws IOException {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(window * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        //persist what's left
+        flush();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Finds the {@link DeviceConnection} of the given client id, including its not yet persisted changes.
+     *
+     * @param scopeId  The scope {@link KapuaId}.
+     * @param clientId The client id.
+     * @return The {@link DeviceConnection}, or {@code null} if not found.
+     * @throws KapuaException
+     * @since 2.1.0
+     */
+    public DeviceConnection findByClientId(KapuaId scopeId, String clientId) throws KapuaException {
+        PendingUpdate pendingUpdate = pendingUpdates.get(getKey(scopeId, clientId));
+        if (pendingUpdate != null && !pendingUpdate.replayed) {
+            //a copy, so the caller cannot change the pending update
+            return new DeviceConnectionImpl(pendingUpdate.deviceConnection);
+        }
+        return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(scopeId, clientId));
+    }
+
+    /**
+     * Creates the {@link DeviceConnection} synchronously.
+     *
+     * @param deviceConnectionCreator The {@link DeviceConnectionCreator}.
+     * @return The created {@link DeviceConnection}.
+     * @throws KapuaException
+     * @since 2.1.0
+     */
+    public DeviceConnection create(DeviceConnectionCreator deviceConnectionCreator) throws KapuaException {
+        return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.create(deviceConnectionCreator));
+    }
+
+    /**
+     * Schedules the update of the given {@link DeviceConnection}, replacing any pending update of the same client id.
+     * <p>
+     * The {@link DeviceConnection} is updated synchronously if the write-behind is disabled or the update cannot be written to the journal.
+     *
+     * @param deviceConnection The changed {@link DeviceConnection}.
+     * @return The given {@link DeviceConnection}, or the updated one if updated synchronously.
+     * @throws KapuaException
+     * @since 2.1.0
+     */
+    public DeviceConnection update(DeviceConnection deviceConnection) throws KapuaException {
+        long changedOn = System.currentTimeMillis();
+        setStatusChangedOn(deviceConnection, changedOn);
+        if (window <= 0) {
+            return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(deviceConnection));
+        }
+        String key = getKey(deviceConnection.getScopeId(), deviceConnection.getClientId());
+        PendingUpdate pendingUpdate = new PendingUpdate(new DeviceConnectionImpl(deviceConnection), changedOn, false);
+        //journaled after being made pending, so the journal is never acknowledged past a pending update not yet flushed
+        pendingUpdates.put(key, pendingUpdate);
+        if (!appendToJournal(pendingUpdate)) {
+            pendingUpdates.remove(key, pendingUpdate);
+            return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(deviceConnection));
+        }
+        return deviceConnection;
+    }
+
+    /**
+     * Counts the {@link DeviceConnection}s reserved to the given user.
+     *
+     * @param scopeId The scope {@link KapuaId}.
+     * @param userId  The user {@link KapuaId}.
+     * @return The count of {@link DeviceConnection}s reserved to the user.
+     * @throws KapuaException
+     * @since 2.1.0
+     */
+    public long countByReservedUserId(KapuaId scopeId, KapuaId userId) throws KapuaException {
+        DeviceConnectionOptionQuery query = deviceConnectionOptionFactory.newQuery(scopeId);
+        query.setPredicate(query.attributePredicate(DeviceConnectionOptionAttributes.RESERVED_USER_ID, userId));
+        query.setLimit(1);
+        Long count = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionOptionService.count(query));
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Persists the pending updates.
+     * <p>
+     * The updates failing to persist are kept, to be retried at the next flush.
+     *
+     * @since 2.1.0
+     */
+    synchronized void flush() {
+        boolean journalCommittable = pollJournal();
+        for (Map.Entry<String, PendingUpdate> entry : pendingUpdates.entrySet()) {
+            String key = entry.getKey();
+            PendingUpdate pendingUpdate = entry.getValue();
+            DeviceConnection deviceConnection = pendingUpdate.deviceConnection;
+            try {
+                DeviceConnection persisted = persist(pendingUpdate);
+                //dropped only now, and only if not replaced meanwhile: a replacing update read from this one is moved onto the persisted version
+                pendingUpdates.computeIfPresent(key, (k, current) -> current == pendingUpdate ? null : current.rebase(pendingUpdate, persisted));
+            } catch (Exception e) {
+                logger.error("Cannot update device connection {}/{}, retrying at the next flush: {}", deviceConnection.getScopeId(), deviceConnection.getClientId(), e.getMessage(), e);
+                journalCommittable &= appendToJournal(pendingUpdate);
+            } catch (Throwable t) {
+                //keep the flush task alive
+                logger.error("Cannot update device connection {}/{}, retrying at the next flush", deviceConnection.getScopeId(), deviceConnection.getClientId(), t);
+                journalCommittable &= appendToJournal(pendingUpdate);
+            }
+        }
+        if (journalCommittable) {
+            commitJournal();
+        }
+    }
+
+    private DeviceConnection persist(PendingUpdate pendingUpdate) throws KapuaException {
+        if (pendingUpdate.replayed) {
+            return applyIfMoreRecent(pendingUpdate);
+        }
+        try {
+            DeviceConnection deviceConnection = new DeviceConnectionImpl(pendingUpdate.deviceConnection);
+            return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(deviceConnection));
+        } catch (KapuaOptimisticLockingException e) {
+            return applyIfMoreRecent(pendingUpdate);
+        }
+    }
+
+    /**
+     * Applies the pending changes to the persisted {@link DeviceConnection}, unless it has been changed after them.
+     * <p>
+     * A persisted {@link DeviceConnection} without the time of its last change (i.e. written before it was recorded) is overwritten, as a synchronous update would.
+     *
+     * @return The persisted {@link DeviceConnection}, or {@code null} if it has been deleted.
+     */
+    private DeviceConnection applyIfMoreRecent(PendingUpdate pendingUpdate) throws KapuaException {
+        DeviceConnection deviceConnection = pendingUpdate.deviceConnection;
+        DeviceConnection persisted = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.find(deviceConnection.getScopeId(), deviceConnection.getId()));
+        if (persisted == null) {
+            logger.warn("Device connection {}/{} deleted before its update", deviceConnection.getScopeId(), deviceConnection.getClientId());
+            return null;
+        }
+        Long persistedChangedOn = getStatusChangedOn(persisted);
+        if (persistedChangedOn != null && persistedChangedOn > pendingUpdate.changedOn) {
+            logger.info("Device connection {}/{} changed after the pending update: the pending update is dropped", deviceConnection.getScopeId(), deviceConnection.getClientId());
+            return persisted;
+        }
+        persisted.setStatus(deviceConnection.getStatus());
+        persisted.setClientIp(deviceConnection.getClientIp());
+        persisted.setProtocol(deviceConnection.getProtocol());
+        persisted.setServerIp(deviceConnection.getServerIp());
+        persisted.setUserId(deviceConnection.getUserId());
+        persisted.setAllowUserChange(deviceConnection.getAllowUserChange());
+        persisted.setAuthenticationType(deviceConnection.getAuthenticationType());
+        persisted.setLastAuthenticationType(deviceConnection.getLastAuthenticationType());
+        setStatusChangedOn(persisted, pendingUpdate.changedOn);
+        return KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(persisted));
+    }
+
+    private boolean appendToJournal(PendingUpdate pendingUpdate) {
+        if (journal == null) {
+            return true;
+        }
+        try {
+            if (journal.append(encode(pendingUpdate), 0, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            logger.warn("Device connection journal full: updating device connection {}/{} synchronously", pendingUpdate.deviceConnection.getScopeId(), pendingUpdate.deviceConnection.getClientId());
+        } catch (IOException e) {
+            logger.error("Cannot write device connection {}/{} to the journal: {}", pendingUpdate.deviceConnection.getScopeId(), pendingUpdate.deviceConnection.getClientId(), e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Reads the journal records appended since the last flush. At startup, they are the updates not persisted by the previous run.
+     *
+     * @return {@code true} if the records read can be acknowledged once the pending updates are persisted.
+     */
+    private synchronized boolean pollJournal() {
+        if (journal == null) {
+            return false;
+        }
+        try {
+            SegmentSpool.Entry entry;
+            while ((entry = journal.poll(0, TimeUnit.MILLISECONDS)) != null) {
+                uncommittedJournalEntry = entry;
+                if (flushExecutor == null) {
+                    //still starting: keep the most recent update of each client id
+                    PendingUpdate pendingUpdate = decode(entry.getPayload());
+                    pendingUpdates.merge(getKey(pendingUpdate.deviceConnection.getScopeId(), pendingUpdate.deviceConnection.getClientId()), pendingUpdate,
+                            (current, replayed) -> replayed.changedOn > current.changedOn ? replayed : current);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("Cannot read the device connection journal: {}", e.getMessage(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void commitJournal() {
+        if (uncommittedJournalEntry == null) {
+            return;
+        }
+        try {
+            journal.commit(uncommittedJournalEntry);
+            uncommittedJournalEntry = null;
+        } catch (IOException e) {
+            logger.error("Cannot acknowledge the device connection journal: {}", e.getMessage(), e);
+        }
+    }
+
+    private static void setStatusChangedOn(DeviceConnection deviceConnection, long changedOn) {
+        Properties properties = deviceConnection.getEntityProperties();
+        properties.setProperty(STATUS_CHANGED_ON_PROPERTY, Long.toString(changedOn));
+        deviceConnection.setEntityProperties(properties);
+    }
+
+    static Long getStatusChangedOn(DeviceConnection deviceConnection) {
+        String changedOn = deviceConnection.getEntityProperties().getProperty(STATUS_CHANGED_ON_PROPERTY);
+        try {
+            return changedOn != null ? Long.valueOf(changedOn) : null;
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} property of device connection {}/{}: {}", STATUS_CHANGED_ON_PROPERTY, deviceConnection.getScopeId(), deviceConnection.getClientId(), changedOn);
+            return null;
+        }
+    }
+
+    private String getKey(KapuaId scopeId, String id) {
+        return scopeId.toCompactId() + '|' + id;
+    }
+
+    static byte[] encode(PendingUpdate pendingUpdate) throws IOException {
+        DeviceConnection deviceConnection = pendingUpdate.deviceConnection;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(JOURNAL_RECORD_VERSION);
+            output.writeLong(pendingUpdate.changedOn);
+            writeId(output, deviceConnection.getScopeId());
+            writeId(output, deviceConnection.getId());
+            writeString(output, deviceConnection.getClientId());
+            writeString(output, deviceConnection.getStatus() != null ? deviceConnection.getStatus().name() : null);
+            writeString(output, deviceConnection.getClientIp());
+            writeString(output, deviceConnection.getProtocol());
+            writeString(output, deviceConnection.getServerIp());
+            writeId(output, deviceConnection.getUserId());
+            output.writeBoolean(deviceConnection.getAllowUserChange());
+            writeString(output, deviceConnection.getUserCouplingMode() != null ? deviceConnection.getUserCouplingMode().name() : null);
+            writeId(output, deviceConnection.getReservedUserId());
+            writeString(output, deviceConnection.getAuthenticationType());
+            writeString(output, deviceConnection.getLastAuthenticationType());
+        }
+        return bytes.toByteArray();
+    }
+
+    static PendingUpdate decode(byte[] payload) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int version = input.readUnsignedByte();
+            if (version != JOURNAL_RECORD_VERSION) {
+                throw new IOException("Unsupported device connection journal record version: " + version);
+            }
+            long changedOn = input.readLong();
+            DeviceConnectionImpl deviceConnection = new DeviceConnectionImpl(readId(input));
+            deviceConnection.setId(readId(input));
+            deviceConnection.setClientId(readString(input));
+            String status = readString(input);
+            deviceConnection.setStatus(status != null ? DeviceConnectionStatus.valueOf(status) : null);
+            deviceConnection.setClientIp(readString(input));
+            deviceConnection.setProtocol(readString(input));
+            deviceConnection.setServerIp(readString(input));
+            deviceConnection.setUserId(readId(input));
+            deviceConnection.setAllowUserChange(input.readBoolean());
+            String userCouplingMode = readString(input);
+            deviceConnection.setUserCouplingMode(userCouplingMode != null ? ConnectionUserCouplingMode.valueOf(userCouplingMode) : null);
+            deviceConnection.setReservedUserId(readId(input));
+            deviceConnection.setAuthenticationType(readString(input));
+            deviceConnection.setLastAuthenticationType(readString(input));
+            return new PendingUpdate(deviceConnection, changedOn, true);
+        }
+    }
+
+    private static void writeId(DataOutputStream output, KapuaId id) throws IOException {
+        writeString(output, id != null ? id.toCompactId() : null);
+    }
+
+    private static KapuaId readId(DataInputStream input) throws IOException {
+        String compactId = readString(input);
+        return compactId != null ? KapuaEid.parseCompactId(compactId) : null;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    /**
+     * A pending update: a private copy of the changed {@link DeviceConnection}, never handed out nor changed.
+     */
+    static class PendingUpdate {
+
+        private final DeviceConnection deviceConnection;
+        private final long changedOn;
+        /**
+         * Read from the journal: only the changed values are known, so they are applied to the persisted {@link DeviceConnection}
+         */
+        private final boolean replayed;
+
+        PendingUpdate(DeviceConnection deviceConnection, long changedOn, boolean replayed) {
+            this.deviceConnection = deviceConnection;
+            this.changedOn = changedOn;
+            this.replayed = replayed;
+        }
+
+        /**
+         * Moves this update, read from the given persisted one, onto the new version of the {@link DeviceConnection}.
+         */
+        PendingUpdate rebase(PendingUpdate persistedUpdate, DeviceConnection persisted) {
+            if (replayed || persistedUpdate.replayed || persisted == null || deviceConnection.getOptlock() != persistedUpdate.deviceConnection.getOptlock()) {
+                return this;
+            }
+            try {
+                DeviceConnection rebased = new DeviceConnectionImpl(deviceConnection);
+                rebased.setOptlock(persisted.getOptlock());
+                return new PendingUpdate(rebased, changedOn, false);
+            } catch (KapuaException e) {
+                return this;
+            }
+        }
+    }
+}
@@ -52,8 +52,10 @@ public class UserAuthenticationLogic extends AuthenticationLogic {
             AuthorizationService authorizationService,
             DeviceConnectionFactory deviceConnectionFactory,
             PermissionFactory permissionFactory,
-            DeviceConnectionService deviceConnectionService) {
-        super(aclCreator, authenticationMetric, deviceConnectionOptionFactory, deviceConnectionOptionService, authorizationService, deviceConnectionFactory, permissionFactory, deviceConnectionService);
+            DeviceConnectionService deviceConnectionService,
+            DeviceConnectionWriteBehind deviceConnectionWriteBehind) {
+        super(aclCreator, authenticationMetric, deviceConnectionOptionFactory, deviceConnectionOptionService, authorizationService, deviceConnectionFactory, permissionFactory, deviceConnectionService,
+                deviceConnectionWriteBehind);
     }
 
     @Override
@@ -64,8 +66,7 @@ public class UserAuthenticationLogic extends AuthenticationLogic {
         timeUserTotalCheckAccess.stop();
 
         Context timeUserTotalFindDevice = authenticationMetric.getExtConnectorTime().getUserFindDevice().time();
-        DeviceConnection deviceConnection = KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.findByClientId(
-                KapuaEid.parseCompactId(authContext.getScopeId()), authContext.getClientId()));
+        DeviceConnection deviceConnection = deviceConnectionWriteBehind.findByClientId(KapuaEid.parseCompactId(authContext.getScopeId()), authContext.getClientId());
         timeUserTotalFindDevice.stop();
 
         // enforce the user-device bound
@@ -101,7 +102,7 @@ public class UserAuthenticationLogic extends AuthenticationLogic {
                 } else {
                     deviceConnection.setStatus(!authContext.isMissing() ? DeviceConnectionStatus.DISCONNECTED : DeviceConnectionStatus.MISSING);
                     try {
-                        KapuaSecurityUtils.doPrivileged(() -> deviceConnectionService.update(deviceConnection));
+                        deviceConnectionWriteBehind.update(deviceConnection);
                     } catch (Exception e) {
                         throw new ShiroException("Error while updating the device connection status!", e);
                     }
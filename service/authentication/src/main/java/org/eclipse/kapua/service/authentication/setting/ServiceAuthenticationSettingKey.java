@@ -30,7 +30,31 @@ public enum ServiceAuthenticationSettingKey implements SettingKey {
     /**
      * Lifecycle events publishing address
      */
-    SERVICE_AUTHENTICATION_LIFECYCLE_EVENTS_ADDRESS("service.authentication.lifecycle_events_address");
+    SERVICE_AUTHENTICATION_LIFECYCLE_EVENTS_ADDRESS("service.authentication.lifecycle_events_address"),
+    /**
+     * Maximum number of logins processed at the same time
+     */
+    SERVICE_AUTHENTICATION_ADMISSION_MAX_CONCURRENT_LOGINS("service.authentication.admission.max_concurrent_logins"),
+    /**
+     * Maximum time (in milliseconds) a login waits to be processed before being rejected as overloaded
+     */
+    SERVICE_AUTHENTICATION_ADMISSION_MAX_WAIT("service.authentication.admission.max_wait"),
+    /**
+     * Interval (in milliseconds) between the writes of the pending device connection updates (0 to update them synchronously)
+     */
+    SERVICE_AUTHENTICATION_DEVICE_CONNECTION_WRITE_BEHIND_WINDOW("service.authentication.device_connection.write_behind_window"),
+    /**
+     * Directory of the journal of the pending device connection updates, replayed after a crash (empty to disable the journal)
+     */
+    SERVICE_AUTHENTICATION_DEVICE_CONNECTION_JOURNAL_DIRECTORY("service.authentication.device_connection.journal.directory"),
+    /**
+     * Whether each pending device connection update is forced to the disk before the login is answered
+     */
+    SERVICE_AUTHENTICATION_DEVICE_CONNECTION_JOURNAL_SYNC("service.authentication.device_connection.journal.sync"),
+    /**
+     * Maximum size (in bytes) of the journal of the pending device connection updates (the updates not fitting are written synchronously)
+     */
+    SERVICE_AUTHENTICATION_DEVICE_CONNECTION_JOURNAL_MAX_SIZE("service.authentication.device_connection.journal.max_size");
 
     private String key;
 
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.authentication;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaOptimisticLockingException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnection;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionService;
+import org.eclipse.kapua.service.device.registry.connection.DeviceConnectionStatus;
+import org.eclipse.kapua.service.device.registry.connection.internal.DeviceConnectionImpl;
+import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionFactory;
+import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionQuery;
+import org.eclipse.kapua.service.device.registry.connection.option.DeviceConnectionOptionService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+@Category(JUnitTests.class)
+public class DeviceConnectionWriteBehindTest {
+
+    private static final KapuaId SCOPE_ID = KapuaId.ONE;
+    private static final String CLIENT_ID = "client-1";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DeviceConnectionService deviceConnectionService;
+    private DeviceConnectionOptionFactory deviceConnectionOptionFactory;
+    private DeviceConnectionOptionService deviceConnectionOptionService;
+    private final List<DeviceConnectionWriteBehind> writeBehinds = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        deviceConnectionService = Mockito.mock(DeviceConnectionService.class);
+        deviceConnectionOptionFactory = Mockito.mock(DeviceConnectionOptionFactory.class);
+        deviceConnectionOptionService = Mockito.mock(DeviceConnectionOptionService.class);
+        Mockito.when(deviceConnectionService.update(Matchers.any(DeviceConnection.class))).then(invocation -> persisted((DeviceConnection) invocation.getArguments()[0]));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (DeviceConnectionWriteBehind writeBehind : writeBehinds) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    public void pendingUpdateIsASnapshot() throws Exception {
+        DeviceConnectionWriteBehind writeBehind = start(null);
+        DeviceConnection deviceConnection = deviceConnection(DeviceConnectionStatus.CONNECTED, 1);
+
+        writeBehind.update(deviceConnection);
+        // Changes after the update, and changes to the read entity, are not seen by the pending update
+        deviceConnection.setStatus(DeviceConnectionStatus.DISCONNECTED);
+        writeBehind.findByClientId(SCOPE_ID, CLIENT_ID).setClientIp("10.0.0.2");
+
+        DeviceConnection pending = writeBehind.findByClientId(SCOPE_ID, CLIENT_ID);
+        Assert.assertEquals(DeviceConnectionStatus.CONNECTED, pending.getStatus());
+        Assert.assertEquals("10.0.0.1", pending.getClientIp());
+        Mockito.verify(deviceConnectionService, Mockito.never()).findByClientId(SCOPE_ID, CLIENT_ID);
+    }
+
+    @Test
+    public void pendingUpdateIsKeptUntilPersisted() throws Exception {
+        DeviceConnectionWriteBehind writeBehind = start(null);
+        Mockito.doThrow(KapuaException.internalError("Database unavailable"))
+                .doAnswer(invocation -> persisted((DeviceConnection) invocation.getArguments()[0]))
+                .when(deviceConnectionService).update(Matchers.any(DeviceConnection.class));
+
+        writeBehind.update(deviceConnection(DeviceConnectionStatus.DISCONNECTED, 1));
+        writeBehind.flush();
+
+        // Still pending after the failed update
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, writeBehind.findByClientId(SCOPE_ID, CLIENT_ID).getStatus());
+        Mockito.verify(deviceConnectionService, Mockito.never()).findByClientId(SCOPE_ID, CLIENT_ID);
+
+        writeBehind.flush();
+
+        Mockito.verify(deviceConnectionService, Mockito.times(2)).update(Matchers.any(DeviceConnection.class));
+        writeBehind.findByClientId(SCOPE_ID, CLIENT_ID);
+        Mockito.verify(deviceConnectionService).findByClientId(SCOPE_ID, CLIENT_ID);
+    }
+
+    @Test
+    public void conflictingUpdateIsNotAppliedOverMoreRecentChanges() throws Exception {
+        DeviceConnectionWriteBehind writeBehind = start(null);
+        DeviceConnectionImpl concurrentlyChanged = deviceConnection(DeviceConnectionStatus.CONNECTED, 2);
+        changedOn(concurrentlyChanged, System.currentTimeMillis() + 60000);
+        conflictWith(concurrentlyChanged);
+
+        writeBehind.update(deviceConnection(DeviceConnectionStatus.DISCONNECTED, 1));
+        writeBehind.flush();
+
+        // Only the failed attempt: the more recent changes are kept
+        Mockito.verify(deviceConnectionService, Mockito.times(1)).update(Matchers.any(DeviceConnection.class));
+        Assert.assertEquals(DeviceConnectionStatus.CONNECTED, concurrentlyChanged.getStatus());
+    }
+
+    @Test
+    public void conflictingUpdateIsAppliedOverOlderChanges() throws Exception {
+        DeviceConnectionWriteBehind writeBehind = start(null);
+        DeviceConnectionImpl concurrentlyChanged = deviceConnection(DeviceConnectionStatus.CONNECTED, 2);
+        changedOn(concurrentlyChanged, 0);
+        // Persisted after the pending update has been made
+        concurrentlyChanged.setModifiedOn(new Date(System.currentTimeMillis() + 60000));
+        conflictWith(concurrentlyChanged);
+
+        writeBehind.update(deviceConnection(DeviceConnectionStatus.DISCONNECTED, 1));
+        writeBehind.flush();
+
+        ArgumentCaptor<DeviceConnection> updated = ArgumentCaptor.forClass(DeviceConnection.class);
+        Mockito.verify(deviceConnectionService, Mockito.times(2)).update(updated.capture());
+        Assert.assertSame(concurrentlyChanged, updated.getValue());
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, updated.getValue().getStatus());
+        Assert.assertEquals(2, updated.getValue().getOptlock());
+    }
+
+    @Test
+    public void olderChangePersistedFirstByAnotherNodeDoesNotWinOverAMoreRecentOne() throws Exception {
+        SharedDeviceConnection database = new SharedDeviceConnection(deviceConnection(DeviceConnectionStatus.DISCONNECTED, 1));
+        DeviceConnectionWriteBehind nodeA = start(null, database.service());
+        DeviceConnectionWriteBehind nodeB = start(null, database.service());
+
+        DeviceConnection connected = nodeA.findByClientId(SCOPE_ID, CLIENT_ID);
+        DeviceConnection disconnected = nodeB.findByClientId(SCOPE_ID, CLIENT_ID);
+        connected.setStatus(DeviceConnectionStatus.CONNECTED);
+        nodeA.update(connected);
+        Thread.sleep(5);
+        disconnected.setStatus(DeviceConnectionStatus.DISCONNECTED);
+        nodeB.update(disconnected);
+
+        // The older change is persisted first, the more recent one conflicts with it
+        nodeA.flush();
+        nodeB.flush();
+
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, database.current.getStatus());
+        Assert.assertEquals(3, database.current.getOptlock());
+    }
+
+    @Test
+    public void olderChangePersistedLastByAnotherNodeIsDropped() throws Exception {
+        SharedDeviceConnection database = new SharedDeviceConnection(deviceConnection(DeviceConnectionStatus.DISCONNECTED, 1));
+        DeviceConnectionWriteBehind nodeA = start(null, database.service());
+        DeviceConnectionWriteBehind nodeB = start(null, database.service());
+
+        DeviceConnection connected = nodeA.findByClientId(SCOPE_ID, CLIENT_ID);
+        DeviceConnection disconnected = nodeB.findByClientId(SCOPE_ID, CLIENT_ID);
+        connected.setStatus(DeviceConnectionStatus.CONNECTED);
+        nodeA.update(connected);
+        Thread.sleep(5);
+        disconnected.setStatus(DeviceConnectionStatus.DISCONNECTED);
+        nodeB.update(disconnected);
+
+        // The more recent change is persisted first, the older one conflicts with it
+        nodeB.flush();
+        nodeA.flush();
+
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, database.current.getStatus());
+        Assert.assertEquals(2, database.current.getOptlock());
+    }
+
+    @Test
+    public void updateChangedWhilePersistingIsMovedOntoThePersistedVersion() throws Exception {
+        DeviceConnectionWriteBehind writeBehind = start(null);
+        Mockito.doAnswer(invocation -> {
+                    // A disconnection read from the update being persisted
+                    DeviceConnection read = writeBehind.findByClientId(SCOPE_ID, CLIENT_ID);
+                    read.setStatus(DeviceConnectionStatus.DISCONNECTED);
+                    writeBehind.update(read);
+                    return persisted((DeviceConnection) invocation.getArguments()[0]);
+                })
+                .doAnswer(invocation -> persisted((DeviceConnection) invocation.getArguments()[0]))
+                .when(deviceConnectionService).update(Matchers.any(DeviceConnection.class));
+
+        writeBehind.update(deviceConnection(DeviceConnectionStatus.CONNECTED, 1));
+        writeBehind.flush();
+
+        DeviceConnection pending = writeBehind.findByClientId(SCOPE_ID, CLIENT_ID);
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, pending.getStatus());
+        Assert.assertEquals(2, pending.getOptlock());
+
+        writeBehind.flush();
+
+        ArgumentCaptor<DeviceConnection> updated = ArgumentCaptor.forClass(DeviceConnection.class);
+        Mockito.verify(deviceConnectionService, Mockito.times(2)).update(updated.capture());
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, updated.getValue().getStatus());
+        Assert.assertEquals(2, updated.getValue().getOptlock());
+    }
+
+    @Test
+    public void updatesNotPersistedBeforeACrashAreReplayed() throws Exception {
+        String journalDirectory = temporaryFolder.getRoot().getPath();
+        DeviceConnectionWriteBehind crashed = new DeviceConnectionWriteBehind(deviceConnectionService, deviceConnectionOptionFactory, deviceConnectionOptionService, 3600000L, journalDirectory, true, 1048576L);
+        crashed.start();
+        DeviceConnection deviceConnection = deviceConnection(DeviceConnectionStatus.DISCONNECTED, 1);
+        deviceConnection.setUserId(new KapuaEid(BigInteger.TEN));
+        crashed.update(deviceConnection);
+        // Not stopped, as after a crash
+
+        DeviceConnectionImpl persisted = deviceConnection(DeviceConnectionStatus.CONNECTED, 1);
+        persisted.setModifiedOn(new Date(0));
+        Mockito.when(deviceConnectionService.find(SCOPE_ID, persisted.getId())).thenReturn(persisted);
+
+        start(journalDirectory);
+
+        ArgumentCaptor<DeviceConnection> updated = ArgumentCaptor.forClass(DeviceConnection.class);
+        Mockito.verify(deviceConnectionService).update(updated.capture());
+        Assert.assertSame(persisted, updated.getValue());
+        Assert.assertEquals(DeviceConnectionStatus.DISCONNECTED, persisted.getStatus());
+        Assert.assertEquals(new KapuaEid(BigInteger.TEN), persisted.getUserId());
+
+        // Acknowledged once persisted
+        start(journalDirectory);
+        Mockito.verify(deviceConnectionService).update(Matchers.any(DeviceConnection.class));
+    }
+
+    @Test
+    public void countByReservedUserIdIsNotCached() throws Exception {
+        DeviceConnectionWriteBehind writeBehind = start(null);
+        Mockito.when(deviceConnectionOptionFactory.newQuery(SCOPE_ID)).thenReturn(Mockito.mock(DeviceConnectionOptionQuery.class));
+        Mockito.when(deviceConnectionOptionService.count(Matchers.any(DeviceConnectionOptionQuery.class))).thenReturn(0L, 1L);
+
+        Assert.assertEquals(0L, writeBehind.countByReservedUserId(SCOPE_ID, KapuaId.ONE));
+        Assert.assertEquals(1L, writeBehind.countByReservedUserId(SCOPE_ID, KapuaId.ONE));
+    }
+
+    private DeviceConnectionWriteBehind start(String journalDirectory) throws Exception {
+        return start(journalDirectory, deviceConnectionService);
+    }
+
+    private DeviceConnectionWriteBehind start(String journalDirectory, DeviceConnectionService deviceConnectionService) throws Exception {
+        // Flushed by the tests only
+        DeviceConnectionWriteBehind writeBehind = new DeviceConnectionWriteBehind(deviceConnectionService, deviceConnectionOptionFactory, deviceConnectionOptionService, 3600000L, journalDirectory, true, 1048576L);
+        writeBehind.start();
+        writeBehinds.add(writeBehind);
+        return writeBehind;
+    }
+
+    private void conflictWith(DeviceConnection concurrentlyChanged) throws KapuaException {
+        Mockito.doThrow(new KapuaOptimisticLockingException(new Exception()))
+                .doAnswer(invocation -> invocation.getArguments()[0])
+                .when(deviceConnectionService).update(Matchers.any(DeviceConnection.class));
+        Mockito.when(deviceConnectionService.find(SCOPE_ID, concurrentlyChanged.getId())).thenReturn(concurrentlyChanged);
+    }
+
+    private DeviceConnectionImpl deviceConnection(DeviceConnectionStatus status, int optlock) {
+        DeviceConnectionImpl deviceConnection = new DeviceConnectionImpl(SCOPE_ID);
+        deviceConnection.setId(new KapuaEid(BigInteger.valueOf(5)));
+        deviceConnection.setClientId(CLIENT_ID);
+        deviceConnection.setStatus(status);
+        deviceConnection.setClientIp("10.0.0.1");
+        deviceConnection.setOptlock(optlock);
+        return deviceConnection;
+    }
+
+    private static void changedOn(DeviceConnection deviceConnection, long changedOn) {
+        Properties properties = deviceConnection.getEntityProperties();
+        properties.setProperty(DeviceConnectionWriteBehind.STATUS_CHANGED_ON_PROPERTY, Long.toString(changedOn));
+        deviceConnection.setEntityProperties(properties);
+    }
+
+    private DeviceConnection persisted(DeviceConnection deviceConnection) throws KapuaException {
+        DeviceConnection persisted = new DeviceConnectionImpl(deviceConnection);
+        persisted.setOptlock(deviceConnection.getOptlock() + 1);
+        return persisted;
+    }
+
+    /**
+     * A {@link DeviceConnection} row shared by the {@link DeviceConnectionService}s of several nodes, updated with optimistic locking.
+     */
+    private static class SharedDeviceConnection {
+
+        private DeviceConnection current;
+
+        SharedDeviceConnection(DeviceConnection initial) {
+            current = initial;
+        }
+
+        DeviceConnectionService service() throws KapuaException {
+            DeviceConnectionService service = Mockito.mock(DeviceConnectionService.class);
+            Mockito.when(service.findByClientId(SCOPE_ID, CLIENT_ID)).then(invocation -> read());
+            Mockito.when(service.find(SCOPE_ID, current.getId())).then(invocation -> read());
+            Mockito.when(service.update(Matchers.any(DeviceConnection.class))).then(invocation -> write((DeviceConnection) invocation.getArguments()[0]));
+            return service;
+        }
+
+        private synchronized DeviceConnection read() throws KapuaException {
+            return new DeviceConnectionImpl(current);
+        }
+
+        private synchronized DeviceConnection write(DeviceConnection updated) throws KapuaException {
+            if (updated.getOptlock() != current.getOptlock()) {
+                throw new KapuaOptimisticLockingException(new Exception());
+            }
+            DeviceConnectionImpl written = new DeviceConnectionImpl(updated);
+            written.setOptlock(current.getOptlock() + 1);
+            written.setModifiedOn(new Date());
+            current = written;
+            return new DeviceConnectionImpl(written);
+        }
+    }
+}
@@ -25,8 +25,14 @@ public class MetricsCamel {
 
     private static final String STORED_TO_FILE = "store_to_file";
     private static final String UNKNOWN_BODY_TYPE = "unknown_body_type";
+    private static final String STORED_TO_STORE = "store_to_store";
+    private static final String REPLAYED = "replayed";
     private Counter storedToFileSuccess;
     private Counter storedToFileError;
+    private Counter storedToStoreSuccess;
+    private Counter storedToStoreError;
+    private Counter replayedSuccess;
+    private Counter replayedError;
     private Counter unknownBodyType;
 
     private static final String CONVERTER = "converter";
@@ -46,6 +52,10 @@ public class MetricsCamel {
         storedToFileSuccess = metricsService.getCounter(metricModuleName, MetricsLabel.ERROR, STORED_TO_FILE, MetricsLabel.SUCCESS);
         storedToFileError = metricsService.getCounter(metricModuleName, MetricsLabel.ERROR, STORED_TO_FILE, MetricsLabel.ERROR);
         unknownBodyType = metricsService.getCounter(metricModuleName, MetricsLabel.ERROR, UNKNOWN_BODY_TYPE);
+        storedToStoreSuccess = metricsService.getCounter(metricModuleName, MetricsLabel.ERROR, STORED_TO_STORE, MetricsLabel.SUCCESS);
+        storedToStoreError = metricsService.getCounter(metricModuleName, MetricsLabel.ERROR, STORED_TO_STORE, MetricsLabel.ERROR);
+        replayedSuccess = metricsService.getCounter(metricModuleName, MetricsLabel.ERROR, REPLAYED, MetricsLabel.SUCCESS);
+        replayedError = metricsService.getCounter(metricModuleName, MetricsLabel.ERROR, REPLAYED, MetricsLabel.ERROR);
 
         converterErrorMessage = metricsService.getCounter(
                 metricModuleName,
@@ -65,6 +75,22 @@ public class MetricsCamel {
         return storedToFileError;
     }
 
+    public Counter getErrorStoredToStoreSuccess() {
+        return storedToStoreSuccess;
+    }
+
+    public Counter getErrorStoredToStoreError() {
+        return storedToStoreError;
+    }
+
+    public Counter getErrorReplayedSuccess() {
+        return replayedSuccess;
+    }
+
+    public Counter getErrorReplayedError() {
+        return replayedError;
+    }
+
     public Counter getUnknownBodyType() {
         return unknownBodyType;
     }
@@ -13,7 +13,6 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.camel.converter;
 
-import java.util.Base64;
 import java.util.Date;
 
 import javax.inject.Inject;
@@ -22,9 +21,9 @@ import javax.jms.JMSException;
 import org.apache.camel.Exchange;
 import org.apache.camel.component.jms.JmsMessage;
 import org.apache.camel.support.DefaultMessage;
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.security.KapuaSessionCodec;
 import org.eclipse.kapua.message.KapuaMessage;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.camel.application.MetricsCamel;
@@ -81,7 +80,7 @@ public abstract class AbstractKapuaConverter {
                 try {
                     // FIX #164
                     Date queuedOn = new Date(message.getHeader(MessageConstants.HEADER_KAPUA_RECEIVED_TIMESTAMP, Long.class));
-                    KapuaId connectionId = SerializationUtils.deserialize(Base64.getDecoder().decode(message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTION_ID, String.class)));
+                    KapuaId connectionId = KapuaSessionCodec.decodeId(message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTION_ID, String.class));
                     String clientId = message.getHeader(MessageConstants.HEADER_KAPUA_CLIENT_ID, String.class);
                     String connectorName = message.getHeader(MessageConstants.HEADER_KAPUA_CONNECTOR_NAME, String.class);
                     ProtocolDescriptor connectorDescriptor = protocolDescriptorProvider.getDescriptor(connectorName);
@@ -118,14 +117,11 @@ public abstract class AbstractKapuaConverter {
         final Class<? extends DeviceMessage<?, ?>> deviceMessageType = connectorDescriptor.getDeviceClass(messageType);
         final Class<? extends KapuaMessage<?, ?>> kapuaMessageType = connectorDescriptor.getKapuaClass(messageType);
 
-        // first step... from jms to device dependent protocol level (unknown)
-        Translator<org.eclipse.kapua.transport.message.jms.JmsMessage, DeviceMessage<?, ?>> translatorFromJms = translatorHub.getTranslatorFor(org.eclipse.kapua.transport.message.jms.JmsMessage.class,
-                deviceMessageType);// birth ...
-        DeviceMessage<?, ?> deviceMessage = translatorFromJms.translate(new org.eclipse.kapua.transport.message.jms.JmsMessage(new JmsTopic(jmsTopic), queuedOn, new JmsPayload(messageBody)));
-
-        // second step.... from device dependent protocol (unknown) to Kapua
-        Translator<DeviceMessage<?, ?>, KapuaMessage<?, ?>> translatorToKapua = translatorHub.getTranslatorFor(deviceMessageType, kapuaMessageType);
-        KapuaMessage<?, ?> kapuaMessage = translatorToKapua.translate(deviceMessage);
+        // from jms to Kapua, through the device dependent protocol level (unknown)
+        Translator<org.eclipse.kapua.transport.message.jms.JmsMessage, KapuaMessage<?, ?>> translator = translatorHub.getTranslatorFor(org.eclipse.kapua.transport.message.jms.JmsMessage.class,
+                deviceMessageType,
+                kapuaMessageType);
+        KapuaMessage<?, ?> kapuaMessage = translator.translate(new org.eclipse.kapua.transport.message.jms.JmsMessage(new JmsTopic(jmsTopic), queuedOn, new JmsPayload(messageBody)));
         if (StringUtils.isEmpty(kapuaMessage.getClientId())) {
             logger.debug("Updating client id since the received value is null (new value {})", clientId);
             kapuaMessage.setClientId(clientId);
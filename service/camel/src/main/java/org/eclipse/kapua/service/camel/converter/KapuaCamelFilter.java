@@ -13,12 +13,13 @@
 package org.eclipse.kapua.service.camel.converter;
 
 import org.apache.camel.Exchange;
-import org.apache.commons.lang.SerializationException;
 import org.apache.commons.lang3.SerializationUtils;
 import org.apache.shiro.util.ThreadContext;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.commons.security.KapuaSessionCodec;
 import org.eclipse.kapua.service.client.message.MessageConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,12 @@ public class KapuaCamelFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(KapuaCamelFilter.class);
 
+    private static final int SESSION_CACHE_SIZE = 10000;
+    private static final int SESSION_CACHE_TTL = 300;
+
+    // The session header doesn't change for the whole connection lifetime, so the decoded session can be reused for all its messages
+    private final LocalCache<String, KapuaSession> sessionCache = new LocalCache<>(SESSION_CACHE_SIZE, SESSION_CACHE_TTL, null);
+
     /**
      * Bind the Kapua session retrieved from the message header (with key {@link MessageConstants#HEADER_KAPUA_SESSION}) to the current thread context.
      *
@@ -46,14 +53,23 @@ public class KapuaCamelFilter {
                 // FIX #164
                 String kapuaSession = exchange.getIn().getHeader(MessageConstants.HEADER_KAPUA_SESSION, String.class);
                 //no null check (see telemetry consumer camel.xml - bind/unbind of the kapua session)
-                KapuaSecurityUtils.setSession((KapuaSession) SerializationUtils.deserialize(Base64.getDecoder().decode(kapuaSession)));
-            } catch (IllegalArgumentException | SerializationException e) {
+                KapuaSecurityUtils.setSession(decodeSession(kapuaSession));
+            } catch (IllegalArgumentException e) {
                 // continue without session
                 logger.debug("Cannot restore Kapua session: {}", e.getMessage(), e);
             }
         }
     }
 
+    private KapuaSession decodeSession(String kapuaSession) {
+        KapuaSession decodedSession = sessionCache.get(kapuaSession);
+        if (decodedSession == null) {
+            decodedSession = KapuaSessionCodec.decodeSession(kapuaSession);
+            sessionCache.put(kapuaSession, decodedSession);
+        }
+        return decodedSession;
+    }
+
     /**
      * Unbind the Kapua session from the current thread context.
      *
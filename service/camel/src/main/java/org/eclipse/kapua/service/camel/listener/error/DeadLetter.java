@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.listener.error;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A message which failed processing, as stored in the {@link DeadLetterStore}.
+ * <p>
+ * The metadata ({@link #getScopeId()}, {@link #getClientId()}, {@link #getChannel()}, {@link #getErrorClass()} and {@link #getStoredOn()}) is indexed,
+ * while the headers and the body are only loaded by {@link DeadLetterStore#read(String)}, to replay the message.
+ *
+ * @since 2.1.0
+ */
+public class DeadLetter {
+
+    private String id;
+    private Date storedOn;
+    private KapuaId scopeId;
+    private String clientId;
+    private String channel;
+    private String errorClass;
+    private String errorMessage;
+    private boolean replayed;
+    private Map<String, String> headers = new HashMap<>();
+    private byte[] body;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Date getStoredOn() {
+        return storedOn;
+    }
+
+    public void setStoredOn(Date storedOn) {
+        this.storedOn = storedOn;
+    }
+
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    public void setScopeId(KapuaId scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public String getErrorClass() {
+        return errorClass;
+    }
+
+    public void setErrorClass(String errorClass) {
+        this.errorClass = errorClass;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public boolean isReplayed() {
+        return replayed;
+    }
+
+    public void setReplayed(boolean replayed) {
+        this.replayed = replayed;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.listener.error;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+import java.util.Date;
+
+/**
+ * Selection of {@link DeadLetter}s on their indexed metadata.
+ * <p>
+ * Criteria left {@code null} match all the {@link DeadLetter}s.
+ *
+ * @since 2.1.0
+ */
+public class DeadLetterFilter {
+
+    private KapuaId scopeId;
+    private String clientId;
+    private String channelPrefix;
+    private String errorClass;
+    private Date storedFrom;
+    private Date storedTo;
+    private boolean includeReplayed;
+
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    public DeadLetterFilter setScopeId(KapuaId scopeId) {
+        this.scopeId = scopeId;
+        return this;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public DeadLetterFilter setClientId(String clientId) {
+        this.clientId = clientId;
+        return this;
+    }
+
+    public String getChannelPrefix() {
+        return channelPrefix;
+    }
+
+    public DeadLetterFilter setChannelPrefix(String channelPrefix) {
+        this.channelPrefix = channelPrefix;
+        return this;
+    }
+
+    public String getErrorClass() {
+        return errorClass;
+    }
+
+    public DeadLetterFilter setErrorClass(String errorClass) {
+        this.errorClass = errorClass;
+        return this;
+    }
+
+    public Date getStoredFrom() {
+        return storedFrom;
+    }
+
+    public DeadLetterFilter setStoredFrom(Date storedFrom) {
+        this.storedFrom = storedFrom;
+        return this;
+    }
+
+    public Date getStoredTo() {
+        return storedTo;
+    }
+
+    public DeadLetterFilter setStoredTo(Date storedTo) {
+        this.storedTo = storedTo;
+        return this;
+    }
+
+    public boolean isIncludeReplayed() {
+        return includeReplayed;
+    }
+
+    public DeadLetterFilter setIncludeReplayed(boolean includeReplayed) {
+        this.includeReplayed = includeReplayed;
+        return this;
+    }
+
+    /**
+     * Checks whether the given {@link DeadLetter} matches this filter.
+     *
+     * @param deadLetter The {@link DeadLetter} to check.
+     * @return {@code true} if the {@link DeadLetter} matches, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    public boolean matches(DeadLetter deadLetter) {
+        return (includeReplayed || !deadLetter.isReplayed()) &&
+                (scopeId == null || scopeId.equals(deadLetter.getScopeId())) &&
+                (clientId == null || clientId.equals(deadLetter.getClientId())) &&
+                (channelPrefix == null || (deadLetter.getChannel() != null && deadLetter.getChannel().startsWith(channelPrefix))) &&
+                (errorClass == null || errorClass.equals(deadLetter.getErrorClass())) &&
+                (storedFrom == null || !deadLetter.getStoredOn().before(storedFrom)) &&
+                (storedTo == null || !deadLetter.getStoredOn().after(storedTo));
+    }
+}
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.listener.error;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.eclipse.kapua.service.camel.application.MetricsCamel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the {@link DeadLetter}s of the {@link DeadLetterStore} through a Camel endpoint.
+ * <p>
+ * The selected {@link DeadLetter}s are sent one at a time, in store order, with their original headers and body, at most at the requested rate.
+ * The replay endpoint is expected to run the same pipeline of the consumer route (without its dead letter channel),
+ * so that a failed replay is reported to the replayer and the {@link DeadLetter} is kept for a later replay.
+ * Successfully replayed {@link DeadLetter}s are marked as replayed.
+ * <p>
+ * A replay can also be {@link #submit(DeadLetterFilter, int, double)}ted: it runs in the background, one at a time,
+ * and its {@link ReplayStatus} can be polled by id until it is done. The last {@value #MAX_REPLAY_STATUSES} statuses are kept.
+ *
+ * @since 2.1.0
+ */
+public class DeadLetterReplayer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeadLetterReplayer.class);
+
+    private static final int MAX_REPLAY_STATUSES = 100;
+
+    private final DeadLetterStore deadLetterStore;
+    private final CamelContext camelContext;
+    private final String replayEndpointUri;
+    private final MetricsCamel metrics;
+
+    private final ExecutorService replayExecutor;
+    private final Map<String, ReplayStatus> replayStatuses;
+
+    private ProducerTemplate producerTemplate;
+
+    public DeadLetterReplayer(DeadLetterStore deadLetterStore, CamelContext camelContext, String replayEndpointUri, MetricsCamel metricsCamel) {
+        this.deadLetterStore = deadLetterStore;
+        this.camelContext = camelContext;
+        this.replayEndpointUri = replayEndpointUri;
+        this.metrics = metricsCamel;
+        this.replayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread replayThread = new Thread(runnable, "dead-letter-replayer");
+            replayThread.setDaemon(true);
+            return replayThread;
+        });
+        this.replayStatuses = new LinkedHashMap<String, ReplayStatus>() {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ReplayStatus> eldest) {
+                // Statuses of replays not yet done are never evicted
+                return size() > MAX_REPLAY_STATUSES && eldest.getValue().isDone();
+            }
+        };
+    }
+
+    /**
+     * Submits a replay of the {@link DeadLetter}s matching the {@link DeadLetterFilter}, to be run in the background.
+     *
+     * @param filter        The {@link DeadLetterFilter}.
+     * @param limit         The maximum number of {@link DeadLetter}s to replay.
+     * @param ratePerSecond The maximum number of {@link DeadLetter}s to replay per second.
+     * @return The {@link ReplayStatus} of the submitted replay.
+     * @since 2.1.0
+     */
+    public ReplayStatus submit(DeadLetterFilter filter, int limit, double ratePerSecond) {
+        final ReplayStatus replayStatus = new ReplayStatus(UUID.randomUUID().toString());
+        synchronized (replayStatuses) {
+            replayStatuses.put(replayStatus.getId(), replayStatus);
+        }
+        replayExecutor.execute(() -> {
+            replayStatus.state = ReplayState.RUNNING;
+            try {
+                replayStatus.result = replay(filter, limit, ratePerSecond);
+                replayStatus.state = ReplayState.DONE;
+            } catch (RuntimeException e) {
+                LOG.warn("Error while replaying dead letters: {}", e.getMessage(), e);
+                replayStatus.error = e.getMessage();
+                replayStatus.state = ReplayState.FAILED;
+            }
+        });
+        return replayStatus;
+    }
+
+    /**
+     * Gets the {@link ReplayStatus} of a {@link #submit(DeadLetterFilter, int, double)}ted replay.
+     *
+     * @param replayId The {@link ReplayStatus#getId()}.
+     * @return The {@link ReplayStatus}, or {@code null} if it is unknown or has been evicted.
+     * @since 2.1.0
+     */
+    public ReplayStatus getReplayStatus(String replayId) {
+        synchronized (replayStatuses) {
+            return replayStatuses.get(replayId);
+        }
+    }
+
+    /**
+     * Stops the replays in the background: the running replay is interrupted and the submitted ones are not run.
+     *
+     * @since 2.1.0
+     */
+    public void close() {
+        replayExecutor.shutdownNow();
+    }
+
+    /**
+     * Replays the {@link DeadLetter}s matching the {@link DeadLetterFilter}.
+     *
+     * @param filter        The {@link DeadLetterFilter}.
+     * @param limit         The maximum number of {@link DeadLetter}s to replay.
+     * @param ratePerSecond The maximum number of {@link DeadLetter}s to replay per second.
+     * @return The {@link ReplayResult}.
+     * @since 2.1.0
+     */
+    public synchronized ReplayResult replay(DeadLetterFilter filter, int limit, double ratePerSecond) {
+        if (producerTemplate == null) {
+            producerTemplate = camelContext.createProducerTemplate();
+        }
+
+        final List<DeadLetter> deadLetters = deadLetterStore.find(filter, limit);
+        final ReplayResult replayResult = new ReplayResult(deadLetters.size());
+        final long intervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0;
+        long nextSendOn = System.nanoTime();
+        for (DeadLetter indexed : deadLetters) {
+            final long waitNanos = nextSendOn - System.nanoTime();
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            nextSendOn = Math.max(nextSendOn, System.nanoTime() - intervalNanos) + intervalNanos;
+
+            try {
+                final DeadLetter deadLetter = deadLetterStore.read(indexed.getId());
+                if (deadLetter == null || deadLetter.getBody() == null) {
+                    LOG.warn("Skipping dead letter {} without a replayable body", indexed.getId());
+                    replayResult.skipped++;
+                    continue;
+                }
+
+                final Exchange exchange = producerTemplate.send(replayEndpointUri, replayExchange -> {
+                    replayExchange.getIn().getHeaders().putAll(deadLetter.getHeaders());
+                    replayExchange.getIn().setBody(deadLetter.getBody());
+                });
+                if (exchange.getException() != null) {
+                    throw exchange.getException();
+                }
+
+                deadLetterStore.markReplayed(deadLetter.getId());
+                metrics.getErrorReplayedSuccess().inc();
+                replayResult.replayed++;
+            } catch (Exception e) {
+                metrics.getErrorReplayedError().inc();
+                LOG.warn("Error while replaying dead letter {}: {}", indexed.getId(), e.getMessage(), e);
+                replayResult.failed++;
+            }
+        }
+        LOG.info("Replayed {} dead letters ({} failed, {} skipped) of {} selected", replayResult.replayed, replayResult.failed, replayResult.skipped, replayResult.selected);
+        return replayResult;
+    }
+
+    /**
+     * The state of a {@link ReplayStatus}.
+     *
+     * @since 2.1.0
+     */
+    public enum ReplayState {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * The status of a {@link DeadLetterReplayer#submit(DeadLetterFilter, int, double)}ted replay.
+     *
+     * @since 2.1.0
+     */
+    public static class ReplayStatus {
+
+        private final String id;
+        private volatile ReplayState state = ReplayState.PENDING;
+        private volatile ReplayResult result;
+        private volatile String error;
+
+        private ReplayStatus(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public ReplayState getState() {
+            return state;
+        }
+
+        /**
+         * Gets the {@link ReplayResult}, set once the replay is {@link ReplayState#DONE}.
+         *
+         * @return The {@link ReplayResult}, or {@code null} if the replay is not done.
+         * @since 2.1.0
+         */
+        public ReplayResult getResult() {
+            return result;
+        }
+
+        /**
+         * Gets the error message, set if the replay is {@link ReplayState#FAILED}.
+         *
+         * @return The error message, or {@code null} if the replay has not failed.
+         * @since 2.1.0
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isDone() {
+            return state == ReplayState.DONE || state == ReplayState.FAILED;
+        }
+    }
+
+    /**
+     * The outcome of a {@link DeadLetterReplayer#replay(DeadLetterFilter, int, double)}.
+     *
+     * @since 2.1.0
+     */
+    public static class ReplayResult {
+
+        private final int selected;
+        private int replayed;
+        private int failed;
+        private int skipped;
+
+        private ReplayResult(int selected) {
+            this.selected = selected;
+        }
+
+        public int getSelected() {
+            return selected;
+        }
+
+        public int getReplayed() {
+            return replayed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+    }
+}
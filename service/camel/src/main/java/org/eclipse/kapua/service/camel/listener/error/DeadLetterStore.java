@@ -0,0 +1,582 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.listener.error;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * On disk store of the {@link DeadLetter}s.
+ * <p>
+ * The {@link DeadLetter}s are appended to a daily segment made of three files:
+ * <ul>
+ *     <li>{@code <day>.data} with the full {@link DeadLetter}s, each one prefixed by its length and CRC32</li>
+ *     <li>{@code <day>.index} with the metadata and the position of each {@link DeadLetter}, loaded in memory when the store is opened</li>
+ *     <li>{@code <day>.replayed} with the positions of the {@link DeadLetter}s already replayed</li>
+ * </ul>
+ * Records are written with a compact binary encoding. Data records not yet indexed when the process stopped are indexed again when the store is opened,
+ * while partially written records are truncated. Segments older than the retention are deleted.
+ * <p>
+ * The in memory index is bounded: once it holds the configured maximum number of {@link DeadLetter}s, further ones are rejected until the retention
+ * deletes the oldest segments. {@link DeadLetter}s with an indexed field longer than 4096 characters are rejected as well.
+ *
+ * @since 2.1.0
+ */
+public class DeadLetterStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeadLetterStore.class);
+
+    private static final DateTimeFormatter SEGMENT_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final String DATA_SUFFIX = ".data";
+    private static final String INDEX_SUFFIX = ".index";
+    private static final String REPLAYED_SUFFIX = ".replayed";
+    private static final String ID_SEPARATOR = ":";
+    private static final byte ENCODING_VERSION = 1;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_TEXT_LENGTH = 4096;
+
+    private final Path directory;
+    private final int retentionDays;
+    private final int maxEntries;
+    private final boolean syncOnAppend;
+
+    private final TreeMap<String, Segment> segments = new TreeMap<>();
+    private Segment currentSegment;
+    private int indexedCount;
+    private boolean open;
+
+    /**
+     * Constructor.
+     *
+     * @param directory     The directory of the segment files.
+     * @param retentionDays The number of days after which the {@link DeadLetter}s are deleted.
+     * @param maxEntries    The maximum number of {@link DeadLetter}s kept, further ones are rejected.
+     * @param syncOnAppend  Whether to force each {@link DeadLetter} to the storage device before returning from {@link #append(DeadLetter)}.
+     * @since 2.1.0
+     */
+    public DeadLetterStore(String directory, int retentionDays, int maxEntries, boolean syncOnAppend) {
+        this.directory = Paths.get(directory);
+        this.retentionDays = retentionDays;
+        this.maxEntries = maxEntries;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    /**
+     * Opens the store, loading the index of the existing segments.
+     *
+     * @throws IOException if the store directory cannot be read or written.
+     * @since 2.1.0
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> dataPaths = Files.newDirectoryStream(directory, "*" + DATA_SUFFIX)) {
+            for (Path dataPath : dataPaths) {
+                String fileName = dataPath.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - DATA_SUFFIX.length());
+                segments.put(name, new Segment(name));
+            }
+        }
+        for (Segment segment : segments.values()) {
+            segment.load();
+        }
+        open = true;
+        purge(System.currentTimeMillis());
+        LOG.info("Opened dead letter store {} with {} dead letters in {} segments", directory, indexedCount, segments.size());
+    }
+
+    /**
+     * Appends a {@link DeadLetter}, assigning its {@link DeadLetter#getId()} and {@link DeadLetter#getStoredOn()}.
+     *
+     * @param deadLetter The {@link DeadLetter} to store.
+     * @return The {@link DeadLetter#getId()}.
+     * @throws IllegalArgumentException if an indexed field of the {@link DeadLetter} is longer than 4096 characters.
+     * @throws IOException              if the store is full or the {@link DeadLetter} cannot be written.
+     * @since 2.1.0
+     */
+    public synchronized String append(DeadLetter deadLetter) throws IOException {
+        checkOpen();
+        checkLength("scopeId", deadLetter.getScopeId() != null ? deadLetter.getScopeId().toStringId() : null);
+        checkLength("clientId", deadLetter.getClientId());
+        checkLength("channel", deadLetter.getChannel());
+        checkLength("errorClass", deadLetter.getErrorClass());
+
+        final long now = System.currentTimeMillis();
+        final String segmentName = SEGMENT_NAME_FORMATTER.format(Instant.ofEpochMilli(now));
+        if (currentSegment == null || !currentSegment.name.equals(segmentName)) {
+            if (currentSegment != null) {
+                currentSegment.closeChannels();
+            }
+            currentSegment = segments.computeIfAbsent(segmentName, Segment::new);
+            purge(now);
+        }
+        if (indexedCount >= maxEntries) {
+            throw new IOException(String.format("Dead letter store %s full: %s dead letters stored", directory, indexedCount));
+        }
+
+        deadLetter.setStoredOn(new Date(now));
+        deadLetter.setReplayed(false);
+        currentSegment.append(deadLetter);
+        return deadLetter.getId();
+    }
+
+    /**
+     * Finds the {@link DeadLetter}s matching the {@link DeadLetterFilter}, in store order.
+     * <p>
+     * Only the indexed metadata is returned: use {@link #read(String)} to load the headers and the body.
+     *
+     * @param filter The {@link DeadLetterFilter}.
+     * @param limit  The maximum number of {@link DeadLetter}s to return.
+     * @return The matching {@link DeadLetter}s.
+     * @since 2.1.0
+     */
+    public synchronized List<DeadLetter> find(DeadLetterFilter filter, int limit) {
+        final List<DeadLetter> deadLetters = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            for (DeadLetter deadLetter : segment.index.values()) {
+                if (deadLetters.size() >= limit) {
+                    return deadLetters;
+                }
+                if (filter.matches(deadLetter)) {
+                    deadLetters.add(deadLetter);
+                }
+            }
+        }
+        return deadLetters;
+    }
+
+    /**
+     * Reads a {@link DeadLetter} with its headers and body.
+     *
+     * @param id The {@link DeadLetter#getId()}.
+     * @return The {@link DeadLetter}, or {@code null} if not found.
+     * @throws IOException if the {@link DeadLetter} cannot be read.
+     * @since 2.1.0
+     */
+    public synchronized DeadLetter read(String id) throws IOException {
+        checkOpen();
+        final Segment segment = segmentOf(id);
+        if (segment == null) {
+            return null;
+        }
+        final long position = positionOf(id);
+        final DeadLetter indexed = segment.index.get(position);
+        if (indexed == null) {
+            return null;
+        }
+        try (FileChannel dataChannel = FileChannel.open(segment.dataPath(), StandardOpenOption.READ)) {
+            final DeadLetter deadLetter = decodeRecord(dataChannel, position, dataChannel.size());
+            if (deadLetter == null) {
+                throw new IOException(String.format("Corrupted dead letter %s", id));
+            }
+            deadLetter.setId(id);
+            deadLetter.setReplayed(indexed.isReplayed());
+            return deadLetter;
+        }
+    }
+
+    /**
+     * Marks a {@link DeadLetter} as replayed, so that it is no longer returned by default by {@link #find(DeadLetterFilter, int)}.
+     *
+     * @param id The {@link DeadLetter#getId()}.
+     * @throws IOException if the marker cannot be written.
+     * @since 2.1.0
+     */
+    public synchronized void markReplayed(String id) throws IOException {
+        checkOpen();
+        final Segment segment = segmentOf(id);
+        final DeadLetter indexed = segment != null ? segment.index.get(positionOf(id)) : null;
+        if (indexed == null || indexed.isReplayed()) {
+            return;
+        }
+        final ByteBuffer marker = ByteBuffer.allocate(Long.BYTES);
+        marker.putLong(positionOf(id)).flip();
+        try (FileChannel replayedChannel = FileChannel.open(segment.replayedPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (marker.hasRemaining()) {
+                replayedChannel.write(marker);
+            }
+        }
+        indexed.setReplayed(true);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        if (currentSegment != null) {
+            currentSegment.closeChannels();
+            currentSegment = null;
+        }
+    }
+
+    /**
+     * Gets the number of {@link DeadLetter}s stored.
+     *
+     * @return The number of {@link DeadLetter}s stored.
+     * @since 2.1.0
+     */
+    public synchronized int size() {
+        return indexedCount;
+    }
+
+    private void checkLength(String field, String value) {
+        if (value != null && value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(String.format("Dead letter %s longer than %s characters", field, MAX_TEXT_LENGTH));
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (!open) {
+            throw new IOException(String.format("Dead letter store %s is closed", directory));
+        }
+    }
+
+    private void purge(long now) throws IOException {
+        final String oldestKept = SEGMENT_NAME_FORMATTER.format(Instant.ofEpochMilli(now).minus(retentionDays, ChronoUnit.DAYS));
+        while (!segments.isEmpty() && segments.firstKey().compareTo(oldestKept) < 0 && segments.firstEntry().getValue() != currentSegment) {
+            final Segment segment = segments.pollFirstEntry().getValue();
+            indexedCount -= segment.index.size();
+            Files.deleteIfExists(segment.dataPath());
+            Files.deleteIfExists(segment.indexPath());
+            Files.deleteIfExists(segment.replayedPath());
+            LOG.info("Deleted dead letter segment {} older than {} days", segment.name, retentionDays);
+        }
+    }
+
+    private Segment segmentOf(String id) {
+        final int separator = id.indexOf(ID_SEPARATOR);
+        return separator > 0 ? segments.get(id.substring(0, separator)) : null;
+    }
+
+    private long positionOf(String id) {
+        try {
+            return Long.parseLong(id.substring(id.indexOf(ID_SEPARATOR) + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //
+    // Encoding
+
+    private static byte[] encodeData(DeadLetter deadLetter) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (deadLetter.getBody() != null ? deadLetter.getBody().length : 0));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeMetadata(out, deadLetter);
+            writeBytes(out, deadLetter.getErrorMessage() != null ? deadLetter.getErrorMessage().getBytes(StandardCharsets.UTF_8) : null);
+            out.writeInt(deadLetter.getHeaders().size());
+            for (Map.Entry<String, String> header : deadLetter.getHeaders().entrySet()) {
+                writeBytes(out, header.getKey().getBytes(StandardCharsets.UTF_8));
+                writeBytes(out, header.getValue() != null ? header.getValue().getBytes(StandardCharsets.UTF_8) : null);
+            }
+            writeBytes(out, deadLetter.getBody());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DeadLetter decodeData(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            final DeadLetter deadLetter = readMetadata(in);
+            final byte[] errorMessage = readBytes(in);
+            deadLetter.setErrorMessage(errorMessage != null ? new String(errorMessage, StandardCharsets.UTF_8) : null);
+            final int headerCount = in.readInt();
+            for (int i = 0; i < headerCount; i++) {
+                final String name = new String(readBytes(in), StandardCharsets.UTF_8);
+                final byte[] value = readBytes(in);
+                deadLetter.getHeaders().put(name, value != null ? new String(value, StandardCharsets.UTF_8) : null);
+            }
+            deadLetter.setBody(readBytes(in));
+            return deadLetter;
+        }
+    }
+
+    private static byte[] encodeIndex(long position, DeadLetter deadLetter) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(position);
+            writeMetadata(out, deadLetter);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeMetadata(DataOutputStream out, DeadLetter deadLetter) throws IOException {
+        out.writeByte(ENCODING_VERSION);
+        out.writeLong(deadLetter.getStoredOn().getTime());
+        writeText(out, deadLetter.getScopeId() != null ? deadLetter.getScopeId().toStringId() : null);
+        writeText(out, deadLetter.getClientId());
+        writeText(out, deadLetter.getChannel());
+        writeText(out, deadLetter.getErrorClass());
+    }
+
+    private static DeadLetter readMetadata(DataInputStream in) throws IOException {
+        final byte version = in.readByte();
+        if (version != ENCODING_VERSION) {
+            throw new IOException(String.format("Unsupported dead letter encoding version %s", version));
+        }
+        final DeadLetter deadLetter = new DeadLetter();
+        deadLetter.setStoredOn(new Date(in.readLong()));
+        final String scopeId = readText(in);
+        if (scopeId != null) {
+            try {
+                deadLetter.setScopeId(new KapuaEid(new BigInteger(scopeId)));
+            } catch (NumberFormatException e) {
+                LOG.debug("Ignoring invalid dead letter scope id {}", scopeId);
+            }
+        }
+        deadLetter.setClientId(readText(in));
+        deadLetter.setChannel(readText(in));
+        deadLetter.setErrorClass(readText(in));
+        return deadLetter;
+    }
+
+    /**
+     * Writes an indexed field, checked by {@link #checkLength(String, String)} so that it fits the modified UTF-8 encoding.
+     */
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        out.writeBoolean(text != null);
+        if (text != null) {
+            out.writeUTF(text);
+        }
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes != null) {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeInt(-1);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    //
+    // Records
+
+    private void writeRecord(FileChannel channel, byte[] payload) throws IOException {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt((int) crc32.getValue()).put(payload).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        if (syncOnAppend) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads the payload of the record at the given position.
+     *
+     * @return The payload, or {@code null} if the record is incomplete or corrupted.
+     */
+    private static byte[] readRecord(FileChannel channel, long position, long limit) throws IOException {
+        if (position + RECORD_HEADER_SIZE > limit) {
+            return null;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(channel, header, position);
+        header.flip();
+        final int length = header.getInt();
+        final int checksum = header.getInt();
+        if (length < 0 || position + RECORD_HEADER_SIZE + length > limit) {
+            return null;
+        }
+        final ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + RECORD_HEADER_SIZE);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(payload.array());
+        return (int) crc32.getValue() == checksum ? payload.array() : null;
+    }
+
+    private static DeadLetter decodeRecord(FileChannel channel, long position, long limit) throws IOException {
+        final byte[] payload = readRecord(channel, position, limit);
+        return payload != null ? decodeData(payload) : null;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of dead letter segment");
+            }
+        }
+    }
+
+    /**
+     * A daily segment of the store.
+     */
+    private class Segment {
+
+        private final String name;
+        private final TreeMap<Long, DeadLetter> index = new TreeMap<>();
+        private FileChannel dataChannel;
+        private FileChannel indexChannel;
+
+        private Segment(String name) {
+            this.name = name;
+        }
+
+        private Path dataPath() {
+            return directory.resolve(name + DATA_SUFFIX);
+        }
+
+        private Path indexPath() {
+            return directory.resolve(name + INDEX_SUFFIX);
+        }
+
+        private Path replayedPath() {
+            return directory.resolve(name + REPLAYED_SUFFIX);
+        }
+
+        private void load() throws IOException {
+            long indexedDataEnd = 0;
+            try (FileChannel channel = FileChannel.open(indexPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final long indexSize = channel.size();
+                long position = 0;
+                byte[] payload;
+                while ((payload = readRecord(channel, position, indexSize)) != null) {
+                    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                        final long dataPosition = in.readLong();
+                        final DeadLetter deadLetter = readMetadata(in);
+                        deadLetter.setId(name + ID_SEPARATOR + dataPosition);
+                        if (index.put(dataPosition, deadLetter) == null) {
+                            indexedCount++;
+                        }
+                    }
+                    position += RECORD_HEADER_SIZE + payload.length;
+                }
+                if (position < indexSize) {
+                    channel.truncate(position);
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(dataPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (!index.isEmpty()) {
+                    final long lastPosition = index.lastKey();
+                    final byte[] lastPayload = readRecord(channel, lastPosition, channel.size());
+                    indexedDataEnd = lastPayload != null ? lastPosition + RECORD_HEADER_SIZE + lastPayload.length : lastPosition;
+                }
+                // Index the records written after the last index entry
+                final long dataSize = channel.size();
+                long position = indexedDataEnd;
+                byte[] payload;
+                while ((payload = readRecord(channel, position, dataSize)) != null) {
+                    appendIndex(position, decodeData(payload));
+                    position += RECORD_HEADER_SIZE + payload.length;
+                }
+                if (position < dataSize) {
+                    LOG.warn("Truncating {} bytes of incomplete dead letters from segment {}", dataSize - position, name);
+                    channel.truncate(position);
+                }
+            } finally {
+                closeChannels();
+            }
+
+            if (Files.exists(replayedPath())) {
+                final ByteBuffer markers = ByteBuffer.wrap(Files.readAllBytes(replayedPath()));
+                while (markers.remaining() >= Long.BYTES) {
+                    final DeadLetter deadLetter = index.get(markers.getLong());
+                    if (deadLetter != null) {
+                        deadLetter.setReplayed(true);
+                    }
+                }
+            }
+        }
+
+        private void append(DeadLetter deadLetter) throws IOException {
+            openChannels();
+            final long position = dataChannel.size();
+            writeRecord(dataChannel, encodeData(deadLetter));
+            appendIndex(position, deadLetter);
+        }
+
+        private void appendIndex(long position, DeadLetter deadLetter) throws IOException {
+            openChannels();
+            writeRecord(indexChannel, encodeIndex(position, deadLetter));
+
+            // Only the metadata is kept in memory
+            final DeadLetter indexed = new DeadLetter();
+            indexed.setId(name + ID_SEPARATOR + position);
+            indexed.setStoredOn(deadLetter.getStoredOn());
+            indexed.setScopeId(deadLetter.getScopeId());
+            indexed.setClientId(deadLetter.getClientId());
+            indexed.setChannel(deadLetter.getChannel());
+            indexed.setErrorClass(deadLetter.getErrorClass());
+            if (index.put(position, indexed) == null) {
+                indexedCount++;
+            }
+            deadLetter.setId(indexed.getId());
+        }
+
+        private void openChannels() throws IOException {
+            if (dataChannel == null) {
+                dataChannel = FileChannel.open(dataPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            if (indexChannel == null) {
+                indexChannel = FileChannel.open(indexPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+        }
+
+        private void closeChannels() throws IOException {
+            if (dataChannel != null) {
+                dataChannel.close();
+                dataChannel = null;
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+                indexChannel = null;
+            }
+        }
+    }
+}
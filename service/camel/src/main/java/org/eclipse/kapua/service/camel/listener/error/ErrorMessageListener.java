@@ -15,7 +15,10 @@ package org.eclipse.kapua.service.camel.listener.error;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.spi.UriEndpoint;
+import org.eclipse.kapua.commons.security.KapuaSessionCodec;
 import org.eclipse.kapua.commons.util.KapuaDateUtils;
+import org.eclipse.kapua.message.KapuaMessage;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.camel.application.MetricsCamel;
 import org.eclipse.kapua.service.camel.message.CamelKapuaMessage;
 import org.eclipse.kapua.service.client.message.MessageConstants;
@@ -23,9 +26,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
 
 @UriEndpoint(title = "error message processor", syntax = "bean:ecErrorMessageListener", scheme = "bean")
 public class ErrorMessageListener {
@@ -40,13 +45,21 @@ public class ErrorMessageListener {
     public static final String JMS_EXCHANGE_REDELIVERY_COUNTER = org.apache.camel.Exchange.REDELIVERY_COUNTER;
     private static final String EMPTY_ENCODED_MESSAGE = "N/A";
     private static final String EMPTY_FIELD = "N/A";
+    private static final String JMS_HEADER_PREFIX = "JMS";
+    private static final String CAMEL_HEADER_PREFIX = "Camel";
 
     @Inject
     public ErrorMessageListener(MetricsCamel metricsCamel) {
+        this(metricsCamel, null);
+    }
+
+    public ErrorMessageListener(MetricsCamel metricsCamel, DeadLetterStore deadLetterStore) {
         this.metrics = metricsCamel;
+        this.deadLetterStore = deadLetterStore;
     }
 
     private final MetricsCamel metrics;
+    private final DeadLetterStore deadLetterStore;
 
     /**
      * Process an error condition for an elaboration of a generic message
@@ -56,6 +69,71 @@ public class ErrorMessageListener {
      */
     public void processMessage(Exchange exchange, Object message) {
         logToFile(exchange, message);
+        if (deadLetterStore != null) {
+            store(exchange);
+        }
+    }
+
+    /**
+     * Stores the errored message in the {@link DeadLetterStore}, so that it can be replayed.
+     *
+     * @param exchange
+     * @since 2.1.0
+     */
+    public void store(Exchange exchange) {
+        try {
+            String id = deadLetterStore.append(toDeadLetter(exchange.getIn()));
+            logger.debug("Stored errored message as dead letter {}", id);
+            metrics.getErrorStoredToStoreSuccess().inc();
+        } catch (Exception e) {
+            metrics.getErrorStoredToStoreError().inc();
+            logger.error("Error while storing errored message to the dead letter store!", e);
+        }
+    }
+
+    private DeadLetter toDeadLetter(Message message) {
+        DeadLetter deadLetter = new DeadLetter();
+        deadLetter.setClientId(message.getHeader(MessageConstants.HEADER_KAPUA_CLIENT_ID, String.class));
+        deadLetter.setChannel(message.getHeader(MessageConstants.PROPERTY_ORIGINAL_TOPIC, String.class));
+        deadLetter.setErrorClass(message.getHeader(MessageConstants.HEADER_KAPUA_PROCESSING_ERROR_CLASS, String.class));
+        deadLetter.setErrorMessage(message.getHeader(MessageConstants.HEADER_KAPUA_PROCESSING_ERROR_MESSAGE, String.class));
+        deadLetter.setScopeId(getScopeId(message));
+        for (Map.Entry<String, Object> header : message.getHeaders().entrySet()) {
+            Object value = header.getValue();
+            // Keep only the plain headers set by Kapua, which are the ones needed to convert the message again
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                if (!header.getKey().startsWith(JMS_HEADER_PREFIX) && !header.getKey().startsWith(CAMEL_HEADER_PREFIX)) {
+                    deadLetter.getHeaders().put(header.getKey(), value.toString());
+                }
+            }
+        }
+        Object body = message.getBody();
+        if (body instanceof byte[]) {
+            deadLetter.setBody((byte[]) body);
+        } else if (body instanceof String) {
+            deadLetter.setBody(((String) body).getBytes(StandardCharsets.UTF_8));
+        } else if (body instanceof CamelKapuaMessage<?>) {
+            KapuaMessage<?, ?> kapuaMessage = ((CamelKapuaMessage<?>) body).getMessage();
+            if (deadLetter.getScopeId() == null) {
+                deadLetter.setScopeId(kapuaMessage.getScopeId());
+            }
+            if (deadLetter.getChannel() == null && kapuaMessage.getChannel() != null) {
+                deadLetter.setChannel(kapuaMessage.getChannel().toString());
+            }
+        }
+        return deadLetter;
+    }
+
+    private KapuaId getScopeId(Message message) {
+        String kapuaSession = message.getHeader(MessageConstants.HEADER_KAPUA_SESSION, String.class);
+        if (kapuaSession != null) {
+            try {
+                return KapuaSessionCodec.decodeSession(kapuaSession).getScopeId();
+            } catch (IllegalArgumentException e) {
+                logger.debug("Cannot restore Kapua session: {}", e.getMessage(), e);
+            }
+        }
+        return null;
     }
 
     public void logToFile(Exchange exchange, Object value) {
@@ -16,6 +16,7 @@ import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.eclipse.kapua.KapuaUnauthenticatedException;
 import org.eclipse.kapua.service.camel.application.MetricsCamel;
+import org.eclipse.kapua.service.client.message.MessageConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +39,12 @@ public class FailureProcessor implements Processor {
 
     @Override
     public void process(Exchange exchange) throws Exception {
+        // Keep track of the error in the message sent to the dlq, so it can be indexed by the DeadLetterStore
+        Exception exception = getException(exchange);
+        if (exception != null) {
+            exchange.getIn().setHeader(MessageConstants.HEADER_KAPUA_PROCESSING_ERROR_CLASS, exception.getClass().getName());
+            exchange.getIn().setHeader(MessageConstants.HEADER_KAPUA_PROCESSING_ERROR_MESSAGE, exception.getMessage());
+        }
         if (isUnauthenticatedException(exchange)) {
             if (logger.isDebugEnabled()) {
                 logger.debug("Detected unauthenticated error on message processing retry!");
@@ -50,7 +57,7 @@ public class FailureProcessor implements Processor {
 
     private boolean isUnauthenticatedException(Exchange exchange) {
         Exception e = getException(exchange);
-        return e instanceof KapuaUnauthenticatedException || e.getCause() instanceof KapuaUnauthenticatedException;
+        return e instanceof KapuaUnauthenticatedException || (e != null && e.getCause() instanceof KapuaUnauthenticatedException);
     }
 
     private Exception getException(Exchange exchange) {
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.message;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.Processor;
+import org.apache.camel.component.jms.JmsMessage;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Acknowledges the JMS {@link Message} of an {@link Exchange} once the {@link Exchange} is completed.
+ * <p>
+ * To be used as the first step of routes consuming with an individual acknowledge mode (i.e. Qpid JMS {@code acknowledgementMode=101})
+ * and processing the messages asynchronously: the consumer thread can go on receiving messages while the previous ones are still being processed,
+ * and each message is acknowledged only when its {@link Exchange} completes (also when handled by the dead letter channel).
+ * Failed {@link Exchange}s are not acknowledged, so they are redelivered when the consumer session is recovered.
+ *
+ * @since 2.1.0
+ */
+public class JmsMessageAcknowledger implements Processor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsMessageAcknowledger.class);
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        JmsMessage camelJmsMessage = exchange.getIn(JmsMessage.class);
+        if (camelJmsMessage == null || camelJmsMessage.getJmsMessage() == null) {
+            return;
+        }
+
+        final Message jmsMessage = camelJmsMessage.getJmsMessage();
+        exchange.adapt(ExtendedExchange.class).addOnCompletion(new SynchronizationAdapter() {
+
+            @Override
+            public void onComplete(Exchange exchange) {
+                try {
+                    jmsMessage.acknowledge();
+                } catch (JMSException e) {
+                    LOG.warn("Cannot acknowledge message {}: {}", exchange.getExchangeId(), e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void onFailure(Exchange exchange) {
+                LOG.warn("Message {} not acknowledged since its processing failed", exchange.getExchangeId());
+            }
+        });
+    }
+}
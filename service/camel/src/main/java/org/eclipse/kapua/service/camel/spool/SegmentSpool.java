@@ -0,0 +1,522 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segment based, on disk spool of opaque records.
+ * <p>
+ * Records are appended to the current segment file, which is rolled over once it reaches the configured segment size.
+ * Each record is stored as its length, its CRC32 and its payload, so that a record partially written by a crash is detected and truncated when the spool is reopened.
+ * <p>
+ * Records are read back in append order by a single reader with {@link #poll(long, TimeUnit)} and acknowledged with {@link #commit(Entry)}.
+ * The committed position is persisted in a checkpoint file, so that after a restart the reading resumes from the first record not yet acknowledged
+ * (records read but not committed before a crash are read again). Fully committed segments are deleted.
+ * <p>
+ * {@link #append(byte[], long, TimeUnit)} blocks while the uncommitted records exceed the configured maximum size, to propagate backpressure to the producers.
+ * When syncing on append, it also returns only once the record has been forced to the storage device: concurrent appends share the same sync.
+ *
+ * @since 2.1.0
+ */
+public class SegmentSpool implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentSpool.class);
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String SEGMENT_NAME_FORMAT = "%019d" + SEGMENT_SUFFIX;
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint";
+    private static final String CHECKPOINT_TEMP_FILE_NAME = "checkpoint.tmp";
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final long maxSize;
+    private final boolean syncOnAppend;
+    private final long checkpointInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    // Guarded by lock
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final TreeMap<Long, Long> segmentSizes = new TreeMap<>();
+    private FileChannel writeChannel;
+    private long writeSegment;
+    private long writePosition;
+    private long pendingSize;
+    private long commitSegment;
+    private long commitPosition;
+    private long lastCheckpointOn;
+    private long appendedSize;
+    private boolean open;
+
+    // Guarded by syncLock
+    private long syncedSize;
+
+    // Owned by the reader
+    private FileChannel readChannel;
+    private long readSegment;
+    private long readPosition;
+
+    /**
+     * Constructor.
+     *
+     * @param directory          The directory of the segment files.
+     * @param segmentSize        The size in bytes after which a segment is rolled over.
+     * @param maxSize            The maximum size in bytes of the uncommitted records.
+     * @param syncOnAppend       Whether to force each record to the storage device before returning from {@link #append(byte[], long, TimeUnit)}.
+     * @param checkpointInterval The minimum interval in milliseconds between two checkpoint writes.
+     * @since 2.1.0
+     */
+    public SegmentSpool(Path directory, long segmentSize, long maxSize, boolean syncOnAppend, long checkpointInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.syncOnAppend = syncOnAppend;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Opens the spool, recovering the records left by the previous run.
+     *
+     * @throws IOException if the spool directory cannot be read or written.
+     * @since 2.1.0
+     */
+    public void open() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> segmentPaths = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path segmentPath : segmentPaths) {
+                    String fileName = segmentPath.getFileName().toString();
+                    try {
+                        segments.put(Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())), segmentPath);
+                    } catch (NumberFormatException e) {
+                        LOG.warn("Ignoring unexpected file {} in spool directory {}", fileName, directory);
+                    }
+                }
+            }
+
+            readCheckpoint();
+
+            // Drop the segments already committed
+            while (!segments.isEmpty() && segments.firstKey() < commitSegment) {
+                Files.deleteIfExists(segments.pollFirstEntry().getValue());
+            }
+            if (segments.isEmpty()) {
+                segments.put(commitSegment, segmentPath(commitSegment));
+                commitPosition = 0;
+            } else if (segments.firstKey() > commitSegment) {
+                commitSegment = segments.firstKey();
+                commitPosition = 0;
+            }
+
+            writeSegment = segments.lastKey();
+            writeChannel = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writePosition = recover(writeChannel);
+            for (Map.Entry<Long, Path> segment : segments.headMap(writeSegment).entrySet()) {
+                segmentSizes.put(segment.getKey(), Files.size(segment.getValue()));
+            }
+
+            pendingSize = Math.max(bytesBetween(commitSegment, commitPosition, writeSegment, writePosition), 0);
+
+            readSegment = commitSegment;
+            readPosition = commitPosition;
+            lastCheckpointOn = System.currentTimeMillis();
+            open = true;
+            LOG.info("Opened spool {} with {} bytes to replay in {} segments", directory, pendingSize, segments.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record to the spool.
+     *
+     * @param payload The record payload.
+     * @param timeout The maximum time to wait for space in the spool.
+     * @param unit    The {@link TimeUnit} of the timeout.
+     * @return {@code true} if the record has been appended (and synced, if syncing on append), {@code false} if the spool is still full after the timeout.
+     * @throws IOException          if the record cannot be written.
+     * @throws InterruptedException if interrupted while waiting for space in the spool.
+     * @since 2.1.0
+     */
+    public boolean append(byte[] payload, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        final int recordSize = RECORD_HEADER_SIZE + payload.length;
+        final CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        final ByteBuffer record = ByteBuffer.allocate(recordSize);
+        record.putInt(payload.length).putInt((int) crc32.getValue()).put(payload).flip();
+
+        final long appendedMark;
+        lock.lockInterruptibly();
+        try {
+            checkOpen();
+            long nanos = unit.toNanos(timeout);
+            // A single record larger than the spool is accepted when the spool is empty
+            while (pendingSize > 0 && pendingSize + recordSize > maxSize) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+                checkOpen();
+            }
+
+            if (writePosition > 0 && writePosition + recordSize > segmentSize) {
+                rollSegment();
+            }
+            while (record.hasRemaining()) {
+                writeChannel.write(record, writePosition + record.position());
+            }
+            writePosition += recordSize;
+            pendingSize += recordSize;
+            appendedSize += recordSize;
+            appendedMark = appendedSize;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (syncOnAppend) {
+            sync(appendedMark);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next record of the spool.
+     * <p>
+     * To be invoked by a single reader.
+     *
+     * @param timeout The maximum time to wait for a record.
+     * @param unit    The {@link TimeUnit} of the timeout.
+     * @return The next {@link Entry}, or {@code null} if no record has been appended within the timeout.
+     * @throws IOException          if the record cannot be read.
+     * @throws InterruptedException if interrupted while waiting for a record.
+     * @since 2.1.0
+     */
+    public Entry poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        while (true) {
+            final long lastSegment;
+            final long lastPosition;
+            lock.lockInterruptibly();
+            try {
+                checkOpen();
+                while (readSegment == writeSegment && readPosition >= writePosition) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                    checkOpen();
+                }
+                lastSegment = writeSegment;
+                lastPosition = writePosition;
+            } finally {
+                lock.unlock();
+            }
+
+            if (readChannel == null) {
+                readChannel = FileChannel.open(segmentPath(readSegment), StandardOpenOption.READ);
+            }
+            final long readLimit = readSegment == lastSegment ? lastPosition : readChannel.size();
+            final Entry entry = readRecord(readLimit);
+            if (entry != null) {
+                readPosition = entry.nextPosition;
+                return entry;
+            }
+            if (readSegment == lastSegment) {
+                throw new IOException(String.format("Corrupted record in segment %s of spool %s at position %s", readSegment, directory, readPosition));
+            }
+
+            // End of a rolled over segment (or a corrupted tail): move to the next one
+            readChannel.close();
+            readChannel = null;
+            readSegment++;
+            readPosition = 0;
+        }
+    }
+
+    /**
+     * Acknowledges a record and all the records before it.
+     *
+     * @param entry The {@link Entry} to acknowledge.
+     * @throws IOException if the checkpoint cannot be written or a committed segment cannot be deleted.
+     * @since 2.1.0
+     */
+    public void commit(Entry entry) throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            commitSegment = entry.segment;
+            commitPosition = entry.nextPosition;
+            // Also releases the corrupted tails skipped by the reader
+            pendingSize = Math.max(bytesBetween(commitSegment, commitPosition, writeSegment, writePosition), 0);
+            notFull.signalAll();
+
+            while (segments.size() > 1 && segments.firstKey() < commitSegment) {
+                segmentSizes.remove(segments.firstKey());
+                Files.deleteIfExists(segments.pollFirstEntry().getValue());
+            }
+
+            final long now = System.currentTimeMillis();
+            if (now - lastCheckpointOn >= checkpointInterval) {
+                writeCheckpoint();
+                lastCheckpointOn = now;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the size in bytes of the records not yet committed.
+     *
+     * @return The size in bytes of the records not yet committed.
+     * @since 2.1.0
+     */
+    public long getPendingSize() {
+        lock.lock();
+        try {
+            return pendingSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the spool, writing the checkpoint.
+     * <p>
+     * Producers and reader waiting on the spool are woken up and get an {@link IOException}.
+     *
+     * @throws IOException if the checkpoint cannot be written.
+     * @since 2.1.0
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            writeCheckpoint();
+            writeChannel.force(true);
+            writeChannel.close();
+            LOG.info("Closed spool {} with {} bytes to replay", directory, pendingSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the records appended so far to the storage device, unless a concurrent append already did.
+     *
+     * @param appendedMark The {@link #appendedSize} right after the record to sync.
+     */
+    private void sync(long appendedMark) throws IOException {
+        syncLock.lock();
+        try {
+            while (syncedSize < appendedMark) {
+                final long mark;
+                final FileChannel channel;
+                lock.lock();
+                try {
+                    checkOpen();
+                    mark = appendedSize;
+                    channel = writeChannel;
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    channel.force(false);
+                    syncedSize = mark;
+                } catch (ClosedChannelException e) {
+                    // Rolled over, which forced the previous segment: sync the new one
+                    LOG.debug("Spool segment rolled over while syncing, retrying");
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the bytes between two positions of the spool, including the ones of the segments in between.
+     */
+    private long bytesBetween(long fromSegment, long fromPosition, long toSegment, long toPosition) {
+        long bytes = 0;
+        long position = fromPosition;
+        for (long segment = fromSegment; segment < toSegment; segment++) {
+            bytes += Math.max(segmentSizes.getOrDefault(segment, position) - position, 0);
+            position = 0;
+        }
+        return bytes + toPosition - position;
+    }
+
+    private void checkOpen() throws IOException {
+        if (!open) {
+            throw new IOException(String.format("Spool %s is closed", directory));
+        }
+    }
+
+    private Entry readRecord(long readLimit) throws IOException {
+        if (readPosition + RECORD_HEADER_SIZE > readLimit) {
+            return null;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(readChannel, header, readPosition);
+        header.flip();
+        final int length = header.getInt();
+        final int checksum = header.getInt();
+        if (length < 0 || readPosition + RECORD_HEADER_SIZE + length > readLimit) {
+            LOG.warn("Skipping corrupted tail of segment {} of spool {} at position {}", readSegment, directory, readPosition);
+            return null;
+        }
+
+        final ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(readChannel, payload, readPosition + RECORD_HEADER_SIZE);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(payload.array());
+        if ((int) crc32.getValue() != checksum) {
+            LOG.warn("Skipping corrupted tail of segment {} of spool {} at position {}", readSegment, directory, readPosition);
+            return null;
+        }
+        return new Entry(payload.array(), readSegment, readPosition + RECORD_HEADER_SIZE + length);
+    }
+
+    /**
+     * Scans the last segment and truncates the record partially written by a crash, if any.
+     *
+     * @return The end position of the last valid record.
+     */
+    private long recover(FileChannel channel) throws IOException {
+        final long channelSize = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        long position = 0;
+        while (position + RECORD_HEADER_SIZE <= channelSize) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            final int length = header.getInt();
+            final int checksum = header.getInt();
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > channelSize) {
+                break;
+            }
+            final ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + RECORD_HEADER_SIZE);
+            final CRC32 crc32 = new CRC32();
+            crc32.update(payload.array());
+            if ((int) crc32.getValue() != checksum) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (position < channelSize) {
+            LOG.warn("Truncating {} bytes of incomplete records from spool {}", channelSize - position, directory);
+            channel.truncate(position);
+        }
+        return position;
+    }
+
+    private void rollSegment() throws IOException {
+        writeChannel.force(true);
+        writeChannel.close();
+        segmentSizes.put(writeSegment, writePosition);
+        writeSegment++;
+        final Path segmentPath = segmentPath(writeSegment);
+        writeChannel = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writePosition = 0;
+        segments.put(writeSegment, segmentPath);
+    }
+
+    private void readCheckpoint() throws IOException {
+        final Path checkpointPath = directory.resolve(CHECKPOINT_FILE_NAME);
+        if (Files.exists(checkpointPath)) {
+            final ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(checkpointPath));
+            if (checkpoint.remaining() >= 16) {
+                commitSegment = checkpoint.getLong();
+                commitPosition = checkpoint.getLong();
+                return;
+            }
+            LOG.warn("Ignoring invalid checkpoint of spool {}", directory);
+        }
+        commitSegment = segments.isEmpty() ? 0 : segments.firstKey();
+        commitPosition = 0;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        final ByteBuffer checkpoint = ByteBuffer.allocate(16);
+        checkpoint.putLong(commitSegment).putLong(commitPosition);
+        final Path checkpointTempPath = directory.resolve(CHECKPOINT_TEMP_FILE_NAME);
+        Files.write(checkpointTempPath, checkpoint.array());
+        Files.move(checkpointTempPath, directory.resolve(CHECKPOINT_FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format(SEGMENT_NAME_FORMAT, segment));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of spool segment");
+            }
+        }
+    }
+
+    /**
+     * A record read from the {@link SegmentSpool}.
+     *
+     * @since 2.1.0
+     */
+    public static class Entry {
+
+        private final byte[] payload;
+        private final long segment;
+        private final long nextPosition;
+
+        private Entry(byte[] payload, long segment, long nextPosition) {
+            this.payload = payload;
+            this.segment = segment;
+            this.nextPosition = nextPosition;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.listener.error;
+
+import com.codahale.metrics.Counter;
+import org.apache.camel.CamelContext;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.camel.application.MetricsCamel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Category(JUnitTests.class)
+public class DeadLetterReplayerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<String> replayedBodies = new CopyOnWriteArrayList<>();
+
+    private DeadLetterStore deadLetterStore;
+    private CamelContext camelContext;
+    private DeadLetterReplayer deadLetterReplayer;
+    private Counter replayedSuccess;
+    private Counter replayedError;
+
+    @Before
+    public void setUp() throws Exception {
+        deadLetterStore = new DeadLetterStore(temporaryFolder.getRoot().getPath(), 7, 100, false);
+        deadLetterStore.open();
+
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+
+            @Override
+            public void configure() {
+                from("direct:replay").process(exchange -> {
+                    if ("true".equals(exchange.getIn().getHeader("fail", String.class))) {
+                        throw new IllegalStateException("Replay failed");
+                    }
+                    replayedBodies.add(new String(exchange.getIn().getBody(byte[].class), StandardCharsets.UTF_8));
+                });
+            }
+        });
+        camelContext.start();
+
+        replayedSuccess = new Counter();
+        replayedError = new Counter();
+        MetricsCamel metricsCamel = Mockito.mock(MetricsCamel.class);
+        Mockito.when(metricsCamel.getErrorReplayedSuccess()).thenReturn(replayedSuccess);
+        Mockito.when(metricsCamel.getErrorReplayedError()).thenReturn(replayedError);
+        deadLetterReplayer = new DeadLetterReplayer(deadLetterStore, camelContext, "direct:replay", metricsCamel);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deadLetterReplayer.close();
+        camelContext.stop();
+        deadLetterStore.close();
+    }
+
+    @Test
+    public void replayMarksReplayed() throws Exception {
+        deadLetterStore.append(deadLetter("client-1", false));
+        deadLetterStore.append(deadLetter("client-2", false));
+
+        DeadLetterReplayer.ReplayResult replayResult = deadLetterReplayer.replay(new DeadLetterFilter(), 10, 0);
+
+        Assert.assertEquals(2, replayResult.getSelected());
+        Assert.assertEquals(2, replayResult.getReplayed());
+        Assert.assertEquals(0, replayResult.getFailed());
+        Assert.assertEquals(2, replayedSuccess.getCount());
+        Assert.assertEquals(2, replayedBodies.size());
+        Assert.assertTrue(replayedBodies.contains("body-client-1"));
+        Assert.assertTrue(deadLetterStore.find(new DeadLetterFilter(), 10).isEmpty());
+
+        // Already replayed dead letters are not replayed again
+        Assert.assertEquals(0, deadLetterReplayer.replay(new DeadLetterFilter(), 10, 0).getSelected());
+    }
+
+    @Test
+    public void failedReplayKeepsDeadLetter() throws Exception {
+        deadLetterStore.append(deadLetter("client-1", true));
+        deadLetterStore.append(deadLetter("client-2", false));
+
+        DeadLetterReplayer.ReplayResult replayResult = deadLetterReplayer.replay(new DeadLetterFilter(), 10, 0);
+
+        Assert.assertEquals(1, replayResult.getReplayed());
+        Assert.assertEquals(1, replayResult.getFailed());
+        Assert.assertEquals(1, replayedError.getCount());
+        List<DeadLetter> pending = deadLetterStore.find(new DeadLetterFilter(), 10);
+        Assert.assertEquals(1, pending.size());
+        Assert.assertEquals("client-1", pending.get(0).getClientId());
+    }
+
+    @Test
+    public void replayFilteredAndLimited() throws Exception {
+        deadLetterStore.append(deadLetter("client-1", false));
+        deadLetterStore.append(deadLetter("client-2", false));
+        deadLetterStore.append(deadLetter("client-2", false));
+
+        Assert.assertEquals(1, deadLetterReplayer.replay(new DeadLetterFilter().setClientId("client-2"), 1, 0).getReplayed());
+        Assert.assertEquals(1, deadLetterStore.find(new DeadLetterFilter().setClientId("client-2"), 10).size());
+        Assert.assertEquals(2, deadLetterStore.find(new DeadLetterFilter(), 10).size());
+        Assert.assertEquals(1, replayedBodies.size());
+    }
+
+    @Test
+    public void replayIsRateLimited() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            deadLetterStore.append(deadLetter("client-" + i, false));
+        }
+
+        long start = System.nanoTime();
+        deadLetterReplayer.replay(new DeadLetterFilter(), 10, 20);
+
+        // 3 dead letters at 20 per second take at least 2 intervals of 50 ms
+        Assert.assertTrue(System.nanoTime() - start >= 100_000_000L);
+        Assert.assertEquals(3, replayedBodies.size());
+    }
+
+    @Test
+    public void submittedReplayCanBePolled() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            deadLetterStore.append(deadLetter("client-" + i, false));
+        }
+
+        DeadLetterReplayer.ReplayStatus replayStatus = deadLetterReplayer.submit(new DeadLetterFilter(), 10, 20);
+
+        Assert.assertFalse(replayStatus.isDone());
+        Assert.assertSame(replayStatus, deadLetterReplayer.getReplayStatus(replayStatus.getId()));
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!replayStatus.isDone() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(DeadLetterReplayer.ReplayState.DONE, replayStatus.getState());
+        Assert.assertEquals(3, replayStatus.getResult().getReplayed());
+        Assert.assertNull(replayStatus.getError());
+        Assert.assertEquals(3, replayedBodies.size());
+        Assert.assertNull(deadLetterReplayer.getReplayStatus("unknown"));
+    }
+
+    private DeadLetter deadLetter(String clientId, boolean fail) {
+        DeadLetter deadLetter = new DeadLetter();
+        deadLetter.setClientId(clientId);
+        deadLetter.setChannel("telemetry/" + clientId);
+        deadLetter.getHeaders().put("fail", Boolean.toString(fail));
+        deadLetter.setBody(("body-" + clientId).getBytes(StandardCharsets.UTF_8));
+        return deadLetter;
+    }
+}
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.listener.error;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Category(JUnitTests.class)
+public class DeadLetterStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void appendAndRead() throws Exception {
+        try (DeadLetterStore store = open(7, 100)) {
+            DeadLetter deadLetter = deadLetter("client-1", "telemetry/a");
+            deadLetter.setErrorMessage(repeat('e', 10000));
+            deadLetter.getHeaders().put("session", repeat('s', 70000));
+
+            String id = store.append(deadLetter);
+
+            DeadLetter read = store.read(id);
+            Assert.assertEquals(id, read.getId());
+            Assert.assertEquals(BigInteger.ONE, read.getScopeId().getId());
+            Assert.assertEquals("client-1", read.getClientId());
+            Assert.assertEquals("telemetry/a", read.getChannel());
+            Assert.assertEquals("java.lang.IllegalStateException", read.getErrorClass());
+            // Values not indexed are stored in full
+            Assert.assertEquals(repeat('e', 10000), read.getErrorMessage());
+            Assert.assertEquals(repeat('s', 70000), read.getHeaders().get("session"));
+            Assert.assertEquals("body-client-1", new String(read.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void findByFilterAndReplayedMarker() throws Exception {
+        try (DeadLetterStore store = open(7, 100)) {
+            String id1 = store.append(deadLetter("client-1", "telemetry/a"));
+            store.append(deadLetter("client-2", "telemetry/b"));
+            store.append(deadLetter("client-1", "other/c"));
+
+            List<DeadLetter> found = store.find(new DeadLetterFilter().setClientId("client-1"), 10);
+            Assert.assertEquals(2, found.size());
+            Assert.assertEquals(1, store.find(new DeadLetterFilter().setChannelPrefix("telemetry/b"), 10).size());
+            Assert.assertEquals(2, store.find(new DeadLetterFilter(), 2).size());
+
+            store.markReplayed(id1);
+            Assert.assertEquals(1, store.find(new DeadLetterFilter().setClientId("client-1"), 10).size());
+            Assert.assertEquals(2, store.find(new DeadLetterFilter().setClientId("client-1").setIncludeReplayed(true), 10).size());
+        }
+    }
+
+    @Test
+    public void reopenKeepsIndexAndReplayedMarkers() throws Exception {
+        String id1;
+        try (DeadLetterStore store = open(7, 100)) {
+            id1 = store.append(deadLetter("client-1", "telemetry/a"));
+            store.append(deadLetter("client-2", "telemetry/b"));
+            store.markReplayed(id1);
+        }
+
+        try (DeadLetterStore store = open(7, 100)) {
+            Assert.assertEquals(2, store.size());
+            List<DeadLetter> found = store.find(new DeadLetterFilter(), 10);
+            Assert.assertEquals(1, found.size());
+            Assert.assertEquals("client-2", found.get(0).getClientId());
+            Assert.assertTrue(store.read(id1).isReplayed());
+        }
+    }
+
+    @Test
+    public void reopenIndexesDataNotIndexedAndTruncatesTornRecord() throws Exception {
+        try (DeadLetterStore store = open(7, 100)) {
+            store.append(deadLetter("client-1", "telemetry/a"));
+            store.append(deadLetter("client-2", "telemetry/b"));
+        }
+        // Lose the index and tear the data file, as after a crash
+        for (Path path : files(".index")) {
+            Files.delete(path);
+        }
+        for (Path path : files(".data")) {
+            Files.write(path, new byte[]{0, 0, 1, 0, 1, 2}, StandardOpenOption.APPEND);
+        }
+
+        try (DeadLetterStore store = open(7, 100)) {
+            Assert.assertEquals(2, store.size());
+            String id = store.append(deadLetter("client-3", "telemetry/c"));
+            Assert.assertEquals("client-3", store.read(id).getClientId());
+        }
+    }
+
+    @Test
+    public void retentionDeletesOldSegments() throws Exception {
+        try (DeadLetterStore store = open(7, 100)) {
+            store.append(deadLetter("client-1", "telemetry/a"));
+            store.append(deadLetter("client-2", "telemetry/b"));
+        }
+        // Move the stored dead letters to an old day
+        for (Path path : files("")) {
+            String fileName = path.getFileName().toString();
+            Files.move(path, path.resolveSibling("20000101" + fileName.substring(fileName.indexOf('.'))));
+        }
+
+        try (DeadLetterStore store = open(7, 100)) {
+            Assert.assertEquals(0, store.size());
+            Assert.assertTrue(files("").isEmpty());
+
+            store.append(deadLetter("client-3", "telemetry/c"));
+            Assert.assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void fullStoreRejectsDeadLetters() throws Exception {
+        try (DeadLetterStore store = open(7, 2)) {
+            store.append(deadLetter("client-1", "telemetry/a"));
+            store.append(deadLetter("client-2", "telemetry/b"));
+            try {
+                store.append(deadLetter("client-3", "telemetry/c"));
+                Assert.fail("The store should be full");
+            } catch (IOException e) {
+                // Expected
+            }
+            Assert.assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    public void oversizedIndexedValuesAreRejected() throws Exception {
+        try (DeadLetterStore store = open(7, 100)) {
+            try {
+                store.append(deadLetter("client-1", repeat('c', 4097)));
+                Assert.fail("The channel should be rejected");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+            Assert.assertEquals(0, store.size());
+
+            String id = store.append(deadLetter("client-1", repeat('c', 4096)));
+            Assert.assertEquals(repeat('c', 4096), store.read(id).getChannel());
+        }
+    }
+
+    private DeadLetterStore open(int retentionDays, int maxEntries) throws IOException {
+        DeadLetterStore store = new DeadLetterStore(temporaryFolder.getRoot().getPath(), retentionDays, maxEntries, false);
+        store.open();
+        return store;
+    }
+
+    private DeadLetter deadLetter(String clientId, String channel) {
+        DeadLetter deadLetter = new DeadLetter();
+        deadLetter.setScopeId(new KapuaEid(BigInteger.ONE));
+        deadLetter.setClientId(clientId);
+        deadLetter.setChannel(channel);
+        deadLetter.setErrorClass("java.lang.IllegalStateException");
+        deadLetter.setErrorMessage("error");
+        deadLetter.getHeaders().put("header", "value");
+        deadLetter.setBody(("body-" + clientId).getBytes(StandardCharsets.UTF_8));
+        return deadLetter;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(temporaryFolder.getRoot().toPath(), "*" + suffix)) {
+            List<Path> files = new ArrayList<>();
+            paths.forEach(files::add);
+            return files;
+        }
+    }
+
+    private String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
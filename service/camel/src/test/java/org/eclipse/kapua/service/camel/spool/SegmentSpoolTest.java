@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.camel.spool;
+
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Category(JUnitTests.class)
+public class SegmentSpoolTest {
+
+    private static final int RECORD_SIZE = 8 + 10;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void appendPollCommitInOrder() throws Exception {
+        try (SegmentSpool spool = open(temporaryFolder.getRoot().toPath(), 1024, 1024)) {
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(spool.append(record(i), 0, TimeUnit.MILLISECONDS));
+            }
+            Assert.assertEquals(10 * RECORD_SIZE, spool.getPendingSize());
+
+            SegmentSpool.Entry entry = null;
+            for (int i = 0; i < 10; i++) {
+                entry = spool.poll(0, TimeUnit.MILLISECONDS);
+                Assert.assertEquals(text(i), new String(entry.getPayload(), StandardCharsets.UTF_8));
+            }
+            Assert.assertNull(spool.poll(0, TimeUnit.MILLISECONDS));
+
+            spool.commit(entry);
+            Assert.assertEquals(0, spool.getPendingSize());
+        }
+    }
+
+    @Test
+    public void reopenReplaysUncommittedRecords() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (SegmentSpool spool = open(directory, 64, 1024)) {
+            for (int i = 0; i < 6; i++) {
+                spool.append(record(i), 0, TimeUnit.MILLISECONDS);
+            }
+            spool.poll(0, TimeUnit.MILLISECONDS);
+            spool.commit(spool.poll(0, TimeUnit.MILLISECONDS));
+            // Read but not committed
+            spool.poll(0, TimeUnit.MILLISECONDS);
+        }
+
+        try (SegmentSpool spool = open(directory, 64, 1024)) {
+            Assert.assertEquals(4 * RECORD_SIZE, spool.getPendingSize());
+            for (int i = 2; i < 6; i++) {
+                Assert.assertEquals(text(i), new String(spool.poll(0, TimeUnit.MILLISECONDS).getPayload(), StandardCharsets.UTF_8));
+            }
+            Assert.assertNull(spool.poll(0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void reopenTruncatesTornRecord() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (SegmentSpool spool = open(directory, 1024, 1024)) {
+            spool.append(record(0), 0, TimeUnit.MILLISECONDS);
+            spool.append(record(1), 0, TimeUnit.MILLISECONDS);
+        }
+        // A record partially written by a crash
+        Path segment = segmentPath(directory, 0);
+        Files.write(segment, new byte[]{0, 0, 0, 10, 1, 2, 3, 4, 'x'}, StandardOpenOption.APPEND);
+
+        try (SegmentSpool spool = open(directory, 1024, 1024)) {
+            Assert.assertEquals(2L * RECORD_SIZE, Files.size(segment));
+            Assert.assertEquals(2 * RECORD_SIZE, spool.getPendingSize());
+            spool.poll(0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(text(1), new String(spool.poll(0, TimeUnit.MILLISECONDS).getPayload(), StandardCharsets.UTF_8));
+            Assert.assertNull(spool.poll(0, TimeUnit.MILLISECONDS));
+
+            spool.append(record(2), 0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(text(2), new String(spool.poll(0, TimeUnit.MILLISECONDS).getPayload(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void corruptedTailOfRolledSegmentIsSkippedAndReleased() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (SegmentSpool spool = open(directory, 2 * RECORD_SIZE, 1024)) {
+            for (int i = 0; i < 4; i++) {
+                spool.append(record(i), 0, TimeUnit.MILLISECONDS);
+            }
+        }
+        byte[] garbage = new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0, 0, 1, 2, 3};
+        Files.write(segmentPath(directory, 0), garbage, StandardOpenOption.APPEND);
+
+        try (SegmentSpool spool = open(directory, 2 * RECORD_SIZE, 1024)) {
+            Assert.assertEquals(4 * RECORD_SIZE + garbage.length, spool.getPendingSize());
+
+            SegmentSpool.Entry entry = null;
+            for (int i = 0; i < 4; i++) {
+                entry = spool.poll(0, TimeUnit.MILLISECONDS);
+                Assert.assertEquals(text(i), new String(entry.getPayload(), StandardCharsets.UTF_8));
+            }
+            spool.commit(entry);
+
+            Assert.assertEquals(0, spool.getPendingSize());
+            Assert.assertFalse(Files.exists(segmentPath(directory, 0)));
+        }
+    }
+
+    @Test
+    public void committedSegmentsAreDeleted() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (SegmentSpool spool = open(directory, 2 * RECORD_SIZE, 1024)) {
+            for (int i = 0; i < 6; i++) {
+                spool.append(record(i), 0, TimeUnit.MILLISECONDS);
+            }
+            Assert.assertTrue(Files.exists(segmentPath(directory, 0)));
+            Assert.assertTrue(Files.exists(segmentPath(directory, 2)));
+
+            spool.poll(0, TimeUnit.MILLISECONDS);
+            spool.poll(0, TimeUnit.MILLISECONDS);
+            spool.commit(spool.poll(0, TimeUnit.MILLISECONDS));
+
+            Assert.assertFalse(Files.exists(segmentPath(directory, 0)));
+            Assert.assertTrue(Files.exists(segmentPath(directory, 1)));
+            Assert.assertEquals(3 * RECORD_SIZE, spool.getPendingSize());
+        }
+    }
+
+    @Test
+    public void appendToFullSpoolWaitsForCommit() throws Exception {
+        try (SegmentSpool spool = open(temporaryFolder.getRoot().toPath(), 1024, 2 * RECORD_SIZE)) {
+            spool.append(record(0), 0, TimeUnit.MILLISECONDS);
+            spool.append(record(1), 0, TimeUnit.MILLISECONDS);
+
+            Assert.assertFalse(spool.append(record(2), 10, TimeUnit.MILLISECONDS));
+
+            CountDownLatch started = new CountDownLatch(1);
+            AtomicBoolean appended = new AtomicBoolean();
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                try {
+                    appended.set(spool.append(record(2), 10, TimeUnit.SECONDS));
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            producer.start();
+            started.await();
+
+            spool.commit(spool.poll(0, TimeUnit.MILLISECONDS));
+            producer.join(TimeUnit.SECONDS.toMillis(10));
+
+            Assert.assertTrue(appended.get());
+            Assert.assertEquals(2 * RECORD_SIZE, spool.getPendingSize());
+        }
+    }
+
+    @Test
+    public void concurrentSyncedAppends() throws Exception {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (SegmentSpool spool = open(directory, 4 * RECORD_SIZE, 1024 * RECORD_SIZE)) {
+            Thread[] producers = new Thread[4];
+            for (int p = 0; p < producers.length; p++) {
+                producers[p] = new Thread(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        try {
+                            spool.append(record(i), 0, TimeUnit.MILLISECONDS);
+                        } catch (IOException | InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+                producers[p].start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            Assert.assertEquals(200 * RECORD_SIZE, spool.getPendingSize());
+        }
+
+        try (SegmentSpool spool = open(directory, 4 * RECORD_SIZE, 1024 * RECORD_SIZE)) {
+            int count = 0;
+            while (spool.poll(0, TimeUnit.MILLISECONDS) != null) {
+                count++;
+            }
+            Assert.assertEquals(200, count);
+        }
+    }
+
+    private SegmentSpool open(Path directory, long segmentSize, long maxSize) throws IOException {
+        SegmentSpool spool = new SegmentSpool(directory, segmentSize, maxSize, true, 0);
+        spool.open();
+        return spool;
+    }
+
+    private Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%019d.segment", segment));
+    }
+
+    private byte[] record(int i) {
+        return text(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String text(int i) {
+        return String.format("record-%03d", i);
+    }
+}
@@ -35,6 +35,9 @@ public class MessageConstants {
     public static final String HEADER_KAPUA_SESSION = "KAPUA_SESSION";
     public static final String HEADER_KAPUA_BROKER_CONTEXT = "KAPUA_BROKER_CONTEXT";
     public static final String HEADER_KAPUA_PROCESSING_EXCEPTION = "KAPUA_PROCESSING_EXCEPTION";
+    public static final String HEADER_KAPUA_PROCESSING_ERROR_CLASS = "KAPUA_PROCESSING_ERROR_CLASS";
+    public static final String HEADER_KAPUA_PROCESSING_ERROR_MESSAGE = "KAPUA_PROCESSING_ERROR_MESSAGE";
+    public static final String HEADER_KAPUA_THROTTLED_COUNT = "KAPUA_THROTTLED_COUNT";
     public static final String HEADER_KAPUA_MESSAGE_TYPE = "KAPUA_MESSAGE_TYPE";
     public static final String HEADER_KAPUA_ACCOUNT_NAME = "HEADER_KAPUA_ACCOUNT_NAME";
 
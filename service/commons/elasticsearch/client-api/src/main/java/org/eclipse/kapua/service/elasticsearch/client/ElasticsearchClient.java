@@ -18,8 +18,14 @@ import org.eclipse.kapua.service.elasticsearch.client.configuration.Elasticsearc
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientInitializationException;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientUnavailableException;
+import org.eclipse.kapua.service.elasticsearch.client.model.BulkInsertRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.BulkInsertResponse;
 import org.eclipse.kapua.service.elasticsearch.client.model.BulkUpdateRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.BulkUpdateResponse;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramResult;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.IndexRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.IndexResponse;
 import org.eclipse.kapua.service.elasticsearch.client.model.InsertRequest;
@@ -27,8 +33,11 @@ import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
 import org.eclipse.kapua.service.elasticsearch.client.model.ResultList;
 import org.eclipse.kapua.service.elasticsearch.client.model.UpdateRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.UpdateResponse;
+import org.eclipse.kapua.service.elasticsearch.client.model.VersionedDocument;
 
 import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Elasticsearch client definition.
@@ -133,6 +142,20 @@ public interface ElasticsearchClient<C extends Closeable> {
      */
     InsertResponse insert(InsertRequest insertRequest) throws ClientException;
 
+    /**
+     * Bulk inserts.
+     * <p>
+     * All the {@link InsertRequest}s are sent with a single call to Elasticsearch.
+     * The returned {@link BulkInsertResponse} contains one {@link InsertResponse} for each {@link InsertRequest}, in the same order,
+     * so that the caller can check the outcome of each document.
+     *
+     * @param bulkInsertRequest The {@link BulkInsertRequest} to perform.
+     * @return the {@link BulkInsertResponse} from Elasticsearch
+     * @throws ClientException if error occurs while inserting documents.
+     * @since 2.1.0
+     */
+    BulkInsertResponse insert(BulkInsertRequest bulkInsertRequest) throws ClientException;
+
     /**
      * Upserts a document.
      *
@@ -179,6 +202,57 @@ public interface ElasticsearchClient<C extends Closeable> {
      */
     <T> ResultList<T> query(String index, Object query, Class<T> clazz) throws ClientException;
 
+    /**
+     * Computes a date histogram of the documents matching the query.
+     *
+     * @param index                The index to look for.
+     * @param query                The query to perform.
+     * @param dateHistogramRequest The {@link DateHistogramRequest}.
+     * @return The {@link DateHistogramBucket}s, ordered by {@link DateHistogramBucket#getKey()}.
+     * @throws ClientException if error occurs while aggregating.
+     * @since 2.1.0
+     */
+    List<DateHistogramBucket> dateHistogram(String index, Object query, DateHistogramRequest dateHistogramRequest) throws ClientException;
+
+    /**
+     * Computes a page of the composite histogram of the documents matching the query.
+     * <p>
+     * Documents are bucketed by the term fields and the date field at once, so that the stats of many fields
+     * of many term values are computed with a single aggregation, paged by {@link CompositeHistogramRequest#getAfterKey()}.
+     *
+     * @param index                     The index to look for.
+     * @param query                     The query to perform.
+     * @param compositeHistogramRequest The {@link CompositeHistogramRequest}.
+     * @return The {@link CompositeHistogramResult} page.
+     * @throws ClientException if error occurs while aggregating.
+     * @since 2.1.0
+     */
+    CompositeHistogramResult compositeHistogram(String index, Object query, CompositeHistogramRequest compositeHistogramRequest) throws ClientException;
+
+    /**
+     * Gets a document by id, with the sequence number and primary term needed to write it back conditionally.
+     *
+     * @param index The index to look for.
+     * @param id    The id of the document.
+     * @return The {@link VersionedDocument}, or {@code null} if it does not exist.
+     * @throws ClientException if error occurs while getting.
+     * @since 2.1.0
+     */
+    VersionedDocument getVersioned(String index, String id) throws ClientException;
+
+    /**
+     * Writes a document only if it did not change since it was read.
+     *
+     * @param index    The index to write to.
+     * @param id       The id of the document.
+     * @param source   The document source.
+     * @param expected The {@link VersionedDocument} previously read, or {@code null} if the document must not exist yet.
+     * @return {@code true} if the document has been written, {@code false} if it has been changed (or created) concurrently.
+     * @throws ClientException if error occurs while writing.
+     * @since 2.1.0
+     */
+    boolean putIfUnchanged(String index, String id, Map<String, Object> source, VersionedDocument expected) throws ClientException;
+
     /**
      * Counts by query.
      *
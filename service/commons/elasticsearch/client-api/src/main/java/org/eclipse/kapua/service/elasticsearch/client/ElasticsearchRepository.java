@@ -30,6 +30,7 @@ import org.eclipse.kapua.service.storable.exception.MappingException;
 import org.eclipse.kapua.service.storable.model.Storable;
 import org.eclipse.kapua.service.storable.model.StorableListResult;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
+import org.eclipse.kapua.service.storable.model.query.StorableCursor;
 import org.eclipse.kapua.service.storable.model.query.StorableQuery;
 import org.eclipse.kapua.service.storable.model.query.predicate.IdsPredicate;
 import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicateFactory;
@@ -90,6 +91,18 @@ public abstract class ElasticsearchRepository<
         return doFind(scopeId, indexResolver(scopeId), id);
     }
 
+    @Override
+    public List<T> find(KapuaId scopeId, List<StorableId> ids) {
+        final Q idsQuery = storableFactory.newQuery(scopeId);
+        idsQuery.setLimit(ids.size());
+
+        final IdsPredicate idsPredicate = storablePredicateFactory.newIdsPredicate();
+        idsPredicate.setIds(ids);
+        idsQuery.setPredicate(idsPredicate);
+
+        return query(idsQuery).getItems();
+    }
+
     protected T doFind(KapuaId scopeId, String indexName, StorableId id) {
         try {
             final Q idsQuery = storableFactory.newQuery(scopeId);
@@ -122,6 +135,9 @@ public abstract class ElasticsearchRepository<
         try {
             final String indexName = indexResolver(query.getScopeId());
             synchIndex(indexName);
+            if (query.isCursorPaging()) {
+                return queryWithCursor(indexName, query);
+            }
             final ResultList<T> partialResult = elasticsearchClientProviderInstance.getElasticsearchClient().query(indexName, query, clazz);
             final L res = storableFactory.newListResult();
             res.addItems(partialResult.getResult());
@@ -133,6 +149,32 @@ public abstract class ElasticsearchRepository<
         }
     }
 
+    /**
+     * Queries a page of a cursor pagination.
+     * <p>
+     * The {@link StorableListResult#getNextKey()} is the encoded {@link StorableCursor} of the next page and it is {@code null} on the last page.
+     *
+     * @param indexName The index to query.
+     * @param query     The {@link StorableQuery} to perform.
+     * @return The page of results.
+     * @throws ClientException if error occurs while querying.
+     * @since 2.1.0
+     */
+    private L queryWithCursor(String indexName, Q query) throws ClientException {
+        final ResultList<T> partialResult = elasticsearchClientProviderInstance.getElasticsearchClient().query(indexName, query, clazz);
+
+        final L res = storableFactory.newListResult();
+        res.addItems(partialResult.getResult());
+        res.setTotalCount(partialResult.getTotalCount());
+
+        final boolean pageFull = query.getLimit() != null && partialResult.getResult().size() >= query.getLimit();
+        if (pageFull && partialResult.getSearchAfter() != null) {
+            res.setNextKey(new StorableCursor(partialResult.getSearchAfter()).encode());
+            res.setLimitExceeded(true);
+        }
+        return res;
+    }
+
     public static <T extends Storable> void setLimitExceed(StorableQuery query, boolean hitsExceedsTotalCount, StorableListResult<T> list) {
         int offset = query.getOffset() != null ? query.getOffset() : 0;
         if (query.getLimit() != null) {
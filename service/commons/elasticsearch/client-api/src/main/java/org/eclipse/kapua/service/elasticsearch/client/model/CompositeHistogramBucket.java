@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single bucket of a {@link CompositeHistogramRequest}.
+ *
+ * @since 2.1.0
+ */
+public class CompositeHistogramBucket {
+
+    private final Map<String, String> terms;
+    private final List<DateHistogramBucket> stats;
+
+    /**
+     * Constructor.
+     *
+     * @param terms The values of the {@link CompositeHistogramRequest#getTermFields()} of the bucket, by field.
+     * @param stats The stats of each {@link CompositeHistogramRequest#getStatsFields()} in the bucket, in the same order.
+     * @since 2.1.0
+     */
+    public CompositeHistogramBucket(Map<String, String> terms, List<DateHistogramBucket> stats) {
+        this.terms = terms;
+        this.stats = stats;
+    }
+
+    /**
+     * Gets the value of a term field of the bucket.
+     *
+     * @param termField The term field.
+     * @return The value of the term field.
+     * @since 2.1.0
+     */
+    public String getTerm(String termField) {
+        return terms.get(termField);
+    }
+
+    /**
+     * Gets the stats of each {@link CompositeHistogramRequest#getStatsFields()} in the bucket.
+     * <p>
+     * The {@link DateHistogramBucket#getKey()} of each of them is the start of the date bucket.
+     *
+     * @return The stats of each stats field, in the same order of the {@link CompositeHistogramRequest#getStatsFields()}.
+     * @since 2.1.0
+     */
+    public List<DateHistogramBucket> getStats() {
+        return stats;
+    }
+}
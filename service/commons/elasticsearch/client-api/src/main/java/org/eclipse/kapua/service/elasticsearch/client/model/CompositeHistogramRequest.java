@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link CompositeHistogramRequest} definition.
+ * <p>
+ * It buckets the documents matching a query by the values of some term fields and by a date field,
+ * and computes the stats (count, min, max, avg and sum) of each numeric field in each bucket.
+ * <p>
+ * Buckets are returned a page at a time: the next page starts after the {@link CompositeHistogramResult#getAfterKey()} of the previous one.
+ *
+ * @since 2.1.0
+ */
+public class CompositeHistogramRequest {
+
+    private final List<String> termFields;
+    private final String dateField;
+    private final String interval;
+    private final List<String> statsFields;
+    private final int pageSize;
+    private Map<String, Object> afterKey;
+
+    /**
+     * Constructor.
+     *
+     * @param termFields  The term fields to bucket the documents by.
+     * @param dateField   The date field to bucket the documents by.
+     * @param interval    The fixed interval of each date bucket (i.e. {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}).
+     * @param statsFields The numeric fields of which to compute the stats.
+     * @param pageSize    The max number of buckets of each page.
+     * @since 2.1.0
+     */
+    public CompositeHistogramRequest(List<String> termFields, String dateField, String interval, List<String> statsFields, int pageSize) {
+        this.termFields = termFields;
+        this.dateField = dateField;
+        this.interval = interval;
+        this.statsFields = statsFields;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Gets the term fields to bucket the documents by.
+     *
+     * @return The term fields to bucket the documents by.
+     * @since 2.1.0
+     */
+    public List<String> getTermFields() {
+        return termFields;
+    }
+
+    /**
+     * Gets the date field to bucket the documents by.
+     *
+     * @return The date field to bucket the documents by.
+     * @since 2.1.0
+     */
+    public String getDateField() {
+        return dateField;
+    }
+
+    /**
+     * Gets the fixed interval of each date bucket.
+     *
+     * @return The fixed interval of each date bucket.
+     * @since 2.1.0
+     */
+    public String getInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the numeric fields of which to compute the stats.
+     *
+     * @return The numeric fields of which to compute the stats.
+     * @since 2.1.0
+     */
+    public List<String> getStatsFields() {
+        return statsFields;
+    }
+
+    /**
+     * Gets the max number of buckets of each page.
+     *
+     * @return The max number of buckets of each page.
+     * @since 2.1.0
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Gets the key of the bucket after which the page starts.
+     *
+     * @return The key of the bucket after which the page starts, or {@code null} for the first page.
+     * @since 2.1.0
+     */
+    public Map<String, Object> getAfterKey() {
+        return afterKey;
+    }
+
+    /**
+     * Sets the key of the bucket after which the page starts.
+     *
+     * @param afterKey The key of the bucket after which the page starts, or {@code null} for the first page.
+     * @since 2.1.0
+     */
+    public void setAfterKey(Map<String, Object> afterKey) {
+        this.afterKey = afterKey;
+    }
+}
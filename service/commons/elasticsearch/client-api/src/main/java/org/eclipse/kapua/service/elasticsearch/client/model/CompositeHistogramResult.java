@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of {@link CompositeHistogramBucket}s of a {@link CompositeHistogramRequest}.
+ *
+ * @since 2.1.0
+ */
+public class CompositeHistogramResult {
+
+    private final List<CompositeHistogramBucket> buckets = new ArrayList<>();
+    private Map<String, Object> afterKey;
+
+    /**
+     * Gets the {@link CompositeHistogramBucket}s of the page.
+     *
+     * @return The {@link CompositeHistogramBucket}s of the page.
+     * @since 2.1.0
+     */
+    public List<CompositeHistogramBucket> getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Gets the key to set as {@link CompositeHistogramRequest#setAfterKey(Map)} to get the next page.
+     *
+     * @return The key of the last bucket of the page, or {@code null} if this is the last page.
+     * @since 2.1.0
+     */
+    public Map<String, Object> getAfterKey() {
+        return afterKey;
+    }
+
+    /**
+     * Sets the key to set as {@link CompositeHistogramRequest#setAfterKey(Map)} to get the next page.
+     *
+     * @param afterKey The key of the last bucket of the page, or {@code null} if this is the last page.
+     * @since 2.1.0
+     */
+    public void setAfterKey(Map<String, Object> afterKey) {
+        this.afterKey = afterKey;
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.model;
+
+/**
+ * A single bucket of a {@link DateHistogramRequest}.
+ * <p>
+ * The stats are {@code null} when no document of the bucket has the stats field.
+ *
+ * @since 2.1.0
+ */
+public class DateHistogramBucket {
+
+    private final long key;
+    private final long docCount;
+    private final long count;
+    private final Double min;
+    private final Double max;
+    private final Double avg;
+    private final Double sum;
+
+    /**
+     * Constructor.
+     *
+     * @param key      The start of the bucket, in milliseconds since the epoch.
+     * @param docCount The number of documents in the bucket.
+     * @param count    The number of values of the stats field in the bucket.
+     * @param min      The min value of the stats field.
+     * @param max      The max value of the stats field.
+     * @param avg      The average value of the stats field.
+     * @param sum      The sum of the values of the stats field.
+     * @since 2.1.0
+     */
+    public DateHistogramBucket(long key, long docCount, long count, Double min, Double max, Double avg, Double sum) {
+        this.key = key;
+        this.docCount = docCount;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+        this.sum = sum;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public long getDocCount() {
+        return docCount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public Double getAvg() {
+        return avg;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.model;
+
+/**
+ * {@link DateHistogramRequest} definition.
+ * <p>
+ * It buckets the documents matching a query by a date field and computes the stats (count, min, max, avg and sum) of a numeric field in each bucket.
+ * <p>
+ * When the documents are already pre-aggregated (i.e. rollups) the stats of each bucket are merged from the count, min, max and sum fields of the documents instead.
+ *
+ * @since 2.1.0
+ */
+public class DateHistogramRequest {
+
+    private final String dateField;
+    private final String interval;
+    private final String statsField;
+    private final String countField;
+    private final String minField;
+    private final String maxField;
+    private final String sumField;
+
+    /**
+     * Constructor.
+     *
+     * @param dateField  The date field to bucket the documents by.
+     * @param interval   The fixed interval of each bucket (i.e. {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}).
+     * @param statsField The numeric field of which to compute the stats.
+     * @since 2.1.0
+     */
+    public DateHistogramRequest(String dateField, String interval, String statsField) {
+        this.dateField = dateField;
+        this.interval = interval;
+        this.statsField = statsField;
+        this.countField = null;
+        this.minField = null;
+        this.maxField = null;
+        this.sumField = null;
+    }
+
+    /**
+     * Constructor for pre-aggregated documents.
+     *
+     * @param dateField  The date field to bucket the documents by.
+     * @param interval   The fixed interval of each bucket (i.e. {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}).
+     * @param countField The numeric field with the count of the values of each document.
+     * @param minField   The numeric field with the min of the values of each document.
+     * @param maxField   The numeric field with the max of the values of each document.
+     * @param sumField   The numeric field with the sum of the values of each document.
+     * @since 2.1.0
+     */
+    public DateHistogramRequest(String dateField, String interval, String countField, String minField, String maxField, String sumField) {
+        this.dateField = dateField;
+        this.interval = interval;
+        this.statsField = null;
+        this.countField = countField;
+        this.minField = minField;
+        this.maxField = maxField;
+        this.sumField = sumField;
+    }
+
+    /**
+     * Gets the date field to bucket the documents by.
+     *
+     * @return The date field to bucket the documents by.
+     * @since 2.1.0
+     */
+    public String getDateField() {
+        return dateField;
+    }
+
+    /**
+     * Gets the fixed interval of each bucket.
+     *
+     * @return The fixed interval of each bucket.
+     * @since 2.1.0
+     */
+    public String getInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the numeric field of which to compute the stats.
+     *
+     * @return The numeric field of which to compute the stats.
+     * @since 2.1.0
+     */
+    public String getStatsField() {
+        return statsField;
+    }
+
+    /**
+     * Gets whether the documents are pre-aggregated.
+     *
+     * @return {@code true} if the stats are merged from the count, min, max and sum fields, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    public boolean isPreAggregated() {
+        return countField != null;
+    }
+
+    /**
+     * Gets the numeric field with the count of the values of each pre-aggregated document.
+     *
+     * @return The numeric field with the count of the values of each pre-aggregated document.
+     * @since 2.1.0
+     */
+    public String getCountField() {
+        return countField;
+    }
+
+    /**
+     * Gets the numeric field with the min of the values of each pre-aggregated document.
+     *
+     * @return The numeric field with the min of the values of each pre-aggregated document.
+     * @since 2.1.0
+     */
+    public String getMinField() {
+        return minField;
+    }
+
+    /**
+     * Gets the numeric field with the max of the values of each pre-aggregated document.
+     *
+     * @return The numeric field with the max of the values of each pre-aggregated document.
+     * @since 2.1.0
+     */
+    public String getMaxField() {
+        return maxField;
+    }
+
+    /**
+     * Gets the numeric field with the sum of the values of each pre-aggregated document.
+     *
+     * @return The numeric field with the sum of the values of each pre-aggregated document.
+     * @since 2.1.0
+     */
+    public String getSumField() {
+        return sumField;
+    }
+}
@@ -20,6 +20,20 @@ package org.eclipse.kapua.service.elasticsearch.client.model;
  */
 public class InsertResponse extends Response {
 
+    /**
+     * The result description.
+     *
+     * @since 2.1.0
+     */
+    private String description;
+
+    /**
+     * The insert exception, if occurred.
+     *
+     * @since 2.1.0
+     */
+    private Exception exception;
+
     /**
      * Constructor.
      *
@@ -29,6 +43,63 @@ public class InsertResponse extends Response {
      */
     public InsertResponse(String id, String index) {
         super(id, index);
+
+        setResult(true);
+    }
+
+    /**
+     * Negative result constructor (result false)
+     *
+     * @param id             The id of the result.
+     * @param index          The index
+     * @param description    The result description of the failure.
+     * @since 2.1.0
+     */
+    public InsertResponse(String id, String index, String description) {
+        this(id, index);
+
+        setResult(false);
+        setDescription(description);
+    }
+
+    /**
+     * Gets the result description.
+     *
+     * @return The result description.
+     * @since 2.1.0
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Sets the result description.
+     *
+     * @param description The result description.
+     * @since 2.1.0
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Gets the insert exception, if occurred.
+     *
+     * @return The insert exception, if occurred.
+     * @since 2.1.0
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    /**
+     * Sets the insert exception, if occurred.
+     *
+     * @param exception The insert exception, if occurred.
+     * @since 2.1.0
+     */
+    public void setException(Exception exception) {
+        this.exception = exception;
     }
 
 }
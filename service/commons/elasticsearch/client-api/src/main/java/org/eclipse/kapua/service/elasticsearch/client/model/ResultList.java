@@ -26,6 +26,7 @@ public class ResultList<T> {
     private final List<T> result;
     private final long totalCount;
     private boolean totalHitsExceedsCount; //true iff in ES there are actually more than 10k hits
+    private List<Object> searchAfter;
 
     /**
      * Constructor.
@@ -57,6 +58,26 @@ public class ResultList<T> {
         return this.totalHitsExceedsCount;
     }
 
+    /**
+     * Gets the sort values of the last result.
+     *
+     * @return The sort values of the last result, or {@code null} if not available.
+     * @since 2.1.0
+     */
+    public List<Object> getSearchAfter() {
+        return searchAfter;
+    }
+
+    /**
+     * Sets the sort values of the last result.
+     *
+     * @param searchAfter The sort values of the last result.
+     * @since 2.1.0
+     */
+    public void setSearchAfter(List<Object> searchAfter) {
+        this.searchAfter = searchAfter;
+    }
+
     /**
      * Gets the {@link List} of results.
      *
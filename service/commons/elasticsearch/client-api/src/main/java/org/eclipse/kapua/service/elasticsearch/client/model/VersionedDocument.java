@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.model;
+
+import java.util.Map;
+
+/**
+ * {@link VersionedDocument} definition.
+ * <p>
+ * It is a document read together with its sequence number and primary term, so that it can be written back only if nobody changed it in the meantime.
+ *
+ * @since 2.1.0
+ */
+public class VersionedDocument {
+
+    private final Map<String, Object> source;
+    private final long seqNo;
+    private final long primaryTerm;
+
+    /**
+     * Constructor.
+     *
+     * @param source      The document source.
+     * @param seqNo       The sequence number of the document.
+     * @param primaryTerm The primary term of the document.
+     * @since 2.1.0
+     */
+    public VersionedDocument(Map<String, Object> source, long seqNo, long primaryTerm) {
+        this.source = source;
+        this.seqNo = seqNo;
+        this.primaryTerm = primaryTerm;
+    }
+
+    /**
+     * Gets the document source.
+     *
+     * @return The document source.
+     * @since 2.1.0
+     */
+    public Map<String, Object> getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the sequence number of the document.
+     *
+     * @return The sequence number of the document.
+     * @since 2.1.0
+     */
+    public long getSeqNo() {
+        return seqNo;
+    }
+
+    /**
+     * Gets the primary term of the document.
+     *
+     * @return The primary term of the document.
+     * @since 2.1.0
+     */
+    public long getPrimaryTerm() {
+        return primaryTerm;
+    }
+}
@@ -30,7 +30,11 @@ public class ElasticsearchKeywords {
     static final String KEY_DOC_ID = "_id";
     static final String KEY_DOC_INDEX = "_index";
     static final String KEY_DOC_TYPE = "_type";
+    static final String KEY_DOC_SEQ_NO = "_seq_no";
+    static final String KEY_DOC_PRIMARY_TERM = "_primary_term";
+    static final String KEY_FOUND = "found";
 
+    static final String KEY_INDEX = "index";
     static final String KEY_ITEMS = "items";
     static final String KEY_RESULT = "result";
     static final String KEY_STATUS = "status";
@@ -39,4 +43,26 @@ public class ElasticsearchKeywords {
     static final String KEY_TOTAL = "total";
     static final String KEY_VALUE = "value";
     static final String KEY_RELATION = "relation";
+    static final String KEY_SORT = "sort";
+
+    static final String KEY_AGGREGATIONS = "aggregations";
+    static final String KEY_AGGS = "aggs";
+    static final String KEY_BUCKETS = "buckets";
+    static final String KEY_KEY = "key";
+    static final String KEY_DOC_COUNT = "doc_count";
+    static final String KEY_DATE_HISTOGRAM = "date_histogram";
+    static final String KEY_COMPOSITE = "composite";
+    static final String KEY_SOURCES = "sources";
+    static final String KEY_TERMS = "terms";
+    static final String KEY_AFTER = "after";
+    static final String KEY_AFTER_KEY = "after_key";
+    static final String KEY_FIELD = "field";
+    static final String KEY_FIXED_INTERVAL = "fixed_interval";
+    static final String KEY_STATS = "stats";
+    static final String KEY_COUNT = "count";
+    static final String KEY_MIN = "min";
+    static final String KEY_MAX = "max";
+    static final String KEY_AVG = "avg";
+    static final String KEY_SUM = "sum";
+    static final String AGGREGATION_HISTOGRAM = "histogram";
 }
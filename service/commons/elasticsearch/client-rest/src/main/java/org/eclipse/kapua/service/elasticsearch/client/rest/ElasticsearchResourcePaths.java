@@ -92,6 +92,20 @@ public class ElasticsearchResourcePaths {
         return String.format("/%s/_search", index);
     }
 
+    /**
+     * @since 2.1.0
+     */
+    public static String create(@NotNull String index, @NotNull String id) {
+        return String.format("/%s/_create/%s", index, id);
+    }
+
+    /**
+     * @since 2.1.0
+     */
+    public static String idIfUnchanged(@NotNull String index, @NotNull String id, long seqNo, long primaryTerm) {
+        return String.format("/%s/_doc/%s?if_seq_no=%d&if_primary_term=%d", index, id, seqNo, primaryTerm);
+    }
+
     /**
      * @since 1.0.0
      */
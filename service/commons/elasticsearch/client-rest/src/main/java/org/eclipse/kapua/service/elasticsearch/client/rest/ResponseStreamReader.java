@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.rest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.kapua.service.elasticsearch.client.SchemaKeys;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
+import org.eclipse.kapua.service.elasticsearch.client.rest.exception.ResponseEntityReadError;
+import org.elasticsearch.client.Response;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads Elasticsearch responses incrementally with a {@link JsonParser}.
+ * <p>
+ * Search hits and bulk items are handed to the caller one at a time as soon as they are decoded from the response stream,
+ * so that neither the whole response {@link String} nor the whole response tree is ever kept in memory.
+ * Everything that is not needed by the client is skipped without being materialized.
+ *
+ * @since 2.1.0
+ */
+public class ResponseStreamReader {
+
+    private static final String KEY_ERROR = "error";
+    private static final String KEY_REASON = "reason";
+
+    private static final TypeReference<Map<String, Object>> SOURCE_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+    private static final TypeReference<List<Object>> SORT_VALUES_TYPE = new TypeReference<List<Object>>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor.
+     *
+     * @param objectMapper The {@link ObjectMapper} used to decode the hits {@code _source}.
+     * @since 2.1.0
+     */
+    public ResponseStreamReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads a search response, invoking the {@link HitHandler} for each hit.
+     *
+     * @param response   The search {@link Response}.
+     * @param hitHandler The {@link HitHandler} to invoke for each hit.
+     * @return The {@link SearchSummary} of the search response.
+     * @throws ClientException if the response cannot be read or the {@link HitHandler} fails.
+     * @since 2.1.0
+     */
+    public SearchSummary readSearchResponse(@NotNull Response response, @NotNull HitHandler hitHandler) throws ClientException {
+        final SearchSummary searchSummary = new SearchSummary();
+        try (InputStream inputStream = response.getEntity().getContent();
+             JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return searchSummary;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                if (ElasticsearchKeywords.KEY_HITS.equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                    readHits(parser, searchSummary, hitHandler);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new ResponseEntityReadError(e);
+        }
+        return searchSummary;
+    }
+
+    /**
+     * Reads a bulk response, invoking the {@link BulkItemHandler} for each item.
+     *
+     * @param response        The bulk {@link Response}.
+     * @param bulkItemHandler The {@link BulkItemHandler} to invoke for each item.
+     * @throws ClientException if the response cannot be read or the {@link BulkItemHandler} fails.
+     * @since 2.1.0
+     */
+    public void readBulkResponse(@NotNull Response response, @NotNull BulkItemHandler bulkItemHandler) throws ClientException {
+        try (InputStream inputStream = response.getEntity().getContent();
+             JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                if (ElasticsearchKeywords.KEY_ITEMS.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        bulkItemHandler.handle(readBulkItem(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new ResponseEntityReadError(e);
+        }
+    }
+
+    private void readHits(JsonParser parser, SearchSummary searchSummary, HitHandler hitHandler) throws IOException, ClientException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            final JsonToken valueToken = parser.nextToken();
+            if (ElasticsearchKeywords.KEY_TOTAL.equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                readTotal(parser, searchSummary);
+            } else if (ElasticsearchKeywords.KEY_HITS.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readHit(parser, searchSummary, hitHandler);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readTotal(JsonParser parser, SearchSummary searchSummary) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (ElasticsearchKeywords.KEY_VALUE.equals(fieldName)) {
+                searchSummary.value = parser.getValueAsLong();
+            } else if (ElasticsearchKeywords.KEY_RELATION.equals(fieldName)) {
+                searchSummary.relation = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readHit(JsonParser parser, SearchSummary searchSummary, HitHandler hitHandler) throws IOException, ClientException {
+        String id = null;
+        String index = null;
+        Map<String, Object> source = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            final JsonToken valueToken = parser.nextToken();
+            if (ElasticsearchKeywords.KEY_DOC_ID.equals(fieldName)) {
+                id = parser.getValueAsString();
+            } else if (ElasticsearchKeywords.KEY_DOC_INDEX.equals(fieldName)) {
+                index = parser.getValueAsString();
+            } else if (SchemaKeys.KEY_SOURCE.equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                source = objectMapper.readValue(parser, SOURCE_TYPE);
+            } else if (ElasticsearchKeywords.KEY_SORT.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                // Only the sort values of the last hit are needed to resume the search
+                searchSummary.lastSortValues = objectMapper.readValue(parser, SORT_VALUES_TYPE);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        hitHandler.handle(id, index, source);
+    }
+
+    private BulkItem readBulkItem(JsonParser parser) throws IOException {
+        final BulkItem bulkItem = new BulkItem();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            bulkItem.operation = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                if (ElasticsearchKeywords.KEY_DOC_ID.equals(fieldName)) {
+                    bulkItem.id = parser.getValueAsString();
+                } else if (ElasticsearchKeywords.KEY_DOC_INDEX.equals(fieldName)) {
+                    bulkItem.index = parser.getValueAsString();
+                } else if (ElasticsearchKeywords.KEY_STATUS.equals(fieldName)) {
+                    bulkItem.status = parser.getValueAsInt();
+                } else if (ElasticsearchKeywords.KEY_RESULT.equals(fieldName)) {
+                    bulkItem.result = parser.getValueAsString();
+                } else if (KEY_ERROR.equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                    bulkItem.errorReason = readErrorReason(parser);
+                } else if (KEY_ERROR.equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                    bulkItem.errorReason = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return bulkItem;
+    }
+
+    private String readErrorReason(JsonParser parser) throws IOException {
+        String reason = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (KEY_REASON.equals(fieldName)) {
+                reason = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return reason;
+    }
+
+    /**
+     * Handles a single search hit.
+     *
+     * @since 2.1.0
+     */
+    @FunctionalInterface
+    public interface HitHandler {
+
+        /**
+         * Handles a single search hit.
+         *
+         * @param id     The {@code _id} of the hit.
+         * @param index  The {@code _index} of the hit.
+         * @param source The decoded {@code _source} of the hit, or {@code null} if not returned.
+         * @throws ClientException if the hit cannot be handled.
+         * @since 2.1.0
+         */
+        void handle(String id, String index, Map<String, Object> source) throws ClientException;
+    }
+
+    /**
+     * Handles a single bulk item.
+     *
+     * @since 2.1.0
+     */
+    @FunctionalInterface
+    public interface BulkItemHandler {
+
+        /**
+         * Handles a single bulk item.
+         *
+         * @param bulkItem The {@link BulkItem}.
+         * @throws ClientException if the item cannot be handled.
+         * @since 2.1.0
+         */
+        void handle(BulkItem bulkItem) throws ClientException;
+    }
+
+    /**
+     * The {@code hits.total} and the sort values of the last hit of a search response.
+     *
+     * @since 2.1.0
+     */
+    public static class SearchSummary {
+
+        private long value;
+        private String relation;
+        private List<Object> lastSortValues;
+
+        public long getValue() {
+            return value;
+        }
+
+        public String getRelation() {
+            return relation;
+        }
+
+        public List<Object> getLastSortValues() {
+            return lastSortValues;
+        }
+    }
+
+    /**
+     * A single item of a bulk response.
+     *
+     * @since 2.1.0
+     */
+    public static class BulkItem {
+
+        private String operation;
+        private String id;
+        private String index;
+        private int status;
+        private String result;
+        private String errorReason;
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getResult() {
+            return result;
+        }
+
+        public String getErrorReason() {
+            return errorReason;
+        }
+    }
+}
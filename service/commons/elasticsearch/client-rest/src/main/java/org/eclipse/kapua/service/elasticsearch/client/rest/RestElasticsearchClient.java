@@ -13,6 +13,7 @@
 package org.eclipse.kapua.service.elasticsearch.client.rest;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -33,8 +34,15 @@ import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientInitializationException;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientInternalError;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientLimitsExceededException;
+import org.eclipse.kapua.service.elasticsearch.client.model.BulkInsertRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.BulkInsertResponse;
 import org.eclipse.kapua.service.elasticsearch.client.model.BulkUpdateRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.BulkUpdateResponse;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramResult;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.IndexRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.IndexResponse;
 import org.eclipse.kapua.service.elasticsearch.client.model.InsertRequest;
@@ -42,6 +50,7 @@ import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
 import org.eclipse.kapua.service.elasticsearch.client.model.ResultList;
 import org.eclipse.kapua.service.elasticsearch.client.model.UpdateRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.UpdateResponse;
+import org.eclipse.kapua.service.elasticsearch.client.model.VersionedDocument;
 import org.eclipse.kapua.service.elasticsearch.client.rest.exception.RequestEntityWriteError;
 import org.eclipse.kapua.service.elasticsearch.client.rest.exception.ResponseEntityReadError;
 import org.elasticsearch.client.Request;
@@ -54,7 +63,9 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Callable;
@@ -73,8 +84,11 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
 
     private static final Random RANDOM = RandomUtils.getInstance();
     private static final String MSG_EMPTY_ERROR = "Empty error message";
+    private static final TypeReference<Map<String, Object>> AFTER_KEY_TYPE = new TypeReference<Map<String, Object>>() {
+    };
 
     private final ObjectMapper objectMapper;
+    private final ResponseStreamReader responseStreamReader;
     private static final String CLIENT_HITS_MAX_VALUE_EXCEEDED = "Total hits exceeds integer max value";
     private static final String QUERY_CONVERTED_QUERY = "Query - converted query: '{}'";
     private static final String COUNT_CONVERTED_QUERY = "Count - converted query: '{}'";
@@ -92,6 +106,7 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
 
         objectMapper = new ObjectMapper();
         objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        responseStreamReader = new ResponseStreamReader(objectMapper);
     }
 
     @Override
@@ -139,6 +154,56 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
         }
     }
 
+    @Override
+    public BulkInsertResponse insert(BulkInsertRequest bulkInsertRequest) throws ClientException {
+        BulkInsertResponse bulkResponse = new BulkInsertResponse();
+        if (bulkInsertRequest.getRequest().isEmpty()) {
+            return bulkResponse;
+        }
+
+        StringBuilder bulkOperation = new StringBuilder();
+        for (InsertRequest insertRequest : bulkInsertRequest.getRequest()) {
+            Map<String, Object> storableMap = getModelContext().marshal(insertRequest.getStorable());
+
+            bulkOperation.append("{ \"index\": {\"_id\": \"")
+                    .append(insertRequest.getId())
+                    .append("\", \"_index\": \"")
+                    .append(insertRequest.getIndex())
+                    .append("\"}\n");
+
+            bulkOperation.append(writeRequestFromMap(storableMap));
+            bulkOperation.append("\n");
+        }
+        Request request = new Request(ElasticsearchKeywords.ACTION_POST, ElasticsearchResourcePaths.getBulkPath());
+        request.setJsonEntity(bulkOperation.toString());
+        Response insertResponse = restCallTimeoutHandler(() -> getClient().performRequest(request), "multi-index", "INSERT BULK");
+
+        if (isRequestSuccessful(insertResponse)) {
+            responseStreamReader.readBulkResponse(insertResponse, bulkItem -> {
+                if (!ElasticsearchKeywords.KEY_INDEX.equals(bulkItem.getOperation())) {
+                    throw new ClientInternalError("Empty JSON response from insert");
+                }
+
+                if (!isRequestSuccessful(bulkItem.getStatus())) {
+                    String failureMessage = MSG_EMPTY_ERROR;
+                    if (StringUtils.isNotBlank(bulkItem.getErrorReason())) {
+                        failureMessage = bulkItem.getErrorReason();
+                    }
+                    InsertResponse failedInsertResponse = new InsertResponse(bulkItem.getId(), bulkItem.getIndex(), failureMessage);
+                    failedInsertResponse.setException(new ClientActionResponseException("Insert", failureMessage, String.valueOf(bulkItem.getStatus())));
+                    bulkResponse.add(failedInsertResponse);
+                    LOG.info("Insert failed [{}, {}]", bulkItem.getIndex(), failureMessage);
+                    return;
+                }
+                bulkResponse.add(new InsertResponse(bulkItem.getId(), bulkItem.getIndex()));
+                LOG.debug("Insert successfully executed [{}, {}]", bulkItem.getIndex(), bulkItem.getId());
+            });
+            return bulkResponse;
+        } else {
+            throw buildExceptionFromUnsuccessfulResponse("Insert", insertResponse);
+        }
+    }
+
     @Override
     public UpdateResponse upsert(UpdateRequest updateRequest) throws ClientException {
         Map<String, Object> updateRequestStorableMap = getModelContext().marshal(updateRequest.getStorable());
@@ -186,41 +251,27 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
         Response updateResponse = restCallTimeoutHandler(() -> getClient().performRequest(request), "multi-index", "UPSERT BULK");
 
         if (isRequestSuccessful(updateResponse)) {
-            JsonNode responseNode = readResponseAsJsonNode(updateResponse);
-
-            ArrayNode items = (ArrayNode) responseNode.get(ElasticsearchKeywords.KEY_ITEMS);
             BulkUpdateResponse bulkResponse = new BulkUpdateResponse();
-            for (JsonNode item : items) {
-                JsonNode jsonNode = item.get(ElasticsearchKeywords.KEY_UPDATE);
-                if (jsonNode != null) {
-                    JsonNode idNode = jsonNode.get(ElasticsearchKeywords.KEY_DOC_ID);
-                    String metricId = null;
-                    if (idNode != null) {
-                        metricId = idNode.asText();
-                    }
+            responseStreamReader.readBulkResponse(updateResponse, bulkItem -> {
+                if (!ElasticsearchKeywords.KEY_UPDATE.equals(bulkItem.getOperation())) {
+                    throw new ClientInternalError("Empty JSON response from upsert");
+                }
 
-                    String indexName = jsonNode.get(ElasticsearchKeywords.KEY_DOC_INDEX).asText();
-                    int responseCode = jsonNode.get(ElasticsearchKeywords.KEY_STATUS).asInt();
-                    if (!isRequestSuccessful(responseCode)) {
-                        JsonNode failureNode = jsonNode.get(ElasticsearchKeywords.KEY_RESULT);
-                        String failureMessage = MSG_EMPTY_ERROR;
-                        if (failureNode != null) {
-                            failureMessage = failureNode.asText();
-                        }
-                        String reason = jsonNode.at("/error/reason").asText();
-                        if (StringUtils.isNotBlank(reason)) {
-                            failureMessage = reason;
-                        }
-                        bulkResponse.add(new UpdateResponse(metricId, indexName, failureMessage));
-                        LOG.info("Upsert failed [{}, {}]", indexName, failureMessage);
-                        continue;
+                if (!isRequestSuccessful(bulkItem.getStatus())) {
+                    String failureMessage = MSG_EMPTY_ERROR;
+                    if (bulkItem.getResult() != null) {
+                        failureMessage = bulkItem.getResult();
                     }
-                    bulkResponse.add(new UpdateResponse(metricId, indexName));
-                    LOG.debug("Upsert on channel metric successfully executed [{}, {}]", indexName, metricId);
-                } else {
-                    throw new ClientInternalError("Empty JSON response from upsert");
+                    if (StringUtils.isNotBlank(bulkItem.getErrorReason())) {
+                        failureMessage = bulkItem.getErrorReason();
+                    }
+                    bulkResponse.add(new UpdateResponse(bulkItem.getId(), bulkItem.getIndex(), failureMessage));
+                    LOG.info("Upsert failed [{}, {}]", bulkItem.getIndex(), failureMessage);
+                    return;
                 }
-            }
+                bulkResponse.add(new UpdateResponse(bulkItem.getId(), bulkItem.getIndex()));
+                LOG.debug("Upsert on channel metric successfully executed [{}, {}]", bulkItem.getIndex(), bulkItem.getId());
+            });
             return bulkResponse;
         } else {
             throw buildExceptionFromUnsuccessfulResponse("Upsert", updateResponse);
@@ -241,24 +292,32 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
 
         String json = writeRequestFromJsonNode(queryJsonNode);
 
-        long totalCount = 0;
-        ArrayNode resultsNode = null;
-        String totalRelation = null;
-
         Request request = new Request(ElasticsearchKeywords.ACTION_GET, ElasticsearchResourcePaths.search(index));
         request.setJsonEntity(json);
         Response queryResponse = restCallTimeoutHandler(() -> getClient().performRequest(request), index, "QUERY");
 
+        Object queryFetchStyle = getModelConverter().getFetchStyle(query);
+        List<T> results = new ArrayList<>();
+        long totalCount = 0;
+        String totalRelation = null;
+        ResponseStreamReader.SearchSummary searchSummary = null;
         if (isRequestSuccessful(queryResponse)) {
-            JsonNode responseNode = readResponseAsJsonNode(queryResponse);
-            JsonNode hitsNode = responseNode.path(ElasticsearchKeywords.KEY_HITS);
+            // Hits are unmarshalled while they are read from the response stream
+            searchSummary = responseStreamReader.readSearchResponse(queryResponse, (id, docIndex, source) -> {
+                Map<String, Object> object = source != null ? source : new HashMap<>();
+
+                object.put(ModelContext.TYPE_DESCRIPTOR_KEY, docIndex);
+                object.put(getModelContext().getIdKeyName(), id);
+                object.put(QueryConverter.QUERY_FETCH_STYLE_KEY, queryFetchStyle);
+
+                results.add(getModelContext().unmarshal(clazz, object));
+            });
 
-            totalCount = hitsNode.path(ElasticsearchKeywords.KEY_TOTAL).path(ElasticsearchKeywords.KEY_VALUE).asLong();
-            totalRelation = hitsNode.path(ElasticsearchKeywords.KEY_TOTAL).path(ElasticsearchKeywords.KEY_RELATION).asText();
+            totalCount = searchSummary.getValue();
+            totalRelation = searchSummary.getRelation();
             if (totalCount > Integer.MAX_VALUE) {
                 throw new ClientException(ClientErrorCodes.ACTION_ERROR, CLIENT_HITS_MAX_VALUE_EXCEEDED);
             }
-            resultsNode = ((ArrayNode) hitsNode.get(ElasticsearchKeywords.KEY_HITS));
         } else if (!isRequestBadRequest(queryResponse) &&
                 !isRequestNotFound(queryResponse)) {
             throw buildExceptionFromUnsuccessfulResponse("Query", queryResponse);
@@ -268,27 +327,95 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
         if (totalRelation != null) {
             resultList.setTotalHitsExceedsCount(!totalRelation.equals("eq"));
         }
-        Object queryFetchStyle = getModelConverter().getFetchStyle(query);
-        if (resultsNode != null && !resultsNode.isEmpty()) {
-            for (JsonNode result : resultsNode) {
-                Map<String, Object> object = objectMapper.convertValue(result.get(SchemaKeys.KEY_SOURCE), Map.class);
+        if (searchSummary != null) {
+            resultList.setSearchAfter(searchSummary.getLastSortValues());
+        }
+        results.forEach(resultList::add);
+        return resultList;
+    }
 
-                String id = result.get(ElasticsearchKeywords.KEY_DOC_ID).asText();
-                String docIndex = result.get(ElasticsearchKeywords.KEY_DOC_INDEX).asText();
+    @Override
+    public List<DateHistogramBucket> dateHistogram(String index, Object query, DateHistogramRequest dateHistogramRequest) throws ClientException {
+        ObjectNode queryJsonNode = toDateHistogramQuery(query, dateHistogramRequest);
 
-                object.put(ModelContext.TYPE_DESCRIPTOR_KEY, docIndex);
-                object.put(getModelContext().getIdKeyName(), id);
-                object.put(QueryConverter.QUERY_FETCH_STYLE_KEY, queryFetchStyle);
+        LOG.debug(QUERY_CONVERTED_QUERY, queryJsonNode);
+
+        Request request = new Request(ElasticsearchKeywords.ACTION_GET, ElasticsearchResourcePaths.search(index));
+        request.setJsonEntity(writeRequestFromJsonNode(queryJsonNode));
+        Response histogramResponse = restCallTimeoutHandler(() -> getClient().performRequest(request), index, "DATE HISTOGRAM");
+
+        if (isRequestSuccessful(histogramResponse)) {
+            return readDateHistogramBuckets(readResponseAsJsonNode(histogramResponse), dateHistogramRequest);
+        } else if (!isRequestNotFound(histogramResponse)) {
+            throw buildExceptionFromUnsuccessfulResponse("Date histogram", histogramResponse);
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public CompositeHistogramResult compositeHistogram(String index, Object query, CompositeHistogramRequest compositeHistogramRequest) throws ClientException {
+        ObjectNode queryJsonNode = toCompositeHistogramQuery(query, compositeHistogramRequest);
+
+        LOG.debug(QUERY_CONVERTED_QUERY, queryJsonNode);
 
-                resultList.add(getModelContext().unmarshal(clazz, object));
+        Request request = new Request(ElasticsearchKeywords.ACTION_GET, ElasticsearchResourcePaths.search(index));
+        request.setJsonEntity(writeRequestFromJsonNode(queryJsonNode));
+        Response histogramResponse = restCallTimeoutHandler(() -> getClient().performRequest(request), index, "COMPOSITE HISTOGRAM");
+
+        if (isRequestSuccessful(histogramResponse)) {
+            return readCompositeHistogramResult(readResponseAsJsonNode(histogramResponse), compositeHistogramRequest);
+        } else if (!isRequestNotFound(histogramResponse)) {
+            throw buildExceptionFromUnsuccessfulResponse("Composite histogram", histogramResponse);
+        }
+        return new CompositeHistogramResult();
+    }
+
+    @Override
+    public VersionedDocument getVersioned(String index, String id) throws ClientException {
+        LOG.debug("Get versioned - index: '{}' - id: '{}'", index, id);
+        Request request = new Request(ElasticsearchKeywords.ACTION_GET, ElasticsearchResourcePaths.id(index, id));
+        Response getResponse = restCallTimeoutHandler(() -> getClient().performRequest(request), index, "GET VERSIONED");
+
+        if (isRequestSuccessful(getResponse)) {
+            JsonNode responseNode = readResponseAsJsonNode(getResponse);
+            if (!responseNode.path(ElasticsearchKeywords.KEY_FOUND).asBoolean()) {
+                return null;
             }
+            Map<String, Object> source = objectMapper.convertValue(responseNode.path(SchemaKeys.KEY_SOURCE), new TypeReference<Map<String, Object>>() {
+            });
+            return new VersionedDocument(
+                    source,
+                    responseNode.path(ElasticsearchKeywords.KEY_DOC_SEQ_NO).asLong(),
+                    responseNode.path(ElasticsearchKeywords.KEY_DOC_PRIMARY_TERM).asLong());
+        } else if (isRequestNotFound(getResponse)) {
+            return null;
+        } else {
+            throw buildExceptionFromUnsuccessfulResponse("Get versioned", getResponse);
+        }
+    }
+
+    @Override
+    public boolean putIfUnchanged(String index, String id, Map<String, Object> source, VersionedDocument expected) throws ClientException {
+        LOG.debug("Put if unchanged - index: '{}' - id: '{}'", index, id);
+        String path = expected == null ?
+                ElasticsearchResourcePaths.create(index, id) :
+                ElasticsearchResourcePaths.idIfUnchanged(index, id, expected.getSeqNo(), expected.getPrimaryTerm());
+        Request request = new Request(ElasticsearchKeywords.ACTION_PUT, path);
+        request.setJsonEntity(writeRequestFromMap(source));
+        Response putResponse = restCallTimeoutHandler(() -> getClient().performRequest(request), index, "PUT IF UNCHANGED");
+
+        if (isRequestSuccessful(putResponse)) {
+            return true;
+        } else if (isRequestConflict(putResponse)) {
+            return false;
+        } else {
+            throw buildExceptionFromUnsuccessfulResponse("Put if unchanged", putResponse);
         }
-        return resultList;
     }
 
     @Override
     public long count(String index, Object query) throws ClientException {
-        JsonNode queryJsonNode = getModelConverter().convertQuery(query);
+        JsonNode queryJsonNode = withoutCursor(getModelConverter().convertQuery(query));
 
         LOG.debug(COUNT_CONVERTED_QUERY, queryJsonNode);
 
@@ -300,10 +427,12 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
         long totalCount = 0;
         String totalRelation = null;
         if (isRequestSuccessful(queryResponse)) {
-            JsonNode responseNode = readResponseAsJsonNode(queryResponse);
+            ResponseStreamReader.SearchSummary searchSummary = responseStreamReader.readSearchResponse(queryResponse, (id, docIndex, source) -> {
+                // Only the total is needed
+            });
 
-            totalCount = responseNode.path(ElasticsearchKeywords.KEY_HITS).path(ElasticsearchKeywords.KEY_TOTAL).path(ElasticsearchKeywords.KEY_VALUE).asLong();
-            totalRelation = responseNode.path(ElasticsearchKeywords.KEY_HITS).path(ElasticsearchKeywords.KEY_TOTAL).path(ElasticsearchKeywords.KEY_RELATION).asText();
+            totalCount = searchSummary.getValue();
+            totalRelation = searchSummary.getRelation();
             if (totalRelation != null && totalRelation.equals("gte")) {
                 throw new ClientLimitsExceededException("MAX_RESULT_WINDOW overflow, unable to count precise number of documents stored in ES (more than 10k)");
             }
@@ -332,7 +461,7 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
 
     @Override
     public void deleteByQuery(String index, Object query) throws ClientException {
-        JsonNode queryJsonNode = getModelConverter().convertQuery(query);
+        JsonNode queryJsonNode = withoutCursor(getModelConverter().convertQuery(query));
 
         LOG.debug(QUERY_CONVERTED_QUERY, queryJsonNode);
 
@@ -619,6 +748,174 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
         return new ClientActionResponseException(action, reason, responseCodeString);
     }
 
+    /**
+     * Checks if the given {@link Response#getStatusLine} as a HTTP 409 code.
+     *
+     * @param response The {@link Response} to check.
+     * @return {@code true} if {@link Response#getStatusLine()} has a 409 HTTP code, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    private boolean isRequestConflict(@NotNull Response response) {
+        return response.getStatusLine() != null && response.getStatusLine().getStatusCode() == 409;
+    }
+
+    /**
+     * Converts a query to a date histogram search, which only asks for the buckets.
+     *
+     * @param query                The query to convert.
+     * @param dateHistogramRequest The {@link DateHistogramRequest}.
+     * @return The converted date histogram search.
+     * @since 2.1.0
+     */
+    private ObjectNode toDateHistogramQuery(@NotNull Object query, @NotNull DateHistogramRequest dateHistogramRequest) throws ClientException {
+        ObjectNode queryJsonNode = (ObjectNode) withoutCursor(getModelConverter().convertQuery(query));
+        // Only the buckets are needed
+        queryJsonNode.remove(SchemaKeys.KEY_FROM);
+        queryJsonNode.remove(SchemaKeys.KEY_SORT);
+        queryJsonNode.remove(SchemaKeys.KEY_SOURCE);
+        queryJsonNode.put(SchemaKeys.KEY_SIZE, 0);
+
+        ObjectNode dateHistogramNode = objectMapper.createObjectNode();
+        dateHistogramNode.put(ElasticsearchKeywords.KEY_FIELD, dateHistogramRequest.getDateField());
+        dateHistogramNode.put(ElasticsearchKeywords.KEY_FIXED_INTERVAL, dateHistogramRequest.getInterval());
+
+        ObjectNode histogramNode = objectMapper.createObjectNode();
+        histogramNode.set(ElasticsearchKeywords.KEY_DATE_HISTOGRAM, dateHistogramNode);
+        ObjectNode subAggregationsNode = histogramNode.putObject(ElasticsearchKeywords.KEY_AGGS);
+        if (dateHistogramRequest.isPreAggregated()) {
+            putMetricAggregation(subAggregationsNode, ElasticsearchKeywords.KEY_COUNT, ElasticsearchKeywords.KEY_SUM, dateHistogramRequest.getCountField());
+            putMetricAggregation(subAggregationsNode, ElasticsearchKeywords.KEY_MIN, ElasticsearchKeywords.KEY_MIN, dateHistogramRequest.getMinField());
+            putMetricAggregation(subAggregationsNode, ElasticsearchKeywords.KEY_MAX, ElasticsearchKeywords.KEY_MAX, dateHistogramRequest.getMaxField());
+            putMetricAggregation(subAggregationsNode, ElasticsearchKeywords.KEY_SUM, ElasticsearchKeywords.KEY_SUM, dateHistogramRequest.getSumField());
+        } else {
+            putMetricAggregation(subAggregationsNode, ElasticsearchKeywords.KEY_STATS, ElasticsearchKeywords.KEY_STATS, dateHistogramRequest.getStatsField());
+        }
+        queryJsonNode.putObject(ElasticsearchKeywords.KEY_AGGS).set(ElasticsearchKeywords.AGGREGATION_HISTOGRAM, histogramNode);
+        return queryJsonNode;
+    }
+
+    /**
+     * Reads the {@link DateHistogramBucket}s from a search response.
+     *
+     * @param responseNode         The search response.
+     * @param dateHistogramRequest The {@link DateHistogramRequest} of the search.
+     * @return The {@link DateHistogramBucket}s.
+     * @since 2.1.0
+     */
+    private List<DateHistogramBucket> readDateHistogramBuckets(@NotNull JsonNode responseNode, @NotNull DateHistogramRequest dateHistogramRequest) {
+        List<DateHistogramBucket> buckets = new ArrayList<>();
+        JsonNode bucketsNode = responseNode
+                .path(ElasticsearchKeywords.KEY_AGGREGATIONS)
+                .path(ElasticsearchKeywords.AGGREGATION_HISTOGRAM)
+                .path(ElasticsearchKeywords.KEY_BUCKETS);
+        for (JsonNode bucketNode : bucketsNode) {
+            if (dateHistogramRequest.isPreAggregated()) {
+                buckets.add(readPreAggregatedBucket(bucketNode));
+                continue;
+            }
+            JsonNode statsNode = bucketNode.path(ElasticsearchKeywords.KEY_STATS);
+            buckets.add(new DateHistogramBucket(
+                    bucketNode.path(ElasticsearchKeywords.KEY_KEY).asLong(),
+                    bucketNode.path(ElasticsearchKeywords.KEY_DOC_COUNT).asLong(),
+                    statsNode.path(ElasticsearchKeywords.KEY_COUNT).asLong(),
+                    readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_MIN),
+                    readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_MAX),
+                    readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_AVG),
+                    readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_SUM)));
+        }
+        return buckets;
+    }
+
+    /**
+     * Converts a query to a composite histogram search, which only asks for a page of buckets.
+     *
+     * @param query                     The query to convert.
+     * @param compositeHistogramRequest The {@link CompositeHistogramRequest}.
+     * @return The converted composite histogram search.
+     * @since 2.1.0
+     */
+    private ObjectNode toCompositeHistogramQuery(@NotNull Object query, @NotNull CompositeHistogramRequest compositeHistogramRequest) throws ClientException {
+        ObjectNode queryJsonNode = (ObjectNode) withoutCursor(getModelConverter().convertQuery(query));
+        // Only the buckets are needed
+        queryJsonNode.remove(SchemaKeys.KEY_FROM);
+        queryJsonNode.remove(SchemaKeys.KEY_SORT);
+        queryJsonNode.remove(SchemaKeys.KEY_SOURCE);
+        queryJsonNode.put(SchemaKeys.KEY_SIZE, 0);
+
+        ObjectNode compositeNode = objectMapper.createObjectNode();
+        compositeNode.put(SchemaKeys.KEY_SIZE, compositeHistogramRequest.getPageSize());
+        ArrayNode sourcesNode = compositeNode.putArray(ElasticsearchKeywords.KEY_SOURCES);
+        for (String termField : compositeHistogramRequest.getTermFields()) {
+            sourcesNode.addObject()
+                    .putObject(termField)
+                    .putObject(ElasticsearchKeywords.KEY_TERMS)
+                    .put(ElasticsearchKeywords.KEY_FIELD, termField);
+        }
+        sourcesNode.addObject()
+                .putObject(compositeHistogramRequest.getDateField())
+                .putObject(ElasticsearchKeywords.KEY_DATE_HISTOGRAM)
+                .put(ElasticsearchKeywords.KEY_FIELD, compositeHistogramRequest.getDateField())
+                .put(ElasticsearchKeywords.KEY_FIXED_INTERVAL, compositeHistogramRequest.getInterval());
+        if (compositeHistogramRequest.getAfterKey() != null) {
+            compositeNode.set(ElasticsearchKeywords.KEY_AFTER, objectMapper.valueToTree(compositeHistogramRequest.getAfterKey()));
+        }
+
+        ObjectNode histogramNode = objectMapper.createObjectNode();
+        histogramNode.set(ElasticsearchKeywords.KEY_COMPOSITE, compositeNode);
+        // Stats aggregations are named by position, since the stats fields are not valid aggregation names
+        ObjectNode subAggregationsNode = histogramNode.putObject(ElasticsearchKeywords.KEY_AGGS);
+        for (int i = 0; i < compositeHistogramRequest.getStatsFields().size(); i++) {
+            putMetricAggregation(subAggregationsNode, ElasticsearchKeywords.KEY_STATS + i, ElasticsearchKeywords.KEY_STATS, compositeHistogramRequest.getStatsFields().get(i));
+        }
+        queryJsonNode.putObject(ElasticsearchKeywords.KEY_AGGS).set(ElasticsearchKeywords.AGGREGATION_HISTOGRAM, histogramNode);
+        return queryJsonNode;
+    }
+
+    /**
+     * Reads a page of {@link CompositeHistogramBucket}s from a search response.
+     *
+     * @param responseNode              The search response.
+     * @param compositeHistogramRequest The {@link CompositeHistogramRequest} of the search.
+     * @return The {@link CompositeHistogramResult} page.
+     * @since 2.1.0
+     */
+    private CompositeHistogramResult readCompositeHistogramResult(@NotNull JsonNode responseNode, @NotNull CompositeHistogramRequest compositeHistogramRequest) {
+        CompositeHistogramResult compositeHistogramResult = new CompositeHistogramResult();
+        JsonNode histogramNode = responseNode
+                .path(ElasticsearchKeywords.KEY_AGGREGATIONS)
+                .path(ElasticsearchKeywords.AGGREGATION_HISTOGRAM);
+        for (JsonNode bucketNode : histogramNode.path(ElasticsearchKeywords.KEY_BUCKETS)) {
+            JsonNode keyNode = bucketNode.path(ElasticsearchKeywords.KEY_KEY);
+            Map<String, String> terms = new HashMap<>();
+            for (String termField : compositeHistogramRequest.getTermFields()) {
+                terms.put(termField, keyNode.path(termField).asText());
+            }
+            long key = keyNode.path(compositeHistogramRequest.getDateField()).asLong();
+            long docCount = bucketNode.path(ElasticsearchKeywords.KEY_DOC_COUNT).asLong();
+
+            List<DateHistogramBucket> stats = new ArrayList<>();
+            for (int i = 0; i < compositeHistogramRequest.getStatsFields().size(); i++) {
+                JsonNode statsNode = bucketNode.path(ElasticsearchKeywords.KEY_STATS + i);
+                stats.add(new DateHistogramBucket(
+                        key,
+                        docCount,
+                        statsNode.path(ElasticsearchKeywords.KEY_COUNT).asLong(),
+                        readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_MIN),
+                        readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_MAX),
+                        readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_AVG),
+                        readDoubleOrNull(statsNode, ElasticsearchKeywords.KEY_SUM)));
+            }
+            compositeHistogramResult.getBuckets().add(new CompositeHistogramBucket(terms, stats));
+        }
+
+        // A page shorter than the page size is the last one
+        JsonNode afterKeyNode = histogramNode.get(ElasticsearchKeywords.KEY_AFTER_KEY);
+        if (afterKeyNode != null && compositeHistogramResult.getBuckets().size() >= compositeHistogramRequest.getPageSize()) {
+            compositeHistogramResult.setAfterKey(objectMapper.convertValue(afterKeyNode, AFTER_KEY_TYPE));
+        }
+        return compositeHistogramResult;
+    }
+
     private JsonNode readResponseAsJsonNode(@NotNull Response response) throws ResponseEntityReadError {
         try {
             return objectMapper.readTree(EntityUtils.toString(response.getEntity()));
@@ -627,6 +924,45 @@ public class RestElasticsearchClient extends AbstractElasticsearchClient<RestCli
         }
     }
 
+    private void putMetricAggregation(@NotNull ObjectNode aggregationsNode, @NotNull String aggregationName, @NotNull String aggregationType, @NotNull String field) {
+        aggregationsNode.putObject(aggregationName)
+                .putObject(aggregationType)
+                .put(ElasticsearchKeywords.KEY_FIELD, field);
+    }
+
+    private DateHistogramBucket readPreAggregatedBucket(@NotNull JsonNode bucketNode) {
+        // Count and sum of the merged documents are summed, min and max are the min and max of the documents
+        long count = bucketNode.path(ElasticsearchKeywords.KEY_COUNT).path(ElasticsearchKeywords.KEY_VALUE).asLong();
+        Double sum = count > 0 ? readDoubleOrNull(bucketNode.path(ElasticsearchKeywords.KEY_SUM), ElasticsearchKeywords.KEY_VALUE) : null;
+        return new DateHistogramBucket(
+                bucketNode.path(ElasticsearchKeywords.KEY_KEY).asLong(),
+                count,
+                count,
+                readDoubleOrNull(bucketNode.path(ElasticsearchKeywords.KEY_MIN), ElasticsearchKeywords.KEY_VALUE),
+                readDoubleOrNull(bucketNode.path(ElasticsearchKeywords.KEY_MAX), ElasticsearchKeywords.KEY_VALUE),
+                sum != null ? sum / count : null,
+                sum);
+    }
+
+    private Double readDoubleOrNull(@NotNull JsonNode jsonNode, @NotNull String fieldName) {
+        JsonNode valueNode = jsonNode.get(fieldName);
+        return valueNode != null && valueNode.isNumber() ? valueNode.asDouble() : null;
+    }
+
+    /**
+     * Removes the cursor pagination from a converted query, which is meaningless for counts and deletes.
+     *
+     * @param queryJsonNode The converted query.
+     * @return The converted query without cursor pagination.
+     * @since 2.1.0
+     */
+    private JsonNode withoutCursor(@NotNull JsonNode queryJsonNode) {
+        if (queryJsonNode instanceof ObjectNode) {
+            ((ObjectNode) queryJsonNode).remove(SchemaKeys.KEY_SEARCH_AFTER);
+        }
+        return queryJsonNode;
+    }
+
     private String writeRequestFromJsonNode(@NotNull JsonNode jsonNode) throws RequestEntityWriteError {
         try {
             return objectMapper.writeValueAsString(jsonNode);
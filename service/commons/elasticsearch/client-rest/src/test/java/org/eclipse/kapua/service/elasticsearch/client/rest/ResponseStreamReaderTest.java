@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.elasticsearch.client.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
+import org.eclipse.kapua.service.elasticsearch.client.rest.exception.ResponseEntityReadError;
+import org.elasticsearch.client.Response;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@Category(JUnitTests.class)
+public class ResponseStreamReaderTest {
+
+    private final ResponseStreamReader responseStreamReader = new ResponseStreamReader(new ObjectMapper());
+
+    @Test
+    public void readSearchResponseHits() throws Exception {
+        List<String> ids = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        List<Map<String, Object>> sources = new ArrayList<>();
+
+        ResponseStreamReader.SearchSummary searchSummary = responseStreamReader.readSearchResponse(response("{" +
+                "\"took\":5,\"timed_out\":false,\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}," +
+                "\"hits\":{" +
+                "\"total\":{\"value\":42,\"relation\":\"gte\"}," +
+                "\"max_score\":null," +
+                "\"hits\":[" +
+                "{\"_index\":\"1-data-message-2022-1\",\"_type\":\"_doc\",\"_id\":\"first\",\"_score\":null,\"_source\":{\"clientId\":\"client-1\",\"body\":{\"nested\":[1,2]}},\"sort\":[1000,\"first\"]}," +
+                "{\"_index\":\"1-data-message-2022-2\",\"_id\":\"second\",\"_source\":{\"clientId\":\"client-2\"},\"sort\":[2000,\"second\"]}" +
+                "]}}"), (id, index, source) -> {
+            ids.add(id);
+            indexes.add(index);
+            sources.add(source);
+        });
+
+        Assert.assertEquals(Arrays.asList("first", "second"), ids);
+        Assert.assertEquals(Arrays.asList("1-data-message-2022-1", "1-data-message-2022-2"), indexes);
+        Assert.assertEquals("client-1", sources.get(0).get("clientId"));
+        Assert.assertEquals(Collections.singletonMap("nested", Arrays.asList(1, 2)), sources.get(0).get("body"));
+        Assert.assertEquals("client-2", sources.get(1).get("clientId"));
+        Assert.assertEquals(42L, searchSummary.getValue());
+        Assert.assertEquals("gte", searchSummary.getRelation());
+        Assert.assertEquals(Arrays.<Object>asList(2000, "second"), searchSummary.getLastSortValues());
+    }
+
+    @Test
+    public void readSearchResponseWithoutSource() throws Exception {
+        List<Map<String, Object>> sources = new ArrayList<>();
+
+        responseStreamReader.readSearchResponse(response("{\"hits\":{\"hits\":[{\"_index\":\"index\",\"_id\":\"id\"}]}}"),
+                (id, index, source) -> sources.add(source));
+
+        Assert.assertEquals(Collections.singletonList(null), sources);
+    }
+
+    @Test
+    public void readSearchResponseTotal() throws Exception {
+        ResponseStreamReader.SearchSummary searchSummary = responseStreamReader.readSearchResponse(response("{" +
+                "\"pit_id\":\"46ToAwMDaWR5BXV1aWQy\"," +
+                "\"hits\":{\"total\":{\"value\":0,\"relation\":\"eq\"},\"hits\":[]}}"), (id, index, source) -> Assert.fail("No hit expected"));
+
+        Assert.assertEquals(0L, searchSummary.getValue());
+        Assert.assertEquals("eq", searchSummary.getRelation());
+        Assert.assertNull(searchSummary.getLastSortValues());
+    }
+
+    @Test
+    public void readSearchResponseSkipsAggregations() throws Exception {
+        List<String> ids = new ArrayList<>();
+
+        ResponseStreamReader.SearchSummary searchSummary = responseStreamReader.readSearchResponse(response("{" +
+                "\"aggregations\":{\"histogram\":{\"buckets\":[{\"key\":1000,\"doc_count\":3,\"hits\":{\"hits\":[{\"_id\":\"nested\"}]}}]}}," +
+                "\"hits\":{\"total\":{\"value\":1,\"relation\":\"eq\"},\"hits\":[{\"_id\":\"top\",\"_index\":\"index\"}]}," +
+                "\"suggest\":{\"hits\":[{\"_id\":\"suggested\"}]}}"), (id, index, source) -> ids.add(id));
+
+        Assert.assertEquals(Collections.singletonList("top"), ids);
+        Assert.assertEquals(1L, searchSummary.getValue());
+    }
+
+    @Test
+    public void readSearchResponseSkipsUnknownFields() throws Exception {
+        List<String> ids = new ArrayList<>();
+
+        ResponseStreamReader.SearchSummary searchSummary = responseStreamReader.readSearchResponse(response("{" +
+                "\"unknown\":[{\"hits\":{\"total\":{\"value\":7}}}]," +
+                "\"hits\":{" +
+                "\"unknown\":{\"hits\":[]}," +
+                "\"total\":{\"unknown\":{\"value\":7},\"value\":1,\"relation\":\"eq\"}," +
+                "\"hits\":[{\"unknown\":{\"_id\":\"wrong\",\"sort\":[0]},\"_id\":\"right\",\"highlight\":{\"field\":[\"x\"]},\"sort\":[1]}]}," +
+                "\"unknown_scalar\":true}"), (id, index, source) -> ids.add(id));
+
+        Assert.assertEquals(Collections.singletonList("right"), ids);
+        Assert.assertEquals(1L, searchSummary.getValue());
+        Assert.assertEquals("eq", searchSummary.getRelation());
+        Assert.assertEquals(Collections.<Object>singletonList(1), searchSummary.getLastSortValues());
+    }
+
+    @Test
+    public void readSearchResponseNotAnObject() throws Exception {
+        ResponseStreamReader.SearchSummary searchSummary = responseStreamReader.readSearchResponse(response("[]"), (id, index, source) -> Assert.fail("No hit expected"));
+
+        Assert.assertEquals(0L, searchSummary.getValue());
+        Assert.assertNull(searchSummary.getRelation());
+    }
+
+    @Test(expected = ResponseEntityReadError.class)
+    public void readSearchResponseMalformed() throws Exception {
+        responseStreamReader.readSearchResponse(response("{\"hits\":{\"hits\":[{\"_id\":\"id\","), (id, index, source) -> {
+        });
+    }
+
+    @Test
+    public void readSearchResponseHandlerFailure() throws Exception {
+        ClientException handlerException = new ResponseEntityReadError(new RuntimeException("handler failure"));
+        try {
+            responseStreamReader.readSearchResponse(response("{\"hits\":{\"hits\":[{\"_id\":\"id\"}]}}"), (id, index, source) -> {
+                throw handlerException;
+            });
+            Assert.fail("The handler failure should be propagated");
+        } catch (ClientException e) {
+            Assert.assertSame(handlerException, e);
+        }
+    }
+
+    @Test
+    public void readBulkResponse() throws Exception {
+        List<ResponseStreamReader.BulkItem> bulkItems = new ArrayList<>();
+
+        responseStreamReader.readBulkResponse(response("{" +
+                "\"took\":30,\"errors\":true," +
+                "\"items\":[" +
+                "{\"index\":{\"_index\":\"index-1\",\"_type\":\"_doc\",\"_id\":\"created\",\"_version\":1,\"result\":\"created\",\"_shards\":{\"total\":2},\"status\":201}}," +
+                "{\"update\":{\"_index\":\"index-2\",\"_id\":\"failed\",\"status\":400,\"error\":{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed to parse\",\"caused_by\":{\"reason\":\"nested\"}}}}," +
+                "{\"update\":{\"_index\":\"index-2\",\"_id\":\"rejected\",\"status\":429,\"error\":\"rejected execution\"}}" +
+                "]}"), bulkItems::add);
+
+        Assert.assertEquals(3, bulkItems.size());
+
+        ResponseStreamReader.BulkItem created = bulkItems.get(0);
+        Assert.assertEquals("index", created.getOperation());
+        Assert.assertEquals("index-1", created.getIndex());
+        Assert.assertEquals("created", created.getId());
+        Assert.assertEquals(201, created.getStatus());
+        Assert.assertEquals("created", created.getResult());
+        Assert.assertNull(created.getErrorReason());
+
+        ResponseStreamReader.BulkItem failed = bulkItems.get(1);
+        Assert.assertEquals("update", failed.getOperation());
+        Assert.assertEquals("failed", failed.getId());
+        Assert.assertEquals(400, failed.getStatus());
+        Assert.assertNull(failed.getResult());
+        Assert.assertEquals("failed to parse", failed.getErrorReason());
+
+        ResponseStreamReader.BulkItem rejected = bulkItems.get(2);
+        Assert.assertEquals(429, rejected.getStatus());
+        Assert.assertEquals("rejected execution", rejected.getErrorReason());
+    }
+
+    @Test
+    public void readBulkResponseSkipsUnknownFields() throws Exception {
+        List<ResponseStreamReader.BulkItem> bulkItems = new ArrayList<>();
+
+        responseStreamReader.readBulkResponse(response("{" +
+                "\"unknown\":{\"items\":[{\"index\":{\"_id\":\"wrong\"}}]}," +
+                "\"items\":[{\"index\":{\"unknown\":[{\"_id\":\"wrong\"}],\"_id\":\"right\",\"status\":200,\"error\":[\"unexpected\"]}}]," +
+                "\"ingest_took\":1}"), bulkItems::add);
+
+        Assert.assertEquals(1, bulkItems.size());
+        Assert.assertEquals("right", bulkItems.get(0).getId());
+        Assert.assertEquals(200, bulkItems.get(0).getStatus());
+        Assert.assertNull(bulkItems.get(0).getErrorReason());
+    }
+
+    @Test(expected = ResponseEntityReadError.class)
+    public void readBulkResponseMalformed() throws Exception {
+        responseStreamReader.readBulkResponse(response("{\"items\":[{\"index\":{\"_id\":}}]}"), bulkItem -> {
+        });
+    }
+
+    private Response response(String body) {
+        Response response = Mockito.mock(Response.class);
+        Mockito.when(response.getEntity()).thenReturn(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.storable.model.query;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.service.storable.model.StorableListResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The position of a cursor pagination.
+ * <p>
+ * It is made of the sort values of the last result of a page.
+ * It is exchanged with the clients as an opaque token, as {@link StorableListResult#getNextKey()} and {@link StorableQuery#getCursor()}.
+ *
+ * @since 2.1.0
+ */
+public class StorableCursor {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String KEY_SEARCH_AFTER = "after";
+
+    private final List<Object> searchAfter;
+
+    /**
+     * Constructor.
+     *
+     * @param searchAfter The sort values of the last result of the page.
+     * @since 2.1.0
+     */
+    public StorableCursor(List<Object> searchAfter) {
+        this.searchAfter = searchAfter != null ? Collections.unmodifiableList(new ArrayList<>(searchAfter)) : Collections.emptyList();
+    }
+
+    /**
+     * Gets the sort values of the last result of the page.
+     *
+     * @return The sort values of the last result of the page.
+     * @since 2.1.0
+     */
+    public List<Object> getSearchAfter() {
+        return searchAfter;
+    }
+
+    /**
+     * Encodes this {@link StorableCursor} into an opaque, URL safe, token.
+     *
+     * @return The encoded token.
+     * @since 2.1.0
+     */
+    public String encode() {
+        ObjectNode cursorNode = OBJECT_MAPPER.createObjectNode();
+        ArrayNode searchAfterNode = cursorNode.putArray(KEY_SEARCH_AFTER);
+        searchAfter.forEach(value -> searchAfterNode.add(OBJECT_MAPPER.<JsonNode>valueToTree(value)));
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(cursorNode));
+        } catch (JsonProcessingException e) {
+            // Sort values are always plain JSON values
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param cursor The token to decode.
+     * @return The decoded {@link StorableCursor}.
+     * @throws KapuaIllegalArgumentException if the token is not a valid cursor.
+     * @since 2.1.0
+     */
+    public static StorableCursor decode(String cursor) throws KapuaIllegalArgumentException {
+        if (cursor == null) {
+            throw new KapuaIllegalArgumentException("cursor", null);
+        }
+
+        try {
+            ObjectNode cursorNode = (ObjectNode) OBJECT_MAPPER.readTree(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (!cursorNode.path(KEY_SEARCH_AFTER).isArray()) {
+                throw new KapuaIllegalArgumentException("cursor", cursor);
+            }
+
+            List<Object> searchAfter = new ArrayList<>();
+            for (JsonNode valueNode : cursorNode.get(KEY_SEARCH_AFTER)) {
+                searchAfter.add(OBJECT_MAPPER.treeToValue(valueNode, Object.class));
+            }
+            return new StorableCursor(searchAfter);
+        } catch (IllegalArgumentException | ClassCastException | IOException e) {
+            throw new KapuaIllegalArgumentException("cursor", cursor);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.storable.model.query;
+
+import org.eclipse.kapua.service.storable.model.StorableListResult;
+
+/**
+ * {@link StorablePagingStyle} definition.
+ * <p>
+ * According to the value the result set is paginated with {@link StorableQuery#getOffset()} or with a {@link StorableQuery#getCursor()}.
+ *
+ * @since 2.1.0
+ */
+public enum StorablePagingStyle {
+
+    /**
+     * Pagination with {@link StorableQuery#getOffset()} and {@link StorableQuery#getLimit()}.
+     * <p>
+     * The cost of each page grows with the offset, which is also bounded by the max result window.
+     *
+     * @since 2.1.0
+     */
+    OFFSET,
+
+    /**
+     * Pagination with the {@link StorableListResult#getNextKey()} of the previous page set as {@link StorableQuery#getCursor()}.
+     * <p>
+     * Each page resumes after the sort values of the last result of the previous one, so the cost does not grow with the depth.
+     *
+     * @since 2.1.0
+     */
+    SEARCH_AFTER
+}
@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.storable.model.query;
 
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.model.KapuaEntity;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.id.KapuaIdAdapter;
@@ -136,6 +137,80 @@ public interface StorableQuery {
      */
     void setLimit(Integer limit);
 
+    /**
+     * Gets the {@link StorablePagingStyle}.
+     *
+     * @return The {@link StorablePagingStyle}.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "pagingStyle")
+    StorablePagingStyle getPagingStyle();
+
+    /**
+     * Sets the {@link StorablePagingStyle}.
+     * <p>
+     * If set to {@link StorablePagingStyle#SEARCH_AFTER} the {@link #getOffset()} is ignored
+     * and the {@link StorableListResult#getNextKey()} is the {@link #getCursor()} of the next page.
+     *
+     * @param pagingStyle The {@link StorablePagingStyle}.
+     * @since 2.1.0
+     */
+    void setPagingStyle(StorablePagingStyle pagingStyle);
+
+    /**
+     * Gets the cursor from which the {@link StorableQuery} resumes.
+     *
+     * @return The cursor from which the {@link StorableQuery} resumes, or {@code null} for the first page.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "cursor")
+    String getCursor();
+
+    /**
+     * Sets the cursor from which the {@link StorableQuery} resumes.
+     * <p>
+     * It is the {@link StorableListResult#getNextKey()} of the previous page and it is meaningful only together with the same
+     * {@link #getPredicate()} and {@link #getSortFields()} of the previous page.
+     *
+     * @param cursor The cursor from which the {@link StorableQuery} resumes.
+     * @since 2.1.0
+     */
+    void setCursor(String cursor);
+
+    /**
+     * Gets the {@link #getCursor()} decoded as {@link StorableCursor}.
+     * <p>
+     * The {@link #getCursor()} is decoded once and the decoded {@link StorableCursor} is kept until the {@link #getCursor()} changes,
+     * so that the validation of the query and its conversion do not decode it again.
+     *
+     * @return The decoded {@link StorableCursor}, or {@code null} if there is no {@link #getCursor()}.
+     * @throws KapuaIllegalArgumentException if the {@link #getCursor()} is not a valid cursor.
+     * @since 2.1.0
+     */
+    @XmlTransient
+    StorableCursor getDecodedCursor() throws KapuaIllegalArgumentException;
+
+    /**
+     * Gets the fields used to sort the results with the same {@link #getSortFields()} values.
+     * <p>
+     * Cursor pagination needs a total ordering of the results: the fields must be {@code keyword} fields stored in the documents
+     * which, together, are unique. The document {@code _id} is not used since sorting on it needs its fielddata.
+     *
+     * @return The fields used to sort the results with the same {@link #getSortFields()} values.
+     * @since 2.1.0
+     */
+    @XmlTransient
+    List<String> getCursorTieBreakerFields();
+
+    /**
+     * Whether or not the {@link StorableQuery} uses the cursor pagination.
+     *
+     * @return {@code true} if the {@link StorableQuery} uses the cursor pagination, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    @XmlTransient
+    boolean isCursorPaging();
+
     /**
      * Whether or not add the {@link StorableListResult#getTotalCount()} when processing the {@link StorableQuery}.
      *
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.storable.model.query;
 
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicate;
@@ -38,6 +39,9 @@ public abstract class AbstractStorableQuery implements StorableQuery {
     private List<SortField> sortFields;
     private StorableFetchStyle fetchStyle;
     private List<String> fetchAttributes;
+    private StorablePagingStyle pagingStyle;
+    private String cursor;
+    private StorableCursor decodedCursor;
 
     /**
      * Constructor.
@@ -50,6 +54,7 @@ public abstract class AbstractStorableQuery implements StorableQuery {
         super();
 
         setFetchStyle(StorableFetchStyle.SOURCE_FULL);
+        setPagingStyle(StorablePagingStyle.OFFSET);
     }
 
     /**
@@ -112,6 +117,42 @@ public abstract class AbstractStorableQuery implements StorableQuery {
         return limit;
     }
 
+    @Override
+    public StorablePagingStyle getPagingStyle() {
+        return pagingStyle;
+    }
+
+    @Override
+    public void setPagingStyle(StorablePagingStyle pagingStyle) {
+        this.pagingStyle = pagingStyle;
+    }
+
+    @Override
+    public String getCursor() {
+        return cursor;
+    }
+
+    @Override
+    public void setCursor(String cursor) {
+        if (cursor == null || !cursor.equals(this.cursor)) {
+            this.decodedCursor = null;
+        }
+        this.cursor = cursor;
+    }
+
+    @Override
+    public StorableCursor getDecodedCursor() throws KapuaIllegalArgumentException {
+        if (decodedCursor == null && cursor != null) {
+            decodedCursor = StorableCursor.decode(cursor);
+        }
+        return decodedCursor;
+    }
+
+    @Override
+    public boolean isCursorPaging() {
+        return cursor != null || (pagingStyle != null && pagingStyle != StorablePagingStyle.OFFSET);
+    }
+
     @Override
     public boolean isAskTotalCount() {
         return askTotalCount;
@@ -14,6 +14,8 @@ package org.eclipse.kapua.service.datastore;
 
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
+import org.eclipse.kapua.service.datastore.model.MetricHistogramBucket;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.storable.StorableFactory;
@@ -26,4 +28,20 @@ import org.eclipse.kapua.service.storable.StorableFactory;
  * @since 1.3.0
  */
 public interface MessageStoreFactory extends StorableFactory<DatastoreMessage, MessageListResult, MessageQuery> {
+
+    /**
+     * Instantiates a new {@link MetricHistogram}.
+     *
+     * @return The newly instantiated {@link MetricHistogram}.
+     * @since 2.1.0
+     */
+    MetricHistogram newMetricHistogram();
+
+    /**
+     * Instantiates a new {@link MetricHistogramBucket}.
+     *
+     * @return The newly instantiated {@link MetricHistogramBucket}.
+     * @since 2.1.0
+     */
+    MetricHistogramBucket newMetricHistogramBucket();
 }
@@ -19,10 +19,13 @@ import org.eclipse.kapua.service.KapuaService;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.storable.StorableService;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * {@link MessageStoreService} definition.
  * <p>
@@ -60,6 +63,49 @@ public interface MessageStoreService extends KapuaService, KapuaConfigurableServ
      */
     StorableId store(KapuaMessage<?, ?> message, String datastoreId) throws KapuaException;
 
+    /**
+     * Stores a {@link KapuaMessage} together with other {@link KapuaMessage}s using bulk requests.
+     * <p>
+     * The {@link KapuaMessage} is accumulated and sent to the datastore when either the bulk size or the flush interval is reached.
+     * The returned {@link CompletableFuture} completes when the {@link KapuaMessage} has been stored,
+     * or exceptionally if this specific {@link KapuaMessage} could not be stored.
+     *
+     * @param message The {@link KapuaMessage} to store.
+     * @return The {@link CompletableFuture} of the {@link DatastoreMessage#getId()}
+     * @throws KapuaException If the {@link KapuaMessage} cannot be accepted for storing.
+     * @since 2.1.0
+     */
+    CompletableFuture<StorableId> storeBatched(KapuaMessage<?, ?> message) throws KapuaException;
+
+    /**
+     * Stores a {@link KapuaMessage} forcing its {@link DatastoreMessage#getId()}, together with other {@link KapuaMessage}s using bulk requests.
+     *
+     * @param message     The {@link KapuaMessage} to store.
+     * @param datastoreId The {@link StorableId} in {@link String} form to assing.
+     * @return The {@link CompletableFuture} of the {@link DatastoreMessage#getId()} which matches the given one.
+     * @throws KapuaException If the {@link KapuaMessage} cannot be accepted for storing.
+     * @see #storeBatched(KapuaMessage)
+     * @since 2.1.0
+     */
+    CompletableFuture<StorableId> storeBatched(KapuaMessage<?, ?> message, String datastoreId) throws KapuaException;
+
+    /**
+     * Computes the {@link MetricHistogram} of a metric of the {@link DatastoreMessage}s matching the {@link MessageQuery}.
+     * <p>
+     * The {@link MessageQuery#getPredicate()} filters the {@link DatastoreMessage}s (i.e. by channel, client id and timestamp),
+     * while its offset, limit and sort are ignored.
+     * The timestamp range must have a start date and it must not span more buckets than the configured maximum.
+     *
+     * @param query      The {@link MessageQuery} to filter the {@link DatastoreMessage}s.
+     * @param metricName The name of the metric.
+     * @param metricType The type of the metric. Must be a numeric type.
+     * @param interval   The interval of each bucket, as a positive number followed by one of {@code ms}, {@code s}, {@code m}, {@code h} and {@code d} (i.e. {@code 1h}).
+     * @return The {@link MetricHistogram}.
+     * @throws KapuaException If something goes wrong.
+     * @since 2.1.0
+     */
+    MetricHistogram histogram(MessageQuery query, String metricName, Class<?> metricType, String interval) throws KapuaException;
+
     /**
      * Deletes a {@link DatastoreMessage}  by the scope {@link KapuaId} and its {@link StorableId}.
      *
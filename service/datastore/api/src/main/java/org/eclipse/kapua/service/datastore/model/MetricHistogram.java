@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model;
+
+import org.eclipse.kapua.service.datastore.model.xml.DatastoreMessageXmlRegistry;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.util.List;
+
+/**
+ * Date histogram of the values of a metric of the stored {@link DatastoreMessage}s.
+ * <p>
+ * It is computed by the datastore, so that charting a metric does not require to fetch the {@link DatastoreMessage}s.
+ *
+ * @since 2.1.0
+ */
+@XmlRootElement(name = "metricHistogram")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = {
+        "name",
+        "metricType",
+        "interval",
+        "buckets"},
+        factoryClass = DatastoreMessageXmlRegistry.class, factoryMethod = "newMetricHistogram")
+public interface MetricHistogram {
+
+    /**
+     * Gets the metric name.
+     *
+     * @return The metric name.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "name")
+    String getName();
+
+    /**
+     * Sets the metric name.
+     *
+     * @param name The metric name.
+     * @since 2.1.0
+     */
+    void setName(String name);
+
+    /**
+     * Gets the metric type.
+     *
+     * @return The metric type.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "metricType")
+    @XmlJavaTypeAdapter(MetricInfoTypeAdapter.class)
+    Class<?> getMetricType();
+
+    /**
+     * Sets the metric type.
+     *
+     * @param metricType The metric type.
+     * @since 2.1.0
+     */
+    void setMetricType(Class<?> metricType);
+
+    /**
+     * Gets the interval of each {@link MetricHistogramBucket}.
+     *
+     * @return The interval of each {@link MetricHistogramBucket} (i.e. {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}).
+     * @since 2.1.0
+     */
+    @XmlElement(name = "interval")
+    String getInterval();
+
+    /**
+     * Sets the interval of each {@link MetricHistogramBucket}.
+     *
+     * @param interval The interval of each {@link MetricHistogramBucket}.
+     * @since 2.1.0
+     */
+    void setInterval(String interval);
+
+    /**
+     * Gets the {@link MetricHistogramBucket}s, ordered by {@link MetricHistogramBucket#getTimestamp()}.
+     *
+     * @return The {@link MetricHistogramBucket}s.
+     * @since 2.1.0
+     */
+    @XmlElementWrapper(name = "buckets")
+    @XmlElement(name = "bucket")
+    List<MetricHistogramBucket> getBuckets();
+
+    /**
+     * Sets the {@link MetricHistogramBucket}s.
+     *
+     * @param buckets The {@link MetricHistogramBucket}s.
+     * @since 2.1.0
+     */
+    void setBuckets(List<MetricHistogramBucket> buckets);
+}
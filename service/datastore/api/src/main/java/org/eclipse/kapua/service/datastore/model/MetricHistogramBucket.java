@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.model;
+
+import org.eclipse.kapua.model.xml.DateXmlAdapter;
+import org.eclipse.kapua.service.datastore.model.xml.DatastoreMessageXmlRegistry;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.util.Date;
+
+/**
+ * A single interval of a {@link MetricHistogram}.
+ * <p>
+ * The min, max, avg and sum are {@code null} when none of the {@link DatastoreMessage}s of the interval has the metric.
+ *
+ * @since 2.1.0
+ */
+@XmlRootElement(name = "metricHistogramBucket")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = {
+        "timestamp",
+        "messageCount",
+        "count",
+        "min",
+        "max",
+        "avg",
+        "sum"},
+        factoryClass = DatastoreMessageXmlRegistry.class, factoryMethod = "newMetricHistogramBucket")
+public interface MetricHistogramBucket {
+
+    /**
+     * Gets the start of the interval.
+     *
+     * @return The start of the interval.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "timestamp")
+    @XmlJavaTypeAdapter(DateXmlAdapter.class)
+    Date getTimestamp();
+
+    /**
+     * Sets the start of the interval.
+     *
+     * @param timestamp The start of the interval.
+     * @since 2.1.0
+     */
+    void setTimestamp(Date timestamp);
+
+    /**
+     * Gets the number of {@link DatastoreMessage}s in the interval.
+     *
+     * @return The number of {@link DatastoreMessage}s in the interval.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "messageCount")
+    long getMessageCount();
+
+    /**
+     * Sets the number of {@link DatastoreMessage}s in the interval.
+     *
+     * @param messageCount The number of {@link DatastoreMessage}s in the interval.
+     * @since 2.1.0
+     */
+    void setMessageCount(long messageCount);
+
+    /**
+     * Gets the number of metric values in the interval.
+     *
+     * @return The number of metric values in the interval.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "count")
+    long getCount();
+
+    /**
+     * Sets the number of metric values in the interval.
+     *
+     * @param count The number of metric values in the interval.
+     * @since 2.1.0
+     */
+    void setCount(long count);
+
+    /**
+     * Gets the min metric value in the interval.
+     *
+     * @return The min metric value in the interval.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "min")
+    Double getMin();
+
+    /**
+     * Sets the min metric value in the interval.
+     *
+     * @param min The min metric value in the interval.
+     * @since 2.1.0
+     */
+    void setMin(Double min);
+
+    /**
+     * Gets the max metric value in the interval.
+     *
+     * @return The max metric value in the interval.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "max")
+    Double getMax();
+
+    /**
+     * Sets the max metric value in the interval.
+     *
+     * @param max The max metric value in the interval.
+     * @since 2.1.0
+     */
+    void setMax(Double max);
+
+    /**
+     * Gets the average metric value in the interval.
+     *
+     * @return The average metric value in the interval.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "avg")
+    Double getAvg();
+
+    /**
+     * Sets the average metric value in the interval.
+     *
+     * @param avg The average metric value in the interval.
+     * @since 2.1.0
+     */
+    void setAvg(Double avg);
+
+    /**
+     * Gets the sum of the metric values in the interval.
+     *
+     * @return The sum of the metric values in the interval.
+     * @since 2.1.0
+     */
+    @XmlElement(name = "sum")
+    Double getSum();
+
+    /**
+     * Sets the sum of the metric values in the interval.
+     *
+     * @param sum The sum of the metric values in the interval.
+     * @since 2.1.0
+     */
+    void setSum(Double sum);
+}
@@ -15,6 +15,8 @@ package org.eclipse.kapua.service.datastore.model.xml;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.datastore.MessageStoreFactory;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
+import org.eclipse.kapua.service.datastore.model.MetricHistogramBucket;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 
 import javax.xml.bind.annotation.XmlRegistry;
@@ -46,4 +48,24 @@ public class DatastoreMessageXmlRegistry {
     public MessageQuery newQuery() {
         return messageStoreFactory.newQuery(null);
     }
+
+    /**
+     * Creates a {@link MetricHistogram} instance.
+     *
+     * @return
+     * @since 2.1.0
+     */
+    public MetricHistogram newMetricHistogram() {
+        return messageStoreFactory.newMetricHistogram();
+    }
+
+    /**
+     * Creates a {@link MetricHistogramBucket} instance.
+     *
+     * @return
+     * @since 2.1.0
+     */
+    public MetricHistogramBucket newMetricHistogramBucket() {
+        return messageStoreFactory.newMetricHistogramBucket();
+    }
 }
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.event.ServiceEventBusListener;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.mediator.ConfigurationException;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageInfo;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageStoreConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ConfigurationProvider} which keeps a per-scope snapshot of the {@link MessageStoreConfiguration} and {@link MessageInfo}.
+ * <p>
+ * Snapshots are loaded from the wrapped {@link ConfigurationProvider} on the first access and then served from memory,
+ * so that the store path does not hit the database in steady state.
+ * They are invalidated by the {@link ServiceEvent}s received as {@link ServiceEventBusListener} and expire after a configurable time
+ * as a safety net for changes which are not notified.
+ * <p>
+ * Each invalidation bumps a version: a snapshot loaded while an invalidation happens is discarded instead of being cached.
+ *
+ * @since 2.1.0
+ */
+public class CachingConfigurationProvider implements ConfigurationProvider, ServiceEventBusListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingConfigurationProvider.class);
+
+    private final ConfigurationProvider wrapped;
+    private final int maxSize;
+    private final long expireAfterMillis;
+
+    private final ConcurrentMap<KapuaId, ScopeSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param wrapped           The {@link ConfigurationProvider} to load the snapshots from.
+     * @param maxSize           The maximum number of cached scopes.
+     * @param expireAfterMillis The time (in milliseconds) after which a snapshot is reloaded.
+     * @since 2.1.0
+     */
+    public CachingConfigurationProvider(ConfigurationProvider wrapped, int maxSize, long expireAfterMillis) {
+        this.wrapped = wrapped;
+        this.maxSize = maxSize;
+        this.expireAfterMillis = expireAfterMillis;
+    }
+
+    @Override
+    public MessageStoreConfiguration getConfiguration(KapuaId scopeId) throws ConfigurationException {
+        if (scopeId == null) {
+            return wrapped.getConfiguration(scopeId);
+        }
+        return getSnapshot(scopeId).configuration;
+    }
+
+    @Override
+    public MessageInfo getInfo(KapuaId scopeId) throws ConfigurationException {
+        if (scopeId == null) {
+            return wrapped.getInfo(scopeId);
+        }
+        return getSnapshot(scopeId).messageInfo;
+    }
+
+    /**
+     * Invalidates the snapshot of the given scope.
+     *
+     * @param scopeId The scope {@link KapuaId}.
+     * @since 2.1.0
+     */
+    public void invalidate(KapuaId scopeId) {
+        version.incrementAndGet();
+        snapshots.remove(scopeId);
+    }
+
+    /**
+     * Invalidates all the snapshots.
+     *
+     * @since 2.1.0
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        snapshots.clear();
+    }
+
+    @Override
+    public void onKapuaEvent(ServiceEvent kapuaEvent) {
+        LOG.debug("Invalidating datastore configuration snapshots on event {} {} {}", kapuaEvent.getService(), kapuaEvent.getOperation(), kapuaEvent.getEntityId());
+        // The event could refer to the scope itself (i.e. an Account) or to an entity inside the scope (i.e. a ServiceConfig)
+        invalidateIfNotNull(kapuaEvent.getEntityId());
+        invalidateIfNotNull(kapuaEvent.getEntityScopeId());
+        invalidateIfNotNull(kapuaEvent.getScopeId());
+    }
+
+    private void invalidateIfNotNull(KapuaId scopeId) {
+        if (scopeId != null) {
+            invalidate(scopeId);
+        }
+    }
+
+    private ScopeSnapshot getSnapshot(KapuaId scopeId) throws ConfigurationException {
+        final ScopeSnapshot snapshot = snapshots.get(scopeId);
+        if (snapshot != null && !snapshot.isExpired()) {
+            return snapshot;
+        }
+
+        final long loadVersion = version.get();
+        final ScopeSnapshot newSnapshot = new ScopeSnapshot(wrapped.getConfiguration(scopeId), wrapped.getInfo(scopeId));
+
+        if (snapshots.size() >= maxSize) {
+            snapshots.clear();
+        }
+        snapshots.put(scopeId, newSnapshot);
+        // An invalidation happened while loading: the snapshot could be stale
+        if (version.get() != loadVersion) {
+            snapshots.remove(scopeId, newSnapshot);
+        }
+        return newSnapshot;
+    }
+
+    /**
+     * The cached configuration of a scope.
+     *
+     * @since 2.1.0
+     */
+    private class ScopeSnapshot {
+
+        private final MessageStoreConfiguration configuration;
+        private final MessageInfo messageInfo;
+        private final long loadedOn;
+
+        private ScopeSnapshot(MessageStoreConfiguration configuration, MessageInfo messageInfo) {
+            this.configuration = configuration;
+            this.messageInfo = messageInfo;
+            this.loadedOn = System.currentTimeMillis();
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - loadedOn > expireAfterMillis;
+        }
+    }
+}
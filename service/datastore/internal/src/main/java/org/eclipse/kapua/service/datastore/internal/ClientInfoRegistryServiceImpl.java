@@ -136,7 +136,15 @@ public class ClientInfoRegistryServiceImpl implements ClientInfoRegistryService
 
         ArgumentValidator.notNull(query, QUERY);
         ArgumentValidator.notNull(query.getScopeId(), QUERY_SCOPE_ID);
-        if (query.getLimit() != null && query.getOffset() != null) {
+        if (query.isCursorPaging()) {
+            // The offset is ignored: the cost of a page does not depend on its depth
+            if (query.getLimit() != null) {
+                ArgumentValidator.notNegative(query.getLimit(), "limit");
+                ArgumentValidator.numLessThenOrEqual(query.getLimit(), maxResultWindowValue, "limit");
+            }
+            // Decoded once here, the decoded cursor is kept by the query
+            query.getDecodedCursor();
+        } else if (query.getLimit() != null && query.getOffset() != null) {
             ArgumentValidator.notNegative(query.getLimit(), "limit");
             ArgumentValidator.notNegative(query.getOffset(), "offset");
             ArgumentValidator.numLessThenOrEqual(query.getLimit() + query.getOffset(), maxResultWindowValue, "limit + offset");
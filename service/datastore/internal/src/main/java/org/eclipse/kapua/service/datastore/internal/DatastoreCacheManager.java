@@ -12,10 +12,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
-import java.util.Map;
-
 import org.eclipse.kapua.commons.cache.LocalCache;
-import org.eclipse.kapua.service.datastore.internal.mediator.Metric;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
 
@@ -28,7 +25,7 @@ import com.google.inject.Inject;
  */
 public class DatastoreCacheManager {
 
-    private final LocalCache<String, Map<String, Metric>> schemaCache;
+    private final MessageIndexMappingManager schemaCache;
     private final LocalCache<String, Boolean> channelsCache;
     private final LocalCache<String, Boolean> metricsCache;
     private final LocalCache<String, Boolean> clientsCache;
@@ -41,7 +38,7 @@ public class DatastoreCacheManager {
         channelsCache = new LocalCache<>(datastoreSettings.getChannelsCacheConfig(), false);
         metricsCache = new LocalCache<>(datastoreSettings.getMetricsCacheConfig(), false);
 
-        schemaCache = new LocalCache<>(sizeMaxMetadata, null);
+        schemaCache = new MessageIndexMappingManager(sizeMaxMetadata);
     }
 
     /**
@@ -80,7 +77,7 @@ public class DatastoreCacheManager {
      * @return
      * @since 1.0.0
      */
-    public LocalCache<String, Map<String, Metric>> getMetadataCache() {
+    public MessageIndexMappingManager getMetadataCache() {
         return schemaCache;
     }
 }
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.core.ServiceModule;
+import org.eclipse.kapua.event.ServiceEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+/**
+ * {@link ServiceModule} which subscribes the {@link CachingConfigurationProvider} to the service event bus addresses.
+ * <p>
+ * Each instance uses its own subscription name, so that every running instance receives the events and invalidates its own snapshots.
+ *
+ * @since 2.1.0
+ */
+public class DatastoreConfigurationEventModule implements ServiceModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatastoreConfigurationEventModule.class);
+
+    private final ServiceEventBus serviceEventBus;
+    private final CachingConfigurationProvider cachingConfigurationProvider;
+    private final String[] eventAddresses;
+
+    public DatastoreConfigurationEventModule(ServiceEventBus serviceEventBus, CachingConfigurationProvider cachingConfigurationProvider, String[] eventAddresses) {
+        this.serviceEventBus = serviceEventBus;
+        this.cachingConfigurationProvider = cachingConfigurationProvider;
+        this.eventAddresses = eventAddresses;
+    }
+
+    @Override
+    public void start() throws KapuaException {
+        final String subscriberId = UUID.randomUUID().toString();
+        for (String eventAddress : eventAddresses) {
+            if (eventAddress.trim().isEmpty()) {
+                continue;
+            }
+            LOG.info("Subscribing datastore configuration cache to address {}", eventAddress);
+            serviceEventBus.subscribe(eventAddress.trim(), String.format("%s-datastore-configuration-%s", eventAddress.trim(), subscriberId), cachingConfigurationProvider);
+        }
+    }
+
+    @Override
+    public void stop() throws KapuaException {
+        cachingConfigurationProvider.invalidateAll();
+    }
+}
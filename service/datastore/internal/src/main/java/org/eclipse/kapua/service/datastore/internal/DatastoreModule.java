@@ -22,11 +22,13 @@ import org.eclipse.kapua.commons.configuration.ServiceConfigurationManager;
 import org.eclipse.kapua.commons.configuration.ServiceConfigurationManagerCachingWrapper;
 import org.eclipse.kapua.commons.configuration.ServiceConfigurationManagerImpl;
 import org.eclipse.kapua.commons.core.AbstractKapuaModule;
+import org.eclipse.kapua.commons.core.ServiceModule;
 import org.eclipse.kapua.commons.jpa.EntityCacheFactory;
 import org.eclipse.kapua.commons.jpa.KapuaJpaRepositoryConfiguration;
 import org.eclipse.kapua.commons.jpa.KapuaJpaTxManagerFactory;
 import org.eclipse.kapua.commons.model.domains.Domains;
 import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.event.ServiceEventBus;
 import org.eclipse.kapua.model.domain.Actions;
 import org.eclipse.kapua.model.domain.Domain;
 import org.eclipse.kapua.model.domain.DomainEntry;
@@ -81,9 +83,13 @@ public class DatastoreModule extends AbstractKapuaModule {
         bind(MessageStoreFactory.class).to(MessageStoreFactoryImpl.class).in(Singleton.class);
         bind(MessageRepository.class).to(MessageElasticsearchRepository.class).in(Singleton.class);
         bind(MessageStoreFacade.class).to(MessageStoreFacadeImpl.class).in(Singleton.class);
+        bind(MessageStoreBulkWriter.class).in(Singleton.class);
+        bind(RegistryInfoBulkWriter.class).in(Singleton.class);
         bind(MetricsDatastore.class).in(Singleton.class);
         bind(DatastoreUtils.class).in(Singleton.class);
         bind(DatastoreCacheManager.class).in(Singleton.class);
+        bind(MetricRollupRepository.class).to(MetricRollupElasticsearchRepository.class).in(Singleton.class);
+        bind(MetricRollupManager.class).in(Singleton.class);
     }
 
     @ProvidesIntoSet
@@ -103,13 +109,39 @@ public class DatastoreModule extends AbstractKapuaModule {
 
     @Provides
     @Singleton
-    ConfigurationProvider configurationProvider(
+    CachingConfigurationProvider cachingConfigurationProvider(
             @Named("MessageStoreServiceConfigurationManager") ServiceConfigurationManager serviceConfigurationManager,
             KapuaJpaTxManagerFactory jpaTxManagerFactory,
-            AccountService accountService
+            AccountService accountService,
+            DatastoreSettings datastoreSettings
     ) {
         final ConfigurationProviderImpl configurationProvider = new ConfigurationProviderImpl(jpaTxManagerFactory.create("kapua-datastore"), serviceConfigurationManager, accountService);
-        return configurationProvider;
+        return new CachingConfigurationProvider(configurationProvider,
+                datastoreSettings.getInt(DatastoreSettingsKey.CONFIG_CACHE_SCOPE_LOCAL_SIZE_MAXIMUM, 1000),
+                datastoreSettings.getLong(DatastoreSettingsKey.CONFIG_CACHE_SCOPE_LOCAL_EXPIRE_AFTER, 300L) * 1000);
+    }
+
+    @Provides
+    @Singleton
+    ConfigurationProvider configurationProvider(CachingConfigurationProvider cachingConfigurationProvider) {
+        return cachingConfigurationProvider;
+    }
+
+    @ProvidesIntoSet
+    ServiceModule datastoreConfigurationEventModule(ServiceEventBus serviceEventBus, CachingConfigurationProvider cachingConfigurationProvider, DatastoreSettings datastoreSettings) {
+        return new DatastoreConfigurationEventModule(serviceEventBus,
+                cachingConfigurationProvider,
+                datastoreSettings.getString(DatastoreSettingsKey.CONFIG_CACHE_SCOPE_EVENT_ADDRESSES, "account").split(","));
+    }
+
+    @ProvidesIntoSet
+    ServiceModule metricRollupModule(MetricRollupManager metricRollupManager, DatastoreSettings datastoreSettings) {
+        return new MetricRollupModule(metricRollupManager, datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_RUN_INTERVAL, 60000L));
+    }
+
+    @ProvidesIntoSet
+    ServiceModule messageStoreBulkWriterModule(MessageStoreBulkWriter messageStoreBulkWriter) {
+        return new MessageStoreBulkWriterModule(messageStoreBulkWriter);
     }
 
     @Provides
@@ -121,7 +153,8 @@ public class DatastoreModule extends AbstractKapuaModule {
             KapuaJpaTxManagerFactory jpaTxManagerFactory,
             MessageStoreFacade messageStoreFacade,
             MetricsDatastore metricsDatastore,
-            DatastoreSettings datastoreSettings) {
+            DatastoreSettings datastoreSettings,
+            CachingConfigurationProvider cachingConfigurationProvider) {
         return new MessageStoreServiceImpl(
                 jpaTxManagerFactory.create("kapua-datastore"),
                 permissionFactory,
@@ -129,7 +162,8 @@ public class DatastoreModule extends AbstractKapuaModule {
                 serviceConfigurationManager,
                 messageStoreFacade,
                 metricsDatastore,
-                datastoreSettings);
+                datastoreSettings,
+                cachingConfigurationProvider);
     }
 
     @Provides
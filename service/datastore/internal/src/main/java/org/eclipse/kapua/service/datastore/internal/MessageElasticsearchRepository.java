@@ -15,7 +15,6 @@ package org.eclipse.kapua.service.datastore.internal;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.eclipse.kapua.KapuaException;
-import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.MessageStoreFactory;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
@@ -30,7 +29,13 @@ import org.eclipse.kapua.service.elasticsearch.client.ElasticsearchClientProvide
 import org.eclipse.kapua.service.elasticsearch.client.SchemaKeys;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
 import org.eclipse.kapua.service.elasticsearch.client.exception.DatamodelMappingException;
+import org.eclipse.kapua.service.elasticsearch.client.model.BulkInsertRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramResult;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
 import org.eclipse.kapua.service.elasticsearch.client.model.InsertRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
 import org.eclipse.kapua.service.storable.exception.MappingException;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
 import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicateFactory;
@@ -38,13 +43,15 @@ import org.eclipse.kapua.service.storable.model.utils.KeyValueEntry;
 import org.eclipse.kapua.service.storable.model.utils.MappingUtils;
 
 import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class MessageElasticsearchRepository extends DatastoreElasticSearchRepositoryBase<DatastoreMessage, MessageListResult, MessageQuery> implements MessageRepository {
     private final DatastoreUtils datastoreUtils;
-    private final LocalCache<String, Map<String, Metric>> metricsByIndex;
+    private final MessageIndexMappingManager metricsByIndex;
 
     @Inject
     public MessageElasticsearchRepository(
@@ -99,35 +106,48 @@ public class MessageElasticsearchRepository extends DatastoreElasticSearchReposi
      */
     @Override
     public String store(DatastoreMessage messageToStore, Map<String, Metric> metrics) throws ClientException {
-        final Long messageTime = Optional.ofNullable(messageToStore.getTimestamp())
-                .map(date -> date.getTime())
-                .orElse(null);
+        final String indexName = indexResolver(messageToStore);
 
-        final String indexName = indexResolver(messageToStore.getScopeId(), messageTime);
+        synchMappings(indexName, metrics);
 
-        if (!metricsByIndex.containsKey(indexName)) {
-            synchronized (DatastoreMessage.class) {
-                doUpsertIndex(indexName);
-                doUpsertMappings(indexName, metrics);
-                metricsByIndex.put(indexName, metrics);
-            }
-        } else {
-            final Map<String, Metric> newMetrics = getMessageMappingDiffs(metricsByIndex.get(indexName), metrics);
-            synchronized (DatastoreMessage.class) {
-                doUpsertMappings(indexName, metrics);
-                metricsByIndex.get(indexName).putAll(newMetrics);
-            }
-        }
         final InsertRequest insertRequest = new InsertRequest(idExtractor(messageToStore).toString(), indexName, messageToStore);
         return elasticsearchClientProviderInstance.getElasticsearchClient().insert(insertRequest).getId();
     }
 
-    private Map<String, Metric> getMessageMappingDiffs(Map<String, Metric> currentMetrics, Map<String, Metric> newMetrics) {
-        final Map<String, Metric> newEntries = newMetrics.entrySet()
-                .stream()
-                .filter(kv -> !currentMetrics.containsKey(kv.getKey()))
-                .collect(Collectors.toMap(kv -> kv.getKey(), kv -> kv.getValue()));
-        return newEntries;
+    /**
+     * Store messages with a single bulk request
+     *
+     * @throws ClientException
+     */
+    @Override
+    public List<InsertResponse> store(List<DatastoreMessage> messagesToStore, List<Map<String, Metric>> metrics) throws ClientException {
+        final BulkInsertRequest bulkInsertRequest = new BulkInsertRequest();
+        final Map<String, Map<String, Metric>> indexMetrics = new LinkedHashMap<>();
+        for (int i = 0; i < messagesToStore.size(); i++) {
+            final DatastoreMessage messageToStore = messagesToStore.get(i);
+            final String indexName = indexResolver(messageToStore);
+            // Each index gets the mappings of the metrics of its own messages only
+            indexMetrics.computeIfAbsent(indexName, name -> new HashMap<>()).putAll(metrics.get(i));
+            bulkInsertRequest.add(new InsertRequest(idExtractor(messageToStore).toString(), indexName, messageToStore));
+        }
+
+        for (Map.Entry<String, Map<String, Metric>> indexMetricsEntry : indexMetrics.entrySet()) {
+            synchMappings(indexMetricsEntry.getKey(), indexMetricsEntry.getValue());
+        }
+
+        return elasticsearchClientProviderInstance.getElasticsearchClient().insert(bulkInsertRequest).getResponse();
+    }
+
+    private String indexResolver(DatastoreMessage messageToStore) {
+        final Long messageTime = Optional.ofNullable(messageToStore.getTimestamp())
+                .map(date -> date.getTime())
+                .orElse(null);
+
+        return indexResolver(messageToStore.getScopeId(), messageTime);
+    }
+
+    private void synchMappings(String indexName, Map<String, Metric> metrics) {
+        metricsByIndex.synchMappings(indexName, metrics, this::doUpsertIndex, this::doUpsertMappings);
     }
 
     private void doUpsertMappings(String index, Map<String, Metric> esMetrics) {
@@ -143,6 +163,16 @@ public class MessageElasticsearchRepository extends DatastoreElasticSearchReposi
         }
     }
 
+    @Override
+    public List<DateHistogramBucket> dateHistogram(MessageQuery query, DateHistogramRequest dateHistogramRequest) throws ClientException {
+        return elasticsearchClientProviderInstance.getElasticsearchClient().dateHistogram(indexResolver(query.getScopeId()), query, dateHistogramRequest);
+    }
+
+    @Override
+    public CompositeHistogramResult compositeHistogram(MessageQuery query, CompositeHistogramRequest compositeHistogramRequest) throws ClientException {
+        return elasticsearchClientProviderInstance.getElasticsearchClient().compositeHistogram(indexResolver(query.getScopeId()), query, compositeHistogramRequest);
+    }
+
     @Override
     public void delete(KapuaId scopeId, StorableId id, long time) {
         super.doDelete(indexResolver(scopeId, time), id);
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.service.datastore.internal.mediator.Metric;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track, for each message index, of the metric fields already mapped.
+ * <p>
+ * Only the metrics not yet known for an index are sent with a put-mapping request.
+ * No global lock is taken: each metric field is claimed with an atomic {@link ConcurrentMap#putIfAbsent(Object, Object)},
+ * so concurrent writers discovering the same new field issue a single put-mapping and the others wait for its outcome.
+ * If a request fails the claimed fields are released and will be retried by the next writer.
+ *
+ * @since 2.1.0
+ */
+public class MessageIndexMappingManager {
+
+    private final int maxIndexes;
+    private final ConcurrentMap<String, IndexMappings> mappingsByIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxIndexes The maximum number of indexes to track before the known mappings are reset.
+     * @since 2.1.0
+     */
+    public MessageIndexMappingManager(int maxIndexes) {
+        this.maxIndexes = maxIndexes;
+    }
+
+    /**
+     * Makes sure that the index exists and that all the given metrics are mapped.
+     *
+     * @param indexName        The index name.
+     * @param metrics          The metrics that must be mapped.
+     * @param indexUpserter    Creates the index if it does not exist.
+     * @param mappingsUpserter Puts the mappings for the given metrics.
+     * @since 2.1.0
+     */
+    public void synchMappings(String indexName, Map<String, Metric> metrics, Consumer<String> indexUpserter, BiConsumer<String, Map<String, Metric>> mappingsUpserter) {
+        IndexMappings indexMappings = mappingsByIndex.get(indexName);
+        if (indexMappings == null) {
+            if (maxIndexes > 0 && mappingsByIndex.size() >= maxIndexes) {
+                mappingsByIndex.clear();
+            }
+            indexMappings = mappingsByIndex.computeIfAbsent(indexName, IndexMappings::new);
+        }
+
+        indexMappings.synchIndex(indexUpserter);
+        indexMappings.synchMetrics(metrics, mappingsUpserter);
+    }
+
+    /**
+     * Forgets all the known mappings.
+     * <p>
+     * To be invoked when indexes are deleted or refreshed.
+     *
+     * @since 2.1.0
+     */
+    public void invalidateAll() {
+        mappingsByIndex.clear();
+    }
+
+    /**
+     * Gets the number of tracked indexes.
+     *
+     * @return The number of tracked indexes.
+     * @since 2.1.0
+     */
+    public int size() {
+        return mappingsByIndex.size();
+    }
+
+    private static void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * The mapping status of a single index.
+     *
+     * @since 2.1.0
+     */
+    private class IndexMappings {
+
+        private final String indexName;
+        private final CompletableFuture<Void> indexUpserted = new CompletableFuture<>();
+        private final AtomicBoolean indexUpsertClaimed = new AtomicBoolean();
+        private final ConcurrentMap<String, CompletableFuture<Void>> knownMetrics = new ConcurrentHashMap<>();
+
+        private IndexMappings(String indexName) {
+            this.indexName = indexName;
+        }
+
+        private void synchIndex(Consumer<String> indexUpserter) {
+            if (indexUpserted.isDone() && !indexUpserted.isCompletedExceptionally()) {
+                return;
+            }
+
+            if (indexUpsertClaimed.compareAndSet(false, true)) {
+                try {
+                    indexUpserter.accept(indexName);
+                    indexUpserted.complete(null);
+                } catch (RuntimeException e) {
+                    mappingsByIndex.remove(indexName, this);
+                    indexUpserted.completeExceptionally(e);
+                    throw e;
+                }
+            }
+            await(indexUpserted);
+        }
+
+        private void synchMetrics(Map<String, Metric> metrics, BiConsumer<String, Map<String, Metric>> mappingsUpserter) {
+            Map<String, Metric> newMetrics = null;
+            CompletableFuture<Void> newMetricsMapped = null;
+            List<CompletableFuture<Void>> pendingMetrics = null;
+
+            for (Map.Entry<String, Metric> metric : metrics.entrySet()) {
+                CompletableFuture<Void> metricMapped = knownMetrics.get(metric.getKey());
+                if (metricMapped == null) {
+                    if (newMetricsMapped == null) {
+                        newMetricsMapped = new CompletableFuture<>();
+                        newMetrics = new HashMap<>();
+                    }
+                    metricMapped = knownMetrics.putIfAbsent(metric.getKey(), newMetricsMapped);
+                    if (metricMapped == null) {
+                        newMetrics.put(metric.getKey(), metric.getValue());
+                        continue;
+                    }
+                }
+
+                // Another writer is mapping the same metric
+                if (!metricMapped.isDone() || metricMapped.isCompletedExceptionally()) {
+                    if (pendingMetrics == null) {
+                        pendingMetrics = new ArrayList<>();
+                    }
+                    pendingMetrics.add(metricMapped);
+                }
+            }
+
+            if (newMetrics != null && !newMetrics.isEmpty()) {
+                try {
+                    mappingsUpserter.accept(indexName, newMetrics);
+                    newMetricsMapped.complete(null);
+                } catch (RuntimeException e) {
+                    for (String metricKey : newMetrics.keySet()) {
+                        knownMetrics.remove(metricKey, newMetricsMapped);
+                    }
+                    newMetricsMapped.completeExceptionally(e);
+                    throw e;
+                }
+            }
+
+            if (pendingMetrics != null) {
+                pendingMetrics.forEach(MessageIndexMappingManager::await);
+            }
+        }
+    }
+}
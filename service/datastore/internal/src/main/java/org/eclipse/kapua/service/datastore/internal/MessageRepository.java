@@ -18,15 +18,56 @@ import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramResult;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
 import org.eclipse.kapua.service.storable.repository.StorableRepository;
 
+import java.util.List;
 import java.util.Map;
 
 public interface MessageRepository extends StorableRepository<DatastoreMessage, MessageListResult, MessageQuery> {
 
     String store(DatastoreMessage messageToStore, Map<String, Metric> metrics) throws ClientException;
 
+    /**
+     * Stores the given {@link DatastoreMessage}s with a single bulk request.
+     * <p>
+     * The metrics mappings are updated, for each target index, with the metrics of the {@link DatastoreMessage}s stored in that index only.
+     *
+     * @param messagesToStore The {@link DatastoreMessage}s to store.
+     * @param metrics         The metrics mappings required by each {@link DatastoreMessage}, in the same order of the {@link DatastoreMessage}s.
+     * @return The {@link InsertResponse}s, one for each {@link DatastoreMessage} and in the same order.
+     * @throws ClientException If the bulk request cannot be performed.
+     * @since 2.1.0
+     */
+    List<InsertResponse> store(List<DatastoreMessage> messagesToStore, List<Map<String, Metric>> metrics) throws ClientException;
+
+    /**
+     * Computes a date histogram of the {@link DatastoreMessage}s matching the given {@link MessageQuery}.
+     *
+     * @param query                The {@link MessageQuery} to filter the {@link DatastoreMessage}s.
+     * @param dateHistogramRequest The {@link DateHistogramRequest}.
+     * @return The {@link DateHistogramBucket}s.
+     * @throws ClientException If the aggregation cannot be performed.
+     * @since 2.1.0
+     */
+    List<DateHistogramBucket> dateHistogram(MessageQuery query, DateHistogramRequest dateHistogramRequest) throws ClientException;
+
+    /**
+     * Computes a page of the composite histogram of the {@link DatastoreMessage}s matching the given {@link MessageQuery}.
+     *
+     * @param query                     The {@link MessageQuery} to filter the {@link DatastoreMessage}s.
+     * @param compositeHistogramRequest The {@link CompositeHistogramRequest}.
+     * @return The {@link CompositeHistogramResult} page.
+     * @throws ClientException If the aggregation cannot be performed.
+     * @since 2.1.0
+     */
+    CompositeHistogramResult compositeHistogram(MessageQuery query, CompositeHistogramRequest compositeHistogramRequest) throws ClientException;
+
     void delete(KapuaId scopeId, StorableId id, long time);
 
     DatastoreMessage find(KapuaId scopeId, StorableId storableId, long time);
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.message.KapuaPayload;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.mediator.Metric;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientInternalError;
+import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accumulates {@link DatastoreMessage}s and stores them with bulk requests.
+ * <p>
+ * Pending messages are grouped by scope, and each group is flushed through {@link MessageRepository#store(List, List)} when either {@link DatastoreSettingsKey#STORE_BULK_SIZE} messages
+ * or (an estimate of) {@link DatastoreSettingsKey#STORE_BULK_MAX_BYTES} bytes have been accumulated, or {@link DatastoreSettingsKey#STORE_BULK_FLUSH_INTERVAL} milliseconds have elapsed.
+ * Each caller gets back a {@link CompletableFuture} completed with the outcome of its own message.
+ * <p>
+ * At most {@link DatastoreSettingsKey#STORE_BULK_MAX_PENDING} messages can be buffered or being flushed: when Elasticsearch slows down
+ * the callers of {@link #enqueue(DatastoreMessage, Map)} are blocked until the running bulk requests complete.
+ * <p>
+ * {@link #close()} flushes the pending messages and stops the flush threads, which are started again by the next {@link #enqueue(DatastoreMessage, Map)}.
+ *
+ * @since 2.1.0
+ */
+@Singleton
+public class MessageStoreBulkWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageStoreBulkWriter.class);
+
+    /**
+     * Estimated size of the fields of a {@link DatastoreMessage} other than the channel, the metrics and the body.
+     */
+    private static final int MESSAGE_BASE_BYTES = 512;
+    private static final int METRIC_VALUE_BYTES = 16;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final MessageRepository messageRepository;
+    private final int bulkSize;
+    private final long bulkMaxBytes;
+    private final long flushInterval;
+    private final int flushThreads;
+    private final int maxPending;
+
+    private final Object lock = new Object();
+    private final Map<KapuaId, PendingBulk> pendingBulks = new HashMap<>();
+    private final Semaphore pendingPermits;
+    private ScheduledExecutorService flushTimer;
+    private ThreadPoolExecutor flushExecutor;
+
+    @Inject
+    public MessageStoreBulkWriter(MessageRepository messageRepository, DatastoreSettings datastoreSettings) {
+        this.messageRepository = messageRepository;
+        this.bulkSize = datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500);
+        this.bulkMaxBytes = datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_MAX_BYTES, 5242880L);
+        this.flushInterval = datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L);
+        this.flushThreads = datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_FLUSH_THREADS, 2);
+        this.maxPending = Math.max(bulkSize, datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_MAX_PENDING, 10000));
+        this.pendingPermits = new Semaphore(maxPending, true);
+    }
+
+    /**
+     * Adds a {@link DatastoreMessage} to the next bulk request.
+     * <p>
+     * Blocks while {@link DatastoreSettingsKey#STORE_BULK_MAX_PENDING} messages are already buffered or being flushed.
+     *
+     * @param messageToStore The {@link DatastoreMessage} to store.
+     * @param metrics        The metrics mappings required by the {@link DatastoreMessage}.
+     * @return A {@link CompletableFuture} completed with the stored id or exceptionally if the {@link DatastoreMessage} could not be stored.
+     * @since 2.1.0
+     */
+    public CompletableFuture<String> enqueue(DatastoreMessage messageToStore, Map<String, Metric> metrics) {
+        final PendingMessage pendingMessage = new PendingMessage(messageToStore, metrics);
+        try {
+            pendingPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingMessage.future.completeExceptionally(new ClientInternalError(e, "Interrupted while waiting for the bulk buffer"));
+            return pendingMessage.future;
+        }
+
+        List<PendingMessage> fullBulk = null;
+        ThreadPoolExecutor executor;
+        synchronized (lock) {
+            if (flushTimer == null) {
+                startFlushExecutors();
+            }
+            executor = flushExecutor;
+            final PendingBulk scopePendingBulk = pendingBulks.computeIfAbsent(messageToStore.getScopeId(), scopeId -> new PendingBulk(bulkSize));
+            scopePendingBulk.add(pendingMessage);
+            if (scopePendingBulk.messages.size() >= bulkSize || (bulkMaxBytes > 0 && scopePendingBulk.bytes >= bulkMaxBytes)) {
+                fullBulk = pendingBulks.remove(messageToStore.getScopeId()).messages;
+            }
+        }
+
+        if (fullBulk != null) {
+            submit(executor, fullBulk);
+        }
+        return pendingMessage.future;
+    }
+
+    /**
+     * Flushes the pending {@link DatastoreMessage}s and stops the flush threads.
+     * <p>
+     * Waits up to {@value #CLOSE_TIMEOUT_SECONDS} seconds for the running bulk requests to complete.
+     *
+     * @since 2.1.0
+     */
+    public void close() {
+        final List<PendingBulk> bulks;
+        final ScheduledExecutorService timer;
+        final ThreadPoolExecutor executor;
+        synchronized (lock) {
+            if (flushTimer == null) {
+                return;
+            }
+            bulks = new ArrayList<>(pendingBulks.values());
+            pendingBulks.clear();
+            timer = flushTimer;
+            executor = flushExecutor;
+            flushTimer = null;
+            flushExecutor = null;
+        }
+
+        timer.shutdownNow();
+        bulks.forEach(bulk -> submit(executor, bulk.messages));
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Bulk store still running after {} seconds, stopping it", CLOSE_TIMEOUT_SECONDS);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void startFlushExecutors() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        // The queue holds at most the bulks of the pending messages: a full queue blocks the submitter instead of growing
+        flushExecutor = new ThreadPoolExecutor(flushThreads, flushThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxPending / bulkSize)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "datastore-bulk-writer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Bulk writer closed");
+                    }
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                });
+        flushTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "datastore-bulk-writer-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushTimer.scheduleWithFixedDelay(this::flushPending, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void submit(ThreadPoolExecutor executor, List<PendingMessage> bulk) {
+        try {
+            executor.execute(() -> flush(bulk));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Bulk store rejected for {} messages", bulk.size(), e);
+            bulk.forEach(pendingMessage -> pendingMessage.future.completeExceptionally(e));
+            pendingPermits.release(bulk.size());
+        }
+    }
+
+    private void flushPending() {
+        final List<PendingBulk> bulks;
+        final ThreadPoolExecutor executor;
+        synchronized (lock) {
+            if (pendingBulks.isEmpty()) {
+                return;
+            }
+            bulks = new ArrayList<>(pendingBulks.values());
+            pendingBulks.clear();
+            executor = flushExecutor;
+        }
+        bulks.forEach(bulk -> submit(executor, bulk.messages));
+    }
+
+    private void flush(List<PendingMessage> bulk) {
+        final List<DatastoreMessage> messagesToStore = new ArrayList<>(bulk.size());
+        final List<Map<String, Metric>> metrics = new ArrayList<>(bulk.size());
+        for (PendingMessage pendingMessage : bulk) {
+            messagesToStore.add(pendingMessage.messageToStore);
+            metrics.add(pendingMessage.metrics);
+        }
+
+        try {
+            final List<InsertResponse> insertResponses = messageRepository.store(messagesToStore, metrics);
+            LOG.debug("Bulk store executed for {} messages", bulk.size());
+
+            for (int i = 0; i < bulk.size(); i++) {
+                final CompletableFuture<String> future = bulk.get(i).future;
+                if (i >= insertResponses.size()) {
+                    future.completeExceptionally(new ClientInternalError("Missing response from bulk insert"));
+                    continue;
+                }
+
+                final InsertResponse insertResponse = insertResponses.get(i);
+                if (insertResponse.isResult()) {
+                    future.complete(insertResponse.getId());
+                } else if (insertResponse.getException() != null) {
+                    future.completeExceptionally(insertResponse.getException());
+                } else {
+                    future.completeExceptionally(new ClientInternalError(insertResponse.getDescription()));
+                }
+            }
+        } catch (Exception e) {
+            LOG.warn("Bulk store failed for {} messages", bulk.size(), e);
+            bulk.forEach(pendingMessage -> pendingMessage.future.completeExceptionally(e));
+        } finally {
+            pendingPermits.release(bulk.size());
+        }
+    }
+
+    /**
+     * A {@link DatastoreMessage} waiting to be flushed.
+     *
+     * @since 2.1.0
+     */
+    private static class PendingMessage {
+
+        private final DatastoreMessage messageToStore;
+        private final Map<String, Metric> metrics;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final long bytes;
+
+        private PendingMessage(DatastoreMessage messageToStore, Map<String, Metric> metrics) {
+            this.messageToStore = messageToStore;
+            this.metrics = metrics;
+            this.bytes = estimateBytes(messageToStore);
+        }
+
+        /**
+         * Estimates the size of the {@link DatastoreMessage} in the bulk request, without serializing it.
+         */
+        private static long estimateBytes(DatastoreMessage messageToStore) {
+            long bytes = MESSAGE_BASE_BYTES;
+            if (messageToStore.getChannel() != null && messageToStore.getChannel().getSemanticParts() != null) {
+                for (String semanticPart : messageToStore.getChannel().getSemanticParts()) {
+                    bytes += semanticPart.length() + 1;
+                }
+            }
+            final KapuaPayload payload = messageToStore.getPayload();
+            if (payload != null) {
+                if (payload.getMetrics() != null) {
+                    for (Map.Entry<String, Object> metric : payload.getMetrics().entrySet()) {
+                        final Object value = metric.getValue();
+                        bytes += metric.getKey().length();
+                        if (value instanceof String) {
+                            bytes += ((String) value).length();
+                        } else if (value instanceof byte[]) {
+                            // Base64 encoded
+                            bytes += ((byte[]) value).length * 4L / 3;
+                        } else {
+                            bytes += METRIC_VALUE_BYTES;
+                        }
+                    }
+                }
+                if (payload.getBody() != null) {
+                    // Base64 encoded
+                    bytes += payload.getBody().length * 4L / 3;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * The {@link PendingMessage}s of a scope and their estimated size.
+     *
+     * @since 2.1.0
+     */
+    private static class PendingBulk {
+
+        private final List<PendingMessage> messages;
+        private long bytes;
+
+        private PendingBulk(int bulkSize) {
+            this.messages = new ArrayList<>(bulkSize);
+        }
+
+        private void add(PendingMessage pendingMessage) {
+            messages.add(pendingMessage);
+            bytes += pendingMessage.bytes;
+        }
+    }
+}
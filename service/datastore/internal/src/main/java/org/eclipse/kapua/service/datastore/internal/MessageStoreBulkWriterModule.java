@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.core.ServiceModule;
+
+/**
+ * {@link ServiceModule} which flushes the pending messages of the {@link MessageStoreBulkWriter} when stopped.
+ * <p>
+ * The {@link MessageStoreBulkWriter} starts its flush threads with the first enqueued message, so there is nothing to start.
+ *
+ * @since 2.1.0
+ */
+public class MessageStoreBulkWriterModule implements ServiceModule {
+
+    private final MessageStoreBulkWriter messageStoreBulkWriter;
+
+    public MessageStoreBulkWriterModule(MessageStoreBulkWriter messageStoreBulkWriter) {
+        this.messageStoreBulkWriter = messageStoreBulkWriter;
+    }
+
+    @Override
+    public void start() throws KapuaException {
+        // Nothing to start
+    }
+
+    @Override
+    public void stop() throws KapuaException {
+        messageStoreBulkWriter.close();
+    }
+}
@@ -20,11 +20,14 @@ import org.eclipse.kapua.service.datastore.internal.mediator.ConfigurationExcept
 import org.eclipse.kapua.service.datastore.internal.mediator.MessageInfo;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
 import org.eclipse.kapua.service.storable.exception.MappingException;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface MessageStoreFacade {
     StorableId store(KapuaMessage<?, ?> message, String messageId, boolean newInsert)
             throws KapuaIllegalArgumentException,
@@ -32,6 +35,12 @@ public interface MessageStoreFacade {
             ConfigurationException,
             ClientException, MappingException;
 
+    CompletableFuture<StorableId> storeBatched(KapuaMessage<?, ?> message, String messageId, boolean newInsert)
+            throws KapuaIllegalArgumentException,
+            DatastoreDisabledException,
+            ConfigurationException,
+            ClientException;
+
     void onAfterMessageStore(MessageInfo messageInfo, DatastoreMessage message)
             throws KapuaIllegalArgumentException,
             ConfigurationException,
@@ -53,6 +62,11 @@ public interface MessageStoreFacade {
             ConfigurationException,
             ClientException;
 
+    MetricHistogram histogram(MessageQuery query, String metricName, Class<?> metricType, String interval)
+            throws KapuaIllegalArgumentException,
+            ConfigurationException,
+            ClientException;
+
     long count(MessageQuery query)
             throws KapuaIllegalArgumentException,
             ConfigurationException,
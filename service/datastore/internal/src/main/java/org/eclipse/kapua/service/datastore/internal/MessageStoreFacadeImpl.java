@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
@@ -32,12 +33,15 @@ import org.eclipse.kapua.service.datastore.internal.mediator.MessageInfo;
 import org.eclipse.kapua.service.datastore.internal.mediator.MessageStoreConfiguration;
 import org.eclipse.kapua.service.datastore.internal.mediator.Metric;
 import org.eclipse.kapua.service.datastore.internal.mediator.MetricInfoField;
+import org.eclipse.kapua.service.datastore.internal.mediator.MetricRollupField;
 import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.ClientInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.DataIndexBy;
 import org.eclipse.kapua.service.datastore.internal.model.DatastoreMessageImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MessageListResultImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MessageUniquenessCheck;
+import org.eclipse.kapua.service.datastore.internal.model.MetricHistogramBucketImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricHistogramImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MetricInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
@@ -47,10 +51,14 @@ import org.eclipse.kapua.service.datastore.model.ChannelInfoListResult;
 import org.eclipse.kapua.service.datastore.model.ClientInfoListResult;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
+import org.eclipse.kapua.service.datastore.model.MetricHistogramBucket;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
 import org.eclipse.kapua.service.elasticsearch.client.exception.QueryMappingException;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
 import org.eclipse.kapua.service.storable.exception.MappingException;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
 import org.eclipse.kapua.service.storable.model.id.StorableIdFactory;
@@ -60,8 +68,11 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Message store facade
@@ -73,9 +84,6 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
     private static final Logger LOG = LoggerFactory.getLogger(MessageStoreFacadeImpl.class);
 
     private final StorableIdFactory storableIdFactory;
-    private final ClientInfoRegistryFacade clientInfoRegistryFacade;
-    private final ChannelInfoRegistryFacade channelInfoStoreFacade;
-    private final MetricInfoRegistryFacade metricInfoStoreFacade;
     private final MessageRepository messageRepository;
     private final MetricInfoRepository metricInfoRepository;
     private final ChannelInfoRepository channelInfoRepository;
@@ -83,6 +91,10 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
     private final MetricsDatastore metrics;
     private final DatastoreUtils datastoreUtils;
     private final DatastoreCacheManager datastoreCacheManager;
+    private final MessageStoreBulkWriter messageStoreBulkWriter;
+    private final RegistryInfoBulkWriter registryInfoBulkWriter;
+    private final MetricRollupRepository metricRollupRepository;
+    private final MetricRollupManager metricRollupManager;
 
     private static final String QUERY = "query";
     private static final String QUERY_SCOPE_ID = "query.scopeId";
@@ -92,21 +104,19 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
     public MessageStoreFacadeImpl(
             ConfigurationProvider configProvider,
             StorableIdFactory storableIdFactory,
-            ClientInfoRegistryFacade clientInfoRegistryFacade,
-            ChannelInfoRegistryFacade channelInfoStoreFacade,
-            MetricInfoRegistryFacade metricInfoStoreFacade,
             MessageRepository messageRepository,
             MetricInfoRepository metricInfoRepository,
             ChannelInfoRepository channelInfoRepository,
             ClientInfoRepository clientInfoRepository,
             MetricsDatastore metricsDatastore,
             DatastoreUtils datastoreUtils,
-            DatastoreCacheManager datastoreCacheManager) {
+            DatastoreCacheManager datastoreCacheManager,
+            MessageStoreBulkWriter messageStoreBulkWriter,
+            RegistryInfoBulkWriter registryInfoBulkWriter,
+            MetricRollupRepository metricRollupRepository,
+            MetricRollupManager metricRollupManager) {
         super(configProvider);
         this.storableIdFactory = storableIdFactory;
-        this.clientInfoRegistryFacade = clientInfoRegistryFacade;
-        this.channelInfoStoreFacade = channelInfoStoreFacade;
-        this.metricInfoStoreFacade = metricInfoStoreFacade;
         this.messageRepository = messageRepository;
         this.metricInfoRepository = metricInfoRepository;
         this.channelInfoRepository = channelInfoRepository;
@@ -114,6 +124,10 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
         this.metrics = metricsDatastore;
         this.datastoreUtils = datastoreUtils;
         this.datastoreCacheManager = datastoreCacheManager;
+        this.messageStoreBulkWriter = messageStoreBulkWriter;
+        this.registryInfoBulkWriter = registryInfoBulkWriter;
+        this.metricRollupRepository = metricRollupRepository;
+        this.metricRollupManager = metricRollupManager;
     }
 
     /**
@@ -127,6 +141,62 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
      */
     @Override
     public StorableId store(KapuaMessage<?, ?> message, String messageId, boolean newInsert) throws KapuaIllegalArgumentException, DatastoreDisabledException, ConfigurationException, ClientException, MappingException {
+        // Save message (the big one)
+        final DatastoreMessage messageToStore = prepareMessageToStore(message, messageId, newInsert);
+        if (messageToStore == null) {
+            return storableIdFactory.newStorableId(messageId);
+        }
+
+        final String storedId = messageRepository.store(messageToStore, getMessageMetrics(message));
+        messageToStore.setDatastoreId(storableIdFactory.newStorableId(storedId));
+
+        MessageInfo messageInfo = configProvider.getInfo(message.getScopeId());
+        this.onAfterMessageStore(messageInfo, messageToStore);
+
+        return storableIdFactory.newStorableId(storedId);
+    }
+
+    /**
+     * Store a message through the {@link MessageStoreBulkWriter}
+     *
+     * @param message
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws ConfigurationException
+     * @throws ClientException
+     */
+    @Override
+    public CompletableFuture<StorableId> storeBatched(KapuaMessage<?, ?> message, String messageId, boolean newInsert) throws KapuaIllegalArgumentException, DatastoreDisabledException, ConfigurationException, ClientException {
+        final DatastoreMessage messageToStore = prepareMessageToStore(message, messageId, newInsert);
+        if (messageToStore == null) {
+            return CompletableFuture.completedFuture(storableIdFactory.newStorableId(messageId));
+        }
+
+        final MessageInfo messageInfo = configProvider.getInfo(message.getScopeId());
+        return messageStoreBulkWriter.enqueue(messageToStore, getMessageMetrics(message))
+                .thenApply(storedId -> {
+                    messageToStore.setDatastoreId(storableIdFactory.newStorableId(storedId));
+                    try {
+                        this.onAfterMessageStore(messageInfo, messageToStore);
+                    } catch (KapuaException e) {
+                        throw new CompletionException(e);
+                    }
+                    return storableIdFactory.newStorableId(storedId);
+                });
+    }
+
+    /**
+     * Validates the message and converts it to the {@link DatastoreMessage} to store.
+     *
+     * @param message
+     * @param messageId
+     * @param newInsert
+     * @return The {@link DatastoreMessage} to store or {@code null} if the message is already in the datastore.
+     * @throws KapuaIllegalArgumentException
+     * @throws ConfigurationException
+     * @throws ClientException
+     */
+    private DatastoreMessage prepareMessageToStore(KapuaMessage<?, ?> message, String messageId, boolean newInsert) throws KapuaIllegalArgumentException, DatastoreDisabledException, ConfigurationException, ClientException {
         ArgumentValidator.notNull(message, "message");
         ArgumentValidator.notNull(message.getScopeId(), SCOPE_ID);
         ArgumentValidator.notNull(message.getReceivedOn(), "receivedOn");
@@ -160,13 +230,22 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
             if (datastoreMessage != null) {
                 LOG.debug("Message with datastore id '{}' already found", messageId);
                 metrics.getAlreadyInTheDatastore().inc();
-                return storableIdFactory.newStorableId(messageId);
+                return null;
             }
         }
 
-        // Save message (the big one)
         final DatastoreMessage messageToStore = convertTo(message, messageId);
         messageToStore.setTimestamp(indexedOnDate);
+        return messageToStore;
+    }
+
+    /**
+     * Extracts the metrics mappings required by the message.
+     *
+     * @param message
+     * @return
+     */
+    private Map<String, Metric> getMessageMetrics(KapuaMessage<?, ?> message) {
         // Possibly update the schema with new metric mappings
         Map<String, Metric> metrics = new HashMap<>();
         if (message.getPayload() != null && message.getPayload().getMetrics() != null && !message.getPayload().getMetrics().isEmpty()) {
@@ -181,14 +260,7 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
                 metrics.put(mappedName, metric);
             }
         }
-
-        final String storedId = messageRepository.store(messageToStore, metrics);
-        messageToStore.setDatastoreId(storableIdFactory.newStorableId(storedId));
-
-        MessageInfo messageInfo = configProvider.getInfo(message.getScopeId());
-        this.onAfterMessageStore(messageInfo, messageToStore);
-
-        return storableIdFactory.newStorableId(storedId);
+        return metrics;
     }
 
     /**
@@ -269,6 +341,56 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
         return messageRepository.find(scopeId, id);
     }
 
+    @Override
+    public MetricHistogram histogram(MessageQuery query, String metricName, Class<?> metricType, String interval)
+            throws KapuaIllegalArgumentException,
+            ConfigurationException,
+            ClientException {
+        ArgumentValidator.notNull(query, QUERY);
+        ArgumentValidator.notNull(query.getScopeId(), QUERY_SCOPE_ID);
+
+        MetricHistogram metricHistogram = new MetricHistogramImpl();
+        metricHistogram.setName(metricName);
+        metricHistogram.setMetricType(metricType);
+        metricHistogram.setInterval(interval);
+        if (!isDatastoreServiceEnabled(query.getScopeId())) {
+            LOG.debug("Storage not enabled for account {}, returning empty result", query.getScopeId());
+            return metricHistogram;
+        }
+
+        List<DateHistogramBucket> dateHistogramBuckets;
+        String rollupResolution = metricRollupManager.getRoutingResolution(query, interval, configProvider.getConfiguration(query.getScopeId()), System.currentTimeMillis());
+        if (rollupResolution != null) {
+            // Old ranges are served by the pre-aggregated rollups instead of the raw messages
+            DateHistogramRequest dateHistogramRequest = new DateHistogramRequest(MetricRollupField.TIMESTAMP.field(),
+                    interval,
+                    MetricRollupField.COUNT.field(),
+                    MetricRollupField.MIN.field(),
+                    MetricRollupField.MAX.field(),
+                    MetricRollupField.SUM.field());
+            dateHistogramBuckets = metricRollupRepository.dateHistogram(metricRollupManager.toRollupQuery(query, metricName, metricType), rollupResolution, dateHistogramRequest);
+        } else {
+            String metricField = String.format("%s.%s",
+                    MessageField.METRICS.field(),
+                    datastoreUtils.getMetricValueQualifier(datastoreUtils.normalizeMetricName(metricName), datastoreUtils.getClientMetricFromType(metricType)));
+            DateHistogramRequest dateHistogramRequest = new DateHistogramRequest(MessageField.TIMESTAMP.field(), interval, metricField);
+            dateHistogramBuckets = messageRepository.dateHistogram(query, dateHistogramRequest);
+        }
+
+        for (DateHistogramBucket dateHistogramBucket : dateHistogramBuckets) {
+            MetricHistogramBucket metricHistogramBucket = new MetricHistogramBucketImpl();
+            metricHistogramBucket.setTimestamp(new Date(dateHistogramBucket.getKey()));
+            metricHistogramBucket.setMessageCount(dateHistogramBucket.getDocCount());
+            metricHistogramBucket.setCount(dateHistogramBucket.getCount());
+            metricHistogramBucket.setMin(dateHistogramBucket.getMin());
+            metricHistogramBucket.setMax(dateHistogramBucket.getMax());
+            metricHistogramBucket.setAvg(dateHistogramBucket.getAvg());
+            metricHistogramBucket.setSum(dateHistogramBucket.getSum());
+            metricHistogram.getBuckets().add(metricHistogramBucket);
+        }
+        return metricHistogram;
+    }
+
     @Override
     public long count(MessageQuery query) throws KapuaIllegalArgumentException, ConfigurationException, ClientException {
         ArgumentValidator.notNull(query, QUERY);
@@ -296,7 +418,7 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
         clientInfo.setId(storableIdFactory.newStorableId(ClientInfoField.getOrDeriveId(null, message.getScopeId(), message.getClientId())));
         clientInfo.setFirstMessageId(message.getDatastoreId());
         clientInfo.setFirstMessageOn(message.getTimestamp());
-        clientInfoRegistryFacade.upstore(clientInfo);
+        registryInfoBulkWriter.add(clientInfo);
 
         ChannelInfoImpl channelInfo = new ChannelInfoImpl(message.getScopeId());
         channelInfo.setClientId(message.getClientId());
@@ -304,7 +426,7 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
         channelInfo.setFirstMessageId(message.getDatastoreId());
         channelInfo.setFirstMessageOn(message.getTimestamp());
         channelInfo.setId(storableIdFactory.newStorableId(ChannelInfoField.getOrDeriveId(null, channelInfo)));
-        channelInfoStoreFacade.upstore(channelInfo);
+        registryInfoBulkWriter.add(channelInfo);
 
         KapuaPayload payload = message.getPayload();
         if (payload == null) {
@@ -316,8 +438,6 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
             return;
         }
 
-        int i = 0;
-        MetricInfoImpl[] messageMetrics = new MetricInfoImpl[metrics.size()];
         for (Map.Entry<String, Object> entry : metrics.entrySet()) {
             MetricInfoImpl metricInfo = new MetricInfoImpl(message.getScopeId());
             metricInfo.setClientId(message.getClientId());
@@ -327,10 +447,8 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
             metricInfo.setId(storableIdFactory.newStorableId(MetricInfoField.getOrDeriveId(null, metricInfo)));
             metricInfo.setFirstMessageId(message.getDatastoreId());
             metricInfo.setFirstMessageOn(message.getTimestamp());
-            messageMetrics[i++] = metricInfo;
+            registryInfoBulkWriter.add(metricInfo);
         }
-
-        metricInfoStoreFacade.upstore(messageMetrics);
     }
 
     /**
@@ -497,6 +615,7 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
 
     @Override
     public void refreshAllIndexes() throws ClientException {
+        registryInfoBulkWriter.flush();
         messageRepository.refreshAllIndexes();
         clientInfoRepository.refreshAllIndexes();
         channelInfoRepository.refreshAllIndexes();
@@ -505,15 +624,18 @@ public final class MessageStoreFacadeImpl extends AbstractDatastoreFacade implem
 
     @Override
     public void deleteAllIndexes() throws ClientException {
+        registryInfoBulkWriter.clear();
         messageRepository.deleteAllIndexes();
         clientInfoRepository.deleteAllIndexes();
         channelInfoRepository.deleteAllIndexes();
         metricInfoRepository.deleteAllIndexes();
+        metricRollupRepository.deleteAllIndexes();
     }
 
 
     @Override
     public void deleteIndexes(String indexExp) throws ClientException {
+        registryInfoBulkWriter.clear();
         messageRepository.deleteIndexes(indexExp);
         clientInfoRepository.deleteIndexes(indexExp);
         channelInfoRepository.deleteIndexes(indexExp);
@@ -17,9 +17,13 @@ import org.eclipse.kapua.service.datastore.MessageStoreFactory;
 import org.eclipse.kapua.service.datastore.MetricInfoFactory;
 import org.eclipse.kapua.service.datastore.internal.model.DatastoreMessageImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MessageListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricHistogramBucketImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricHistogramImpl;
 import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
+import org.eclipse.kapua.service.datastore.model.MetricHistogramBucket;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 
 import javax.inject.Singleton;
@@ -46,4 +50,14 @@ public class MessageStoreFactoryImpl implements MessageStoreFactory {
     public MessageQuery newQuery(KapuaId scopeId) {
         return new MessageQueryImpl(scopeId);
     }
+
+    @Override
+    public MetricHistogram newMetricHistogram() {
+        return new MetricHistogramImpl();
+    }
+
+    @Override
+    public MetricHistogramBucket newMetricHistogramBucket() {
+        return new MetricHistogramBucketImpl();
+    }
 }
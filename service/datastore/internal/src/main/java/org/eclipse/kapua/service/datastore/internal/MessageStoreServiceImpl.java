@@ -16,6 +16,7 @@ import com.codahale.metrics.Timer.Context;
 import org.eclipse.kapua.KapuaErrorCodes;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.KapuaIllegalNullArgumentException;
 import org.eclipse.kapua.commons.configuration.KapuaConfigurableServiceBase;
 import org.eclipse.kapua.commons.configuration.ServiceConfigurationManager;
 import org.eclipse.kapua.commons.model.domains.Domains;
@@ -30,23 +31,40 @@ import org.eclipse.kapua.service.datastore.MessageStoreService;
 import org.eclipse.kapua.service.datastore.internal.mediator.ConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreCommunicationException;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreException;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
 import org.eclipse.kapua.service.datastore.model.MessageListResult;
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
 import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientCommunicationException;
 import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
+import org.eclipse.kapua.service.storable.model.query.predicate.AndPredicate;
+import org.eclipse.kapua.service.storable.model.query.predicate.RangePredicate;
+import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicate;
 import org.eclipse.kapua.storage.TxManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Message store service implementation.
@@ -58,13 +76,27 @@ public class MessageStoreServiceImpl extends KapuaConfigurableServiceBase implem
 
     private static final Logger logger = LoggerFactory.getLogger(MessageStoreServiceImpl.class);
 
+    private static final Set<Class<?>> HISTOGRAM_METRIC_TYPES = new HashSet<>(Arrays.asList(Integer.class, Long.class, Float.class, Double.class));
+    private static final Map<String, Long> HISTOGRAM_INTERVAL_UNITS = new HashMap<>();
+    private static final Pattern HISTOGRAM_INTERVAL_PATTERN = Pattern.compile("^([1-9][0-9]{0,8})(ms|s|m|h|d)$");
+
+    static {
+        HISTOGRAM_INTERVAL_UNITS.put("ms", 1L);
+        HISTOGRAM_INTERVAL_UNITS.put("s", TimeUnit.SECONDS.toMillis(1));
+        HISTOGRAM_INTERVAL_UNITS.put("m", TimeUnit.MINUTES.toMillis(1));
+        HISTOGRAM_INTERVAL_UNITS.put("h", TimeUnit.HOURS.toMillis(1));
+        HISTOGRAM_INTERVAL_UNITS.put("d", TimeUnit.DAYS.toMillis(1));
+    }
+
     private MetricsDatastore metrics;
     protected AuthorizationService authorizationService;
     protected PermissionFactory permissionFactory;
 
     protected final Integer maxEntriesOnDelete;
     protected final Integer maxResultWindowValue;
+    protected final Integer maxHistogramBuckets;
     protected final MessageStoreFacade messageStoreFacade;
+    protected final CachingConfigurationProvider cachingConfigurationProvider;
 
     @Inject
     public MessageStoreServiceImpl(
@@ -74,15 +106,24 @@ public class MessageStoreServiceImpl extends KapuaConfigurableServiceBase implem
             ServiceConfigurationManager serviceConfigurationManager,
             MessageStoreFacade messageStoreFacade,
             MetricsDatastore metricsDatastore,
-            DatastoreSettings datastoreSettings
+            DatastoreSettings datastoreSettings,
+            CachingConfigurationProvider cachingConfigurationProvider
     ) {
         super(txManager, serviceConfigurationManager, Domains.DATASTORE, authorizationService, permissionFactory);
         this.permissionFactory = permissionFactory;
         this.authorizationService = authorizationService;
         this.metrics = metricsDatastore;
         this.messageStoreFacade = messageStoreFacade;
+        this.cachingConfigurationProvider = cachingConfigurationProvider;
         maxEntriesOnDelete = datastoreSettings.getInt(DatastoreSettingsKey.CONFIG_MAX_ENTRIES_ON_DELETE);
         maxResultWindowValue = datastoreSettings.getInt(DatastoreSettingsKey.MAX_RESULT_WINDOW_VALUE);
+        maxHistogramBuckets = datastoreSettings.getInt(DatastoreSettingsKey.HISTOGRAM_MAX_BUCKETS, 1000);
+    }
+
+    @Override
+    public void setConfigValues(KapuaId scopeId, KapuaId parentId, Map<String, Object> values) throws KapuaException {
+        super.setConfigValues(scopeId, parentId, values);
+        cachingConfigurationProvider.invalidate(scopeId);
     }
 
     @Override
@@ -94,19 +135,8 @@ public class MessageStoreServiceImpl extends KapuaConfigurableServiceBase implem
             checkDataAccess(message.getScopeId(), Actions.write);
             metrics.getMessage().inc();
             return messageStoreFacade.store(message, datastoreId, true);
-        } catch (ConfigurationException e) {
-            metrics.getConfigurationError().inc();
-            throw e;
-        } catch (KapuaIllegalArgumentException e) {
-            metrics.getValidationError().inc();
-            throw e;
-        } catch (ClientCommunicationException e) {
-            metrics.getCommunicationError().inc();
-            throw new DatastoreCommunicationException(datastoreId, e);
         } catch (Exception e) {
-            metrics.getGenericError().inc();
-            logException(e);
-            throw new DatastoreException(KapuaErrorCodes.INTERNAL_ERROR, e, e.getMessage());
+            throw handleStoreException(datastoreId, e);
         } finally {
             metricDataSaveTimeContext.stop();
         }
@@ -121,21 +151,69 @@ public class MessageStoreServiceImpl extends KapuaConfigurableServiceBase implem
             checkDataAccess(message.getScopeId(), Actions.write);
             metrics.getMessage().inc();
             return messageStoreFacade.store(message, datastoreId, false);
-        } catch (ConfigurationException e) {
+        } catch (Exception e) {
+            throw handleStoreException(datastoreId, e);
+        } finally {
+            metricDataSaveTimeContext.stop();
+        }
+    }
+
+    @Override
+    public CompletableFuture<StorableId> storeBatched(KapuaMessage<?, ?> message)
+            throws KapuaException {
+        return storeBatched(message, UUID.randomUUID().toString(), true);
+    }
+
+    @Override
+    public CompletableFuture<StorableId> storeBatched(KapuaMessage<?, ?> message, String datastoreId)
+            throws KapuaException {
+        ArgumentValidator.notEmptyOrNull(datastoreId, "datastoreId");
+        return storeBatched(message, datastoreId, false);
+    }
+
+    private CompletableFuture<StorableId> storeBatched(KapuaMessage<?, ?> message, String datastoreId, boolean newInsert)
+            throws KapuaException {
+        Context metricDataSaveTimeContext = metrics.getDataSaveTime().time();
+        try {
+            checkDataAccess(message.getScopeId(), Actions.write);
+            metrics.getMessage().inc();
+            return messageStoreFacade.storeBatched(message, datastoreId, newInsert)
+                    .handle((storableId, throwable) -> {
+                        metricDataSaveTimeContext.stop();
+                        if (throwable != null) {
+                            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                            throw new CompletionException(handleStoreException(datastoreId, cause instanceof Exception ? (Exception) cause : new Exception(cause)));
+                        }
+                        return storableId;
+                    });
+        } catch (Exception e) {
+            metricDataSaveTimeContext.stop();
+            throw handleStoreException(datastoreId, e);
+        }
+    }
+
+    /**
+     * Updates the error metrics and converts the given {@link Exception} raised while storing a message.
+     *
+     * @param datastoreId The id of the message being stored.
+     * @param e           The {@link Exception} raised.
+     * @return The {@link KapuaException} to report to the caller.
+     * @since 2.1.0
+     */
+    private KapuaException handleStoreException(String datastoreId, Exception e) {
+        if (e instanceof ConfigurationException) {
             metrics.getConfigurationError().inc();
-            throw e;
-        } catch (KapuaIllegalArgumentException e) {
+            return (ConfigurationException) e;
+        } else if (e instanceof KapuaIllegalArgumentException) {
             metrics.getValidationError().inc();
-            throw e;
-        } catch (ClientCommunicationException e) {
+            return (KapuaIllegalArgumentException) e;
+        } else if (e instanceof ClientCommunicationException) {
             metrics.getCommunicationError().inc();
-            throw new DatastoreCommunicationException(datastoreId, e);
-        } catch (Exception e) {
+            return new DatastoreCommunicationException(datastoreId, e);
+        } else {
             metrics.getGenericError().inc();
             logException(e);
-            throw new DatastoreException(KapuaErrorCodes.INTERNAL_ERROR, e, e.getMessage());
-        } finally {
-            metricDataSaveTimeContext.stop();
+            return new DatastoreException(KapuaErrorCodes.INTERNAL_ERROR, e, e.getMessage());
         }
     }
 
@@ -159,7 +237,15 @@ public class MessageStoreServiceImpl extends KapuaConfigurableServiceBase implem
     public MessageListResult query(MessageQuery query)
             throws KapuaException {
         checkDataAccess(query.getScopeId(), Actions.read);
-        if (query.getLimit() != null && query.getOffset() != null) {
+        if (query.isCursorPaging()) {
+            // The offset is ignored: the cost of a page does not depend on its depth
+            if (query.getLimit() != null) {
+                ArgumentValidator.notNegative(query.getLimit(), "limit");
+                ArgumentValidator.numLessThenOrEqual(query.getLimit(), maxResultWindowValue, "limit");
+            }
+            // Decoded once here, the decoded cursor is kept by the query
+            query.getDecodedCursor();
+        } else if (query.getLimit() != null && query.getOffset() != null) {
             ArgumentValidator.notNegative(query.getLimit(), "limit");
             ArgumentValidator.notNegative(query.getOffset(), "offset");
             ArgumentValidator.numLessThenOrEqual(query.getLimit() + query.getOffset(), maxResultWindowValue, "limit + offset");
@@ -190,6 +276,61 @@ public class MessageStoreServiceImpl extends KapuaConfigurableServiceBase implem
         }
     }
 
+    @Override
+    public MetricHistogram histogram(MessageQuery query, String metricName, Class<?> metricType, String interval)
+            throws KapuaException {
+        checkDataAccess(query.getScopeId(), Actions.read);
+        ArgumentValidator.notEmptyOrNull(metricName, "metricName");
+        ArgumentValidator.notNull(metricType, "metricType");
+        ArgumentValidator.notEmptyOrNull(interval, "interval");
+        if (!HISTOGRAM_METRIC_TYPES.contains(metricType)) {
+            throw new KapuaIllegalArgumentException("metricType", metricType.getSimpleName());
+        }
+        Matcher intervalMatcher = HISTOGRAM_INTERVAL_PATTERN.matcher(interval);
+        if (!intervalMatcher.matches()) {
+            throw new KapuaIllegalArgumentException("interval", interval);
+        }
+        checkHistogramBuckets(query, Long.parseLong(intervalMatcher.group(1)) * HISTOGRAM_INTERVAL_UNITS.get(intervalMatcher.group(2)));
+        try {
+            return messageStoreFacade.histogram(query, metricName, metricType, interval);
+        } catch (Exception e) {
+            logException(e);
+            throw new DatastoreException(KapuaErrorCodes.INTERNAL_ERROR,
+                    e.getCause() != null && (e.getCause() instanceof ClientException) ? e.getCause() : e,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the histogram of the given {@link MessageQuery} does not exceed the {@link #maxHistogramBuckets}.
+     * <p>
+     * The number of buckets is bounded by the timestamp range of the {@link MessageQuery}, which must have a start date.
+     * When the range has no end date, it ends now.
+     *
+     * @param query          The {@link MessageQuery} of the histogram.
+     * @param intervalMillis The interval of the histogram buckets, in milliseconds.
+     * @throws KapuaIllegalArgumentException if the range has no start date or the histogram has too many buckets.
+     * @since 2.1.0
+     */
+    private void checkHistogramBuckets(MessageQuery query, long intervalMillis) throws KapuaIllegalArgumentException {
+        Date startDate = null;
+        Date endDate = null;
+        for (StorablePredicate predicate : query.getPredicate() instanceof AndPredicate ? ((AndPredicate) query.getPredicate()).getPredicates() : Collections.singletonList(query.getPredicate())) {
+            if (predicate instanceof RangePredicate && MessageField.TIMESTAMP.field().equals(((RangePredicate) predicate).getField().field())) {
+                RangePredicate rangePredicate = (RangePredicate) predicate;
+                startDate = rangePredicate.getMinValue() instanceof Date ? (Date) rangePredicate.getMinValue() : startDate;
+                endDate = rangePredicate.getMaxValue() instanceof Date ? (Date) rangePredicate.getMaxValue() : endDate;
+            }
+        }
+        if (startDate == null) {
+            throw new KapuaIllegalNullArgumentException("startDate");
+        }
+
+        long rangeMillis = (endDate != null ? endDate.getTime() : System.currentTimeMillis()) - startDate.getTime();
+        // The first and the last bucket are aligned to the interval, so the range can span one more bucket
+        ArgumentValidator.numLessThenOrEqual(Math.max(0, rangeMillis) / intervalMillis + 1, maxHistogramBuckets, "interval");
+    }
+
     @Override
     public void delete(KapuaId scopeId, StorableId id)
             throws KapuaException {
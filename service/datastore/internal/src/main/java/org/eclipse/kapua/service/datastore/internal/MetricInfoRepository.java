@@ -12,11 +12,21 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.model.MetricInfo;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.storable.repository.StorableRepository;
 
+import java.util.Set;
+
 public interface MetricInfoRepository extends StorableRepository<MetricInfo, MetricInfoListResult, MetricInfoQuery> {
 
+    /**
+     * Finds the scopes which have a metric registry index.
+     *
+     * @return The scope {@link KapuaId}s.
+     * @since 2.1.0
+     */
+    Set<KapuaId> findScopeIds();
 }
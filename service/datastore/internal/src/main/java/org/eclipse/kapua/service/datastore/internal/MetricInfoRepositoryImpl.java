@@ -13,6 +13,7 @@
 package org.eclipse.kapua.service.datastore.internal;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.MetricInfoFactory;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
@@ -22,11 +23,17 @@ import org.eclipse.kapua.service.datastore.model.MetricInfo;
 import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
 import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
 import org.eclipse.kapua.service.elasticsearch.client.ElasticsearchClientProvider;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
+import org.eclipse.kapua.service.elasticsearch.client.model.IndexRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.IndexResponse;
 import org.eclipse.kapua.service.storable.exception.MappingException;
 import org.eclipse.kapua.service.storable.model.id.StorableId;
 import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicateFactory;
 
 import javax.inject.Inject;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
 
 public class MetricInfoRepositoryImpl extends DatastoreElasticSearchRepositoryBase<MetricInfo, MetricInfoListResult, MetricInfoQuery> implements MetricInfoRepository {
 
@@ -64,6 +71,37 @@ public class MetricInfoRepositoryImpl extends DatastoreElasticSearchRepositoryBa
         return storable.getId();
     }
 
+    @Override
+    public Set<KapuaId> findScopeIds() {
+        final String anyScopeIndexName = datastoreUtils.getMetricIndexName(KapuaId.ANY);
+        final String indexNamePrefix = anyScopeIndexName.substring(0, anyScopeIndexName.indexOf('*'));
+        final String indexNameSuffix = anyScopeIndexName.substring(anyScopeIndexName.indexOf('*') + 1);
+
+        final IndexResponse indexResponse;
+        try {
+            indexResponse = elasticsearchClientProviderInstance.getElasticsearchClient().findIndexes(new IndexRequest(anyScopeIndexName));
+        } catch (ClientException e) {
+            throw new RuntimeException(e);
+        }
+
+        final Set<KapuaId> scopeIds = new HashSet<>();
+        if (indexResponse.getIndexes() == null) {
+            return scopeIds;
+        }
+        for (String index : indexResponse.getIndexes()) {
+            final String indexName = index.trim();
+            if (indexName.length() <= indexNamePrefix.length() + indexNameSuffix.length() || !indexName.startsWith(indexNamePrefix) || !indexName.endsWith(indexNameSuffix)) {
+                continue;
+            }
+            try {
+                scopeIds.add(new KapuaEid(new BigInteger(indexName.substring(indexNamePrefix.length(), indexName.length() - indexNameSuffix.length()))));
+            } catch (NumberFormatException e) {
+                logger.debug("Skipping metric index {} which does not belong to a scope", indexName);
+            }
+        }
+        return scopeIds;
+    }
+
     @Override
     public void refreshAllIndexes() {
         super.refreshIndex(datastoreUtils.getMetricIndexName(KapuaId.ANY));
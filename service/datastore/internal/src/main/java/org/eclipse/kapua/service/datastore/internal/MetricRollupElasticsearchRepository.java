@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollup;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollupProgress;
+import org.eclipse.kapua.service.datastore.internal.schema.MetricRollupSchema;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.elasticsearch.client.ElasticsearchClient;
+import org.eclipse.kapua.service.elasticsearch.client.ElasticsearchClientProvider;
+import org.eclipse.kapua.service.elasticsearch.client.SchemaKeys;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
+import org.eclipse.kapua.service.elasticsearch.client.model.BulkInsertRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.IndexRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.IndexResponse;
+import org.eclipse.kapua.service.elasticsearch.client.model.InsertRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
+import org.eclipse.kapua.service.elasticsearch.client.model.VersionedDocument;
+import org.eclipse.kapua.service.storable.exception.MappingException;
+import org.eclipse.kapua.service.storable.model.utils.KeyValueEntry;
+import org.eclipse.kapua.service.storable.model.utils.MappingUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MetricRollupElasticsearchRepository implements MetricRollupRepository {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricRollupElasticsearchRepository.class);
+
+    private static final String LEASE_ID = "lease";
+    private static final String LEASE_OWNER = "owner";
+    private static final String LEASE_EXPIRES_ON = "expiresOn";
+    private static final String PROGRESS_SCOPE_ID = "scopeId";
+    private static final String PROGRESS_RESOLUTION = "resolution";
+    private static final String PROGRESS_FROM = "from";
+    private static final String PROGRESS_UNTIL = "until";
+
+    private final ElasticsearchClientProvider elasticsearchClientProviderInstance;
+    private final DatastoreSettings datastoreSettings;
+    private final DatastoreUtils datastoreUtils;
+    private final Set<String> upsertedIndexes = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public MetricRollupElasticsearchRepository(
+            ElasticsearchClientProvider elasticsearchClientProviderInstance,
+            DatastoreSettings datastoreSettings,
+            DatastoreUtils datastoreUtils) {
+        this.elasticsearchClientProviderInstance = elasticsearchClientProviderInstance;
+        this.datastoreSettings = datastoreSettings;
+        this.datastoreUtils = datastoreUtils;
+    }
+
+    @Override
+    public void store(List<MetricRollup> metricRollups) throws ClientException {
+        if (metricRollups.isEmpty()) {
+            return;
+        }
+
+        final BulkInsertRequest bulkInsertRequest = new BulkInsertRequest();
+        for (MetricRollup metricRollup : metricRollups) {
+            final String indexName = datastoreUtils.getRollupIndexName(metricRollup.getScopeId(), metricRollup.getResolution(), metricRollup.getTimestamp().getTime());
+            upsertIndex(indexName);
+            bulkInsertRequest.add(new InsertRequest(idExtractor(metricRollup), indexName, metricRollup));
+        }
+
+        for (InsertResponse insertResponse : elasticsearchClientProviderInstance.getElasticsearchClient().insert(bulkInsertRequest).getResponse()) {
+            if (!insertResponse.isResult()) {
+                LOG.warn("Cannot store metric rollup {} in index {}: {}", insertResponse.getId(), insertResponse.getIndex(), insertResponse.getDescription());
+            }
+        }
+    }
+
+    @Override
+    public List<DateHistogramBucket> dateHistogram(MessageQuery query, String resolution, DateHistogramRequest dateHistogramRequest) throws ClientException {
+        return elasticsearchClientProviderInstance.getElasticsearchClient().dateHistogram(datastoreUtils.getRollupIndexName(query.getScopeId(), resolution), query, dateHistogramRequest);
+    }
+
+    @Override
+    public void deleteIndexesBefore(KapuaId scopeId, String resolution, long timestamp) throws ClientException {
+        final ElasticsearchClient<?> elasticsearchClient = elasticsearchClientProviderInstance.getElasticsearchClient();
+        final IndexResponse indexResponse = elasticsearchClient.findIndexes(new IndexRequest(datastoreUtils.getRollupIndexName(scopeId, resolution)));
+        if (indexResponse.getIndexes() == null) {
+            return;
+        }
+
+        // Weekly index names are zero padded, so they sort as their weeks: the index of the week of the timestamp is still needed
+        final String oldestIndexToKeep = datastoreUtils.getRollupIndexName(scopeId, resolution, timestamp);
+        final List<String> expiredIndexes = new ArrayList<>();
+        for (String index : indexResponse.getIndexes()) {
+            final String indexName = index.trim();
+            if (!indexName.isEmpty() && indexName.length() == oldestIndexToKeep.length() && indexName.compareTo(oldestIndexToKeep) < 0) {
+                expiredIndexes.add(indexName);
+            }
+        }
+
+        if (!expiredIndexes.isEmpty()) {
+            LOG.info("Deleting expired metric rollup indexes {}", expiredIndexes);
+            elasticsearchClient.deleteIndexes(expiredIndexes.toArray(new String[0]));
+            upsertedIndexes.removeAll(expiredIndexes);
+        }
+    }
+
+    @Override
+    public void deleteAllIndexes() throws ClientException {
+        elasticsearchClientProviderInstance.getElasticsearchClient().deleteIndexes(datastoreUtils.getRollupIndexName(KapuaId.ANY, "*"), datastoreUtils.getRollupProgressIndexName());
+        upsertedIndexes.clear();
+    }
+
+    @Override
+    public boolean acquireLease(String owner, long now, long leaseDuration) throws ClientException {
+        final ElasticsearchClient<?> elasticsearchClient = elasticsearchClientProviderInstance.getElasticsearchClient();
+        final String indexName = datastoreUtils.getRollupProgressIndexName();
+        final VersionedDocument lease = elasticsearchClient.getVersioned(indexName, LEASE_ID);
+        if (lease != null && !owner.equals(lease.getSource().get(LEASE_OWNER)) && readLong(lease, LEASE_EXPIRES_ON) > now) {
+            return false;
+        }
+
+        final Map<String, Object> source = new HashMap<>();
+        source.put(LEASE_OWNER, owner);
+        source.put(LEASE_EXPIRES_ON, now + leaseDuration);
+        // Fails if another instance acquired the lease in the meantime
+        return elasticsearchClient.putIfUnchanged(indexName, LEASE_ID, source, lease);
+    }
+
+    @Override
+    public MetricRollupProgress findProgress(KapuaId scopeId, String resolution) throws ClientException {
+        final VersionedDocument progressDocument = elasticsearchClientProviderInstance.getElasticsearchClient().getVersioned(datastoreUtils.getRollupProgressIndexName(), progressId(scopeId, resolution));
+        if (progressDocument == null) {
+            return null;
+        }
+
+        final MetricRollupProgress metricRollupProgress = new MetricRollupProgress(scopeId, resolution, readLong(progressDocument, PROGRESS_FROM), readLong(progressDocument, PROGRESS_UNTIL));
+        metricRollupProgress.setStoredDocument(progressDocument);
+        return metricRollupProgress;
+    }
+
+    @Override
+    public boolean storeProgress(MetricRollupProgress metricRollupProgress) throws ClientException {
+        final Map<String, Object> source = new HashMap<>();
+        source.put(PROGRESS_SCOPE_ID, metricRollupProgress.getScopeId().toCompactId());
+        source.put(PROGRESS_RESOLUTION, metricRollupProgress.getResolution());
+        source.put(PROGRESS_FROM, metricRollupProgress.getFrom());
+        source.put(PROGRESS_UNTIL, metricRollupProgress.getUntil());
+        return elasticsearchClientProviderInstance.getElasticsearchClient().putIfUnchanged(
+                datastoreUtils.getRollupProgressIndexName(),
+                progressId(metricRollupProgress.getScopeId(), metricRollupProgress.getResolution()),
+                source,
+                metricRollupProgress.getStoredDocument());
+    }
+
+    private String progressId(KapuaId scopeId, String resolution) {
+        return scopeId.toCompactId() + "-" + resolution;
+    }
+
+    private long readLong(VersionedDocument versionedDocument, String field) {
+        final Object value = versionedDocument.getSource().get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private String idExtractor(MetricRollup metricRollup) {
+        return datastoreUtils.getHashCode(
+                metricRollup.getScopeId().toCompactId(),
+                metricRollup.getClientId(),
+                metricRollup.getChannel(),
+                datastoreUtils.getMetricValueQualifier(metricRollup.getName(), metricRollup.getType()),
+                metricRollup.getResolution(),
+                String.valueOf(metricRollup.getTimestamp().getTime()));
+    }
+
+    private void upsertIndex(String indexName) throws ClientException {
+        if (upsertedIndexes.contains(indexName)) {
+            return;
+        }
+
+        final ElasticsearchClient<?> elasticsearchClient = elasticsearchClientProviderInstance.getElasticsearchClient();
+        try {
+            if (!elasticsearchClient.isIndexExists(new IndexRequest(indexName)).isIndexExists()) {
+                elasticsearchClient.createIndex(indexName, getMappingSchema());
+                elasticsearchClient.putMapping(indexName, MetricRollupSchema.getMetricRollupTypeSchema());
+                LOG.info("Metric rollup index created: {}", indexName);
+            }
+        } catch (MappingException e) {
+            throw new RuntimeException(e);
+        }
+        upsertedIndexes.add(indexName);
+    }
+
+    private ObjectNode getMappingSchema() throws MappingException {
+        ObjectNode rootNode = MappingUtils.newObjectNode();
+        ObjectNode settingsNode = MappingUtils.newObjectNode();
+        ObjectNode indexNode = MappingUtils.newObjectNode(new KeyValueEntry[]{
+                new KeyValueEntry(SchemaKeys.KEY_REFRESH_INTERVAL, String.format("%ss", datastoreSettings.getLong(DatastoreSettingsKey.INDEX_REFRESH_INTERVAL))),
+                new KeyValueEntry(SchemaKeys.KEY_SHARD_NUMBER, datastoreSettings.getInt(DatastoreSettingsKey.INDEX_SHARD_NUMBER, 1)),
+                new KeyValueEntry(SchemaKeys.KEY_REPLICA_NUMBER, datastoreSettings.getInt(DatastoreSettingsKey.INDEX_REPLICA_NUMBER, 0))});
+        settingsNode.set(SchemaKeys.KEY_INDEX, indexNode);
+        rootNode.set(SchemaKeys.KEY_SETTINGS, settingsNode);
+        return rootNode;
+    }
+}
@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.MessageStoreFactory;
+import org.eclipse.kapua.service.datastore.MetricInfoFactory;
+import org.eclipse.kapua.service.datastore.internal.mediator.ConfigurationException;
+import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageStoreConfiguration;
+import org.eclipse.kapua.service.datastore.internal.mediator.MetricRollupField;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollup;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollupProgress;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.datastore.model.MetricInfo;
+import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
+import org.eclipse.kapua.service.datastore.model.query.predicate.DatastorePredicateFactory;
+import org.eclipse.kapua.service.datastore.model.query.predicate.MetricExistsPredicate;
+import org.eclipse.kapua.service.datastore.model.query.predicate.MetricPredicate;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramResult;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.storable.model.query.StorablePagingStyle;
+import org.eclipse.kapua.service.storable.model.query.predicate.AndPredicate;
+import org.eclipse.kapua.service.storable.model.query.predicate.RangePredicate;
+import org.eclipse.kapua.service.storable.model.query.predicate.StorablePredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes the {@link MetricRollup}s of the scopes which enable them and routes the old metric histograms to them.
+ * <p>
+ * Each computation rolls up, for each configured resolution, the buckets completed since the previous computation
+ * (minus {@link DatastoreSettingsKey#ROLLUP_DELAY} to include late messages) for each metric registered in the {@link MetricInfo} registry,
+ * with a composite aggregation over the client ids, channels and buckets of the scope instead of a date histogram for each metric.
+ * Rollups are idempotent: rolling up the same bucket twice replaces the previous values.
+ * After each computation the rollup indexes older than {@link MessageStoreConfiguration#getRollupTimeToLive()} are deleted.
+ * <p>
+ * The rolled up time range of each scope and resolution is persisted as a {@link MetricRollupProgress}, so that it survives restarts
+ * and a metric histogram is served by the rollups only when its whole time range is rolled up.
+ * Only the instance holding the lease (see {@link DatastoreSettingsKey#ROLLUP_LEASE_DURATION}) computes the rollups.
+ *
+ * @since 2.1.0
+ */
+public class MetricRollupManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricRollupManager.class);
+
+    private static final Pattern INTERVAL_PATTERN = Pattern.compile("^([1-9][0-9]*)(ms|s|m|h|d)$");
+    private static final List<Class<?>> NUMERIC_TYPES = Arrays.asList(Integer.class, Long.class, Float.class, Double.class);
+    private static final int METRIC_INFO_PAGE_SIZE = 500;
+    private static final int METRIC_FIELDS_PER_AGGREGATION = 100;
+    private static final int COMPOSITE_PAGE_SIZE = 500;
+    private static final int MAX_BUCKETS_PER_RUN = 1000;
+    private static final int PROGRESS_CACHE_SIZE = 10000;
+    private static final int PROGRESS_CACHE_TTL = 60;
+
+    private final ConfigurationProvider configProvider;
+    private final MessageRepository messageRepository;
+    private final MetricInfoRepository metricInfoRepository;
+    private final MetricRollupRepository metricRollupRepository;
+    private final MessageStoreFactory messageStoreFactory;
+    private final MetricInfoFactory metricInfoFactory;
+    private final DatastorePredicateFactory datastorePredicateFactory;
+    private final DatastoreUtils datastoreUtils;
+
+    private final boolean enabled;
+    private final List<String> resolutions;
+    private final long delay;
+    private final long lookback;
+    private final long routeAfter;
+    private final int bulkSize;
+    private final long leaseDuration;
+
+    private final String owner = UUID.randomUUID().toString();
+    private final LocalCache<String, MetricRollupProgress> progressCache = new LocalCache<>(PROGRESS_CACHE_SIZE, PROGRESS_CACHE_TTL, null);
+
+    @Inject
+    public MetricRollupManager(ConfigurationProvider configProvider,
+                               MessageRepository messageRepository,
+                               MetricInfoRepository metricInfoRepository,
+                               MetricRollupRepository metricRollupRepository,
+                               MessageStoreFactory messageStoreFactory,
+                               MetricInfoFactory metricInfoFactory,
+                               DatastorePredicateFactory datastorePredicateFactory,
+                               DatastoreUtils datastoreUtils,
+                               DatastoreSettings datastoreSettings) {
+        this.configProvider = configProvider;
+        this.messageRepository = messageRepository;
+        this.metricInfoRepository = metricInfoRepository;
+        this.metricRollupRepository = metricRollupRepository;
+        this.messageStoreFactory = messageStoreFactory;
+        this.metricInfoFactory = metricInfoFactory;
+        this.datastorePredicateFactory = datastorePredicateFactory;
+        this.datastoreUtils = datastoreUtils;
+        this.enabled = datastoreSettings.getBoolean(DatastoreSettingsKey.ROLLUP_ENABLED, false);
+        this.resolutions = new ArrayList<>();
+        for (String resolution : datastoreSettings.getString(DatastoreSettingsKey.ROLLUP_RESOLUTIONS, "1m,1h").split(",")) {
+            if (!resolution.trim().isEmpty()) {
+                // Fail fast on a wrong configuration
+                intervalToMillis(resolution.trim());
+                resolutions.add(resolution.trim());
+            }
+        }
+        this.delay = datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_DELAY, 120000L);
+        this.lookback = datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_LOOKBACK, 7200000L);
+        this.routeAfter = datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_ROUTE_AFTER, 86400000L);
+        this.bulkSize = datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500);
+        this.leaseDuration = datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_LEASE_DURATION, 300000L);
+    }
+
+    /**
+     * Gets whether the metric rollups are enabled system-wide.
+     *
+     * @return {@code true} if the metric rollups are enabled, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Rolls up the completed buckets of all the scopes which enable the metric rollups and applies their retention.
+     * <p>
+     * Nothing is done if another instance holds the lease. The lease is renewed before each scope, and the computation stops if it is lost.
+     *
+     * @param now The current time.
+     * @since 2.1.0
+     */
+    public void rollup(long now) {
+        for (KapuaId scopeId : metricInfoRepository.findScopeIds()) {
+            try {
+                if (!metricRollupRepository.acquireLease(owner, System.currentTimeMillis(), leaseDuration)) {
+                    LOG.debug("Metric rollup lease held by another instance");
+                    return;
+                }
+                rollup(scopeId, now);
+            } catch (Exception e) {
+                LOG.warn("Metric rollup failed for scope {}", scopeId, e);
+            }
+        }
+    }
+
+    /**
+     * Rolls up the completed buckets of the given scope and applies its retention, if the scope enables the metric rollups.
+     * <p>
+     * The caller must hold the lease.
+     *
+     * @param scopeId The scope {@link KapuaId}.
+     * @param now     The current time.
+     * @throws ConfigurationException
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    public void rollup(KapuaId scopeId, long now) throws ConfigurationException, ClientException {
+        final MessageStoreConfiguration messageStoreConfiguration = configProvider.getConfiguration(scopeId);
+        if (!messageStoreConfiguration.getRollupEnabled()) {
+            return;
+        }
+
+        for (String resolution : resolutions) {
+            final long resolutionMillis = intervalToMillis(resolution);
+            final long expiredBefore = now - messageStoreConfiguration.getRollupTimeToLiveMilliseconds();
+            final long retainedFrom = alignUp(expiredBefore, resolutionMillis);
+
+            MetricRollupProgress metricRollupProgress = metricRollupRepository.findProgress(scopeId, resolution);
+            if (metricRollupProgress == null) {
+                final long lookbackStart = Math.max(alignDown(now - lookback, resolutionMillis), retainedFrom);
+                metricRollupProgress = new MetricRollupProgress(scopeId, resolution, lookbackStart, lookbackStart);
+            } else if (metricRollupProgress.getUntil() < retainedFrom) {
+                // Nothing rolled up is retained anymore: the rolled up time range restarts from the retention
+                metricRollupProgress.setFrom(retainedFrom);
+                metricRollupProgress.setUntil(retainedFrom);
+            } else {
+                metricRollupProgress.setFrom(Math.max(metricRollupProgress.getFrom(), retainedFrom));
+            }
+
+            // A long outage is caught up over several computations
+            final long windowStart = metricRollupProgress.getUntil();
+            final long windowEnd = Math.min(alignDown(now - delay, resolutionMillis), windowStart + MAX_BUCKETS_PER_RUN * resolutionMillis);
+            if (windowStart < windowEnd) {
+                final int rolledUp = rollup(scopeId, resolution, windowStart, windowEnd);
+                metricRollupProgress.setUntil(windowEnd);
+                LOG.debug("Rolled up {} {} buckets of scope {} from {} to {}", rolledUp, resolution, scopeId, new Date(windowStart), new Date(windowEnd));
+            }
+
+            metricRollupRepository.deleteIndexesBefore(scopeId, resolution, expiredBefore);
+
+            if (metricRollupRepository.storeProgress(metricRollupProgress)) {
+                progressCache.put(progressKey(scopeId, resolution), metricRollupProgress);
+            } else {
+                LOG.warn("Metric rollup progress of scope {} at {} changed concurrently: discarding this computation", scopeId, resolution);
+                progressCache.remove(progressKey(scopeId, resolution));
+            }
+        }
+    }
+
+    /**
+     * Gets the resolution of the {@link MetricRollup}s which should serve the given metric histogram query.
+     * <p>
+     * A query is served by the rollups when the scope enables them, its time range starts before {@link DatastoreSettingsKey#ROLLUP_ROUTE_AFTER}
+     * and its interval is a multiple of a rollup resolution whose {@link MetricRollupProgress} contains the whole time range.
+     * The time range must also be aligned to the resolution (the end being inclusive), so that each rolled up bucket is either entirely
+     * within the time range or entirely outside it. The coarsest matching resolution is chosen.
+     *
+     * @param query                     The metric histogram {@link MessageQuery}.
+     * @param interval                  The metric histogram interval.
+     * @param messageStoreConfiguration The {@link MessageStoreConfiguration} of the query scope.
+     * @param now                       The current time.
+     * @return The resolution of the {@link MetricRollup}s, or {@code null} if the query must be served by the messages.
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    public String getRoutingResolution(MessageQuery query, String interval, MessageStoreConfiguration messageStoreConfiguration, long now) throws ClientException {
+        if (!enabled || !messageStoreConfiguration.getRollupEnabled()) {
+            return null;
+        }
+
+        final Date start = findTimestampBound(query.getPredicate(), true);
+        final Date end = findTimestampBound(query.getPredicate(), false);
+        if (start == null || end == null || start.getTime() > now - routeAfter) {
+            return null;
+        }
+
+        final long intervalMillis = intervalToMillis(interval);
+        final long expiredBefore = now - messageStoreConfiguration.getRollupTimeToLiveMilliseconds();
+        String routingResolution = null;
+        long routingResolutionMillis = 0;
+        for (String resolution : resolutions) {
+            final long resolutionMillis = intervalToMillis(resolution);
+            if (resolutionMillis <= routingResolutionMillis ||
+                    intervalMillis % resolutionMillis != 0 ||
+                    start.getTime() % resolutionMillis != 0 ||
+                    (end.getTime() + 1) % resolutionMillis != 0) {
+                continue;
+            }
+
+            final MetricRollupProgress metricRollupProgress = getProgress(query.getScopeId(), resolution);
+            if (metricRollupProgress != null &&
+                    start.getTime() >= Math.max(metricRollupProgress.getFrom(), alignUp(expiredBefore, resolutionMillis)) &&
+                    end.getTime() < metricRollupProgress.getUntil()) {
+                routingResolution = resolution;
+                routingResolutionMillis = resolutionMillis;
+            }
+        }
+        return routingResolution;
+    }
+
+    /**
+     * Rewrites a metric histogram query for the {@link MetricRollup}s.
+     * <p>
+     * The client id, channel and time range predicates are kept as they are, since the rollups share the field names with the messages,
+     * while the metric predicates are replaced by the metric name and type of the rollups.
+     *
+     * @param query      The metric histogram {@link MessageQuery}.
+     * @param metricName The metric name.
+     * @param metricType The metric type.
+     * @return The {@link MessageQuery} for the {@link MetricRollup}s.
+     * @since 2.1.0
+     */
+    public MessageQuery toRollupQuery(MessageQuery query, String metricName, Class<?> metricType) {
+        final AndPredicate rollupPredicate = datastorePredicateFactory.newAndPredicate();
+        final StorablePredicate predicate = query.getPredicate();
+        if (predicate instanceof AndPredicate) {
+            for (StorablePredicate childPredicate : ((AndPredicate) predicate).getPredicates()) {
+                if (!isMetricPredicate(childPredicate)) {
+                    rollupPredicate.getPredicates().add(childPredicate);
+                }
+            }
+        } else if (predicate != null && !isMetricPredicate(predicate)) {
+            rollupPredicate.getPredicates().add(predicate);
+        }
+        rollupPredicate.getPredicates().add(datastorePredicateFactory.newTermPredicate(MetricRollupField.METRIC_NAME, metricName));
+        rollupPredicate.getPredicates().add(datastorePredicateFactory.newTermPredicate(MetricRollupField.METRIC_TYPE, datastoreUtils.getClientMetricFromType(metricType)));
+
+        final MessageQuery rollupQuery = messageStoreFactory.newQuery(query.getScopeId());
+        rollupQuery.setPredicate(rollupPredicate);
+        return rollupQuery;
+    }
+
+    /**
+     * Converts a fixed interval (i.e. {@code 30s}, {@code 5m}, {@code 1h}, {@code 1d}) to milliseconds.
+     *
+     * @param interval The fixed interval.
+     * @return The interval in milliseconds.
+     * @throws IllegalArgumentException if the interval is not valid.
+     * @since 2.1.0
+     */
+    public static long intervalToMillis(String interval) {
+        final Matcher matcher = INTERVAL_PATTERN.matcher(interval);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format("Invalid interval %s", interval));
+        }
+        final long value = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "ms":
+                return value;
+            case "s":
+                return value * 1000L;
+            case "m":
+                return value * 60000L;
+            case "h":
+                return value * 3600000L;
+            default:
+                return value * 86400000L;
+        }
+    }
+
+    private int rollup(KapuaId scopeId, String resolution, long windowStart, long windowEnd) throws ClientException {
+        final Map<String, MetricInfo> metricInfosByField = findNumericMetricInfos(scopeId);
+        final List<String> metricFields = new ArrayList<>(metricInfosByField.keySet());
+        final MessageQuery messageQuery = toMessageQuery(scopeId, windowStart, windowEnd);
+
+        // The histograms of all the client ids and channels of the scope are computed by a single composite aggregation
+        // for each chunk of metrics, paged by the key of its last bucket
+        final List<MetricRollup> metricRollups = new ArrayList<>();
+        int rolledUp = 0;
+        for (int from = 0; from < metricFields.size(); from += METRIC_FIELDS_PER_AGGREGATION) {
+            final List<String> statsFields = metricFields.subList(from, Math.min(from + METRIC_FIELDS_PER_AGGREGATION, metricFields.size()));
+            final CompositeHistogramRequest compositeHistogramRequest = new CompositeHistogramRequest(
+                    Arrays.asList(MessageField.CLIENT_ID.field(), MessageField.CHANNEL.field()),
+                    MessageField.TIMESTAMP.field(),
+                    resolution,
+                    statsFields,
+                    COMPOSITE_PAGE_SIZE);
+            do {
+                final CompositeHistogramResult compositeHistogramResult = messageRepository.compositeHistogram(messageQuery, compositeHistogramRequest);
+                for (CompositeHistogramBucket compositeHistogramBucket : compositeHistogramResult.getBuckets()) {
+                    for (int i = 0; i < statsFields.size(); i++) {
+                        final DateHistogramBucket dateHistogramBucket = compositeHistogramBucket.getStats().get(i);
+                        // The metric is not sent on this client id and channel
+                        if (dateHistogramBucket.getCount() == 0) {
+                            continue;
+                        }
+                        metricRollups.add(toMetricRollup(scopeId, compositeHistogramBucket, metricInfosByField.get(statsFields.get(i)), resolution, dateHistogramBucket));
+                        if (metricRollups.size() >= bulkSize) {
+                            metricRollupRepository.store(metricRollups);
+                            rolledUp += metricRollups.size();
+                            metricRollups.clear();
+                        }
+                    }
+                }
+                compositeHistogramRequest.setAfterKey(compositeHistogramResult.getAfterKey());
+            } while (compositeHistogramRequest.getAfterKey() != null);
+        }
+
+        metricRollupRepository.store(metricRollups);
+        return rolledUp + metricRollups.size();
+    }
+
+    /**
+     * Finds the numeric metrics registered in the {@link MetricInfo} registry of the scope, whatever their client id and channel.
+     *
+     * @param scopeId The scope {@link KapuaId}.
+     * @return A {@link MetricInfo} of each numeric metric, by the message field of its values.
+     * @throws ClientException If the {@link MetricInfo} registry cannot be queried.
+     */
+    private Map<String, MetricInfo> findNumericMetricInfos(KapuaId scopeId) throws ClientException {
+        final MetricInfoQuery metricInfoQuery = metricInfoFactory.newQuery(scopeId);
+        metricInfoQuery.setPagingStyle(StorablePagingStyle.SEARCH_AFTER);
+        metricInfoQuery.setLimit(METRIC_INFO_PAGE_SIZE);
+
+        final Map<String, MetricInfo> metricInfosByField = new LinkedHashMap<>();
+        MetricInfoListResult metricInfos;
+        do {
+            metricInfos = metricInfoRepository.query(metricInfoQuery);
+            for (MetricInfo metricInfo : metricInfos.getItems()) {
+                if (NUMERIC_TYPES.contains(metricInfo.getMetricType())) {
+                    metricInfosByField.putIfAbsent(toMetricField(metricInfo), metricInfo);
+                }
+            }
+            metricInfoQuery.setCursor(metricInfos.getNextKey() != null ? metricInfos.getNextKey().toString() : null);
+        } while (metricInfoQuery.getCursor() != null);
+        return metricInfosByField;
+    }
+
+    private MessageQuery toMessageQuery(KapuaId scopeId, long windowStart, long windowEnd) {
+        final MessageQuery messageQuery = messageStoreFactory.newQuery(scopeId);
+        messageQuery.setPredicate(datastorePredicateFactory.newRangePredicate(MessageField.TIMESTAMP, new Date(windowStart), new Date(windowEnd - 1)));
+        return messageQuery;
+    }
+
+    private String toMetricField(MetricInfo metricInfo) {
+        return String.format("%s.%s",
+                MessageField.METRICS.field(),
+                datastoreUtils.getMetricValueQualifier(datastoreUtils.normalizeMetricName(metricInfo.getName()), datastoreUtils.getClientMetricFromType(metricInfo.getMetricType())));
+    }
+
+    private MetricRollup toMetricRollup(KapuaId scopeId, CompositeHistogramBucket compositeHistogramBucket, MetricInfo metricInfo, String resolution, DateHistogramBucket dateHistogramBucket) {
+        final MetricRollup metricRollup = new MetricRollup();
+        metricRollup.setScopeId(scopeId);
+        metricRollup.setClientId(compositeHistogramBucket.getTerm(MessageField.CLIENT_ID.field()));
+        metricRollup.setChannel(compositeHistogramBucket.getTerm(MessageField.CHANNEL.field()));
+        metricRollup.setName(metricInfo.getName());
+        metricRollup.setType(datastoreUtils.getClientMetricFromType(metricInfo.getMetricType()));
+        metricRollup.setResolution(resolution);
+        metricRollup.setTimestamp(new Date(dateHistogramBucket.getKey()));
+        metricRollup.setCount(dateHistogramBucket.getCount());
+        metricRollup.setMin(dateHistogramBucket.getMin());
+        metricRollup.setMax(dateHistogramBucket.getMax());
+        metricRollup.setSum(dateHistogramBucket.getSum());
+        return metricRollup;
+    }
+
+    private MetricRollupProgress getProgress(KapuaId scopeId, String resolution) throws ClientException {
+        final String progressKey = progressKey(scopeId, resolution);
+        MetricRollupProgress metricRollupProgress = progressCache.get(progressKey);
+        if (metricRollupProgress == null) {
+            metricRollupProgress = metricRollupRepository.findProgress(scopeId, resolution);
+            if (metricRollupProgress != null) {
+                progressCache.put(progressKey, metricRollupProgress);
+            }
+        }
+        return metricRollupProgress;
+    }
+
+    private String progressKey(KapuaId scopeId, String resolution) {
+        return scopeId.toStringId() + "/" + resolution;
+    }
+
+    private static long alignDown(long timestamp, long resolutionMillis) {
+        return Math.floorDiv(timestamp, resolutionMillis) * resolutionMillis;
+    }
+
+    private static long alignUp(long timestamp, long resolutionMillis) {
+        return -Math.floorDiv(-timestamp, resolutionMillis) * resolutionMillis;
+    }
+
+    private boolean isMetricPredicate(StorablePredicate predicate) {
+        return predicate instanceof MetricExistsPredicate || predicate instanceof MetricPredicate;
+    }
+
+    private Date findTimestampBound(StorablePredicate predicate, boolean start) {
+        if (predicate instanceof RangePredicate) {
+            final RangePredicate rangePredicate = (RangePredicate) predicate;
+            final Object bound = start ? rangePredicate.getMinValue() : rangePredicate.getMaxValue();
+            if (MessageField.TIMESTAMP.field().equals(rangePredicate.getField().field()) && bound instanceof Date) {
+                return (Date) bound;
+            }
+        } else if (predicate instanceof AndPredicate) {
+            for (StorablePredicate childPredicate : ((AndPredicate) predicate).getPredicates()) {
+                final Date bound = findTimestampBound(childPredicate, start);
+                if (bound != null) {
+                    return bound;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.core.ServiceModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ServiceModule} which periodically runs the {@link MetricRollupManager}, if the metric rollups are enabled.
+ *
+ * @since 2.1.0
+ */
+public class MetricRollupModule implements ServiceModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricRollupModule.class);
+
+    private final MetricRollupManager metricRollupManager;
+    private final long runInterval;
+
+    private ScheduledExecutorService rollupExecutor;
+
+    public MetricRollupModule(MetricRollupManager metricRollupManager, long runInterval) {
+        this.metricRollupManager = metricRollupManager;
+        this.runInterval = runInterval;
+    }
+
+    @Override
+    public synchronized void start() throws KapuaException {
+        if (!metricRollupManager.isEnabled() || rollupExecutor != null) {
+            return;
+        }
+
+        LOG.info("Starting metric rollups every {} ms", runInterval);
+        rollupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "datastore-metric-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rollupExecutor.scheduleWithFixedDelay(this::rollupQuietly, runInterval, runInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() throws KapuaException {
+        if (rollupExecutor != null) {
+            rollupExecutor.shutdownNow();
+            rollupExecutor = null;
+        }
+    }
+
+    private void rollupQuietly() {
+        try {
+            metricRollupManager.rollup(System.currentTimeMillis());
+        } catch (Exception e) {
+            LOG.warn("Metric rollup failed", e);
+        }
+    }
+}
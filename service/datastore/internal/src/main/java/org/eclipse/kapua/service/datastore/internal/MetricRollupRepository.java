@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollup;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollupProgress;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientException;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
+
+import java.util.List;
+
+/**
+ * Repository of the {@link MetricRollup}s.
+ * <p>
+ * Rollups of each resolution are kept in their own weekly indexes, so that the retention is applied by deleting whole indexes.
+ * The {@link MetricRollupProgress}es and the lease of the instance computing the rollups are kept in a single global index.
+ *
+ * @since 2.1.0
+ */
+public interface MetricRollupRepository {
+
+    /**
+     * Stores the given {@link MetricRollup}s, replacing the ones already stored for the same bucket.
+     *
+     * @param metricRollups The {@link MetricRollup}s to store.
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    void store(List<MetricRollup> metricRollups) throws ClientException;
+
+    /**
+     * Merges the {@link MetricRollup}s of the given resolution matching the query over a date histogram.
+     *
+     * @param query                The {@link MessageQuery} whose predicate is applied to the {@link MetricRollup}s.
+     * @param resolution           The resolution of the {@link MetricRollup}s.
+     * @param dateHistogramRequest The pre-aggregated {@link DateHistogramRequest}.
+     * @return The {@link DateHistogramBucket}s.
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    List<DateHistogramBucket> dateHistogram(MessageQuery query, String resolution, DateHistogramRequest dateHistogramRequest) throws ClientException;
+
+    /**
+     * Deletes the rollup indexes of the given scope and resolution which only contain buckets before the given timestamp.
+     *
+     * @param scopeId    The scope {@link KapuaId}.
+     * @param resolution The resolution of the {@link MetricRollup}s.
+     * @param timestamp  The timestamp before which the rollups are expired.
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    void deleteIndexesBefore(KapuaId scopeId, String resolution, long timestamp) throws ClientException;
+
+    /**
+     * Deletes all the rollup indexes.
+     *
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    void deleteAllIndexes() throws ClientException;
+
+    /**
+     * Acquires or renews the lease of the instance computing the {@link MetricRollup}s, so that only one instance computes them.
+     *
+     * @param owner         The id of the instance.
+     * @param now           The current time.
+     * @param leaseDuration The time (in milliseconds) after which the lease expires if not renewed.
+     * @return {@code true} if the lease is held by the given owner, {@code false} if it is held by another instance.
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    boolean acquireLease(String owner, long now, long leaseDuration) throws ClientException;
+
+    /**
+     * Finds the {@link MetricRollupProgress} of the given scope and resolution.
+     *
+     * @param scopeId    The scope {@link KapuaId}.
+     * @param resolution The resolution of the {@link MetricRollup}s.
+     * @return The {@link MetricRollupProgress}, or {@code null} if the scope has never been rolled up at the resolution.
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    MetricRollupProgress findProgress(KapuaId scopeId, String resolution) throws ClientException;
+
+    /**
+     * Stores the given {@link MetricRollupProgress}, only if it has not been changed since it was read.
+     *
+     * @param metricRollupProgress The {@link MetricRollupProgress} to store.
+     * @return {@code true} if stored, {@code false} if it has been changed concurrently.
+     * @throws ClientException
+     * @since 2.1.0
+     */
+    boolean storeProgress(MetricRollupProgress metricRollupProgress) throws ClientException;
+}
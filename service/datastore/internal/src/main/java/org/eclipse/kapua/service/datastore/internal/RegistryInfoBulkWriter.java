@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal;
+
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.commons.util.ArgumentValidator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.datastore.model.ChannelInfo;
+import org.eclipse.kapua.service.datastore.model.ClientInfo;
+import org.eclipse.kapua.service.datastore.model.MetricInfo;
+import org.eclipse.kapua.service.storable.model.Storable;
+import org.eclipse.kapua.service.storable.model.id.StorableId;
+import org.eclipse.kapua.service.storable.repository.StorableRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Write-behind writer for the {@link ClientInfo}, {@link ChannelInfo} and {@link MetricInfo} registries.
+ * <p>
+ * Registry entries produced by the stored messages are deduplicated in memory by id (keeping the one with the earliest first message)
+ * and periodically flushed with a bulk {@link StorableRepository#upsert(List)} for each registry.
+ * Entries already present in the {@link DatastoreCacheManager} caches are not even buffered; entries already stored are not overwritten,
+ * and are looked up with a single {@link StorableRepository#find(KapuaId, List)} per scope.
+ * Entries of a failed flush are buffered again for the next one.
+ * <p>
+ * The flush happens every {@link DatastoreSettingsKey#REGISTRY_FLUSH_INTERVAL} milliseconds or as soon as
+ * {@link DatastoreSettingsKey#REGISTRY_MAX_PENDING} entries are pending, so that registry maintenance is off the message store path.
+ * At most one flush is scheduled at a time for the pending entries: the entries added meanwhile are flushed by it or by the next one.
+ *
+ * @since 2.1.0
+ */
+@Singleton
+public class RegistryInfoBulkWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegistryInfoBulkWriter.class);
+
+    private final RegistryBuffer<ClientInfo> clientInfos;
+    private final RegistryBuffer<ChannelInfo> channelInfos;
+    private final RegistryBuffer<MetricInfo> metricInfos;
+    private final long flushInterval;
+    private final int maxPending;
+
+    private final Object flushLock = new Object();
+    private volatile ScheduledExecutorService flushExecutor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    @Inject
+    public RegistryInfoBulkWriter(ClientInfoRepository clientInfoRepository,
+                                  ChannelInfoRepository channelInfoRepository,
+                                  MetricInfoRepository metricInfoRepository,
+                                  DatastoreCacheManager datastoreCacheManager,
+                                  DatastoreSettings datastoreSettings) {
+        this.clientInfos = new RegistryBuffer<>("client", clientInfoRepository, datastoreCacheManager.getClientsCache(), ClientInfo::getId, ClientInfo::getFirstMessageOn);
+        this.channelInfos = new RegistryBuffer<>("channel", channelInfoRepository, datastoreCacheManager.getChannelsCache(), ChannelInfo::getId, ChannelInfo::getFirstMessageOn);
+        this.metricInfos = new RegistryBuffer<>("metric", metricInfoRepository, datastoreCacheManager.getMetricsCache(), MetricInfo::getId, MetricInfo::getFirstMessageOn);
+        this.flushInterval = datastoreSettings.getLong(DatastoreSettingsKey.REGISTRY_FLUSH_INTERVAL, 1000L);
+        this.maxPending = datastoreSettings.getInt(DatastoreSettingsKey.REGISTRY_MAX_PENDING, 10000);
+    }
+
+    /**
+     * Adds a {@link ClientInfo} to the next flush.
+     *
+     * @param clientInfo The {@link ClientInfo} to store.
+     * @throws KapuaIllegalArgumentException if the {@link ClientInfo} is not valid.
+     * @since 2.1.0
+     */
+    public void add(ClientInfo clientInfo) throws KapuaIllegalArgumentException {
+        ArgumentValidator.notNull(clientInfo, "clientInfo");
+        ArgumentValidator.notNull(clientInfo.getScopeId(), "clientInfo.scopeId");
+        ArgumentValidator.notNull(clientInfo.getFirstMessageId(), "clientInfo.firstPublishedMessageId");
+        ArgumentValidator.notNull(clientInfo.getFirstMessageOn(), "clientInfo.firstPublishedMessageTimestamp");
+
+        onAdded(clientInfos.add(clientInfo));
+    }
+
+    /**
+     * Adds a {@link ChannelInfo} to the next flush.
+     *
+     * @param channelInfo The {@link ChannelInfo} to store.
+     * @throws KapuaIllegalArgumentException if the {@link ChannelInfo} is not valid.
+     * @since 2.1.0
+     */
+    public void add(ChannelInfo channelInfo) throws KapuaIllegalArgumentException {
+        ArgumentValidator.notNull(channelInfo, "channelInfo");
+        ArgumentValidator.notNull(channelInfo.getScopeId(), "channelInfo.scopeId");
+        ArgumentValidator.notNull(channelInfo.getName(), "channelInfo.name");
+        ArgumentValidator.notNull(channelInfo.getFirstMessageId(), "channelInfo.messageId");
+        ArgumentValidator.notNull(channelInfo.getFirstMessageOn(), "channelInfo.messageTimestamp");
+
+        onAdded(channelInfos.add(channelInfo));
+    }
+
+    /**
+     * Adds a {@link MetricInfo} to the next flush.
+     *
+     * @param metricInfo The {@link MetricInfo} to store.
+     * @throws KapuaIllegalArgumentException if the {@link MetricInfo} is not valid.
+     * @since 2.1.0
+     */
+    public void add(MetricInfo metricInfo) throws KapuaIllegalArgumentException {
+        ArgumentValidator.notNull(metricInfo, "metricInfo");
+        ArgumentValidator.notNull(metricInfo.getScopeId(), "metricInfo.scopeId");
+        ArgumentValidator.notNull(metricInfo.getFirstMessageId(), "metricInfoCreator.firstPublishedMessageId");
+        ArgumentValidator.notNull(metricInfo.getFirstMessageOn(), "metricInfoCreator.firstPublishedMessageTimestamp");
+
+        onAdded(metricInfos.add(metricInfo));
+    }
+
+    /**
+     * Synchronously stores all the pending registry entries.
+     * <p>
+     * All the registries are flushed even if one of them fails; the entries of the failed ones are buffered again.
+     *
+     * @throws RuntimeException the first failure of the registries.
+     * @since 2.1.0
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            RuntimeException failure = null;
+            for (RegistryBuffer<?> registryBuffer : new RegistryBuffer<?>[] { clientInfos, channelInfos, metricInfos }) {
+                try {
+                    registryBuffer.flush();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Discards all the pending registry entries.
+     * <p>
+     * To be invoked when the registry indexes are deleted.
+     *
+     * @since 2.1.0
+     */
+    public void clear() {
+        synchronized (flushLock) {
+            clientInfos.pending.clear();
+            channelInfos.pending.clear();
+            metricInfos.pending.clear();
+        }
+    }
+
+    private void onAdded(boolean added) {
+        if (!added) {
+            return;
+        }
+
+        if (flushExecutor == null) {
+            startFlushExecutor();
+        }
+
+        if (clientInfos.pending.size() + channelInfos.pending.size() + metricInfos.pending.size() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                try {
+                    flushQuietly();
+                } finally {
+                    flushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private synchronized void startFlushExecutor() {
+        if (flushExecutor != null) {
+            return;
+        }
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "datastore-registry-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        flushExecutor = executor;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOG.warn("Registry flush failed", e);
+        }
+    }
+
+    /**
+     * Pending entries of a single registry.
+     *
+     * @param <T> The registry entry type.
+     * @since 2.1.0
+     */
+    private static class RegistryBuffer<T extends Storable> {
+
+        // Bounded by the Elasticsearch max result window
+        private static final int FIND_BATCH_SIZE = 1000;
+
+        private final String name;
+        private final StorableRepository<T, ?, ?> repository;
+        private final LocalCache<String, Boolean> cache;
+        private final Function<T, StorableId> idExtractor;
+        private final Function<T, Date> firstMessageOnExtractor;
+        private final ConcurrentMap<String, T> pending = new ConcurrentHashMap<>();
+
+        private RegistryBuffer(String name,
+                               StorableRepository<T, ?, ?> repository,
+                               LocalCache<String, Boolean> cache,
+                               Function<T, StorableId> idExtractor,
+                               Function<T, Date> firstMessageOnExtractor) {
+            this.name = name;
+            this.repository = repository;
+            this.cache = cache;
+            this.idExtractor = idExtractor;
+            this.firstMessageOnExtractor = firstMessageOnExtractor;
+        }
+
+        private boolean add(T entry) {
+            final String id = idExtractor.apply(entry).toString();
+            if (Boolean.TRUE.equals(cache.get(id))) {
+                return false;
+            }
+            pending.merge(id, entry, this::earliest);
+            return true;
+        }
+
+        private T earliest(T current, T candidate) {
+            final Date currentFirstMessageOn = firstMessageOnExtractor.apply(current);
+            final Date candidateFirstMessageOn = firstMessageOnExtractor.apply(candidate);
+            if (currentFirstMessageOn == null || (candidateFirstMessageOn != null && candidateFirstMessageOn.before(currentFirstMessageOn))) {
+                return candidate;
+            }
+            return current;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            final Map<KapuaId, Map<String, T>> drainedByScope = new HashMap<>();
+            for (String id : new ArrayList<>(pending.keySet())) {
+                final T entry = pending.remove(id);
+                if (entry == null || Boolean.TRUE.equals(cache.get(id))) {
+                    continue;
+                }
+                drainedByScope.computeIfAbsent(entry.getScopeId(), scopeId -> new HashMap<>()).put(id, entry);
+            }
+
+            final List<T> toUpsert = new ArrayList<>();
+            try {
+                for (Map.Entry<KapuaId, Map<String, T>> scopeDrained : drainedByScope.entrySet()) {
+                    final Map<String, T> drained = scopeDrained.getValue();
+                    // Do not overwrite the first message of an already stored entry
+                    final List<String> ids = new ArrayList<>(drained.keySet());
+                    for (int from = 0; from < ids.size(); from += FIND_BATCH_SIZE) {
+                        final List<StorableId> storableIds = new ArrayList<>();
+                        for (String id : ids.subList(from, Math.min(ids.size(), from + FIND_BATCH_SIZE))) {
+                            storableIds.add(idExtractor.apply(drained.get(id)));
+                        }
+                        for (T stored : repository.find(scopeDrained.getKey(), storableIds)) {
+                            final String storedId = idExtractor.apply(stored).toString();
+                            if (drained.remove(storedId) != null) {
+                                cache.put(storedId, true);
+                            }
+                        }
+                    }
+                    toUpsert.addAll(drained.values());
+                }
+
+                if (toUpsert.isEmpty()) {
+                    return;
+                }
+
+                final Set<String> changedIds = repository.upsert(toUpsert);
+                if (changedIds != null) {
+                    for (String changedId : changedIds) {
+                        if (changedId != null) {
+                            cache.put(changedId, true);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Buffer the entries again for the next flush
+                drainedByScope.values().forEach(drained -> drained.forEach((id, entry) -> pending.merge(id, entry, this::earliest)));
+                LOG.warn("Flush of {} {} registry entries failed: buffered again", drainedByScope.values().stream().mapToInt(Map::size).sum(), name);
+                throw e;
+            }
+            LOG.debug("Flushed {} {} registry entries", toUpsert.size(), name);
+        }
+    }
+}
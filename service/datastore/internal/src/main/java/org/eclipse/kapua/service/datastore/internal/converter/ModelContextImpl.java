@@ -18,6 +18,7 @@ import org.eclipse.kapua.commons.util.KapuaDateUtils;
 import org.eclipse.kapua.message.KapuaPayload;
 import org.eclipse.kapua.message.KapuaPosition;
 import org.eclipse.kapua.message.internal.KapuaPositionImpl;
+import org.eclipse.kapua.message.internal.MetricMap;
 import org.eclipse.kapua.message.internal.device.data.KapuaDataChannelImpl;
 import org.eclipse.kapua.message.internal.device.data.KapuaDataPayloadImpl;
 import org.eclipse.kapua.model.id.KapuaId;
@@ -26,10 +27,12 @@ import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.ClientInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.DatastoreMessageImpl;
 import org.eclipse.kapua.service.datastore.internal.model.MetricInfoImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollup;
 import org.eclipse.kapua.service.datastore.internal.schema.ChannelInfoSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.ClientInfoSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.MetricInfoSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.MetricRollupSchema;
 import org.eclipse.kapua.service.datastore.model.ChannelInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
@@ -45,6 +48,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.math.BigInteger;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -118,6 +122,9 @@ public class ModelContextImpl implements ModelContext {
             if (object instanceof MetricInfo) {
                 return marshalMetricInfo((MetricInfo) object);
             }
+            if (object instanceof MetricRollup) {
+                return marshalMetricRollup((MetricRollup) object);
+            }
         } catch (ParseException e) {
             throw new DatamodelMappingException(e, "Date conversion error");
         }
@@ -356,21 +363,18 @@ public class ModelContextImpl implements ModelContext {
         unmarshalledMessage.put(MessageSchema.MESSAGE_BODY, payload.getBody());
         Map<String, Object> kapuaMetrics = payload.getMetrics();
         if (kapuaMetrics != null) {
-            Map<String, Object> metrics = new HashMap<>();
-            String[] metricNames = kapuaMetrics.keySet().toArray(new String[]{});
-            for (String kapuaMetricName : metricNames) {
-                Object metricValue = kapuaMetrics.get(kapuaMetricName);
-                // Sanitize field names: '.' is not allowed
-                String metricName = datastoreUtils.normalizeMetricName(kapuaMetricName);
-                String clientMetricType = datastoreUtils.getClientMetricFromType(metricValue.getClass());
-                String clientMetricTypeAcronym = datastoreUtils.getClientMetricFromAcronym(clientMetricType);
-                Map<String, Object> field = new HashMap<>();
-                if (datastoreUtils.isDateMetric(clientMetricTypeAcronym) && metricValue instanceof Date) {
-                    field.put(clientMetricTypeAcronym, KapuaDateUtils.formatDate((Date) metricValue));
-                } else {
-                    field.put(clientMetricTypeAcronym, metricValue);
+            Map<String, Object> metrics = new HashMap<>(kapuaMetrics.size() * 2);
+            if (kapuaMetrics instanceof MetricMap) {
+                // Read the metrics by position to avoid creating the entries
+                MetricMap metricMap = (MetricMap) kapuaMetrics;
+                for (int i = 0; i < metricMap.size(); i++) {
+                    metrics.put(datastoreUtils.normalizeMetricName(metricMap.getName(i)), marshalMetricValue(metricMap.getValueClass(i), metricMap.getValue(i)));
+                }
+            } else {
+                for (Map.Entry<String, Object> kapuaMetric : kapuaMetrics.entrySet()) {
+                    // Sanitize field names: '.' is not allowed
+                    metrics.put(datastoreUtils.normalizeMetricName(kapuaMetric.getKey()), marshalMetricValue(kapuaMetric.getValue().getClass(), kapuaMetric.getValue()));
                 }
-                metrics.put(metricName, field);
             }
             unmarshalledMessage.put(MessageSchema.MESSAGE_METRICS, metrics);
         }
@@ -378,6 +382,15 @@ public class ModelContextImpl implements ModelContext {
         return unmarshalledMessage;
     }
 
+    private Map<String, Object> marshalMetricValue(Class<?> metricType, Object metricValue) throws ParseException {
+        String clientMetricType = datastoreUtils.getClientMetricFromType(metricType);
+        String clientMetricTypeAcronym = datastoreUtils.getClientMetricFromAcronym(clientMetricType);
+        if (datastoreUtils.isDateMetric(clientMetricTypeAcronym) && metricValue instanceof Date) {
+            return Collections.singletonMap(clientMetricTypeAcronym, KapuaDateUtils.formatDate((Date) metricValue));
+        }
+        return Collections.singletonMap(clientMetricTypeAcronym, metricValue);
+    }
+
     private Map<String, Object> marshalClientInfo(ClientInfo clientInfo) throws ParseException {
         Map<String, Object> unmarshalledClientInfo = new HashMap<>();
         unmarshalledClientInfo.put(ClientInfoSchema.CLIENT_ID, clientInfo.getClientId());
@@ -415,6 +428,23 @@ public class ModelContextImpl implements ModelContext {
         return unmarshalledMetricInfo;
     }
 
+    private Map<String, Object> marshalMetricRollup(MetricRollup metricRollup) throws ParseException {
+        Map<String, Object> marshalledMetricRollup = new HashMap<>();
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_SCOPE_ID, metricRollup.getScopeId().toStringId());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_CLIENT_ID, metricRollup.getClientId());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_CHANNEL, metricRollup.getChannel());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_METRIC_NAME, metricRollup.getName());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_METRIC_TYPE, metricRollup.getType());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_RESOLUTION, metricRollup.getResolution());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_TIMESTAMP, KapuaDateUtils.formatDate(metricRollup.getTimestamp()));
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_COUNT, metricRollup.getCount());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_MIN, metricRollup.getMin());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_MAX, metricRollup.getMax());
+        marshalledMetricRollup.put(MetricRollupSchema.ROLLUP_SUM, metricRollup.getSum());
+
+        return marshalledMetricRollup;
+    }
+
     private StorableFetchStyle getStorableFetchStyle(Map<String, Object> objectMap) {
         Object storableFetchStyle = objectMap.get(QueryConverter.QUERY_FETCH_STYLE_KEY);
         if (storableFetchStyle instanceof StorableFetchStyle) {
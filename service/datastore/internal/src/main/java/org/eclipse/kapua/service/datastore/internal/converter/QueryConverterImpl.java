@@ -15,11 +15,14 @@ package org.eclipse.kapua.service.datastore.internal.converter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.service.elasticsearch.client.QueryConverter;
 import org.eclipse.kapua.service.elasticsearch.client.SchemaKeys;
 import org.eclipse.kapua.service.elasticsearch.client.exception.QueryMappingException;
 import org.eclipse.kapua.service.storable.exception.MappingException;
+import org.eclipse.kapua.service.storable.model.query.SortDirection;
 import org.eclipse.kapua.service.storable.model.query.SortField;
+import org.eclipse.kapua.service.storable.model.query.StorableCursor;
 import org.eclipse.kapua.service.storable.model.query.StorableQuery;
 import org.eclipse.kapua.service.storable.model.utils.MappingUtils;
 
@@ -62,11 +65,17 @@ public class QueryConverterImpl implements QueryConverter {
                 }
             }
 
-            // offset and limit settings
-            Integer offset = storableQuery.getOffset();
-            if (offset != null) {
-                rootNode.set(SchemaKeys.KEY_FROM, MappingUtils.newNumericNode(offset));
+            // cursor settings: the offset is replaced by the sort values of the last result of the previous page
+            if (storableQuery.isCursorPaging()) {
+                convertCursor(storableQuery, rootNode, sortNode);
+            } else {
+                Integer offset = storableQuery.getOffset();
+                if (offset != null) {
+                    rootNode.set(SchemaKeys.KEY_FROM, MappingUtils.newNumericNode(offset));
+                }
             }
+
+            // limit settings
             Integer limit = storableQuery.getLimit();
             if (limit != null) {
                 rootNode.set(SchemaKeys.KEY_SIZE, MappingUtils.newNumericNode(limit));
@@ -78,6 +87,47 @@ public class QueryConverterImpl implements QueryConverter {
         }
     }
 
+    /**
+     * Appends the tie breaker sort and the {@code search_after} of the {@link StorableQuery#getCursor()}.
+     *
+     * @param storableQuery The {@link StorableQuery} to convert.
+     * @param rootNode      The converted query.
+     * @param sortNode      The converted sort.
+     * @throws QueryMappingException if the {@link StorableQuery#getCursor()} is not valid.
+     * @throws MappingException      if the {@link StorableQuery#getCursor()} values cannot be mapped.
+     * @since 2.1.0
+     */
+    private void convertCursor(StorableQuery storableQuery, ObjectNode rootNode, ArrayNode sortNode) throws QueryMappingException, MappingException {
+        // search_after needs a total ordering of the results
+        for (String tieBreakerField : storableQuery.getCursorTieBreakerFields()) {
+            boolean tieBreakerSorted = false;
+            for (SortField field : storableQuery.getSortFields()) {
+                tieBreakerSorted |= tieBreakerField.equals(field.getField());
+            }
+            if (!tieBreakerSorted) {
+                sortNode.add(MappingUtils.newObjectNode(tieBreakerField, SortDirection.ASC.name()));
+            }
+        }
+
+        // The cursor is decoded once for the query, when it is validated
+        StorableCursor cursor;
+        try {
+            cursor = storableQuery.getDecodedCursor();
+        } catch (KapuaIllegalArgumentException e) {
+            throw new QueryMappingException(e, "Invalid cursor");
+        }
+        if (cursor == null) {
+            return;
+        }
+
+        if (!cursor.getSearchAfter().isEmpty()) {
+            // Sort values keep their JSON type (i.e. dates are sorted as epoch millis)
+            ArrayNode searchAfterNode = MappingUtils.newArrayNode();
+            cursor.getSearchAfter().forEach(searchAfterNode::addPOJO);
+            rootNode.set(SchemaKeys.KEY_SEARCH_AFTER, searchAfterNode);
+        }
+    }
+
     @Override
     public Object getFetchStyle(Object query) throws QueryMappingException {
         if (!(query instanceof StorableQuery)) {
@@ -178,6 +178,63 @@ public class DatastoreUtils extends AbstractStoreUtils {
         return sb.toString();
     }
 
+    /**
+     * Get the metric rollup index expression for the specified scopeId and resolution
+     *
+     * @param scopeId
+     * @param resolution
+     * @return
+     * @since 2.1.0
+     */
+    public String getRollupIndexName(KapuaId scopeId, String resolution) {
+        final StringBuilder sb = new StringBuilder();
+        final String prefix = datastoreSettings.getString(DatastoreSettingsKey.INDEX_PREFIX);
+        if (StringUtils.isNotEmpty(prefix)) {
+            sb.append(prefix).append("-");
+        }
+        String indexName;
+        if (KapuaId.ANY.equals(scopeId)) {
+            indexName = "*";
+        } else {
+            indexName = normalizedIndexName(scopeId.toStringId());
+        }
+        sb.append(indexName).append("-").append("data-rollup").append("-").append(resolution).append("-*");
+        return sb.toString();
+    }
+
+    /**
+     * Get the metric rollup index for the specified scopeId, resolution and timestamp.<br>
+     * Rollup indexes are always weekly.
+     *
+     * @param scopeId
+     * @param resolution
+     * @param timestamp
+     * @return
+     * @since 2.1.0
+     */
+    public String getRollupIndexName(KapuaId scopeId, String resolution, long timestamp) {
+        final StringBuilder sb = new StringBuilder();
+        final String prefix = datastoreSettings.getString(DatastoreSettingsKey.INDEX_PREFIX);
+        if (StringUtils.isNotEmpty(prefix)) {
+            sb.append(prefix).append("-");
+        }
+        final String actualName = normalizedIndexName(scopeId.toStringId());
+        sb.append(actualName).append('-').append("data-rollup").append('-').append(resolution).append('-');
+        dataIndexFormatterWeek.formatTo(Instant.ofEpochMilli(timestamp).atOffset(ZoneOffset.UTC), sb);
+        return sb.toString();
+    }
+
+    /**
+     * Get the index of the metric rollup progresses of all the scopes
+     *
+     * @return
+     * @since 2.1.0
+     */
+    public String getRollupProgressIndexName() {
+        final String prefix = datastoreSettings.getString(DatastoreSettingsKey.INDEX_PREFIX);
+        return StringUtils.isNotEmpty(prefix) ? prefix + "-data-rollup-progress" : "data-rollup-progress";
+    }
+
     public String getChannelIndexName(KapuaId scopeId) {
         return getRegistryIndexName(scopeId, IndexType.CHANNEL);
     }
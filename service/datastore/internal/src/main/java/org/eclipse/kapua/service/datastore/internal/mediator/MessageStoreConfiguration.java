@@ -76,6 +76,30 @@ public class MessageStoreConfiguration {
      */
     public static final String CONFIGURATION_MESSAGE_UNIQUENESS_CHECK = "messageUniquenessCheck";
 
+    /**
+     * Metric rollups enabled key.<br>
+     * <b>The key must be aligned with the key used in org.eclipse.kapua.service.datastore.MessageStoreService.xml meta data configuration file).</b>
+     */
+    public static final String CONFIGURATION_ROLLUP_ENABLED_KEY = "rollupEnabled";
+
+    /**
+     * Metric rollups time to live key.<br>
+     * <b>The key must be aligned with the key used in org.eclipse.kapua.service.datastore.MessageStoreService.xml meta data configuration file).</b>
+     */
+    public static final String CONFIGURATION_ROLLUP_TTL_KEY = "rollupTTL";
+
+    /**
+     * Message rate limit (messages per second) key.<br>
+     * <b>The key must be aligned with the key used in org.eclipse.kapua.service.datastore.MessageStoreService.xml meta data configuration file).</b>
+     */
+    public static final String CONFIGURATION_RATE_LIMIT_KEY = "rateLimit";
+
+    /**
+     * Fair share weight key.<br>
+     * <b>The key must be aligned with the key used in org.eclipse.kapua.service.datastore.MessageStoreService.xml meta data configuration file).</b>
+     */
+    public static final String CONFIGURATION_FAIR_SHARE_WEIGHT_KEY = "fairShareWeight";
+
     /**
      * Defines a value in service plan as unlimited resource
      */
@@ -87,6 +111,7 @@ public class MessageStoreConfiguration {
     public static final int DISABLED = 0;
 
     private static final Duration TTL_DEFAULT_DAYS = Duration.ofDays(30);                                         // TODO define as a default configuration
+    private static final Duration ROLLUP_TTL_DEFAULT_DAYS = Duration.ofDays(365);
 
     private Date expirationDate;
     private boolean dataStorageEnabled = true;
@@ -95,6 +120,10 @@ public class MessageStoreConfiguration {
     private DataIndexBy dataIndexBy = DataIndexBy.SERVER_TIMESTAMP;
     private MetricsIndexBy metricsIndexBy = MetricsIndexBy.TIMESTAMP;
     private MessageUniquenessCheck messageUniquenessCheck;
+    private boolean rollupEnabled;
+    private Duration rollupTimeToLive = ROLLUP_TTL_DEFAULT_DAYS;
+    private int rateLimit = UNLIMITED;
+    private int fairShareWeight = 1;
 
     private Map<String, Object> values;
 
@@ -131,6 +160,18 @@ public class MessageStoreConfiguration {
             if (this.values.get(CONFIGURATION_MESSAGE_UNIQUENESS_CHECK) != null) {
                 setMessageUniquenessCheck(MessageUniquenessCheck.valueOf((String) this.values.get(CONFIGURATION_MESSAGE_UNIQUENESS_CHECK)));
             }
+            if (this.values.get(CONFIGURATION_ROLLUP_ENABLED_KEY) != null) {
+                setRollupEnabled(Boolean.parseBoolean(this.values.get(CONFIGURATION_ROLLUP_ENABLED_KEY).toString()));
+            }
+            if (this.values.get(CONFIGURATION_ROLLUP_TTL_KEY) != null) {
+                setRollupTimeToLive((Integer) this.values.get(CONFIGURATION_ROLLUP_TTL_KEY));
+            }
+            if (this.values.get(CONFIGURATION_RATE_LIMIT_KEY) != null) {
+                setRateLimit((Integer) this.values.get(CONFIGURATION_RATE_LIMIT_KEY));
+            }
+            if (this.values.get(CONFIGURATION_FAIR_SHARE_WEIGHT_KEY) != null) {
+                setFairShareWeight((Integer) this.values.get(CONFIGURATION_FAIR_SHARE_WEIGHT_KEY));
+            }
         }
     }
 
@@ -258,4 +299,80 @@ public class MessageStoreConfiguration {
         this.messageUniquenessCheck = messageUniquenessCheck;
     }
 
+    /**
+     * Get the metric rollups enabled parameter ({@link MessageStoreConfiguration#CONFIGURATION_ROLLUP_ENABLED_KEY}
+     *
+     * @return
+     */
+    public boolean getRollupEnabled() {
+        return rollupEnabled;
+    }
+
+    /**
+     * Set the metric rollups enabled parameter ({@link MessageStoreConfiguration#CONFIGURATION_ROLLUP_ENABLED_KEY}
+     */
+    public void setRollupEnabled(boolean rollupEnabled) {
+        this.rollupEnabled = rollupEnabled;
+    }
+
+    /**
+     * Get the metric rollups time to live in millisecond parameter ({@link MessageStoreConfiguration#CONFIGURATION_ROLLUP_TTL_KEY}
+     *
+     * @return
+     */
+    public long getRollupTimeToLiveMilliseconds() {
+        return rollupTimeToLive.toMillis();
+    }
+
+    /**
+     * Get the metric rollups time to live parameter ({@link MessageStoreConfiguration#CONFIGURATION_ROLLUP_TTL_KEY}
+     *
+     * @return
+     */
+    public long getRollupTimeToLive() {
+        return rollupTimeToLive.toDays();
+    }
+
+    /**
+     * Set the metric rollups time to live parameter ({@link MessageStoreConfiguration#CONFIGURATION_ROLLUP_TTL_KEY}
+     */
+    public void setRollupTimeToLive(int rollupTimeToLive) {
+        if (rollupTimeToLive < 0) {
+            this.rollupTimeToLive = ROLLUP_TTL_DEFAULT_DAYS;
+        } else {
+            this.rollupTimeToLive = Duration.ofDays(rollupTimeToLive);
+        }
+    }
+
+    /**
+     * Get the message rate limit in messages per second parameter ({@link MessageStoreConfiguration#CONFIGURATION_RATE_LIMIT_KEY}
+     *
+     * @return The rate limit, or {@link #UNLIMITED}
+     */
+    public int getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Set the message rate limit in messages per second parameter ({@link MessageStoreConfiguration#CONFIGURATION_RATE_LIMIT_KEY}
+     */
+    public void setRateLimit(int rateLimit) {
+        this.rateLimit = rateLimit < 0 ? UNLIMITED : rateLimit;
+    }
+
+    /**
+     * Get the fair share weight parameter ({@link MessageStoreConfiguration#CONFIGURATION_FAIR_SHARE_WEIGHT_KEY}
+     *
+     * @return
+     */
+    public int getFairShareWeight() {
+        return fairShareWeight;
+    }
+
+    /**
+     * Set the fair share weight parameter ({@link MessageStoreConfiguration#CONFIGURATION_FAIR_SHARE_WEIGHT_KEY}
+     */
+    public void setFairShareWeight(int fairShareWeight) {
+        this.fairShareWeight = Math.max(fairShareWeight, 1);
+    }
 }
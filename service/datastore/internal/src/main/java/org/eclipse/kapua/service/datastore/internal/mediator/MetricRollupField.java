@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.mediator;
+
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollup;
+import org.eclipse.kapua.service.datastore.internal.schema.MetricRollupSchema;
+import org.eclipse.kapua.service.storable.model.query.StorableField;
+
+/**
+ * This enumeration defines the fields names used in the {@link MetricRollup} client schema
+ *
+ * @since 2.1.0
+ */
+public enum MetricRollupField implements StorableField {
+    /**
+     * Account identifier
+     */
+    SCOPE_ID(MetricRollupSchema.ROLLUP_SCOPE_ID),
+    /**
+     * Client identifier
+     */
+    CLIENT_ID(MetricRollupSchema.ROLLUP_CLIENT_ID),
+    /**
+     * Channel
+     */
+    CHANNEL(MetricRollupSchema.ROLLUP_CHANNEL),
+    /**
+     * Bucket start timestamp
+     */
+    TIMESTAMP(MetricRollupSchema.ROLLUP_TIMESTAMP),
+    /**
+     * Metric name
+     */
+    METRIC_NAME(MetricRollupSchema.ROLLUP_METRIC_NAME),
+    /**
+     * Metric type
+     */
+    METRIC_TYPE(MetricRollupSchema.ROLLUP_METRIC_TYPE),
+    /**
+     * Resolution
+     */
+    RESOLUTION(MetricRollupSchema.ROLLUP_RESOLUTION),
+    /**
+     * Count of the values
+     */
+    COUNT(MetricRollupSchema.ROLLUP_COUNT),
+    /**
+     * Min of the values
+     */
+    MIN(MetricRollupSchema.ROLLUP_MIN),
+    /**
+     * Max of the values
+     */
+    MAX(MetricRollupSchema.ROLLUP_MAX),
+    /**
+     * Sum of the values
+     */
+    SUM(MetricRollupSchema.ROLLUP_SUM);
+
+    private String field;
+
+    MetricRollupField(String name) {
+        this.field = name;
+    }
+
+    @Override
+    public String field() {
+        return field;
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import org.eclipse.kapua.service.datastore.model.MetricHistogramBucket;
+
+import java.util.Date;
+
+/**
+ * {@link MetricHistogramBucket} implementation.
+ *
+ * @since 2.1.0
+ */
+public class MetricHistogramBucketImpl implements MetricHistogramBucket {
+
+    private Date timestamp;
+    private long messageCount;
+    private long count;
+    private Double min;
+    private Double max;
+    private Double avg;
+    private Double sum;
+
+    @Override
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public void setTimestamp(Date timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    @Override
+    public void setMessageCount(long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public Double getMin() {
+        return min;
+    }
+
+    @Override
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    @Override
+    public Double getMax() {
+        return max;
+    }
+
+    @Override
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    @Override
+    public Double getAvg() {
+        return avg;
+    }
+
+    @Override
+    public void setAvg(Double avg) {
+        this.avg = avg;
+    }
+
+    @Override
+    public Double getSum() {
+        return sum;
+    }
+
+    @Override
+    public void setSum(Double sum) {
+        this.sum = sum;
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import org.eclipse.kapua.service.datastore.model.MetricHistogram;
+import org.eclipse.kapua.service.datastore.model.MetricHistogramBucket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link MetricHistogram} implementation.
+ *
+ * @since 2.1.0
+ */
+public class MetricHistogramImpl implements MetricHistogram {
+
+    private String name;
+    private Class<?> metricType;
+    private String interval;
+    private List<MetricHistogramBucket> buckets;
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Class<?> getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public void setMetricType(Class<?> metricType) {
+        this.metricType = metricType;
+    }
+
+    @Override
+    public String getInterval() {
+        return interval;
+    }
+
+    @Override
+    public void setInterval(String interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public List<MetricHistogramBucket> getBuckets() {
+        if (buckets == null) {
+            buckets = new ArrayList<>();
+        }
+
+        return buckets;
+    }
+
+    @Override
+    public void setBuckets(List<MetricHistogramBucket> buckets) {
+        this.buckets = buckets;
+    }
+}
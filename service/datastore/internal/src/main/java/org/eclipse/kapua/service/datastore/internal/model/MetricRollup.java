@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.storable.model.Storable;
+
+import java.util.Date;
+
+/**
+ * Downsampled values of a metric published by a client on a channel in a time bucket.
+ *
+ * @since 2.1.0
+ */
+public class MetricRollup implements Storable {
+
+    private static final long serialVersionUID = 1L;
+
+    private KapuaId scopeId;
+    private String clientId;
+    private String channel;
+    private String name;
+    private String type;
+    private String resolution;
+    private Date timestamp;
+    private long count;
+    private Double min;
+    private Double max;
+    private Double sum;
+
+    @Override
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    @Override
+    public void setScopeId(KapuaId scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the client metric type (i.e. {@code double}).
+     *
+     * @return The client metric type.
+     * @since 2.1.0
+     */
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Gets the resolution of the time bucket (i.e. {@code 1m}).
+     *
+     * @return The resolution of the time bucket.
+     * @since 2.1.0
+     */
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    /**
+     * Gets the start of the time bucket.
+     *
+     * @return The start of the time bucket.
+     * @since 2.1.0
+     */
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Date timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+
+    public void setSum(Double sum) {
+        this.sum = sum;
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.elasticsearch.client.model.VersionedDocument;
+
+/**
+ * Time range of a scope already rolled up at a resolution.
+ * <p>
+ * All the buckets from {@link #getFrom()} (inclusive) to {@link #getUntil()} (exclusive) are rolled up, so that a metric histogram
+ * query within them can be served by the {@link MetricRollup}s.
+ *
+ * @since 2.1.0
+ */
+public class MetricRollupProgress {
+
+    private final KapuaId scopeId;
+    private final String resolution;
+    private long from;
+    private long until;
+    private VersionedDocument storedDocument;
+
+    public MetricRollupProgress(KapuaId scopeId, String resolution, long from, long until) {
+        this.scopeId = scopeId;
+        this.resolution = resolution;
+        this.from = from;
+        this.until = until;
+    }
+
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Gets the start (inclusive) of the rolled up time range.
+     *
+     * @return The start of the rolled up time range.
+     * @since 2.1.0
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    public void setFrom(long from) {
+        this.from = from;
+    }
+
+    /**
+     * Gets the end (exclusive) of the rolled up time range.
+     *
+     * @return The end of the rolled up time range.
+     * @since 2.1.0
+     */
+    public long getUntil() {
+        return until;
+    }
+
+    public void setUntil(long until) {
+        this.until = until;
+    }
+
+    /**
+     * Gets the {@link VersionedDocument} this progress has been read from, used to store it back only if nobody changed it in the meantime.
+     *
+     * @return The {@link VersionedDocument}, or {@code null} if the progress has never been stored.
+     * @since 2.1.0
+     */
+    public VersionedDocument getStoredDocument() {
+        return storedDocument;
+    }
+
+    public void setStoredDocument(VersionedDocument storedDocument) {
+        this.storedDocument = storedDocument;
+    }
+}
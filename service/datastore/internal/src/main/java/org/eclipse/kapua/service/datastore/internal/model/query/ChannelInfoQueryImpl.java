@@ -20,7 +20,9 @@ import org.eclipse.kapua.service.storable.model.query.AbstractStorableQuery;
 import org.eclipse.kapua.service.storable.model.query.SortField;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * {@link ChannelInfoQuery} implementation.
@@ -41,6 +43,17 @@ public class ChannelInfoQueryImpl extends AbstractStorableQuery implements Chann
         setSortFields(Collections.singletonList(SortField.ascending(ChannelInfoSchema.CHANNEL_NAME)));
     }
 
+    /**
+     * Uses the {@link ChannelInfoSchema#CHANNEL_CLIENT_ID} and the {@link ChannelInfoSchema#CHANNEL_NAME}, which are indexed as {@code keyword}
+     * and are unique together in the channel registry of a scope.
+     *
+     * @since 2.1.0
+     */
+    @Override
+    public List<String> getCursorTieBreakerFields() {
+        return Arrays.asList(ChannelInfoSchema.CHANNEL_CLIENT_ID, ChannelInfoSchema.CHANNEL_NAME);
+    }
+
     @Override
     public String[] getIncludes(StorableFetchStyle fetchStyle) {
         return new String[]{"*"};
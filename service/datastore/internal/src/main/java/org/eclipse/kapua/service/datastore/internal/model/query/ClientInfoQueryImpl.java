@@ -21,6 +21,7 @@ import org.eclipse.kapua.service.storable.model.query.SortField;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
 
 import java.util.Collections;
+import java.util.List;
 
 /**
  * {@link ClientInfoQuery} implementation.
@@ -41,6 +42,16 @@ public class ClientInfoQueryImpl extends AbstractStorableQuery implements Client
         setSortFields(Collections.singletonList(SortField.ascending(ClientInfoSchema.CLIENT_ID)));
     }
 
+    /**
+     * Uses the {@link ClientInfoSchema#CLIENT_ID}, which is indexed as {@code keyword} and is unique in the client registry of a scope.
+     *
+     * @since 2.1.0
+     */
+    @Override
+    public List<String> getCursorTieBreakerFields() {
+        return Collections.singletonList(ClientInfoSchema.CLIENT_ID);
+    }
+
     @Override
     public String[] getIncludes(StorableFetchStyle fetchStyle) {
         return new String[]{"*"};
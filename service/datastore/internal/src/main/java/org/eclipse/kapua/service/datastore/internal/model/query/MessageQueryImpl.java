@@ -21,6 +21,7 @@ import org.eclipse.kapua.service.storable.model.query.SortField;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
 
 import java.util.Collections;
+import java.util.List;
 
 /**
  * {@link MessageQuery} implementation
@@ -41,6 +42,16 @@ public class MessageQueryImpl extends AbstractStorableQuery implements MessageQu
         setSortFields(Collections.singletonList(SortField.descending(MessageSchema.MESSAGE_TIMESTAMP)));
     }
 
+    /**
+     * Uses the {@link MessageSchema#MESSAGE_ID}, which is indexed as {@code keyword} and is unique.
+     *
+     * @since 2.1.0
+     */
+    @Override
+    public List<String> getCursorTieBreakerFields() {
+        return Collections.singletonList(MessageSchema.MESSAGE_ID);
+    }
+
     @Override
     public String[] getIncludes(StorableFetchStyle fetchStyle) {
         // Fetch mode
@@ -20,7 +20,9 @@ import org.eclipse.kapua.service.storable.model.query.AbstractStorableQuery;
 import org.eclipse.kapua.service.storable.model.query.SortField;
 import org.eclipse.kapua.service.storable.model.query.StorableFetchStyle;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * {@link MetricInfoQuery} implementation.
@@ -41,6 +43,17 @@ public class MetricInfoQueryImpl extends AbstractStorableQuery implements Metric
         setSortFields(Collections.singletonList(SortField.ascending(MetricInfoSchema.METRIC_MTR_NAME_FULL)));
     }
 
+    /**
+     * Uses the {@link MetricInfoSchema#METRIC_CLIENT_ID}, the {@link MetricInfoSchema#METRIC_CHANNEL}, the {@link MetricInfoSchema#METRIC_MTR_NAME_FULL}
+     * and the {@link MetricInfoSchema#METRIC_MTR_TYPE_FULL}, which are indexed as {@code keyword} and are unique together in the metric registry of a scope.
+     *
+     * @since 2.1.0
+     */
+    @Override
+    public List<String> getCursorTieBreakerFields() {
+        return Arrays.asList(MetricInfoSchema.METRIC_CLIENT_ID, MetricInfoSchema.METRIC_CHANNEL, MetricInfoSchema.METRIC_MTR_NAME_FULL, MetricInfoSchema.METRIC_MTR_TYPE_FULL);
+    }
+
     @Override
     public String[] getIncludes(StorableFetchStyle fetchStyle) {
         return new String[]{"*"};
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollup;
+import org.eclipse.kapua.service.elasticsearch.client.SchemaKeys;
+import org.eclipse.kapua.service.storable.exception.MappingException;
+import org.eclipse.kapua.service.storable.model.utils.KeyValueEntry;
+import org.eclipse.kapua.service.storable.model.utils.MappingUtils;
+
+/**
+ * {@link MetricRollup} schema definition.
+ * <p>
+ * The scope id, client id, channel and timestamp fields share the names of the message ones,
+ * so that the message predicates on them can be applied to the rollups as well.
+ *
+ * @since 2.1.0
+ */
+public class MetricRollupSchema {
+
+    /**
+     * @since 2.1.0
+     */
+    private MetricRollupSchema() {
+    }
+
+    /**
+     * Metric rollup - scope id
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_SCOPE_ID = MessageSchema.MESSAGE_SCOPE_ID;
+
+    /**
+     * Metric rollup - client identifier
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_CLIENT_ID = MessageSchema.MESSAGE_CLIENT_ID;
+
+    /**
+     * Metric rollup - channel
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_CHANNEL = MessageSchema.MESSAGE_CHANNEL;
+
+    /**
+     * Metric rollup - bucket start timestamp
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_TIMESTAMP = MessageSchema.MESSAGE_TIMESTAMP;
+
+    /**
+     * Metric rollup - metric name
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_METRIC_NAME = "metric_name";
+
+    /**
+     * Metric rollup - metric type
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_METRIC_TYPE = "metric_type";
+
+    /**
+     * Metric rollup - resolution
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_RESOLUTION = "resolution";
+
+    /**
+     * Metric rollup - count of the values
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_COUNT = "count";
+
+    /**
+     * Metric rollup - min of the values
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_MIN = "min";
+
+    /**
+     * Metric rollup - max of the values
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_MAX = "max";
+
+    /**
+     * Metric rollup - sum of the values
+     *
+     * @since 2.1.0
+     */
+    public static final String ROLLUP_SUM = "sum";
+
+    /**
+     * Create and return the Json representation of the metric rollup schema
+     *
+     * @return
+     * @throws MappingException
+     * @since 2.1.0
+     */
+    public static JsonNode getMetricRollupTypeSchema() throws MappingException {
+
+        ObjectNode rollupNode = MappingUtils.newObjectNode();
+
+        ObjectNode sourceRollup = MappingUtils.newObjectNode(new KeyValueEntry[]{new KeyValueEntry(SchemaKeys.KEY_ENABLED, true)});
+        rollupNode.set(SchemaKeys.KEY_SOURCE, sourceRollup);
+
+        ObjectNode propertiesNode = MappingUtils.newObjectNode();
+        {
+            for (String keywordField : new String[]{ROLLUP_SCOPE_ID, ROLLUP_CLIENT_ID, ROLLUP_CHANNEL, ROLLUP_METRIC_NAME, ROLLUP_METRIC_TYPE, ROLLUP_RESOLUTION}) {
+                ObjectNode keywordNode = MappingUtils.newObjectNode(new KeyValueEntry[]{new KeyValueEntry(SchemaKeys.KEY_TYPE, SchemaKeys.TYPE_KEYWORD), new KeyValueEntry(SchemaKeys.KEY_INDEX, SchemaKeys.VALUE_TRUE)});
+                propertiesNode.set(keywordField, keywordNode);
+            }
+
+            ObjectNode rollupTimestamp = MappingUtils.newObjectNode(new KeyValueEntry[]{new KeyValueEntry(SchemaKeys.KEY_TYPE, SchemaKeys.TYPE_DATE), new KeyValueEntry(SchemaKeys.KEY_FORMAT, DatastoreUtils.DATASTORE_DATE_FORMAT)});
+            propertiesNode.set(ROLLUP_TIMESTAMP, rollupTimestamp);
+
+            ObjectNode rollupCount = MappingUtils.newObjectNode(new KeyValueEntry[]{new KeyValueEntry(SchemaKeys.KEY_TYPE, SchemaKeys.TYPE_LONG)});
+            propertiesNode.set(ROLLUP_COUNT, rollupCount);
+
+            for (String valueField : new String[]{ROLLUP_MIN, ROLLUP_MAX, ROLLUP_SUM}) {
+                ObjectNode valueNode = MappingUtils.newObjectNode(new KeyValueEntry[]{new KeyValueEntry(SchemaKeys.KEY_TYPE, SchemaKeys.TYPE_DOUBLE)});
+                propertiesNode.set(valueField, valueNode);
+            }
+        }
+        rollupNode.set(SchemaKeys.FIELD_NAME_PROPERTIES, propertiesNode);
+
+        return rollupNode;
+    }
+
+}
@@ -70,6 +70,18 @@ public enum DatastoreSettingsKey implements SettingKey {
      * Metadata cache maximum size (default value is no specific cache value is defined)
      */
     CONFIG_CACHE_METADATA_LOCAL_SIZE_MAXIMUM("datastore.cache.metadata.local.size.maximum"),
+    /**
+     * Maximum number of scopes whose configuration and account snapshot is cached
+     */
+    CONFIG_CACHE_SCOPE_LOCAL_SIZE_MAXIMUM("datastore.cache.scope.local.size.maximum"),
+    /**
+     * Expire time (in seconds) of the scope configuration and account snapshot, used as a safety net if no invalidation event is received
+     */
+    CONFIG_CACHE_SCOPE_LOCAL_EXPIRE_AFTER("datastore.cache.scope.local.expire.after"),
+    /**
+     * Comma separated list of the service event bus addresses whose events invalidate the scope configuration and account snapshot
+     */
+    CONFIG_CACHE_SCOPE_EVENT_ADDRESSES("datastore.cache.scope.event_addresses"),
     /**
      * Enable datastore timing profile
      */
@@ -109,7 +121,67 @@ public enum DatastoreSettingsKey implements SettingKey {
     /**
      * Elasticsearch limit+offset maximum value
      */
-    MAX_RESULT_WINDOW_VALUE("datastore.max_result_window");
+    MAX_RESULT_WINDOW_VALUE("datastore.max_result_window"),
+    /**
+     * Maximum number of buckets of a metric histogram
+     */
+    HISTOGRAM_MAX_BUCKETS("datastore.histogram.max_buckets"),
+    /**
+     * Maximum number of messages sent to Elasticsearch with a single bulk request
+     */
+    STORE_BULK_SIZE("datastore.store.bulk.size"),
+    /**
+     * Maximum estimated size (in bytes) of the messages sent to Elasticsearch with a single bulk request. 0 or less disables the limit
+     */
+    STORE_BULK_MAX_BYTES("datastore.store.bulk.max_bytes"),
+    /**
+     * Maximum time (in milliseconds) a message waits in the bulk buffer before being flushed
+     */
+    STORE_BULK_FLUSH_INTERVAL("datastore.store.bulk.flush_interval"),
+    /**
+     * Number of threads flushing the bulk buffer to Elasticsearch
+     */
+    STORE_BULK_FLUSH_THREADS("datastore.store.bulk.flush_threads"),
+    /**
+     * Maximum number of messages buffered or being flushed, after which the producers are blocked
+     */
+    STORE_BULK_MAX_PENDING("datastore.store.bulk.max_pending"),
+    /**
+     * Maximum time (in milliseconds) a client, channel or metric registry entry waits before being flushed
+     */
+    REGISTRY_FLUSH_INTERVAL("datastore.registry.flush_interval"),
+    /**
+     * Number of pending client, channel and metric registry entries which triggers an early flush
+     */
+    REGISTRY_MAX_PENDING("datastore.registry.max_pending"),
+    /**
+     * Enables the periodic computation of the metric rollups (for the scopes which enable them)
+     */
+    ROLLUP_ENABLED("datastore.rollup.enabled"),
+    /**
+     * Comma separated list of the metric rollups resolutions (i.e. "1m,1h")
+     */
+    ROLLUP_RESOLUTIONS("datastore.rollup.resolutions"),
+    /**
+     * Time (in milliseconds) between two metric rollups computations
+     */
+    ROLLUP_RUN_INTERVAL("datastore.rollup.run_interval"),
+    /**
+     * Time (in milliseconds) a bucket waits after its end before being rolled up, to include late messages
+     */
+    ROLLUP_DELAY("datastore.rollup.delay"),
+    /**
+     * Time (in milliseconds) rolled up on the first computation of a scope
+     */
+    ROLLUP_LOOKBACK("datastore.rollup.lookback"),
+    /**
+     * Age (in milliseconds) of the start of a metric histogram query after which the query is served by the metric rollups
+     */
+    ROLLUP_ROUTE_AFTER("datastore.rollup.route_after"),
+    /**
+     * Time (in milliseconds) the instance computing the metric rollups keeps the lease without renewing it, before another instance can take over
+     */
+    ROLLUP_LEASE_DURATION("datastore.rollup.lease_duration");
 
     private String key;
 
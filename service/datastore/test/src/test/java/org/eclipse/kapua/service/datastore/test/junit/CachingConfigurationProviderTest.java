@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.test.junit;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.datastore.internal.CachingConfigurationProvider;
+import org.eclipse.kapua.service.datastore.internal.ConfigurationProvider;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageInfo;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageStoreConfiguration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+
+@Category(JUnitTests.class)
+public class CachingConfigurationProviderTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(10));
+    private static final KapuaId OTHER_SCOPE_ID = new KapuaEid(BigInteger.valueOf(20));
+
+    private ConfigurationProvider wrapped;
+
+    @Before
+    public void setUp() throws Exception {
+        wrapped = Mockito.mock(ConfigurationProvider.class);
+        Mockito.when(wrapped.getConfiguration(Mockito.any(KapuaId.class))).thenAnswer(invocation -> Mockito.mock(MessageStoreConfiguration.class));
+        Mockito.when(wrapped.getInfo(Mockito.any(KapuaId.class))).thenAnswer(invocation -> Mockito.mock(MessageInfo.class));
+    }
+
+    @Test
+    public void snapshotIsCached() throws Exception {
+        CachingConfigurationProvider provider = new CachingConfigurationProvider(wrapped, 100, 60000);
+
+        MessageStoreConfiguration configuration = provider.getConfiguration(SCOPE_ID);
+        MessageInfo messageInfo = provider.getInfo(SCOPE_ID);
+
+        Assert.assertSame(configuration, provider.getConfiguration(SCOPE_ID));
+        Assert.assertSame(messageInfo, provider.getInfo(SCOPE_ID));
+        Mockito.verify(wrapped, Mockito.times(1)).getConfiguration(SCOPE_ID);
+        Mockito.verify(wrapped, Mockito.times(1)).getInfo(SCOPE_ID);
+    }
+
+    @Test
+    public void nullScopeIsNotCached() throws Exception {
+        CachingConfigurationProvider provider = new CachingConfigurationProvider(wrapped, 100, 60000);
+
+        provider.getConfiguration(null);
+        provider.getConfiguration(null);
+
+        Mockito.verify(wrapped, Mockito.times(2)).getConfiguration(null);
+    }
+
+    @Test
+    public void invalidateReloadsOnlyTheScope() throws Exception {
+        CachingConfigurationProvider provider = new CachingConfigurationProvider(wrapped, 100, 60000);
+        MessageStoreConfiguration configuration = provider.getConfiguration(SCOPE_ID);
+        MessageStoreConfiguration otherConfiguration = provider.getConfiguration(OTHER_SCOPE_ID);
+
+        provider.invalidate(SCOPE_ID);
+
+        Assert.assertNotSame(configuration, provider.getConfiguration(SCOPE_ID));
+        Assert.assertSame(otherConfiguration, provider.getConfiguration(OTHER_SCOPE_ID));
+    }
+
+    @Test
+    public void invalidateAllReloadsEveryScope() throws Exception {
+        CachingConfigurationProvider provider = new CachingConfigurationProvider(wrapped, 100, 60000);
+        MessageStoreConfiguration configuration = provider.getConfiguration(SCOPE_ID);
+        MessageStoreConfiguration otherConfiguration = provider.getConfiguration(OTHER_SCOPE_ID);
+
+        provider.invalidateAll();
+
+        Assert.assertNotSame(configuration, provider.getConfiguration(SCOPE_ID));
+        Assert.assertNotSame(otherConfiguration, provider.getConfiguration(OTHER_SCOPE_ID));
+    }
+
+    @Test
+    public void serviceEventInvalidatesTheScope() throws Exception {
+        CachingConfigurationProvider provider = new CachingConfigurationProvider(wrapped, 100, 60000);
+        MessageStoreConfiguration configuration = provider.getConfiguration(SCOPE_ID);
+        MessageStoreConfiguration otherConfiguration = provider.getConfiguration(OTHER_SCOPE_ID);
+
+        ServiceEvent serviceEvent = Mockito.mock(ServiceEvent.class);
+        Mockito.when(serviceEvent.getScopeId()).thenReturn(SCOPE_ID);
+        provider.onKapuaEvent(serviceEvent);
+
+        Assert.assertNotSame(configuration, provider.getConfiguration(SCOPE_ID));
+        Assert.assertSame(otherConfiguration, provider.getConfiguration(OTHER_SCOPE_ID));
+    }
+
+    @Test
+    public void snapshotExpires() throws Exception {
+        CachingConfigurationProvider provider = new CachingConfigurationProvider(wrapped, 100, 10);
+        MessageStoreConfiguration configuration = provider.getConfiguration(SCOPE_ID);
+
+        Thread.sleep(50);
+
+        Assert.assertNotSame(configuration, provider.getConfiguration(SCOPE_ID));
+    }
+
+    @Test
+    public void snapshotLoadedDuringInvalidationIsNotCached() throws Exception {
+        CachingConfigurationProvider provider = new CachingConfigurationProvider(wrapped, 100, 60000);
+        Mockito.when(wrapped.getInfo(SCOPE_ID)).thenAnswer(invocation -> {
+            // The configuration changes while the snapshot is being loaded
+            provider.invalidate(SCOPE_ID);
+            return Mockito.mock(MessageInfo.class);
+        });
+
+        MessageStoreConfiguration configuration = provider.getConfiguration(SCOPE_ID);
+
+        Assert.assertNotSame(configuration, provider.getConfiguration(SCOPE_ID));
+        Mockito.verify(wrapped, Mockito.times(2)).getConfiguration(SCOPE_ID);
+    }
+}
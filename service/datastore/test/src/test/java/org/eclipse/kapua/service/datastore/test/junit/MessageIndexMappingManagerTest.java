@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.test.junit;
+
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.datastore.internal.MessageIndexMappingManager;
+import org.eclipse.kapua.service.datastore.internal.mediator.Metric;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Category(JUnitTests.class)
+public class MessageIndexMappingManagerTest {
+
+    private static final String INDEX = "1-data-message-2024-01";
+
+    @Test
+    public void onlyNewMetricsAreMapped() {
+        MessageIndexMappingManager mappingManager = new MessageIndexMappingManager(10);
+        AtomicInteger indexUpserts = new AtomicInteger();
+        List<Map<String, Metric>> mappingUpserts = new ArrayList<>();
+
+        mappingManager.synchMappings(INDEX, metrics("temperature", "pressure"), index -> indexUpserts.incrementAndGet(), (index, metrics) -> mappingUpserts.add(metrics));
+        mappingManager.synchMappings(INDEX, metrics("temperature", "pressure"), index -> indexUpserts.incrementAndGet(), (index, metrics) -> mappingUpserts.add(metrics));
+        mappingManager.synchMappings(INDEX, metrics("temperature", "humidity"), index -> indexUpserts.incrementAndGet(), (index, metrics) -> mappingUpserts.add(metrics));
+
+        Assert.assertEquals(1, indexUpserts.get());
+        Assert.assertEquals(2, mappingUpserts.size());
+        Assert.assertEquals(2, mappingUpserts.get(0).size());
+        Assert.assertEquals(1, mappingUpserts.get(1).size());
+        Assert.assertTrue(mappingUpserts.get(1).containsKey("humidity"));
+    }
+
+    @Test
+    public void failedMappingIsRetried() {
+        MessageIndexMappingManager mappingManager = new MessageIndexMappingManager(10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            mappingManager.synchMappings(INDEX, metrics("temperature"), index -> { }, (index, metrics) -> {
+                attempts.incrementAndGet();
+                throw new RuntimeException("put mapping failed");
+            });
+            Assert.fail("The put mapping failure should have been propagated");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("put mapping failed", e.getMessage());
+        }
+
+        mappingManager.synchMappings(INDEX, metrics("temperature"), index -> { }, (index, metrics) -> attempts.incrementAndGet());
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void concurrentDiscoveryIsCoalesced() throws Exception {
+        MessageIndexMappingManager mappingManager = new MessageIndexMappingManager(10);
+        List<Map<String, Metric>> mappingUpserts = new CopyOnWriteArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    mappingManager.synchMappings(INDEX, metrics("temperature"), index -> { }, (index, metrics) -> mappingUpserts.add(metrics));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(1, mappingUpserts.size());
+    }
+
+    private static Map<String, Metric> metrics(String... names) {
+        Map<String, Metric> metrics = new HashMap<>();
+        for (String name : names) {
+            metrics.put(name, new Metric(name, "double"));
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.test.junit;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.message.internal.KapuaPayloadImpl;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.datastore.internal.MessageRepository;
+import org.eclipse.kapua.service.datastore.internal.MessageStoreBulkWriter;
+import org.eclipse.kapua.service.datastore.internal.mediator.Metric;
+import org.eclipse.kapua.service.datastore.internal.model.DatastoreMessageImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientCommunicationException;
+import org.eclipse.kapua.service.elasticsearch.client.exception.ClientInternalError;
+import org.eclipse.kapua.service.elasticsearch.client.model.InsertResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Category(JUnitTests.class)
+public class MessageStoreBulkWriterTest {
+
+    private MessageRepository messageRepository;
+    private DatastoreSettings datastoreSettings;
+
+    @Before
+    public void setUp() {
+        messageRepository = Mockito.mock(MessageRepository.class);
+        datastoreSettings = Mockito.mock(DatastoreSettings.class);
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_FLUSH_THREADS, 2)).thenReturn(1);
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_MAX_PENDING, 10000)).thenReturn(10000);
+    }
+
+    @Test
+    public void flushOnBulkSizeReportsEachItem() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(2);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(60000L);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any()))
+                .thenReturn(Arrays.asList(new InsertResponse("id-1", "index"), new InsertResponse("id-2", "index", "mapper_parsing_exception")));
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        CompletableFuture<String> first = bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>());
+        CompletableFuture<String> second = bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>());
+
+        Assert.assertEquals("id-1", first.get(5, TimeUnit.SECONDS));
+        try {
+            second.get(5, TimeUnit.SECONDS);
+            Assert.fail("The second message should have failed");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ClientInternalError);
+        }
+        Mockito.verify(messageRepository, Mockito.times(1)).store(Mockito.<List>any(), Mockito.<List>any());
+    }
+
+    @Test
+    public void flushOnIntervalElapsed() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(100);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(50L);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any()))
+                .thenReturn(Collections.singletonList(new InsertResponse("id-1", "index")));
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        CompletableFuture<String> pending = bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>());
+
+        Assert.assertEquals("id-1", pending.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void flushGroupsMessagesByScope() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(2);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(60000L);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any()))
+                .thenReturn(Arrays.asList(new InsertResponse("id-1", "index"), new InsertResponse("id-2", "index")));
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        CompletableFuture<String> first = bulkWriter.enqueue(newMessage(1), new HashMap<>());
+        CompletableFuture<String> other = bulkWriter.enqueue(newMessage(2), new HashMap<>());
+        CompletableFuture<String> second = bulkWriter.enqueue(newMessage(1), new HashMap<>());
+
+        Assert.assertEquals("id-1", first.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("id-2", second.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse("The message of the other scope should still be pending", other.isDone());
+        Mockito.verify(messageRepository, Mockito.times(1)).store(Mockito.<List>any(), Mockito.<List>any());
+    }
+
+    @Test
+    public void failedBulkFailsAllItems() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(2);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(60000L);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any()))
+                .thenThrow(new ClientCommunicationException());
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        CompletableFuture<String> first = bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>());
+        CompletableFuture<String> second = bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>());
+
+        for (CompletableFuture<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail("The message should have failed");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof ClientCommunicationException);
+            }
+        }
+    }
+
+    @Test
+    public void enqueueBlocksWhenMaxPendingReached() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(1);
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_MAX_PENDING, 10000)).thenReturn(2);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(60000L);
+        CountDownLatch storeReleased = new CountDownLatch(1);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any())).thenAnswer(invocation -> {
+            storeReleased.await();
+            return Collections.singletonList(new InsertResponse("id", "index"));
+        });
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        CompletableFuture<String> first = bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>());
+        CompletableFuture<String> second = bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>());
+
+        AtomicReference<CompletableFuture<String>> third = new AtomicReference<>();
+        Thread producer = new Thread(() -> third.set(bulkWriter.enqueue(new DatastoreMessageImpl(), new HashMap<>())));
+        producer.start();
+        producer.join(500);
+        Assert.assertTrue("The producer should wait for the running bulk requests", producer.isAlive());
+        Assert.assertNull(third.get());
+
+        storeReleased.countDown();
+        producer.join(5000);
+        Assert.assertFalse(producer.isAlive());
+        Assert.assertEquals("id", first.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("id", second.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("id", third.get().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void flushOnBulkMaxBytes() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(100);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_MAX_BYTES, 5242880L)).thenReturn(4096L);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(60000L);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any()))
+                .thenReturn(Arrays.asList(new InsertResponse("id-1", "index"), new InsertResponse("id-2", "index")));
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        CompletableFuture<String> small = bulkWriter.enqueue(newMessage(1, 1024), new HashMap<>());
+        Assert.assertFalse(small.isDone());
+        CompletableFuture<String> large = bulkWriter.enqueue(newMessage(1, 4096), new HashMap<>());
+
+        Assert.assertEquals("id-1", small.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("id-2", large.get(5, TimeUnit.SECONDS));
+        Mockito.verify(messageRepository, Mockito.times(1)).store(Mockito.<List>any(), Mockito.<List>any());
+    }
+
+    @Test
+    public void flushKeepsTheMetricsOfEachMessage() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(2);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(60000L);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any()))
+                .thenReturn(Arrays.asList(new InsertResponse("id-1", "index"), new InsertResponse("id-2", "index")));
+        Map<String, Metric> firstMetrics = Collections.singletonMap("temperature", new Metric("temperature", "double"));
+        Map<String, Metric> secondMetrics = Collections.singletonMap("status", new Metric("status", "string"));
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        bulkWriter.enqueue(newMessage(1), firstMetrics);
+        bulkWriter.enqueue(newMessage(1), secondMetrics).get(5, TimeUnit.SECONDS);
+
+        // The metrics are not merged, so that the repository updates the mappings of each index with the metrics of its own messages
+        Mockito.verify(messageRepository).store(Mockito.<List>any(), Mockito.eq(Arrays.asList(firstMetrics, secondMetrics)));
+    }
+
+    @Test
+    public void closeFlushesPendingMessages() throws Exception {
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(100);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.STORE_BULK_FLUSH_INTERVAL, 200L)).thenReturn(60000L);
+        Mockito.when(messageRepository.store(Mockito.<List>any(), Mockito.<List>any()))
+                .thenReturn(Collections.singletonList(new InsertResponse("id-1", "index")));
+
+        MessageStoreBulkWriter bulkWriter = new MessageStoreBulkWriter(messageRepository, datastoreSettings);
+        CompletableFuture<String> pending = bulkWriter.enqueue(newMessage(1), new HashMap<>());
+        Assert.assertFalse(pending.isDone());
+
+        bulkWriter.close();
+
+        Assert.assertTrue(pending.isDone());
+        Assert.assertEquals("id-1", pending.get());
+
+        // The writer is started again by the next message
+        CompletableFuture<String> next = bulkWriter.enqueue(newMessage(1), new HashMap<>());
+        bulkWriter.close();
+        Assert.assertEquals("id-1", next.get());
+    }
+
+    private DatastoreMessageImpl newMessage(long scopeId, int bodyBytes) {
+        DatastoreMessageImpl message = newMessage(scopeId);
+        KapuaPayloadImpl payload = new KapuaPayloadImpl();
+        payload.setBody(new byte[bodyBytes]);
+        message.setPayload(payload);
+        return message;
+    }
+
+    private DatastoreMessageImpl newMessage(long scopeId) {
+        DatastoreMessageImpl message = new DatastoreMessageImpl();
+        message.setScopeId(new KapuaEid(BigInteger.valueOf(scopeId)));
+        return message;
+    }
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.test.junit;
+
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.KapuaIllegalNullArgumentException;
+import org.eclipse.kapua.commons.configuration.ServiceConfigurationManager;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.authorization.AuthorizationService;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.datastore.internal.CachingConfigurationProvider;
+import org.eclipse.kapua.service.datastore.internal.MessageStoreFacade;
+import org.eclipse.kapua.service.datastore.internal.MessageStoreServiceImpl;
+import org.eclipse.kapua.service.datastore.internal.MetricsDatastore;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
+import org.eclipse.kapua.service.datastore.internal.model.MetricHistogramImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.storable.model.query.predicate.AndPredicateImpl;
+import org.eclipse.kapua.service.storable.model.query.predicate.RangePredicateImpl;
+import org.eclipse.kapua.service.storable.model.query.predicate.TermPredicateImpl;
+import org.eclipse.kapua.storage.TxManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@Category(JUnitTests.class)
+public class MessageStoreServiceHistogramTest {
+
+    private static final long START = 1700000000000L;
+
+    private MessageStoreFacade messageStoreFacade;
+    private MessageStoreServiceImpl messageStoreService;
+
+    @Before
+    public void setUp() throws Exception {
+        messageStoreFacade = Mockito.mock(MessageStoreFacade.class);
+        Mockito.when(messageStoreFacade.histogram(Mockito.any(MessageQuery.class), Mockito.anyString(), Mockito.any(), Mockito.anyString())).thenReturn(new MetricHistogramImpl());
+        DatastoreSettings datastoreSettings = Mockito.mock(DatastoreSettings.class);
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.HISTOGRAM_MAX_BUCKETS, 1000)).thenReturn(100);
+
+        messageStoreService = new MessageStoreServiceImpl(
+                Mockito.mock(TxManager.class),
+                Mockito.mock(PermissionFactory.class),
+                Mockito.mock(AuthorizationService.class),
+                Mockito.mock(ServiceConfigurationManager.class),
+                messageStoreFacade,
+                Mockito.mock(MetricsDatastore.class),
+                datastoreSettings,
+                Mockito.mock(CachingConfigurationProvider.class));
+    }
+
+    @Test
+    public void histogramWithinMaxBuckets() throws Exception {
+        MessageQuery query = query(new Date(START), new Date(START + TimeUnit.HOURS.toMillis(99)));
+
+        Assert.assertNotNull(messageStoreService.histogram(query, "temperature", Double.class, "1h"));
+
+        Mockito.verify(messageStoreFacade).histogram(query, "temperature", Double.class, "1h");
+    }
+
+    @Test
+    public void histogramRangeInsideAndPredicate() throws Exception {
+        MessageQuery query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setPredicate(new AndPredicateImpl(
+                new TermPredicateImpl(MessageField.CLIENT_ID, "client-id"),
+                new RangePredicateImpl(MessageField.TIMESTAMP, new Date(START), new Date(START + TimeUnit.DAYS.toMillis(1)))));
+
+        messageStoreService.histogram(query, "temperature", Double.class, "15m");
+
+        try {
+            messageStoreService.histogram(query, "temperature", Double.class, "1m");
+            Assert.fail("The histogram should exceed the max buckets");
+        } catch (KapuaIllegalArgumentException e) {
+            Assert.assertEquals("interval", e.getArgumentName());
+        }
+    }
+
+    @Test
+    public void histogramOverMaxBuckets() throws Exception {
+        MessageQuery query = query(new Date(START), new Date(START + TimeUnit.HOURS.toMillis(100)));
+
+        try {
+            messageStoreService.histogram(query, "temperature", Double.class, "1h");
+            Assert.fail("The histogram should exceed the max buckets");
+        } catch (KapuaIllegalArgumentException e) {
+            Assert.assertEquals("interval", e.getArgumentName());
+        }
+        Mockito.verify(messageStoreFacade, Mockito.never()).histogram(Mockito.any(MessageQuery.class), Mockito.anyString(), Mockito.any(), Mockito.anyString());
+    }
+
+    @Test
+    public void histogramWithoutEndDateEndsNow() throws Exception {
+        MessageQuery query = query(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)), null);
+
+        messageStoreService.histogram(query, "temperature", Long.class, "1h");
+
+        try {
+            messageStoreService.histogram(query, "temperature", Long.class, "10m");
+            Assert.fail("The histogram should exceed the max buckets");
+        } catch (KapuaIllegalArgumentException e) {
+            Assert.assertEquals("interval", e.getArgumentName());
+        }
+    }
+
+    @Test(expected = KapuaIllegalNullArgumentException.class)
+    public void histogramWithoutStartDate() throws Exception {
+        messageStoreService.histogram(query(null, new Date(START)), "temperature", Double.class, "1h");
+    }
+
+    @Test(expected = KapuaIllegalNullArgumentException.class)
+    public void histogramWithoutTimestampRange() throws Exception {
+        MessageQuery query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setPredicate(new RangePredicateImpl(MessageField.RECEIVED_ON, new Date(START), null));
+
+        messageStoreService.histogram(query, "temperature", Double.class, "1h");
+    }
+
+    @Test
+    public void histogramIntervalOverflow() throws Exception {
+        MessageQuery query = query(new Date(START), new Date(START + 1));
+
+        for (String interval : new String[]{"0h", "1w", "99999999999999999999d", "1000000000d", "1 h"}) {
+            try {
+                messageStoreService.histogram(query, "temperature", Double.class, interval);
+                Assert.fail("The interval should be rejected: " + interval);
+            } catch (KapuaIllegalArgumentException e) {
+                Assert.assertEquals("interval", e.getArgumentName());
+            }
+        }
+        messageStoreService.histogram(query, "temperature", Double.class, "999999999d");
+    }
+
+    private MessageQuery query(Date startDate, Date endDate) {
+        MessageQuery query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, startDate, endDate));
+        return query;
+    }
+}
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.test.junit;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.datastore.internal.ConfigurationProvider;
+import org.eclipse.kapua.service.datastore.internal.MessageRepository;
+import org.eclipse.kapua.service.datastore.internal.MessageStoreFactoryImpl;
+import org.eclipse.kapua.service.datastore.internal.MetricInfoFactoryImpl;
+import org.eclipse.kapua.service.datastore.internal.MetricInfoRepository;
+import org.eclipse.kapua.service.datastore.internal.MetricRollupManager;
+import org.eclipse.kapua.service.datastore.internal.MetricRollupRepository;
+import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageStoreConfiguration;
+import org.eclipse.kapua.service.datastore.internal.model.MetricInfoImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricInfoListResultImpl;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollup;
+import org.eclipse.kapua.service.datastore.internal.model.MetricRollupProgress;
+import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.predicate.DatastorePredicateFactoryImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.datastore.model.MetricInfo;
+import org.eclipse.kapua.service.datastore.model.MetricInfoListResult;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.MetricInfoQuery;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramRequest;
+import org.eclipse.kapua.service.elasticsearch.client.model.CompositeHistogramResult;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramBucket;
+import org.eclipse.kapua.service.elasticsearch.client.model.DateHistogramRequest;
+import org.eclipse.kapua.service.storable.model.query.predicate.RangePredicate;
+import org.eclipse.kapua.service.storable.model.query.predicate.RangePredicateImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Category(JUnitTests.class)
+public class MetricRollupManagerTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(10));
+
+    // Aligned to the hour
+    private static final long NOW = 1700006400000L;
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private ConfigurationProvider configProvider;
+    private MessageStoreConfiguration messageStoreConfiguration;
+    private MessageRepository messageRepository;
+    private MetricInfoRepository metricInfoRepository;
+    private MetricRollupRepository metricRollupRepository;
+    private MetricRollupManager metricRollupManager;
+
+    @Before
+    public void setUp() throws Exception {
+        messageStoreConfiguration = Mockito.mock(MessageStoreConfiguration.class);
+        Mockito.when(messageStoreConfiguration.getRollupEnabled()).thenReturn(true);
+        Mockito.when(messageStoreConfiguration.getRollupTimeToLiveMilliseconds()).thenReturn(30 * DAY);
+        configProvider = Mockito.mock(ConfigurationProvider.class);
+        Mockito.when(configProvider.getConfiguration(SCOPE_ID)).thenReturn(messageStoreConfiguration);
+
+        messageRepository = Mockito.mock(MessageRepository.class);
+        metricInfoRepository = Mockito.mock(MetricInfoRepository.class);
+        Mockito.when(metricInfoRepository.findScopeIds()).thenReturn(Collections.singleton(SCOPE_ID));
+        metricRollupRepository = Mockito.mock(MetricRollupRepository.class);
+        Mockito.when(metricRollupRepository.acquireLease(Mockito.anyString(), Mockito.anyLong(), Mockito.anyLong())).thenReturn(true);
+        Mockito.when(metricRollupRepository.storeProgress(Mockito.any(MetricRollupProgress.class))).thenReturn(true);
+
+        DatastoreSettings datastoreSettings = Mockito.mock(DatastoreSettings.class);
+        Mockito.when(datastoreSettings.getBoolean(DatastoreSettingsKey.ROLLUP_ENABLED, false)).thenReturn(true);
+        Mockito.when(datastoreSettings.getString(DatastoreSettingsKey.ROLLUP_RESOLUTIONS, "1m,1h")).thenReturn("1m,1h");
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_DELAY, 120000L)).thenReturn(2 * MINUTE);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_LOOKBACK, 7200000L)).thenReturn(2 * HOUR);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_ROUTE_AFTER, 86400000L)).thenReturn(DAY);
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.STORE_BULK_SIZE, 500)).thenReturn(500);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.ROLLUP_LEASE_DURATION, 300000L)).thenReturn(300000L);
+        DatastoreUtils datastoreUtils = new DatastoreUtils(datastoreSettings);
+
+        metricRollupManager = new MetricRollupManager(
+                configProvider,
+                messageRepository,
+                metricInfoRepository,
+                metricRollupRepository,
+                new MessageStoreFactoryImpl(),
+                new MetricInfoFactoryImpl(),
+                new DatastorePredicateFactoryImpl(datastoreUtils),
+                datastoreUtils,
+                datastoreSettings);
+    }
+
+    @Test
+    public void rollupWithoutLeaseDoesNothing() throws Exception {
+        Mockito.when(metricRollupRepository.acquireLease(Mockito.anyString(), Mockito.anyLong(), Mockito.anyLong())).thenReturn(false);
+
+        metricRollupManager.rollup(NOW);
+
+        Mockito.verify(metricRollupRepository, Mockito.never()).findProgress(Mockito.any(KapuaId.class), Mockito.anyString());
+        Mockito.verify(metricRollupRepository, Mockito.never()).storeProgress(Mockito.any(MetricRollupProgress.class));
+        Mockito.verifyZeroInteractions(messageRepository);
+    }
+
+    @Test
+    public void rollupComputesTheHistogramsOfTheScopeWithACompositeAggregation() throws Exception {
+        mockMetricInfos(
+                newMetricInfo("client-id", "temperature", Double.class),
+                newMetricInfo("client-id", "label", String.class),
+                newMetricInfo("client-id", "pressure", Long.class),
+                newMetricInfo("other-client-id", "temperature", Double.class));
+        Map<String, Object> afterKey = Collections.singletonMap(MessageField.TIMESTAMP.field(), NOW - HOUR);
+        List<CompositeHistogramRequest> compositeHistogramRequests = new ArrayList<>();
+        List<Map<String, Object>> requestedAfterKeys = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            CompositeHistogramRequest compositeHistogramRequest = (CompositeHistogramRequest) invocation.getArguments()[1];
+            compositeHistogramRequests.add(compositeHistogramRequest);
+            requestedAfterKeys.add(compositeHistogramRequest.getAfterKey());
+            CompositeHistogramResult compositeHistogramResult = new CompositeHistogramResult();
+            if (compositeHistogramRequest.getAfterKey() == null) {
+                compositeHistogramResult.getBuckets().add(newCompositeHistogramBucket("client-id", NOW - HOUR,
+                        new DateHistogramBucket(NOW - HOUR, 2, 2, 1.0, 3.0, 2.0, 4.0),
+                        new DateHistogramBucket(NOW - HOUR, 2, 1, 5.0, 5.0, 5.0, 5.0)));
+                compositeHistogramResult.setAfterKey(afterKey);
+            } else {
+                compositeHistogramResult.getBuckets().add(newCompositeHistogramBucket("other-client-id", NOW - HOUR,
+                        new DateHistogramBucket(NOW - HOUR, 1, 1, 7.0, 7.0, 7.0, 7.0),
+                        new DateHistogramBucket(NOW - HOUR, 1, 0, null, null, null, null)));
+            }
+            return compositeHistogramResult;
+        }).when(messageRepository).compositeHistogram(Mockito.any(MessageQuery.class), Mockito.any(CompositeHistogramRequest.class));
+
+        metricRollupManager.rollup(NOW);
+
+        // Two pages for each resolution, with the numeric metrics of all the client ids and channels
+        Assert.assertEquals(4, compositeHistogramRequests.size());
+        Assert.assertEquals(Arrays.asList(null, afterKey, null, afterKey), requestedAfterKeys);
+        CompositeHistogramRequest minuteRequest = compositeHistogramRequests.get(0);
+        Assert.assertEquals("1m", minuteRequest.getInterval());
+        Assert.assertEquals("1h", compositeHistogramRequests.get(2).getInterval());
+        Assert.assertEquals(Arrays.asList(MessageField.CLIENT_ID.field(), MessageField.CHANNEL.field()), minuteRequest.getTermFields());
+        Assert.assertEquals(Arrays.asList("metrics.temperature.dbl", "metrics.pressure.lng"), minuteRequest.getStatsFields());
+        Mockito.verify(messageRepository, Mockito.never()).dateHistogram(Mockito.any(MessageQuery.class), Mockito.any(DateHistogramRequest.class));
+
+        // Metrics without values in a bucket are not stored
+        ArgumentCaptor<List> metricRollups = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(metricRollupRepository, Mockito.times(2)).store(metricRollups.capture());
+        @SuppressWarnings("unchecked")
+        List<MetricRollup> minuteRollups = metricRollups.getAllValues().get(0);
+        Assert.assertEquals(3, minuteRollups.size());
+        assertMetricRollup(minuteRollups.get(0), "client-id", "temperature", "double", 2, 4.0);
+        assertMetricRollup(minuteRollups.get(1), "client-id", "pressure", "long", 1, 5.0);
+        assertMetricRollup(minuteRollups.get(2), "other-client-id", "temperature", "double", 1, 7.0);
+
+        List<MetricRollupProgress> metricRollupProgresses = captureStoredProgresses(2);
+        assertProgress(metricRollupProgresses.get(0), "1m", NOW - 2 * HOUR, NOW - 2 * MINUTE);
+        assertProgress(metricRollupProgresses.get(1), "1h", NOW - 2 * HOUR, NOW - HOUR);
+    }
+
+    @Test
+    public void rollupResumesFromTheStoredProgress() throws Exception {
+        mockMetricInfos(newMetricInfo("client-id", "temperature", Double.class));
+        Mockito.when(messageRepository.compositeHistogram(Mockito.any(MessageQuery.class), Mockito.any(CompositeHistogramRequest.class))).thenReturn(new CompositeHistogramResult());
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1m")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1m", NOW - DAY, NOW - 10 * MINUTE));
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1h")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1h", NOW - DAY, NOW - HOUR));
+
+        metricRollupManager.rollup(NOW);
+
+        // The hourly rollups are already up to date
+        ArgumentCaptor<MessageQuery> queries = ArgumentCaptor.forClass(MessageQuery.class);
+        Mockito.verify(messageRepository, Mockito.times(1)).compositeHistogram(queries.capture(), Mockito.any(CompositeHistogramRequest.class));
+        Assert.assertEquals(SCOPE_ID, queries.getValue().getScopeId());
+        RangePredicate rangePredicate = (RangePredicate) queries.getValue().getPredicate();
+        Assert.assertEquals(new Date(NOW - 10 * MINUTE), rangePredicate.getMinValue());
+        Assert.assertEquals(new Date(NOW - 2 * MINUTE - 1), rangePredicate.getMaxValue());
+
+        List<MetricRollupProgress> metricRollupProgresses = captureStoredProgresses(2);
+        assertProgress(metricRollupProgresses.get(0), "1m", NOW - DAY, NOW - 2 * MINUTE);
+        assertProgress(metricRollupProgresses.get(1), "1h", NOW - DAY, NOW - HOUR);
+    }
+
+    @Test
+    public void rollupAppliesTheRetentionToTheProgress() throws Exception {
+        mockMetricInfos();
+        Mockito.when(messageStoreConfiguration.getRollupTimeToLiveMilliseconds()).thenReturn(DAY);
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1m")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1m", NOW - 10 * DAY, NOW - 2 * MINUTE));
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1h")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1h", NOW - 10 * DAY, NOW - 2 * DAY));
+
+        metricRollupManager.rollup(NOW);
+
+        Mockito.verify(metricRollupRepository).deleteIndexesBefore(SCOPE_ID, "1m", NOW - DAY);
+        Mockito.verify(metricRollupRepository).deleteIndexesBefore(SCOPE_ID, "1h", NOW - DAY);
+
+        // The hourly rollups are not retained anymore and restart from the retention
+        List<MetricRollupProgress> metricRollupProgresses = captureStoredProgresses(2);
+        assertProgress(metricRollupProgresses.get(0), "1m", NOW - DAY, NOW - 2 * MINUTE);
+        assertProgress(metricRollupProgresses.get(1), "1h", NOW - DAY, NOW - HOUR);
+        Mockito.verify(messageRepository, Mockito.never()).compositeHistogram(Mockito.any(MessageQuery.class), Mockito.any(CompositeHistogramRequest.class));
+    }
+
+    @Test
+    public void routingRequiresTheWholeRangeRolledUp() throws Exception {
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1h")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1h", NOW - 10 * DAY, NOW - 2 * DAY));
+
+        Assert.assertEquals("1h", routingResolution(NOW - 5 * DAY, NOW - 4 * DAY - 1, "1h"));
+        Assert.assertEquals("1h", routingResolution(NOW - 10 * DAY, NOW - 2 * DAY - 1, "1d"));
+
+        // Ends after the rolled up range
+        Assert.assertNull(routingResolution(NOW - 5 * DAY, NOW - 2 * DAY, "1h"));
+        Assert.assertNull(routingResolution(NOW - 5 * DAY, NOW - 1, "1h"));
+        // Starts before the rolled up range
+        Assert.assertNull(routingResolution(NOW - 11 * DAY, NOW - 4 * DAY - 1, "1h"));
+        // Not aligned to the resolution
+        Assert.assertNull(routingResolution(NOW - 5 * DAY + MINUTE, NOW - 4 * DAY - 1, "1h"));
+        Assert.assertNull(routingResolution(NOW - 5 * DAY, NOW - 4 * DAY, "1h"));
+        // Interval finer than the resolution
+        Assert.assertNull(routingResolution(NOW - 5 * DAY, NOW - 4 * DAY - 1, "30m"));
+        // Too recent
+        Assert.assertNull(routingResolution(NOW - HOUR, NOW - 1, "1h"));
+    }
+
+    @Test
+    public void routingRequiresBothEnds() throws Exception {
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1h")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1h", NOW - 10 * DAY, NOW - 2 * DAY));
+
+        Assert.assertNull(routingResolution(null, NOW - 4 * DAY - 1, "1h"));
+        Assert.assertNull(routingResolution(NOW - 5 * DAY, null, "1h"));
+    }
+
+    @Test
+    public void routingFallsBackToAFinerResolution() throws Exception {
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1m")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1m", NOW - 10 * DAY, NOW - 2 * MINUTE));
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1h")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1h", NOW - 10 * DAY, NOW - 2 * DAY));
+
+        Assert.assertEquals("1m", routingResolution(NOW - 5 * DAY, NOW - DAY - 1, "1h"));
+        Assert.assertEquals("1m", routingResolution(NOW - 5 * DAY + MINUTE, NOW - 4 * DAY - 1, "1h"));
+    }
+
+    @Test
+    public void routingHonorsTheRetention() throws Exception {
+        Mockito.when(messageStoreConfiguration.getRollupTimeToLiveMilliseconds()).thenReturn(3 * DAY);
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1h")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1h", NOW - 10 * DAY, NOW - 2 * DAY));
+
+        Assert.assertNull(routingResolution(NOW - 5 * DAY, NOW - 2 * DAY - 1, "1h"));
+        Assert.assertEquals("1h", routingResolution(NOW - 3 * DAY, NOW - 2 * DAY - 1, "1h"));
+    }
+
+    @Test
+    public void routingCachesTheProgress() throws Exception {
+        Mockito.when(metricRollupRepository.findProgress(SCOPE_ID, "1h")).thenReturn(new MetricRollupProgress(SCOPE_ID, "1h", NOW - 10 * DAY, NOW - 2 * DAY));
+
+        routingResolution(NOW - 5 * DAY, NOW - 4 * DAY - 1, "1h");
+        routingResolution(NOW - 5 * DAY, NOW - 4 * DAY - 1, "1h");
+
+        Mockito.verify(metricRollupRepository, Mockito.times(1)).findProgress(SCOPE_ID, "1h");
+    }
+
+    private String routingResolution(Long start, Long end, String interval) throws Exception {
+        MessageQuery query = new MessageQueryImpl(SCOPE_ID);
+        query.setPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, start != null ? new Date(start) : null, end != null ? new Date(end) : null));
+        return metricRollupManager.getRoutingResolution(query, interval, messageStoreConfiguration, NOW);
+    }
+
+    private void mockMetricInfos(MetricInfo... metricInfos) throws Exception {
+        MetricInfoListResult metricInfoListResult = new MetricInfoListResultImpl();
+        metricInfoListResult.addItems(Arrays.asList(metricInfos));
+        Mockito.when(metricInfoRepository.query(Mockito.any(MetricInfoQuery.class))).thenReturn(metricInfoListResult);
+    }
+
+    private MetricInfo newMetricInfo(String clientId, String name, Class<?> metricType) {
+        MetricInfoImpl metricInfo = new MetricInfoImpl(SCOPE_ID);
+        metricInfo.setClientId(clientId);
+        metricInfo.setChannel("channel");
+        metricInfo.setName(name);
+        metricInfo.setMetricType(metricType);
+        return metricInfo;
+    }
+
+    private CompositeHistogramBucket newCompositeHistogramBucket(String clientId, long timestamp, DateHistogramBucket... stats) {
+        Map<String, String> terms = new HashMap<>();
+        terms.put(MessageField.CLIENT_ID.field(), clientId);
+        terms.put(MessageField.CHANNEL.field(), "channel");
+        return new CompositeHistogramBucket(terms, Arrays.asList(stats));
+    }
+
+    private void assertMetricRollup(MetricRollup metricRollup, String clientId, String name, String type, long count, double sum) {
+        Assert.assertEquals(SCOPE_ID, metricRollup.getScopeId());
+        Assert.assertEquals(clientId, metricRollup.getClientId());
+        Assert.assertEquals("channel", metricRollup.getChannel());
+        Assert.assertEquals(name, metricRollup.getName());
+        Assert.assertEquals(type, metricRollup.getType());
+        Assert.assertEquals("1m", metricRollup.getResolution());
+        Assert.assertEquals(new Date(NOW - HOUR), metricRollup.getTimestamp());
+        Assert.assertEquals(count, metricRollup.getCount());
+        Assert.assertEquals(Double.valueOf(sum), metricRollup.getSum());
+    }
+
+    private List<MetricRollupProgress> captureStoredProgresses(int count) throws Exception {
+        ArgumentCaptor<MetricRollupProgress> metricRollupProgresses = ArgumentCaptor.forClass(MetricRollupProgress.class);
+        Mockito.verify(metricRollupRepository, Mockito.times(count)).storeProgress(metricRollupProgresses.capture());
+        return new ArrayList<>(metricRollupProgresses.getAllValues());
+    }
+
+    private void assertProgress(MetricRollupProgress metricRollupProgress, String resolution, long from, long until) {
+        Assert.assertEquals(SCOPE_ID, metricRollupProgress.getScopeId());
+        Assert.assertEquals(resolution, metricRollupProgress.getResolution());
+        Assert.assertEquals(new Date(from), new Date(metricRollupProgress.getFrom()));
+        Assert.assertEquals(new Date(until), new Date(metricRollupProgress.getUntil()));
+    }
+}
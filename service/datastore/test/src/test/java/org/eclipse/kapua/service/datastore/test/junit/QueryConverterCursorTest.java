@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.test.junit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.datastore.internal.converter.QueryConverterImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MetricInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.MetricInfoSchema;
+import org.eclipse.kapua.service.elasticsearch.client.SchemaKeys;
+import org.eclipse.kapua.service.storable.model.query.StorableCursor;
+import org.eclipse.kapua.service.storable.model.query.StorablePagingStyle;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+@Category(JUnitTests.class)
+public class QueryConverterCursorTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    public void offsetPagingIsUnchanged() throws Exception {
+        MessageQueryImpl query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setOffset(20);
+        query.setLimit(10);
+
+        JsonNode converted = new QueryConverterImpl().convertQuery(query);
+
+        Assert.assertEquals(20, converted.get(SchemaKeys.KEY_FROM).asInt());
+        Assert.assertEquals(1, converted.get(SchemaKeys.KEY_SORT).size());
+        Assert.assertFalse(converted.has(SchemaKeys.KEY_SEARCH_AFTER));
+    }
+
+    @Test
+    public void firstCursorPageAddsTieBreaker() throws Exception {
+        MessageQueryImpl query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setOffset(20);
+        query.setLimit(10);
+        query.setPagingStyle(StorablePagingStyle.SEARCH_AFTER);
+
+        JsonNode converted = new QueryConverterImpl().convertQuery(query);
+
+        Assert.assertFalse(converted.has(SchemaKeys.KEY_FROM));
+        Assert.assertFalse(converted.has(SchemaKeys.KEY_SEARCH_AFTER));
+        Assert.assertEquals(2, converted.get(SchemaKeys.KEY_SORT).size());
+        Assert.assertTrue(converted.get(SchemaKeys.KEY_SORT).get(1).has(MessageSchema.MESSAGE_ID));
+    }
+
+    @Test
+    public void registryCursorPageSortsOnTheRegistryKey() throws Exception {
+        MetricInfoQueryImpl query = new MetricInfoQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setLimit(10);
+        query.setPagingStyle(StorablePagingStyle.SEARCH_AFTER);
+
+        JsonNode sort = new QueryConverterImpl().convertQuery(query).get(SchemaKeys.KEY_SORT);
+
+        // The metric name is already sorted, the document _id is never used
+        Assert.assertEquals(4, sort.size());
+        Assert.assertTrue(sort.get(0).has(MetricInfoSchema.METRIC_MTR_NAME_FULL));
+        Assert.assertTrue(sort.get(1).has(MetricInfoSchema.METRIC_CLIENT_ID));
+        Assert.assertTrue(sort.get(2).has(MetricInfoSchema.METRIC_CHANNEL));
+        Assert.assertTrue(sort.get(3).has(MetricInfoSchema.METRIC_MTR_TYPE_FULL));
+    }
+
+    @Test
+    public void nextCursorPageResumesAfterLastResult() throws Exception {
+        String cursor = new StorableCursor(Arrays.asList(1700000000000L, "message-id")).encode();
+
+        MessageQueryImpl query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setLimit(10);
+        query.setCursor(cursor);
+
+        JsonNode converted = OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsString(new QueryConverterImpl().convertQuery(query)));
+
+        JsonNode searchAfter = converted.get(SchemaKeys.KEY_SEARCH_AFTER);
+        Assert.assertTrue(searchAfter.get(0).isNumber());
+        Assert.assertEquals(1700000000000L, searchAfter.get(0).asLong());
+        Assert.assertEquals("message-id", searchAfter.get(1).asText());
+    }
+
+    @Test
+    public void cursorOnlyCarriesSortValues() throws Exception {
+        // A cursor crafted by the client must not select anything but the resume position
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"pit\":\"other-scope-pit\",\"after\":[1,\"a\"]}".getBytes(StandardCharsets.UTF_8));
+
+        MessageQueryImpl query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setLimit(10);
+        query.setCursor(cursor);
+
+        JsonNode converted = OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsString(new QueryConverterImpl().convertQuery(query)));
+
+        Assert.assertFalse(converted.has("pit"));
+        Assert.assertEquals(2, converted.get(SchemaKeys.KEY_SEARCH_AFTER).size());
+        Assert.assertEquals(Arrays.<Object>asList(1, "a"), StorableCursor.decode(cursor).getSearchAfter());
+    }
+
+    @Test
+    public void cursorIsDecodedOnce() throws Exception {
+        MessageQueryImpl query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setCursor(new StorableCursor(Arrays.asList(1700000000000L, "message-id")).encode());
+
+        StorableCursor decodedCursor = query.getDecodedCursor();
+        new QueryConverterImpl().convertQuery(query);
+
+        Assert.assertSame(decodedCursor, query.getDecodedCursor());
+
+        // A new cursor is decoded again
+        query.setCursor(new StorableCursor(Arrays.asList(1700000000001L, "other-message-id")).encode());
+        Assert.assertEquals(Arrays.<Object>asList(1700000000001L, "other-message-id"), query.getDecodedCursor().getSearchAfter());
+        query.setCursor(null);
+        Assert.assertNull(query.getDecodedCursor());
+    }
+
+    @Test(expected = KapuaIllegalArgumentException.class)
+    public void invalidQueryCursorIsRejected() throws Exception {
+        MessageQueryImpl query = new MessageQueryImpl(new KapuaEid(BigInteger.ONE));
+        query.setCursor("not a cursor");
+
+        query.getDecodedCursor();
+    }
+
+    @Test(expected = KapuaIllegalArgumentException.class)
+    public void invalidCursorIsRejected() throws Exception {
+        StorableCursor.decode("not a cursor");
+    }
+}
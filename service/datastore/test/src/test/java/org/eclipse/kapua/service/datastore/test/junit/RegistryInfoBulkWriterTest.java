@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.test.junit;
+
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.datastore.internal.ChannelInfoRepository;
+import org.eclipse.kapua.service.datastore.internal.ClientInfoRepository;
+import org.eclipse.kapua.service.datastore.internal.DatastoreCacheManager;
+import org.eclipse.kapua.service.datastore.internal.MetricInfoRepository;
+import org.eclipse.kapua.service.datastore.internal.RegistryInfoBulkWriter;
+import org.eclipse.kapua.service.datastore.internal.model.ClientInfoImpl;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingsKey;
+import org.eclipse.kapua.service.datastore.model.ClientInfo;
+import org.eclipse.kapua.service.storable.model.id.StorableId;
+import org.eclipse.kapua.service.storable.model.id.StorableIdImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Category(JUnitTests.class)
+public class RegistryInfoBulkWriterTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(10));
+
+    private ClientInfoRepository clientInfoRepository;
+    private LocalCache<String, Boolean> clientsCache;
+    private DatastoreCacheManager datastoreCacheManager;
+    private RegistryInfoBulkWriter registryInfoBulkWriter;
+
+    @Before
+    public void setUp() {
+        clientInfoRepository = Mockito.mock(ClientInfoRepository.class);
+        clientsCache = new LocalCache<>(100, false);
+        datastoreCacheManager = Mockito.mock(DatastoreCacheManager.class);
+        Mockito.when(datastoreCacheManager.getClientsCache()).thenReturn(clientsCache);
+        Mockito.when(datastoreCacheManager.getChannelsCache()).thenReturn(new LocalCache<>(100, false));
+        Mockito.when(datastoreCacheManager.getMetricsCache()).thenReturn(new LocalCache<>(100, false));
+
+        registryInfoBulkWriter = newRegistryInfoBulkWriter(10000);
+    }
+
+    @Test
+    public void flushLooksUpStoredEntriesOnce() throws Exception {
+        ClientInfo stored = newClientInfo("stored");
+        ClientInfo missing = newClientInfo("missing");
+        Mockito.when(clientInfoRepository.find(Mockito.eq(SCOPE_ID), Mockito.<List<StorableId>>any())).thenReturn(Collections.singletonList(stored));
+        Mockito.when(clientInfoRepository.upsert(Mockito.<List<ClientInfo>>any())).thenReturn(new HashSet<>(Collections.singletonList("missing")));
+
+        registryInfoBulkWriter.add(stored);
+        registryInfoBulkWriter.add(missing);
+        registryInfoBulkWriter.flush();
+
+        Mockito.verify(clientInfoRepository, Mockito.times(1)).find(Mockito.eq(SCOPE_ID), Mockito.<List<StorableId>>any());
+        Mockito.verify(clientInfoRepository, Mockito.never()).find(Mockito.any(KapuaId.class), Mockito.any(StorableId.class));
+        ArgumentCaptor<List> upserted = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(clientInfoRepository).upsert(upserted.capture());
+        Assert.assertEquals(Collections.singletonList(missing), upserted.getValue());
+        Assert.assertTrue(clientsCache.get("stored"));
+        Assert.assertTrue(clientsCache.get("missing"));
+    }
+
+    @Test
+    public void failedFlushBuffersEntriesAgain() throws Exception {
+        ClientInfo clientInfo = newClientInfo("client");
+        Mockito.when(clientInfoRepository.find(Mockito.eq(SCOPE_ID), Mockito.<List<StorableId>>any())).thenReturn(Collections.emptyList());
+        Mockito.when(clientInfoRepository.upsert(Mockito.<List<ClientInfo>>any()))
+                .thenThrow(new RuntimeException("Elasticsearch unavailable"))
+                .thenReturn(new HashSet<>(Collections.singletonList("client")));
+
+        registryInfoBulkWriter.add(clientInfo);
+        try {
+            registryInfoBulkWriter.flush();
+            Assert.fail("The flush failure should be surfaced");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("Elasticsearch unavailable", e.getMessage());
+        }
+        Assert.assertFalse(clientsCache.get("client"));
+
+        registryInfoBulkWriter.flush();
+
+        ArgumentCaptor<List> upserted = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(clientInfoRepository, Mockito.times(2)).upsert(upserted.capture());
+        Assert.assertEquals(Arrays.asList(Collections.singletonList(clientInfo), Collections.singletonList(clientInfo)), upserted.getAllValues());
+        Assert.assertTrue(clientsCache.get("client"));
+    }
+
+    @Test
+    public void onlyOneFlushIsScheduledWhileOverTheMaxPending() throws Exception {
+        RegistryInfoBulkWriter registryInfoBulkWriter = newRegistryInfoBulkWriter(1);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(clientInfoRepository.find(Mockito.eq(SCOPE_ID), Mockito.<List<StorableId>>any())).thenReturn(Collections.emptyList());
+        Mockito.when(clientInfoRepository.upsert(Mockito.<List<ClientInfo>>any()))
+                .then(invocation -> {
+                    flushing.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                    return new HashSet<>();
+                })
+                .thenReturn(new HashSet<>());
+
+        registryInfoBulkWriter.add(newClientInfo("client-0"));
+        Assert.assertTrue(flushing.await(10, TimeUnit.SECONDS));
+        // Over the max pending while the scheduled flush is running
+        for (int i = 1; i < 100; i++) {
+            registryInfoBulkWriter.add(newClientInfo("client-" + i));
+        }
+        release.countDown();
+        Thread.sleep(500);
+
+        // No flush queued by the adds made while the scheduled one was running
+        Mockito.verify(clientInfoRepository, Mockito.times(1)).upsert(Mockito.<List<ClientInfo>>any());
+        registryInfoBulkWriter.flush();
+        ArgumentCaptor<List> upserted = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(clientInfoRepository, Mockito.times(2)).upsert(upserted.capture());
+        Assert.assertEquals(99, upserted.getValue().size());
+    }
+
+    @Test(expected = KapuaIllegalArgumentException.class)
+    public void addValidatesTheEntry() throws Exception {
+        ClientInfo clientInfo = newClientInfo("client");
+        clientInfo.setFirstMessageOn(null);
+
+        registryInfoBulkWriter.add(clientInfo);
+    }
+
+    private RegistryInfoBulkWriter newRegistryInfoBulkWriter(int maxPending) {
+        DatastoreSettings datastoreSettings = Mockito.mock(DatastoreSettings.class);
+        Mockito.when(datastoreSettings.getLong(DatastoreSettingsKey.REGISTRY_FLUSH_INTERVAL, 1000L)).thenReturn(60000L);
+        Mockito.when(datastoreSettings.getInt(DatastoreSettingsKey.REGISTRY_MAX_PENDING, 10000)).thenReturn(maxPending);
+
+        return new RegistryInfoBulkWriter(
+                clientInfoRepository,
+                Mockito.mock(ChannelInfoRepository.class),
+                Mockito.mock(MetricInfoRepository.class),
+                datastoreCacheManager,
+                datastoreSettings);
+    }
+
+    private ClientInfo newClientInfo(String id) {
+        ClientInfoImpl clientInfo = new ClientInfoImpl(SCOPE_ID);
+        clientInfo.setId(new StorableIdImpl(id));
+        clientInfo.setClientId(id);
+        clientInfo.setFirstMessageId(new StorableIdImpl("message-" + id));
+        clientInfo.setFirstMessageOn(new Date());
+        return clientInfo;
+    }
+}
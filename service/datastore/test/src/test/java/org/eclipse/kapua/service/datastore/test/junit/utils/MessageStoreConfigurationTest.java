@@ -45,4 +45,22 @@ public class MessageStoreConfigurationTest {
 
         Assert.assertEquals(Date.from(ZonedDateTime.of(2017, 6, 30, 16, 30, 0, 999000000, ZoneOffset.UTC).toInstant()), cfg.getExpirationDate());
     }
+
+    @Test
+    public void testRollup() {
+        Map<String, Object> values = new HashMap<>();
+
+        MessageStoreConfiguration defaultCfg = new MessageStoreConfiguration(values);
+        Assert.assertFalse(defaultCfg.getRollupEnabled());
+        Assert.assertEquals(Duration.ofDays(365).toMillis(), defaultCfg.getRollupTimeToLiveMilliseconds());
+
+        values.put(MessageStoreConfiguration.CONFIGURATION_ROLLUP_ENABLED_KEY, true);
+        values.put(MessageStoreConfiguration.CONFIGURATION_ROLLUP_TTL_KEY, 730);
+
+        MessageStoreConfiguration cfg = new MessageStoreConfiguration(values);
+
+        Assert.assertTrue(cfg.getRollupEnabled());
+        Assert.assertEquals(730, cfg.getRollupTimeToLive());
+        Assert.assertEquals(Duration.ofDays(730).toMillis(), cfg.getRollupTimeToLiveMilliseconds());
+    }
 }
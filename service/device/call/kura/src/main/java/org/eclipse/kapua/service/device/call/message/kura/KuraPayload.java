@@ -12,11 +12,13 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.call.message.kura;
 
-import com.google.common.primitives.Booleans;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import org.eclipse.kapua.message.internal.MessageErrorCodes;
 import org.eclipse.kapua.message.internal.MessageException;
+import org.eclipse.kapua.message.internal.MetricMap;
 import org.eclipse.kapua.service.device.call.message.DevicePayload;
 import org.eclipse.kapua.service.device.call.message.DevicePosition;
 import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto;
@@ -38,6 +40,37 @@ public class KuraPayload implements DevicePayload {
 
     private static final Logger LOG = LoggerFactory.getLogger(KuraPayload.class);
 
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static final int POSITION_LATITUDE = 1;
+    private static final int POSITION_LONGITUDE = 2;
+
+    private static final int TAG_TYPE_BITS = 3;
+
+    // Protobuf tags (field number and wire type) matched by the generated parser, a field with another wire type is skipped as unknown
+    private static final int TAG_TIMESTAMP = KuraPayloadProto.KuraPayload.TIMESTAMP_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int TAG_POSITION = KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TAG_METRIC = KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TAG_BODY = KuraPayloadProto.KuraPayload.BODY_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TAG_METRIC_NAME = KuraPayloadProto.KuraPayload.KuraMetric.NAME_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TAG_METRIC_TYPE = KuraPayloadProto.KuraPayload.KuraMetric.TYPE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int TAG_METRIC_DOUBLE_VALUE = KuraPayloadProto.KuraPayload.KuraMetric.DOUBLE_VALUE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED64;
+    private static final int TAG_METRIC_FLOAT_VALUE = KuraPayloadProto.KuraPayload.KuraMetric.FLOAT_VALUE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED32;
+    private static final int TAG_METRIC_LONG_VALUE = KuraPayloadProto.KuraPayload.KuraMetric.LONG_VALUE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int TAG_METRIC_INT_VALUE = KuraPayloadProto.KuraPayload.KuraMetric.INT_VALUE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int TAG_METRIC_BOOL_VALUE = KuraPayloadProto.KuraPayload.KuraMetric.BOOL_VALUE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int TAG_METRIC_STRING_VALUE = KuraPayloadProto.KuraPayload.KuraMetric.STRING_VALUE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TAG_METRIC_BYTES_VALUE = KuraPayloadProto.KuraPayload.KuraMetric.BYTES_VALUE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int TAG_POSITION_LATITUDE = KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED64;
+    private static final int TAG_POSITION_LONGITUDE = KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED64;
+    private static final int TAG_POSITION_ALTITUDE = KuraPayloadProto.KuraPayload.KuraPosition.ALTITUDE_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED64;
+    private static final int TAG_POSITION_PRECISION = KuraPayloadProto.KuraPayload.KuraPosition.PRECISION_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED64;
+    private static final int TAG_POSITION_HEADING = KuraPayloadProto.KuraPayload.KuraPosition.HEADING_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED64;
+    private static final int TAG_POSITION_SPEED = KuraPayloadProto.KuraPayload.KuraPosition.SPEED_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED64;
+    private static final int TAG_POSITION_TIMESTAMP = KuraPayloadProto.KuraPayload.KuraPosition.TIMESTAMP_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int TAG_POSITION_SATELLITES = KuraPayloadProto.KuraPayload.KuraPosition.SATELLITES_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int TAG_POSITION_STATUS = KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+
     /**
      * The timestamp.
      *
@@ -174,59 +207,203 @@ public class KuraPayload implements DevicePayload {
                 throw new MessageException(MessageErrorCodes.INVALID_MESSAGE, ioe, (Object[]) null);
             }
         }
-        // Convert protobuf
-        KuraPayloadProto.KuraPayload protoMsg = null;
+        // Convert protobuf, reading the stream directly to avoid building the intermediate protobuf objects
         try {
-            protoMsg = KuraPayloadProto.KuraPayload.parseFrom(bytes);
-        } catch (InvalidProtocolBufferException ipbe) {
-            throw new MessageException(MessageErrorCodes.INVALID_MESSAGE, ipbe, (Object[]) null);
+            readFrom(CodedInputStream.newInstance(bytes));
+        } catch (IOException ioe) {
+            throw new MessageException(MessageErrorCodes.INVALID_MESSAGE, ioe, (Object[]) null);
         }
-        // Add timestamp
-        if (protoMsg.hasTimestamp()) {
-            timestamp = (new Date(protoMsg.getTimestamp()));
+    }
+
+    private void readFrom(CodedInputStream input) throws IOException {
+        MetricMap metricMap = null;
+        DevicePosition parsedPosition = null;
+        int positionFields = 0;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case TAG_TIMESTAMP:
+                    timestamp = new Date(input.readInt64());
+                    break;
+                case TAG_POSITION:
+                    // Repeated occurrences are merged, as the generated parser does
+                    if (parsedPosition == null) {
+                        parsedPosition = new KuraPosition();
+                    }
+                    int positionLimit = input.pushLimit(input.readRawVarint32());
+                    positionFields |= readPosition(input, parsedPosition);
+                    input.popLimit(positionLimit);
+                    position = parsedPosition;
+                    break;
+                case TAG_METRIC:
+                    if (metricMap == null) {
+                        metricMap = metrics instanceof MetricMap ? (MetricMap) metrics : new MetricMap();
+                        if (metrics != null && metricMap != metrics) {
+                            metricMap.putAll(metrics);
+                        }
+                        metrics = metricMap;
+                    }
+                    int metricLimit = input.pushLimit(input.readRawVarint32());
+                    readMetric(input, metricMap);
+                    input.popLimit(metricLimit);
+                    break;
+                case TAG_BODY:
+                    setBody(input.readByteArray());
+                    break;
+                default:
+                    skipField(input, tag);
+                    break;
+            }
         }
-        // Add position
-        if (protoMsg.hasPosition()) {
-            position = (buildFromProtoBuf(protoMsg.getPosition()));
+        // Same checks of the generated protobuf parser (latitude and longitude are required fields)
+        if (parsedPosition != null && positionFields != (POSITION_LATITUDE | POSITION_LONGITUDE)) {
+            throw new InvalidProtocolBufferException("Message missing required fields: position.latitude, position.longitude");
         }
-        // Add metrics
-        protoMsg.getMetricList().forEach(kuraMetric -> {
-            try {
-                Object value = getProtoKuraMetricValue(kuraMetric, kuraMetric.getType());
-                addMetric(kuraMetric.getName(), value);
-            } catch (MessageException me) {
-                LOG.warn("During deserialization, ignoring metric named: {}. Unrecognized value type: {}", kuraMetric.getName(), kuraMetric.getType(), me);
+    }
+
+    /**
+     * Reads a metric keeping each value field apart, so that only the field matching the declared type is used
+     * (with its default value if missing) as the generated protobuf parser does.
+     */
+    private void readMetric(CodedInputStream input, MetricMap metricMap) throws IOException {
+        String name = null;
+        int type = -1;
+        double doubleValue = 0;
+        float floatValue = 0;
+        long longValue = 0;
+        int intValue = 0;
+        boolean boolValue = false;
+        String stringValue = "";
+        byte[] bytesValue = EMPTY_BYTES;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case TAG_METRIC_NAME:
+                    name = input.readString();
+                    break;
+                case TAG_METRIC_TYPE:
+                    int rawType = input.readEnum();
+                    // Unknown enum values are dropped by the generated protobuf parser
+                    if (KuraPayloadProto.KuraPayload.KuraMetric.ValueType.forNumber(rawType) != null) {
+                        type = rawType;
+                    }
+                    break;
+                case TAG_METRIC_DOUBLE_VALUE:
+                    doubleValue = input.readDouble();
+                    break;
+                case TAG_METRIC_FLOAT_VALUE:
+                    floatValue = input.readFloat();
+                    break;
+                case TAG_METRIC_LONG_VALUE:
+                    longValue = input.readInt64();
+                    break;
+                case TAG_METRIC_INT_VALUE:
+                    intValue = input.readInt32();
+                    break;
+                case TAG_METRIC_BOOL_VALUE:
+                    boolValue = input.readBool();
+                    break;
+                case TAG_METRIC_STRING_VALUE:
+                    stringValue = input.readString();
+                    break;
+                case TAG_METRIC_BYTES_VALUE:
+                    bytesValue = input.readByteArray();
+                    break;
+                default:
+                    skipField(input, tag);
+                    break;
             }
-        });
-        // Set the body
-        if (protoMsg.hasBody()) {
-            setBody(protoMsg.getBody().toByteArray());
         }
-    }
+        // Same checks of the generated protobuf parser (name and type are required fields)
+        if (name == null || type < 0) {
+            throw new InvalidProtocolBufferException("Message missing required fields: name, type");
+        }
 
-    // Private methods
-    private Object getProtoKuraMetricValue(KuraPayloadProto.KuraPayload.KuraMetric metric, KuraPayloadProto.KuraPayload.KuraMetric.ValueType type) throws MessageException {
         switch (type) {
-            case DOUBLE:
-                return metric.getDoubleValue();
-            case FLOAT:
-                return metric.getFloatValue();
-            case INT64:
-                return metric.getLongValue();
-            case INT32:
-                return metric.getIntValue();
-            case BOOL:
-                return metric.getBoolValue();
-            case STRING:
-                return metric.getStringValue();
-            case BYTES:
-                ByteString bs = metric.getBytesValue();
-                return bs.toByteArray();
+            case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.DOUBLE_VALUE:
+                metricMap.putDouble(name, doubleValue);
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.FLOAT_VALUE:
+                metricMap.putFloat(name, floatValue);
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT64_VALUE:
+                metricMap.putLong(name, longValue);
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT32_VALUE:
+                metricMap.putInt(name, intValue);
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BOOL_VALUE:
+                metricMap.putBoolean(name, boolValue);
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.STRING_VALUE:
+                metricMap.put(name, stringValue);
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BYTES_VALUE:
+                metricMap.put(name, bytesValue);
+                break;
             default:
-                throw new MessageException(MessageErrorCodes.INVALID_METRIC_TYPE, null, type);
+                throw new InvalidProtocolBufferException("Unsupported metric type: " + type);
+        }
+    }
+
+    /**
+     * Reads a position into the given {@link DevicePosition}.
+     *
+     * @return The required fields read, as {@link #POSITION_LATITUDE} and {@link #POSITION_LONGITUDE} flags.
+     */
+    private int readPosition(CodedInputStream input, DevicePosition devicePosition) throws IOException {
+        int requiredFields = 0;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case TAG_POSITION_LATITUDE:
+                    devicePosition.setLatitude(input.readDouble());
+                    requiredFields |= POSITION_LATITUDE;
+                    break;
+                case TAG_POSITION_LONGITUDE:
+                    devicePosition.setLongitude(input.readDouble());
+                    requiredFields |= POSITION_LONGITUDE;
+                    break;
+                case TAG_POSITION_ALTITUDE:
+                    devicePosition.setAltitude(input.readDouble());
+                    break;
+                case TAG_POSITION_PRECISION:
+                    devicePosition.setPrecision(input.readDouble());
+                    break;
+                case TAG_POSITION_HEADING:
+                    devicePosition.setHeading(input.readDouble());
+                    break;
+                case TAG_POSITION_SPEED:
+                    devicePosition.setSpeed(input.readDouble());
+                    break;
+                case TAG_POSITION_TIMESTAMP:
+                    devicePosition.setTimestamp(new Date(input.readInt64()));
+                    break;
+                case TAG_POSITION_SATELLITES:
+                    devicePosition.setSatellites(input.readInt32());
+                    break;
+                case TAG_POSITION_STATUS:
+                    devicePosition.setStatus(input.readInt32());
+                    break;
+                default:
+                    skipField(input, tag);
+                    break;
+            }
+        }
+        return requiredFields;
+    }
+
+    /**
+     * Skips an unknown field, or a known field with an unexpected wire type, as the generated protobuf parser does.
+     */
+    private static void skipField(CodedInputStream input, int tag) throws IOException {
+        if (!input.skipField(tag)) {
+            // End group tag, rejected by the generated protobuf parser as well
+            throw new InvalidProtocolBufferException("Protocol message end-group tag did not match expected tag.");
         }
     }
 
+    // Private methods
     private static void setProtoKuraMetricValue(KuraPayloadProto.KuraPayload.KuraMetric.Builder metric, Object o) throws MessageException {
 
         if (o instanceof String) {
@@ -292,55 +469,4 @@ public class KuraPayload implements DevicePayload {
         return protoPos.build();
     }
 
-    private DevicePosition buildFromProtoBuf(KuraPayloadProto.KuraPayload.KuraPosition protoPosition) {
-        DevicePosition devicePosition = getPosition();
-
-        // For performance reason check the position before
-        if (devicePosition == null &&
-                Booleans.countTrue(
-                        protoPosition.hasLatitude(),
-                        protoPosition.hasLatitude(),
-                        protoPosition.hasLongitude(),
-                        protoPosition.hasAltitude(),
-                        protoPosition.hasPrecision(),
-                        protoPosition.hasHeading(),
-                        protoPosition.hasHeading(),
-                        protoPosition.hasSpeed(),
-                        protoPosition.hasSatellites(),
-                        protoPosition.hasStatus(),
-                        protoPosition.hasTimestamp()) > 0) {
-            devicePosition = new KuraPosition();
-        }
-
-        if (devicePosition != null) {
-            if (protoPosition.hasLatitude()) {
-                devicePosition.setLatitude(protoPosition.getLatitude());
-            }
-            if (protoPosition.hasLongitude()) {
-                devicePosition.setLongitude(protoPosition.getLongitude());
-            }
-            if (protoPosition.hasAltitude()) {
-                devicePosition.setAltitude(protoPosition.getAltitude());
-            }
-            if (protoPosition.hasPrecision()) {
-                devicePosition.setPrecision(protoPosition.getPrecision());
-            }
-            if (protoPosition.hasHeading()) {
-                devicePosition.setHeading(protoPosition.getHeading());
-            }
-            if (protoPosition.hasSpeed()) {
-                devicePosition.setSpeed(protoPosition.getSpeed());
-            }
-            if (protoPosition.hasSatellites()) {
-                devicePosition.setSatellites(protoPosition.getSatellites());
-            }
-            if (protoPosition.hasStatus()) {
-                devicePosition.setStatus(protoPosition.getStatus());
-            }
-            if (protoPosition.hasTimestamp()) {
-                devicePosition.setTimestamp(new Date(protoPosition.getTimestamp()));
-            }
-        }
-        return devicePosition;
-    }
 }
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.call.message.kura;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.eclipse.kapua.message.internal.MessageException;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.device.call.message.DevicePosition;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kapua.service.device.call.message.kura.proto.KuraPayloadProto.KuraPayload.KuraMetric.ValueType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that {@link KuraPayload#readFromByteArray(byte[])} decodes the same values of the generated protobuf parser.
+ */
+@Category(JUnitTests.class)
+public class KuraPayloadTest {
+
+    @Test
+    public void decodeAllTypes() throws Exception {
+        byte[] bytes = KuraPayloadProto.KuraPayload.newBuilder()
+                .setTimestamp(1700000000000L)
+                .setPosition(KuraPayloadProto.KuraPayload.KuraPosition.newBuilder()
+                        .setLatitude(45.5)
+                        .setLongitude(12.25)
+                        .setAltitude(10)
+                        .setSpeed(3.5)
+                        .setTimestamp(1700000000001L)
+                        .setSatellites(7))
+                .addMetric(KuraMetric.newBuilder().setName("double").setType(ValueType.DOUBLE).setDoubleValue(1.5))
+                .addMetric(KuraMetric.newBuilder().setName("float").setType(ValueType.FLOAT).setFloatValue(2.5f))
+                .addMetric(KuraMetric.newBuilder().setName("long").setType(ValueType.INT64).setLongValue(Long.MIN_VALUE))
+                .addMetric(KuraMetric.newBuilder().setName("int").setType(ValueType.INT32).setIntValue(-42))
+                .addMetric(KuraMetric.newBuilder().setName("bool").setType(ValueType.BOOL).setBoolValue(true))
+                .addMetric(KuraMetric.newBuilder().setName("string").setType(ValueType.STRING).setStringValue("value è"))
+                .addMetric(KuraMetric.newBuilder().setName("bytes").setType(ValueType.BYTES).setBytesValue(ByteString.copyFrom(new byte[]{1, 2, 3})))
+                .setBody(ByteString.copyFromUtf8("body"))
+                .build()
+                .toByteArray();
+
+        KuraPayload kuraPayload = assertDecodedAsGeneratedParser(bytes);
+
+        Assert.assertEquals(7, kuraPayload.getMetrics().size());
+        Assert.assertEquals(-42, kuraPayload.getMetrics().get("int"));
+    }
+
+    @Test
+    public void decodeValueFieldNotMatchingType() throws Exception {
+        byte[] bytes = KuraPayloadProto.KuraPayload.newBuilder()
+                .addMetric(KuraMetric.newBuilder().setName("doubleFromInt").setType(ValueType.DOUBLE).setIntValue(5))
+                .addMetric(KuraMetric.newBuilder().setName("floatFromDouble").setType(ValueType.FLOAT).setDoubleValue(1.5))
+                .addMetric(KuraMetric.newBuilder().setName("intFromLong").setType(ValueType.INT32).setLongValue(1L << 40))
+                .addMetric(KuraMetric.newBuilder().setName("longFromDouble").setType(ValueType.INT64).setDoubleValue(2.5))
+                .addMetric(KuraMetric.newBuilder().setName("boolFromInt").setType(ValueType.BOOL).setIntValue(1))
+                .addMetric(KuraMetric.newBuilder().setName("stringMissing").setType(ValueType.STRING).setBytesValue(ByteString.copyFromUtf8("x")))
+                .addMetric(KuraMetric.newBuilder().setName("bytesMissing").setType(ValueType.BYTES).setStringValue("x"))
+                .build()
+                .toByteArray();
+
+        KuraPayload kuraPayload = assertDecodedAsGeneratedParser(bytes);
+
+        // The value fields not matching the type are ignored
+        Assert.assertEquals(0.0, kuraPayload.getMetrics().get("doubleFromInt"));
+        Assert.assertEquals(0.0f, kuraPayload.getMetrics().get("floatFromDouble"));
+        Assert.assertEquals(0, kuraPayload.getMetrics().get("intFromLong"));
+        Assert.assertEquals(0L, kuraPayload.getMetrics().get("longFromDouble"));
+        Assert.assertEquals(false, kuraPayload.getMetrics().get("boolFromInt"));
+        Assert.assertEquals("", kuraPayload.getMetrics().get("stringMissing"));
+        Assert.assertArrayEquals(new byte[0], (byte[]) kuraPayload.getMetrics().get("bytesMissing"));
+    }
+
+    @Test
+    public void decodeValueFieldsRepeated() throws Exception {
+        byte[] metric = encode(output -> {
+            output.writeString(KuraMetric.NAME_FIELD_NUMBER, "repeated");
+            output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, ValueType.INT32_VALUE);
+            output.writeInt32(KuraMetric.INT_VALUE_FIELD_NUMBER, 1);
+            output.writeDouble(KuraMetric.DOUBLE_VALUE_FIELD_NUMBER, 3.5);
+            output.writeInt32(KuraMetric.INT_VALUE_FIELD_NUMBER, 2);
+        });
+
+        KuraPayload kuraPayload = assertDecodedAsGeneratedParser(payloadWithMetrics(metric));
+
+        Assert.assertEquals(2, kuraPayload.getMetrics().get("repeated"));
+    }
+
+    @Test
+    public void decodeValueFieldWithUnexpectedWireType() throws Exception {
+        byte[] metric = encode(output -> {
+            output.writeString(KuraMetric.NAME_FIELD_NUMBER, "wireType");
+            output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, ValueType.DOUBLE_VALUE);
+            // The double value as a varint: skipped as an unknown field
+            output.writeUInt64(KuraMetric.DOUBLE_VALUE_FIELD_NUMBER, Double.doubleToRawLongBits(7.5));
+        });
+
+        KuraPayload kuraPayload = assertDecodedAsGeneratedParser(payloadWithMetrics(metric));
+
+        Assert.assertEquals(0.0, kuraPayload.getMetrics().get("wireType"));
+    }
+
+    @Test
+    public void decodeUnknownFields() throws Exception {
+        byte[] metric = encode(output -> {
+            output.writeString(KuraMetric.NAME_FIELD_NUMBER, "unknown");
+            output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, ValueType.INT64_VALUE);
+            output.writeInt64(KuraMetric.LONG_VALUE_FIELD_NUMBER, 9);
+            output.writeString(100, "ignored");
+        });
+        byte[] bytes = encode(output -> {
+            // Extension range of the payload
+            output.writeInt64(3, 123);
+            output.writeByteArray(KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER, metric);
+            output.writeFixed32(6000, 1);
+        });
+
+        KuraPayload kuraPayload = assertDecodedAsGeneratedParser(bytes);
+
+        Assert.assertEquals(9L, kuraPayload.getMetrics().get("unknown"));
+    }
+
+    @Test
+    public void decodeUnknownType() throws Exception {
+        byte[] unknownType = encode(output -> {
+            output.writeString(KuraMetric.NAME_FIELD_NUMBER, "unknownType");
+            output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, 42);
+        });
+        assertDecodedAsGeneratedParser(payloadWithMetrics(unknownType));
+
+        // An unknown type does not override a known one
+        byte[] knownThenUnknownType = encode(output -> {
+            output.writeString(KuraMetric.NAME_FIELD_NUMBER, "knownType");
+            output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, ValueType.BOOL_VALUE);
+            output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, 42);
+            output.writeBool(KuraMetric.BOOL_VALUE_FIELD_NUMBER, true);
+        });
+        KuraPayload kuraPayload = assertDecodedAsGeneratedParser(payloadWithMetrics(knownThenUnknownType));
+        Assert.assertEquals(true, kuraPayload.getMetrics().get("knownType"));
+    }
+
+    @Test
+    public void decodeMissingRequiredFields() throws Exception {
+        byte[] missingName = encode(output -> output.writeEnum(KuraMetric.TYPE_FIELD_NUMBER, ValueType.INT32_VALUE));
+        assertDecodedAsGeneratedParser(payloadWithMetrics(missingName));
+
+        byte[] missingType = encode(output -> output.writeString(KuraMetric.NAME_FIELD_NUMBER, "missingType"));
+        assertDecodedAsGeneratedParser(payloadWithMetrics(missingType));
+
+        byte[] missingLongitude = encode(output -> {
+            byte[] position = encode(positionOutput -> positionOutput.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER, 1.0));
+            output.writeByteArray(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER, position);
+        });
+        assertDecodedAsGeneratedParser(missingLongitude);
+    }
+
+    @Test
+    public void decodePositionRepeated() throws Exception {
+        byte[] bytes = encode(output -> {
+            output.writeByteArray(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER,
+                    encode(position -> position.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER, 1.0)));
+            output.writeByteArray(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER,
+                    encode(position -> {
+                        position.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER, 2.0);
+                        position.writeInt32(KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER, 4);
+                    }));
+        });
+
+        KuraPayload kuraPayload = assertDecodedAsGeneratedParser(bytes);
+
+        Assert.assertEquals(1.0, kuraPayload.getPosition().getLatitude(), 0);
+        Assert.assertEquals(2.0, kuraPayload.getPosition().getLongitude(), 0);
+    }
+
+    @Test
+    public void decodeTruncated() throws Exception {
+        byte[] bytes = KuraPayloadProto.KuraPayload.newBuilder()
+                .addMetric(KuraMetric.newBuilder().setName("string").setType(ValueType.STRING).setStringValue("value"))
+                .build()
+                .toByteArray();
+
+        assertDecodedAsGeneratedParser(Arrays.copyOf(bytes, bytes.length - 2));
+    }
+
+    /**
+     * Decodes the bytes with both the {@link KuraPayload} and the generated protobuf parser and checks that the outcome is the same.
+     *
+     * @return The decoded {@link KuraPayload}, or {@code null} if both rejected the bytes.
+     */
+    private KuraPayload assertDecodedAsGeneratedParser(byte[] bytes) {
+        KuraPayloadProto.KuraPayload proto;
+        try {
+            proto = KuraPayloadProto.KuraPayload.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            proto = null;
+        }
+
+        KuraPayload kuraPayload = new KuraPayload();
+        try {
+            kuraPayload.readFromByteArray(bytes);
+        } catch (MessageException e) {
+            Assert.assertNull("Rejected by KuraPayload but not by the generated parser: " + e.getMessage(), proto);
+            return null;
+        }
+        Assert.assertNotNull("Rejected by the generated parser but not by KuraPayload", proto);
+
+        Assert.assertEquals(proto.hasTimestamp() ? proto.getTimestamp() : null, kuraPayload.getTimestamp() != null ? kuraPayload.getTimestamp().getTime() : null);
+        Assert.assertArrayEquals(proto.hasBody() ? proto.getBody().toByteArray() : null, kuraPayload.getBody());
+
+        DevicePosition position = kuraPayload.getPosition();
+        Assert.assertEquals(proto.hasPosition(), position != null);
+        if (proto.hasPosition()) {
+            KuraPayloadProto.KuraPayload.KuraPosition protoPosition = proto.getPosition();
+            Assert.assertEquals(protoPosition.getLatitude(), position.getLatitude(), 0);
+            Assert.assertEquals(protoPosition.getLongitude(), position.getLongitude(), 0);
+            Assert.assertEquals(protoPosition.hasAltitude() ? protoPosition.getAltitude() : null, position.getAltitude());
+            Assert.assertEquals(protoPosition.hasPrecision() ? protoPosition.getPrecision() : null, position.getPrecision());
+            Assert.assertEquals(protoPosition.hasHeading() ? protoPosition.getHeading() : null, position.getHeading());
+            Assert.assertEquals(protoPosition.hasSpeed() ? protoPosition.getSpeed() : null, position.getSpeed());
+            Assert.assertEquals(protoPosition.hasTimestamp() ? protoPosition.getTimestamp() : null, position.getTimestamp() != null ? position.getTimestamp().getTime() : null);
+            Assert.assertEquals(protoPosition.hasSatellites() ? protoPosition.getSatellites() : null, position.getSatellites());
+            Assert.assertEquals(protoPosition.hasStatus() ? protoPosition.getStatus() : null, position.getStatus());
+        }
+
+        Map<String, Object> expectedMetrics = new HashMap<>();
+        for (KuraMetric metric : proto.getMetricList()) {
+            expectedMetrics.put(metric.getName(), metricValue(metric));
+        }
+        Map<String, Object> metrics = kuraPayload.getMetrics();
+        Assert.assertEquals(expectedMetrics.keySet(), metrics.keySet());
+        for (Map.Entry<String, Object> expectedMetric : expectedMetrics.entrySet()) {
+            if (expectedMetric.getValue() instanceof byte[]) {
+                Assert.assertArrayEquals((byte[]) expectedMetric.getValue(), (byte[]) metrics.get(expectedMetric.getKey()));
+            } else {
+                Assert.assertEquals(expectedMetric.getKey(), expectedMetric.getValue(), metrics.get(expectedMetric.getKey()));
+            }
+        }
+        return kuraPayload;
+    }
+
+    private Object metricValue(KuraMetric metric) {
+        switch (metric.getType()) {
+            case DOUBLE:
+                return metric.getDoubleValue();
+            case FLOAT:
+                return metric.getFloatValue();
+            case INT64:
+                return metric.getLongValue();
+            case INT32:
+                return metric.getIntValue();
+            case BOOL:
+                return metric.getBoolValue();
+            case STRING:
+                return metric.getStringValue();
+            case BYTES:
+                return metric.getBytesValue().toByteArray();
+            default:
+                throw new IllegalArgumentException("Unexpected metric type " + metric.getType());
+        }
+    }
+
+    private byte[] payloadWithMetrics(byte[]... metrics) throws IOException {
+        return encode(output -> {
+            for (byte[] metric : metrics) {
+                output.writeByteArray(KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER, metric);
+            }
+        });
+    }
+
+    private byte[] encode(Encoder encoder) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        encoder.encode(output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+
+        void encode(CodedOutputStream output) throws IOException;
+    }
+}
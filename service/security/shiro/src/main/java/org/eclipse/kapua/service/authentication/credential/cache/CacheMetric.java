@@ -34,6 +34,7 @@ public class CacheMetric {
     private Counter cacheHit;
     private Counter cachePutError;
     private Counter passwordEncryptionError;
+    private Counter checkShared;
 
     @Inject
     public CacheMetric(MetricsService metricsService,
@@ -43,6 +44,7 @@ public class CacheMetric {
         cacheHit = metricsService.getCounter(metricModuleName, AUTH_CACHE, "hit");
         cachePutError = metricsService.getCounter(metricModuleName, AUTH_CACHE, "put", MetricsLabel.ERROR);
         passwordEncryptionError = metricsService.getCounter(metricModuleName, AUTH_CACHE, "encryption", MetricsLabel.ERROR);
+        checkShared = metricsService.getCounter(metricModuleName, AUTH_CACHE, "check", "shared");
     }
 
     public Counter getCacheHit() {
@@ -61,4 +63,14 @@ public class CacheMetric {
         return passwordEncryptionError;
     }
 
+    /**
+     * Gets the {@link Counter} of the password checks which waited for the same check running on another thread.
+     *
+     * @return The {@link Counter} of the shared password checks.
+     * @since 2.1.0
+     */
+    public Counter getCheckShared() {
+        return checkShared;
+    }
+
 }
@@ -43,12 +43,26 @@ import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 
+/**
+ * {@link PasswordMatcher} which caches the verified passwords, so that the costly BCrypt check runs only on cache misses.
+ * <p>
+ * Concurrent cache misses for the same credential and password share a single BCrypt check,
+ * and at most {@link KapuaAuthenticationSettingKeys#AUTHENTICATION_CREDENTIAL_USERPASS_VERIFICATION_CONCURRENCY} BCrypt checks run at the same time,
+ * so that a reconnection storm cannot take all the CPUs.
+ */
 public class CachedPasswordMatcher implements PasswordMatcher {
 
     protected static final Logger logger = LoggerFactory.getLogger(CachedPasswordMatcher.class);
 
     private final Cache<String, CachedCredential> cachedCredentials;
+    private final Map<String, CompletableFuture<Boolean>> inFlightChecks = new ConcurrentHashMap<>();
+    private final Semaphore checkPermits;
 
     private CacheMetric cacheMetric;
     private SecretKey secret;
@@ -63,6 +77,8 @@ public class CachedPasswordMatcher implements PasswordMatcher {
                 kapuaAuthenticationSetting.getInt(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_CACHE_SIZE, 1000),
                 kapuaAuthenticationSetting.getInt(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_CACHE_TTL, 60),
                 null);
+        int verificationConcurrency = kapuaAuthenticationSetting.getInt(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_VERIFICATION_CONCURRENCY, 0);
+        this.checkPermits = new Semaphore(verificationConcurrency > 0 ? verificationConcurrency : Runtime.getRuntime().availableProcessors(), true);
         SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
         byte[] passwordBytes = new byte[64];
         random.nextBytes(passwordBytes);
@@ -87,7 +103,7 @@ public class CachedPasswordMatcher implements PasswordMatcher {
             cacheMetric.getCacheHit().inc();
             return true;
         } catch (Exception e) {
-            if (BCrypt.checkpw(tokenPassword, infoCredential.getCredentialKey())) {
+            if (checkPasswordSingleFlight(tokenPassword, infoCredential)) {
                 //should be synchronized?
                 try {
                     cachedCredentials.put(tokenUsername, new CachedCredential(
@@ -106,6 +122,68 @@ public class CachedPasswordMatcher implements PasswordMatcher {
         return false;
     }
 
+    /**
+     * Runs the BCrypt check, or waits for the result of the same check already running on another thread.
+     */
+    private boolean checkPasswordSingleFlight(String tokenPassword, Credential infoCredential) {
+        String checkKey;
+        try {
+            //the key holds the encrypted password only, as the cache does
+            checkKey = infoCredential.getCredentialKey() + '\n' + encodeText(tokenPassword.getBytes());
+        } catch (KapuaException e) {
+            return checkPasswordBounded(tokenPassword, infoCredential);
+        }
+
+        CompletableFuture<Boolean> check = new CompletableFuture<>();
+        CompletableFuture<Boolean> inFlightCheck = inFlightChecks.putIfAbsent(checkKey, check);
+        if (inFlightCheck != null) {
+            cacheMetric.getCheckShared().inc();
+            try {
+                return inFlightCheck.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                return false;
+            }
+        }
+
+        try {
+            boolean matches = checkPasswordBounded(tokenPassword, infoCredential);
+            check.complete(matches);
+            return matches;
+        } catch (RuntimeException e) {
+            check.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightChecks.remove(checkKey, check);
+            if (!check.isDone()) {
+                check.complete(false);
+            }
+        }
+    }
+
+    private boolean checkPasswordBounded(String tokenPassword, Credential infoCredential) {
+        try {
+            checkPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            return checkPasswordHash(tokenPassword, infoCredential.getCredentialKey());
+        } finally {
+            checkPermits.release();
+        }
+    }
+
+    /**
+     * Runs the BCrypt check. Called only while holding one of the check permits.
+     */
+    boolean checkPasswordHash(String tokenPassword, String credentialKey) {
+        return BCrypt.checkpw(tokenPassword, credentialKey);
+    }
+
     private void checkFromCache(CachedCredential cachedCredential, Credential infoCredential, String tokenPassword) throws KapuaException {
         if (cachedCredential == null ||
                 !cachedCredential.isStillValid(infoCredential.getModifiedOn()) ||
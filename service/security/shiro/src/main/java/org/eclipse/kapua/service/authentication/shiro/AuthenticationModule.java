@@ -94,6 +94,7 @@ import org.eclipse.kapua.service.authentication.token.AccessTokenRepository;
 import org.eclipse.kapua.service.authentication.token.AccessTokenService;
 import org.eclipse.kapua.service.authentication.token.shiro.AccessTokenFactoryImpl;
 import org.eclipse.kapua.service.authentication.token.shiro.AccessTokenImplJpaRepository;
+import org.eclipse.kapua.service.authentication.token.cache.AccessTokenVerificationCache;
 import org.eclipse.kapua.service.authentication.token.shiro.AccessTokenServiceImpl;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
@@ -118,6 +119,7 @@ public class AuthenticationModule extends AbstractKapuaModule {
         bind(MfaAuthenticator.class).to(MfaAuthenticatorImpl.class).in(Singleton.class);
         bind(KapuaCryptoSetting.class).in(Singleton.class);
         bind(CacheMetric.class).in(Singleton.class);
+        bind(AccessTokenVerificationCache.class).in(Singleton.class);
     }
 
     @Provides
@@ -206,13 +208,15 @@ public class AuthenticationModule extends AbstractKapuaModule {
             PermissionFactory permissionFactory,
             AccessTokenRepository accessTokenRepository,
             AccessTokenFactory accessTokenFactory,
-            KapuaJpaTxManagerFactory jpaTxManagerFactory) {
+            KapuaJpaTxManagerFactory jpaTxManagerFactory,
+            AccessTokenVerificationCache accessTokenVerificationCache) {
         return new AccessTokenServiceImpl(
                 authorizationService,
                 permissionFactory,
                 jpaTxManagerFactory.create("kapua-authentication"),
                 accessTokenRepository,
-                accessTokenFactory);
+                accessTokenFactory,
+                accessTokenVerificationCache);
     }
 
     @Provides
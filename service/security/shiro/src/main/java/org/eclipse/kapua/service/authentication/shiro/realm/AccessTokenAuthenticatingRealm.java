@@ -42,6 +42,8 @@ import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticatio
 import org.eclipse.kapua.service.authentication.token.AccessToken;
 import org.eclipse.kapua.service.authentication.token.AccessTokenAttributes;
 import org.eclipse.kapua.service.authentication.token.AccessTokenService;
+import org.eclipse.kapua.service.authentication.token.cache.AccessTokenVerificationCache;
+import org.eclipse.kapua.service.authentication.token.cache.AccessTokenVerificationCache.VerifiedAccessToken;
 import org.eclipse.kapua.service.certificate.CertificateAttributes;
 import org.eclipse.kapua.service.certificate.CertificateStatus;
 import org.eclipse.kapua.service.certificate.info.CertificateInfo;
@@ -49,7 +51,6 @@ import org.eclipse.kapua.service.certificate.info.CertificateInfoFactory;
 import org.eclipse.kapua.service.certificate.info.CertificateInfoListResult;
 import org.eclipse.kapua.service.certificate.info.CertificateInfoQuery;
 import org.eclipse.kapua.service.certificate.info.CertificateInfoService;
-import org.eclipse.kapua.service.certificate.util.CertificateUtils;
 import org.eclipse.kapua.service.user.User;
 import org.eclipse.kapua.service.user.UserService;
 import org.jose4j.jwt.JwtClaims;
@@ -78,6 +79,7 @@ public class AccessTokenAuthenticatingRealm extends KapuaAuthenticatingRealm {
     private final AccessTokenService accessTokenService = KapuaLocator.getInstance().getService(AccessTokenService.class);
     private final UserService userService = KapuaLocator.getInstance().getService(UserService.class);
     private final KapuaAuthenticationSetting authenticationSetting = KapuaLocator.getInstance().getComponent(KapuaAuthenticationSetting.class);
+    private final AccessTokenVerificationCache accessTokenVerificationCache = KapuaLocator.getInstance().getComponent(AccessTokenVerificationCache.class);
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     /**
@@ -99,42 +101,18 @@ public class AccessTokenAuthenticatingRealm extends KapuaAuthenticatingRealm {
         // Token data
         final String jwt = token.getTokenId();
         logger.trace("processing jwt: {}", jwt);
+        // A recently verified token skips the certificate lookup and the signature verification
+        final long verificationStamp = accessTokenVerificationCache.getStamp();
+        final VerifiedAccessToken verifiedAccessToken = accessTokenVerificationCache.getVerified(jwt);
         //verify validity of this token
         final JwtClaims jwtClaims;
-        try {
-            final String issuer = authenticationSetting.getString(KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_ISSUER);
-            final CertificateInfo certificateInfo = getNearestCertificate(authenticationToken);
-
-            if (certificateInfo == null) {
-                throw new JwtCertificateNotFoundException();
-            }
-            // Set validator
-            final JwtConsumer jwtConsumer = new JwtConsumerBuilder()
-                                                .setVerificationKey(CertificateUtils.stringToCertificate(certificateInfo.getCertificate()).getPublicKey()) // Set public key
-                                                .setExpectedIssuer(issuer) // Set expected issuer
-                                                .setRequireIssuedAt() // Set require reserved claim: iatp
-                                                .setRequireExpirationTime() // Set require reserved claim: exp
-                                                .setRequireSubject() // // Set require reserved claim: sub
-                                                .build();
-            // This validates JWT
-            final JwtContext jwtContext = jwtConsumer.process(jwt);
-            jwtClaims = jwtContext.getJwtClaims();
-            // FIXME: JWT cert. could be cached to speed-up validation process
-        } catch (KapuaException | MalformedClaimException ke) {
-            //As we are swallowing the original exception, let's at least log it
-            logger.error("Error processing Auth Token(KapuaException)", ke);
-            throw new AuthenticationException();
-        } catch (InvalidJwtException e) {
-            //As we are swallowing the original exception, let's at least log it
-            logger.error("Error processing Auth Token (InvalidJwtException)", e);
-            if (e.hasErrorCode(ErrorCodes.EXPIRED)) {
-                throw new ExpiredAccessTokenException();
-            } else {
-                throw new MalformedAccessTokenException();
-            }
+        if (verifiedAccessToken != null) {
+            jwtClaims = verifiedAccessToken.getJwtClaims();
+        } else {
+            jwtClaims = verifyJwt(authenticationToken, jwt);
         }
 
-        // Find accessToken
+        // Find accessToken, always read so that its invalidation is seen at once
         final AccessToken accessToken;
         try {
             final String tokenIdentifier = Optional.ofNullable(jwtClaims.getClaimValue(AccessTokenAttributes.TOKEN_IDENTIFIER))
@@ -155,6 +133,9 @@ public class AccessTokenAuthenticatingRealm extends KapuaAuthenticatingRealm {
         if (accessToken.getInvalidatedOn() != null && accessToken.getInvalidatedOn().before(now)) {
             throw new InvalidatedAccessTokenException();
         }
+        if (verifiedAccessToken == null) {
+            accessTokenVerificationCache.putVerified(jwt, jwtClaims, verificationStamp);
+        }
 
         // Get the associated user by name
         final User user;
@@ -178,6 +159,39 @@ public class AccessTokenAuthenticatingRealm extends KapuaAuthenticatingRealm {
                 accessToken);
     }
 
+    private JwtClaims verifyJwt(AuthenticationToken authenticationToken, String jwt) throws AuthenticationException {
+        try {
+            final String issuer = authenticationSetting.getString(KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_ISSUER);
+            final CertificateInfo certificateInfo = getNearestCertificate(authenticationToken);
+
+            if (certificateInfo == null) {
+                throw new JwtCertificateNotFoundException();
+            }
+            // Set validator
+            final JwtConsumer jwtConsumer = new JwtConsumerBuilder()
+                                                .setVerificationKey(accessTokenVerificationCache.getSigningKey(certificateInfo)) // Set public key
+                                                .setExpectedIssuer(issuer) // Set expected issuer
+                                                .setRequireIssuedAt() // Set require reserved claim: iatp
+                                                .setRequireExpirationTime() // Set require reserved claim: exp
+                                                .setRequireSubject() // // Set require reserved claim: sub
+                                                .build();
+            // This validates JWT
+            final JwtContext jwtContext = jwtConsumer.process(jwt);
+            return jwtContext.getJwtClaims();
+        } catch (KapuaException | MalformedClaimException ke) {
+            //As we are swallowing the original exception, let's at least log it
+            logger.error("Error processing Auth Token(KapuaException)", ke);
+            throw new AuthenticationException();
+        } catch (InvalidJwtException e) {
+            //As we are swallowing the original exception, let's at least log it
+            logger.error("Error processing Auth Token (InvalidJwtException)", e);
+            if (e.hasErrorCode(ErrorCodes.EXPIRED)) {
+                throw new ExpiredAccessTokenException();
+            } else {
+                throw new MalformedAccessTokenException();
+            }
+        }
+    }
 
     @Override
     protected void assertCredentialsMatch(AuthenticationToken authcToken, AuthenticationInfo info)
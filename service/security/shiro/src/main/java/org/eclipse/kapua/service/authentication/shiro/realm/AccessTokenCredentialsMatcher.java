@@ -23,13 +23,14 @@ import org.eclipse.kapua.service.authentication.AccessTokenCredentials;
 import org.eclipse.kapua.service.authentication.shiro.exceptions.JwtCertificateNotFoundException;
 import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
 import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSettingKeys;
+import org.eclipse.kapua.service.authentication.token.cache.AccessTokenVerificationCache;
 import org.eclipse.kapua.service.certificate.CertificateAttributes;
 import org.eclipse.kapua.service.certificate.CertificateStatus;
 import org.eclipse.kapua.service.certificate.info.CertificateInfo;
 import org.eclipse.kapua.service.certificate.info.CertificateInfoFactory;
 import org.eclipse.kapua.service.certificate.info.CertificateInfoQuery;
 import org.eclipse.kapua.service.certificate.info.CertificateInfoService;
-import org.eclipse.kapua.service.certificate.util.CertificateUtils;
+import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
@@ -48,11 +49,16 @@ public class AccessTokenCredentialsMatcher implements CredentialsMatcher {
     private final CertificateInfoService certificateInfoService = KapuaLocator.getInstance().getService(CertificateInfoService.class);
     private final CertificateInfoFactory certificateInfoFactory = KapuaLocator.getInstance().getFactory(CertificateInfoFactory.class);
     private final KapuaAuthenticationSetting kapuaAuthenticationSetting = KapuaLocator.getInstance().getComponent(KapuaAuthenticationSetting.class);
+    private final AccessTokenVerificationCache accessTokenVerificationCache = KapuaLocator.getInstance().getComponent(AccessTokenVerificationCache.class);
 
     @Override
     public boolean doCredentialsMatch(AuthenticationToken authenticationToken, AuthenticationInfo authenticationInfo) {
         // Token data
         String jwt = (String) authenticationToken.getCredentials();
+        long verificationStamp = accessTokenVerificationCache.getStamp();
+        if (accessTokenVerificationCache.getVerified(jwt) != null) {
+            return true;
+        }
         boolean credentialMatch = false;
         try {
             String issuer = kapuaAuthenticationSetting.getString(KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_ISSUER);
@@ -74,18 +80,17 @@ public class AccessTokenCredentialsMatcher implements CredentialsMatcher {
             }
             // Set validator
             JwtConsumer jwtConsumer = new JwtConsumerBuilder()
-                    .setVerificationKey(CertificateUtils.stringToCertificate(certificateInfo.getCertificate()).getPublicKey()) // Set public key
+                    .setVerificationKey(accessTokenVerificationCache.getSigningKey(certificateInfo)) // Set public key
                     .setExpectedIssuer(issuer) // Set expected issuer
                     .setRequireIssuedAt() // Set require reserved claim: iat
                     .setRequireExpirationTime() // Set require reserved claim: exp
                     .setRequireSubject() // // Set require reserved claim: sub
                     .build();
             // This validates JWT
-            jwtConsumer.processToClaims(jwt);
+            JwtClaims jwtClaims = jwtConsumer.processToClaims(jwt);
 
             credentialMatch = true;
-
-            // FIXME: if true cache token password for authentication performance improvement
+            accessTokenVerificationCache.putVerified(jwt, jwtClaims, verificationStamp);
         } catch (InvalidJwtException | KapuaException e) {
             LOG.error("Error while validating JWT access token", e);
         }
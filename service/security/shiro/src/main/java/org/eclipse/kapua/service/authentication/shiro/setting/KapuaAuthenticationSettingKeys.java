@@ -31,10 +31,12 @@ public enum KapuaAuthenticationSettingKeys implements SettingKey {
     AUTHENTICATION_SESSION_JWT_ISSUER("authentication.session.jwt.issuer"),//
     AUTHENTICATION_SESSION_JWT_CACHE_ENABLE("authentication.session.jwt.cache.enabled"), //
     AUTHENTICATION_SESSION_JWT_CACHE_CACHE_TTL("authentication.session.jwt.cache.ttl"), //
+    AUTHENTICATION_SESSION_JWT_CACHE_CACHE_SIZE("authentication.session.jwt.cache.size"), //
 
     AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_ENABLE("authentication.credential.userpass.cache.enabled"), //
     AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_CACHE_TTL("authentication.credential.userpass.cache.ttl"), //
     AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_CACHE_SIZE("authentication.credential.userpass.cache.size"), //
+    AUTHENTICATION_CREDENTIAL_USERPASS_VERIFICATION_CONCURRENCY("authentication.credential.userpass.verification.concurrency"), //
     AUTHENTICATION_CREDENTIAL_USERPASS_PASSWORD_MINLENGTH("authentication.credential.userpass.password.minlength"), //
 
     AUTHENTICATION_CREDENTIAL_AUDIENCE_ALLOWED("authentication.credential.jwt.audience.allowed"), //
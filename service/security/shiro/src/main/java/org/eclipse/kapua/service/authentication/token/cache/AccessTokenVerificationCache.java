@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.token.cache;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.cache.Cache;
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSettingKeys;
+import org.eclipse.kapua.service.authentication.token.AccessToken;
+import org.eclipse.kapua.service.certificate.info.CertificateInfo;
+import org.eclipse.kapua.service.certificate.util.CertificateUtils;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the access token verification: the JWT signing keys, parsed once per certificate,
+ * and the verified JWTs, so that the REST authentication of an already verified access token skips the certificate lookup and the signature verification.
+ * Only the signature and the claims are cached: the {@link AccessToken} is still read on each authentication, so that its invalidation is seen at once.
+ * <p>
+ * Verified JWTs are keyed by the hash of the JWT and kept at most for {@link KapuaAuthenticationSettingKeys#AUTHENTICATION_SESSION_JWT_CACHE_CACHE_TTL},
+ * and never after their expiration.
+ * They are removed when the {@link AccessToken} is updated, invalidated or deleted on this node, and a verification started before the removal is not cached
+ * (see {@link #getStamp()}).
+ *
+ * @since 2.1.0
+ */
+@Singleton
+public class AccessTokenVerificationCache {
+
+    private static final int SIGNING_KEY_CACHE_SIZE = 100;
+
+    private final Cache<String, SigningKey> signingKeys;
+    private final Cache<String, VerifiedAccessToken> verifiedAccessTokens;
+    private final Cache<String, Long> invalidations;
+    private final AtomicLong stamp = new AtomicLong();
+
+    @Inject
+    public AccessTokenVerificationCache(KapuaAuthenticationSetting kapuaAuthenticationSetting) {
+        int ttl = (int) (kapuaAuthenticationSetting.getLong(KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_CACHE_CACHE_TTL, 60000L) / 1000);
+        this.signingKeys = new LocalCache<>(SIGNING_KEY_CACHE_SIZE, null);
+        boolean enabled = kapuaAuthenticationSetting.getBoolean(KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_CACHE_ENABLE, true) && ttl > 0;
+        int size = kapuaAuthenticationSetting.getInt(KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_CACHE_CACHE_SIZE, 1000);
+        this.verifiedAccessTokens = enabled ? new LocalCache<>(size, ttl, null) : null;
+        this.invalidations = enabled ? new LocalCache<>(size, ttl, null) : null;
+    }
+
+    /**
+     * Gets the stamp to pass to {@link #putVerified(String, JwtClaims, long)}, taken before the verification of a JWT and the lookup of its {@link AccessToken}.
+     *
+     * @return The current stamp.
+     * @since 2.1.0
+     */
+    public long getStamp() {
+        return stamp.get();
+    }
+
+    /**
+     * Gets the {@link PublicKey} of the given {@link CertificateInfo}, parsing its certificate only the first time.
+     * <p>
+     * The key is cached by {@link CertificateInfo#getId()} and reused as long as the certificate is the same.
+     *
+     * @param certificateInfo The {@link CertificateInfo} which signs the JWTs.
+     * @return The {@link PublicKey} to verify the JWTs.
+     * @throws KapuaException if the certificate cannot be parsed.
+     * @since 2.1.0
+     */
+    public PublicKey getSigningKey(CertificateInfo certificateInfo) throws KapuaException {
+        final String certificate = certificateInfo.getCertificate();
+        // The certificate served from the settings has no id
+        final String key = certificateInfo.getId() != null ? certificateInfo.getId().toCompactId() : certificate;
+
+        SigningKey signingKey = signingKeys.get(key);
+        if (signingKey == null || !signingKey.certificate.equals(certificate)) {
+            signingKey = new SigningKey(certificate, CertificateUtils.stringToCertificate(certificate).getPublicKey());
+            signingKeys.put(key, signingKey);
+        }
+        return signingKey.publicKey;
+    }
+
+    /**
+     * Gets the {@link VerifiedAccessToken} of the given JWT.
+     *
+     * @param jwt The JWT.
+     * @return The {@link VerifiedAccessToken}, or {@code null} if not verified recently or expired.
+     * @since 2.1.0
+     */
+    public VerifiedAccessToken getVerified(String jwt) {
+        if (verifiedAccessTokens == null) {
+            return null;
+        }
+
+        final String key = hash(jwt);
+        VerifiedAccessToken verifiedAccessToken = verifiedAccessTokens.get(key);
+        if (verifiedAccessToken != null && verifiedAccessToken.expiresOn <= System.currentTimeMillis()) {
+            // Let the verification report the expiration
+            verifiedAccessTokens.remove(key);
+            return null;
+        }
+        return verifiedAccessToken;
+    }
+
+    /**
+     * Caches the given JWT as verified.
+     *
+     * The JWT is not cached if it has been invalidated after the given stamp, since it has been verified against an {@link AccessToken} read before the invalidation.
+     *
+     * @param jwt       The verified JWT.
+     * @param jwtClaims The {@link JwtClaims} of the JWT.
+     * @param stamp     The {@link #getStamp()} taken before the verification.
+     * @since 2.1.0
+     */
+    public void putVerified(String jwt, JwtClaims jwtClaims, long stamp) {
+        if (verifiedAccessTokens == null) {
+            return;
+        }
+
+        long expiresOn;
+        try {
+            NumericDate expirationTime = jwtClaims.getExpirationTime();
+            if (expirationTime == null) {
+                return;
+            }
+            expiresOn = expirationTime.getValueInMillis();
+        } catch (MalformedClaimException e) {
+            return;
+        }
+        final String key = hash(jwt);
+        if (isInvalidatedAfter(key, stamp)) {
+            return;
+        }
+        verifiedAccessTokens.put(key, new VerifiedAccessToken(jwtClaims, expiresOn));
+        // An invalidation between the check and the put has removed the JWT before it was put
+        if (isInvalidatedAfter(key, stamp)) {
+            verifiedAccessTokens.remove(key);
+        }
+    }
+
+    /**
+     * Removes the given JWT from the verified ones.
+     *
+     * @param jwt The JWT, which is the {@link AccessToken#getTokenId()}.
+     * @since 2.1.0
+     */
+    public void invalidate(String jwt) {
+        if (verifiedAccessTokens != null && jwt != null) {
+            final String key = hash(jwt);
+            // Recorded before the removal, so that a verification still running does not put the JWT back
+            invalidations.put(key, stamp.incrementAndGet());
+            verifiedAccessTokens.remove(key);
+        }
+    }
+
+    private boolean isInvalidatedAfter(String key, long stamp) {
+        final Long invalidatedOn = invalidations.get(key);
+        return invalidatedOn != null && invalidatedOn > stamp;
+    }
+
+    private String hash(String jwt) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class SigningKey {
+
+        private final String certificate;
+        private final PublicKey publicKey;
+
+        private SigningKey(String certificate, PublicKey publicKey) {
+            this.certificate = certificate;
+            this.publicKey = publicKey;
+        }
+    }
+
+    /**
+     * A verified JWT.
+     *
+     * @since 2.1.0
+     */
+    public static class VerifiedAccessToken {
+
+        private final JwtClaims jwtClaims;
+        private final long expiresOn;
+
+        private VerifiedAccessToken(JwtClaims jwtClaims, long expiresOn) {
+            this.jwtClaims = jwtClaims;
+            this.expiresOn = expiresOn;
+        }
+
+        public JwtClaims getJwtClaims() {
+            return jwtClaims;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.eclipse.kapua.service.authentication.token.AccessTokenListResult;
 import org.eclipse.kapua.service.authentication.token.AccessTokenQuery;
 import org.eclipse.kapua.service.authentication.token.AccessTokenRepository;
 import org.eclipse.kapua.service.authentication.token.AccessTokenService;
+import org.eclipse.kapua.service.authentication.token.cache.AccessTokenVerificationCache;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.storage.TxManager;
@@ -53,18 +54,21 @@ public class AccessTokenServiceImpl implements AccessTokenService {
     private final TxManager txManager;
     private final AccessTokenRepository accessTokenRepository;
     private final AccessTokenFactory accessTokenFactory;
+    private final AccessTokenVerificationCache accessTokenVerificationCache;
 
     public AccessTokenServiceImpl(
             AuthorizationService authorizationService,
             PermissionFactory permissionFactory,
             TxManager txManager,
             AccessTokenRepository accessTokenRepository,
-            AccessTokenFactory accessTokenFactory) {
+            AccessTokenFactory accessTokenFactory,
+            AccessTokenVerificationCache accessTokenVerificationCache) {
         this.authorizationService = authorizationService;
         this.permissionFactory = permissionFactory;
         this.txManager = txManager;
         this.accessTokenRepository = accessTokenRepository;
         this.accessTokenFactory = accessTokenFactory;
+        this.accessTokenVerificationCache = accessTokenVerificationCache;
     }
 
     @Override
@@ -101,7 +105,7 @@ public class AccessTokenServiceImpl implements AccessTokenService {
         ArgumentValidator.notNull(accessToken.getExpiresOn(), "accessToken.expiresOn");
         // Check access
         authorizationService.checkPermission(permissionFactory.newPermission(Domains.ACCESS_TOKEN, Actions.write, accessToken.getScopeId()));
-        return txManager.execute(tx -> {
+        final AccessToken updated = txManager.execute(tx -> {
             // Check existence
             if (!accessTokenRepository.find(tx, accessToken.getScopeId(), accessToken.getId()).isPresent()) {
                 throw new KapuaEntityNotFoundException(AccessToken.TYPE, accessToken.getId());
@@ -109,6 +113,8 @@ public class AccessTokenServiceImpl implements AccessTokenService {
             // Do update
             return accessTokenRepository.update(tx, accessToken);
         });
+        accessTokenVerificationCache.invalidate(updated.getTokenId());
+        return updated;
     }
 
     @Override
@@ -151,13 +157,14 @@ public class AccessTokenServiceImpl implements AccessTokenService {
         // Check Access
         authorizationService.checkPermission(permissionFactory.newPermission(Domains.ACCESS_TOKEN, Actions.delete, scopeId));
         // Check existence
-        txManager.execute(tx -> {
+        final AccessToken deleted = txManager.execute(tx -> {
             if (!accessTokenRepository.find(tx, scopeId, accessTokenId).isPresent()) {
                 throw new KapuaEntityNotFoundException(AccessToken.TYPE, accessTokenId);
             }
             // Do delete
             return accessTokenRepository.delete(tx, scopeId, accessTokenId);
         });
+        accessTokenVerificationCache.invalidate(deleted.getTokenId());
     }
 
     @Override
@@ -197,13 +204,14 @@ public class AccessTokenServiceImpl implements AccessTokenService {
         // Check Access
         authorizationService.checkPermission(permissionFactory.newPermission(Domains.ACCESS_TOKEN, Actions.write, scopeId));
         // Do find
-        txManager.execute(tx ->
+        final AccessToken invalidated = txManager.execute(tx ->
                 accessTokenRepository.find(tx, scopeId, accessTokenId)
                         .map(at -> {
                             at.setInvalidatedOn(new Date());
                             return accessTokenRepository.update(tx, at, at);
                         })
                         .orElseThrow(() -> new KapuaEntityNotFoundException(AccessToken.TYPE, scopeId)));
+        accessTokenVerificationCache.invalidate(invalidated.getTokenId());
     }
 
     //@ListenServiceEvent(fromAddress="account")
@@ -18,6 +18,7 @@ import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.authorization.access.AccessInfo;
 import org.eclipse.kapua.service.authorization.access.AccessInfoListResult;
 import org.eclipse.kapua.service.authorization.access.AccessInfoRepository;
+import org.eclipse.kapua.service.authorization.shiro.AuthorizationInfoVersion;
 import org.eclipse.kapua.storage.TxContext;
 
 import java.util.Optional;
@@ -27,11 +28,27 @@ public class AccessInfoCachingRepository
         implements AccessInfoRepository {
     private final AccessInfoRepository wrapped;
     private final AccessInfoCache entityCache;
+    private final AuthorizationInfoVersion authorizationInfoVersion;
 
-    public AccessInfoCachingRepository(AccessInfoRepository wrapped, AccessInfoCache entityCache) {
+    public AccessInfoCachingRepository(AccessInfoRepository wrapped, AccessInfoCache entityCache, AuthorizationInfoVersion authorizationInfoVersion) {
         super(wrapped, entityCache);
         this.wrapped = wrapped;
         this.entityCache = entityCache;
+        this.authorizationInfoVersion = authorizationInfoVersion;
+    }
+
+    @Override
+    public AccessInfo delete(TxContext txContext, KapuaId scopeId, KapuaId entityId) throws KapuaException {
+        final AccessInfo deleted = super.delete(txContext, scopeId, entityId);
+        txContext.afterCommit(authorizationInfoVersion::increment);
+        return deleted;
+    }
+
+    @Override
+    public AccessInfo delete(TxContext txContext, AccessInfo entityToDelete) {
+        final AccessInfo deleted = super.delete(txContext, entityToDelete);
+        txContext.afterCommit(authorizationInfoVersion::increment);
+        return deleted;
     }
 
     @Override
@@ -22,22 +22,26 @@ import org.eclipse.kapua.service.authorization.access.AccessPermissionAttributes
 import org.eclipse.kapua.service.authorization.access.AccessPermissionListResult;
 import org.eclipse.kapua.service.authorization.access.AccessPermissionQuery;
 import org.eclipse.kapua.service.authorization.access.AccessPermissionRepository;
+import org.eclipse.kapua.service.authorization.shiro.AuthorizationInfoVersion;
 import org.eclipse.kapua.storage.TxContext;
 
 public class CachingAccessPermissionRepository
         extends KapuaEntityRepositoryCachingWrapper<AccessPermission, AccessPermissionListResult>
         implements AccessPermissionRepository {
     private final AccessPermissionRepository wrapped;
+    private final AuthorizationInfoVersion authorizationInfoVersion;
 
-    public CachingAccessPermissionRepository(AccessPermissionRepository wrapped, EntityCache entityCache) {
+    public CachingAccessPermissionRepository(AccessPermissionRepository wrapped, EntityCache entityCache, AuthorizationInfoVersion authorizationInfoVersion) {
         super(wrapped, entityCache);
         this.wrapped = wrapped;
+        this.authorizationInfoVersion = authorizationInfoVersion;
     }
 
     @Override
     public AccessPermission create(TxContext tx, AccessPermission entity) throws KapuaException {
         final AccessPermission created = super.create(tx, entity);
         entityCache.removeList(created.getScopeId(), created.getAccessInfoId());
+        tx.afterCommit(authorizationInfoVersion::increment);
         return created;
     }
 
@@ -47,6 +51,7 @@ public class CachingAccessPermissionRepository
         final AccessPermission deleted = super.delete(tx, scopeId, entityId);
         if (deleted != null) {
             entityCache.removeList(scopeId, deleted.getAccessInfoId());
+            tx.afterCommit(authorizationInfoVersion::increment);
         }
         return deleted;
     }
@@ -70,6 +75,7 @@ public class CachingAccessPermissionRepository
         final AccessPermissionListResult removed = wrapped.deleteAllByDomainAndAction(tx, domainEntryName, actionToDelete);
         if (!removed.isEmpty()) {
             removed.getItems().forEach(item -> entityCache.removeList(item.getScopeId(), item.getAccessInfoId()));
+            tx.afterCommit(authorizationInfoVersion::increment);
         }
         return removed;
     }
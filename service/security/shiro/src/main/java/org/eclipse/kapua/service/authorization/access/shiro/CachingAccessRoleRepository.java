@@ -19,14 +19,24 @@ import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.authorization.access.AccessRole;
 import org.eclipse.kapua.service.authorization.access.AccessRoleListResult;
 import org.eclipse.kapua.service.authorization.access.AccessRoleRepository;
+import org.eclipse.kapua.service.authorization.shiro.AuthorizationInfoVersion;
 import org.eclipse.kapua.storage.TxContext;
 
 public class CachingAccessRoleRepository extends KapuaEntityRepositoryCachingWrapper<AccessRole, AccessRoleListResult> implements AccessRoleRepository {
     private final AccessRoleRepository wrapped;
+    private final AuthorizationInfoVersion authorizationInfoVersion;
 
-    public CachingAccessRoleRepository(AccessRoleRepository wrapped, EntityCache entityCache) {
+    public CachingAccessRoleRepository(AccessRoleRepository wrapped, EntityCache entityCache, AuthorizationInfoVersion authorizationInfoVersion) {
         super(wrapped, entityCache);
         this.wrapped = wrapped;
+        this.authorizationInfoVersion = authorizationInfoVersion;
+    }
+
+    @Override
+    public AccessRole create(TxContext tx, AccessRole entity) throws KapuaException {
+        final AccessRole created = super.create(tx, entity);
+        tx.afterCommit(authorizationInfoVersion::increment);
+        return created;
     }
 
     @Override
@@ -45,6 +55,7 @@ public class CachingAccessRoleRepository extends KapuaEntityRepositoryCachingWra
         final AccessRole deleted = super.delete(tx, scopeId, entityId);
         if (deleted != null) {
             entityCache.removeList(scopeId, deleted.getAccessInfoId());
+            tx.afterCommit(authorizationInfoVersion::increment);
         }
         return deleted;
     }
@@ -12,16 +12,51 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.role.shiro;
 
+import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.service.internal.cache.NamedEntityCache;
 import org.eclipse.kapua.commons.storage.KapuaNamedEntityRepositoryCachingWrapper;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.authorization.role.Role;
 import org.eclipse.kapua.service.authorization.role.RoleListResult;
 import org.eclipse.kapua.service.authorization.role.RoleRepository;
+import org.eclipse.kapua.service.authorization.shiro.AuthorizationInfoVersion;
+import org.eclipse.kapua.storage.TxContext;
 
 public class RoleCachingRepository
         extends KapuaNamedEntityRepositoryCachingWrapper<Role, RoleListResult>
         implements RoleRepository {
-    public RoleCachingRepository(RoleRepository wrapped, NamedEntityCache entityCache) {
+    private final AuthorizationInfoVersion authorizationInfoVersion;
+
+    public RoleCachingRepository(RoleRepository wrapped, NamedEntityCache entityCache, AuthorizationInfoVersion authorizationInfoVersion) {
         super(wrapped, entityCache);
+        this.authorizationInfoVersion = authorizationInfoVersion;
+    }
+
+    @Override
+    public Role update(TxContext txContext, Role entity) throws KapuaException {
+        final Role updated = super.update(txContext, entity);
+        txContext.afterCommit(authorizationInfoVersion::increment);
+        return updated;
+    }
+
+    @Override
+    public Role update(TxContext txContext, Role currentEntity, Role updatedEntity) {
+        final Role updated = super.update(txContext, currentEntity, updatedEntity);
+        txContext.afterCommit(authorizationInfoVersion::increment);
+        return updated;
+    }
+
+    @Override
+    public Role delete(TxContext txContext, KapuaId scopeId, KapuaId entityId) throws KapuaException {
+        final Role deleted = super.delete(txContext, scopeId, entityId);
+        txContext.afterCommit(authorizationInfoVersion::increment);
+        return deleted;
+    }
+
+    @Override
+    public Role delete(TxContext txContext, Role entityToDelete) {
+        final Role deleted = super.delete(txContext, entityToDelete);
+        txContext.afterCommit(authorizationInfoVersion::increment);
+        return deleted;
     }
 }
@@ -20,6 +20,7 @@ import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.authorization.role.RolePermission;
 import org.eclipse.kapua.service.authorization.role.RolePermissionListResult;
 import org.eclipse.kapua.service.authorization.role.RolePermissionRepository;
+import org.eclipse.kapua.service.authorization.shiro.AuthorizationInfoVersion;
 import org.eclipse.kapua.storage.TxContext;
 
 public class RolePermissionCachingRepository
@@ -27,16 +28,19 @@ public class RolePermissionCachingRepository
         implements RolePermissionRepository {
 
     private final RolePermissionRepository wrapped;
+    private final AuthorizationInfoVersion authorizationInfoVersion;
 
-    public RolePermissionCachingRepository(RolePermissionRepository wrapped, EntityCache entityCache) {
+    public RolePermissionCachingRepository(RolePermissionRepository wrapped, EntityCache entityCache, AuthorizationInfoVersion authorizationInfoVersion) {
         super(wrapped, entityCache);
         this.wrapped = wrapped;
+        this.authorizationInfoVersion = authorizationInfoVersion;
     }
 
     @Override
     public RolePermission create(TxContext txContext, RolePermission entity) throws KapuaException {
         final RolePermission created = super.create(txContext, entity);
         entityCache.removeList(entity.getScopeId(), entity.getRoleId());
+        txContext.afterCommit(authorizationInfoVersion::increment);
         return created;
     }
 
@@ -44,6 +48,7 @@ public class RolePermissionCachingRepository
     public RolePermission delete(TxContext txContext, KapuaId scopeId, KapuaId entityId) throws KapuaException {
         final RolePermission deleted = super.delete(txContext, scopeId, entityId);
         entityCache.removeList(scopeId, deleted.getRoleId());
+        txContext.afterCommit(authorizationInfoVersion::increment);
         return deleted;
     }
 
@@ -51,6 +56,7 @@ public class RolePermissionCachingRepository
     public RolePermission delete(TxContext txContext, RolePermission entityToDelete) {
         final RolePermission deleted = super.delete(txContext, entityToDelete);
         entityCache.removeList(deleted.getScopeId(), deleted.getRoleId());
+        txContext.afterCommit(authorizationInfoVersion::increment);
         return deleted;
     }
 
@@ -72,6 +78,7 @@ public class RolePermissionCachingRepository
         final RolePermissionListResult removed = wrapped.deleteAllByDomainAndAction(tx, domainName, actionToDelete);
         if (!removed.isEmpty()) {
             removed.getItems().forEach(item -> entityCache.removeList(item.getScopeId(), item.getRoleId()));
+            tx.afterCommit(authorizationInfoVersion::increment);
         }
         return removed;
     }
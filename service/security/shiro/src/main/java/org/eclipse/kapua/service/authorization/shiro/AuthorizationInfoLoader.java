@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.JpaAwareTxContext;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.KapuaEntityAttributes;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.authorization.access.AccessInfoAttributes;
+import org.eclipse.kapua.service.authorization.access.AccessPermissionAttributes;
+import org.eclipse.kapua.service.authorization.access.AccessRoleAttributes;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessInfoImpl;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessPermissionImpl;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessRoleImpl;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+import org.eclipse.kapua.service.authorization.role.RolePermissionAttributes;
+import org.eclipse.kapua.service.authorization.role.shiro.RoleImpl;
+import org.eclipse.kapua.service.authorization.role.shiro.RolePermissionImpl;
+import org.eclipse.kapua.storage.TxManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads all the roles and the {@link Permission}s of a user with a few queries, joining the access info with its access permissions, access roles, roles and role permissions.
+ * <p>
+ * It reads the authorization data without the authorization checks of the services, so it must only be used to build the authorization info of a user.
+ *
+ * @since 2.1.0
+ */
+public class AuthorizationInfoLoader {
+
+    private static final String EID = "eid";
+    private static final String SCOPE_ID_PARAMETER = "scopeId";
+    private static final String USER_ID_PARAMETER = "userId";
+
+    private final TxManager txManager;
+
+    public AuthorizationInfoLoader(TxManager txManager) {
+        this.txManager = txManager;
+    }
+
+    /**
+     * Loads the roles and the {@link Permission}s of the given user.
+     *
+     * @param scopeId The scope {@link KapuaId} of the user.
+     * @param userId  The {@link KapuaId} of the user.
+     * @return The {@link UserAuthorization}.
+     * @throws KapuaException
+     * @since 2.1.0
+     */
+    public UserAuthorization load(KapuaId scopeId, KapuaId userId) throws KapuaException {
+        return txManager.execute(tx -> {
+            final EntityManager em = JpaAwareTxContext.extractEntityManager(tx);
+
+            final List<Permission> permissions = new ArrayList<>();
+            for (AccessPermissionImpl accessPermission : findAccessPermissions(em, scopeId, userId)) {
+                permissions.add(accessPermission.getPermission());
+            }
+            for (RolePermissionImpl rolePermission : findRolePermissions(em, scopeId, userId)) {
+                permissions.add(rolePermission.getPermission());
+            }
+            final Set<String> roleNames = new LinkedHashSet<>();
+            for (RoleImpl role : findRoles(em, scopeId, userId)) {
+                roleNames.add(role.getName());
+            }
+            return new UserAuthorization(roleNames, permissions);
+        });
+    }
+
+    private List<AccessPermissionImpl> findAccessPermissions(EntityManager em, KapuaId scopeId, KapuaId userId) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<AccessPermissionImpl> query = cb.createQuery(AccessPermissionImpl.class);
+        final Root<AccessInfoImpl> accessInfo = query.from(AccessInfoImpl.class);
+        final Root<AccessPermissionImpl> accessPermission = query.from(AccessPermissionImpl.class);
+        query.select(accessPermission).where(
+                accessInfoOfUser(cb, accessInfo),
+                cb.equal(eid(accessPermission.get(AccessPermissionAttributes.ACCESS_INFO_ID)), eid(accessInfo.get(KapuaEntityAttributes.ENTITY_ID))));
+        return em.createQuery(query)
+                .setParameter(SCOPE_ID_PARAMETER, KapuaEid.parseKapuaId(scopeId))
+                .setParameter(USER_ID_PARAMETER, KapuaEid.parseKapuaId(userId))
+                .getResultList();
+    }
+
+    private List<RoleImpl> findRoles(EntityManager em, KapuaId scopeId, KapuaId userId) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<RoleImpl> query = cb.createQuery(RoleImpl.class);
+        final Root<AccessInfoImpl> accessInfo = query.from(AccessInfoImpl.class);
+        final Root<AccessRoleImpl> accessRole = query.from(AccessRoleImpl.class);
+        final Root<RoleImpl> role = query.from(RoleImpl.class);
+        query.select(role).where(
+                accessInfoOfUser(cb, accessInfo),
+                cb.equal(eid(accessRole.get(AccessRoleAttributes.ACCESS_INFO_ID)), eid(accessInfo.get(KapuaEntityAttributes.ENTITY_ID))),
+                cb.equal(eid(role.get(KapuaEntityAttributes.ENTITY_ID)), eid(accessRole.get(AccessRoleAttributes.ROLE_ID))));
+        return em.createQuery(query)
+                .setParameter(SCOPE_ID_PARAMETER, KapuaEid.parseKapuaId(scopeId))
+                .setParameter(USER_ID_PARAMETER, KapuaEid.parseKapuaId(userId))
+                .getResultList();
+    }
+
+    private List<RolePermissionImpl> findRolePermissions(EntityManager em, KapuaId scopeId, KapuaId userId) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<RolePermissionImpl> query = cb.createQuery(RolePermissionImpl.class);
+        final Root<AccessInfoImpl> accessInfo = query.from(AccessInfoImpl.class);
+        final Root<AccessRoleImpl> accessRole = query.from(AccessRoleImpl.class);
+        final Root<RolePermissionImpl> rolePermission = query.from(RolePermissionImpl.class);
+        query.select(rolePermission).where(
+                accessInfoOfUser(cb, accessInfo),
+                cb.equal(eid(accessRole.get(AccessRoleAttributes.ACCESS_INFO_ID)), eid(accessInfo.get(KapuaEntityAttributes.ENTITY_ID))),
+                cb.equal(eid(rolePermission.get(RolePermissionAttributes.ROLE_ID)), eid(accessRole.get(AccessRoleAttributes.ROLE_ID))));
+        return em.createQuery(query)
+                .setParameter(SCOPE_ID_PARAMETER, KapuaEid.parseKapuaId(scopeId))
+                .setParameter(USER_ID_PARAMETER, KapuaEid.parseKapuaId(userId))
+                .getResultList();
+    }
+
+    private Predicate accessInfoOfUser(CriteriaBuilder cb, Root<AccessInfoImpl> accessInfo) {
+        final ParameterExpression<KapuaId> scopeIdParameter = cb.parameter(KapuaId.class, SCOPE_ID_PARAMETER);
+        final ParameterExpression<KapuaId> userIdParameter = cb.parameter(KapuaId.class, USER_ID_PARAMETER);
+        return cb.and(
+                cb.equal(accessInfo.get(KapuaEntityAttributes.SCOPE_ID), scopeIdParameter),
+                cb.equal(accessInfo.get(AccessInfoAttributes.USER_ID), userIdParameter));
+    }
+
+    private Path<Object> eid(Path<Object> kapuaEid) {
+        return kapuaEid.get(EID);
+    }
+
+    /**
+     * The roles and the {@link Permission}s of a user.
+     *
+     * @since 2.1.0
+     */
+    public static class UserAuthorization {
+
+        private final Set<String> roleNames;
+        private final List<Permission> permissions;
+
+        private UserAuthorization(Set<String> roleNames, List<Permission> permissions) {
+            this.roleNames = Collections.unmodifiableSet(roleNames);
+            this.permissions = Collections.unmodifiableList(permissions);
+        }
+
+        public Set<String> getRoleNames() {
+            return roleNames;
+        }
+
+        public List<Permission> getPermissions() {
+            return permissions;
+        }
+    }
+}
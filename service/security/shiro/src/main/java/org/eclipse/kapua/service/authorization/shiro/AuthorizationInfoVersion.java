@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import org.apache.shiro.authz.AuthorizationInfo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamp of the authorization data (access infos, access permissions, access roles, roles and role permissions).
+ * <p>
+ * The caching repositories of the authorization data increment it once each change is committed, invalidating all the {@link AuthorizationInfo}s cached by the {@link KapuaAuthorizingRealm}:
+ * incremented before the commit, an {@link AuthorizationInfo} loaded meanwhile, still without the change, would be cached with the new version.
+ * It only tracks the changes made by this node: the changes made by other nodes are seen when the cached {@link AuthorizationInfo}s expire,
+ * that is within {@link org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSettingKeys#AUTHORIZATION_INFO_CACHE_TTL}.
+ *
+ * @since 2.1.0
+ */
+public class AuthorizationInfoVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Gets the current version.
+     *
+     * @return The current version.
+     * @since 2.1.0
+     */
+    public long get() {
+        return version.get();
+    }
+
+    /**
+     * Increments the version, after the commit of a change of the authorization data.
+     *
+     * @since 2.1.0
+     */
+    public void increment() {
+        version.incrementAndGet();
+    }
+}
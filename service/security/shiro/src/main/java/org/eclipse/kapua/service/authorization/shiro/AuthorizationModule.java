@@ -124,6 +124,7 @@ public class AuthorizationModule extends AbstractKapuaModule {
         bind(KapuaAuthorizationSetting.class).in(Singleton.class);
         bind(PermissionValidator.class).in(Singleton.class);
         bind(PermissionMapper.class).to(PermissionMapperImpl.class).in(Singleton.class);
+        bind(AuthorizationInfoVersion.class).in(Singleton.class);
         bind(DomainsAligner.class).in(Singleton.class);
     }
 
@@ -291,17 +292,20 @@ public class AuthorizationModule extends AbstractKapuaModule {
 
     @Provides
     @Singleton
-    RoleRepository roleRepository(NamedCacheFactory namedCacheFactory, KapuaJpaRepositoryConfiguration jpaRepoConfig) {
+    RoleRepository roleRepository(NamedCacheFactory namedCacheFactory, KapuaJpaRepositoryConfiguration jpaRepoConfig, AuthorizationInfoVersion authorizationInfoVersion) {
         return new RoleCachingRepository(new RoleImplJpaRepository(jpaRepoConfig),
-                namedCacheFactory.createCache("RoleId", "RoleName"));
+                namedCacheFactory.createCache("RoleId", "RoleName"),
+                authorizationInfoVersion);
     }
 
     @Provides
     @Singleton
     RolePermissionRepository rolePermissionRepository(KapuaJpaRepositoryConfiguration jpaRepoConfig,
-            EntityCacheFactory entityCacheFactory) {
+            EntityCacheFactory entityCacheFactory,
+            AuthorizationInfoVersion authorizationInfoVersion) {
         return new RolePermissionCachingRepository(new RolePermissionImplJpaRepository(jpaRepoConfig),
-                entityCacheFactory.createCache("RolePermissionId"));
+                entityCacheFactory.createCache("RolePermissionId"),
+                authorizationInfoVersion);
     }
 
     @Provides
@@ -378,10 +382,12 @@ public class AuthorizationModule extends AbstractKapuaModule {
 
     @Provides
     @Singleton
-    AccessInfoRepository accessInfoRepository(KapuaCacheManager kapuaCacheManager, CommonsMetric commonsMetric, KapuaJpaRepositoryConfiguration jpaRepoConfig) {
+    AccessInfoRepository accessInfoRepository(KapuaCacheManager kapuaCacheManager, CommonsMetric commonsMetric, KapuaJpaRepositoryConfiguration jpaRepoConfig,
+            AuthorizationInfoVersion authorizationInfoVersion) {
         return new AccessInfoCachingRepository(
                 new AccessInfoImplJpaRepository(jpaRepoConfig),
-                new AccessInfoCacheFactory(kapuaCacheManager, commonsMetric).createCache()
+                new AccessInfoCacheFactory(kapuaCacheManager, commonsMetric).createCache(),
+                authorizationInfoVersion
         );
     }
 
@@ -405,10 +411,12 @@ public class AuthorizationModule extends AbstractKapuaModule {
     @Provides
     @Singleton
     AccessPermissionRepository accessPermissionRepository(KapuaJpaRepositoryConfiguration jpaRepoConfig,
-            EntityCacheFactory entityCacheFactory) {
+            EntityCacheFactory entityCacheFactory,
+            AuthorizationInfoVersion authorizationInfoVersion) {
         return new CachingAccessPermissionRepository(
                 new AccessPermissionImplJpaRepository(jpaRepoConfig),
-                entityCacheFactory.createCache("AccessPermissionId")
+                entityCacheFactory.createCache("AccessPermissionId"),
+                authorizationInfoVersion
         );
     }
 
@@ -433,12 +441,19 @@ public class AuthorizationModule extends AbstractKapuaModule {
     @Provides
     @Singleton
     AccessRoleRepository accessRoleRepository(KapuaJpaRepositoryConfiguration jpaRepoConfig,
-            EntityCacheFactory entityCacheFactory) {
+            EntityCacheFactory entityCacheFactory,
+            AuthorizationInfoVersion authorizationInfoVersion) {
         return new CachingAccessRoleRepository(
-                new AccessRoleImplJpaRepository(jpaRepoConfig), entityCacheFactory.createCache("AccessRoleId")
+                new AccessRoleImplJpaRepository(jpaRepoConfig), entityCacheFactory.createCache("AccessRoleId"), authorizationInfoVersion
         );
     }
 
+    @Provides
+    @Singleton
+    AuthorizationInfoLoader authorizationInfoLoader(KapuaJpaTxManagerFactory jpaTxManagerFactory) {
+        return new AuthorizationInfoLoader(jpaTxManagerFactory.create("kapua-authorization"));
+    }
+
     @Provides
     @Singleton
     GroupQueryHelper groupQueryHelper(
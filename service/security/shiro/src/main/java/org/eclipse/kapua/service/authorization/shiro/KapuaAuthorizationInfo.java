@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.Permission;
+import org.eclipse.kapua.service.authorization.shiro.PermissionMapperImpl.KapuaPermission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable {@link AuthorizationInfo} of a subject, with its {@link KapuaPermission}s indexed by domain.
+ * <p>
+ * A check only evaluates the {@link KapuaPermission}s of the checked domain and the ones valid for all domains.
+ *
+ * @since 2.1.0
+ */
+public class KapuaAuthorizationInfo implements AuthorizationInfo {
+
+    private static final KapuaPermission[] NO_PERMISSIONS = new KapuaPermission[0];
+
+    private final PermissionMapperImpl permissionMapper;
+    private final Set<String> roles;
+    private final Set<Permission> objectPermissions;
+
+    // Domain names are compared ignoring the case, like Shiro wildcard permissions did
+    private final Map<String, KapuaPermission[]> permissionsByDomain = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final KapuaPermission[] allDomainsPermissions;
+    private final Permission[] otherPermissions;
+
+    /**
+     * Constructor.
+     *
+     * @param permissionMapper  The {@link PermissionMapperImpl} which mapped the {@link Permission}s.
+     * @param roles             The role names.
+     * @param objectPermissions The {@link Permission}s.
+     * @since 2.1.0
+     */
+    public KapuaAuthorizationInfo(PermissionMapperImpl permissionMapper, Collection<String> roles, Collection<Permission> objectPermissions) {
+        this.permissionMapper = permissionMapper;
+        this.roles = Collections.unmodifiableSet(new HashSet<>(roles));
+        this.objectPermissions = Collections.unmodifiableSet(new HashSet<>(objectPermissions));
+
+        Map<String, List<KapuaPermission>> permissionListsByDomain = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        List<KapuaPermission> allDomainsPermissionList = new ArrayList<>();
+        List<Permission> otherPermissionList = new ArrayList<>();
+        for (Permission permission : this.objectPermissions) {
+            if (permission instanceof KapuaPermission) {
+                KapuaPermission kapuaPermission = (KapuaPermission) permission;
+                if (kapuaPermission.getDomain() == null) {
+                    allDomainsPermissionList.add(kapuaPermission);
+                } else {
+                    permissionListsByDomain.computeIfAbsent(kapuaPermission.getDomain(), domain -> new ArrayList<>()).add(kapuaPermission);
+                }
+            } else {
+                otherPermissionList.add(permission);
+            }
+        }
+        permissionListsByDomain.forEach((domain, permissions) -> permissionsByDomain.put(domain, permissions.toArray(NO_PERMISSIONS)));
+        allDomainsPermissions = allDomainsPermissionList.toArray(NO_PERMISSIONS);
+        otherPermissions = otherPermissionList.toArray(new Permission[0]);
+    }
+
+    /**
+     * Checks whether the given {@link Permission} is implied by one of the {@link Permission}s of the subject.
+     *
+     * @param permission The {@link Permission} to check.
+     * @return {@code true} if the {@link Permission} is implied, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    public boolean isPermitted(Permission permission) {
+        if (permission instanceof KapuaPermission) {
+            KapuaPermission targetPermission = (KapuaPermission) permission;
+            String targetDomain = targetPermission.getDomain();
+            boolean targetGroupable = targetDomain == null || permissionMapper.isGroupable(targetDomain);
+
+            if (targetDomain != null && implies(permissionsByDomain.get(targetDomain), targetPermission, targetGroupable)) {
+                return true;
+            }
+            if (implies(allDomainsPermissions, targetPermission, targetGroupable)) {
+                return true;
+            }
+        }
+        for (Permission otherPermission : otherPermissions) {
+            if (otherPermission.implies(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean implies(KapuaPermission[] permissions, KapuaPermission targetPermission, boolean targetGroupable) {
+        if (permissions != null) {
+            for (KapuaPermission permission : permissions) {
+                if (permission.implies(targetPermission, targetGroupable)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Collection<String> getRoles() {
+        return roles;
+    }
+
+    @Override
+    public Collection<String> getStringPermissions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Collection<Permission> getObjectPermissions() {
+        return objectPermissions;
+    }
+}
@@ -17,40 +17,36 @@ import org.apache.shiro.ShiroException;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
-import org.apache.shiro.authc.UnknownAccountException;
 import org.apache.shiro.authz.AuthorizationInfo;
-import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.id.KapuaId;
-import org.eclipse.kapua.model.query.KapuaListResult;
-import org.eclipse.kapua.service.authorization.access.AccessInfo;
-import org.eclipse.kapua.service.authorization.access.AccessInfoAttributes;
-import org.eclipse.kapua.service.authorization.access.AccessInfoFactory;
-import org.eclipse.kapua.service.authorization.access.AccessInfoQuery;
-import org.eclipse.kapua.service.authorization.access.AccessInfoService;
-import org.eclipse.kapua.service.authorization.access.AccessPermission;
-import org.eclipse.kapua.service.authorization.access.AccessPermissionListResult;
-import org.eclipse.kapua.service.authorization.access.AccessPermissionService;
-import org.eclipse.kapua.service.authorization.access.AccessRole;
-import org.eclipse.kapua.service.authorization.access.AccessRoleListResult;
-import org.eclipse.kapua.service.authorization.access.AccessRoleService;
-import org.eclipse.kapua.service.authorization.permission.shiro.PermissionImpl;
-import org.eclipse.kapua.service.authorization.role.Role;
-import org.eclipse.kapua.service.authorization.role.RolePermission;
-import org.eclipse.kapua.service.authorization.role.RolePermissionListResult;
-import org.eclipse.kapua.service.authorization.role.RolePermissionService;
-import org.eclipse.kapua.service.authorization.role.RoleService;
+import org.eclipse.kapua.service.authorization.shiro.AuthorizationInfoLoader.UserAuthorization;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSetting;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSettingKeys;
 import org.eclipse.kapua.service.user.User;
 import org.eclipse.kapua.service.user.UserService;
+import org.eclipse.kapua.service.user.UserStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The JPA-based application's one and only configured Apache Shiro Realm.
+ * <p>
+ * The {@link AuthorizationInfo} of a user is loaded in bulk by the {@link AuthorizationInfoLoader} and cached by user id,
+ * until it expires or the {@link AuthorizationInfoVersion} changes. The user is looked up at each authorization,
+ * so a deleted or disabled user is never authorized by a cached {@link AuthorizationInfo}.
+ * <p>
+ * The {@link AuthorizationInfoVersion} only tracks the changes made by this node: a change of the authorization data made by another node
+ * (e.g. a revoked permission) applies here once the cached {@link AuthorizationInfo}s expire, that is within {@link KapuaAuthorizationSettingKeys#AUTHORIZATION_INFO_CACHE_TTL}.
  */
 public class KapuaAuthorizingRealm extends AuthorizingRealm {
 
@@ -58,12 +54,40 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
 
     public static final String REALM_NAME = "kapuaAuthorizingRealm";
 
-    private final PermissionMapper permissionMapper;
+    private final PermissionMapperImpl permissionMapper;
+    private final AuthorizationInfoLoader authorizationInfoLoader;
+    private final AuthorizationInfoVersion authorizationInfoVersion;
+    private final LocalCache<KapuaId, VersionedAuthorizationInfo> authorizationInfoCache;
+    private UserService userService;
 
     public KapuaAuthorizingRealm() throws KapuaException {
         setName(REALM_NAME);
 
-        permissionMapper = KapuaLocator.getInstance().getComponent(PermissionMapperImpl.class);
+        KapuaLocator locator = KapuaLocator.getInstance();
+        permissionMapper = locator.getComponent(PermissionMapperImpl.class);
+        authorizationInfoLoader = locator.getComponent(AuthorizationInfoLoader.class);
+        authorizationInfoVersion = locator.getComponent(AuthorizationInfoVersion.class);
+
+        KapuaAuthorizationSetting kapuaAuthorizationSetting = locator.getComponent(KapuaAuthorizationSetting.class);
+        int cacheTtl = kapuaAuthorizationSetting.getInt(KapuaAuthorizationSettingKeys.AUTHORIZATION_INFO_CACHE_TTL, 10);
+        authorizationInfoCache = cacheTtl > 0 ?
+                new LocalCache<>(kapuaAuthorizationSetting.getInt(KapuaAuthorizationSettingKeys.AUTHORIZATION_INFO_CACHE_SIZE, 1000), cacheTtl, null) :
+                null;
+    }
+
+    KapuaAuthorizingRealm(PermissionMapperImpl permissionMapper,
+                          AuthorizationInfoLoader authorizationInfoLoader,
+                          AuthorizationInfoVersion authorizationInfoVersion,
+                          UserService userService,
+                          int cacheSize,
+                          int cacheTtl) {
+        setName(REALM_NAME);
+
+        this.permissionMapper = permissionMapper;
+        this.authorizationInfoLoader = authorizationInfoLoader;
+        this.authorizationInfoVersion = authorizationInfoVersion;
+        this.userService = userService;
+        this.authorizationInfoCache = cacheTtl > 0 ? new LocalCache<>(cacheSize, cacheTtl, null) : null;
     }
 
     /**
@@ -73,15 +97,11 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
     protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals)
             throws AuthenticationException {
         // Extract principal
-        String username = ((User) principals.getPrimaryPrincipal()).getName();
+        User principal = (User) principals.getPrimaryPrincipal();
+        String username = principal.getName();
         logger.debug("Getting authorization info for: {}", username);
-        // Get Services
-        KapuaLocator locator = KapuaLocator.getInstance();
-
-        UserService userService = locator.getService(UserService.class);
-        AccessInfoService accessInfoService = locator.getService(AccessInfoService.class);
-        AccessInfoFactory accessInfoFactory = locator.getFactory(AccessInfoFactory.class);
-        // Get the associated user by name
+        // Get the associated user by name, also when the authorization info is cached
+        UserService userService = getUserService();
         final User user;
         try {
             user = KapuaSecurityUtils.doPrivileged(() -> userService.findByName(username));
@@ -90,95 +110,56 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
         } catch (Exception e) {
             throw new ShiroException("Error while find user!", e);
         }
-        // Check existence
-        if (user == null) {
+        // Check existence and status
+        if (user == null || user.getStatus() == UserStatus.DISABLED) {
             SecurityUtils.getSubject().logout();
 
             throw new AuthenticationException();
         }
-        // Get user access infos
-        AccessInfoQuery accessInfoQuery = accessInfoFactory.newQuery(user.getScopeId());
-        accessInfoQuery.setPredicate(accessInfoQuery.attributePredicate(AccessInfoAttributes.USER_ID, user.getId()));
-
-        final KapuaListResult<AccessInfo> accessInfos;
+        // The version must be read before loading, so that a change made while loading invalidates the loaded info
+        long version = authorizationInfoVersion.get();
+        if (authorizationInfoCache != null) {
+            VersionedAuthorizationInfo cached = authorizationInfoCache.get(user.getId());
+            if (cached != null && cached.version == version) {
+                return cached.authorizationInfo;
+            }
+        }
+        // Get user roles and permissions, from both the access permissions and the roles
+        final UserAuthorization userAuthorization;
         try {
-            accessInfos = KapuaSecurityUtils.doPrivileged(() -> accessInfoService.query(accessInfoQuery));
-        } catch (AuthenticationException e) {
-            throw e;
+            userAuthorization = authorizationInfoLoader.load(user.getScopeId(), user.getId());
         } catch (Exception e) {
-            throw new ShiroException("Error while find access info!", e);
+            throw new ShiroException("Error while loading authorization info!", e);
         }
-        // Check existence
-        if (accessInfos == null) {
-            throw new UnknownAccountException();
+        List<Permission> permissions = new ArrayList<>(userAuthorization.getPermissions().size());
+        for (org.eclipse.kapua.service.authorization.permission.Permission p : userAuthorization.getPermissions()) {
+            logger.trace("User: {} has permission: {}", username, p);
+            permissions.add(permissionMapper.mapPermission(p));
         }
-        // Create SimpleAuthorizationInfo with principals permissions
-        SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
-
-        // Get user roles set and related permissions
-        for (AccessInfo accessInfo : accessInfos.getItems()) {
-
-            // Access Permissions
-            AccessPermissionService accessPermissionService = locator.getService(AccessPermissionService.class);
-            AccessPermissionListResult accessPermissions;
-            try {
-                accessPermissions = KapuaSecurityUtils.doPrivileged(() -> accessPermissionService.findByAccessInfoId(accessInfo.getScopeId(), accessInfo.getId()));
-            } catch (AuthenticationException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new ShiroException("Error while find access permissions!", e);
-            }
-
-            for (AccessPermission accessPermission : accessPermissions.getItems()) {
-                PermissionImpl p = accessPermission.getPermission();
-                logger.trace("User: {} has permission: {}", username, p);
-                info.addObjectPermission(permissionMapper.mapPermission(p));
-            }
+        // Return authorization info, indexed for the permission checks
+        KapuaAuthorizationInfo authorizationInfo = new KapuaAuthorizationInfo(permissionMapper, userAuthorization.getRoleNames(), permissions);
+        if (authorizationInfoCache != null) {
+            authorizationInfoCache.put(user.getId(), new VersionedAuthorizationInfo(version, authorizationInfo));
+        }
+        return authorizationInfo;
+    }
 
-            // Access Role Id
-            AccessRoleService accessRoleService = locator.getService(AccessRoleService.class);
-            AccessRoleListResult accessRoles;
-            try {
-                accessRoles = KapuaSecurityUtils.doPrivileged(() -> accessRoleService.findByAccessInfoId(accessInfo.getScopeId(), accessInfo.getId()));
-            } catch (AuthenticationException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new ShiroException("Error while find access role ids!", e);
-            }
+    private UserService getUserService() {
+        if (userService == null) {
+            userService = KapuaLocator.getInstance().getService(UserService.class);
+        }
+        return userService;
+    }
 
-            RoleService roleService = locator.getService(RoleService.class);
-            RolePermissionService rolePermissionService = locator.getService(RolePermissionService.class);
-            for (AccessRole accessRole : accessRoles.getItems()) {
-
-                KapuaId roleId = accessRole.getRoleId();
-
-                Role role;
-                try {
-                    role = KapuaSecurityUtils.doPrivileged(() -> roleService.find(accessRole.getScopeId(), roleId));
-                } catch (AuthenticationException e) {
-                    throw e;
-                } catch (Exception e) {
-                    throw new ShiroException("Error while find role ids!", e);
-                }
-
-                info.addRole(role.getName());
-                final RolePermissionListResult rolePermissions;
-                try {
-                    rolePermissions = KapuaSecurityUtils.doPrivileged(() -> rolePermissionService.findByRoleId(role.getScopeId(), role.getId()));
-                } catch (Exception e) {
-                    throw new ShiroException("Error while find role permission!", e);
-                }
-
-                for (RolePermission rolePermission : rolePermissions.getItems()) {
-
-                    PermissionImpl p = rolePermission.getPermission();
-                    logger.trace("Role: {} has permission: {}", role, p);
-                    info.addObjectPermission(permissionMapper.mapPermission(p));
-                }
-            }
+    /**
+     * Checks the {@link Permission} against the index of the {@link KapuaAuthorizationInfo}, instead of evaluating all the {@link Permission}s of the subject.
+     */
+    @Override
+    protected boolean isPermitted(Permission permission, AuthorizationInfo info) {
+        if (info instanceof KapuaAuthorizationInfo) {
+            return ((KapuaAuthorizationInfo) info).isPermitted(permission);
         }
-        // Return authorization info
-        return info;
+        return super.isPermitted(permission, info);
     }
 
     /**
@@ -198,4 +179,17 @@ public class KapuaAuthorizingRealm extends AuthorizingRealm {
         return null;
     }
 
+    /**
+     * A cached {@link AuthorizationInfo} with the {@link AuthorizationInfoVersion} it was loaded at.
+     */
+    private static class VersionedAuthorizationInfo {
+
+        private final long version;
+        private final AuthorizationInfo authorizationInfo;
+
+        private VersionedAuthorizationInfo(long version, AuthorizationInfo authorizationInfo) {
+            this.version = version;
+            this.authorizationInfo = authorizationInfo;
+        }
+    }
 }
@@ -14,11 +14,10 @@ package org.eclipse.kapua.service.authorization.shiro;
 
 import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.UnauthorizedException;
-import org.apache.shiro.authz.permission.WildcardPermission;
 import org.apache.shiro.subject.Subject;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaRuntimeException;
-import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.cache.LocalCache;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.model.KapuaEntity;
 import org.eclipse.kapua.model.KapuaEntityCreator;
@@ -31,18 +30,33 @@ import org.eclipse.kapua.service.account.AccountService;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.domain.DomainRegistryService;
 import org.eclipse.kapua.service.authorization.group.Group;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSetting;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSettingKeys;
 
 import javax.inject.Inject;
-import java.util.Optional;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PermissionMapperImpl implements PermissionMapper {
+
+    private static final String NO_PARENT_ACCOUNT_PATH = "";
+
     private final DomainRegistryService domainService;
     private final AccountService accountService;
 
+    // Domains are registered at startup and never change afterwards
+    private final Map<String, Boolean> groupableByDomain = new ConcurrentHashMap<>();
+    private final LocalCache<KapuaId, String> parentAccountPathByScopeId;
+
     @Inject
-    public PermissionMapperImpl(DomainRegistryService domainService, AccountService accountService) {
+    public PermissionMapperImpl(DomainRegistryService domainService, AccountService accountService, KapuaAuthorizationSetting kapuaAuthorizationSetting) {
         this.domainService = domainService;
         this.accountService = accountService;
+        this.parentAccountPathByScopeId = new LocalCache<>(
+                kapuaAuthorizationSetting.getInt(KapuaAuthorizationSettingKeys.AUTHORIZATION_ACCOUNT_PATH_CACHE_SIZE, 1000),
+                kapuaAuthorizationSetting.getInt(KapuaAuthorizationSettingKeys.AUTHORIZATION_ACCOUNT_PATH_CACHE_TTL, 60),
+                null);
     }
 
     @Override
@@ -50,12 +64,66 @@ public class PermissionMapperImpl implements PermissionMapper {
         return new KapuaPermission(permission.getDomain(), permission.getAction(), permission.getTargetScopeId(), permission.getGroupId(), permission.getForwardable());
     }
 
-    public class KapuaPermission extends WildcardPermission implements org.eclipse.kapua.service.authorization.permission.Permission, Permission {
-        private String domain;
-        private Actions action;
-        private KapuaId targetScopeId;
-        private KapuaId groupId;
-        private boolean forwardable;
+    /**
+     * Checks whether the given domain is {@link org.eclipse.kapua.service.authorization.domain.Domain#getGroupable()}.
+     *
+     * @param domain The domain name.
+     * @return {@code true} if the domain is groupable or unknown, {@code false} otherwise.
+     * @since 2.1.0
+     */
+    boolean isGroupable(String domain) {
+        Boolean groupable = groupableByDomain.get(domain);
+        if (groupable == null) {
+            try {
+                org.eclipse.kapua.service.authorization.domain.Domain domainDefinition = KapuaSecurityUtils.doPrivileged(() -> domainService.findByName(domain));
+                if (domainDefinition == null) {
+                    // Not cached: the domain may be registered later on
+                    return true;
+                }
+                groupable = domainDefinition.getGroupable();
+                groupableByDomain.put(domain, groupable);
+            } catch (Exception e) {
+                throw KapuaRuntimeException.internalError(e, "Error while resolving target Permission.domain: " + domain);
+            }
+        }
+        return groupable;
+    }
+
+    private String getParentAccountPath(KapuaId scopeId) {
+        String parentAccountPath = parentAccountPathByScopeId.get(scopeId);
+        if (parentAccountPath == null) {
+            try {
+                Account account = KapuaSecurityUtils.doPrivileged(() -> accountService.find(scopeId));
+                parentAccountPath = account != null && account.getScopeId() != null && account.getParentAccountPath() != null ? account.getParentAccountPath() : NO_PARENT_ACCOUNT_PATH;
+            } catch (KapuaException e) {
+                throw KapuaRuntimeException.internalError(e, "Error while forwarding target Permission to scope: " + scopeId);
+            }
+            parentAccountPathByScopeId.put(scopeId, parentAccountPath);
+        }
+        return parentAccountPath;
+    }
+
+    /**
+     * Immutable Shiro {@link Permission} compiled from a {@link org.eclipse.kapua.service.authorization.permission.Permission}.
+     * <p>
+     * The parts of the {@link Permission} are checked directly (a {@code null} part matches anything): no wildcard string is built nor parsed,
+     * and the evaluation never changes the {@link Permission}, so it can be shared by concurrent checks.
+     * <p>
+     * It only exposes the getters of the parts: the mutable {@link org.eclipse.kapua.service.authorization.permission.Permission}s of the creators and
+     * of the JAXB bindings are compiled by {@link PermissionMapperImpl#mapPermission(org.eclipse.kapua.service.authorization.permission.Permission)}.
+     *
+     * @since 1.0.0
+     */
+    public class KapuaPermission implements Permission {
+        private final String domain;
+        private final Actions action;
+        private final KapuaId targetScopeId;
+        private final KapuaId groupId;
+        private final boolean forwardable;
+
+        private final BigInteger targetScopeIdValue;
+        private final BigInteger groupIdValue;
+        private final String targetScopeIdPathSegment;
 
         public KapuaPermission(String domain, Actions action, KapuaId targetScopeId, KapuaId groupId, boolean forwardable) {
             this.domain = domain;
@@ -63,7 +131,10 @@ public class PermissionMapperImpl implements PermissionMapper {
             this.targetScopeId = targetScopeId;
             this.groupId = groupId;
             this.forwardable = forwardable;
-            setParts(toString());
+
+            targetScopeIdValue = targetScopeId != null ? targetScopeId.getId() : null;
+            groupIdValue = groupId != null ? groupId.getId() : null;
+            targetScopeIdPathSegment = targetScopeId != null ? "/" + targetScopeId.toStringId() + "/" : null;
         }
 
         @Override
@@ -148,70 +219,59 @@ public class PermissionMapperImpl implements PermissionMapper {
          * A lookup of {@link Account#getParentAccountPath()} will be required to search if the current user scope id is
          * one of the parent of the given {@link org.eclipse.kapua.service.authorization.permission.Permission#getTargetScopeId()}
          * </p>
+         * <p>
+         * The domain groupability and the parent account paths are cached by the {@link PermissionMapperImpl}.
+         * </p>
          *
          * @since 1.0.0
          */
         @Override
         public boolean implies(Permission shiroPermission) {
-
-            org.eclipse.kapua.service.authorization.permission.Permission targetPermission = (org.eclipse.kapua.service.authorization.permission.Permission) shiroPermission;
-
-            // Check target Permission domain
-            checkTargetPermissionIsGroupable(targetPermission);
-
-            // If checked Permission ask for ANY targetScopeId, promote this Permission.targetScopeId to `null` (a.k.a. ALL scopes).
-            if (KapuaId.ANY.equals(targetPermission.getTargetScopeId())) {
-                this.setTargetScopeId(null);
-            }
-
-            // If checked Permission ask for ANY groupId, promote this Permission.groupId to `null` (a.k.a. ALL groups).
-            if (Group.ANY.equals(targetPermission.getGroupId())) {
-                this.setGroupId(null);
-            }
-
-            // Set part of the Shiro Permission to then run 'implies' with the target Permission
-            this.setParts(this.toString());
-
-            boolean implies = super.implies(shiroPermission);
-
-            // If it fails try forward permission if this Permission is forwardable
-            if (!implies && targetPermission.getTargetScopeId() != null && this.getForwardable()) {
-                implies = forwardPermission(shiroPermission);
+            if (!(shiroPermission instanceof KapuaPermission)) {
+                return false;
             }
+            KapuaPermission targetPermission = (KapuaPermission) shiroPermission;
 
-            // Return result
-            return implies;
+            return implies(targetPermission, targetPermission.getDomain() == null || isGroupable(targetPermission.getDomain()));
         }
 
         /**
-         * Checks whether the given {@link org.eclipse.kapua.service.authorization.permission.Permission#getDomain()} is {@link org.eclipse.kapua.service.authorization.domain.Domain#getGroupable()}.
-         * <p>
-         * If it is, promotes this {@link org.eclipse.kapua.service.authorization.permission.Permission#getGroupId()} to {@code null} (a.k.a. ALL groups).
+         * Checks {@code this} Permission against the given {@link KapuaPermission}, whose domain groupability is already known.
          *
-         * @param targetPermission The target {@link Permission} to check.
-         * @since 2.0.0
+         * @param targetPermission The target {@link KapuaPermission} to check.
+         * @param targetGroupable  Whether the domain of the target {@link KapuaPermission} is groupable.
+         * @return {@code true} if this permission implies the target one, {@code false} otherwise.
+         * @since 2.1.0
          */
-        private void checkTargetPermissionIsGroupable(org.eclipse.kapua.service.authorization.permission.Permission targetPermission) {
-            if (targetPermission.getDomain() != null) {
-                try {
-                    org.eclipse.kapua.service.authorization.domain.Domain domainDefinition = KapuaSecurityUtils.doPrivileged(() -> domainService.findByName(targetPermission.getDomain()));
-
-                    if (Optional.ofNullable(domainDefinition).map(d -> !d.getGroupable()).orElse(false)) {
-                        this.setGroupId(null);
-                    }
-                } catch (Exception e) {
-                    throw KapuaRuntimeException.internalError(e, "Error while resolving target Permission.domain: " + targetPermission.getDomain());
-                }
+        boolean implies(KapuaPermission targetPermission, boolean targetGroupable) {
+            if (domain != null && !domain.equalsIgnoreCase(targetPermission.getDomain())) {
+                return false;
             }
+            if (action != null && action != targetPermission.getAction()) {
+                return false;
+            }
+
+            // If the target domain is not groupable or the checked Permission asks for ANY groupId, this Permission.groupId is like `null` (a.k.a. ALL groups).
+            if (groupIdValue != null && targetGroupable && !Group.ANY.equals(targetPermission.getGroupId()) && !isSameId(groupIdValue, targetPermission.getGroupId())) {
+                return false;
+            }
+
+            // If the checked Permission asks for ANY targetScopeId, this Permission.targetScopeId is like `null` (a.k.a. ALL scopes).
+            KapuaId targetPermissionScopeId = targetPermission.getTargetScopeId();
+            if (targetScopeIdValue == null || KapuaId.ANY.equals(targetPermissionScopeId) || isSameId(targetScopeIdValue, targetPermissionScopeId)) {
+                return true;
+            }
+
+            // If it fails try forward permission if this Permission is forwardable
+            return targetPermissionScopeId != null && forwardable && forwardPermission(targetPermissionScopeId);
         }
 
         /**
-         * Checks {@code this} Permission against the given {@link Permission} parameter.
+         * Checks whether the given target scope id is a child of {@link #getTargetScopeId()}.
          * <p>
-         * It tries to forward {@code this} Permission to the {@link #getTargetScopeId()} of the given {@link Permission} parameter.<br>
          * This means that if the required permission has scope id 'B' and {@code this} {@link Permission} has scope id 'A',
-         * this methods search the {@link Account#getParentAccountPath()} of the scope id 'B' and checks the {@link Permission} forwarding {@code this} Permission
-         * to the same level of the given {@link Permission}.
+         * this methods search the {@link Account#getParentAccountPath()} of the scope id 'B' and checks whether 'A' is one of its parents,
+         * which forwards {@code this} {@link Permission} to the same level of the given {@link Permission}.
          * </p>
          * <p>
          * <h3>Example:</h3>
@@ -219,67 +279,34 @@ public class PermissionMapperImpl implements PermissionMapper {
          * Account 'A' has a child account 'B', then 'B' has this parent account path: '/A/B';
          * User 'A' tries to access a resource of account 'B' an the direct check {@link Permission#implies(Permission)} fails.
          * So this method searches the parent account path of account 'B', found that 'A' is a parent of 'B'
-         * so then {@code this} {@link Permission} is checked again with 'B' as scopeId.
+         * so then {@code this} {@link Permission} is valid when forwarded to 'B'.
          * </p>
          *
-         * @param shiroPermission The permission to check against.
-         * @return {@code true} if this permission is forward-able and is valid when forwarded, {@code false otherwise}
+         * @param targetPermissionScopeId The target scope id of the permission to check against.
+         * @return {@code true} if this permission is valid when forwarded, {@code false otherwise}
          * @since 1.0.0
          */
-        private boolean forwardPermission(Permission shiroPermission) {
-            org.eclipse.kapua.service.authorization.permission.Permission targetPermission = (org.eclipse.kapua.service.authorization.permission.Permission) shiroPermission;
-
-            try {
-                Account account = KapuaSecurityUtils.doPrivileged(() -> accountService.find(targetPermission.getTargetScopeId()));
-
-                if (account != null && account.getScopeId() != null) {
-                    String parentAccountPath = account.getParentAccountPath();
-
-                    // If it doesn't contain the scope id in the parent, don't even try to check against
-                    if (parentAccountPath.contains("/" + getTargetScopeId().toStringId() + "/")) {
-                        this.setTargetScopeId(targetPermission.getTargetScopeId());
-                        this.setParts(this.toString());
-
-                        return super.implies(shiroPermission);
-                    }
-                }
-            } catch (KapuaException e) {
-                throw KapuaRuntimeException.internalError(e, "Error while forwarding target Permission: " + shiroPermission);
-            }
-
-            return false;
+        private boolean forwardPermission(KapuaId targetPermissionScopeId) {
+            // If it doesn't contain the scope id in the parent, don't even try to check against
+            return getParentAccountPath(targetPermissionScopeId).contains(targetScopeIdPathSegment);
         }
 
-
-        @Override
-        public void setDomain(String domain) {
-            this.domain = domain;
+        private boolean isSameId(BigInteger id, KapuaId kapuaId) {
+            return kapuaId != null && id.equals(kapuaId.getId());
         }
 
         public String getDomain() {
             return domain;
         }
 
-        public void setAction(Actions action) {
-            this.action = action;
-        }
-
         public Actions getAction() {
             return action;
         }
 
-        public void setTargetScopeId(KapuaId targetScopeId) {
-            this.targetScopeId = KapuaEid.parseKapuaId(targetScopeId);
-        }
-
         public KapuaId getTargetScopeId() {
             return targetScopeId;
         }
 
-        public void setGroupId(KapuaId groupId) {
-            this.groupId = KapuaEid.parseKapuaId(groupId);
-        }
-
         public KapuaId getGroupId() {
             return groupId;
         }
@@ -288,10 +315,6 @@ public class PermissionMapperImpl implements PermissionMapper {
             return forwardable;
         }
 
-        public void setForwardable(boolean forwardable) {
-            this.forwardable = forwardable;
-        }
-
     }
 
 }
@@ -20,7 +20,11 @@ import org.eclipse.kapua.commons.setting.SettingKey;
  */
 public enum KapuaAuthorizationSettingKeys implements SettingKey {
     AUTHORIZATION_KEY("authorization.key"),
-    AUTHORIZATION_EVENT_ADDRESS("authorization.eventAddress");
+    AUTHORIZATION_EVENT_ADDRESS("authorization.eventAddress"),
+    AUTHORIZATION_ACCOUNT_PATH_CACHE_SIZE("authorization.account_path.cache.size"),
+    AUTHORIZATION_ACCOUNT_PATH_CACHE_TTL("authorization.account_path.cache.ttl"),
+    AUTHORIZATION_INFO_CACHE_SIZE("authorization.info.cache.size"),
+    AUTHORIZATION_INFO_CACHE_TTL("authorization.info.cache.ttl");
 
     private String key;
 
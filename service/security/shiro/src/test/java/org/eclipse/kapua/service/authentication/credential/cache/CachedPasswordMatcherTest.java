@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.credential.cache;
+
+import com.codahale.metrics.Counter;
+import org.eclipse.kapua.commons.metric.MetricsService;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.authentication.credential.Credential;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSettingKeys;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Category(JUnitTests.class)
+public class CachedPasswordMatcherTest {
+
+    private static final String PASSWORD = "Kapua-Password-1";
+
+    private CacheMetric cacheMetric;
+    private CachedPasswordMatcher cachedPasswordMatcher;
+    private Credential credential;
+    private Counter cacheHit;
+
+    @Before
+    public void initialize() throws Exception {
+        MetricsService metricsService = Mockito.mock(MetricsService.class, (Answer<Object>) invocation -> invocation.getMethod().getReturnType() == Counter.class ? new Counter() : null);
+        cacheMetric = new CacheMetric(metricsService, "test");
+        cacheHit = cacheMetric.getCacheHit();
+        cachedPasswordMatcher = new CachedPasswordMatcher(cacheMetric, new KapuaAuthenticationSetting());
+
+        credential = Mockito.mock(Credential.class);
+        Mockito.when(credential.getCredentialKey()).thenReturn(BCrypt.hashpw(PASSWORD, BCrypt.gensalt(10)));
+        Mockito.when(credential.getModifiedOn()).thenReturn(new Date());
+    }
+
+    @Test
+    public void checkPasswordTest() {
+        Assert.assertFalse(cachedPasswordMatcher.checkPassword("user", "wrong", credential));
+        Assert.assertTrue(cachedPasswordMatcher.checkPassword("user", PASSWORD, credential));
+        Assert.assertEquals(0, cacheHit.getCount());
+        Assert.assertTrue(cachedPasswordMatcher.checkPassword("user", PASSWORD, credential));
+        Assert.assertEquals(1, cacheHit.getCount());
+        Assert.assertFalse(cachedPasswordMatcher.checkPassword("user", "wrong", credential));
+    }
+
+    @Test
+    public void checkPasswordConcurrentTest() throws Exception {
+        KapuaAuthenticationSetting kapuaAuthenticationSetting = Mockito.spy(new KapuaAuthenticationSetting());
+        Mockito.doReturn(2).when(kapuaAuthenticationSetting).getInt(KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_VERIFICATION_CONCURRENCY, 0);
+        AtomicInteger runningChecks = new AtomicInteger();
+        AtomicInteger maxRunningChecks = new AtomicInteger();
+        CountDownLatch releaseChecks = new CountDownLatch(1);
+        cachedPasswordMatcher = new CachedPasswordMatcher(cacheMetric, kapuaAuthenticationSetting) {
+
+            @Override
+            boolean checkPasswordHash(String tokenPassword, String credentialKey) {
+                maxRunningChecks.accumulateAndGet(runningChecks.incrementAndGet(), Math::max);
+                try {
+                    releaseChecks.await(10, TimeUnit.SECONDS);
+                    return super.checkPasswordHash(tokenPassword, credentialKey);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    runningChecks.decrementAndGet();
+                }
+            }
+        };
+
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> rightChecks = new ArrayList<>();
+            List<Future<Boolean>> wrongChecks = new ArrayList<>();
+            for (int i = 0; i < threads / 2; i++) {
+                rightChecks.add(executorService.submit(checkAfter(start, PASSWORD)));
+                wrongChecks.add(executorService.submit(checkAfter(start, "wrong-" + i)));
+            }
+            start.countDown();
+
+            // The checks of the right password are shared, while the 5 distinct checks wait for the 2 permits
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while ((cacheMetric.getCheckShared().getCount() < 3 || runningChecks.get() < 2) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(2, runningChecks.get());
+            releaseChecks.countDown();
+
+            for (Future<Boolean> rightCheck : rightChecks) {
+                Assert.assertTrue(rightCheck.get());
+            }
+            for (Future<Boolean> wrongCheck : wrongChecks) {
+                Assert.assertFalse(wrongCheck.get());
+            }
+            Assert.assertEquals(3, cacheMetric.getCheckShared().getCount());
+            Assert.assertEquals(2, maxRunningChecks.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private Callable<Boolean> checkAfter(CountDownLatch start, String password) {
+        return () -> {
+            start.await();
+            return cachedPasswordMatcher.checkPassword("user", password, credential);
+        };
+    }
+}
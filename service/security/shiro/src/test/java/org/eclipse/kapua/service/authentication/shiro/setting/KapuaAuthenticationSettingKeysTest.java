@@ -29,6 +29,7 @@ public class KapuaAuthenticationSettingKeysTest {
         Assert.assertEquals("Expected and actual values should be the same.", "authentication.session.jwt.issuer", KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_ISSUER.key());
         Assert.assertEquals("Expected and actual values should be the same.", "authentication.session.jwt.cache.enabled", KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_CACHE_ENABLE.key());
         Assert.assertEquals("Expected and actual values should be the same.", "authentication.session.jwt.cache.ttl", KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_CACHE_CACHE_TTL.key());
+        Assert.assertEquals("Expected and actual values should be the same.", "authentication.session.jwt.cache.size", KapuaAuthenticationSettingKeys.AUTHENTICATION_SESSION_JWT_CACHE_CACHE_SIZE.key());
         Assert.assertEquals("Expected and actual values should be the same.", "authentication.credential.userpass.cache.enabled", KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_ENABLE.key());
         Assert.assertEquals("Expected and actual values should be the same.", "authentication.credential.userpass.cache.ttl", KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_CACHE_CACHE_TTL.key());
         Assert.assertEquals("Expected and actual values should be the same.", "authentication.credential.userpass.password.minlength", KapuaAuthenticationSettingKeys.AUTHENTICATION_CREDENTIAL_USERPASS_PASSWORD_MINLENGTH.key());
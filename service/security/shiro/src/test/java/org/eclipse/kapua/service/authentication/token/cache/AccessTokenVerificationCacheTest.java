@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authentication.token.cache;
+
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.authentication.shiro.setting.KapuaAuthenticationSetting;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(JUnitTests.class)
+public class AccessTokenVerificationCacheTest {
+
+    private static final String JWT = "header.payload.signature";
+
+    private AccessTokenVerificationCache accessTokenVerificationCache;
+
+    @Before
+    public void initialize() {
+        accessTokenVerificationCache = new AccessTokenVerificationCache(new KapuaAuthenticationSetting());
+    }
+
+    @Test
+    public void getVerifiedTest() {
+        Assert.assertNull(accessTokenVerificationCache.getVerified(JWT));
+
+        JwtClaims jwtClaims = jwtClaims(10);
+        accessTokenVerificationCache.putVerified(JWT, jwtClaims, accessTokenVerificationCache.getStamp());
+
+        AccessTokenVerificationCache.VerifiedAccessToken verifiedAccessToken = accessTokenVerificationCache.getVerified(JWT);
+        Assert.assertNotNull(verifiedAccessToken);
+        Assert.assertSame(jwtClaims, verifiedAccessToken.getJwtClaims());
+        Assert.assertNull(accessTokenVerificationCache.getVerified(JWT + "x"));
+    }
+
+    @Test
+    public void getVerifiedExpiredTest() {
+        accessTokenVerificationCache.putVerified(JWT, jwtClaims(-1), accessTokenVerificationCache.getStamp());
+        Assert.assertNull(accessTokenVerificationCache.getVerified(JWT));
+    }
+
+    @Test
+    public void invalidateTest() {
+        accessTokenVerificationCache.putVerified(JWT, jwtClaims(10), accessTokenVerificationCache.getStamp());
+        accessTokenVerificationCache.invalidate(JWT);
+        Assert.assertNull(accessTokenVerificationCache.getVerified(JWT));
+    }
+
+    @Test
+    public void verificationStartedBeforeInvalidateIsNotCachedTest() {
+        // A realm thread reads the access token, then the access token is invalidated
+        long stamp = accessTokenVerificationCache.getStamp();
+        accessTokenVerificationCache.invalidate(JWT);
+
+        accessTokenVerificationCache.putVerified(JWT, jwtClaims(10), stamp);
+        Assert.assertNull(accessTokenVerificationCache.getVerified(JWT));
+
+        // A verification started after the invalidation is cached
+        accessTokenVerificationCache.putVerified(JWT, jwtClaims(10), accessTokenVerificationCache.getStamp());
+        Assert.assertNotNull(accessTokenVerificationCache.getVerified(JWT));
+    }
+
+    @Test
+    public void invalidateOfAnotherJwtDoesNotPreventCachingTest() {
+        long stamp = accessTokenVerificationCache.getStamp();
+        accessTokenVerificationCache.invalidate(JWT + "x");
+
+        accessTokenVerificationCache.putVerified(JWT, jwtClaims(10), stamp);
+        Assert.assertNotNull(accessTokenVerificationCache.getVerified(JWT));
+    }
+
+    private JwtClaims jwtClaims(float expiresInMinutes) {
+        JwtClaims jwtClaims = new JwtClaims();
+        jwtClaims.setSubject("subject");
+        NumericDate expirationTime = NumericDate.now();
+        expirationTime.addSeconds((long) (expiresInMinutes * 60));
+        jwtClaims.setExpirationTime(expirationTime);
+        return jwtClaims;
+    }
+}
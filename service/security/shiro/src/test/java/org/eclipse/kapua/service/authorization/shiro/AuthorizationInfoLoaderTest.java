@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import org.eclipse.kapua.commons.jpa.JpaTxContext;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.domain.Actions;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessInfoImpl;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessPermissionImpl;
+import org.eclipse.kapua.service.authorization.access.shiro.AccessRoleImpl;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+import org.eclipse.kapua.service.authorization.permission.shiro.PermissionImpl;
+import org.eclipse.kapua.service.authorization.role.shiro.RoleImpl;
+import org.eclipse.kapua.service.authorization.role.shiro.RolePermissionImpl;
+import org.eclipse.kapua.storage.TxManagerImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Category(JUnitTests.class)
+public class AuthorizationInfoLoaderTest {
+
+    private static final KapuaId SCOPE_ID = KapuaId.ONE;
+    private static final KapuaId USER_ID = new KapuaEid(BigInteger.valueOf(10));
+    private static final KapuaId OTHER_USER_ID = new KapuaEid(BigInteger.valueOf(11));
+
+    private EntityManagerFactory entityManagerFactory;
+    private AuthorizationInfoLoader authorizationInfoLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.driver", "org.h2.Driver");
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:authorizationInfoLoader;DB_CLOSE_DELAY=-1");
+        properties.put("javax.persistence.jdbc.user", "sa");
+        properties.put("javax.persistence.jdbc.password", "");
+        properties.put("eclipselink.ddl-generation", "drop-and-create-tables");
+        properties.put("eclipselink.ddl-generation.output-mode", "database");
+        entityManagerFactory = Persistence.createEntityManagerFactory("kapua-authorization", properties);
+        authorizationInfoLoader = new AuthorizationInfoLoader(new TxManagerImpl(() -> new JpaTxContext(entityManagerFactory), 0));
+
+        // The user has a permission of its own and the permissions of one of the two roles
+        AccessInfoImpl accessInfo = persist(accessInfo(USER_ID));
+        persist(accessPermission(accessInfo, new PermissionImpl("device", Actions.read, SCOPE_ID, null)));
+        RoleImpl assignedRole = persist(role("assigned"));
+        persist(rolePermission(assignedRole, new PermissionImpl("user", Actions.write, SCOPE_ID, null)));
+        persist(rolePermission(assignedRole, new PermissionImpl("job", Actions.execute, SCOPE_ID, null)));
+        persist(accessRole(accessInfo, assignedRole));
+        RoleImpl notAssignedRole = persist(role("not-assigned"));
+        persist(rolePermission(notAssignedRole, new PermissionImpl("account", Actions.delete, SCOPE_ID, null)));
+
+        AccessInfoImpl otherAccessInfo = persist(accessInfo(OTHER_USER_ID));
+        persist(accessPermission(otherAccessInfo, new PermissionImpl("tag", Actions.read, SCOPE_ID, null)));
+        persist(accessRole(otherAccessInfo, notAssignedRole));
+    }
+
+    @After
+    public void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    public void loadsOwnAndRolePermissions() throws Exception {
+        AuthorizationInfoLoader.UserAuthorization userAuthorization = authorizationInfoLoader.load(SCOPE_ID, USER_ID);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("assigned")), userAuthorization.getRoleNames());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("device:read", "user:write", "job:execute")), permissions(userAuthorization));
+        Assert.assertEquals(3, userAuthorization.getPermissions().size());
+    }
+
+    @Test
+    public void loadsOnlyTheUserAuthorization() throws Exception {
+        AuthorizationInfoLoader.UserAuthorization userAuthorization = authorizationInfoLoader.load(SCOPE_ID, OTHER_USER_ID);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("not-assigned")), userAuthorization.getRoleNames());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("tag:read", "account:delete")), permissions(userAuthorization));
+    }
+
+    @Test
+    public void loadsNothingForUserWithoutAccessInfo() throws Exception {
+        AuthorizationInfoLoader.UserAuthorization userAuthorization = authorizationInfoLoader.load(SCOPE_ID, new KapuaEid(BigInteger.valueOf(12)));
+        Assert.assertTrue(userAuthorization.getRoleNames().isEmpty());
+        Assert.assertTrue(userAuthorization.getPermissions().isEmpty());
+
+        // Same user id in another scope
+        Assert.assertTrue(authorizationInfoLoader.load(new KapuaEid(BigInteger.valueOf(2)), USER_ID).getPermissions().isEmpty());
+    }
+
+    private Set<String> permissions(AuthorizationInfoLoader.UserAuthorization userAuthorization) {
+        Set<String> permissions = new HashSet<>();
+        for (Permission permission : userAuthorization.getPermissions()) {
+            permissions.add(permission.getDomain() + ":" + permission.getAction());
+        }
+        return permissions;
+    }
+
+    private AccessInfoImpl accessInfo(KapuaId userId) {
+        AccessInfoImpl accessInfo = new AccessInfoImpl(SCOPE_ID);
+        accessInfo.setUserId(userId);
+        return accessInfo;
+    }
+
+    private AccessPermissionImpl accessPermission(AccessInfoImpl accessInfo, Permission permission) {
+        AccessPermissionImpl accessPermission = new AccessPermissionImpl(SCOPE_ID);
+        accessPermission.setAccessInfoId(accessInfo.getId());
+        accessPermission.setPermission(permission);
+        return accessPermission;
+    }
+
+    private RoleImpl role(String name) {
+        RoleImpl role = new RoleImpl(SCOPE_ID);
+        role.setName(name);
+        return role;
+    }
+
+    private RolePermissionImpl rolePermission(RoleImpl role, Permission permission) {
+        RolePermissionImpl rolePermission = new RolePermissionImpl(SCOPE_ID, permission);
+        rolePermission.setRoleId(role.getId());
+        return rolePermission;
+    }
+
+    private AccessRoleImpl accessRole(AccessInfoImpl accessInfo, RoleImpl role) {
+        AccessRoleImpl accessRole = new AccessRoleImpl(SCOPE_ID);
+        accessRole.setAccessInfoId(accessInfo.getId());
+        accessRole.setRoleId(role.getId());
+        return accessRole;
+    }
+
+    private <E extends KapuaEntity> E persist(E entity) throws Exception {
+        // The entities are created by the trusted session
+        KapuaSecurityUtils.doPrivileged(() -> {
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                entityManager.getTransaction().begin();
+                entityManager.persist(entity);
+                entityManager.getTransaction().commit();
+            } finally {
+                entityManager.close();
+            }
+        });
+        return entity;
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.JpaTxContext;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.service.internal.cache.NamedEntityCache;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.authorization.access.AccessRole;
+import org.eclipse.kapua.service.authorization.access.AccessRoleRepository;
+import org.eclipse.kapua.service.authorization.access.shiro.CachingAccessRoleRepository;
+import org.eclipse.kapua.service.authorization.role.Role;
+import org.eclipse.kapua.service.authorization.role.RoleRepository;
+import org.eclipse.kapua.service.authorization.role.shiro.RoleCachingRepository;
+import org.eclipse.kapua.storage.TxManager;
+import org.eclipse.kapua.storage.TxManagerImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import javax.persistence.EntityManagerFactory;
+
+@Category(JUnitTests.class)
+public class AuthorizationInfoVersionTest {
+
+    private AuthorizationInfoVersion authorizationInfoVersion;
+    private TxManager txManager;
+    private AccessRoleRepository accessRoleRepository;
+    private RoleRepository roleRepository;
+
+    @Before
+    public void setUp() throws KapuaException {
+        authorizationInfoVersion = new AuthorizationInfoVersion();
+        txManager = new TxManagerImpl(() -> new JpaTxContext(Mockito.mock(EntityManagerFactory.class)), 0);
+
+        AccessRoleRepository wrappedAccessRoleRepository = Mockito.mock(AccessRoleRepository.class);
+        AccessRole accessRole = Mockito.mock(AccessRole.class);
+        Mockito.when(wrappedAccessRoleRepository.create(Matchers.any(), Matchers.any(AccessRole.class))).thenReturn(accessRole);
+        Mockito.when(wrappedAccessRoleRepository.delete(Matchers.any(), Matchers.any(KapuaId.class), Matchers.any(KapuaId.class))).thenReturn(accessRole);
+        accessRoleRepository = new CachingAccessRoleRepository(wrappedAccessRoleRepository, Mockito.mock(EntityCache.class), authorizationInfoVersion);
+
+        RoleRepository wrappedRoleRepository = Mockito.mock(RoleRepository.class);
+        Mockito.when(wrappedRoleRepository.update(Matchers.any(), Matchers.any(Role.class))).thenReturn(Mockito.mock(Role.class));
+        roleRepository = new RoleCachingRepository(wrappedRoleRepository, Mockito.mock(NamedEntityCache.class), authorizationInfoVersion);
+    }
+
+    @Test
+    public void versionIsIncrementedAfterTheCommit() throws KapuaException {
+        txManager.execute(tx -> {
+            accessRoleRepository.create(tx, Mockito.mock(AccessRole.class));
+            roleRepository.update(tx, Mockito.mock(Role.class));
+            // An authorization info loaded now, still without the changes, must not be cached with the new version
+            Assert.assertEquals(0, authorizationInfoVersion.get());
+            return null;
+        });
+
+        Assert.assertEquals(2, authorizationInfoVersion.get());
+    }
+
+    @Test
+    public void versionIsNotIncrementedOnRollback() {
+        try {
+            txManager.execute(tx -> {
+                accessRoleRepository.delete(tx, KapuaId.ONE, KapuaId.ONE);
+                throw KapuaException.internalError("Rolled back");
+            });
+            Assert.fail("The transaction should fail");
+        } catch (KapuaException e) {
+            // Expected
+        }
+
+        Assert.assertEquals(0, authorizationInfoVersion.get());
+    }
+
+    @Test
+    public void versionIsIncrementedOnceCommittedAfterARetry() throws KapuaException {
+        TxManager retryingTxManager = new TxManagerImpl(() -> new JpaTxContext(Mockito.mock(EntityManagerFactory.class)) {
+
+            @Override
+            public boolean isRecoverableException(Exception ex) {
+                return true;
+            }
+        }, 1);
+        boolean[] failed = new boolean[1];
+
+        retryingTxManager.execute(tx -> {
+            accessRoleRepository.delete(tx, KapuaId.ONE, KapuaId.ONE);
+            if (!failed[0]) {
+                failed[0] = true;
+                throw KapuaException.internalError("Lock timeout");
+            }
+            return null;
+        });
+
+        Assert.assertEquals(1, authorizationInfoVersion.get());
+    }
+}
@@ -12,16 +12,27 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.shiro;
 
+import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.authorization.shiro.AuthorizationInfoLoader.UserAuthorization;
+import org.eclipse.kapua.service.user.User;
+import org.eclipse.kapua.service.user.UserService;
+import org.eclipse.kapua.service.user.UserStatus;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.mockito.Mockito;
 
-
 @Category(JUnitTests.class)
 public class KapuaAuthorizingRealmTest {
 
@@ -34,6 +45,11 @@ public class KapuaAuthorizingRealmTest {
         authenticationToken = Mockito.mock(AuthenticationToken.class);
     }
 
+    @After
+    public void tearDown() {
+        ThreadContext.unbindSubject();
+    }
+
     @Test
     public void kapuaAuthorizingRealmTest() {
         Assert.assertEquals("Expected and actual values should be the same.", "kapuaAuthorizingRealm", kapuaAuthorizingRealm.getName());
@@ -58,4 +74,81 @@ public class KapuaAuthorizingRealmTest {
     public void doGetAuthenticationInfoNullTest() {
         Assert.assertNull("Null expected.", kapuaAuthorizingRealm.doGetAuthenticationInfo(authenticationToken));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void cachedAuthorizationInfoIsReturnedForAnExistingUser() throws Exception {
+        User user = user(UserStatus.ENABLED);
+        UserService userService = userService(user);
+        AuthorizationInfoLoader authorizationInfoLoader = authorizationInfoLoader();
+        KapuaAuthorizingRealm realm = cachingRealm(userService, authorizationInfoLoader);
+
+        AuthorizationInfo authorizationInfo = realm.doGetAuthorizationInfo(principals(user));
+
+        Assert.assertSame(authorizationInfo, realm.doGetAuthorizationInfo(principals(user)));
+        Mockito.verify(authorizationInfoLoader, Mockito.times(1)).load(KapuaId.ONE, user.getId());
+        Mockito.verify(userService, Mockito.times(2)).findByName("user");
+    }
+
+    @Test
+    public void cachedAuthorizationInfoIsNotReturnedForADeletedUser() throws Exception {
+        User user = user(UserStatus.ENABLED);
+        UserService userService = userService(user);
+        KapuaAuthorizingRealm realm = cachingRealm(userService, authorizationInfoLoader());
+        realm.doGetAuthorizationInfo(principals(user));
+
+        Mockito.when(userService.findByName("user")).thenReturn(null);
+
+        assertLoggedOut(realm, user);
+    }
+
+    @Test
+    public void cachedAuthorizationInfoIsNotReturnedForADisabledUser() throws Exception {
+        User user = user(UserStatus.ENABLED);
+        KapuaAuthorizingRealm realm = cachingRealm(userService(user), authorizationInfoLoader());
+        realm.doGetAuthorizationInfo(principals(user));
+
+        Mockito.when(user.getStatus()).thenReturn(UserStatus.DISABLED);
+
+        assertLoggedOut(realm, user);
+    }
+
+    private void assertLoggedOut(KapuaAuthorizingRealm realm, User user) {
+        Subject subject = Mockito.mock(Subject.class);
+        ThreadContext.bind(subject);
+        try {
+            realm.doGetAuthorizationInfo(principals(user));
+            Assert.fail("AuthenticationException expected");
+        } catch (AuthenticationException e) {
+            Mockito.verify(subject).logout();
+        }
+    }
+
+    private KapuaAuthorizingRealm cachingRealm(UserService userService, AuthorizationInfoLoader authorizationInfoLoader) {
+        return new KapuaAuthorizingRealm(Mockito.mock(PermissionMapperImpl.class), authorizationInfoLoader, new AuthorizationInfoVersion(), userService, 10, 60);
+    }
+
+    private AuthorizationInfoLoader authorizationInfoLoader() throws KapuaException {
+        AuthorizationInfoLoader authorizationInfoLoader = Mockito.mock(AuthorizationInfoLoader.class);
+        Mockito.when(authorizationInfoLoader.load(Mockito.any(KapuaId.class), Mockito.any(KapuaId.class))).thenReturn(Mockito.mock(UserAuthorization.class));
+        return authorizationInfoLoader;
+    }
+
+    private UserService userService(User user) throws KapuaException {
+        UserService userService = Mockito.mock(UserService.class);
+        Mockito.when(userService.findByName("user")).thenReturn(user);
+        return userService;
+    }
+
+    private User user(UserStatus status) {
+        User user = Mockito.mock(User.class);
+        Mockito.when(user.getId()).thenReturn(KapuaId.ANY);
+        Mockito.when(user.getScopeId()).thenReturn(KapuaId.ONE);
+        Mockito.when(user.getName()).thenReturn("user");
+        Mockito.when(user.getStatus()).thenReturn(status);
+        return user;
+    }
+
+    private PrincipalCollection principals(User user) {
+        return new SimplePrincipalCollection(user, KapuaAuthorizingRealm.REALM_NAME);
+    }
+}
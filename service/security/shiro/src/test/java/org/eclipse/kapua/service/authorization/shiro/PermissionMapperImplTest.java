@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.authorization.shiro;
+
+import org.apache.shiro.authz.Permission;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.domain.Actions;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.authorization.domain.Domain;
+import org.eclipse.kapua.service.authorization.domain.DomainRegistryService;
+import org.eclipse.kapua.service.authorization.group.Group;
+import org.eclipse.kapua.service.authorization.shiro.setting.KapuaAuthorizationSetting;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+
+@Category(JUnitTests.class)
+public class PermissionMapperImplTest {
+
+    private static final KapuaId PARENT_SCOPE_ID = new KapuaEid(BigInteger.valueOf(10));
+    private static final KapuaId CHILD_SCOPE_ID = new KapuaEid(BigInteger.valueOf(20));
+    private static final KapuaId OTHER_SCOPE_ID = new KapuaEid(BigInteger.valueOf(30));
+    private static final KapuaId GROUP_ID = new KapuaEid(BigInteger.valueOf(100));
+
+    private PermissionMapperImpl permissionMapper;
+
+    @Before
+    public void initialize() throws Exception {
+        Domain groupableDomain = Mockito.mock(Domain.class);
+        Mockito.when(groupableDomain.getGroupable()).thenReturn(true);
+        Domain notGroupableDomain = Mockito.mock(Domain.class);
+        Mockito.when(notGroupableDomain.getGroupable()).thenReturn(false);
+        DomainRegistryService domainRegistryService = Mockito.mock(DomainRegistryService.class);
+        Mockito.when(domainRegistryService.findByName("device")).thenReturn(groupableDomain);
+        Mockito.when(domainRegistryService.findByName("user")).thenReturn(notGroupableDomain);
+
+        Account childAccount = Mockito.mock(Account.class);
+        Mockito.when(childAccount.getScopeId()).thenReturn(PARENT_SCOPE_ID);
+        Mockito.when(childAccount.getParentAccountPath()).thenReturn("/1/10/20");
+        AccountService accountService = Mockito.mock(AccountService.class);
+        Mockito.when(accountService.find(CHILD_SCOPE_ID)).thenReturn(childAccount);
+
+        permissionMapper = new PermissionMapperImpl(domainRegistryService, accountService, new KapuaAuthorizationSetting());
+    }
+
+    @Test
+    public void impliesTest() {
+        Permission permission = permission("device", Actions.read, PARENT_SCOPE_ID, null, false);
+
+        Assert.assertTrue(permission.implies(permission("device", Actions.read, PARENT_SCOPE_ID, GROUP_ID, false)));
+        Assert.assertTrue(permission.implies(permission("DEVICE", Actions.read, PARENT_SCOPE_ID, null, false)));
+        Assert.assertFalse(permission.implies(permission("device", Actions.write, PARENT_SCOPE_ID, null, false)));
+        Assert.assertFalse(permission.implies(permission("user", Actions.read, PARENT_SCOPE_ID, null, false)));
+        Assert.assertFalse(permission.implies(permission(null, Actions.read, PARENT_SCOPE_ID, null, false)));
+        Assert.assertFalse(permission.implies(permission("device", Actions.read, OTHER_SCOPE_ID, null, false)));
+        Assert.assertTrue(permission.implies(permission("device", Actions.read, KapuaId.ANY, null, false)));
+        Assert.assertTrue(permission("device", null, null, null, false).implies(permission("device", Actions.write, OTHER_SCOPE_ID, GROUP_ID, false)));
+    }
+
+    @Test
+    public void impliesGroupTest() {
+        Permission permission = permission(null, Actions.read, PARENT_SCOPE_ID, GROUP_ID, false);
+
+        Assert.assertTrue(permission.implies(permission("device", Actions.read, PARENT_SCOPE_ID, GROUP_ID, false)));
+        Assert.assertFalse(permission.implies(permission("device", Actions.read, PARENT_SCOPE_ID, new KapuaEid(BigInteger.valueOf(101)), false)));
+        Assert.assertFalse(permission.implies(permission("device", Actions.read, PARENT_SCOPE_ID, null, false)));
+        Assert.assertTrue(permission.implies(permission("device", Actions.read, PARENT_SCOPE_ID, Group.ANY, false)));
+        // Not groupable domain
+        Assert.assertTrue(permission.implies(permission("user", Actions.read, PARENT_SCOPE_ID, null, false)));
+    }
+
+    @Test
+    public void impliesDoesNotChangePermissionTest() {
+        Permission permission = permission("device", Actions.read, PARENT_SCOPE_ID, GROUP_ID, false);
+
+        Assert.assertTrue(permission.implies(permission("device", Actions.read, KapuaId.ANY, Group.ANY, false)));
+        Assert.assertFalse(permission.implies(permission("device", Actions.read, OTHER_SCOPE_ID, null, false)));
+        Assert.assertEquals(permission("device", Actions.read, PARENT_SCOPE_ID, GROUP_ID, false), permission);
+    }
+
+    @Test
+    public void impliesForwardableTest() {
+        Assert.assertTrue(permission("device", Actions.read, PARENT_SCOPE_ID, null, true).implies(permission("device", Actions.read, CHILD_SCOPE_ID, null, false)));
+        Assert.assertFalse(permission("device", Actions.read, PARENT_SCOPE_ID, null, false).implies(permission("device", Actions.read, CHILD_SCOPE_ID, null, false)));
+        Assert.assertFalse(permission("device", Actions.read, OTHER_SCOPE_ID, null, true).implies(permission("device", Actions.read, CHILD_SCOPE_ID, null, false)));
+    }
+
+    @Test
+    public void authorizationInfoTest() {
+        KapuaAuthorizationInfo authorizationInfo = new KapuaAuthorizationInfo(permissionMapper, Collections.singleton("role"), Arrays.asList(
+                permission("device", Actions.read, PARENT_SCOPE_ID, null, false),
+                permission(null, Actions.write, PARENT_SCOPE_ID, null, false)));
+
+        Assert.assertTrue(authorizationInfo.isPermitted(permission("Device", Actions.read, PARENT_SCOPE_ID, null, false)));
+        Assert.assertTrue(authorizationInfo.isPermitted(permission("user", Actions.write, PARENT_SCOPE_ID, null, false)));
+        Assert.assertFalse(authorizationInfo.isPermitted(permission("user", Actions.read, PARENT_SCOPE_ID, null, false)));
+        Assert.assertFalse(authorizationInfo.isPermitted(permission(null, Actions.read, PARENT_SCOPE_ID, null, false)));
+    }
+
+    private Permission permission(String domain, Actions action, KapuaId targetScopeId, KapuaId groupId, boolean forwardable) {
+        return permissionMapper.new KapuaPermission(domain, action, targetScopeId, groupId, forwardable);
+    }
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator;
+
+import org.eclipse.kapua.message.Message;
+
+/**
+ * {@link Translator} which translates in a single step what the {@link TranslatorChain} through the intermediate VIA_M type translates,
+ * without building the intermediate {@link Message}.
+ * <p>
+ * The {@link TranslatorHub} returns it in place of the {@link TranslatorChain} only when asked for its own intermediate type,
+ * and never from the lookups without an intermediate type.
+ *
+ * @param <FROM_M> {@link Message} type from which {@link #translate(Message)}.
+ * @param <VIA_M>  {@link Message} intermediate type which is not built.
+ * @param <TO_M>   {@link Message} type to which {@link #translate(Message)}.
+ * @since 2.1.0
+ */
+public abstract class FusedTranslator<FROM_M extends Message, VIA_M extends Message, TO_M extends Message> extends Translator<FROM_M, TO_M> {
+
+    /**
+     * Returns the VIA_M {@link Message} type.
+     *
+     * @return The VIA_M {@link Message} type.
+     * @since 2.1.0
+     */
+    public abstract Class<VIA_M> getClassVia();
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator;
+
+import org.eclipse.kapua.message.Message;
+import org.eclipse.kapua.translator.exception.TranslateException;
+
+/**
+ * {@link Translator} which chains two {@link Translator}s through an intermediate {@link Message} type.
+ * <p>
+ * Used by the {@link TranslatorHub} when no {@link FusedTranslator} is available for the intermediate type.
+ *
+ * @param <FROM_M> {@link Message} type from which {@link #translate(Message)}.
+ * @param <VIA_M>  {@link Message} intermediate type.
+ * @param <TO_M>   {@link Message} type to which {@link #translate(Message)}.
+ * @since 2.1.0
+ */
+public class TranslatorChain<FROM_M extends Message, VIA_M extends Message, TO_M extends Message> extends Translator<FROM_M, TO_M> {
+
+    private final Translator<FROM_M, VIA_M> first;
+    private final Translator<VIA_M, TO_M> second;
+
+    /**
+     * Constructor.
+     *
+     * @param first  The {@link Translator} from FROM_M to VIA_M.
+     * @param second The {@link Translator} from VIA_M to TO_M.
+     * @since 2.1.0
+     */
+    public TranslatorChain(Translator<FROM_M, VIA_M> first, Translator<VIA_M, TO_M> second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public TO_M translate(FROM_M message) throws TranslateException {
+        return second.translate(first.translate(message));
+    }
+
+    @Override
+    public Class<FROM_M> getClassFrom() {
+        return first.getClassFrom();
+    }
+
+    @Override
+    public Class<TO_M> getClassTo() {
+        return second.getClassTo();
+    }
+}
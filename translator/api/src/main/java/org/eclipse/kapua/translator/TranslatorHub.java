@@ -25,4 +25,24 @@ public interface TranslatorHub {
     TRANSLATOR getTranslatorFor(
             @NotNull Class<? extends FROM_MESSAGE> fromMessageClass,
             @NotNull Class<? extends TO_MESSAGE> toMessageClass);
+
+    /**
+     * Gets the {@link Translator} from the given FROM_MESSAGE type to the given TO_MESSAGE type passing through the given intermediate type.
+     * <p>
+     * A {@link FusedTranslator} for the intermediate type is returned if available,
+     * otherwise a {@link TranslatorChain} of the {@link Translator}s through the intermediate type.
+     * Resolved {@link Translator}s are cached, so the lookup is done only once for each combination of the three types.
+     *
+     * @param fromMessageClass The FROM_MESSAGE type.
+     * @param viaMessageClass  The intermediate type.
+     * @param toMessageClass   The TO_MESSAGE type.
+     * @return The {@link Translator} from FROM_MESSAGE to TO_MESSAGE.
+     * @since 2.1.0
+     */
+    <FROM_MESSAGE extends Message,
+            TO_MESSAGE extends Message>
+    Translator<FROM_MESSAGE, TO_MESSAGE> getTranslatorFor(
+            @NotNull Class<? extends FROM_MESSAGE> fromMessageClass,
+            @NotNull Class<? extends Message> viaMessageClass,
+            @NotNull Class<? extends TO_MESSAGE> toMessageClass);
 }
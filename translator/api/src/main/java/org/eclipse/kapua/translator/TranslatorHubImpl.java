@@ -18,11 +18,17 @@ import org.eclipse.kapua.message.Message;
 import org.eclipse.kapua.translator.exception.TranslatorNotFoundException;
 
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TranslatorHubImpl implements TranslatorHub {
     private final Set<Translator> availableTranslators;
 
+    private final Map<TranslatorKey, Translator<?, ?>> translatorCache = new ConcurrentHashMap<>();
+
     /**
      * Sometimes just translators-api is imported a dependency - with no implementation class. In such cases, there is not Translator implementation to inject.
      * In order to be able to inject an empty list of Translators, this trick must be used, as java does not support default parameters and guice does not support optional injection in the constructors.
@@ -41,14 +47,97 @@ public class TranslatorHubImpl implements TranslatorHub {
 
     @Override
     public <FROM_MESSAGE extends Message, TO_MESSAGE extends Message, TRANSLATOR extends Translator<FROM_MESSAGE, TO_MESSAGE>> TRANSLATOR getTranslatorFor(Class<? extends FROM_MESSAGE> fromMessageClass, Class<? extends TO_MESSAGE> toMessageClass) {
+        return (TRANSLATOR) findTranslator(fromMessageClass, toMessageClass)
+                .orElseThrow(() -> new TranslatorNotFoundException(fromMessageClass, toMessageClass));
+    }
+
+    @Override
+    public <FROM_MESSAGE extends Message, TO_MESSAGE extends Message> Translator<FROM_MESSAGE, TO_MESSAGE> getTranslatorFor(Class<? extends FROM_MESSAGE> fromMessageClass, Class<? extends Message> viaMessageClass, Class<? extends TO_MESSAGE> toMessageClass) {
+        // The intermediate type is part of the key: different device types translate to the same Kapua type differently
+        final TranslatorKey translatorKey = new TranslatorKey(fromMessageClass, viaMessageClass, toMessageClass);
+        Translator<?, ?> translator = translatorCache.get(translatorKey);
+        if (translator == null) {
+            // A translator fused for the intermediate type avoids building the intermediate message, the chain is the fallback
+            translator = findFusedTranslator(fromMessageClass, viaMessageClass, toMessageClass)
+                    .orElseGet(() -> new TranslatorChain<>(getTranslatorFor(fromMessageClass, viaMessageClass), getTranslatorFor(viaMessageClass, toMessageClass)));
+            translatorCache.putIfAbsent(translatorKey, translator);
+        }
+        return (Translator<FROM_MESSAGE, TO_MESSAGE>) translator;
+    }
+
+    private Optional<Translator<?, ?>> findTranslator(Class<?> fromMessageClass, Class<?> toMessageClass) {
+        if (fromMessageClass == null || toMessageClass == null) {
+            return Optional.empty();
+        }
+
+        final TranslatorKey translatorKey = new TranslatorKey(fromMessageClass, null, toMessageClass);
+        Translator<?, ?> translator = translatorCache.get(translatorKey);
+        if (translator == null) {
+            translator = this.availableTranslators
+                    .stream()
+                    .filter(t -> !(t instanceof FusedTranslator))
+                    .filter(t -> fromMessageClass.isAssignableFrom(t.getClassFrom()))
+                    .filter(t -> toMessageClass.isAssignableFrom(t.getClassTo()))
+                    .map(t -> (Translator<?, ?>) t)
+                    .findFirst()
+                    .orElse(null);
+            if (translator != null) {
+                translatorCache.putIfAbsent(translatorKey, translator);
+            }
+        }
+        return Optional.ofNullable(translator);
+    }
+
+    private Optional<Translator<?, ?>> findFusedTranslator(Class<?> fromMessageClass, Class<?> viaMessageClass, Class<?> toMessageClass) {
+        if (fromMessageClass == null || viaMessageClass == null || toMessageClass == null) {
+            return Optional.empty();
+        }
+
         return this.availableTranslators
                 .stream()
-                .filter(t -> fromMessageClass != null)
-                .filter(t -> toMessageClass != null)
+                .filter(t -> t instanceof FusedTranslator)
+                .map(t -> (FusedTranslator<?, ?, ?>) t)
                 .filter(t -> fromMessageClass.isAssignableFrom(t.getClassFrom()))
+                .filter(t -> viaMessageClass.isAssignableFrom(t.getClassVia()))
                 .filter(t -> toMessageClass.isAssignableFrom(t.getClassTo()))
-                .map(t -> (TRANSLATOR) t)
-                .findFirst()
-                .orElseThrow(() -> new TranslatorNotFoundException(fromMessageClass, toMessageClass));
+                .<Translator<?, ?>>map(t -> t)
+                .findFirst();
+    }
+
+    /**
+     * Key of the resolved {@link Translator}s cache.
+     *
+     * @since 2.1.0
+     */
+    private static class TranslatorKey {
+
+        private final Class<?> fromMessageClass;
+        private final Class<?> viaMessageClass;
+        private final Class<?> toMessageClass;
+        private final int hashCode;
+
+        private TranslatorKey(Class<?> fromMessageClass, Class<?> viaMessageClass, Class<?> toMessageClass) {
+            this.fromMessageClass = fromMessageClass;
+            this.viaMessageClass = viaMessageClass;
+            this.toMessageClass = toMessageClass;
+            this.hashCode = Objects.hash(fromMessageClass, viaMessageClass, toMessageClass);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TranslatorKey)) {
+                return false;
+            }
+            TranslatorKey other = (TranslatorKey) o;
+            return fromMessageClass == other.fromMessageClass && viaMessageClass == other.viaMessageClass && toMessageClass == other.toMessageClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
     }
 }
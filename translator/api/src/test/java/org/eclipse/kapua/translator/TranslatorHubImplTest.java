@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator;
+
+import org.eclipse.kapua.message.Message;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.translator.exception.TranslatorNotFoundException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.function.Function;
+
+@Category(JUnitTests.class)
+public class TranslatorHubImplTest {
+
+    private TranslatorHubImpl translatorHub;
+
+    @Before
+    public void setUp() {
+        TranslatorHubImpl.TranslatorsHolder translatorsHolder = new TranslatorHubImpl.TranslatorsHolder();
+        translatorsHolder.value = new HashSet<>(Arrays.asList(
+                translator(SourceMessage.class, DeviceAMessage.class, source -> new DeviceAMessage(source.value + ">A")),
+                translator(SourceMessage.class, DeviceBMessage.class, source -> new DeviceBMessage(source.value + ">B")),
+                translator(DeviceAMessage.class, TargetMessage.class, device -> new TargetMessage(device.value + ">T")),
+                translator(DeviceBMessage.class, TargetMessage.class, device -> new TargetMessage(device.value + ">T")),
+                // Translator straight to the target type, which must not bypass the intermediate device type
+                translator(SourceMessage.class, TargetMessage.class, source -> new TargetMessage(source.value + ">direct"))));
+        translatorHub = new TranslatorHubImpl(translatorsHolder);
+    }
+
+    @Test
+    public void translatorThroughIntermediateType() throws Exception {
+        Translator<SourceMessage, TargetMessage> viaA = translatorHub.getTranslatorFor(SourceMessage.class, DeviceAMessage.class, TargetMessage.class);
+        Translator<SourceMessage, TargetMessage> viaB = translatorHub.getTranslatorFor(SourceMessage.class, DeviceBMessage.class, TargetMessage.class);
+
+        Assert.assertEquals("S>A>T", viaA.translate(new SourceMessage("S")).value);
+        Assert.assertEquals("S>B>T", viaB.translate(new SourceMessage("S")).value);
+    }
+
+    @Test
+    public void translatorsAreCachedPerTypes() {
+        Translator<SourceMessage, TargetMessage> viaA = translatorHub.getTranslatorFor(SourceMessage.class, DeviceAMessage.class, TargetMessage.class);
+
+        Assert.assertSame(viaA, translatorHub.getTranslatorFor(SourceMessage.class, DeviceAMessage.class, TargetMessage.class));
+        Assert.assertNotSame(viaA, translatorHub.getTranslatorFor(SourceMessage.class, DeviceBMessage.class, TargetMessage.class));
+        Assert.assertSame(translatorHub.getTranslatorFor(SourceMessage.class, TargetMessage.class), translatorHub.getTranslatorFor(SourceMessage.class, TargetMessage.class));
+    }
+
+    @Test
+    public void twoTypesLookup() throws Exception {
+        Translator<SourceMessage, TargetMessage> direct = translatorHub.getTranslatorFor(SourceMessage.class, TargetMessage.class);
+
+        Assert.assertEquals("S>direct", direct.translate(new SourceMessage("S")).value);
+    }
+
+    @Test
+    public void fusedTranslatorForItsIntermediateTypeOnly() throws Exception {
+        TranslatorHubImpl.TranslatorsHolder translatorsHolder = new TranslatorHubImpl.TranslatorsHolder();
+        translatorsHolder.value = new HashSet<>(Arrays.asList(
+                translator(SourceMessage.class, DeviceAMessage.class, source -> new DeviceAMessage(source.value + ">A")),
+                translator(SourceMessage.class, DeviceBMessage.class, source -> new DeviceBMessage(source.value + ">B")),
+                translator(DeviceAMessage.class, TargetMessage.class, device -> new TargetMessage(device.value + ">T")),
+                translator(DeviceBMessage.class, TargetMessage.class, device -> new TargetMessage(device.value + ">T")),
+                fusedTranslator(SourceMessage.class, DeviceAMessage.class, TargetMessage.class, source -> new TargetMessage(source.value + ">fusedA>T"))));
+        TranslatorHubImpl fusedTranslatorHub = new TranslatorHubImpl(translatorsHolder);
+
+        Translator<SourceMessage, TargetMessage> viaA = fusedTranslatorHub.getTranslatorFor(SourceMessage.class, DeviceAMessage.class, TargetMessage.class);
+        Translator<SourceMessage, TargetMessage> viaB = fusedTranslatorHub.getTranslatorFor(SourceMessage.class, DeviceBMessage.class, TargetMessage.class);
+
+        Assert.assertTrue(viaA instanceof FusedTranslator);
+        Assert.assertEquals("S>fusedA>T", viaA.translate(new SourceMessage("S")).value);
+        Assert.assertTrue(viaB instanceof TranslatorChain);
+        Assert.assertEquals("S>B>T", viaB.translate(new SourceMessage("S")).value);
+    }
+
+    @Test(expected = TranslatorNotFoundException.class)
+    public void fusedTranslatorIsNotATwoTypesTranslator() {
+        TranslatorHubImpl.TranslatorsHolder translatorsHolder = new TranslatorHubImpl.TranslatorsHolder();
+        translatorsHolder.value = new HashSet<>(Arrays.asList(
+                fusedTranslator(SourceMessage.class, DeviceAMessage.class, TargetMessage.class, source -> new TargetMessage(source.value + ">fusedA>T"))));
+
+        new TranslatorHubImpl(translatorsHolder).getTranslatorFor(SourceMessage.class, TargetMessage.class);
+    }
+
+    @Test(expected = TranslatorNotFoundException.class)
+    public void missingTranslator() {
+        translatorHub.getTranslatorFor(TargetMessage.class, DeviceAMessage.class, SourceMessage.class);
+    }
+
+    private static <F extends Message, T extends Message> Translator<F, T> translator(Class<F> classFrom, Class<T> classTo, Function<F, T> translation) {
+        return new Translator<F, T>() {
+
+            @Override
+            public T translate(F message) {
+                return translation.apply(message);
+            }
+
+            @Override
+            public Class<F> getClassFrom() {
+                return classFrom;
+            }
+
+            @Override
+            public Class<T> getClassTo() {
+                return classTo;
+            }
+        };
+    }
+
+    private static <F extends Message, V extends Message, T extends Message> Translator<F, T> fusedTranslator(Class<F> classFrom, Class<V> classVia, Class<T> classTo, Function<F, T> translation) {
+        return new FusedTranslator<F, V, T>() {
+
+            @Override
+            public T translate(F message) {
+                return translation.apply(message);
+            }
+
+            @Override
+            public Class<F> getClassFrom() {
+                return classFrom;
+            }
+
+            @Override
+            public Class<V> getClassVia() {
+                return classVia;
+            }
+
+            @Override
+            public Class<T> getClassTo() {
+                return classTo;
+            }
+        };
+    }
+
+    private static class TestMessage implements Message {
+
+        final String value;
+
+        TestMessage(String value) {
+            this.value = value;
+        }
+    }
+
+    private static class SourceMessage extends TestMessage {
+
+        SourceMessage(String value) {
+            super(value);
+        }
+    }
+
+    private static class DeviceAMessage extends TestMessage {
+
+        DeviceAMessage(String value) {
+            super(value);
+        }
+    }
+
+    private static class DeviceBMessage extends TestMessage {
+
+        DeviceBMessage(String value) {
+            super(value);
+        }
+    }
+
+    private static class TargetMessage extends TestMessage {
+
+        TargetMessage(String value) {
+            super(value);
+        }
+    }
+}
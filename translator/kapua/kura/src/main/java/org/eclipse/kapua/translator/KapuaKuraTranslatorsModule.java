@@ -19,9 +19,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.multibindings.Multibinder;
+import com.google.inject.multibindings.ProvidesIntoSet;
 import org.eclipse.kapua.commons.core.AbstractKapuaModule;
+import org.eclipse.kapua.commons.core.ServiceModule;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.event.ServiceEventBus;
 import org.eclipse.kapua.message.KapuaMessageFactory;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.device.registry.DeviceFactory;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.eclipse.kapua.translator.jms.kapua.TranslatorDataJmsKapua;
 import org.eclipse.kapua.translator.kapua.kura.TranslatorAppAssetKapuaKura;
 import org.eclipse.kapua.translator.kapua.kura.TranslatorAppBundleKapuaKura;
 import org.eclipse.kapua.translator.kapua.kura.TranslatorAppCommandKapuaKura;
@@ -46,6 +53,8 @@ import org.eclipse.kapua.translator.kura.kapua.TranslatorAppPackageKuraKapua;
 import org.eclipse.kapua.translator.kura.kapua.TranslatorAppResponseKuraKapua;
 import org.eclipse.kapua.translator.kura.kapua.TranslatorAppSnapshotKuraKapua;
 import org.eclipse.kapua.translator.kura.kapua.TranslatorDataKuraKapua;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaIdResolver;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaIdResolverModule;
 import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaUtils;
 import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaUtilsImpl;
 import org.eclipse.kapua.translator.kura.kapua.TranslatorLifeAppsKuraKapua;
@@ -64,6 +73,7 @@ import org.eclipse.kapua.translator.kura.kapua.keystore.TranslatorAppKeystoreIte
 import org.eclipse.kapua.translator.kura.kapua.keystore.TranslatorAppKeystoreItemsKuraKapua;
 import org.eclipse.kapua.translator.kura.kapua.keystore.TranslatorAppKeystoreNoContentKuraKapua;
 import org.eclipse.kapua.translator.kura.kapua.keystore.TranslatorAppKeystoresKuraKapua;
+import org.eclipse.kapua.translator.setting.TranslatorKapuaKuraSettingKeys;
 import org.eclipse.kapua.translator.setting.TranslatorKapuaKuraSettings;
 
 public class KapuaKuraTranslatorsModule extends AbstractKapuaModule {
@@ -117,6 +127,8 @@ public class KapuaKuraTranslatorsModule extends AbstractKapuaModule {
         translatorMultibinder.addBinding().to(TranslatorAppKeystoreNoContentKuraKapua.class);
         translatorMultibinder.addBinding().to(TranslatorAppKeystoreCsrKuraKapua.class);
         translatorMultibinder.addBinding().to(TranslatorAppKeystoresKuraKapua.class);
+        //org.eclipse.kapua.translator.jms.kapua
+        translatorMultibinder.addBinding().to(TranslatorDataJmsKapua.class);
 
         bind(ObjectMapper.class).toInstance(new ObjectMapper()
                 .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
@@ -126,6 +138,33 @@ public class KapuaKuraTranslatorsModule extends AbstractKapuaModule {
         bind(TranslatorKapuaKuraSettings.class).in(Singleton.class);
     }
 
+    @Provides
+    @Singleton
+    TranslatorKuraKapuaIdResolver translatorKuraKapuaIdResolver(AccountService accountService,
+                                                                DeviceRegistryService deviceRegistryService,
+                                                                DeviceFactory deviceFactory,
+                                                                TranslatorKapuaKuraSettings translatorKapuaKuraSettings) {
+        return new TranslatorKuraKapuaIdResolver(accountService,
+                deviceRegistryService,
+                deviceFactory,
+                translatorKapuaKuraSettings.getBoolean(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_ID_RESOLVER_CACHE_ENABLED, false),
+                translatorKapuaKuraSettings.getInt(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_ID_RESOLVER_CACHE_SIZE_MAXIMUM, 100000),
+                translatorKapuaKuraSettings.getLong(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_ID_RESOLVER_CACHE_EXPIRE_AFTER, 3600L) * 1000);
+    }
+
+    @ProvidesIntoSet
+    ServiceModule translatorKuraKapuaIdResolverModule(ServiceEventBus serviceEventBus,
+                                                      TranslatorKuraKapuaIdResolver translatorKuraKapuaIdResolver,
+                                                      TranslatorKapuaKuraSettings translatorKapuaKuraSettings) {
+        boolean resolveDeviceId = translatorKapuaKuraSettings.getBoolean(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_DATA_DEVICE_ID_RESOLVE, false);
+        return new TranslatorKuraKapuaIdResolverModule(serviceEventBus,
+                translatorKuraKapuaIdResolver,
+                translatorKapuaKuraSettings.getBoolean(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_ID_RESOLVER_CACHE_ENABLED, false),
+                translatorKapuaKuraSettings.getString(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_ID_RESOLVER_EVENT_ADDRESSES, "account,device").split(","),
+                translatorKapuaKuraSettings.getBoolean(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_ID_RESOLVER_WARMUP_ENABLED, true),
+                resolveDeviceId ? translatorKapuaKuraSettings.getInt(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_ID_RESOLVER_WARMUP_DEVICE_MAXIMUM, 10000) : 0);
+    }
+
     @Provides
     @Singleton
     public TranslatorKuraKapuaUtils translatorKuraKapuaUtils(KapuaMessageFactory kapuaMessageFactory) {
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator.jms.kapua;
+
+import org.eclipse.kapua.message.device.data.KapuaDataChannel;
+import org.eclipse.kapua.message.device.data.KapuaDataMessage;
+import org.eclipse.kapua.message.device.data.KapuaDataMessageFactory;
+import org.eclipse.kapua.message.device.data.KapuaDataPayload;
+import org.eclipse.kapua.message.internal.MessageException;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.device.call.message.kura.data.KuraDataMessage;
+import org.eclipse.kapua.service.device.call.message.kura.data.KuraDataPayload;
+import org.eclipse.kapua.translator.FusedTranslator;
+import org.eclipse.kapua.translator.exception.InvalidChannelException;
+import org.eclipse.kapua.translator.exception.InvalidMessageException;
+import org.eclipse.kapua.translator.exception.InvalidPayloadException;
+import org.eclipse.kapua.translator.exception.TranslateException;
+import org.eclipse.kapua.translator.exception.TranslatorErrorCodes;
+import org.eclipse.kapua.translator.exception.TranslatorException;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorDataKuraKapua;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaIdResolver;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaUtils;
+import org.eclipse.kapua.translator.setting.TranslatorKapuaKuraSettingKeys;
+import org.eclipse.kapua.translator.setting.TranslatorKapuaKuraSettings;
+import org.eclipse.kapua.transport.message.jms.JmsMessage;
+import org.eclipse.kapua.transport.message.jms.JmsPayload;
+import org.eclipse.kapua.transport.message.jms.JmsTopic;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link FusedTranslator} implementation from {@link JmsMessage} to {@link KapuaDataMessage} through {@link KuraDataMessage}.
+ * <p>
+ * It translates as the {@code TranslatorDataJmsKura} and {@link TranslatorDataKuraKapua} chain does, building the {@link KapuaDataMessage}
+ * straight from the {@link JmsTopic} tokens and the {@link JmsPayload} bytes: the {@link KuraDataMessage} and its channel are not built,
+ * and the metrics and body decoded from the Kura payload are handed to the {@link KapuaDataPayload} without being copied.
+ *
+ * @since 2.1.0
+ */
+public class TranslatorDataJmsKapua extends FusedTranslator<JmsMessage, KuraDataMessage, KapuaDataMessage> {
+
+    private final TranslatorKuraKapuaIdResolver translatorKuraKapuaIdResolver;
+    private final KapuaDataMessageFactory kapuaDataMessageFactory;
+    private final TranslatorKuraKapuaUtils translatorKuraKapuaUtils;
+    private final boolean resolveDeviceId;
+
+    /**
+     * Constructor.
+     *
+     * @param translatorKuraKapuaIdResolver The {@link TranslatorKuraKapuaIdResolver}.
+     * @param kapuaDataMessageFactory       The {@link KapuaDataMessageFactory}.
+     * @param translatorKuraKapuaUtils      The {@link TranslatorKuraKapuaUtils}.
+     * @param translatorKapuaKuraSettings   The {@link TranslatorKapuaKuraSettings}.
+     * @since 2.1.0
+     */
+    @Inject
+    public TranslatorDataJmsKapua(TranslatorKuraKapuaIdResolver translatorKuraKapuaIdResolver,
+                                  KapuaDataMessageFactory kapuaDataMessageFactory,
+                                  TranslatorKuraKapuaUtils translatorKuraKapuaUtils,
+                                  TranslatorKapuaKuraSettings translatorKapuaKuraSettings) {
+        this.translatorKuraKapuaIdResolver = translatorKuraKapuaIdResolver;
+        this.kapuaDataMessageFactory = kapuaDataMessageFactory;
+        this.translatorKuraKapuaUtils = translatorKuraKapuaUtils;
+        this.resolveDeviceId = translatorKapuaKuraSettings.getBoolean(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_DATA_DEVICE_ID_RESOLVE);
+    }
+
+    @Override
+    public KapuaDataMessage translate(JmsMessage jmsMessage) throws TranslateException {
+        try {
+            // Scope name, client id and semantic parts
+            String[] topicTokens = translateTopic(jmsMessage.getTopic());
+            // Kura payload (decoded only to read its fields)
+            KuraDataPayload kuraPayload = translate(jmsMessage.getPayload());
+
+            // Kapua Channel
+            KapuaDataChannel kapuaDataChannel = kapuaDataMessageFactory.newKapuaDataChannel();
+            List<String> semanticParts = new ArrayList<>(Math.max(topicTokens.length - 2, 0));
+            for (int i = 2; i < topicTokens.length; i++) {
+                semanticParts.add(topicTokens[i]);
+            }
+            kapuaDataChannel.setSemanticParts(semanticParts);
+
+            // Kapua payload
+            KapuaDataPayload kapuaDataPayload = kapuaDataMessageFactory.newKapuaDataPayload();
+            if (!kuraPayload.getMetrics().isEmpty()) {
+                kapuaDataPayload.setMetrics(kuraPayload.getMetrics());
+            }
+            if (kuraPayload.hasBody()) {
+                kapuaDataPayload.setBody(kuraPayload.getBody());
+            }
+
+            // Kapua message
+            KapuaId scopeId = translatorKuraKapuaIdResolver.resolveAccountId(topicTokens[0]);
+
+            KapuaDataMessage kapuaDataMessage = kapuaDataMessageFactory.newKapuaDataMessage();
+            kapuaDataMessage.setScopeId(scopeId);
+            kapuaDataMessage.setClientId(topicTokens[1]);
+            kapuaDataMessage.setChannel(kapuaDataChannel);
+            kapuaDataMessage.setPayload(kapuaDataPayload);
+            kapuaDataMessage.setCapturedOn(kuraPayload.getTimestamp());
+            kapuaDataMessage.setSentOn(kuraPayload.getTimestamp());
+            kapuaDataMessage.setReceivedOn(jmsMessage.getReceivedOn());
+            kapuaDataMessage.setPosition(translatorKuraKapuaUtils.translate(kuraPayload.getPosition()));
+
+            // Optionally resolve the KapuaDataChannel.clientId to improve performances
+            if (resolveDeviceId) {
+                kapuaDataMessage.setDeviceId(translatorKuraKapuaIdResolver.resolveDeviceId(scopeId, topicTokens[1]));
+            }
+
+            // Return Kapua Message
+            return kapuaDataMessage;
+        } catch (InvalidChannelException | InvalidPayloadException te) {
+            throw te;
+        } catch (Exception e) {
+            throw new InvalidMessageException(e, jmsMessage);
+        }
+    }
+
+    private String[] translateTopic(JmsTopic jmsTopic) throws InvalidChannelException {
+        try {
+            String[] topicTokens = jmsTopic.getSplittedTopic();
+
+            if (topicTokens.length < 2) {
+                throw new TranslatorException(TranslatorErrorCodes.INVALID_CHANNEL, null, (Object) topicTokens);
+            }
+
+            return topicTokens;
+        } catch (Exception e) {
+            throw new InvalidChannelException(e, jmsTopic);
+        }
+    }
+
+    private KuraDataPayload translate(JmsPayload jmsPayload) throws InvalidPayloadException {
+        try {
+            KuraDataPayload kuraPayload = new KuraDataPayload();
+
+            if (jmsPayload.hasBody()) {
+                try {
+                    kuraPayload.readFromByteArray(jmsPayload.getBody());
+                } catch (MessageException me) {
+                    // Not a Kura protobuf payload: the raw payload is the body, as for the data messages translated to Kura
+                    kuraPayload.setBody(jmsPayload.getBody());
+                }
+            }
+
+            return kuraPayload;
+        } catch (Exception e) {
+            throw new InvalidPayloadException(e, jmsPayload);
+        }
+    }
+
+    @Override
+    public Class<JmsMessage> getClassFrom() {
+        return JmsMessage.class;
+    }
+
+    @Override
+    public Class<KuraDataMessage> getClassVia() {
+        return KuraDataMessage.class;
+    }
+
+    @Override
+    public Class<KapuaDataMessage> getClassTo() {
+        return KapuaDataMessage.class;
+    }
+}
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua;
+
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.event.ServiceEventBusListener;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountListResult;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.service.device.registry.DeviceFactory;
+import org.eclipse.kapua.service.device.registry.DeviceListResult;
+import org.eclipse.kapua.service.device.registry.DeviceQuery;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves the {@link Account#getId()} from the {@link Account#getName()} and the {@link Device#getId()} from the {@link Device#getClientId()}
+ * for the Kura to Kapua translators.
+ * <p>
+ * Resolutions are loaded from the {@link AccountService} and the {@link DeviceRegistryService} on the first access and then served from memory,
+ * so that translating a message does not hit the database in steady state.
+ * They are invalidated by the {@link ServiceEvent}s received as {@link ServiceEventBusListener} and expire after a configurable time
+ * as a safety net for changes which are not notified.
+ * Not found {@link Device}s are cached as well, and are invalidated by any {@link Device} event of their scope.
+ * <p>
+ * Lookups are done with privileged access, since the scope and the client id of a message have already been authorized by the broker.
+ * <p>
+ * Each invalidation bumps a version: a resolution loaded while an invalidation happens is discarded instead of being cached.
+ * <p>
+ * Caching is meant only for the applications which subscribe the resolver to the service events with the {@link TranslatorKuraKapuaIdResolverModule}.
+ * When it is disabled every resolution is loaded from the services.
+ *
+ * @since 2.1.0
+ */
+public class TranslatorKuraKapuaIdResolver implements ServiceEventBusListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TranslatorKuraKapuaIdResolver.class);
+
+    private static final String ACCOUNT_SERVICE = "account";
+    private static final int WARMUP_PAGE_SIZE = 1000;
+
+    private final AccountService accountService;
+    private final DeviceRegistryService deviceRegistryService;
+    private final DeviceFactory deviceFactory;
+    private final boolean cacheEnabled;
+    private final int maxSize;
+    private final long expireAfterMillis;
+
+    private final ConcurrentMap<String, CachedId> accountIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<KapuaId, ScopeDevices> deviceIds = new ConcurrentHashMap<>();
+    private final AtomicLong deviceCount = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param accountService        The {@link AccountService} to load the {@link Account}s from.
+     * @param deviceRegistryService The {@link DeviceRegistryService} to load the {@link Device}s from.
+     * @param deviceFactory         The {@link DeviceFactory} to build the warm up queries.
+     * @param cacheEnabled          Whether to cache the resolutions.
+     * @param maxSize               The maximum number of cached resolutions, for each type.
+     * @param expireAfterMillis     The time (in milliseconds) after which a resolution is reloaded.
+     * @since 2.1.0
+     */
+    public TranslatorKuraKapuaIdResolver(AccountService accountService, DeviceRegistryService deviceRegistryService, DeviceFactory deviceFactory, boolean cacheEnabled, int maxSize, long expireAfterMillis) {
+        this.accountService = accountService;
+        this.deviceRegistryService = deviceRegistryService;
+        this.deviceFactory = deviceFactory;
+        this.cacheEnabled = cacheEnabled;
+        this.maxSize = maxSize;
+        this.expireAfterMillis = expireAfterMillis;
+    }
+
+    /**
+     * Resolves the {@link Account#getId()} of the given {@link Account#getName()}.
+     *
+     * @param accountName The {@link Account#getName()}.
+     * @return The {@link Account#getId()}.
+     * @throws KapuaEntityNotFoundException if the {@link Account} does not exist.
+     * @throws KapuaException               if the {@link Account} cannot be loaded.
+     * @since 2.1.0
+     */
+    public KapuaId resolveAccountId(String accountName) throws KapuaException {
+        CachedId cachedId = accountIds.get(accountName);
+        if (cachedId != null && !cachedId.isExpired()) {
+            return cachedId.id;
+        }
+
+        final long loadVersion = version.get();
+        Account account = KapuaSecurityUtils.doPrivileged(() -> accountService.findByName(accountName));
+        if (account == null) {
+            // Not cached: there is no event to reliably invalidate a missing account
+            throw new KapuaEntityNotFoundException(Account.TYPE, accountName);
+        }
+
+        cacheAccountId(accountName, account.getId(), loadVersion);
+        return account.getId();
+    }
+
+    /**
+     * Resolves the {@link Device#getId()} of the given {@link Device#getClientId()}.
+     *
+     * @param scopeId  The {@link Device#getScopeId()}.
+     * @param clientId The {@link Device#getClientId()}.
+     * @return The {@link Device#getId()}, or {@code null} if the {@link Device} does not exist.
+     * @throws KapuaException if the {@link Device} cannot be loaded.
+     * @since 2.1.0
+     */
+    public KapuaId resolveDeviceId(KapuaId scopeId, String clientId) throws KapuaException {
+        ScopeDevices scopeDevices = deviceIds.get(scopeId);
+        CachedId cachedId = scopeDevices != null ? scopeDevices.byClientId.get(clientId) : null;
+        if (cachedId != null && !cachedId.isExpired()) {
+            return cachedId.id;
+        }
+
+        final long loadVersion = version.get();
+        Device device = KapuaSecurityUtils.doPrivileged(() -> deviceRegistryService.findByClientId(scopeId, clientId));
+        KapuaId deviceId = device != null ? device.getId() : null;
+
+        cacheDeviceId(scopeId, clientId, deviceId, loadVersion);
+        return deviceId;
+    }
+
+    /**
+     * Pre-loads all the {@link Account}s and, if requested, up to the given number of {@link Device}s.
+     * <p>
+     * Does nothing if caching is disabled.
+     *
+     * @param maxDevices The maximum number of {@link Device}s to load. {@code 0} to skip them.
+     * @throws KapuaException if the {@link Account}s or the {@link Device}s cannot be loaded.
+     * @since 2.1.0
+     */
+    public void warmUp(int maxDevices) throws KapuaException {
+        if (!cacheEnabled) {
+            return;
+        }
+
+        final long loadVersion = version.get();
+
+        AccountListResult accounts = KapuaSecurityUtils.doPrivileged(() -> accountService.findChildrenRecursively(KapuaId.ONE));
+        Account rootAccount = KapuaSecurityUtils.doPrivileged(() -> accountService.find(KapuaId.ONE));
+        if (rootAccount != null) {
+            cacheAccountId(rootAccount.getName(), rootAccount.getId(), loadVersion);
+        }
+        for (Account account : accounts.getItems()) {
+            cacheAccountId(account.getName(), account.getId(), loadVersion);
+        }
+
+        int loadedDevices = 0;
+        for (CachedId accountId : accountIds.values()) {
+            for (int offset = 0; loadedDevices < maxDevices; offset += WARMUP_PAGE_SIZE) {
+                DeviceQuery query = deviceFactory.newQuery(accountId.id);
+                query.setOffset(offset);
+                query.setLimit(Math.min(WARMUP_PAGE_SIZE, maxDevices - loadedDevices));
+
+                DeviceListResult devices = KapuaSecurityUtils.doPrivileged(() -> deviceRegistryService.query(query));
+                for (Device device : devices.getItems()) {
+                    cacheDeviceId(device.getScopeId(), device.getClientId(), device.getId(), loadVersion);
+                }
+                loadedDevices += devices.getSize();
+                if (devices.getSize() < query.getLimit()) {
+                    break;
+                }
+            }
+        }
+        LOG.info("Pre-loaded {} account and {} device id resolutions", accountIds.size(), loadedDevices);
+    }
+
+    /**
+     * Invalidates all the resolutions.
+     *
+     * @since 2.1.0
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        accountIds.clear();
+        deviceIds.clear();
+        deviceCount.set(0);
+    }
+
+    @Override
+    public void onKapuaEvent(ServiceEvent kapuaEvent) {
+        LOG.debug("Invalidating id resolutions on event {} {} {}", kapuaEvent.getService(), kapuaEvent.getOperation(), kapuaEvent.getEntityId());
+        if (kapuaEvent.getEntityId() == null) {
+            return;
+        }
+        version.incrementAndGet();
+
+        if (ACCOUNT_SERVICE.equals(kapuaEvent.getService())) {
+            // Account names cannot be changed, so only the resolutions to the account itself must be dropped
+            accountIds.values().removeIf(cachedId -> kapuaEvent.getEntityId().equals(cachedId.id));
+            ScopeDevices scopeDevices = deviceIds.remove(kapuaEvent.getEntityId());
+            if (scopeDevices != null) {
+                deviceCount.addAndGet(-scopeDevices.byClientId.size());
+            }
+        } else {
+            KapuaId scopeId = kapuaEvent.getEntityScopeId() != null ? kapuaEvent.getEntityScopeId() : kapuaEvent.getScopeId();
+            ScopeDevices scopeDevices = scopeId != null ? deviceIds.get(scopeId) : null;
+            if (scopeDevices != null) {
+                scopeDevices.invalidate(kapuaEvent.getEntityId());
+            }
+        }
+    }
+
+    private void cacheAccountId(String accountName, KapuaId accountId, long loadVersion) {
+        if (!cacheEnabled) {
+            return;
+        }
+        if (accountIds.size() >= maxSize) {
+            accountIds.clear();
+        }
+        CachedId cachedId = new CachedId(accountId);
+        accountIds.put(accountName, cachedId);
+        // An invalidation happened while loading: the resolution could be stale
+        if (version.get() != loadVersion) {
+            accountIds.remove(accountName, cachedId);
+        }
+    }
+
+    private void cacheDeviceId(KapuaId scopeId, String clientId, KapuaId deviceId, long loadVersion) {
+        if (!cacheEnabled) {
+            return;
+        }
+        if (deviceCount.get() >= maxSize) {
+            deviceIds.clear();
+            deviceCount.set(0);
+        }
+        ScopeDevices scopeDevices = deviceIds.computeIfAbsent(scopeId, id -> new ScopeDevices());
+        CachedId cachedId = new CachedId(deviceId);
+        if (scopeDevices.put(clientId, cachedId) == null) {
+            deviceCount.incrementAndGet();
+        }
+        // An invalidation happened while loading: the resolution could be stale
+        if (version.get() != loadVersion) {
+            scopeDevices.remove(clientId, cachedId);
+        }
+    }
+
+    /**
+     * The cached resolutions of the {@link Device}s of a scope.
+     *
+     * @since 2.1.0
+     */
+    private class ScopeDevices {
+
+        private final ConcurrentMap<String, CachedId> byClientId = new ConcurrentHashMap<>();
+        private final ConcurrentMap<KapuaId, String> clientIdById = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Boolean> missingClientIds = new ConcurrentHashMap<>();
+
+        private CachedId put(String clientId, CachedId cachedId) {
+            if (cachedId.id != null) {
+                clientIdById.put(cachedId.id, clientId);
+            } else {
+                missingClientIds.put(clientId, Boolean.TRUE);
+            }
+            return byClientId.put(clientId, cachedId);
+        }
+
+        private void remove(String clientId, CachedId cachedId) {
+            if (byClientId.remove(clientId, cachedId)) {
+                deviceCount.decrementAndGet();
+            }
+        }
+
+        private void invalidate(KapuaId deviceId) {
+            String clientId = clientIdById.remove(deviceId);
+            if (clientId != null && byClientId.remove(clientId) != null) {
+                deviceCount.decrementAndGet();
+            }
+            // The event could be the creation of a device which was not found before
+            for (String missingClientId : missingClientIds.keySet()) {
+                missingClientIds.remove(missingClientId);
+                CachedId cachedId = byClientId.get(missingClientId);
+                if (cachedId != null && cachedId.id == null) {
+                    remove(missingClientId, cachedId);
+                }
+            }
+        }
+    }
+
+    /**
+     * A cached resolution.
+     *
+     * @since 2.1.0
+     */
+    private class CachedId {
+
+        private final KapuaId id;
+        private final long loadedOn;
+
+        private CachedId(KapuaId id) {
+            this.id = id;
+            this.loadedOn = System.currentTimeMillis();
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - loadedOn > expireAfterMillis;
+        }
+    }
+}
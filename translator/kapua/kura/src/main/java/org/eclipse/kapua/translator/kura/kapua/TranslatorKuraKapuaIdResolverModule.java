@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.core.ServiceModule;
+import org.eclipse.kapua.event.ServiceEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+/**
+ * {@link ServiceModule} which subscribes the {@link TranslatorKuraKapuaIdResolver} to the service event bus addresses and pre-loads it.
+ * <p>
+ * Each instance uses its own subscription name, so that every running instance receives the events and invalidates its own resolutions.
+ * A failed pre-load does not prevent the start, since resolutions are loaded on demand anyway.
+ * <p>
+ * It does nothing unless the resolutions cache is enabled, which is the case only for the telemetry consumer.
+ *
+ * @since 2.1.0
+ */
+public class TranslatorKuraKapuaIdResolverModule implements ServiceModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TranslatorKuraKapuaIdResolverModule.class);
+
+    private final ServiceEventBus serviceEventBus;
+    private final TranslatorKuraKapuaIdResolver idResolver;
+    private final boolean enabled;
+    private final String[] eventAddresses;
+    private final boolean warmUpEnabled;
+    private final int warmUpMaxDevices;
+
+    public TranslatorKuraKapuaIdResolverModule(ServiceEventBus serviceEventBus, TranslatorKuraKapuaIdResolver idResolver, boolean enabled, String[] eventAddresses, boolean warmUpEnabled, int warmUpMaxDevices) {
+        this.serviceEventBus = serviceEventBus;
+        this.idResolver = idResolver;
+        this.enabled = enabled;
+        this.eventAddresses = eventAddresses;
+        this.warmUpEnabled = warmUpEnabled;
+        this.warmUpMaxDevices = warmUpMaxDevices;
+    }
+
+    @Override
+    public void start() throws KapuaException {
+        if (!enabled) {
+            return;
+        }
+
+        final String subscriberId = UUID.randomUUID().toString();
+        for (String eventAddress : eventAddresses) {
+            if (eventAddress.trim().isEmpty()) {
+                continue;
+            }
+            LOG.info("Subscribing translator id resolver to address {}", eventAddress);
+            serviceEventBus.subscribe(eventAddress.trim(), String.format("%s-translator-id-resolver-%s", eventAddress.trim(), subscriberId), idResolver);
+        }
+
+        if (warmUpEnabled) {
+            try {
+                idResolver.warmUp(warmUpMaxDevices);
+            } catch (Exception e) {
+                LOG.warn("Cannot pre-load the translator id resolver: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws KapuaException {
+        idResolver.invalidateAll();
+    }
+}
@@ -17,6 +17,7 @@ import org.eclipse.kapua.message.device.data.KapuaDataMessage;
 import org.eclipse.kapua.service.device.call.message.kura.KuraChannel;
 import org.eclipse.kapua.service.device.call.message.kura.data.KuraDataMessage;
 import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaIdResolver;
 
 /**
  * {@link SettingKey}s for {@link TranslatorKapuaKuraSettings}
@@ -30,7 +31,51 @@ public enum TranslatorKapuaKuraSettingKeys implements SettingKey {
      *
      * @since 2.1.0
      */
-    TRANSLATOR_KURA_KAPUA_DATA_DEVICE_ID_RESOLVE("translator.kura.kapua.data.deviceId.resolve");
+    TRANSLATOR_KURA_KAPUA_DATA_DEVICE_ID_RESOLVE("translator.kura.kapua.data.deviceId.resolve"),
+
+    /**
+     * Whether the {@link TranslatorKuraKapuaIdResolver} caches the resolutions.
+     * <p>
+     * Enable it only in the applications which can receive the account and device service events, since they invalidate the cached resolutions.
+     *
+     * @since 2.1.0
+     */
+    TRANSLATOR_KURA_KAPUA_ID_RESOLVER_CACHE_ENABLED("translator.kura.kapua.idResolver.cache.enabled"),
+
+    /**
+     * Maximum number of {@link KuraChannel#getScope()} and {@link KuraChannel#getClientId()} resolutions cached by the {@link TranslatorKuraKapuaIdResolver}.
+     *
+     * @since 2.1.0
+     */
+    TRANSLATOR_KURA_KAPUA_ID_RESOLVER_CACHE_SIZE_MAXIMUM("translator.kura.kapua.idResolver.cache.size.maximum"),
+
+    /**
+     * Expire time (in seconds) of the resolutions cached by the {@link TranslatorKuraKapuaIdResolver}, used as a safety net if no invalidation event is received.
+     *
+     * @since 2.1.0
+     */
+    TRANSLATOR_KURA_KAPUA_ID_RESOLVER_CACHE_EXPIRE_AFTER("translator.kura.kapua.idResolver.cache.expire.after"),
+
+    /**
+     * Comma separated list of the service event bus addresses whose events invalidate the resolutions cached by the {@link TranslatorKuraKapuaIdResolver}.
+     *
+     * @since 2.1.0
+     */
+    TRANSLATOR_KURA_KAPUA_ID_RESOLVER_EVENT_ADDRESSES("translator.kura.kapua.idResolver.event_addresses"),
+
+    /**
+     * Whether to pre-load the {@link TranslatorKuraKapuaIdResolver} when the application starts.
+     *
+     * @since 2.1.0
+     */
+    TRANSLATOR_KURA_KAPUA_ID_RESOLVER_WARMUP_ENABLED("translator.kura.kapua.idResolver.warmup.enabled"),
+
+    /**
+     * Maximum number of {@link Device}s pre-loaded by the {@link TranslatorKuraKapuaIdResolver} when the application starts.
+     *
+     * @since 2.1.0
+     */
+    TRANSLATOR_KURA_KAPUA_ID_RESOLVER_WARMUP_DEVICE_MAXIMUM("translator.kura.kapua.idResolver.warmup.device.maximum");
 
     /**
      * The key value of the {@link SettingKey}.
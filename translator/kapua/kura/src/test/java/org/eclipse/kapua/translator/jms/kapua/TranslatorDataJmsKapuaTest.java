@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator.jms.kapua;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.message.device.data.KapuaDataMessage;
+import org.eclipse.kapua.message.internal.KapuaMessageFactoryImpl;
+import org.eclipse.kapua.message.internal.device.data.KapuaDataMessageFactoryImpl;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.device.call.message.kura.KuraPosition;
+import org.eclipse.kapua.service.device.call.message.kura.data.KuraDataPayload;
+import org.eclipse.kapua.translator.exception.InvalidChannelException;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaIdResolver;
+import org.eclipse.kapua.translator.kura.kapua.TranslatorKuraKapuaUtilsImpl;
+import org.eclipse.kapua.translator.setting.TranslatorKapuaKuraSettingKeys;
+import org.eclipse.kapua.translator.setting.TranslatorKapuaKuraSettings;
+import org.eclipse.kapua.transport.message.jms.JmsMessage;
+import org.eclipse.kapua.transport.message.jms.JmsPayload;
+import org.eclipse.kapua.transport.message.jms.JmsTopic;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+@Category(JUnitTests.class)
+public class TranslatorDataJmsKapuaTest {
+
+    private static final KapuaId ACCOUNT_ID = new KapuaEid(BigInteger.valueOf(2));
+    private static final KapuaId DEVICE_ID = new KapuaEid(BigInteger.valueOf(3));
+
+    private TranslatorDataJmsKapua translator;
+
+    @Before
+    public void setUp() throws Exception {
+        TranslatorKuraKapuaIdResolver idResolver = Mockito.mock(TranslatorKuraKapuaIdResolver.class);
+        Mockito.when(idResolver.resolveAccountId("account")).thenReturn(ACCOUNT_ID);
+        Mockito.when(idResolver.resolveDeviceId(ACCOUNT_ID, "client")).thenReturn(DEVICE_ID);
+        TranslatorKapuaKuraSettings settings = Mockito.mock(TranslatorKapuaKuraSettings.class);
+        Mockito.when(settings.getBoolean(TranslatorKapuaKuraSettingKeys.TRANSLATOR_KURA_KAPUA_DATA_DEVICE_ID_RESOLVE)).thenReturn(true);
+
+        translator = new TranslatorDataJmsKapua(idResolver,
+                new KapuaDataMessageFactoryImpl(),
+                new TranslatorKuraKapuaUtilsImpl(new KapuaMessageFactoryImpl(), "$EDC"),
+                settings);
+    }
+
+    @Test
+    public void kuraPayloadIsTranslated() throws Exception {
+        Date capturedOn = new Date(1000L);
+        Date receivedOn = new Date(2000L);
+        KuraDataPayload kuraPayload = new KuraDataPayload();
+        kuraPayload.setTimestamp(capturedOn);
+        kuraPayload.addMetric("temperature", 21.5d);
+        kuraPayload.addMetric("status", "on");
+        kuraPayload.setBody("body".getBytes(StandardCharsets.UTF_8));
+        KuraPosition kuraPosition = new KuraPosition();
+        kuraPosition.setLatitude(45.5d);
+        kuraPosition.setLongitude(12.25d);
+        kuraPayload.setPosition(kuraPosition);
+
+        KapuaDataMessage kapuaMessage = translator.translate(jmsMessage(receivedOn, kuraPayload.toByteArray(), "account", "client", "app", "topic"));
+
+        Assert.assertEquals(ACCOUNT_ID, kapuaMessage.getScopeId());
+        Assert.assertEquals("client", kapuaMessage.getClientId());
+        Assert.assertEquals(DEVICE_ID, kapuaMessage.getDeviceId());
+        Assert.assertEquals(Arrays.asList("app", "topic"), kapuaMessage.getChannel().getSemanticParts());
+        Assert.assertEquals(capturedOn, kapuaMessage.getCapturedOn());
+        Assert.assertEquals(capturedOn, kapuaMessage.getSentOn());
+        Assert.assertEquals(receivedOn, kapuaMessage.getReceivedOn());
+        Assert.assertEquals(2, kapuaMessage.getPayload().getMetrics().size());
+        Assert.assertEquals(21.5d, kapuaMessage.getPayload().getMetrics().get("temperature"));
+        Assert.assertEquals("on", kapuaMessage.getPayload().getMetrics().get("status"));
+        Assert.assertArrayEquals("body".getBytes(StandardCharsets.UTF_8), kapuaMessage.getPayload().getBody());
+        Assert.assertEquals(45.5d, kapuaMessage.getPosition().getLatitude(), 0d);
+        Assert.assertEquals(12.25d, kapuaMessage.getPosition().getLongitude(), 0d);
+    }
+
+    @Test
+    public void rawPayloadIsTheBody() throws Exception {
+        byte[] rawPayload = "{\"temperature\": 21.5}".getBytes(StandardCharsets.UTF_8);
+
+        KapuaDataMessage kapuaMessage = translator.translate(jmsMessage(new Date(), rawPayload, "account", "client"));
+
+        Assert.assertEquals(Collections.emptyList(), kapuaMessage.getChannel().getSemanticParts());
+        Assert.assertTrue(kapuaMessage.getPayload().getMetrics().isEmpty());
+        Assert.assertArrayEquals(rawPayload, kapuaMessage.getPayload().getBody());
+        Assert.assertNull(kapuaMessage.getCapturedOn());
+        Assert.assertNull(kapuaMessage.getPosition());
+    }
+
+    @Test(expected = InvalidChannelException.class)
+    public void topicWithoutClientIdIsRejected() throws Exception {
+        translator.translate(jmsMessage(new Date(), new byte[0], "account"));
+    }
+
+    private static JmsMessage jmsMessage(Date receivedOn, byte[] body, String... topicParts) {
+        return new JmsMessage(new JmsTopic(topicParts), receivedOn, new JmsPayload(body));
+    }
+}
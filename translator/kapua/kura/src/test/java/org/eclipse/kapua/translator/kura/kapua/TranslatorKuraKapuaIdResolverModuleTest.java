@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua;
+
+import org.eclipse.kapua.event.ServiceEventBus;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+@Category(JUnitTests.class)
+public class TranslatorKuraKapuaIdResolverModuleTest {
+
+    private final ServiceEventBus serviceEventBus = Mockito.mock(ServiceEventBus.class);
+    private final TranslatorKuraKapuaIdResolver idResolver = Mockito.mock(TranslatorKuraKapuaIdResolver.class);
+
+    @Test
+    public void disabledModuleDoesNotSubscribe() throws Exception {
+        new TranslatorKuraKapuaIdResolverModule(serviceEventBus, idResolver, false, new String[]{"account", "device"}, true, 100).start();
+
+        Mockito.verifyZeroInteractions(serviceEventBus, idResolver);
+    }
+
+    @Test
+    public void enabledModuleSubscribesAndWarmsUp() throws Exception {
+        new TranslatorKuraKapuaIdResolverModule(serviceEventBus, idResolver, true, new String[]{"account", " device", ""}, true, 100).start();
+
+        Mockito.verify(serviceEventBus).subscribe(Matchers.eq("account"), Matchers.startsWith("account-translator-id-resolver-"), Matchers.same(idResolver));
+        Mockito.verify(serviceEventBus).subscribe(Matchers.eq("device"), Matchers.startsWith("device-translator-id-resolver-"), Matchers.same(idResolver));
+        Mockito.verifyNoMoreInteractions(serviceEventBus);
+        Mockito.verify(idResolver).warmUp(100);
+    }
+
+    @Test
+    public void failedWarmUpDoesNotPreventStart() throws Exception {
+        Mockito.doThrow(new IllegalStateException("Database not available")).when(idResolver).warmUp(100);
+
+        new TranslatorKuraKapuaIdResolverModule(serviceEventBus, idResolver, true, new String[]{"account"}, true, 100).start();
+
+        Mockito.verify(serviceEventBus).subscribe(Matchers.eq("account"), Matchers.anyString(), Matchers.same(idResolver));
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Eurotech and/or its affiliates and others
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.translator.kura.kapua;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.qa.markers.junit.JUnitTests;
+import org.eclipse.kapua.service.account.Account;
+import org.eclipse.kapua.service.account.AccountService;
+import org.eclipse.kapua.service.device.registry.Device;
+import org.eclipse.kapua.service.device.registry.DeviceFactory;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+
+@Category(JUnitTests.class)
+public class TranslatorKuraKapuaIdResolverTest {
+
+    private static final KapuaId ACCOUNT_ID = new KapuaEid(BigInteger.valueOf(2));
+    private static final KapuaId DEVICE_ID = new KapuaEid(BigInteger.valueOf(3));
+
+    private AccountService accountService;
+    private DeviceRegistryService deviceRegistryService;
+
+    @Before
+    public void setUp() throws Exception {
+        Account account = Mockito.mock(Account.class);
+        Mockito.when(account.getId()).thenReturn(ACCOUNT_ID);
+        accountService = Mockito.mock(AccountService.class);
+        Mockito.when(accountService.findByName("account")).thenReturn(account);
+
+        Device device = Mockito.mock(Device.class);
+        Mockito.when(device.getId()).thenReturn(DEVICE_ID);
+        deviceRegistryService = Mockito.mock(DeviceRegistryService.class);
+        Mockito.when(deviceRegistryService.findByClientId(ACCOUNT_ID, "client")).thenReturn(device);
+    }
+
+    @Test
+    public void disabledCacheLoadsEveryResolution() throws Exception {
+        TranslatorKuraKapuaIdResolver idResolver = idResolver(false);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(ACCOUNT_ID, idResolver.resolveAccountId("account"));
+            Assert.assertEquals(DEVICE_ID, idResolver.resolveDeviceId(ACCOUNT_ID, "client"));
+        }
+        idResolver.warmUp(10);
+
+        Mockito.verify(accountService, Mockito.times(3)).findByName("account");
+        Mockito.verify(deviceRegistryService, Mockito.times(3)).findByClientId(ACCOUNT_ID, "client");
+        Mockito.verifyNoMoreInteractions(accountService, deviceRegistryService);
+    }
+
+    @Test
+    public void enabledCacheLoadsOnce() throws Exception {
+        TranslatorKuraKapuaIdResolver idResolver = idResolver(true);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(ACCOUNT_ID, idResolver.resolveAccountId("account"));
+            Assert.assertEquals(DEVICE_ID, idResolver.resolveDeviceId(ACCOUNT_ID, "client"));
+        }
+
+        Mockito.verify(accountService, Mockito.times(1)).findByName("account");
+        Mockito.verify(deviceRegistryService, Mockito.times(1)).findByClientId(ACCOUNT_ID, "client");
+    }
+
+    @Test
+    public void deviceEventInvalidatesResolution() throws Exception {
+        TranslatorKuraKapuaIdResolver idResolver = idResolver(true);
+        Assert.assertNull(idResolver.resolveDeviceId(ACCOUNT_ID, "missing"));
+        Assert.assertEquals(DEVICE_ID, idResolver.resolveDeviceId(ACCOUNT_ID, "client"));
+
+        idResolver.onKapuaEvent(event("device", ACCOUNT_ID, DEVICE_ID));
+        Assert.assertEquals(DEVICE_ID, idResolver.resolveDeviceId(ACCOUNT_ID, "client"));
+        Assert.assertNull(idResolver.resolveDeviceId(ACCOUNT_ID, "missing"));
+
+        Mockito.verify(deviceRegistryService, Mockito.times(2)).findByClientId(ACCOUNT_ID, "client");
+        // Missing devices are dropped on any device event of their scope, since it could be their creation
+        Mockito.verify(deviceRegistryService, Mockito.times(2)).findByClientId(ACCOUNT_ID, "missing");
+    }
+
+    @Test
+    public void accountEventInvalidatesResolutions() throws Exception {
+        TranslatorKuraKapuaIdResolver idResolver = idResolver(true);
+        idResolver.resolveAccountId("account");
+        idResolver.resolveDeviceId(ACCOUNT_ID, "client");
+
+        idResolver.onKapuaEvent(event("account", KapuaId.ONE, ACCOUNT_ID));
+        idResolver.resolveAccountId("account");
+        idResolver.resolveDeviceId(ACCOUNT_ID, "client");
+
+        Mockito.verify(accountService, Mockito.times(2)).findByName("account");
+        Mockito.verify(deviceRegistryService, Mockito.times(2)).findByClientId(ACCOUNT_ID, "client");
+    }
+
+    private TranslatorKuraKapuaIdResolver idResolver(boolean cacheEnabled) {
+        return new TranslatorKuraKapuaIdResolver(accountService, deviceRegistryService, Mockito.mock(DeviceFactory.class), cacheEnabled, 100, 3600000L);
+    }
+
+    private ServiceEvent event(String service, KapuaId scopeId, KapuaId entityId) {
+        ServiceEvent serviceEvent = new ServiceEvent();
+        serviceEvent.setService(service);
+        serviceEvent.setOperation("update");
+        serviceEvent.setScopeId(scopeId);
+        serviceEvent.setEntityScopeId(scopeId);
+        serviceEvent.setEntityId(entityId);
+        return serviceEvent;
+    }
+}